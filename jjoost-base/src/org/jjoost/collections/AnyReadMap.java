@@ -25,6 +25,11 @@ package org.jjoost.collections;
 import java.io.Serializable;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.jjoost.util.Visitor;
 
 /**
  * This interface is the common ancestor of all Jjoost maps.
@@ -49,6 +54,8 @@ import java.util.Map.Entry;
  * 
  * @author b.elliottsmith
  */
+// javac 8 mistakes a serializable interface with default methods for a class lacking a serialVersionUID
+@SuppressWarnings("serial")
 public interface AnyReadMap<K, V> extends Serializable {
 
 	/**
@@ -161,6 +168,56 @@ public interface AnyReadMap<K, V> extends Serializable {
 	 * @return the entry set< k>
 	 */
 	public AnyReadSet<? extends Entry<K, V>> entries();
+
+	/**
+	 * Returns a sequential <code>Stream</code> over the entries of the map; equivalent to
+	 * <code>entries().stream()</code>
+	 * 
+	 * @return a sequential stream over the entries of the map
+	 */
+	@SuppressWarnings("unchecked")
+	public default Stream<Entry<K, V>> stream() {
+		return StreamSupport.stream((Spliterator<Entry<K, V>>) entries().spliterator(), false);
+	}
+
+	/**
+	 * Returns a possibly parallel <code>Stream</code> over the entries of the map; equivalent to
+	 * <code>entries().parallelStream()</code>
+	 * 
+	 * @return a possibly parallel stream over the entries of the map
+	 */
+	@SuppressWarnings("unchecked")
+	public default Stream<Entry<K, V>> parallelStream() {
+		return StreamSupport.stream((Spliterator<Entry<K, V>>) entries().spliterator(), true);
+	}
+
+	/**
+	 * Offers each entry in the map to the provided <code>Visitor</code> until it returns <code>false</code>; equivalent to
+	 * <code>entries().visit(visitor)</code>
+	 * 
+	 * @param visitor
+	 *            visitor to offer each entry to
+	 * @return <code>false</code> if the visitor ended the visit early
+	 */
+	public default boolean visit(Visitor<? super Entry<K, V>> visitor) {
+		return entries().visit(visitor);
+	}
+
+	/**
+	 * Offers each entry in one of <code>partitions</code> disjoint parts of the map to the provided <code>Visitor</code>
+	 * until it returns <code>false</code>; equivalent to <code>entries().visit(partition, partitions, visitor)</code>
+	 * 
+	 * @param partition
+	 *            the partition to visit, from <code>0</code> to <code>partitions - 1</code>
+	 * @param partitions
+	 *            the number of partitions the map is divided into
+	 * @param visitor
+	 *            visitor to offer each entry to
+	 * @return <code>false</code> if the visitor ended the visit early
+	 */
+	public default boolean visit(int partition, int partitions, Visitor<? super Entry<K, V>> visitor) {
+		return entries().visit(partition, partitions, visitor);
+	}
 	
 	/**
 	 * Returns a set representing the range of the map. Operations on this
@@ -221,4 +278,16 @@ public interface AnyReadMap<K, V> extends Serializable {
 	 */
 	public AnyReadMap<K, V> copy();
 	
+	/**
+	 * Returns a copy of the map intended for long scans, which will not reflect any modification made after it is
+	 * returned; its cost and consistency depend upon the implementation, as described by
+	 * <code>AnyReadSet.snapshot()</code>. In particular, a snapshot of a lock-free map is not point-in-time.
+	 * <code>entries().snapshot()</code> is equivalent to <code>snapshot().entries()</code>.
+	 * 
+	 * @return a copy of the map that will not reflect subsequent changes to it
+	 */
+	public default AnyReadMap<K, V> snapshot() {
+		return copy();
+	}
+	
 }
@@ -24,9 +24,12 @@ package org.jjoost.collections;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.jjoost.util.Equality;
 import org.jjoost.util.Function;
+import org.jjoost.util.Visitor;
 
 /**
  * <p> This interface is the common ancestor of all Jjoost sets. 
@@ -45,6 +48,8 @@ import org.jjoost.util.Function;
  * 
  * @author b.elliottsmith
  */
+// javac 8 mistakes a serializable interface with default methods for a class lacking a serialVersionUID
+@SuppressWarnings("serial")
 public interface AnyReadSet<V> extends Iterable<V>, Function<V, Boolean>, Serializable {
 
 	/**
@@ -112,6 +117,63 @@ public interface AnyReadSet<V> extends Iterable<V>, Function<V, Boolean>, Serial
 	 */
 	public ReadSet<V> unique();
 	
+	/**
+	 * Returns a sequential <code>Stream</code> over the set, yielding exactly those values returned by
+	 * <code>iterator()</code>, though not necessarily in the same order.
+	 * 
+	 * @return a sequential stream over the set
+	 */
+	public default Stream<V> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+	
+	/**
+	 * Returns a possibly parallel <code>Stream</code> over the set. Hash based sets split on ranges of their
+	 * table, so a full scan may be divided across the common <code>ForkJoinPool</code>.
+	 * 
+	 * @return a possibly parallel stream over the set
+	 */
+	public default Stream<V> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+	
+	/**
+	 * Offers each value in the set to the provided <code>Visitor</code> until it returns <code>false</code>. Hash based sets
+	 * walk their table directly, so this is cheaper than iterating the set and no <code>Iterator</code> is allocated.
+	 * 
+	 * @param visitor
+	 *            visitor to offer each value to
+	 * @return <code>false</code> if the visitor ended the visit early
+	 */
+	public default boolean visit(Visitor<? super V> visitor) {
+		return visit(0, 1, visitor);
+	}
+	
+	/**
+	 * Offers each value in one of <code>partitions</code> disjoint parts of the set to the provided <code>Visitor</code>
+	 * until it returns <code>false</code>, so that a full scan may be divided between that many threads. Hash based sets
+	 * partition their table by bucket range; by default a set is partitioned by position in iteration order, and so may
+	 * only be partitioned safely whilst it is not being modified.
+	 * 
+	 * @param partition
+	 *            the partition to visit, from <code>0</code> to <code>partitions - 1</code>
+	 * @param partitions
+	 *            the number of partitions the set is divided into
+	 * @param visitor
+	 *            visitor to offer each value to
+	 * @return <code>false</code> if the visitor ended the visit early
+	 */
+	public default boolean visit(int partition, int partitions, Visitor<? super V> visitor) {
+		if (partitions < 1 || partition < 0 || partition >= partitions)
+			throw new IllegalArgumentException(String.format("Cannot visit partition %d of %d", partition, partitions));
+		int i = 0;
+		for (V v : this) {
+			if (i++ % partitions == partition && !visitor.visit(v))
+				return false;
+		}
+		return true;
+	}
+	
 	/**
 	 * Returns the total number of values (including duplicates) in the set
 	 * 
@@ -154,6 +216,29 @@ public interface AnyReadSet<V> extends Iterable<V>, Function<V, Boolean>, Serial
 	 */
 	public AnyReadSet<V> copy();
 	
+	/**
+	 * Returns a copy of the set intended for long scans, which will not reflect any modification made after it is
+	 * returned and may be iterated without obstructing concurrent modification. By default this is simply
+	 * <code>copy()</code>, so the cost and consistency of the snapshot are those of the set's copy:
+	 * <ul>
+	 * <li>serial sets are copied in O(n) time, and must not be modified whilst the copy is taken;
+	 * <li>a set wrapped by <code>SynchronizedDelegator</code> or <code>ReadWriteLockedDelegator</code> is copied under a
+	 * single acquisition of its lock and returned unwrapped, so the snapshot is point-in-time, but the lock is held for
+	 * the whole O(n) copy unless the wrapped set is backed by a <code>PersistentHashStore</code>, whose copy is O(1);
+	 * <li>striped sets are copied whilst every stripe is read locked, so the snapshot is point-in-time, but
+	 * obstructs writers for the O(n) copy;
+	 * <li>lock-free sets are copied bucket by bucket without blocking, so the snapshot is <b>not</b> point-in-time:
+	 * each bucket is copied atomically, but modifications made during the copy may or may not be reflected in it.
+	 * </ul>
+	 * A point-in-time snapshot that holds its lock for only O(1) time can be obtained from a set of type
+	 * <code>HashStoreType.synchronousPersistent()</code> or <code>HashStoreType.readWriteLockedPersistent()</code>.
+	 * 
+	 * @return a copy of the set that will not reflect subsequent changes to it
+	 */
+	public default AnyReadSet<V> snapshot() {
+		return copy();
+	}
+	
 	public ReadMap<V, Integer> asMap();
 	
 }
@@ -22,16 +22,26 @@
 
 package org.jjoost.collections;
 
+import java.util.Map.Entry;
+
 import org.jjoost.collections.base.HashStoreType;
+import org.jjoost.collections.base.ReadWriteLockedDelegator;
 import org.jjoost.collections.base.SynchronizedDelegator;
-//import org.jjoost.collections.maps.concurrent.LockFreeInlineListHashMap;
-//import org.jjoost.collections.maps.concurrent.LockFreeInlineMultiHashMap;
+import org.jjoost.collections.maps.base.HashMap;
+import org.jjoost.collections.maps.concurrent.LockFreeInlineListHashMap;
+import org.jjoost.collections.maps.concurrent.LockFreeInlineMultiHashMap;
 //import org.jjoost.collections.maps.concurrent.LockFreeLinkedInlineListHashMap;
 //import org.jjoost.collections.maps.concurrent.LockFreeLinkedInlineMultiHashMap;
 //import org.jjoost.collections.maps.concurrent.LockFreeLinkedHashMap;
-//import org.jjoost.collections.maps.concurrent.LockFreeHashMap;
+import org.jjoost.collections.maps.concurrent.LockFreeHashMap;
+import org.jjoost.collections.maps.concurrent.StripedHashMap;
+import org.jjoost.collections.maps.concurrent.StripedInlineListHashMap;
+import org.jjoost.collections.maps.concurrent.StripedInlineMultiHashMap;
 import org.jjoost.collections.maps.nested.NestedSetListMap;
 import org.jjoost.collections.maps.nested.NestedSetMultiMap;
+import org.jjoost.collections.maps.serial.OpenHashMap;
+import org.jjoost.collections.maps.serial.PersistentHashMap;
+import org.jjoost.collections.maps.serial.PersistentInlineMultiHashMap;
 import org.jjoost.collections.maps.serial.SerialInlineListHashMap;
 import org.jjoost.collections.maps.serial.SerialInlineMultiHashMap;
 import org.jjoost.collections.maps.serial.SerialLinkedInlineListHashMap;
@@ -139,6 +149,28 @@ public abstract class MapMaker<K, V> {
 	public Factory<MultiMap<K, V>> newMultiMapFactory(MultiMapNesting<V> nesting) {
 		return new MultiMapFactory<K, V>(this, nesting);
 	}
+	
+	/**
+	 * Construct a new <code>Map</code> by calling <code>newMap()</code>, and put every entry into it in iteration order.
+	 * Where the map is a serial hash map its table is sized just once, and populated by up to <code>parallelism</code>
+	 * threads; otherwise the entries are simply put one at a time.
+	 * 
+	 * @param entries
+	 *            the entries to put
+	 * @param parallelism
+	 *            the maximum number of threads to populate the map with
+	 * @return a new <code>Map</code> containing the provided entries
+	 */
+	public Map<K, V> buildFrom(Iterable<? extends Entry<K, V>> entries, int parallelism) {
+		final Map<K, V> map = newMap();
+		if (map instanceof HashMap) {
+			((HashMap<K, V, ?, ?>) map).putAll(entries, parallelism);
+		} else {
+			for (Entry<K, V> entry : entries)
+				map.put(entry.getKey(), entry.getValue());
+		}
+		return map;
+	}
 		
 	/**
 	 * Returns a <code>new HashMapMaker</code>
@@ -303,6 +335,11 @@ public abstract class MapMaker<K, V> {
 						initialCapacity, loadFactor,  
 						rehasher(), keyEquality, valEquality));
 				break;
+			case READ_WRITE_LOCKED:
+				r = ReadWriteLockedDelegator.get(new SerialHashMap<K, V>(
+						initialCapacity, loadFactor,  
+						rehasher(), keyEquality, valEquality));
+				break;
 			case LINKED_SERIAL:
 				r = new SerialLinkedHashMap<K, V>(
 					initialCapacity, loadFactor, 
@@ -313,11 +350,38 @@ public abstract class MapMaker<K, V> {
 						initialCapacity, loadFactor,  
 						rehasher(), keyEquality, valEquality));
 				break;
-//			case LOCK_FREE:
-//				r = new LockFreeHashMap<K, V>(
-//					initialCapacity, loadFactor,  
-//					rehasher(), keyEquality, valEquality);
-//				break;
+			case LINKED_READ_WRITE_LOCKED:
+				r = ReadWriteLockedDelegator.get(new SerialLinkedHashMap<K, V>(
+						initialCapacity, loadFactor,  
+						rehasher(), keyEquality, valEquality));
+				break;
+			case LOCK_FREE:
+				r = new LockFreeHashMap<K, V>(
+					initialCapacity, loadFactor,  
+					rehasher(), keyEquality, valEquality);
+				break;
+			case STRIPED:
+				r = new StripedHashMap<K, V>(
+					initialCapacity, loadFactor, type.stripes(), 
+					rehasher(), keyEquality, valEquality);
+				break;
+			case OPEN_ADDRESSING:
+				r = new OpenHashMap<K, V>(
+					initialCapacity, loadFactor,  
+					rehasher(), keyEquality, valEquality);
+				break;
+			case PERSISTENT:
+				r = new PersistentHashMap<K, V>(
+					rehasher(), keyEquality, valEquality);
+				break;
+			case SYNCHRONIZED_PERSISTENT:
+				r = SynchronizedDelegator.get(new PersistentHashMap<K, V>(
+						rehasher(), keyEquality, valEquality));
+				break;
+			case READ_WRITE_LOCKED_PERSISTENT:
+				r = ReadWriteLockedDelegator.get(new PersistentHashMap<K, V>(
+						rehasher(), keyEquality, valEquality));
+				break;
 //			case LINKED_LOCK_FREE:
 //				r = new LockFreeLinkedHashMap<K, V>(
 //					initialCapacity, loadFactor,  
@@ -326,10 +390,12 @@ public abstract class MapMaker<K, V> {
 			default:
 				throw new UnsupportedOperationException();
 			}
+			// a thread safe map computes its missing values with single-flight semantics
+			final Equality<? super K> singleFlight = type.isThreadSafe() ? keyEquality : null;
 			if (factory != null)
-				return new DefaultFactoryMap<K, V>(r, factory);
+				return new DefaultFactoryMap<K, V>(r, factory, singleFlight);
 			if (factoryFunction != null)
-				return new DefaultFunctionMap<K, V>(r, factoryFunction);
+				return new DefaultFunctionMap<K, V>(r, factoryFunction, singleFlight);
 			return r;
 		}
 		public MultiMap<K, V> newMultiMap(MultiMapNesting<V> nesting) {
@@ -346,6 +412,10 @@ public abstract class MapMaker<K, V> {
 					return SynchronizedDelegator.get(new SerialInlineMultiHashMap<K, V>(
 							initialCapacity, loadFactor, 
 							rehasher(), keyEquality, valEquality));
+				case READ_WRITE_LOCKED:
+					return ReadWriteLockedDelegator.get(new SerialInlineMultiHashMap<K, V>(
+							initialCapacity, loadFactor, 
+							rehasher(), keyEquality, valEquality));
 				case LINKED_SERIAL:
 					return new SerialLinkedInlineMultiHashMap<K, V>(
 						initialCapacity, loadFactor, 
@@ -354,10 +424,27 @@ public abstract class MapMaker<K, V> {
 					return SynchronizedDelegator.get(new SerialLinkedInlineMultiHashMap<K, V>(
 							initialCapacity, loadFactor, 
 							rehasher(), keyEquality, valEquality));
-//				case LOCK_FREE:
-//					return new LockFreeInlineMultiHashMap<K, V>(
-//						initialCapacity, loadFactor, 
-//						rehasher(), keyEquality, valEquality);
+				case LINKED_READ_WRITE_LOCKED:
+					return ReadWriteLockedDelegator.get(new SerialLinkedInlineMultiHashMap<K, V>(
+							initialCapacity, loadFactor, 
+							rehasher(), keyEquality, valEquality));
+				case LOCK_FREE:
+					return new LockFreeInlineMultiHashMap<K, V>(
+						initialCapacity, loadFactor, 
+						rehasher(), keyEquality, valEquality);
+				case STRIPED:
+					return new StripedInlineMultiHashMap<K, V>(
+						initialCapacity, loadFactor, type.stripes(), 
+						rehasher(), keyEquality, valEquality);
+				case PERSISTENT:
+					return new PersistentInlineMultiHashMap<K, V>(
+						rehasher(), keyEquality, valEquality);
+				case SYNCHRONIZED_PERSISTENT:
+					return SynchronizedDelegator.get(new PersistentInlineMultiHashMap<K, V>(
+							rehasher(), keyEquality, valEquality));
+				case READ_WRITE_LOCKED_PERSISTENT:
+					return ReadWriteLockedDelegator.get(new PersistentInlineMultiHashMap<K, V>(
+							rehasher(), keyEquality, valEquality));
 //				case LINKED_LOCK_FREE:
 //					return new LockFreeLinkedInlineMultiHashMap<K, V>(
 //						initialCapacity, loadFactor, 
@@ -403,6 +490,10 @@ public abstract class MapMaker<K, V> {
 					return SynchronizedDelegator.get(new SerialInlineListHashMap<K, V>(
 							initialCapacity, loadFactor, 
 							rehasher(),  keyEquality, valEquality));
+				case READ_WRITE_LOCKED:
+					return ReadWriteLockedDelegator.get(new SerialInlineListHashMap<K, V>(
+							initialCapacity, loadFactor, 
+							rehasher(),  keyEquality, valEquality));
 				case LINKED_SERIAL:
 					return new SerialLinkedInlineListHashMap<K, V>(
 						initialCapacity, loadFactor, 
@@ -411,10 +502,18 @@ public abstract class MapMaker<K, V> {
 					return SynchronizedDelegator.get(new SerialLinkedInlineListHashMap<K, V>(
 							initialCapacity, loadFactor, 
 							rehasher(), keyEquality, valEquality));
-//				case LOCK_FREE:
-//					return new LockFreeInlineListHashMap<K, V>(
-//						initialCapacity, loadFactor, 
-//						rehasher(),  keyEquality, valEquality);
+				case LINKED_READ_WRITE_LOCKED:
+					return ReadWriteLockedDelegator.get(new SerialLinkedInlineListHashMap<K, V>(
+							initialCapacity, loadFactor, 
+							rehasher(), keyEquality, valEquality));
+				case LOCK_FREE:
+					return new LockFreeInlineListHashMap<K, V>(
+						initialCapacity, loadFactor, 
+						rehasher(),  keyEquality, valEquality);
+				case STRIPED:
+					return new StripedInlineListHashMap<K, V>(
+						initialCapacity, loadFactor, type.stripes(), 
+						rehasher(),  keyEquality, valEquality);
 //				case LINKED_LOCK_FREE:
 //					return new LockFreeLinkedInlineListHashMap<K, V>(
 //						initialCapacity, loadFactor, 
@@ -80,6 +80,13 @@ public interface OrderedReadMap<K, V> extends AnyReadMap<K, V> {
 	 */ 
 	public Pair<Entry<K, V>, Entry<K, V>> boundaryEntries(K find);
 
+	// ORDER STATISTICS
+	// the number of entries whose key sorts strictly before the provided key
+	public int rank(K find);
+	// the value (or entry) at the provided position in ascending order, or null if there is none
+	public V select(int index);
+	public Entry<K, V> selectEntry(int index);
+
 	// LAZY
 	public OrderedReadMap<K, V> filterByKey(FilterPartialOrder<K> filter);
 	public OrderedReadMap<K, V> filterByEntry(FilterPartialOrder<Entry<K, V>> filter);
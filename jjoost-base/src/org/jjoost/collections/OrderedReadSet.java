@@ -59,6 +59,14 @@ public interface OrderedReadSet<V> extends AnyReadSet<V> {
 	 */ 
 	public Pair<V, V> boundaries(V find);
 
+	// ORDER STATISTICS
+	// the number of values sorting strictly before the provided value
+	public int rank(V find);
+	// the value at the provided position in ascending order, or null if there is none
+	public V select(int index);
+	// the value at the provided percentile (between 0 and 1 inclusive) by the nearest rank method, or null if the set is empty
+	public V percentile(double p);
+
 	// LAZY
 	public Iterable<V> all(boolean asc);
 	public Iterable<V> all(V value, boolean asc);
@@ -23,15 +23,22 @@
 package org.jjoost.collections;
 
 import org.jjoost.collections.base.HashStoreType;
+import org.jjoost.collections.base.ReadWriteLockedDelegator;
 import org.jjoost.collections.base.SynchronizedDelegator;
-//import org.jjoost.collections.sets.concurrent.LockFreeCountingMultiHashSet;
-//import org.jjoost.collections.sets.concurrent.LockFreeInlineMultiHashSet;
+import org.jjoost.collections.sets.base.AbstractHashSet;
+import org.jjoost.collections.sets.concurrent.LockFreeCountingMultiHashSet;
+import org.jjoost.collections.sets.concurrent.LockFreeInlineMultiHashSet;
 //import org.jjoost.collections.sets.concurrent.LockFreeLinkedCountingMultiHashSet;
 //import org.jjoost.collections.sets.concurrent.LockFreeLinkedInlineMultiHashSet;
 //import org.jjoost.collections.sets.concurrent.LockFreeLinkedNestedMultiHashSet;
 //import org.jjoost.collections.sets.concurrent.LockFreeLinkedHashSet;
 //import org.jjoost.collections.sets.concurrent.LockFreeNestedMultiHashSet;
-//import org.jjoost.collections.sets.concurrent.LockFreeHashSet;
+import org.jjoost.collections.sets.concurrent.LockFreeHashSet;
+import org.jjoost.collections.sets.concurrent.StripedHashSet;
+import org.jjoost.collections.sets.concurrent.StripedInlineMultiHashSet;
+import org.jjoost.collections.sets.serial.OpenCountingMultiHashSet;
+import org.jjoost.collections.sets.serial.OpenHashSet;
+import org.jjoost.collections.sets.serial.PersistentHashSet;
 import org.jjoost.collections.sets.serial.SerialCountingMultiHashSet;
 import org.jjoost.collections.sets.serial.SerialInlineMultiHashSet;
 import org.jjoost.collections.sets.serial.SerialLinkedCountingMultiHashSet;
@@ -109,6 +116,26 @@ public abstract class SetMaker<V> {
 		return new MultiSetFactory<V>(this, nesting);
 	}
 	
+	/**
+	 * Construct a new <code>Set</code> by calling <code>newSet()</code>, and put every value into it in iteration order.
+	 * Where the set is a serial hash set its table is sized just once, and populated by up to <code>parallelism</code>
+	 * threads; otherwise the values are simply put one at a time.
+	 * 
+	 * @param values
+	 *            the values to put
+	 * @param parallelism
+	 *            the maximum number of threads to populate the set with
+	 * @return a new <code>Set</code> containing the provided values
+	 */
+	public Set<V> buildFrom(Iterable<V> values, int parallelism) {
+		final Set<V> set = newSet();
+		if (set instanceof AbstractHashSet)
+			((AbstractHashSet<V, ?, ?>) set).putAll(values, parallelism);
+		else
+			set.putAll(values);
+		return set;
+	}
+	
 	/**
 	 * Returns a <code>new HashSetMaker</code> for building hash sets
 	 * @return <code>HashSetMaker</code>
@@ -207,6 +234,11 @@ public abstract class SetMaker<V> {
 					new SerialHashSet<V>(
 						initialCapacity, loadFactor, 
 						rehasher(), eq));
+			case READ_WRITE_LOCKED:
+				return ReadWriteLockedDelegator.get(
+					new SerialHashSet<V>(
+						initialCapacity, loadFactor, 
+						rehasher(), eq));
 			case LINKED_SERIAL:
 				return new SerialLinkedHashSet<V>(
 					initialCapacity, loadFactor, 
@@ -216,10 +248,34 @@ public abstract class SetMaker<V> {
 					new SerialLinkedHashSet<V>(
 						initialCapacity, loadFactor, 
 						rehasher(), eq));
-//			case LOCK_FREE:
-//				return new LockFreeHashSet<V>(
-//					initialCapacity, loadFactor, 
-//					rehasher(), eq);
+			case LINKED_READ_WRITE_LOCKED:
+				return ReadWriteLockedDelegator.get(
+					new SerialLinkedHashSet<V>(
+						initialCapacity, loadFactor, 
+						rehasher(), eq));
+			case LOCK_FREE:
+				return new LockFreeHashSet<V>(
+					initialCapacity, loadFactor, 
+					rehasher(), eq);
+			case STRIPED:
+				return new StripedHashSet<V>(
+					initialCapacity, loadFactor, type.stripes(), 
+					rehasher(), eq);
+			case OPEN_ADDRESSING:
+				return new OpenHashSet<V>(
+					initialCapacity, loadFactor, 
+					rehasher(), eq);
+			case PERSISTENT:
+				return new PersistentHashSet<V>(
+					rehasher(), eq);
+			case SYNCHRONIZED_PERSISTENT:
+				return SynchronizedDelegator.get(
+					new PersistentHashSet<V>(
+						rehasher(), eq));
+			case READ_WRITE_LOCKED_PERSISTENT:
+				return ReadWriteLockedDelegator.get(
+					new PersistentHashSet<V>(
+						rehasher(), eq));
 //			case LINKED_LOCK_FREE:
 //				return new LockFreeLinkedHashSet<V>(
 //					initialCapacity, loadFactor, 
@@ -241,6 +297,11 @@ public abstract class SetMaker<V> {
 						new SerialInlineMultiHashSet<V>(
 							initialCapacity, loadFactor, 
 							rehasher(), eq));
+				case READ_WRITE_LOCKED:
+					return ReadWriteLockedDelegator.get(
+						new SerialInlineMultiHashSet<V>(
+							initialCapacity, loadFactor, 
+							rehasher(), eq));
 				case LINKED_SERIAL:
 					return new SerialLinkedInlineMultiHashSet<V>(
 						initialCapacity, loadFactor, 
@@ -250,10 +311,19 @@ public abstract class SetMaker<V> {
 						new SerialLinkedInlineMultiHashSet<V>(
 							initialCapacity, loadFactor, 
 							rehasher(), eq));
-//				case LOCK_FREE:
-//					return new LockFreeInlineMultiHashSet<V>(
-//						initialCapacity, loadFactor, 
-//						rehasher(), eq);
+				case LINKED_READ_WRITE_LOCKED:
+					return ReadWriteLockedDelegator.get(
+						new SerialLinkedInlineMultiHashSet<V>(
+							initialCapacity, loadFactor, 
+							rehasher(), eq));
+				case LOCK_FREE:
+					return new LockFreeInlineMultiHashSet<V>(
+						initialCapacity, loadFactor, 
+						rehasher(), eq);
+				case STRIPED:
+					return new StripedInlineMultiHashSet<V>(
+						initialCapacity, loadFactor, type.stripes(), 
+						rehasher(), eq);
 //				case LINKED_LOCK_FREE:
 //					return new LockFreeLinkedInlineMultiHashSet<V>(
 //						initialCapacity, loadFactor, 
@@ -272,6 +342,11 @@ public abstract class SetMaker<V> {
 						new SerialNestedMultiHashSet<V>(
 							initialCapacity, loadFactor, 
 							rehasher(), eq));
+				case READ_WRITE_LOCKED:
+					return ReadWriteLockedDelegator.get(
+						new SerialNestedMultiHashSet<V>(
+							initialCapacity, loadFactor, 
+							rehasher(), eq));
 				case LINKED_SERIAL:
 					return new SerialLinkedNestedMultiHashSet<V>(
 						initialCapacity, loadFactor, 
@@ -288,6 +363,19 @@ public abstract class SetMaker<V> {
 //				case LINKED_LOCK_FREE:
 //					return new LockFreeLinkedNestedMultiHashSet<V>(
 //						initialCapacity, loadFactor, 
+//						rehasher(), eq);
+				case LINKED_READ_WRITE_LOCKED:
+					return ReadWriteLockedDelegator.get(
+						new SerialLinkedNestedMultiHashSet<V>(
+							initialCapacity, loadFactor, 
+							rehasher(), eq));
+//				case LOCK_FREE:
+//					return new LockFreeNestedMultiHashSet<V>(
+//						initialCapacity, loadFactor, 
+//						rehasher(), eq);
+//				case LINKED_LOCK_FREE:
+//					return new LockFreeLinkedNestedMultiHashSet<V>(
+//						initialCapacity, loadFactor, 
 //						rehasher(), eq);
 				default:
 					throw new IllegalArgumentException(type.toString());
@@ -303,6 +391,11 @@ public abstract class SetMaker<V> {
 						new SerialCountingMultiHashSet<V>(
 							initialCapacity, loadFactor, 
 							rehasher(), eq));
+				case READ_WRITE_LOCKED:
+					return ReadWriteLockedDelegator.get(
+						new SerialCountingMultiHashSet<V>(
+							initialCapacity, loadFactor, 
+							rehasher(), eq));
 				case LINKED_SERIAL:
 					return new SerialLinkedCountingMultiHashSet<V>(
 						initialCapacity, loadFactor, 
@@ -312,10 +405,19 @@ public abstract class SetMaker<V> {
 						new SerialLinkedCountingMultiHashSet<V>(
 							initialCapacity, loadFactor, 
 							rehasher(), eq));
-//				case LOCK_FREE:
-//					return new LockFreeCountingMultiHashSet<V>(
-//						initialCapacity, loadFactor, 
-//						rehasher(), eq);
+				case LINKED_READ_WRITE_LOCKED:
+					return ReadWriteLockedDelegator.get(
+						new SerialLinkedCountingMultiHashSet<V>(
+							initialCapacity, loadFactor, 
+							rehasher(), eq));
+				case LOCK_FREE:
+					return new LockFreeCountingMultiHashSet<V>(
+						initialCapacity, loadFactor, 
+						rehasher(), eq);
+				case OPEN_ADDRESSING:
+					return new OpenCountingMultiHashSet<V>(
+						initialCapacity, loadFactor, 
+						rehasher(), eq);
 //				case LINKED_LOCK_FREE:
 //					return new LockFreeLinkedCountingMultiHashSet<V>(
 //						initialCapacity, loadFactor, 
@@ -22,11 +22,17 @@
 
 package org.jjoost.collections.base;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
 
 import org.jjoost.util.Equality;
 import org.jjoost.util.Filter;
@@ -35,6 +41,7 @@ import org.jjoost.util.Functions;
 import org.jjoost.util.Iters;
 import org.jjoost.util.Rehasher;
 import org.jjoost.util.Rehashers;
+import org.jjoost.util.Visitor;
 
 public abstract class AbstractSerialHashStore<N extends AbstractSerialHashStore.SerialHashNode<N>, S extends AbstractSerialHashStore<N, S>> implements HashStore<N, S> {
 
@@ -58,6 +65,16 @@ public abstract class AbstractSerialHashStore<N extends AbstractSerialHashStore.
 	protected int uniquePrefixCount;
 	protected int loadLimit;
 	protected final float loadFactor;
+	// non-null only whilst statistics are being recorded
+	protected transient volatile HashStoreCounters counters;
+	// if true, grow() only allocates the new table, and the buckets of the old table are moved a few at a time by
+	// each subsequent modification; whilst this is in progress, migrating is non-null and every bucket of the old
+	// table below migrated (and any other bucket that has been moved early) is null; an empty old bucket is
+	// indistinguishable from a moved one, but either way its nodes can only be found in the new table
+	private boolean incrementalResize;
+	private N[] migrating;
+	private int migrated;
+	private transient long migrationNanos;
 	
 	protected void inserted(N n) {
 	}
@@ -109,10 +126,29 @@ public abstract class AbstractSerialHashStore<N extends AbstractSerialHashStore.
 		return totalNodeCount == 0;
 	}
 	
+	/**
+	 * Enables or disables incremental resizing. Ordinarily the store rehashes every node in the table at once when it
+	 * grows, stalling whichever modification crossed the load limit for time proportional to the size of the store. 
+	 * With incremental resizing enabled both the old and new tables are retained once the load limit is crossed, and
+	 * each subsequent modification moves a small fixed number of buckets from the old table to the new, so that no
+	 * single modification is delayed by more than a constant amount of work; lookups consult whichever table 
+	 * currently holds the bucket they need. Operations that read the whole store (iteration, copying, statistics and
+	 * serialization) visit both tables rather than modify the store, and bulk insertion first completes any resize in
+	 * progress.
+	 * 
+	 * @param incremental true to enable incremental resizing
+	 */
+	public void incrementalResize(boolean incremental) {
+		if (!incremental)
+			finishResize();
+		incrementalResize = incremental;
+	}
+	
 	@Override
 	@SuppressWarnings("unchecked")
 	public int clear() {
 		final int r = totalNodeCount;
+		migrating = null;
 		totalNodeCount = 0;
 		uniquePrefixCount = 0;
 		table = (N[]) new SerialHashNode[table.length];
@@ -122,7 +158,8 @@ public abstract class AbstractSerialHashStore<N extends AbstractSerialHashStore.
 	@Override
 	@SuppressWarnings("unchecked")
 	public <V> Iterator<V> clearAndReturn(Function<? super N, ? extends V> f) {
-		final Iterator<V> r = new ClearedIterator<V>(table, f);
+		final Iterator<V> r = new ClearedIterator<V>(migrating, table, f);
+		migrating = null;
 		totalNodeCount = 0;
 		uniquePrefixCount = 0;
 		table = (N[]) new SerialHashNode[table.length];
@@ -134,6 +171,24 @@ public abstract class AbstractSerialHashStore<N extends AbstractSerialHashStore.
 		return "{" + Iters.toString(all(null, null, Functions.<N>toString(true)), ", ") + "}";
 	}
 
+	@Override
+	public void recordStatistics(boolean record) {
+		counters = record ? HashStoreCounters.serial() : null;
+	}
+	
+	@Override
+	public HashStoreStatistics statistics() {
+		final N[] table = this.table;
+		long[] chains = new long[8];
+		for (int i = 0 ; i != table.length ; i++) {
+			int length = 0;
+			for (N n = bucketHead(i) ; n != null ; n = bucketNext(n, i))
+				length++;
+			chains = HashStoreStatistics.increment(chains, length);
+		}
+		return new HashStoreStatistics(totalNodeCount, uniquePrefixCount, table.length, chains, counters);
+	}
+
 	// **************************************************
 	// public PUT METHODS
 	// **************************************************
@@ -142,6 +197,8 @@ public abstract class AbstractSerialHashStore<N extends AbstractSerialHashStore.
 	public <NCmp, V> V put(PutAction action, NCmp find, N put, HashNodeEquality<? super NCmp, ? super N> eq, Function<? super N, ? extends V> ret) {
 		assert (action != PutAction.ENSUREANDGET);
 		grow();
+		if (migrating != null)
+			migrate(put.hash);
 		
 		final boolean mayReplace = eq.isUnique();
 		final int hash = put.hash;
@@ -152,7 +209,9 @@ public abstract class AbstractSerialHashStore<N extends AbstractSerialHashStore.
    		N p = null;
     	N n = table[bucket];
     	N toReplace = null;
+    	int probes = 0;
    		while (n != null) {
+   			probes++;
    			if (partial != (n.hash == hash && eq.prefixMatch(find, n))) {
    				if (partial) break;
    				else partial = true;
@@ -168,6 +227,9 @@ public abstract class AbstractSerialHashStore<N extends AbstractSerialHashStore.
    			p = n;
    			n = n.next;
    		}
+   		final HashStoreCounters counters = this.counters;
+   		if (counters != null)
+   			counters.put(probes);
    		
    		if (toReplace == null) {
    			if (action == PutAction.REPLACE) {
@@ -208,6 +270,8 @@ public abstract class AbstractSerialHashStore<N extends AbstractSerialHashStore.
 	@Override
 	public <NCmp, V> V put(PutAction action, final int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq, HashNodeFactory<? super NCmp, N> factory, Function<? super N, ? extends V> ret) {
 		grow();
+		if (migrating != null)
+			migrate(hash);
 		
 		final boolean mayReplace = eq.isUnique();
 		final int bucket = hash & (table.length - 1);
@@ -217,7 +281,9 @@ public abstract class AbstractSerialHashStore<N extends AbstractSerialHashStore.
    		N p = null;
     	N n = table[bucket];
     	N toReplace = null;
+    	int probes = 0;
    		while (n != null) {
+   			probes++;
    			if (partial != (n.hash == hash && eq.prefixMatch(find, n))) {
    				if (partial) break;
    				else partial = true;
@@ -233,6 +299,9 @@ public abstract class AbstractSerialHashStore<N extends AbstractSerialHashStore.
    			p = n;
    			n = n.next;
    		}
+   		final HashStoreCounters counters = this.counters;
+   		if (counters != null)
+   			counters.put(probes);
    		
    		N r, put;
 		switch (action) {
@@ -288,6 +357,76 @@ public abstract class AbstractSerialHashStore<N extends AbstractSerialHashStore.
 		return ret.apply(r);
 	}
 	
+	/**
+	 * Inserts every item as though by <code>put(action, nodeProj.apply(node), node, eq, ...)</code> in list order, returning
+	 * the number of nodes added (i.e. that did not replace, or lose out to, an existing node). The table is first grown
+	 * once to accommodate all of the items, after which the table is partitioned into <code>parallelism</code> contiguous
+	 * ranges of buckets, i.e. by the high bits of each node's bucket index; each range is then populated independently
+	 * on the <code>ForkJoinPool</code>, so no stitching or rehashing is necessary. The subclass hooks are invoked
+	 * afterwards, in list order.
+	 * <p>
+	 * The store must not be accessed by any other thread until this method returns.
+	 */
+	@SuppressWarnings("unchecked")
+	public <E, NCmp> int putAll(PutAction action, List<? extends E> items, Function<? super E, ? extends N> nodeFactory, 
+			Function<? super N, ? extends NCmp> nodeProj, HashNodeEquality<? super NCmp, ? super N> eq, int parallelism) {
+		if (action != PutAction.PUT && action != PutAction.IFABSENT)
+			throw new IllegalArgumentException("Only PUT and IFABSENT are supported for bulk insertion");
+		final Object[] input = items.toArray();
+		final int count = input.length;
+		if (count == 0)
+			return 0;
+		finishResize();
+		// we assume every item is distinct, which is only an overestimate if the input contains duplicates
+		presize(uniquePrefixCount + count);
+		
+		final N[] table = this.table;
+		int partitions = 1;
+		while (partitions < parallelism && partitions < table.length && count / (partitions << 1) >= MIN_BULK_PARTITION_SIZE)
+			partitions <<= 1;
+		final int shift = Integer.numberOfTrailingZeros(table.length) - Integer.numberOfTrailingZeros(partitions);
+		
+		// construct the nodes in parallel
+		final N[] nodes = (N[]) new SerialHashNode<?>[count];
+		final List<RecursiveAction> tasks = new ArrayList<RecursiveAction>(partitions);
+		for (int i = 0 ; i != partitions ; i++)
+			tasks.add(new MakeNodes<E, N>(input, nodes, (int) ((long) count * i / partitions), (int) ((long) count * (i + 1) / partitions), nodeFactory));
+		run(tasks);
+		
+		// stable counting sort of the nodes by partition
+		final int[] starts = new int[partitions + 1];
+		for (int i = 0 ; i != count ; i++)
+			starts[((nodes[i].hash & (table.length - 1)) >>> shift) + 1]++;
+		for (int i = 0 ; i != partitions ; i++)
+			starts[i + 1] += starts[i];
+		final int[] order = new int[count];
+		final int[] next = starts.clone();
+		for (int i = 0 ; i != count ; i++)
+			order[next[(nodes[i].hash & (table.length - 1)) >>> shift]++] = i;
+		
+		// populate each partition in parallel, recording the outcome for each node so that we may replay the hooks
+		final N[] replaced = (N[]) new SerialHashNode<?>[count];
+		final byte[] outcomes = new byte[count];
+		final List<InsertPartition<NCmp, N>> inserts = new ArrayList<InsertPartition<NCmp, N>>(partitions);
+		for (int i = 0 ; i != partitions ; i++)
+			inserts.add(new InsertPartition<NCmp, N>(action, table, nodes, order, starts[i], starts[i + 1], nodeProj, eq, replaced, outcomes));
+		run(inserts);
+		
+		int added = 0;
+		for (InsertPartition<NCmp, N> insert : inserts) {
+			added += insert.added;
+			totalNodeCount += insert.added;
+			uniquePrefixCount += insert.prefixes;
+		}
+		for (int i = 0 ; i != count ; i++) {
+			if (outcomes[i] == BULK_REPLACED)
+				removed(replaced[i]);
+			if (outcomes[i] != BULK_REJECTED)
+				inserted(nodes[i]);
+		}
+		return added;
+	}
+	
 	// **************************************************
 	// public REMOVE METHODS
 	// **************************************************
@@ -299,6 +438,8 @@ public abstract class AbstractSerialHashStore<N extends AbstractSerialHashStore.
 				return 0;
 			throw new IllegalArgumentException("Cannot remove less than zero elements");
 		}
+		if (migrating != null)
+			migrate(hash);
 		final boolean eqIsUniq = eq.isUnique();
     	final int bucket = hash & (table.length - 1);
     	final int reverse = Integer.reverse(hash);
@@ -351,6 +492,8 @@ public abstract class AbstractSerialHashStore<N extends AbstractSerialHashStore.
 
 	@Override
 	public <NCmp> boolean removeNode(Function<? super N, ? extends NCmp> nodePrefixEqFunc, HashNodeEquality<? super NCmp, ? super N> nodePrefixEq, N n) {
+		if (migrating != null)
+			migrate(n.hash);
 		final int bucket = n.hash & (table.length - 1);
 		N p = table[bucket];
 		if (p == n) {
@@ -380,6 +523,8 @@ public abstract class AbstractSerialHashStore<N extends AbstractSerialHashStore.
 				return null;
 			throw new IllegalArgumentException("Cannot remove less than zero elements");
 		}
+		if (migrating != null)
+			migrate(hash);
 		
 		final boolean eqIsUniq = eq.isUnique();
 		boolean partial = false;
@@ -443,6 +588,8 @@ public abstract class AbstractSerialHashStore<N extends AbstractSerialHashStore.
 				return Collections.emptyList();
 			throw new IllegalArgumentException("Cannot remove less than zero elements");
 		}
+		if (migrating != null)
+			migrate(hash);
 		
 		final boolean eqIsUniq = eq.isUnique();
 		boolean partial = false;
@@ -506,26 +653,28 @@ public abstract class AbstractSerialHashStore<N extends AbstractSerialHashStore.
 	
 	@Override
 	public <NCmp> int count(int hash, NCmp c, HashNodeEquality<? super NCmp, ? super N> eq, int countUpTo) {
+		final HashStoreCounters counters = this.counters;
 		if (countUpTo < 1)
 			return 0;
 		final boolean stopAtOne = eq.isUnique() | countUpTo == 1;
 		boolean partial = false;
-		int count = 0;
-		N n = table[hash & (table.length - 1)];
+		int count = 0, probes = 0;
+		N n = head(hash);
 		while (n != null) {
+			probes++;
 			if (partial != (n.hash == hash && eq.prefixMatch(c, n))) {
-				if (partial) return count;
+				if (partial) break;
 				else partial = true;
 			}
 			if (partial && eq.suffixMatch(c, n)) {
-				if (stopAtOne)
-					return 1;
 				count += 1;
-				if (countUpTo == count)
-					return count;
+				if (stopAtOne | countUpTo == count)
+					break;
 			}
 			n = n.next;
 		}
+		if (counters != null)
+			counters.find(probes);
 		return count;
 	}
 	
@@ -535,21 +684,28 @@ public abstract class AbstractSerialHashStore<N extends AbstractSerialHashStore.
 	
 	@Override
 	public <NCmp, V> V first(int hash, NCmp c, HashNodeEquality<? super NCmp, ? super N> eq, Function<? super N, ? extends V> ret) {
+		final HashStoreCounters counters = this.counters;
 		final int reverse = Integer.reverse(hash);
 		boolean partial = false;
-		N n = table[hash & (table.length - 1)];
+		int probes = 0;
+		N n = head(hash), r = null;
 		while (n != null) {
+			probes++;
 			if (partial != (n.hash == hash && eq.prefixMatch(c, n))) {
-				if (partial) return null;
+				if (partial) break;
 				else partial = true;
 			}
-			if (partial && eq.suffixMatch(c, n))
-				return ret.apply(n);
+			if (partial && eq.suffixMatch(c, n)) {
+				r = n;
+				break;
+			}
 			if (HashNode.insertBefore(reverse, n))
 				break;
 			n = n.next;
 		}
-		return null;
+		if (counters != null)
+			counters.find(probes);
+		return r == null ? null : ret.apply(r);
 	}
 
 	@Override
@@ -585,6 +741,31 @@ public abstract class AbstractSerialHashStore<N extends AbstractSerialHashStore.
 		return new UniqueIterator<NCmp, NCmp2, V>(filter, nodeEqualityProj, nodeEquality, ret);
 	}
 	
+	@Override
+	public <V> Spliterator<V> spliterator(Function<? super N, ? extends V> ret, int characteristics) {
+		return new BucketSpliterator<V>(table, 0, table.length, totalNodeCount, characteristics | Spliterator.SIZED, ret);
+	}
+	
+	@Override
+	public <V> boolean visit(int partition, int partitions, Function<? super N, ? extends V> ret, Visitor<? super V> visitor) {
+		HashStore.Helper.checkPartition(partition, partitions);
+		// whilst resizing every node is in exactly one of the two tables, so we visit both rather than finish the resize,
+		// which would modify the store
+		final N[] migrating = this.migrating;
+		if (migrating != null && !visit(migrating, partition, partitions, ret, visitor))
+			return false;
+		return visit(table, partition, partitions, ret, visitor);
+	}
+	
+	private <V> boolean visit(N[] table, int partition, int partitions, Function<? super N, ? extends V> ret, Visitor<? super V> visitor) {
+		final int end = HashStore.Helper.partitionStart(table.length, partition + 1, partitions);
+		for (int i = HashStore.Helper.partitionStart(table.length, partition, partitions) ; i != end ; i++)
+			for (N n = table[i] ; n != null ; n = n.next)
+				if (!visitor.visit(ret.apply(n)))
+					return false;
+		return true;
+	}
+	
 	@SuppressWarnings("rawtypes")
 	private static final class FlagNode extends SerialHashNode {
 		private static final long serialVersionUID = -8235849034699744602L;
@@ -646,7 +827,7 @@ public abstract class AbstractSerialHashStore<N extends AbstractSerialHashStore.
 			super(nodeEqualityProj, nodeEquality, ret);
 			N[] matches = (N[]) new SerialHashNode[4];
 			int count = 0;
-			N n = table[hash & (table.length - 1)];
+			N n = head(hash);
 			boolean partial = false;
 			while (n != null) {
 				if (partial != (hash == n.hash && findEq.prefixMatch(find, n))) {
@@ -703,6 +884,7 @@ public abstract class AbstractSerialHashStore<N extends AbstractSerialHashStore.
 		@SuppressWarnings("unchecked")
 		@Override
 		protected void nextHash(N[] prevs, int prev) {
+			// the table may have begun growing since the last call
 			boolean resized = false;
 			if (iter.size() != table.length) {
 				resized = true;
@@ -711,7 +893,7 @@ public abstract class AbstractSerialHashStore<N extends AbstractSerialHashStore.
 			N n = null;
 			if (prevs == null) {
 				// should only be executed on first call
-				n = table[iter.current()];
+				n = bucketHead(iter.current());
 			} else {
 				
 				while (n == null & prev >= 0) {
@@ -723,9 +905,9 @@ public abstract class AbstractSerialHashStore<N extends AbstractSerialHashStore.
 				}
 				
 				if (n == null || (resized && n != null && !iter.correctBucket(n.hash)))
-					n = table[iter.current()];
+					n = bucketHead(iter.current());
 				else if (n != null) 
-					n = n.next;
+					n = bucketNext(n, iter.current());
 			}
 			
 			int hash = 0;
@@ -735,13 +917,13 @@ public abstract class AbstractSerialHashStore<N extends AbstractSerialHashStore.
 						hash = n.hash;
 						break;
 					}
-					n = n.next;
+					n = bucketNext(n, iter.current());
 				}
 				if (n != null)
 					break;
 				if (!iter.next())
 					break;
-				n = table[iter.current()];
+				n = bucketHead(iter.current());
 			}
 			
 			if (n == null) {
@@ -784,18 +966,115 @@ public abstract class AbstractSerialHashStore<N extends AbstractSerialHashStore.
 		
 	}
 	
-	private class ClearedIterator<V> implements Iterator<V> {
+	/**
+	 * Visits a contiguous range of buckets, splitting by halving the range; a chain is never divided, so nodes with
+	 * equal hashes are always visited by the same spliterator. Only the unsplit spliterator knows its exact size.
+	 * The store must not be modified during traversal; a resize is detected, but other modifications may not be.
+	 */
+	final class BucketSpliterator<V> implements Spliterator<V> {
 		
 		final N[] table;
+		final Function<? super N, ? extends V> ret;
+		int characteristics;
+		int bucket, end;
+		long estimate;
+		N next;
+		int nextBucket;
+		
+		BucketSpliterator(N[] table, int bucket, int end, long estimate, int characteristics, Function<? super N, ? extends V> ret) {
+			this.table = table;
+			this.bucket = bucket;
+			this.end = end;
+			this.estimate = estimate;
+			this.characteristics = characteristics;
+			this.ret = ret;
+		}
+		
+		@Override
+		public boolean tryAdvance(Consumer<? super V> action) {
+			N n = next;
+			while (n == null) {
+				if (bucket == end)
+					return false;
+				n = bucketHead(nextBucket = bucket++);
+			}
+			if (table != AbstractSerialHashStore.this.table || n.next == DELETED_FLAG)
+				throw new ConcurrentModificationException();
+			next = bucketNext(n, nextBucket);
+			action.accept(ret.apply(n));
+			return true;
+		}
+		
+		@Override
+		public void forEachRemaining(Consumer<? super V> action) {
+			final N[] table = this.table;
+			N n = next;
+			int bucket = this.bucket;
+			int current = nextBucket;
+			final int end = this.end;
+			next = null;
+			this.bucket = end;
+			while (true) {
+				while (n != null) {
+					action.accept(ret.apply(n));
+					n = bucketNext(n, current);
+				}
+				if (bucket == end)
+					break;
+				n = bucketHead(current = bucket++);
+			}
+			if (table != AbstractSerialHashStore.this.table)
+				throw new ConcurrentModificationException();
+		}
+		
+		@Override
+		public Spliterator<V> trySplit() {
+			final int mid = (bucket + end) >>> 1;
+			if (mid == bucket)
+				return null;
+			characteristics &= ~Spliterator.SIZED;
+			estimate >>>= 1;
+			final BucketSpliterator<V> split = new BucketSpliterator<V>(table, mid, end, estimate, characteristics, ret);
+			end = mid;
+			return split;
+		}
+		
+		@Override
+		public long estimateSize() {
+			return estimate;
+		}
+		
+		@Override
+		public int characteristics() {
+			return characteristics;
+		}
+		
+	}
+	
+	// visits the old table of any resize in progress, then the new table
+	private class ClearedIterator<V> implements Iterator<V> {
+		
+		N[] table, then;
 		final Function<? super N, ? extends V> f;
 		int nextBucket = - 1;
 		N nextNode;
 		
-		ClearedIterator(N[] table, Function<? super N, ? extends V> f) {
-			this.table = table;
+		ClearedIterator(N[] migrating, N[] table, Function<? super N, ? extends V> f) {
+			this.table = migrating == null ? table : migrating;
+			this.then = migrating == null ? null : table;
 			this.f = f;
-			while (nextNode == null & nextBucket != table.length - 1) {
-				nextNode = table[++nextBucket];
+			advance();
+		}
+		
+		private void advance() {
+			while (true) {
+				while (nextNode == null & nextBucket != table.length - 1)
+					nextNode = table[++nextBucket];
+				if (nextNode != null || then == null)
+					return;
+				table = then;
+				then = null;
+				nextBucket = -1;
 			}
 		}
 		
@@ -812,9 +1091,7 @@ public abstract class AbstractSerialHashStore<N extends AbstractSerialHashStore.
 				throw new NoSuchElementException();
 			N r = nextNode;
 			nextNode = nextNode.next;
-			while (nextNode == null & (nextBucket != table.length - 1)) {
-				nextNode = table[++nextBucket];
-			}
+			advance();
 			return f.apply(r);
 		}
 		
@@ -862,14 +1139,295 @@ public abstract class AbstractSerialHashStore<N extends AbstractSerialHashStore.
 	// PRIVATE METHODS
 	// **************************************************
 
+	private static final int MIN_BULK_PARTITION_SIZE = 1 << 12;
+	private static final byte BULK_REJECTED = 0, BULK_ADDED = 1, BULK_REPLACED = 2;
+	
+	@SuppressWarnings("unchecked")
+	private void presize(int size) {
+		final HashStoreCounters counters = this.counters;
+		int capacity = table.length;
+		while ((int) (capacity * loadFactor) <= size)
+			capacity <<= 1;
+		if (capacity != table.length) {
+			final long start = counters == null ? 0 : System.nanoTime();
+			N[] oldtable = table;
+			table = (N[]) new SerialHashNode<?>[capacity];
+			loadLimit = (int) (table.length * loadFactor);
+			rehash(oldtable);
+			if (counters != null)
+				counters.resized(System.nanoTime() - start);
+		}
+	}
+	
+	private static void run(List<? extends RecursiveAction> tasks) {
+		if (tasks.size() == 1)
+			tasks.get(0).invoke();
+		else
+			ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+				private static final long serialVersionUID = -3815403413618429543L;
+				@Override
+				protected void compute() {
+					invokeAll(tasks);
+				}
+			});
+	}
+	
+	private static final class MakeNodes<E, N> extends RecursiveAction {
+		private static final long serialVersionUID = 4917447924386620713L;
+		final Object[] input;
+		final N[] nodes;
+		final int from, to;
+		final Function<? super E, ? extends N> nodeFactory;
+		MakeNodes(Object[] input, N[] nodes, int from, int to, Function<? super E, ? extends N> nodeFactory) {
+			this.input = input;
+			this.nodes = nodes;
+			this.from = from;
+			this.to = to;
+			this.nodeFactory = nodeFactory;
+		}
+		@Override
+		@SuppressWarnings("unchecked")
+		protected void compute() {
+			for (int i = from ; i != to ; i++)
+				nodes[i] = nodeFactory.apply((E) input[i]);
+		}
+	}
+	
+	/**
+	 * inserts the nodes of one partition into its (exclusively owned) range of buckets, exactly as put() would
+	 */
+	private static final class InsertPartition<NCmp, N extends SerialHashNode<N>> extends RecursiveAction {
+		private static final long serialVersionUID = -1093307768286307498L;
+		final PutAction action;
+		final N[] table;
+		final N[] nodes;
+		final int[] order;
+		final int from, to;
+		final Function<? super N, ? extends NCmp> nodeProj;
+		final HashNodeEquality<? super NCmp, ? super N> eq;
+		final N[] replaced;
+		final byte[] outcomes;
+		int added, prefixes;
+		InsertPartition(PutAction action, N[] table, N[] nodes, int[] order, int from, int to, 
+				Function<? super N, ? extends NCmp> nodeProj, HashNodeEquality<? super NCmp, ? super N> eq, 
+				N[] replaced, byte[] outcomes) {
+			this.action = action;
+			this.table = table;
+			this.nodes = nodes;
+			this.order = order;
+			this.from = from;
+			this.to = to;
+			this.nodeProj = nodeProj;
+			this.eq = eq;
+			this.replaced = replaced;
+			this.outcomes = outcomes;
+		}
+		@Override
+		protected void compute() {
+			final N[] table = this.table;
+			final boolean mayReplace = eq.isUnique();
+			for (int i = from ; i != to ; i++) {
+				final int index = order[i];
+				final N put = nodes[index];
+				final NCmp find = nodeProj.apply(put);
+				final int hash = put.hash;
+				final int bucket = hash & (table.length - 1);
+				final int reverse = Integer.reverse(hash);
+				boolean partial = false;
+				N p = null;
+				N n = table[bucket];
+				N toReplace = null;
+				while (n != null) {
+					if (partial != (n.hash == hash && eq.prefixMatch(find, n))) {
+						if (partial) break;
+						else partial = true;
+					}
+					if (partial && mayReplace && eq.suffixMatch(find, n)) {
+						toReplace = n;
+						break;
+					}
+					if (HashNode.insertBefore(reverse, n))
+						break;
+					p = n;
+					n = n.next;
+				}
+				if (toReplace != null && action == PutAction.IFABSENT) {
+					outcomes[index] = BULK_REJECTED;
+					continue;
+				}
+				if (p == null)
+					table[bucket] = put;
+				else
+					p.next = put;
+				if (toReplace == null) {
+					put.next = n;
+					added++;
+					outcomes[index] = BULK_ADDED;
+				} else {
+					put.next = toReplace.next;
+					toReplace.next = put;
+					replaced[index] = toReplace;
+					outcomes[index] = BULK_REPLACED;
+				}
+				if (!partial)
+					prefixes++;
+			}
+		}
+	}
+	
 	@SuppressWarnings("unchecked")
-	private void grow() {
+	protected void grow() {
+		final HashStoreCounters counters = this.counters;
 		if (uniquePrefixCount >= loadLimit) {
+			// migration normally completes well before the next grow, but we cannot start another until it has
+			finishResize();
+			final long start = counters == null ? 0 : System.nanoTime();
 			N[] oldtable = table;
 			table = (N[]) new SerialHashNode[table.length << 1];
 			loadLimit = (int) (table.length * loadFactor);
-			rehash(oldtable);
+			if (incrementalResize) {
+				migrating = oldtable;
+				migrated = 0;
+				migrationNanos = 0;
+			} else {
+				rehash(oldtable);
+			}
+			if (counters != null) {
+				if (incrementalResize)
+					migrationNanos += System.nanoTime() - start;
+				else
+					counters.resized(System.nanoTime() - start);
+			}
+		}
+	}
+	
+	// the head of the bucket containing hash, in whichever table currently holds it
+	private N head(int hash) {
+		final N[] migrating = this.migrating;
+		if (migrating != null) {
+			final N n = migrating[hash & (migrating.length - 1)];
+			if (n != null)
+				return n;
+		}
+		return table[hash & (table.length - 1)];
+	}
+	
+	/**
+	 * the first node of bucket i of table; whilst resizing the nodes of the bucket may instead still be in the old
+	 * table, amongst those of the bucket's other half, which bucketNext() skips. Read paths walk the store with these
+	 * so that they never modify it by finishing a resize
+	 */
+	protected final N bucketHead(int i) {
+		final N[] migrating = this.migrating;
+		if (migrating != null) {
+			final N n = migrating[i & (migrating.length - 1)];
+			if (n != null)
+				return inBucket(n, i);
+		}
+		return table[i];
+	}
+	
+	protected final N bucketNext(N n, int i) {
+		return inBucket(n.next, i);
+	}
+	
+	// a copy of the table and every node in it, in which any resize in progress is completed, rather than in this store
+	protected final N[] copyTable() {
+		final N[] table = this.table.clone();
+		for (int i = 0 ; i != table.length ; i++) {
+			N orig = bucketHead(i);
+			if (orig != null) {
+				N copy = orig.copy();
+				table[i] = copy;
+				orig = bucketNext(orig, i);
+				while (orig != null) {
+					copy.next = copy = orig.copy();
+					orig = bucketNext(orig, i);
+				}
+			}
+		}
+		return table;
+	}
+	
+	private N inBucket(N n, int i) {
+		final int mask = table.length - 1;
+		while (n != null && (n.hash & mask) != i)
+			n = n.next;
+		return n;
+	}
+	
+	/**
+	 * moves the old bucket containing hash to the new table, so that the caller may modify it there, followed by the
+	 * next few unmoved buckets in sequence; we move at least 1/loadFactor + 1 sequential buckets on every call, and the
+	 * new table accepts at least loadFactor * oldTable.length new prefixes before it can itself need to grow, so each
+	 * migration is ordinarily complete long before the next is due to begin
+	 */
+	private void migrate(int hash) {
+		final HashStoreCounters counters = this.counters;
+		final long start = counters == null ? 0 : System.nanoTime();
+		final N[] migrating = this.migrating;
+		migrateBucket(migrating, hash & (migrating.length - 1));
+		int migrated = this.migrated;
+		final int end = Math.min(migrating.length, migrated + 1 + (int) Math.ceil(1f / loadFactor));
+		while (migrated != end)
+			migrateBucket(migrating, migrated++);
+		this.migrated = migrated;
+		if (counters != null)
+			migrationNanos += System.nanoTime() - start;
+		if (migrated == migrating.length)
+			migrationComplete();
+	}
+	
+	/**
+	 * completes any migration in progress, so that every node is reachable from table
+	 */
+	protected void finishResize() {
+		final HashStoreCounters counters = this.counters;
+		final N[] migrating = this.migrating;
+		if (migrating == null)
+			return;
+		final long start = counters == null ? 0 : System.nanoTime();
+		for (int i = migrated ; i != migrating.length ; i++)
+			migrateBucket(migrating, i);
+		if (counters != null)
+			migrationNanos += System.nanoTime() - start;
+		migrationComplete();
+	}
+	
+	private void migrationComplete() {
+		final HashStoreCounters counters = this.counters;
+		migrating = null;
+		if (counters != null)
+			counters.resized(migrationNanos);
+	}
+	
+	// splits a bucket of the old table into its two buckets in the new table, which is exactly twice the size
+	private void migrateBucket(N[] migrating, int i) {
+		N node = migrating[i];
+		if (node == null)
+			return;
+		final N[] table = this.table;
+		final int newIndexBit = migrating.length;
+		N tail1 = null, tail2 = null;
+		while (node != null) {
+			final N next = node.next;
+			node.next = null;
+			if ((node.hash & newIndexBit) == 0) {
+				if (tail1 == null) {
+					tail1 = table[i] = node;
+				} else {
+					tail1 = tail1.next = node;
+				}
+			} else {
+				if (tail2 == null) {
+					tail2 = table[i | newIndexBit] = node;
+				} else {
+					tail2 = tail2.next = node;
+				}
+			}
+			node = next;
 		}
+		migrating[i] = null;
 	}
 	
 //	public void shrink() {
@@ -902,7 +1460,7 @@ public abstract class AbstractSerialHashStore<N extends AbstractSerialHashStore.
 	 * @param oldTable
 	 */
     @SuppressWarnings("unchecked")
-	private void rehash(N[] oldTable) {
+	protected void rehash(N[] oldTable) {
     	// @@ TEST
     	final N[] table = this.table;
     	if (oldTable.length > table.length) {
@@ -25,6 +25,7 @@ package org.jjoost.collections.base;
 import java.io.Serializable;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
 
 import org.jjoost.collections.AnySet;
 import org.jjoost.collections.sets.serial.MultiArraySet;
@@ -34,9 +35,10 @@ import org.jjoost.util.Factory;
 import org.jjoost.util.Filter;
 import org.jjoost.util.Filters;
 import org.jjoost.util.Function;
+import org.jjoost.util.Visitor;
 import org.jjoost.util.filters.MappedFilter;
 
-public interface HashStore<N, S extends HashStore<N, S>> extends Serializable {
+public interface HashStore<N, S extends HashStore<N, S>> extends Serializable, Instrumented {
 
 	public static enum Locality {
 		ADJACENT, SAME_BUCKET, GLOBAL
@@ -91,6 +93,26 @@ public interface HashStore<N, S extends HashStore<N, S>> extends Serializable {
 			Function<? super N, ? extends V> ret);
 	
 	
+	/**
+	 * Returns a <code>Spliterator</code> over every node in the store, mapped by <code>ret</code>. Serial stores split
+	 * on ranges of their table so that a full scan may be divided across threads; concurrent stores report
+	 * <code>CONCURRENT</code> and are weakly consistent in the same way as their iterators. The caller supplies any
+	 * characteristics that hold for the mapped values (e.g. <code>DISTINCT</code>), which the store cannot know itself.
+	 */
+	public <V> Spliterator<V> spliterator(Function<? super N, ? extends V> ret, int characteristics);
+	
+	/**
+	 * Passes every node in one partition of the store to the visitor, mapped by <code>ret</code>, until the visitor
+	 * returns false; the store walks its table directly, so no <code>Iterator</code> is allocated. The table is divided
+	 * into <code>partitions</code> disjoint ranges of buckets, so that a full visit may be divided across threads;
+	 * concurrent stores divide the range of bit-reversed hashes instead, so that every node remains in the same partition
+	 * however their table grows, but are otherwise weakly consistent in the same way as their iterators. Serial stores may
+	 * only be visited by several threads at once if none of them is modified. Returns false if the visitor ended the visit
+	 * early.
+	 */
+	public <V> boolean visit(int partition, int partitions, Function<? super N, ? extends V> ret, Visitor<? super V> visitor);
+	
+	
 	// helper classes for implementing unique() method
 	
 	static final class Helper {
@@ -112,12 +134,47 @@ public interface HashStore<N, S extends HashStore<N, S>> extends Serializable {
 			}			
 		}
 		
+		public static void checkPartition(int partition, int partitions) {
+			if (partitions < 1 || partition < 0 || partition >= partitions)
+				throw new IllegalArgumentException(String.format("Cannot visit partition %d of %d", partition, partitions));
+		}
+		
+		// the first bucket of the partition of a table of the given length, which is also the end of the partition before it
+		public static int partitionStart(int length, int partition, int partitions) {
+			return (int) (((long) length * partition) / partitions);
+		}
+		
+		// concurrent stores may grow between the visits of two partitions, so they instead partition the space of bit-reversed hashes,
+		// in which each bucket occupies a range that its two halves divide between them when the table doubles; returns the first
+		// reversed hash, as an unsigned value, of the partition, which is also the end of the partition before it
+		public static long hashPartitionStart(int partition, int partitions) {
+			return (((long) partition << 32) + partitions - 1) / partitions;
+		}
+		
+		public static boolean inHashPartition(int hash, long start, long end) {
+			final long rev = Integer.reverse(hash) & 0xFFFFFFFFL;
+			return rev >= start & rev < end;
+		}
+		
+		// the width of the range of reversed hashes occupied by each bucket of a table of the given (power of two) length;
+		// the bucket occupying the range beginning at rev is Integer.reverse((int) rev)
+		public static long bucketWidth(int length) {
+			return 1L << (32 - Integer.numberOfTrailingZeros(length));
+		}
+		
 		public static boolean cmp(int revA, int revB) {
 			return (revA < revB) ^ ((revB > 0) != (revA > 0));
 		}
 
 		public static boolean revThenCmp(int revA, int b) {
-			return cmp(revA, Integer.reverse(b));
+			return cmp(revA, Integer.reverse(b));
+		}
+		
+		// the implementation of incrementalResize() for collections that may be backed by any store; only serial stores support it
+		public static void incrementalResize(HashStore<?, ?> store, boolean incremental) {
+			if (!(store instanceof AbstractSerialHashStore))
+				throw new UnsupportedOperationException("Only serial hash stores support incremental resizing");
+			((AbstractSerialHashStore<?, ?>) store).incrementalResize(incremental);
 		}
 
 	}
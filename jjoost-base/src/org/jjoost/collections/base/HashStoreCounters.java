@@ -0,0 +1,148 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.collections.base;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The event counters a <code>HashStore</code> maintains while recording statistics. A store only holds an instance
+ * of this class while recording is enabled, so that when it is disabled the only cost is a null check.
+ * 
+ * @author b.elliottsmith
+ */
+public abstract class HashStoreCounters {
+
+	/**
+	 * @return counters for a store that is never modified by more than one thread at once
+	 */
+	public static HashStoreCounters serial() {
+		return new Serial();
+	}
+	
+	/**
+	 * @return counters that may be updated by many threads concurrently
+	 */
+	public static HashStoreCounters concurrent() {
+		return new Concurrent();
+	}
+	
+	/** records a lookup that examined <code>probes</code> nodes or slots */
+	public abstract void find(int probes);
+	/** records an insertion (or failed conditional insertion) that examined <code>probes</code> nodes or slots */
+	public abstract void put(int probes);
+	/** records a growth of the table, taking <code>nanos</code> to complete */
+	public abstract void resized(long nanos);
+	/** records a thread blocking for <code>nanos</code> to acquire a contended lock */
+	public abstract void lockWaited(long nanos);
+	/** records a failed compare-and-set that had to be retried */
+	public abstract void casRetried();
+	
+	public abstract long finds();
+	public abstract long findProbes();
+	public abstract long puts();
+	public abstract long putProbes();
+	public abstract long resizes();
+	public abstract long resizeNanos();
+	public abstract long lockWaits();
+	public abstract long lockWaitNanos();
+	public abstract long casRetries();
+	
+	private static final class Serial extends HashStoreCounters {
+		private long finds, findProbes, puts, putProbes, resizes, resizeNanos, lockWaits, lockWaitNanos, casRetries;
+		@Override
+		public void find(int probes) {
+			finds++;
+			findProbes += probes;
+		}
+		@Override
+		public void put(int probes) {
+			puts++;
+			putProbes += probes;
+		}
+		@Override
+		public void resized(long nanos) {
+			resizes++;
+			resizeNanos += nanos;
+		}
+		@Override
+		public void lockWaited(long nanos) {
+			lockWaits++;
+			lockWaitNanos += nanos;
+		}
+		@Override
+		public void casRetried() {
+			casRetries++;
+		}
+		@Override public long finds() { return finds; }
+		@Override public long findProbes() { return findProbes; }
+		@Override public long puts() { return puts; }
+		@Override public long putProbes() { return putProbes; }
+		@Override public long resizes() { return resizes; }
+		@Override public long resizeNanos() { return resizeNanos; }
+		@Override public long lockWaits() { return lockWaits; }
+		@Override public long lockWaitNanos() { return lockWaitNanos; }
+		@Override public long casRetries() { return casRetries; }
+	}
+	
+	private static final class Concurrent extends HashStoreCounters {
+		private final LongAdder finds = new LongAdder(), findProbes = new LongAdder();
+		private final LongAdder puts = new LongAdder(), putProbes = new LongAdder();
+		private final LongAdder resizes = new LongAdder(), resizeNanos = new LongAdder();
+		private final LongAdder lockWaits = new LongAdder(), lockWaitNanos = new LongAdder();
+		private final LongAdder casRetries = new LongAdder();
+		@Override
+		public void find(int probes) {
+			finds.increment();
+			findProbes.add(probes);
+		}
+		@Override
+		public void put(int probes) {
+			puts.increment();
+			putProbes.add(probes);
+		}
+		@Override
+		public void resized(long nanos) {
+			resizes.increment();
+			resizeNanos.add(nanos);
+		}
+		@Override
+		public void lockWaited(long nanos) {
+			lockWaits.increment();
+			lockWaitNanos.add(nanos);
+		}
+		@Override
+		public void casRetried() {
+			casRetries.increment();
+		}
+		@Override public long finds() { return finds.sum(); }
+		@Override public long findProbes() { return findProbes.sum(); }
+		@Override public long puts() { return puts.sum(); }
+		@Override public long putProbes() { return putProbes.sum(); }
+		@Override public long resizes() { return resizes.sum(); }
+		@Override public long resizeNanos() { return resizeNanos.sum(); }
+		@Override public long lockWaits() { return lockWaits.sum(); }
+		@Override public long lockWaitNanos() { return lockWaitNanos.sum(); }
+		@Override public long casRetries() { return casRetries.sum(); }
+	}
+	
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.collections.base;
+
+/**
+ * The JMX view of the statistics of an <code>Instrumented</code> store; see <code>HashStoreMonitor</code>
+ * 
+ * @author b.elliottsmith
+ */
+public interface HashStoreMXBean {
+
+	public int getTotalCount();
+	public int getUniquePrefixCount();
+	public int getCapacity();
+	public long[] getChainLengths();
+	public int getMaxChainLength();
+	public double getAverageChainLength();
+	public long getFinds();
+	public double getAverageFindProbes();
+	public long getPuts();
+	public double getAveragePutProbes();
+	public long getResizes();
+	public long getResizeNanos();
+	public long getLockWaits();
+	public long getLockWaitNanos();
+	public long getCasRetries();
+	
+	/**
+	 * discards all recorded statistics
+	 */
+	public void reset();
+	
+}
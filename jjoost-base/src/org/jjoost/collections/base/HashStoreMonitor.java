@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.collections.base;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Publishes the statistics of an <code>Instrumented</code> store or collection as a <code>HashStoreMXBean</code>,
+ * so that degenerate hashing may be graphed and alerted on. Snapshots are reused for one second, so that a monitoring
+ * agent reading every attribute does not walk the table once per attribute. Collections wrapped by
+ * <code>SynchronizedDelegator</code> or <code>ReadWriteLockedDelegator</code> should be registered through the
+ * wrapper, which collects the statistics whilst holding its lock.
+ * 
+ * @author b.elliottsmith
+ */
+public class HashStoreMonitor implements HashStoreMXBean {
+
+	private static final long REFRESH_MILLIS = 1000;
+	
+	private final Instrumented target;
+	private volatile HashStoreStatistics last;
+	
+	public HashStoreMonitor(Instrumented target) {
+		this.target = target;
+	}
+	
+	/**
+	 * Enables recording of statistics on the target, and registers a monitor for it with the platform
+	 * <code>MBeanServer</code> as <code>org.jjoost.collections:type=HashStore,name=&lt;name&gt;</code>
+	 * 
+	 * @return the name the monitor was registered with
+	 */
+	public static ObjectName register(String name, Instrumented target) throws JMException {
+		final ObjectName objectName = new ObjectName("org.jjoost.collections:type=HashStore,name=" + ObjectName.quote(name));
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		target.recordStatistics(true);
+		server.registerMBean(new HashStoreMonitor(target), objectName);
+		return objectName;
+	}
+	
+	public static void unregister(ObjectName name) throws JMException {
+		ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+	}
+	
+	public HashStoreStatistics statistics() {
+		HashStoreStatistics stats = last;
+		if (stats == null || System.currentTimeMillis() - stats.timestamp() >= REFRESH_MILLIS)
+			last = stats = target.statistics();
+		return stats;
+	}
+	
+	@Override public int getTotalCount() { return statistics().totalCount(); }
+	@Override public int getUniquePrefixCount() { return statistics().uniquePrefixCount(); }
+	@Override public int getCapacity() { return statistics().capacity(); }
+	@Override public long[] getChainLengths() { return statistics().chainLengths(); }
+	@Override public int getMaxChainLength() { return statistics().maxChainLength(); }
+	@Override public double getAverageChainLength() { return statistics().averageChainLength(); }
+	@Override public long getFinds() { return statistics().finds(); }
+	@Override public double getAverageFindProbes() { return statistics().averageFindProbes(); }
+	@Override public long getPuts() { return statistics().puts(); }
+	@Override public double getAveragePutProbes() { return statistics().averagePutProbes(); }
+	@Override public long getResizes() { return statistics().resizes(); }
+	@Override public long getResizeNanos() { return statistics().resizeNanos(); }
+	@Override public long getLockWaits() { return statistics().lockWaits(); }
+	@Override public long getLockWaitNanos() { return statistics().lockWaitNanos(); }
+	@Override public long getCasRetries() { return statistics().casRetries(); }
+	
+	@Override
+	public void reset() {
+		// swaps in fresh counters, rather than disabling recording, so that no modification ever finds them missing
+		target.recordStatistics(true);
+		last = null;
+	}
+	
+}
@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.collections.base;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * An immutable snapshot of the shape of a <code>HashStore</code> and of the events it has recorded since
+ * statistics were enabled.
+ * <p>
+ * The chain length histogram counts buckets by the number of nodes they contain, so that element zero is the number
+ * of empty buckets; for open addressing stores, which have no chains, it instead counts the runs of consecutive
+ * occupied slots by their length, as these determine the cost of a probe in the same way. A bad
+ * <code>Rehasher</code> shows up as a long tail in this histogram, and as a high average number of probes per
+ * operation.
+ * 
+ * @author b.elliottsmith
+ */
+public final class HashStoreStatistics implements Serializable {
+
+	private static final long serialVersionUID = 2384162339186093577L;
+
+	private final long timestamp;
+	private final int totalCount;
+	private final int uniquePrefixCount;
+	private final int capacity;
+	private final long[] chainLengths;
+	private final long finds, findProbes, puts, putProbes, resizes, resizeNanos, lockWaits, lockWaitNanos, casRetries;
+	
+	/**
+	 * @param chainLengths the chain length histogram, which may be trailed by zeros
+	 * @param counters the counters recorded by the store, or <code>null</code> if recording is disabled
+	 */
+	public HashStoreStatistics(int totalCount, int uniquePrefixCount, int capacity, long[] chainLengths, HashStoreCounters counters) {
+		this.timestamp = System.currentTimeMillis();
+		this.totalCount = totalCount;
+		this.uniquePrefixCount = uniquePrefixCount;
+		this.capacity = capacity;
+		this.chainLengths = trim(chainLengths);
+		if (counters == null) {
+			finds = findProbes = puts = putProbes = resizes = resizeNanos = lockWaits = lockWaitNanos = casRetries = 0;
+		} else {
+			finds = counters.finds();
+			findProbes = counters.findProbes();
+			puts = counters.puts();
+			putProbes = counters.putProbes();
+			resizes = counters.resizes();
+			resizeNanos = counters.resizeNanos();
+			lockWaits = counters.lockWaits();
+			lockWaitNanos = counters.lockWaitNanos();
+			casRetries = counters.casRetries();
+		}
+	}
+	
+	private HashStoreStatistics(HashStoreStatistics a, HashStoreStatistics b) {
+		this.timestamp = Math.max(a.timestamp, b.timestamp);
+		this.totalCount = a.totalCount + b.totalCount;
+		this.uniquePrefixCount = a.uniquePrefixCount + b.uniquePrefixCount;
+		this.capacity = a.capacity + b.capacity;
+		final long[] chainLengths = Arrays.copyOf(a.chainLengths, Math.max(a.chainLengths.length, b.chainLengths.length));
+		for (int i = 0 ; i != b.chainLengths.length ; i++)
+			chainLengths[i] += b.chainLengths[i];
+		this.chainLengths = chainLengths;
+		this.finds = a.finds + b.finds;
+		this.findProbes = a.findProbes + b.findProbes;
+		this.puts = a.puts + b.puts;
+		this.putProbes = a.putProbes + b.putProbes;
+		this.resizes = a.resizes + b.resizes;
+		this.resizeNanos = a.resizeNanos + b.resizeNanos;
+		this.lockWaits = a.lockWaits + b.lockWaits;
+		this.lockWaitNanos = a.lockWaitNanos + b.lockWaitNanos;
+		this.casRetries = a.casRetries + b.casRetries;
+	}
+	
+	/**
+	 * @return the statistics of a store composed of the two stores these statistics were taken from
+	 */
+	public HashStoreStatistics merge(HashStoreStatistics that) {
+		return new HashStoreStatistics(this, that);
+	}
+	
+	// increments the provided histogram at index <code>length</code>, returning a larger copy if necessary
+	static long[] increment(long[] histogram, int length) {
+		if (length >= histogram.length)
+			histogram = Arrays.copyOf(histogram, Math.max(length + 1, histogram.length << 1));
+		histogram[length]++;
+		return histogram;
+	}
+	
+	private static long[] trim(long[] histogram) {
+		int length = histogram.length;
+		while (length > 0 && histogram[length - 1] == 0)
+			length--;
+		return Arrays.copyOf(histogram, length);
+	}
+	
+	/** @return the time these statistics were taken, in milliseconds since the epoch */
+	public long timestamp() { return timestamp; }
+	public int totalCount() { return totalCount; }
+	public int uniquePrefixCount() { return uniquePrefixCount; }
+	public int capacity() { return capacity; }
+	/** @return the chain length histogram, with no trailing zeros */
+	public long[] chainLengths() { return chainLengths.clone(); }
+	public int maxChainLength() { return Math.max(0, chainLengths.length - 1); }
+	public long finds() { return finds; }
+	public long findProbes() { return findProbes; }
+	public long puts() { return puts; }
+	public long putProbes() { return putProbes; }
+	public long resizes() { return resizes; }
+	public long resizeNanos() { return resizeNanos; }
+	public long lockWaits() { return lockWaits; }
+	public long lockWaitNanos() { return lockWaitNanos; }
+	public long casRetries() { return casRetries; }
+	
+	/** @return the mean length of the non-empty chains */
+	public double averageChainLength() {
+		long chains = 0, nodes = 0;
+		for (int i = 1 ; i < chainLengths.length ; i++) {
+			chains += chainLengths[i];
+			nodes += i * chainLengths[i];
+		}
+		return chains == 0 ? 0d : nodes / (double) chains;
+	}
+	public double averageFindProbes() {
+		return finds == 0 ? 0d : findProbes / (double) finds;
+	}
+	public double averagePutProbes() {
+		return puts == 0 ? 0d : putProbes / (double) puts;
+	}
+	
+	@Override
+	public String toString() {
+		return "{totalCount=" + totalCount + ", uniquePrefixCount=" + uniquePrefixCount + ", capacity=" + capacity
+			+ ", chainLengths=" + Arrays.toString(chainLengths) + ", finds=" + finds + ", averageFindProbes=" + averageFindProbes() 
+			+ ", puts=" + puts + ", averagePutProbes=" + averagePutProbes() + ", resizes=" + resizes + ", resizeNanos=" + resizeNanos
+			+ ", lockWaits=" + lockWaits + ", lockWaitNanos=" + lockWaitNanos + ", casRetries=" + casRetries + "}";
+	}
+	
+}
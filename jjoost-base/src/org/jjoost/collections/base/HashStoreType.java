@@ -25,28 +25,62 @@ package org.jjoost.collections.base;
 public class HashStoreType {
 
 	public static enum Type {
-		SERIAL , LINKED_SERIAL , SYNCHRONIZED , LINKED_SYNCHRONIZED , LOCK_FREE , LINKED_LOCK_FREE, HASH_LOCK;
+		SERIAL , LINKED_SERIAL , SYNCHRONIZED , LINKED_SYNCHRONIZED , READ_WRITE_LOCKED , LINKED_READ_WRITE_LOCKED , LOCK_FREE , LINKED_LOCK_FREE, HASH_LOCK, STRIPED, OPEN_ADDRESSING, PERSISTENT, SYNCHRONIZED_PERSISTENT, READ_WRITE_LOCKED_PERSISTENT;
 	}
 	
 	private final Type type;
+	private final int stripes;
 	public Type type() { return type ; }
-	public HashStoreType(Type type) { this.type = type ; }
+	public int stripes() { return stripes ; }
+	public HashStoreType(Type type) { this(type, 1) ; }
+	public HashStoreType(Type type, int stripes) { this.type = type ; this.stripes = stripes ; }
+	
+	/** @return true if stores of this type may be modified by many threads at once */
+	public boolean isThreadSafe() {
+		switch (type) {
+		case SERIAL:
+		case LINKED_SERIAL:
+		case OPEN_ADDRESSING:
+		case PERSISTENT:
+			return false;
+		default:
+			return true;
+		}
+	}
 
 	public static HashStoreType serial() { return SERIAL ; }
 	public static HashStoreType synchronous() { return SYNCHRONIZED ; }
+	public static HashStoreType readWriteLocked() { return READ_WRITE_LOCKED ; }
 	public static HashStoreType lockFree() { return LOCK_FREE ; }
 	public static HashStoreType hashLock() { return HASH_LOCK ; }
+	public static HashStoreType striped() { return striped(StripedHashStore.defaultStripeCount()) ; }
+	public static HashStoreType striped(int stripes) { return new HashStoreType(Type.STRIPED, stripes) ; }
+	public static HashStoreType openAddressing() { return OPEN_ADDRESSING ; }
 	public static HashStoreType linkedSerial() { return LINKED_SERIAL ; }
 	public static HashStoreType linkedSynchronous() { return LINKED_SYNCHRONIZED ; }
+	public static HashStoreType linkedReadWriteLocked() { return LINKED_READ_WRITE_LOCKED ; }
 	public static HashStoreType linkedLockFree() { return LINKED_LOCK_FREE ; }
+	/** a serial store whose copies share structure, so that <code>copy()</code> and <code>snapshot()</code> are O(1) */
+	public static HashStoreType persistent() { return PERSISTENT ; }
+	/** a synchronized persistent store, which holds its lock for only O(1) time to take a <code>snapshot()</code> */
+	public static HashStoreType synchronousPersistent() { return SYNCHRONIZED_PERSISTENT ; }
+	/** a read-write locked persistent store, which holds its lock for only O(1) time to take a <code>snapshot()</code> */
+	public static HashStoreType readWriteLockedPersistent() { return READ_WRITE_LOCKED_PERSISTENT ; }
 	
 	private static final HashStoreType SERIAL = new HashStoreType(Type.SERIAL);
 	private static final HashStoreType SYNCHRONIZED = new HashStoreType(Type.SYNCHRONIZED);
+	private static final HashStoreType READ_WRITE_LOCKED = new HashStoreType(Type.READ_WRITE_LOCKED);
 	private static final HashStoreType LOCK_FREE = new HashStoreType(Type.LOCK_FREE);
 	private static final HashStoreType HASH_LOCK = new HashStoreType(Type.HASH_LOCK);
+	private static final HashStoreType OPEN_ADDRESSING = new HashStoreType(Type.OPEN_ADDRESSING);
 	
-	private static final HashStoreType LINKED_SERIAL = new HashStoreType(Type.SERIAL);
-	private static final HashStoreType LINKED_SYNCHRONIZED = new HashStoreType(Type.SYNCHRONIZED);
-	private static final HashStoreType LINKED_LOCK_FREE = new HashStoreType(Type.LOCK_FREE);
+	private static final HashStoreType LINKED_SERIAL = new HashStoreType(Type.LINKED_SERIAL);
+	private static final HashStoreType LINKED_SYNCHRONIZED = new HashStoreType(Type.LINKED_SYNCHRONIZED);
+	private static final HashStoreType LINKED_READ_WRITE_LOCKED = new HashStoreType(Type.LINKED_READ_WRITE_LOCKED);
+	private static final HashStoreType LINKED_LOCK_FREE = new HashStoreType(Type.LINKED_LOCK_FREE);
+	
+	private static final HashStoreType PERSISTENT = new HashStoreType(Type.PERSISTENT);
+	private static final HashStoreType SYNCHRONIZED_PERSISTENT = new HashStoreType(Type.SYNCHRONIZED_PERSISTENT);
+	private static final HashStoreType READ_WRITE_LOCKED_PERSISTENT = new HashStoreType(Type.READ_WRITE_LOCKED_PERSISTENT);
 	
 }
@@ -0,0 +1,46 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.collections.base;
+
+/**
+ * Implemented by each <code>HashStore</code>, and by the collections built on them, to expose statistics about the
+ * store's shape and, once enabled, the operations performed on it
+ * 
+ * @author b.elliottsmith
+ */
+public interface Instrumented {
+
+	/**
+	 * Starts or stops recording operation statistics; any statistics previously recorded are discarded. Recording is
+	 * disabled by default, and costs nothing until it is enabled.
+	 */
+	public void recordStatistics(boolean record);
+	
+	/**
+	 * Returns a snapshot of the current statistics. Computing the chain length histogram visits every bucket, so this
+	 * method should not be called frequently on large stores. The operation counters are all zero unless recording
+	 * has been enabled.
+	 */
+	public HashStoreStatistics statistics();
+	
+}
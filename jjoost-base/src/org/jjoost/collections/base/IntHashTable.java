@@ -0,0 +1,351 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.collections.base;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+import org.jjoost.collections.ReadSet;
+import org.jjoost.collections.sets.base.AbstractReadSet;
+import org.jjoost.collections.sets.serial.IntHashSet;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Equality;
+import org.jjoost.util.Rehasher;
+import org.jjoost.util.Rehashers;
+
+/**
+ * An open addressing (linear probing) table of primitive <code>int</code> keys, to be extended by collections that
+ * keep any associated data in arrays parallel to the keys. Zero marks an empty slot, so the zero key, if present,
+ * occupies the extra slot at index <code>capacity()</code>; parallel arrays should therefore be one larger than the
+ * table. Removal shifts later keys in the probe sequence back towards their home slot, reporting each move to the
+ * subclass, so no tombstones are left behind.
+ *
+ * @author b.elliottsmith
+ */
+public abstract class IntHashTable implements Serializable {
+
+	private static final long serialVersionUID = -3628500538012883497L;
+
+	protected final Rehasher rehasher;
+	protected final float loadFactor;
+	protected int[] keys;
+	protected boolean containsZero;
+	protected int size;
+	protected int loadLimit;
+
+	protected IntHashTable(int minimumInitialCapacity, float loadFactor, Rehasher rehasher) {
+		int capacity = 8;
+		while (capacity < minimumInitialCapacity)
+			capacity <<= 1;
+		this.rehasher = rehasher;
+		this.loadFactor = loadFactor;
+		this.keys = new int[capacity];
+		this.loadLimit = loadLimit(capacity, loadFactor);
+	}
+
+	protected IntHashTable(IntHashTable copy) {
+		this.rehasher = copy.rehasher;
+		this.loadFactor = copy.loadFactor;
+		this.keys = copy.keys.clone();
+		this.containsZero = copy.containsZero;
+		this.size = copy.size;
+		this.loadLimit = copy.loadLimit;
+	}
+
+	/**
+	 * called when the slot <code>from</code> is shifted into the (empty) slot <code>to</code>
+	 */
+	protected abstract void move(int from, int to);
+	/**
+	 * called when the slot has been emptied
+	 */
+	protected abstract void clearSlot(int slot);
+	/**
+	 * called when the table has grown to <code>capacity</code>; the key at each old slot <code>i</code> now occupies
+	 * <code>slots[i]</code>, or <code>slots[i] == -1</code> if the old slot was empty
+	 */
+	protected abstract void rehash(int capacity, int[] slots);
+	/**
+	 * called when the whole table has been emptied
+	 */
+	protected abstract void cleared();
+
+	public int capacity() {
+		return keys.length;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int clear() {
+		final int r = size;
+		Arrays.fill(keys, 0);
+		containsZero = false;
+		size = 0;
+		cleared();
+		return r;
+	}
+
+	public boolean contains(int key) {
+		return slot(key) >= 0;
+	}
+
+	public PrimitiveIterator.OfInt keyIterator() {
+		return new KeyIterator();
+	}
+
+	protected ReadSet<Integer> keySet() {
+		return new KeySet();
+	}
+
+	// **************************************************
+	// SLOT MANAGEMENT
+	// **************************************************
+
+	protected final int hash(int key) {
+		return rehasher.rehash(key);
+	}
+
+	/**
+	 * @return the slot occupied by the key, or -1 if it is not present
+	 */
+	protected final int slot(int key) {
+		if (key == 0)
+			return containsZero ? keys.length : -1;
+		final int[] keys = this.keys;
+		final int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		int k;
+		while ((k = keys[i]) != 0) {
+			if (k == key)
+				return i;
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the slot occupied by the key if it was already present, otherwise the ones-complement of the slot it has
+	 *         been inserted into
+	 */
+	protected final int insert(int key) {
+		if (key == 0) {
+			if (containsZero)
+				return keys.length;
+			containsZero = true;
+			size++;
+			return ~keys.length;
+		}
+		if (size >= loadLimit)
+			grow();
+		final int[] keys = this.keys;
+		final int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		int k;
+		while ((k = keys[i]) != 0) {
+			if (k == key)
+				return i;
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		size++;
+		return ~i;
+	}
+
+	protected final void removeSlot(int gap) {
+		size--;
+		if (gap == keys.length) {
+			containsZero = false;
+			clearSlot(gap);
+			return;
+		}
+		final int[] keys = this.keys;
+		final int mask = keys.length - 1;
+		int i = (gap + 1) & mask;
+		int k;
+		while ((k = keys[i]) != 0) {
+			final int home = hash(k) & mask;
+			// move the key at i into the gap unless its home lies cyclically within (gap, i]
+			if (gap <= i ? (gap >= home || home > i) : (gap >= home && home > i)) {
+				keys[gap] = k;
+				move(i, gap);
+				gap = i;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[gap] = 0;
+		clearSlot(gap);
+	}
+
+	/**
+	 * @return the first occupied slot after <code>slot</code>, or -1 if there is none; pass -1 to find the first
+	 */
+	protected final int nextSlot(int slot) {
+		final int[] keys = this.keys;
+		while (++slot < keys.length)
+			if (keys[slot] != 0)
+				return slot;
+		return slot == keys.length && containsZero ? slot : -1;
+	}
+
+	protected final int key(int slot) {
+		return slot == keys.length ? 0 : keys[slot];
+	}
+
+	private void grow() {
+		final int[] oldKeys = keys;
+		final int[] keys = new int[oldKeys.length << 1];
+		final int[] slots = new int[oldKeys.length + 1];
+		final int mask = keys.length - 1;
+		for (int j = 0 ; j != oldKeys.length ; j++) {
+			final int k = oldKeys[j];
+			if (k == 0) {
+				slots[j] = -1;
+			} else {
+				int i = hash(k) & mask;
+				while (keys[i] != 0)
+					i = (i + 1) & mask;
+				keys[i] = k;
+				slots[j] = i;
+			}
+		}
+		slots[oldKeys.length] = containsZero ? keys.length : -1;
+		this.keys = keys;
+		this.loadLimit = loadLimit(keys.length, loadFactor);
+		rehash(keys.length, slots);
+	}
+
+	// always leave at least one slot empty, so that every probe sequence terminates
+	private static int loadLimit(int capacity, float loadFactor) {
+		return Math.min(capacity - 1, (int) (capacity * loadFactor));
+	}
+
+	public static Rehasher defaultRehasher() {
+		return Rehashers.jdkHashmapRehasher();
+	}
+
+	// **************************************************
+	// BOXED VIEWS
+	// **************************************************
+
+	protected class KeyIterator implements PrimitiveIterator.OfInt {
+		int next = nextSlot(-1);
+		@Override
+		public boolean hasNext() {
+			return next >= 0;
+		}
+		@Override
+		public int nextInt() {
+			if (next < 0)
+				throw new NoSuchElementException();
+			final int r = key(next);
+			next = nextSlot(next);
+			return r;
+		}
+	}
+
+	/**
+	 * A read-only view of the keys, boxing on iteration only
+	 */
+	protected class KeySet extends AbstractReadSet<Integer> implements ReadSet<Integer> {
+		private static final long serialVersionUID = -1917387021196612659L;
+		@Override
+		public Iterator<Integer> iterator() {
+			return keyIterator();
+		}
+		@Override
+		public Integer get(Integer find) {
+			return first(find);
+		}
+		@Override
+		public Integer first(Integer find) {
+			return find != null && IntHashTable.this.contains(find.intValue()) ? find : null;
+		}
+		@Override
+		public List<Integer> list(Integer find) {
+			return find != null && IntHashTable.this.contains(find.intValue()) ? Collections.singletonList(find) : Collections.<Integer>emptyList();
+		}
+		@Override
+		public Iterable<Integer> all(Integer find) {
+			return list(find);
+		}
+		@Override
+		public boolean contains(Integer find) {
+			return find != null && IntHashTable.this.contains(find.intValue());
+		}
+		@Override
+		public Boolean apply(Integer find) {
+			return contains(find);
+		}
+		@Override
+		public int count(Integer find) {
+			return contains(find) ? 1 : 0;
+		}
+		@Override
+		public int size() {
+			return size;
+		}
+		@Override
+		public int totalCount() {
+			return size;
+		}
+		@Override
+		public int uniqueCount() {
+			return size;
+		}
+		@Override
+		public boolean isEmpty() {
+			return size == 0;
+		}
+		@Override
+		public boolean permitsDuplicates() {
+			return false;
+		}
+		@Override
+		public Equality<? super Integer> equality() {
+			return Equalities.object();
+		}
+		@Override
+		public ReadSet<Integer> unique() {
+			return this;
+		}
+		@Override
+		public ReadSet<Integer> copy() {
+			final IntHashSet copy = new IntHashSet(size, loadFactor, rehasher);
+			for (PrimitiveIterator.OfInt iter = keyIterator() ; iter.hasNext() ; )
+				copy.add(iter.nextInt());
+			return copy;
+		}
+	}
+
+}
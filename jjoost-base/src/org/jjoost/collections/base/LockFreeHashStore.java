@@ -1,2685 +1,1060 @@
-///**
-// * Copyright (c) 2010 Benedict Elliott Smith
-// * 
-// * Permission is hereby granted, free of charge, to any person obtaining a copy
-// * of this software and associated documentation files (the "Software"), to deal
-// * in the Software without restriction, including without limitation the rights
-// * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
-// * copies of the Software, and to permit persons to whom the Software is
-// * furnished to do so, subject to the following conditions:
-// * 
-// * The above copyright notice and this permission notice shall be included in
-// * all copies or substantial portions of the Software.
-// * 
-// * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
-// * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
-// * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
-// * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
-// * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
-// * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
-// * THE SOFTWARE.
-// */
-//
-//package org.jjoost.collections.base;
-//
-//import java.io.Serializable;
-//import java.lang.reflect.Field;
-//import java.lang.reflect.UndeclaredThrowableException;
-//import java.util.ArrayList;
-//import java.util.Arrays;
-//import java.util.Iterator;
-//import java.util.List;
-//import java.util.NoSuchElementException;
-//import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
-//import java.util.concurrent.locks.LockSupport;
-//
-//import org.jjoost.collections.lists.UniformList;
-//import org.jjoost.util.Equality;
-//import org.jjoost.util.Filter;
-//import org.jjoost.util.Filters;
-//import org.jjoost.util.Function;
-//import org.jjoost.util.Functions;
-//import org.jjoost.util.Iters;
-//import org.jjoost.util.Rehasher;
-//import org.jjoost.util.Rehashers;
-//import org.jjoost.util.concurrent.CommunalThreadQueue;
-//
-//import sun.misc.Unsafe;
-//
-//@Deprecated
-//public class LockFreeHashStore<N extends LockFreeHashStore.LockFreeHashNode<N>> implements HashStore<N> {
-//
-//	private static final long serialVersionUID = -1578733824843315344L;
-//	
-//	public enum Counting {
-//		OFF, SAMPLED, PRECISE
-//	}
-//
-//	protected static final Unsafe unsafe = getUnsafe();
-//	
-//	protected final WaitingOnNode<N> waitingOnDelete = new WaitingOnNode<N>(null, null);
-//	protected final float loadFactor;
-//	protected final Counter totalCounter;
-//	protected final Counter uniquePrefixCounter;
-//	protected final Counter growthCounter;
-//	private Table<N> tablePtr;
-//	
-//	@SuppressWarnings("unchecked")
-//	public LockFreeHashStore(int initialCapacity, float loadFactor, Counting totalCounting, Counting uniquePrefixCounting) {
-//        int capacity = 8;
-//        while (capacity < initialCapacity)
-//        	capacity <<= 1;
-//        setTable(new RegularTable<N>((N[]) new LockFreeHashNode[capacity], (int) (capacity * loadFactor)));
-//        this.loadFactor = loadFactor;
-//        if (totalCounting == null || uniquePrefixCounting == null)
-//        	throw new IllegalArgumentException();
-//        switch (uniquePrefixCounting) {
-//        case OFF: uniquePrefixCounter = DONT_COUNT ; break;
-//        case SAMPLED: uniquePrefixCounter = new SampledCounter() ; break;
-//        case PRECISE: uniquePrefixCounter = new PreciseCounter() ; break;
-//        default: throw new IllegalArgumentException();
-//        }
-//        switch (totalCounting) {
-//        case OFF: totalCounter = DONT_COUNT ; break;
-//        case SAMPLED: totalCounter = new SampledCounter() ; break;
-//        case PRECISE: totalCounter = new PreciseCounter() ; break;
-//        default: throw new IllegalArgumentException();
-//        }
-//        if (uniquePrefixCounting == Counting.OFF) {
-//        	growthCounter = totalCounter;
-//        } else { 
-//        	growthCounter = uniquePrefixCounter;
-//        }
-//	}
-//
-//	protected LockFreeHashStore(float loadFactor, Counter totalCounter, Counter uniqCounter, boolean useUniqCounterForGrowth, N[] table) {
-//		this.loadFactor = loadFactor;
-//		this.totalCounter = totalCounter;
-//		this.uniquePrefixCounter = uniqCounter;
-//		this.growthCounter = useUniqCounterForGrowth ? uniqCounter : totalCounter;
-//		setTable(new RegularTable<N>(table, (int) loadFactor * table.length));
-//	}
-//	
-//	protected void inserted(N node) { }
-//	protected void removed(N node) { }
-//
-//
-//		
-//	// **********************************************************
-//	// METHODS FOR INSERTION
-//	// **********************************************************	
-//	
-//	
-//	
-//	@Override
-//	public <NCmp, V> V put(boolean mustReplace,
-//			NCmp find, N put, 
-//			HashNodeEquality<? super NCmp, ? super N> eq, 
-//			Function<? super N, ? extends V> ret) {
-//		grow();
-//		
-//		final boolean replace = eq.isUnique();
-//		final int hash = put.hash;
-//		N prev = null, prev2 = null;
-//		N node = getTableUnsafe().writerGetStale(hash);
-//		boolean partial = false;
-//		while (true) {
-//			
-//			if (node == null) {
-//				
-//				if (mustReplace) {
-//					return null;
-//				}
-//				
-//				// we have not encountered any prior partial or complete node matches, so simply insert the node at the end of the list
-//				
-//				if (prev == null) {
-//					
-//					// prev is null, so list is entirely empty; attempt to add at head
-//					if (getTableUnsafe().compareAndSet(hash, null, put)) {
-//						inserted(put);
-//						totalCounter.increment(hash);
-//						uniquePrefixCounter.increment(hash);
-//						return null;
-//					}
-//					partial = false;
-//					node = getTableUnsafe().writerGetFresh(hash);
-//					
-//				} else {
-//					
-//					// otherwise prev was the last item in the list, so attempt to cas tail pointer from null to our new node
-//					if (prev.casNext(null, put)) {
-//						inserted(put);
-//						totalCounter.increment(hash);
-//						if (!partial)
-//							uniquePrefixCounter.increment(hash);
-//						return null;
-//					} 
-//					node = prev.getNextFresh();
-//				}
-//				
-//			} else if (node == REHASHING_FLAG | node == DELETING_FLAG | node == DELETED_FLAG | node == REHASHED_FLAG) {
-//				
-//				if (node == REHASHING_FLAG | node == REHASHED_FLAG) {
-//					// this bucket is being rehashed, so simply start from the head again (this will block until this bucket has been grown)
-//					partial = false;
-//					prev2 = prev = null;
-//					node = getTableFresh().writerGetFresh(hash);
-//				} else {
-//					// prev has been or is being deleted, so wait for deletion to complete and then backtrack either to prev2 or to the list head
-//					waitOnDelete(prev);
-//					if (prev2 == null) {
-//						partial = false;
-//						prev2 = prev = null;
-//						node = getTableUnsafe().writerGetFresh(hash) ; // note: could improve by performing a get *un*safe, as we have passed a memory barrier already with the waitOnDelete
-//					} else {
-//						node = prev2.getNextFresh();
-//						prev = prev2;
-//						prev2 = null;
-//						partial = prev.hash == hash && eq.prefixMatch(find, prev);
-//					}
-//				}
-//				
-//			} else {
-//				
-//				final boolean prevPartial = partial;
-//				if (partial != (node.hash == hash && eq.prefixMatch(find, node))) {
-//					if (partial) {
-//						
-//						// at this point we have previously seen at least one partial match but have encountered no complete matches
-//						// so try to insert the new node here (or terminate if replacing)
-//						
-//						if (mustReplace) {
-//							return null;
-//						}
-//
-//						// { prev != null }
-//						put.lazySetNext(node);
-//						if (prev.casNext(node, put)) {
-//							inserted(put);
-//							totalCounter.increment(hash);
-//							return null;
-//						}
-//						// if we fail, backtrack to prev2.next, or to the list head if prev2 is null
-//						if (prev2 == null) {
-//							partial = false;
-//							prev2 = prev = null;
-//							node = getTableUnsafe().writerGetFresh(hash);
-//						} else {
-//							node = prev2.getNextFresh();
-//							prev = prev2;
-//							prev2 = null;
-//							partial = prev.hash == hash && eq.prefixMatch(find, prev);
-//						}
-//						continue;
-//						
-//					} else {
-//						// we have not seen a partial match before this node, so simply set partial match to true						
-//						partial = true;
-//					}
-//				}
-//				
-//				if ((partial & replace) && eq.suffixMatch(find, node)) {
-//					
-//					// this node is a complete match AND we are replacing complete matches, so swap node for put
-//					final N next = node.getNextStale();
-//					if (next == REHASHING_FLAG | next == DELETING_FLAG | next == DELETED_FLAG | next == REHASHED_FLAG){
-//						if (next == REHASHING_FLAG | next == REHASHED_FLAG) {
-//							// bucket is being rehashed, so start again
-//							partial = false;
-//							prev2 = prev = null;
-//							node = getTableFresh().writerGetFresh(hash);
-//						} else {
-//							// node is being deleted, so wait for it to complete and grab prev.next
-//							waitOnDelete(node);
-//							if (prev == null) {
-//								partial = false;
-//								prev2 = prev = null;
-//								node = getTableUnsafe().writerGetFresh(hash);
-//							} else {
-//								node = prev.getNextStale();
-//								partial = prevPartial ;;
-//							}							
-//						}
-//						continue;
-//					}
-//					
-//					put.lazySetNext(next);
-//					if (prev == null) {
-//						if (getTableUnsafe().compareAndSet(hash, node, put)) {
-//							inserted(put);
-//							removed(node);
-//							return ret.apply(node);
-//						}
-//						// we failed, so start from head again
-//						partial = false;
-//						prev2 = prev = null;
-//						node = getTableUnsafe().writerGetFresh(hash);
-//						continue;
-//					} else {
-//						if (prev.casNext(node, put)) {
-//							inserted(put);
-//							removed(node);
-//							return ret.apply(node);
-//						}
-//						// we failed, so backtrack one
-//						node = prev.getNextStale();
-//						partial = prevPartial ;;
-//						continue;
-//					}
-//					
-//				}
-//				
-//				prev2 = prev;
-//				prev = node;
-//				node = node.getNextStale();
-//			}
-//		}
-//	}
-//
-//	
-//	@Override
-//	public <NCmp, V> V putIfAbsent(
-//			NCmp find, N put, 
-//			HashNodeEquality<? super NCmp, ? super N> eq, 
-//			Function<? super N, ? extends V> ret) {
-//		grow();
-//		
-//		final int hash = put.hash;
-//		N prev = null, prev2 = null;
-//		N node = getTableUnsafe().writerGetStale(hash);
-//		boolean partial = false;
-//		while (true) {
-//			if (node == null) {
-//				
-//				// we have not encountered any prior partial or complete node matches, so simply insert the node at the end of the list
-//				
-//				if (prev == null) {
-//					
-//					// prev is null, so list is entirely empty; attempt to add at head
-//					if (getTableUnsafe().compareAndSet(hash, null, put)) {
-//						inserted(put);
-//						totalCounter.increment(hash);
-//						uniquePrefixCounter.increment(hash);
-//						return null;
-//					}
-//					partial = false;
-//					node = getTableUnsafe().writerGetFresh(hash);
-//					
-//				} else {
-//					
-//					// otherwise prev was the last item in the list, so attempt to cas tail pointer from null to our new node
-//					if (prev.casNext(null, put)) {
-//						inserted(put);
-//						totalCounter.increment(hash);
-//						if (!partial)
-//							uniquePrefixCounter.increment(hash);
-//						return null;
-//					} 
-//					node = prev.getNextFresh();
-//				}
-//				
-//			} else if (node == REHASHING_FLAG | node == DELETING_FLAG | node == DELETED_FLAG | node == REHASHED_FLAG) {
-//				
-//				if (node == REHASHING_FLAG | node == REHASHED_FLAG) {
-//					// this bucket is being rehashed, so simply start from the head again (this will block until this bucket has been grown)
-//					partial = false;
-//					prev2 = prev = null;
-//					node = getTableFresh().writerGetFresh(hash);
-//				} else {
-//					// prev has been or is being deleted, so wait for deletion to complete and then backtrack either to prev2 or to the list head
-//					waitOnDelete(prev);
-//					if (prev2 == null) {
-//						partial = false;
-//						prev2 = prev = null;
-//						node = getTableUnsafe().writerGetFresh(hash) ; // note: could improve by performing a get *un*safe, as we have passed a memory barrier already with the waitOnDelete
-//					} else {
-//						node = prev2.getNextFresh();
-//						prev = prev2;
-//						prev2 = null;
-//						partial = prev.hash == hash && eq.prefixMatch(find, prev);
-//					}
-//				}
-//				
-//			} else {
-//				
-//				if (partial != (node.hash == hash && eq.prefixMatch(find, node))) {
-//					if (partial) {
-//						
-//						// at this point we have previously seen at least one partial match but have encountered no complete matches
-//						// so try to insert the new node here
-//						// { prev != null }
-//						put.lazySetNext(node);
-//						if (prev.casNext(node, put)) {
-//							inserted(put);
-//							totalCounter.increment(hash);
-//							return null;
-//						}
-//						// if we fail, backtrack to prev2.next, or to the list head if prev2 is null
-//						if (prev2 == null) {
-//							partial = false;
-//							prev2 = prev = null;
-//							node = getTableUnsafe().writerGetFresh(hash);
-//						} else {
-//							node = prev2.getNextFresh();
-//							prev = prev2;
-//							prev2 = null;
-//							partial = prev.hash == hash && eq.prefixMatch(find, prev);
-//						}
-//						continue;
-//						
-//					} else {
-//						// we have not seen a partial match before this node, so simply set partial match to true						
-//						partial = true;
-//					}
-//				}
-//				
-//				if (partial && eq.suffixMatch(find, node)) {
-//					// this node is a complete match so simply return it
-//					return ret.apply(node);
-//				}
-//				
-//				prev2 = prev;
-//				prev = node;
-//				node = node.getNextStale();
-//			}
-//		}
-//	}
-//	
-//	@Override
-//	public <NCmp, V> V putIfAbsent(
-//			int hash, NCmp find, 
-//			HashNodeEquality<? super NCmp, ? super N> eq, 
-//			HashNodeFactory<? super NCmp, N> factory, 
-//			Function<? super N, ? extends V> ret,
-//			boolean returnNewIfCreated) {
-//		grow();
-//		
-//		N put = null;
-//		N prev = null, prev2 = null;
-//		N node = getTableUnsafe().writerGetStale(hash);
-//		boolean partial = false;
-//		while (true) {
-//			if (node == null) {
-//				
-//				// we have not encountered any prior partial or complete node matches, so simply insert the node at the end of the list
-//				if (put == null)
-//					put = factory.makeNode(hash, find);
-//				
-//				if (prev == null) {
-//										
-//					// prev is null, so list is entirely empty; attempt to add at head
-//					if (getTableUnsafe().compareAndSet(hash, null, put)) {
-//						inserted(put);
-//						totalCounter.increment(hash);
-//						uniquePrefixCounter.increment(hash);
-//						if (returnNewIfCreated)
-//							return ret.apply(put);
-//						return null;
-//					}
-//					partial = false;
-//					node = getTableUnsafe().writerGetFresh(hash);
-//					
-//				} else {
-//					
-//					// otherwise prev was the last item in the list, so attempt to cas tail pointer from null to our new node
-//					if (prev.casNext(null, put)) {
-//						inserted(put);
-//						totalCounter.increment(hash);
-//						if (!partial)
-//							uniquePrefixCounter.increment(hash);
-//						if (returnNewIfCreated)
-//							return ret.apply(put);
-//						return null;
-//					} 
-//					node = prev.getNextFresh();
-//				}
-//				
-//			} else if (node == REHASHING_FLAG | node == DELETING_FLAG | node == DELETED_FLAG | node == REHASHED_FLAG) {
-//				
-//				if (node == REHASHING_FLAG | node == REHASHED_FLAG) {
-//					// this bucket is being rehashed, so simply start from the head again (this will block until this bucket has been grown)
-//					partial = false;
-//					prev2 = prev = null;
-//					node = getTableFresh().writerGetFresh(hash);
-//				} else {
-//					// prev has been or is being deleted, so wait for deletion to complete and then backtrack either to prev2 or to the list head
-//					waitOnDelete(prev);
-//					if (prev2 == null) {
-//						partial = false;
-//						prev2 = prev = null;
-//						node = getTableUnsafe().writerGetFresh(hash) ; // note: could improve by performing a get *un*safe, as we have passed a memory barrier already with the waitOnDelete
-//					} else {
-//						node = prev2.getNextFresh();
-//						prev = prev2;
-//						prev2 = null;
-//						partial = prev.hash == hash && eq.prefixMatch(find, prev);
-//					}
-//				}
-//				
-//			} else {
-//				
-//				if (partial != (node.hash == hash && eq.prefixMatch(find, node))) {
-//					if (partial) {
-//						
-//						if (put == null)
-//							put = factory.makeNode(hash, find);
-//						
-//						// at this point we have previously seen at least one partial match but have encountered no complete matches
-//						// so try to insert the new node here
-//						// { prev != null }
-//						put.lazySetNext(node);
-//						if (prev.casNext(node, put)) {
-//							inserted(put);
-//							totalCounter.increment(hash);
-//							if (returnNewIfCreated)
-//								return ret.apply(put);
-//							return null;
-//						}
-//						// if we fail, backtrack to prev2.next, or to the list head if prev2 is null
-//						if (prev2 == null) {
-//							partial = false;
-//							prev2 = prev = null;
-//							node = getTableUnsafe().writerGetFresh(hash);
-//						} else {
-//							node = prev2.getNextFresh();
-//							prev = prev2;
-//							prev2 = null;
-//							partial = prev.hash == hash && eq.prefixMatch(find, prev);
-//						}
-//						continue;
-//						
-//					} else {
-//						// we have not seen a partial match before this node, so simply set partial match to true						
-//						partial = true;
-//					}
-//				}
-//				
-//				if (partial && eq.suffixMatch(find, node)) {
-//					// this node is a complete match so simply return it
-//					return ret.apply(node);
-//				}
-//				
-//				prev2 = prev;
-//				prev = node;
-//				node = node.getNextStale();
-//			}
-//		}
-//	}
-//	
-//	// **********************************************************
-//	// METHODS FOR REMOVAL
-//	// **********************************************************	
-//	
-//	@Override
-//	public <NCmp> int remove(
-//			int hash, int removeAtMost, NCmp find, 
-//			HashNodeEquality<? super NCmp, ? super N> eq) {
-//		if (removeAtMost < 1) {
-//			if (removeAtMost == 0)
-//				return 0;
-//			throw new IllegalArgumentException("Cannot remove less than zero elements");
-//		}
-//		
-//		final boolean expectOnlyOne = eq.isUnique();
-//		int c = 0;
-//		N prev = null, prev2 = null;
-//		N node = getTableUnsafe().writerGetFresh(hash);
-//		boolean partial = false;
-//		boolean keptNeighbours = false;
-//		
-//		while (true) {
-//			
-//			if (node == null) {
-//				
-//				if (!keptNeighbours && c > 0)
-//					uniquePrefixCounter.decrement(hash);
-//				return c;
-//				
-//			} else if (node == REHASHING_FLAG | node == DELETING_FLAG | node == DELETED_FLAG | node == REHASHED_FLAG) {
-//				
-//				if (node == REHASHING_FLAG | node == REHASHED_FLAG) {
-//					// this bucket is being rehashed, so simply start from the head again (this will block until this bucket has been grown)
-//					partial = false;
-//					prev2 = prev = null;
-//					node = getTableFresh().writerGetFresh(hash);
-//				} else {
-//					// prev has been or is being deleted, so wait for deletion to complete and then backtrack either to prev2 or to the list head
-//					waitOnDelete(prev);
-//					if (prev2 == null) {
-//						partial = false;
-//						prev2 = prev = null;
-//						node = getTableUnsafe().writerGetFresh(hash) ; // note: could improve by performing a get *un*safe, as we have passed a memory barrier already with the waitOnDelete
-//					} else {
-//						node = prev2.getNextFresh();
-//						prev = prev2;
-//						prev2 = null;
-//						partial = prev.hash == hash && eq.prefixMatch(find, prev);
-//					}
-//				}
-//				
-//			} else {
-//				
-//				final boolean prevPartial = partial;
-//				if (partial != (node.hash == hash && eq.prefixMatch(find, node))) {
-//					if (partial) {
-//						if (!keptNeighbours)
-//							uniquePrefixCounter.decrement(hash);
-//						return c;
-//					} else {
-//						partial = true;
-//					}
-//				}
-//				
-//				if (partial && eq.suffixMatch(find, node)) {
-//					
-//					// this node is a complete match AND we are replacing complete matches, so swap node for put					
-//					N next = node.getNextStale();
-//					while (true) {
-//						
-//						if (next == REHASHING_FLAG | next == DELETING_FLAG | next == DELETED_FLAG | next == REHASHED_FLAG){
-//							if (next == REHASHING_FLAG | next == REHASHED_FLAG) {
-//								// bucket is being rehashed, so start from the beginning of the outer loop
-//								partial = false;
-//								prev2 = prev = null;
-//								node = getTableFresh().writerGetFresh(hash);
-//							} else {
-//								// node is being deleted, so wait for it to complete, grab prev.next and return to outer loop
-//								waitOnDelete(node);
-//								if (prev == null) {
-//									partial = false;
-//									node = getTableUnsafe().writerGetFresh(hash);
-//								} else {
-//									node = prev.getNextStale();
-//									partial = prevPartial ;;
-//								}
-//							}
-//							break;
-//						}
-//
-//						if (node.startDelete(next)) {
-//							
-//							boolean success;
-//							if (prev == null) {
-//								success = getTableUnsafe().compareAndSet(hash, node, next);
-//								if (!success) {
-//									// failed to set head, so regrab head, undo what we've done, and return to outer loop
-//									partial = false;
-//									node.volatileSetNext(next);
-//									waitingOnDelete.wake(node);
-//									node = getTableUnsafe().writerGetFresh(hash);
-//								}
-//							} else {
-//								success = prev.casNext(node, next);
-//								if (!success) {
-//									// failed to set prev's next to node, so step back to prev.next and break to outer loop
-//									partial = prevPartial;
-//									node.volatileSetNext(next);
-//									waitingOnDelete.wake(node);
-//									node = prev.getNextFresh();
-//								}
-//							}
-//							
-//							if (success) {
-//								node.finishDelete();
-//								waitingOnDelete.wake(node);
-//								removed(node);
-//								totalCounter.decrement(hash);
-//								if (expectOnlyOne | (++c == removeAtMost)) {
-//									if (!keptNeighbours && (next == null || hash != next.hash || !eq.prefixMatch(find, next)))
-//										uniquePrefixCounter.decrement(hash);
-//									return c;
-//								}
-//								node = next;
-//							}
-//
-//							break;
-//							
-//						} else {
-//
-//							// failed to start delete so grab latest value of next and loop 
-//							next = node.getNextFresh();
-//						}
-//					}
-//
-//				} else {
-//					
-//					if (partial)
-//						keptNeighbours = true;
-//					
-//					prev2 = prev;
-//					prev = node;
-//					node = node.getNextStale();
-//					
-//				}
-//			}
-//				
-//		}
-//	}
-//	
-//	@Override
-//	public <NCmp, V> V removeAndReturnFirst(
-//			int hash, int removeAtMost, NCmp find, 
-//			HashNodeEquality<? super NCmp, ? super N> eq, 
-//			Function<? super N, ? extends V> ret) {
-//		if (removeAtMost < 1) {
-//			if (removeAtMost == 0)
-//				return null;
-//			throw new IllegalArgumentException("Cannot remove less than zero elements");
-//		}
-//		
-//		final boolean expectOnlyOne = eq.isUnique();
-//		boolean doneFirst = false;
-//		V r = null;
-//		N prev = null, prev2 = null;
-//		N node = getTableUnsafe().writerGetFresh(hash);
-//		boolean partial = false;
-//		boolean keptNeighbours = false;
-//		int c = 0;
-//		
-//		while (true) {
-//			
-//			if (node == null) {
-//				
-//				if (!keptNeighbours & doneFirst)
-//					uniquePrefixCounter.decrement(hash);
-//				return r;
-//				
-//			} else if (node == REHASHING_FLAG | node == DELETING_FLAG | node == DELETED_FLAG | node == REHASHED_FLAG) {
-//				
-//				if (node == REHASHING_FLAG | node == REHASHED_FLAG) {
-//					// this bucket is being rehashed, so simply start from the head again (this will block until this bucket has been grown)
-//					partial = false;
-//					prev2 = prev = null;
-//					node = getTableFresh().writerGetFresh(hash);
-//				} else {
-//					// prev has been or is being deleted, so wait for deletion to complete and then backtrack either to prev2 or to the list head
-//					waitOnDelete(prev);
-//					if (prev2 == null) {
-//						partial = false;
-//						prev2 = prev = null;
-//						node = getTableUnsafe().writerGetFresh(hash) ; // note: could improve by performing a get *un*safe, as we have passed a memory barrier already with the waitOnDelete
-//					} else {
-//						node = prev2.getNextFresh();
-//						prev = prev2;
-//						prev2 = null;
-//						partial = prev.hash == hash && eq.prefixMatch(find, prev);
-//					}
-//				}
-//				
-//			} else {
-//				
-//				final boolean prevPartial = partial;
-//				if (partial != (node.hash == hash && eq.prefixMatch(find, node))) {
-//					if (partial) {
-//						if (!keptNeighbours)
-//							uniquePrefixCounter.decrement(hash);
-//						return r;
-//					} else {
-//						partial = true;
-//					}
-//				}
-//				
-//				if (partial && eq.suffixMatch(find, node)) {
-//					
-//					// this node is a complete match AND we are replacing complete matches, so swap node for put					
-//					N next = node.getNextStale();
-//					while (true) {
-//						
-//						if (next == REHASHING_FLAG | next == DELETING_FLAG | next == DELETED_FLAG | next == REHASHED_FLAG){
-//							if (next == REHASHING_FLAG | next == REHASHED_FLAG) {
-//								// bucket is being rehashed, so start from the beginning of the outer loop
-//								partial = false;
-//								prev2 = prev = null;
-//								node = getTableFresh().writerGetFresh(hash);
-//							} else {
-//								// node is being deleted, so wait for it to complete, grab prev.next and return to outer loop
-//								waitOnDelete(node);
-//								if (prev == null) {
-//									partial = false;
-//									node = getTableUnsafe().writerGetFresh(hash);
-//								} else {
-//									node = prev.getNextStale();
-//									partial = prevPartial ;;
-//								}
-//							}
-//							break;
-//						}
-//						
-//						if (node.startDelete(next)) {
-//							
-//							boolean success;
-//							if (prev == null) {
-//								success = getTableUnsafe().compareAndSet(hash, node, next);
-//								if (!success) {
-//									// failed to set head, so regrab head, undo what we've done, and return to outer loop
-//									partial = false;
-//									node.volatileSetNext(next);
-//									waitingOnDelete.wake(node);
-//									node = getTableUnsafe().writerGetFresh(hash);
-//								}
-//							} else {
-//								success = prev.casNext(node, next);
-//								if (!success) {
-//									// failed to set prev's next to node, so step back to prev.next and break to outer loop
-//									partial = prevPartial;
-//									node.volatileSetNext(next);
-//									waitingOnDelete.wake(node);
-//									node = prev.getNextFresh();
-//								}
-//							}
-//							
-//							if (success) {
-//								node.finishDelete();
-//								waitingOnDelete.wake(node);
-//								removed(node);
-//								totalCounter.decrement(hash);
-//								if (expectOnlyOne | (++c == removeAtMost)) {
-//									if (!keptNeighbours && (next == null || hash != next.hash || !eq.prefixMatch(find, next)))
-//										uniquePrefixCounter.decrement(hash);
-//									return ret.apply(node);
-//								}
-//								if (!doneFirst) {
-//									r = ret.apply(node);
-//									doneFirst = true;
-//								}
-//								node = next;
-//							}
-//							
-//							break;
-//							
-//						} else {
-//							
-//							// failed to start delete so grab latest value of next and loop 
-//							next = node.getNextFresh();
-//						}						
-//					}
-//					
-//				} else {
-//					
-//					if (partial)
-//						keptNeighbours = true;
-//					
-//					prev2 = prev;
-//					prev = node;
-//					node = node.getNextStale();
-//					
-//				}
-//			}
-//			
-//		}
-//	}
-//	
-//
-//	@Override
-//	public <NCmp, V> Iterable<V> removeAndReturn(
-//			int hash, int removeAtMost, NCmp find, 
-//			HashNodeEquality<? super NCmp, ? super N> eq, 
-//			Function<? super N, ? extends V> ret) {
-//		if (removeAtMost < 1) {
-//			if (removeAtMost == 0)
-//				return Iters.emptyIterable();
-//			throw new IllegalArgumentException("Cannot remove less than zero elements");
-//		}
-//		
-//		int c = 0;
-//		final List<V> r = eq.isUnique() | removeAtMost == 1 ? null : new ArrayList<V>(4);
-//		N prev = null, prev2 = null;
-//		N node = getTableUnsafe().writerGetFresh(hash);
-//		boolean partial = false;
-//		boolean keptNeighbours = false;
-//		
-//		while (true) {
-//			
-//			if (node == null) {
-//				
-//				if (r == null || r.size() == 0)
-//					return Iters.emptyIterable();
-//				if (!keptNeighbours)
-//					uniquePrefixCounter.decrement(hash);
-//				return r;
-//				
-//			} else if (node == REHASHING_FLAG | node == DELETING_FLAG | node == DELETED_FLAG | node == REHASHED_FLAG) {
-//				
-//				if (node == REHASHING_FLAG | node == REHASHED_FLAG) {
-//					// this bucket is being rehashed, so simply start from the head again (this will block until this bucket has been grown)
-//					partial = false;
-//					prev2 = prev = null;
-//					node = getTableFresh().writerGetFresh(hash);
-//				} else {
-//					// prev has been or is being deleted, so wait for deletion to complete and then backtrack either to prev2 or to the list head
-//					waitOnDelete(prev);
-//					if (prev2 == null) {
-//						partial = false;
-//						prev2 = prev = null;
-//						node = getTableUnsafe().writerGetFresh(hash) ; // note: could improve by performing a get *un*safe, as we have passed a memory barrier already with the waitOnDelete
-//					} else {
-//						node = prev2.getNextFresh();
-//						prev = prev2;
-//						prev2 = null;
-//						partial = prev.hash == hash && eq.prefixMatch(find, prev);
-//					}
-//				}
-//				
-//			} else {
-//				
-//				final boolean prevPartial = partial;
-//				if (partial != (node.hash == hash && eq.prefixMatch(find, node))) {
-//					if (partial) {
-//						if (!keptNeighbours) // {: r.size() > 0 :}
-//							uniquePrefixCounter.decrement(hash);
-//						return r;
-//					} else {
-//						partial = true;
-//					}
-//				}
-//				
-//				if (partial && eq.suffixMatch(find, node)) {
-//					
-//					// this node is a complete match AND we are replacing complete matches, so swap node for put					
-//					N next = node.getNextStale();
-//					while (true) {
-//						
-//						if (next == REHASHING_FLAG | next == DELETING_FLAG | next == DELETED_FLAG | next == REHASHED_FLAG){
-//							if (next == REHASHING_FLAG | next == REHASHED_FLAG) {
-//								// bucket is being rehashed, so start from the beginning of the outer loop
-//								partial = false;
-//								prev2 = prev = null;
-//								node = getTableFresh().writerGetFresh(hash);
-//							} else {
-//								// node is being deleted, so wait for it to complete, grab prev.next and return to outer loop
-//								waitOnDelete(node);
-//								if (prev == null) {
-//									partial = false;
-//									node = getTableUnsafe().writerGetFresh(hash);
-//								} else {
-//									node = prev.getNextStale();
-//									partial = prevPartial ;;
-//								}
-//							}
-//							break;
-//						}
-//						
-//						if (node.startDelete(next)) {
-//							
-//							boolean success;
-//							if (prev == null) {
-//								success = getTableUnsafe().compareAndSet(hash, node, next);
-//								if (!success) {
-//									// failed to set head, so regrab head, undo what we've done, and return to outer loop
-//									partial = false;
-//									node.volatileSetNext(next);
-//									waitingOnDelete.wake(node);
-//									node = getTableUnsafe().writerGetFresh(hash);
-//								}
-//							} else {
-//								success = prev.casNext(node, next);
-//								if (!success) {
-//									// failed to set prev's next to node, so step back to prev.next and break to outer loop
-//									partial = prevPartial;
-//									node.volatileSetNext(next);
-//									waitingOnDelete.wake(node);
-//									node = prev.getNextFresh();
-//								}
-//							}
-//							
-//							if (success) {
-//								node.finishDelete();
-//								waitingOnDelete.wake(node);
-//								removed(node);
-//								totalCounter.decrement(hash);
-//								if (r == null | (++c == removeAtMost)) {
-//									if (!keptNeighbours && (next == null || hash != next.hash || !eq.prefixMatch(find, next)))
-//										uniquePrefixCounter.decrement(hash);
-//									return r == null ? new UniformList<V>(ret.apply(node), 1) : r;
-//								}
-//								r.add(ret.apply(node));
-//								node = next;
-//							}
-//							
-//							break;
-//							
-//						} else {
-//							
-//							// failed to start delete so grab latest value of next and loop 
-//							next = node.getNextFresh();
-//							
-//						}
-//						
-//					}
-//					
-//				} else {
-//					
-//					if (partial)
-//						keptNeighbours = true;
-//					
-//					prev2 = prev;
-//					prev = node;
-//					node = node.getNextStale();
-//					
-//				}
-//			}
-//			
-//		}
-//	}	
-//	
-//	@Override
-//	public <NCmp> boolean removeNode(
-//			Function<? super N, ? extends NCmp> nodePrefixEqFunc, 
-//			HashNodeEquality<? super NCmp, ? super N> nodePrefixEq, N n) {
-//
-//		final int hash = n.hash;
-//		N prev = null, prev2 = null;
-//		N node = getTableUnsafe().writerGetStale(hash) ; // no need to getFresh() as this thread has to have got the node from somewhere
-//		
-//		while (true) {
-//			
-//			if (node == null) {
-//				
-//				return false;
-//				
-//			} else if (node == REHASHING_FLAG | node == DELETING_FLAG | node == DELETED_FLAG | node == REHASHED_FLAG) {
-//				
-//				if (node == REHASHING_FLAG | node == REHASHED_FLAG) {
-//					// this bucket is being rehashed, so simply start from the head again (this will block until this bucket has been grown)
-//					prev2 = prev = null;
-//					node = getTableFresh().writerGetFresh(hash);
-//				} else {
-//					// prev has been or is being deleted, so wait for deletion to complete and then backtrack either to prev2 or to the list head
-//					waitOnDelete(prev);
-//					if (prev2 == null) {
-//						prev2 = prev = null;
-//						node = getTableUnsafe().writerGetFresh(hash) ; // note: could improve by performing a get *un*safe, as we have passed a memory barrier already with the waitOnDelete
-//					} else {
-//						node = prev2.getNextFresh();
-//						prev = prev2;
-//						prev2 = null;
-//					}
-//				}
-//				
-//			} else {
-//
-//				if (node == n) {
-//
-//					// this node is a complete match AND we are replacing complete matches, so swap node for put					
-//					N next = node.getNextStale();
-//					while (true) {
-//						
-//						if (next == REHASHING_FLAG | next == DELETING_FLAG | next == DELETED_FLAG | next == REHASHED_FLAG){
-//							if (next == REHASHING_FLAG | next == REHASHED_FLAG) {
-//								// bucket is being rehashed, so start from the beginning of the outer loop
-//								prev2 = prev = null;
-//								node = getTableFresh().writerGetFresh(hash);
-//							} else {
-//								// node is being deleted, so wait for it to complete, grab prev.next and return to outer loop
-//								waitOnDelete(node);
-//								if (prev == null) {
-//									node = getTableUnsafe().writerGetFresh(hash);
-//								} else {
-//									node = prev.getNextStale();
-//								}
-//							}
-//							break;
-//						}
-//						
-//						if (node.startDelete(next)) {
-//							
-//							boolean success;
-//							if (prev == null) {
-//								success = getTableUnsafe().compareAndSet(hash, node, next);
-//								if (!success) {
-//									// failed to set head, so regrab head, undo what we've done, and return to outer loop
-//									node.volatileSetNext(next);
-//									waitingOnDelete.wake(node);
-//									node = getTableUnsafe().writerGetFresh(hash);
-//								}
-//							} else {
-//								success = prev.casNext(node, next);
-//								if (!success) {
-//									// failed to set prev's next to node, so step back to prev.next and break to outer loop
-//									node.volatileSetNext(next);
-//									waitingOnDelete.wake(node);
-//									node = prev.getNextFresh();
-//								}
-//							}
-//							
-//							if (success) {
-//								node.finishDelete();
-//								waitingOnDelete.wake(node);
-//								removed(node);
-//								totalCounter.decrement(hash);
-//								if ((prev == null || hash != prev.hash || !nodePrefixEq.prefixMatch(nodePrefixEqFunc.apply(n), next)) 
-//								 && (next == null || hash != next.hash || !nodePrefixEq.prefixMatch(nodePrefixEqFunc.apply(n), next)))
-//									uniquePrefixCounter.decrement(hash);
-//								return true;
-//								
-//							}
-//							
-//							break;
-//
-//						} else {						
-//							
-//							// failed to start delete so grab latest value of next and loop 
-//							next = node.getNextFresh();
-//						}						
-//					}
-//					
-//				} else {
-//					
-//					prev2 = prev;
-//					prev = node;
-//					node = node.getNextStale();
-//					
-//				}
-//			}
-//			
-//		}
-//
-//	}
-//
-//	
-//	
-//	// **********************************************************
-//	// METHODS TO QUERY
-//	// **********************************************************	
-//	
-//	@Override
-//	public <NCmp> int count(int hash, NCmp find, 
-//			HashNodeEquality<? super NCmp, ? super N> eq, int countUpTo) {
-//		if (countUpTo < 1)
-//			return 0;
-//		int count = 0;
-//		boolean countedLast = false;
-//		N prev = null, prev2 = null;
-//		N node = getTableFresh().readerGetStale(hash);
-//		boolean partial = false;
-//		while (true) {
-//			
-//			if (node == null) {
-//				
-//				return count;
-//				
-//			} else if (node == REHASHING_FLAG | node == DELETING_FLAG | node == DELETED_FLAG | node == REHASHED_FLAG) {
-//				
-//				if (node == REHASHING_FLAG | node == REHASHED_FLAG) {
-//					// this bucket is being rehashed, so simply start from the head again (this will block until this bucket has been grown)
-//					count = 0;
-//					partial = false;
-//					prev2 = prev = null;
-//					node = getTableFresh().readerGetFresh(hash);
-//				} else {
-//					// prev has been or is being deleted, so wait for deletion to complete and then backtrack either to prev2 or to the list head
-//					waitOnDelete(prev);
-//					if (prev2 == null) {
-//						count = 0;
-//						partial = false;
-//						prev2 = prev = null;
-//						node = getTableUnsafe().readerGetFresh(hash) ; // note: could improve by performing a get *un*safe, as we have passed a memory barrier already with the waitOnDelete
-//					} else {
-//						if (countedLast)
-//							count--;
-//						node = prev2.getNextFresh();
-//						prev = prev2;
-//						prev2 = null;
-//						partial = prev.hash == hash && eq.prefixMatch(find, prev);
-//					}
-//				}
-//				
-//			} else {
-//				
-//				if (partial != (node.hash == hash && eq.prefixMatch(find, node))) {
-//					if (partial) return count;
-//					else  partial = true;
-//				}				
-//				if (partial && eq.suffixMatch(find, node)) {
-//					// this node is a complete match so simply return it
-//					count += 1;
-//					if (countUpTo == count)
-//						return countUpTo;
-//					countedLast = true;
-//				} else {
-//					countedLast = false;
-//				}
-//				
-//				prev2 = prev;
-//				prev = node;
-//				node = node.getNextStale();
-//			}
-//		}
-//	}
-//
-//	@Override
-//	public <NCmp, V> V first(int hash, NCmp find, 
-//			HashNodeEquality<? super NCmp, ? super N> eq, 
-//			Function<? super N, ? extends V> ret) {
-//		N prev = null, prev2 = null;
-//		N node = getTableUnsafe().readerGetFresh(hash);
-//		boolean partial = false;
-//		while (true) {
-//			
-//			if (node == null) {		
-//				
-//				return null;
-//				
-//			} else if (node == REHASHING_FLAG | node == DELETING_FLAG | node == DELETED_FLAG | node == REHASHED_FLAG) {
-//				
-//				if (node == REHASHING_FLAG | node == REHASHED_FLAG) {
-//					// this bucket is being rehashed, so simply start from the head again (this will block until this bucket has been grown)
-//					partial = false;
-//					prev2 = prev = null;
-//					node = getTableFresh().readerGetFresh(hash);
-//				} else {
-//					// prev has been or is being deleted, so wait for deletion to complete and then backtrack either to prev2 or to the list head
-//					waitOnDelete(prev);
-//					if (prev2 == null) {
-//						partial = false;
-//						prev2 = prev = null;
-//						node = getTableUnsafe().readerGetFresh(hash) ; // note: could improve by performing a get *un*safe, as we have passed a memory barrier already with the waitOnDelete
-//					} else {
-//						node = prev2.getNextFresh();
-//						prev = prev2;
-//						prev2 = null;
-//						partial = prev.hash == hash && eq.prefixMatch(find, prev);
-//					}
-//				}
-//				
-//			} else {
-//				
-//				if (partial != (node.hash == hash && eq.prefixMatch(find, node))) {
-//					if (partial) return null ;
-//					else  partial = true;
-//				}				
-//				if (partial && eq.suffixMatch(find, node)) {
-//					// this node is a complete match so simply return it
-//					return ret.apply(node);
-//				}
-//				
-//				prev2 = prev;
-//				prev = node;
-//				node = node.getNextStale();
-//			}
-//		}
-//	}
-//
-//	@Override
-//	public <NCmp, V> List<V> findNow(int hash, NCmp find, 
-//			HashNodeEquality<? super NCmp, ? super N> eq, 
-//			Function<? super N, ? extends V> ret) {
-//		final List<V> r = new ArrayList<V>(6);
-//		N prev = null, prev2 = null;
-//		N node = getTableUnsafe().writerGetFresh(hash);
-//		boolean partial = false;
-//		while (true) {
-//			
-//			if (node == null) {
-//				
-//				return r;
-//				
-//			} else if (node == REHASHING_FLAG | node == DELETING_FLAG | node == DELETED_FLAG | node == REHASHED_FLAG) {
-//				
-//				if (node == REHASHING_FLAG | node == REHASHED_FLAG) {
-//					// this bucket is being rehashed, so simply start from the head again (this will block until this bucket has been grown)
-//					partial = false;
-//					prev2 = prev = null;
-//					node = getTableFresh().readerGetFresh(hash);
-//				} else {
-//					// prev has been or is being deleted, so wait for deletion to complete and then backtrack either to prev2 or to the list head
-//					waitOnDelete(prev);
-//					if (prev2 == null) {
-//						partial = false;
-//						prev2 = prev = null;
-//						node = getTableUnsafe().readerGetFresh(hash) ; // note: could improve by performing a get *un*safe, as we have passed a memory barrier already with the waitOnDelete
-//					} else {
-//						node = prev2.getNextFresh();
-//						prev = prev2;
-//						prev2 = null;
-//						partial = prev.hash == hash && eq.prefixMatch(find, prev);
-//					}
-//				}
-//				
-//			} else {
-//				
-//				if (partial != (node.hash == hash && eq.prefixMatch(find, node))) {
-//					if (partial) return r ;
-//					else  partial = true;
-//				}				
-//				if (partial && eq.suffixMatch(find, node)) {
-//					// this node is a complete match so simply return it
-//					r.add(ret.apply(node));
-//				}
-//				
-//				prev2 = prev;
-//				prev = node;
-//				node = node.getNextStale();
-//				
-//			}
-//		}
-//	}
-//
-//	@Override
-//	public <NCmp, NCmp2, V> Iterator<V> find(
-//			int hash, 
-//			NCmp find, 
-//			HashNodeEquality<? super NCmp, ? super N> findEq,
-//			Function<? super N, ? extends NCmp2> nodeEqualityProj, 
-//			HashNodeEquality<? super NCmp2, ? super N> nodeEq,
-//			Function<? super N, ? extends V> ret) {
-//		return new Search<NCmp, NCmp2, V>(hash, find, findEq, nodeEqualityProj, nodeEq, ret);
-//	}
-//
-//	@Override
-//	public <NCmp, V> Iterator<V> all(
-//			Function<? super N, ? extends NCmp> nodeEqualityProj,
-//			HashNodeEquality<? super NCmp, ? super N> nodeEquality, 
-//			Function<? super N, ? extends V> ret) {
-//		return new EagerAllIterator<NCmp, V>(nodeEqualityProj, nodeEquality, Filters.acceptAll(), ret);
-//	}
-//
-//	@Override
-//	public <NCmp, NCmp2, V> Iterator<V> unique(
-//			Function<? super N, ? extends NCmp> uniquenessEqualityProj,
-//			Equality<? super NCmp> uniquenessEquality, 
-//			Locality duplicateLocality, 
-//			Function<? super N, ? extends NCmp2> nodeEqualityProj,
-//			HashNodeEquality<? super NCmp2, ? super N> nodeEquality, 
-//			Function<? super N, ? extends V> ret) {
-//		final Filter<N> filter = HashStore.Helper.forUniqueness(uniquenessEqualityProj, uniquenessEquality, duplicateLocality);
-//		return new EagerAllIterator<NCmp2, V>(nodeEqualityProj, nodeEquality, filter, ret);
-//	}
-//
-//	@SuppressWarnings("unchecked")
-//	@Override
-//	public <V> Iterator<V> clearAndReturn(Function<? super N, ? extends V> ret) {
-//		while (true) {
-//			final Table<N> table = getTableFresh();
-//			if (table instanceof BlockingTable) {
-//				((BlockingTable<N>) table).waitForNext();
-//			} else {
-//				final BlockingTable<N> tmp = new BlockingTable<N>();
-//				if (casTable(table, tmp)) {
-//					final Table<N> newTable = new RegularTable<N>((N[]) new LockFreeHashNode[table.length()], (int) (loadFactor * table.length()));
-//					if (casTable(tmp, newTable)) {
-//						tmp.wake(newTable);
-//						if (table instanceof RegularTable) {
-//							return new DestroyingIterator(((RegularTable) table).table, ret);
-//						} else {
-//							ResizingTable gt = (ResizingTable) table;
-//							gt.waiting.wakeAll();
-//							gt.rehash(0, false, false, true);
-//							return new DestroyingIterator(gt.newTable, ret);
-//						}
-//					}					
-//				} 
-//			}
-//		}
-//	}
-//
-//	@SuppressWarnings("unchecked")
-//	@Override
-//	public <NCmp> HashStore<N> copy(Function<? super N, ? extends NCmp> nodeEqualityProj, HashNodeEquality<? super NCmp, ? super N> nodeEquality) {
-//		final Iterator<N> iter = new EagerAllIterator<N, N>(null, null, Filters.acceptAll(), Functions.<N>identity());
-//		final LockFreeHashNode<N> head = (LockFreeHashNode<N>) new EmptyNode();
-//		N tail = (N) head;
-//		boolean countUniq = uniquePrefixCounter.on();
-//		int tc = 0;
-//		int uc = 0;
-//		while (iter.hasNext()) {
-//			final N next = iter.next().copy();
-//			if (countUniq & tail != head && (tail.hash == next.hash && nodeEquality.prefixMatch(nodeEqualityProj.apply(next), tail)))
-//				uc++;
-//			tail = tail.nextPtr = next;
-//			tc++;
-//		}
-//		int minCap = (int)(tc / loadFactor);
-//		int cap = 8;
-//		while (cap < minCap)
-//			cap <<= 1;
-//		final N[] table = (N[]) new LockFreeHashNode[cap];
-//		tail = head.nextPtr;
-//		// due to using the EagerAllIterator to build our list we should have discrete batches of
-//		// nodes that all go into the same bucket already in the correct order, however multiple such buckets might need to 
-//		// go into any one target bucket. as such each distinct bucket batch will be inserted at the head of the target bucket
-//		// this maintains the ordering within a given key but permits us to avoid storing more than one bucket tail pointer
-//		N batchTail = null , batchHead = null;
-//		int batchBucket = -1;
-//		final int mask = table.length - 1;
-//		if (tail != null) {
-//			batchHead = batchTail = tail;
-//			batchBucket = tail.hash & mask;
-//			tail = tail.nextPtr;
-//			while (tail != null) {
-//				final N next = tail;
-//				tail = tail.nextPtr;
-//				final int nextBucket = next.hash & mask;
-//				if (batchBucket != nextBucket) {
-//					batchTail.nextPtr = table[batchBucket];
-//					table[batchBucket] = batchHead;
-//					batchHead = batchTail = next;
-//					batchBucket = nextBucket;
-//				} else {
-//					batchTail = batchTail.nextPtr = next;
-//				}
-//			}
-//			batchTail.nextPtr = table[batchBucket];
-//			table[batchBucket] = batchHead;
-//		}
-//		return new LockFreeHashStore<N>(loadFactor, totalCounter.newInstance(tc), uniquePrefixCounter.newInstance(uc), uniquePrefixCounter == growthCounter, table);
-//	}
-//
-//	@Override
-//	public String toString() {
-//		return "{" + Iters.toString(all(null, null, Functions.<N>toString(true)), ", ") + "}";
-//	}
-//
-//	@Override
-//	public int clear() {
-//		return Iters.count(clearAndReturn(Functions.identity()));
-//	}
-//
-//	@Override
-//	public boolean isEmpty() {
-//		if (totalCounter.on())
-//			return totalCounter.getSafe() == 0;
-//		if (uniquePrefixCounter.on())
-//			return uniquePrefixCounter.getSafe() == 0;
-//		return getTableFresh().isEmpty();
-//	}
-//
-//	@Override
-//	public int capacity() {
-//		return getTableFresh().length();
-//	}
-//	
-//	@Override
-//	public int totalCount() {
-//		return totalCounter.getSafe();
-//	}
-//
-//	@Override
-//	public int uniquePrefixCount() {
-//		return uniquePrefixCounter.getSafe();
-//	}
-//
-//	@SuppressWarnings("unchecked")
-//	@Override
-//	public void resize(int size) {
-//        int capacity = 8;
-//        while (capacity < size)
-//        	capacity <<= 1;
-//        while (true) {
-//			final Table<N> table = getTableFresh();
-//        	if (table.length() == capacity)
-//        		return;
-//        	if (table instanceof RegularTable) {
-//				final BlockingTable<N> tmp = new BlockingTable<N>();
-//				if (casTable(table, tmp)) {
-//					final ResizingTable resizingTable;
-//					if (capacity < table.length()) 
-//						resizingTable = new ShrinkingTable((RegularTable<N>) table, capacity);
-//					else if (capacity == table.length() << 1)
-//						resizingTable = new Growing2xTable((RegularTable<N>) table);
-//					else resizingTable = new Growing2ttpNxTable((RegularTable<N>) table, capacity);
-//					setTable(resizingTable);
-//					tmp.wake(resizingTable);
-//					resizingTable.rehash(0, false, true, false);
-//				}
-//        	} else if (table instanceof BlockingTable) {
-//        	} else {
-//        		((ResizingTable) table).waitUntilResized();
-//        	}
-//        }
-//	}
-//
-//	@Override
-//	public void shrink() {
-//        final int totalCount = uniquePrefixCounter.getSafe();
-//        int capacity = 8;
-//        while ((capacity * loadFactor) < totalCount)
-//        	capacity <<= 1;
-//        if (capacity < getTableFresh().length())
-//        	resize(capacity);
-//	}
-//
-//	private void waitOnDelete(final N node) {
-//		if (node.getNextFresh() != DELETING_FLAG)
-//			return;
-//		WaitingOnNode<N> waiting = new WaitingOnNode<N>(Thread.currentThread(), node);
-//		waitingOnDelete.insert(waiting);
-//		while (node.getNextFresh() == DELETING_FLAG)
-//			LockSupport.park();
-//		waiting.remove();
-//	}
-//	
-//	@SuppressWarnings("unchecked")
-//	private void grow() {		
-//		while (growthCounter.getUnsafe() > getTableUnsafe().maxCapacity()) {
-//			final Table<N> table = getTableFresh();
-//			if (growthCounter.getSafe() <= table.maxCapacity())
-//				return;
-//			if (table instanceof RegularTable) {
-//				final BlockingTable<N> tmp = new BlockingTable<N>();
-//				if (casTable(table, tmp)) {
-//					final Growing2xTable growingTable = new Growing2xTable((RegularTable<N>) table);
-//					setTable(growingTable);
-//					tmp.wake(growingTable);
-//					growingTable.rehash(0, false, true, false);
-//				}
-//			} else if (table instanceof BlockingTable) {
-//				((BlockingTable) table).waitForNext();
-//			} else {
-//				((ResizingTable) table).waitUntilResized();
-//			}
-//		}
-//	}
-//	
-//
-//	
-//
-//
-//	// *****************************************
-//	// ITERATORS
-//	// *****************************************
-//	
-//	
-//	
-//	
-//	protected abstract class GeneralIterator<NCmp, V> implements Iterator<V> {
-//
-//		final HashNodeEquality<? super NCmp, ? super N> nodeEquality;
-//		final Function<? super N, ? extends NCmp> nodeEqualityProj;
-//		final Function<? super N, ? extends V> ret;
-//		N prevPred, prevNode, nextPred, nextNode;
-//
-//		public GeneralIterator(
-//				Function<? super N, ? extends NCmp> nodeEqualityProj,
-//				HashNodeEquality<? super NCmp, ? super N> nodeEquality,
-//				Function<? super N, ? extends V> ret) {
-//			this.nodeEquality = nodeEquality;
-//			this.nodeEqualityProj = nodeEqualityProj;
-//			this.ret = ret;
-//		}
-//
-//		@Override
-//		public boolean hasNext() {
-//			return nextNode != null;
-//		}
-//
-//		@Override
-//		public void remove() {
-//			if (prevNode == null)
-//				throw new NoSuchElementException();
-//			N next = prevNode.getNextStale();
-//			while (true) {				
-//				if (next == REHASHING_FLAG | next == DELETED_FLAG | next == DELETING_FLAG | next == REHASHED_FLAG) {
-//					if (next == REHASHING_FLAG | next == REHASHED_FLAG) {
-//						removeNode(nodeEqualityProj, nodeEquality, prevNode);
-//					}
-//					break;
-//				}
-//				if (prevNode.startDelete(next)) {
-//					boolean success;
-//					if (prevPred == null) {
-//						success = getTableUnsafe().compareAndSet(prevNode.hash, prevNode, next);
-//					} else {
-//						success = prevPred.casNext(prevNode, next);
-//					}					
-//					if (success) {
-//						prevNode.finishDelete();
-//						waitingOnDelete.wake(prevNode);
-//						removed(prevNode);
-//						totalCounter.decrement(prevNode.hash);
-//						if (uniquePrefixCounter.on()) {
-//							final NCmp cmp = nodeEqualityProj.apply(prevNode);
-//							if ((prevPred == null || prevNode.hash != prevPred.hash || !nodeEquality.prefixMatch(cmp, next)) 
-//							 && (next == null || prevNode.hash != next.hash || !nodeEquality.prefixMatch(cmp, next)))
-//								uniquePrefixCounter.decrement(prevNode.hash);
-//						}
-//					} else {
-//						prevNode.volatileSetNext(next);
-//						waitingOnDelete.wake(prevNode);
-//						removeNode(nodeEqualityProj, nodeEquality, prevNode);
-//					}
-//					break;
-//				}
-//				next = prevNode.getNextFresh();
-//			}
-//			prevNode = null;
-//			prevPred = null;
-//		}
-//		
-//	}
-//	
-//	protected final class Search<NCmp, NCmp2, V> extends GeneralIterator<NCmp2, V> {
-//
-//		final NCmp find;
-//		final HashNodeEquality<? super NCmp, ? super N> findEquality;
-//		final HashNodeVisits<N, NCmp2> visited;
-//		
-//		public Search(int hash, NCmp find, 
-//				HashNodeEquality<? super NCmp, ? super N> findEquality, 
-//				Function<? super N, ? extends NCmp2> nodeEqualityProj, 
-//				HashNodeEquality<? super NCmp2, ? super N> nodeEquality, 
-//				Function<? super N, ? extends V> ret) {
-//			super(nodeEqualityProj, nodeEquality, ret);
-//			this.find = find;
-//			this.findEquality = findEquality;
-//			this.visited = new HashNodeVisitSeq<N, NCmp2>(hash);
-//			moveNext(hash, null, null, true);
-//		}
-//
-//		@Override
-//		public V next() {
-//			if (nextNode == null)
-//				throw new NoSuchElementException();
-//			prevPred = nextPred;
-//			prevNode = nextNode;
-//			visited.visit(prevNode);
-//			moveNext(prevNode.hash, prevNode, prevPred, false);
-//			return ret.apply(prevNode);
-//		}
-//		
-//		private void moveNext(final int hash, N node, N prev, boolean first) {
-//			final NCmp find = this.find;
-//			boolean partial;
-//			N prev2 = prev;
-//			prev = node;
-//			if (first) {
-//				partial = false;
-//				node = getTableUnsafe().readerGetFresh(hash);
-//			} else {
-//				partial = true;
-//				node = node.getNextStale();
-//			}
-//			while (node != null) {
-//				
-//				if (node == REHASHING_FLAG | node == DELETED_FLAG | node == DELETING_FLAG | node == REHASHED_FLAG) {
-//					
-//					if (node == REHASHING_FLAG | node == REHASHED_FLAG) {
-//						
-//						// this bucket is being rehashed, so we need to start from the head again, however we also have to ensure we skip over nodes we have already visited
-//						// as a result this inner loop performs the same work as the outer loop except with a membership check for visitedness...
-//						prev2 = prev = null;
-//						node = getTableFresh().readerGetFresh(hash);
-//						partial = false;
-//						this.visited.revisit();
-//						
-//						while (node != null) {
-//							
-//							if (node == REHASHING_FLAG | node == DELETED_FLAG | node == DELETING_FLAG | node == REHASHED_FLAG) {
-//								
-//								if (node == REHASHING_FLAG | node == REHASHED_FLAG) {
-//									// this bucket is being rehashed, so simply start from the head again (this will block until this bucket has been grown)
-//									prev2 = prev = null;
-//									node = getTableFresh().readerGetFresh(hash);
-//								} else {
-//									// prev has been or is being deleted, so wait for deletion to complete and then backtrack either to prev2 or to the list head
-//									waitOnDelete(prev);
-//									if (prev2 == null) {
-//										prev2 = prev = null;
-//										node = getTableUnsafe().readerGetFresh(hash);
-//									} else {
-//										node = prev2.getNextFresh();
-//										prev = prev2;
-//										prev2 = null;
-//									}
-//								}
-//								
-//							} else {
-//								
-//								if (partial != (node.hash == hash && findEquality.prefixMatch(find, node))) {
-//									if (partial) {
-//										node = null;
-//										break;
-//									} else {
-//										partial = true;
-//									}
-//								}
-//								
-//								if (partial && findEquality.suffixMatch(find, node)) {
-//									if (!this.visited.haveVisitedAlready(node, nodeEqualityProj, nodeEquality))
-//										break;
-//								}
-//								
-//							}
-//							
-//							prev2 = prev;
-//							prev = node;
-//							node = node.getNextStale();
-//						}
-//						
-//						break;
-//						
-//					} else {
-//						
-//						// prev has been or is being deleted, so wait for deletion to complete and then backtrack either to prev2 or to the most recent non-deleted visited node
-//						waitOnDelete(prev);
-//						if (prev2 == null) {
-//							// cannot backtrack to prev2, so find the last active visited node; if all previously visited nodes have been deleted then backtrack to start of list
-//							prev2 = prev = null;
-//							while (!visited.isEmpty()) {
-//								prev = visited.last();
-//								node = prev.getNextFresh();
-//								if (node == DELETING_FLAG)
-//									waitOnDelete(node);
-//								if (node != DELETED_FLAG)
-//									break;
-//								visited.removeLast();
-//							}
-//							if (visited.isEmpty()) {
-//								prev = null;
-//								node = getTableUnsafe().readerGetFresh(hash);
-//							}
-//						} else {
-//							node = prev2.getNextFresh();
-//							prev = prev2;
-//							prev2 = null;
-//						}
-//						
-//					}
-//					
-//				} else {
-//
-//					if (partial != (node.hash == hash && findEquality.prefixMatch(find, node))) {
-//						if (partial) {
-//							node = null;
-//							break;
-//						} else {
-//							partial = true;
-//						}
-//					}				
-//					if (partial && findEquality.suffixMatch(find, node))
-//						break;
-//					
-//					prev2 = prev;
-//					prev = node;
-//					node = node.getNextStale();
-//				}
-//			}
-//			
-//			this.nextPred = prev;
-//			this.nextNode = node;
-//		}
-//	
-//	}
-//	
-//	protected final class EagerAllIterator<NCmp, V> extends GeneralIterator<NCmp, V> {
-//		
-//		final HashIter32Bit indexIter;
-//		Table<N> tableCache = getTableUnsafe();
-//		final List<N> list = new ArrayList<N>();
-//		final Filter<? super N>  filter;
-//		Iterator<N> current;
-//		
-//		public EagerAllIterator(Function<? super N, ? extends NCmp> nodeEqualityProj, 
-//			HashNodeEquality<? super NCmp, ? super N> nodeEquality,
-//			Filter<? super N> filter,
-//			Function<? super N, ? extends V> ret) {
-//			super(nodeEqualityProj, nodeEquality, ret);
-//			tableCache = getTableUnsafe();
-//			this.filter = filter;
-//			final int bits = Integer.bitCount(tableCache.length() - 1);
-//			indexIter = new HashIter32Bit(bits > 4 ? 4 : bits, bits);
-//			moveNext();
-//		}
-//		
-//		@Override
-//		public V next() {
-//			if (nextNode == null)
-//				throw new NoSuchElementException();
-//			prevPred = nextPred;
-//			prevNode = nextNode;
-//			moveNext();
-//			return ret.apply(prevNode);
-//		}
-//		
-//		private void moveNext() {
-//			if (current == null || !current.hasNext()) {
-//				
-//				final List<N> list = this.list;
-//				list.clear();
-//				N prev2 = null, prev = null;
-//				N node;
-//				if (current == null) 
-//					node = tableCache.writerGetStale(indexIter.current());
-//				else node = null;
-//
-//				while (true) {
-//					
-//					if (node == REHASHING_FLAG | node == DELETED_FLAG | node == DELETING_FLAG | node == REHASHED_FLAG | node == null) {
-//						
-//						if (node == DELETING_FLAG | node == DELETED_FLAG) {
-//							
-//							// prev has been or is being deleted, so wait for deletion to complete and then backtrack either to prev2 or to the most recent non-deleted visited node
-//							waitOnDelete(prev);
-//							if (prev2 == null) {
-//								
-//								prev2 = prev = null;
-//								node = tableCache.writerGetFresh(indexIter.current());
-//
-//							} else {
-//								
-//								node = prev2.getNextFresh();
-//								prev = prev2;
-//								prev2 = null;
-//								
-//							}
-//							
-//						} else if (node == null) {
-//							
-//							if (list.size() != 0) {
-//								current = list.iterator();
-//								this.nextPred = null;
-//								this.nextNode = current.next();
-//								return;
-//							}
-//							if (!indexIter.next()) {
-//								this.nextNode = null;
-//								this.nextPred = null;
-//								return;
-//							}
-//							node = tableCache.writerGetStale(indexIter.current());
-//							
-//						} else {
-//							
-//							// this bucket is being rehashed, so we need to start from the head again. since we visit an entire bucket in one go
-//							// we do not need to save previously visited nodes; the indexIter ensures we do not look at any hash that occured in 
-//							// a previously visited bucket
-//							list.clear();
-//							tableCache = getTableFresh();
-//							indexIter.resize(Integer.bitCount(tableCache.length() - 1));
-//							prev2 = prev = null;
-//							node = tableCache.writerGetFresh(indexIter.current());
-//							
-//						} 
-//						
-//					} else {
-//						
-//						// regular case: we have a non-null node to yield, so simply decide if we have seen it before or not...
-//						
-//						if (!indexIter.haveVisitedAlready(node.hash) && filter.accept(node)) {
-//							list.add(node);
-//						}
-//						
-//						prev2 = prev;
-//						prev = node;
-//						node = node.getNextStale();
-//					}
-//				}
-//				
-//			} else {
-//				
-//				this.nextPred = this.nextNode;
-//				this.nextNode = current.next();
-//				
-//			}
-//		}
-//		
-//	}
-//	
-//	protected final class DestroyingIterator<V> implements Iterator<V> {
-//		
-//		final Function<? super N, ? extends V> ret;
-//		final N[] table;
-//		int i = -1;
-//		Iterator<N> current;
-//		
-//		public DestroyingIterator(N[] table, Function<? super N, ? extends V> ret) {
-//			this.table = table;
-//			this.ret = ret;
-//			nextIterator();
-//		}
-//		
-//		@SuppressWarnings("unchecked")
-//		private void nextIterator() {
-//			final List<N> list = new ArrayList<N>();
-//			N node = null;
-//			
-//			while (true) {
-//				
-//				if (node == REHASHING_FLAG | node == DELETED_FLAG | node == DELETING_FLAG | node == REHASHED_FLAG) {
-//					
-//					throw new IllegalStateException();
-//					
-//				} else if (node == null) {
-//					
-//					if (list.size() != 0) {
-//						
-//						current = list.iterator();
-//						break;
-//						
-//					} else {
-//						
-//						i += 1;
-//						if (i >= table.length) {
-//							current = null;
-//							break;
-//						} else {
-//							node = table[i];
-//							while (!casNodeArray(table, i, node, REHASHED_FLAG)) {
-//								node = table[i];
-//							}
-//						}
-//						
-//					}
-//					
-//				} else {
-//					
-//					final N next = node.getNextFresh();
-//					if (next == DELETING_FLAG) {
-//						waitOnDelete(node);
-//					} else if (next == DELETED_FLAG) {
-//						node = next;
-//					} else if (node.oneStepDelete(next)) {
-//						list.add(node);
-//						node = next;
-//					}
-//					
-//				}
-//			}
-//		}
-//		
-//		public boolean hasNext() {
-//			return current != null;
-//		}
-//		
-//		public V next() {
-//			if (current == null)
-//				throw new NoSuchElementException();
-//			final V r = ret.apply(current.next());
-//			if (!current.hasNext())
-//				nextIterator();
-//			return r;
-//		}
-//
-//		@Override
-//		public void remove() {
-//			// do nothing - already deleted
-//		}
-//		
-//	}
-//	
-//	
-//	
-//	
-//	// *****************************************
-//	// NODE DECLARATION
-//	// *****************************************
-//	
-//	
-//	
-//	public abstract static class LockFreeHashNode<N extends LockFreeHashNode<N>> extends HashNode<N> {
-//		private static final long serialVersionUID = -6236082606699747110L;
-//		N nextPtr;
-//		public LockFreeHashNode(int hash) {
-//			super(hash);
-//		}
-//		public abstract N copy();
-//		final boolean startRehashing(N expect) {
-//			return unsafe.compareAndSwapObject(this, nextPtrOffset, expect, REHASHING_FLAG);
-//		}
-//		final boolean startDelete(N expect) {
-//			return unsafe.compareAndSwapObject(this, nextPtrOffset, expect, DELETING_FLAG);
-//		}
-//		final boolean oneStepDelete(N expect) {
-//			return unsafe.compareAndSwapObject(this, nextPtrOffset, expect, DELETED_FLAG);
-//		}
-//		final void finishDelete() {
-//			unsafe.putObjectVolatile(this, nextPtrOffset, DELETED_FLAG);
-//		}
-//		final boolean casNext(N expect, N upd) {
-//			return unsafe.compareAndSwapObject(this, nextPtrOffset, expect, upd);
-//		}
-//		final N getNextStale() {
-//			return nextPtr;
-//		}
-//		@SuppressWarnings("unchecked")
-//		final N getNextFresh() {
-//			return (N) unsafe.getObjectVolatile(this, nextPtrOffset);
-//		}
-//		final void lazySetNext(N upd) {
-//			unsafe.putOrderedObject(this, nextPtrOffset, upd);
-//		}
-//		final void volatileSetNext(N upd) {
-//			unsafe.putObjectVolatile(this, nextPtrOffset, upd);
-//		}
-//		private static final long nextPtrOffset;
-//		static {
-//			try {
-//				final Field field = LockFreeHashNode.class.getDeclaredField("nextPtr");
-//				nextPtrOffset = unsafe.objectFieldOffset(field);
-//			} catch (Exception e) {
-//				throw new UndeclaredThrowableException(e);
-//			}
-//		}
-//	}
-//	
-//	@SuppressWarnings("rawtypes")
-//	private static final class EmptyNode extends LockFreeHashNode {
-//		private static final long serialVersionUID = -8235849034699744602L;
-//		public EmptyNode() {
-//			super(-1);
-//		}
-//		public EmptyNode copy() {
-//			throw new UnsupportedOperationException();
-//		}
-//	}
-//	
-//	@SuppressWarnings("rawtypes")
-//	// TODO: override serialization methods to throw an exception if they encounter a FlagNode; table can only be serialized when in a stable state
-//	private static final class FlagNode extends LockFreeHashNode {
-//		private static final long serialVersionUID = -8235849034699744602L;
-//		public final String type;
-//		public FlagNode(String type) {
-//			super(-1);
-//			this.type = type;
-//		}
-//		public String toString() {
-//			return type;
-//		}
-//		public FlagNode copy() {
-//			throw new UnsupportedOperationException();
-//		}
-//	}
-//	
-//	private static final FlagNode REHASHING_FLAG = new FlagNode("REHASHING");
-//	private static final FlagNode REHASHED_FLAG = new FlagNode("REHASHED");
-//	private static final FlagNode DELETED_FLAG = new FlagNode("DELETED");
-//	private static final FlagNode DELETING_FLAG = new FlagNode("DELETING");
-//	
-//	
-//	
-//	
-//	// *****************************************
-//	// UNDERLYING TABLE DEFINITIONS
-//	// *****************************************
-//
-//	
-//	
-//	
-//	private static interface Table<N extends LockFreeHashNode<N>> {
-//		public N writerGetFresh(int hash);
-//		public N writerGetStale(int hash);
-//		public N readerGetFresh(int hash);
-//		public N readerGetStale(int hash);
-//		public boolean compareAndSet(int hash, N expect, N update);
-//		public int length();
-//		public int maxCapacity();
-//		public boolean isEmpty();
-//	}
-//	
-//	private static final class RegularTable<N extends LockFreeHashNode<N>> implements Table<N> {
-//		private final N[] table;
-//		private final int mask;
-//		private final int capacity;
-//		public RegularTable(N[] table, int capacity) {
-//			this.table = table;
-//			this.mask = table.length - 1;
-//			this.capacity = capacity;
-//		}
-//		public final N writerGetFresh(int hash) {
-//			return getNodeVolatile(table, hash & mask);
-//		}
-//		public final N writerGetStale(int hash) {
-//			return table[hash & mask];
-//		}
-//		public final N readerGetFresh(int hash) {
-//			return getNodeVolatile(table, hash & mask);
-//		}
-//		public final N readerGetStale(int hash) {
-//			return table[hash & mask];
-//		}
-//		public final boolean compareAndSet(int hash, N expect, N update) {
-//			return unsafe.compareAndSwapObject(table, nodeArrayIndexBaseOffset + nodeArrayIndexScale * (hash & mask), expect, update);
-//		}
-//		public final int maxCapacity() {
-//			return capacity;
-//		}
-//		public final int length() {
-//			return table.length;
-//		}
-//		@Override
-//		public boolean isEmpty() {
-//			for (int i = 0 ; i != table.length ; i++) {
-//				final N head = table[i];
-//				if (head != null)
-//					return false;
-//			}
-//			return true;
-//		}
-//	}	
-//	
-//	@SuppressWarnings("unchecked")
-//	private static final class BlockingTable<N extends LockFreeHashNode<N>> implements Table<N> {
-//		private final CommunalThreadQueue waiting = new CommunalThreadQueue(null);
-//		private volatile Table<N> next = null;
-//		void waitForNext() {
-//			waiting.insert(new CommunalThreadQueue(Thread.currentThread()));
-//			while (next == null)
-//				LockSupport.park();
-//		}
-//		public N writerGetFresh(int hash) {
-//			waitForNext();
-//			return next.writerGetFresh(hash);
-//		}
-//		public N writerGetStale(int hash) {
-//			waitForNext();
-//			return next.writerGetStale(hash);
-//		}
-//		public N readerGetFresh(int hash) {
-//			waitForNext();
-//			return next.readerGetFresh(hash);
-//		}
-//		public N readerGetStale(int hash) {
-//			waitForNext();
-//			return next.readerGetStale(hash);
-//		}
-//		public boolean compareAndSet(int hash, N expect, N update) {
-//			waitForNext();
-//			return false;
-//		}
-//		public int maxCapacity() {
-//			waitForNext();
-//			return next.maxCapacity();
-//		}
-//		public int length() {
-//			waitForNext();
-//			return next.length();
-//		}
-//		public void wake(Table<N> next) {
-//			this.next = next;
-//			waiting.wakeAll();
-//		}
-//		@Override
-//		public boolean isEmpty() {
-//			waitForNext();
-//			return next.isEmpty();
-//		}
-//	}
-//	
-//	private abstract class ResizingTable implements Table<N> {
-//		final N[] oldTable;
-//		final N[] newTable;
-//		final int oldTableMask;
-//		final int newTableMask;
-//		final WaitingOnGrow waiting;
-//		final GrowCompletion completion = new GrowCompletion();
-//		final int capacity;
-//		@SuppressWarnings("unchecked")
-//		public ResizingTable(RegularTable<N> table, int newLength) {
-//			this.oldTable = table.table;
-//			this.oldTableMask = oldTable.length - 1;
-//			this.newTable = (N[]) new LockFreeHashNode[newLength];
-//			this.newTableMask = newTable.length - 1;
-//			this.waiting = new WaitingOnGrow(null, -1);
-//			this.capacity = (int)(newTable.length * loadFactor);
-//		}
-//		public N readerGetFresh(int hash) {
-//			final int oldTableIndex = hash & oldTableMask;
-//			N r = oldTable[oldTableIndex];
-//			if (r != REHASHING_FLAG & r != REHASHED_FLAG)
-//				r = getNodeVolatile(oldTable, oldTableIndex);
-//			if (r == REHASHING_FLAG | r == REHASHED_FLAG) {
-//				if (r == REHASHING_FLAG) {
-//					waitForIndex(oldTableIndex);
-//					return newTable[hash & newTableMask];
-//				} else {
-//					return getNodeVolatile(newTable, hash & newTableMask);
-//				}
-//			}
-//			return r;
-//		}
-//		public N readerGetStale(int hash) {
-//			final int oldTableIndex = hash & oldTableMask;
-//			final N r = oldTable[oldTableIndex];
-//			if (r == REHASHING_FLAG | r == REHASHED_FLAG) {
-//				if (r == REHASHING_FLAG)
-//					waitForIndex(oldTableIndex);
-//				return newTable[hash & newTableMask];
-//			}
-//			return r;
-//		}
-//		public N writerGetFresh(int hash) {
-//			final int oldTableIndex = hash & oldTableMask;
-//			if (oldTable[oldTableIndex] != REHASHED_FLAG) {
-//				rehash(oldTableIndex, true, false, false);
-//				return newTable[hash & newTableMask];
-//			}
-//			return getNodeVolatile(newTable, hash & newTableMask);
-//		}
-//		public N writerGetStale(int hash) {
-//			final int oldTableIndex = hash & oldTableMask;
-//			if (oldTable[oldTableIndex] != REHASHED_FLAG)
-//				rehash(oldTableIndex, true, false, false);
-//			return newTable[hash & newTableMask];
-//		}
-//		void waitForIndex(int oldTableIndex) {
-//			final WaitingOnGrow queue = new WaitingOnGrow(Thread.currentThread(), oldTableIndex);
-//			waiting.insert(queue);
-//			while (getNodeVolatile(oldTable, oldTableIndex) != REHASHED_FLAG)
-//				LockSupport.park();
-//			queue.remove();
-//		}
-//		void waitUntilResized() {
-//			// small possibility somebody will get to here before the first grow() is called; this should only happen on small hash maps however
-//			if (LockFreeHashStore.this.getTableFresh() != this)
-//				return;
-//			final WaitingOnGrow queue = new WaitingOnGrow(Thread.currentThread(), -1);
-//			waiting.insert(queue);
-//			while (LockFreeHashStore.this.getTableFresh() == this)
-//				LockSupport.park();
-//		}
-//		
-//		// compareAndSets don't need to be dealt with so strongly; if a thread is trying to update old and it is mid-grow, the cas will fail;
-//		// if it WAS trying to update old and it has been migrated, it will fail; so can assume that the value we obtain here is the one we were
-//		// looking for, as if not it will simply cause a retry/continue
-//		public boolean compareAndSet(int hash, N expect, N update) {
-//			final int oldTableIndex = hash & oldTableMask;
-//			if (oldTable[oldTableIndex] == REHASHED_FLAG) {
-//				return casNodeArray(newTable, hash & newTableMask, expect, update);
-//			} else {
-//				return false;
-//			}
-//		}
-//		void rehash(int from, boolean needThisIndex, boolean initiator, boolean tryAll) {
-//			if (!completion.startContributing())
-//				return;
-//			boolean returnImmediatelyIfAlreadyHashing = !needThisIndex;
-//			for (int i = from ; i != oldTable.length ; i++) {
-//				N head = startBucket(i, returnImmediatelyIfAlreadyHashing);
-//				if (head != null) {
-//					if (head == REHASHING_FLAG)
-//						head = null;
-//					doBucket(head, i);
-//					finishBucket(i);
-//				} else if (!tryAll) {
-//					break;
-//				}
-//				returnImmediatelyIfAlreadyHashing = true;
-//			}				
-//			if (completion.finishContributing(initiator)) {
-//				// perform a CAS rather than a set because a clear() could have already removed this table before grow completion
-//				LockFreeHashStore.this.casTable(this, new RegularTable<N>(newTable, capacity));
-//				waiting.wakeAll();
-//			}
-//		}
-//		@SuppressWarnings("unchecked")
-//		N startBucket(int oldTableIndex, boolean returnImmediatelyIfAlreadyRehashing) {
-//			N cur;
-//			final long directOldTableIndex = directNodeArrayIndex(oldTableIndex);
-//			while (true) {
-//				cur = getNodeVolatileDirect(oldTable, directOldTableIndex);
-//				if (cur == REHASHING_FLAG | cur == REHASHED_FLAG) {
-//					if (!returnImmediatelyIfAlreadyRehashing)
-//						waitForIndex(oldTableIndex);
-//					return null;
-//				}
-//				if (casNodeArrayDirect(oldTable, directOldTableIndex, cur, REHASHING_FLAG)) {
-//					if (cur == null)
-//						return (N) REHASHING_FLAG;
-//					return cur;
-//				}
-//			}
-//		}
-//		abstract void doBucket(N head, int oldTableIndex);
-//		@SuppressWarnings("unchecked")
-//		void finishBucket(int oldTableIndex) {
-//			lazySetNodeArray(oldTable, oldTableIndex, REHASHED_FLAG);
-//			// wake up waiters
-//			waiting.wake(oldTableIndex);
-//		}
-//		@Override
-//		public int maxCapacity() {
-//			return capacity;
-//		}
-//		@Override
-//		public int length() {
-//			return newTable.length;
-//		}
-//		@Override
-//		public boolean isEmpty() {
-//			return false;
-//		}
-//	}
-//	
-//	private final class Growing2xTable extends ResizingTable {
-//		public Growing2xTable(RegularTable<N> table) {
-//			super(table, table.table.length << 1);
-//		}
-//		@Override
-//		protected void doBucket(N cur, int oldTableIndex) {
-//			final int extrabit = oldTable.length;
-//			N tail1 = null;
-//			N tail2 = null;
-//			
-//			boolean doGetNextSafely = false;
-//			while (cur != null) {
-//				final N next = (doGetNextSafely ? cur.getNextFresh() : cur.getNextStale());
-//				if (next == DELETING_FLAG | next == DELETED_FLAG) {
-//					// cur cannot be actually deleted as CAS operations to the head will fail, and we have set prev's next to RETRY_FLAG,
-//					// as such the delete will be aborted by the deleting thread at which point we can continue; however add ourselves to the
-//					// waiting queue so as to not spin wastefully
-//					waitOnDelete(cur);
-//					doGetNextSafely = false;
-//					continue;
-//				}
-//				if (cur.startRehashing(next)) {
-//					
-//					final int hash = cur.hash;
-//					if ((extrabit & hash) == 0) {
-//						// stays in old bucket
-//						if (tail1 == null) {
-//							tail1 = cur.copy();
-//							lazySetNodeArray(newTable, oldTableIndex, tail1);
-//						} else {
-//							N t = cur.copy();
-//							tail1.lazySetNext(t);
-//							tail1 = t;
-//						}
-//					} else {
-//						// goes in new bucket
-//						if (tail2 == null) {
-//							tail2 = cur.copy();
-//							lazySetNodeArray(newTable, oldTableIndex | extrabit, tail2);
-//						} else {
-//							N t = cur.copy();
-//							tail2.lazySetNext(t);
-//							tail2 = t;
-//						}
-//					}
-//					
-//					cur = next;
-//					doGetNextSafely = false;
-//				} else {
-//					doGetNextSafely = true;
-//				}
-//			}
-//		}
-//	}
-//	
-//	private final class Growing2ttpNxTable extends ResizingTable {
-//   		final int tailShift = Integer.bitCount(oldTableMask);
-//		@SuppressWarnings("unchecked")
-//   		final N[] tails = (N[]) new LockFreeHashNode[newTable.length >> tailShift];
-//		public Growing2ttpNxTable(RegularTable<N> table, int newLength) {
-//			super(table, newLength);
-//		}
-//		@Override
-//		protected void doBucket(N cur, int oldTableIndex) {
-//			final N[] tails = this.tails;
-//			final int tailShift = this.tailShift;
-//			Arrays.fill(tails, null);
-//			
-//			boolean doGetNextSafely = false;
-//			while (cur != null) {
-//				final N next = (doGetNextSafely ? cur.getNextFresh() : cur.getNextStale());
-//				if (next == DELETING_FLAG) {
-//					// cur cannot be actually deleted as CAS operations to the head will fail, and we have set prev's next to RETRY_FLAG,
-//					// as such the delete will be aborted by the deleting thread at which point we can continue; however add ourselves to the
-//					// waiting queue so as to not spin wastefully
-//					waitOnDelete(cur);
-//					doGetNextSafely = false;
-//					continue;
-//				}
-//				if (cur.startRehashing(next)) {
-//					
-//					final int newTableIndex = cur.hash & newTableMask;
-//					final int tail = newTableIndex >> tailShift;
-//					final N copy = cur.copy();
-//					if (tails[tail] == null) {
-//						lazySetNodeArray(newTable, newTableIndex, copy);
-//						tails[tail] = copy;
-//					} else {
-//						tails[tail].lazySetNext(copy);
-//						tails[tail] = copy;
-//					}
-//					
-//					cur = next;
-//					doGetNextSafely = false;
-//				} else {
-//					doGetNextSafely = true;
-//				}
-//			}
-//		}
-//	}
-//	
-//	private final class ShrinkingTable extends ResizingTable {
-//		public ShrinkingTable(RegularTable<N> table, int newLength) {
-//			super(table, newLength);
-//		}
-//		@Override
-//		void doBucket(N head, int oldTableIndex) {
-//			final int newTableIndex = oldTableIndex & newTableMask;
-//			final long newTableIndexDirect = directNodeArrayIndex(newTableIndex);
-//			N prev2 = null, prev = null, node = newTable[newTableIndex];
-//			while (true) {				
-//				if (node == null) {		
-//					
-//					if (prev == null) {						
-//						if (casNodeArrayDirect(newTable, newTableIndexDirect, null, head)) {
-//							return;
-//						}
-//						node = getNodeVolatileDirect(newTable, newTableIndexDirect);
-//					} else {
-//						if (prev.casNext(null, head)) {
-//							return;
-//						}
-//						node = prev.getNextFresh();
-//					}
-//					
-//				} else if (node == REHASHING_FLAG | node == DELETING_FLAG | node == DELETED_FLAG | node == REHASHED_FLAG) {
-//					
-//					if (node == REHASHING_FLAG | node == REHASHED_FLAG) {
-//						throw new IllegalStateException();
-//					} else {
-//						// prev has been or is being deleted, so wait for deletion to complete and then backtrack either to prev2 or to the list head
-//						waitOnDelete(prev);
-//						if (prev2 == null) {							
-//							prev = null;
-//							node = getNodeVolatileDirect(newTable, newTableIndexDirect);
-//						} else {
-//							node = prev2.getNextFresh();
-//							prev = prev2;
-//							prev2 = null;
-//						}
-//					}
-//					
-//				} else {
-//					
-//					prev2 = prev;
-//					prev = node;
-//					node = node.getNextStale();
-//					
-//				}
-//			}
-//		}
-//	}
-//	
-//	
-//	
-//	
-//	// ********************************************
-//	// THREAD WAITING UTILITIES
-//	// ********************************************
-//	
-//	
-//	
-//	
-//	private static final class GrowCompletion {
-//		// false indicates completion is finished
-//		private volatile int contributors = 1;
-//		private static final AtomicIntegerFieldUpdater<GrowCompletion> contributorsUpdater = AtomicIntegerFieldUpdater.newUpdater(GrowCompletion.class, "contributors");
-//		public boolean startContributing() {
-//			while (true) {
-//				final int contr = contributors;
-//				if (contr == 0)
-//					return false;
-//				if (contributorsUpdater.compareAndSet(this, contr, contr + 1))
-//					return true;
-//			}
-//		}
-//		// true indicates this thread is the last thread to finish contributing to the grow, and as such should migrate the new table to a RegularTable object 
-//		public boolean finishContributing(boolean initiator) {
-//			final int delta = initiator ? 2 : 1;
-//			while (true) {
-//				final int contr = contributors;
-//				final int next = contr - delta;
-//				if (contributorsUpdater.compareAndSet(this, contr, next))
-//					return next == 0;
-//			}
-//		}
-//	}
-//
-//	private static final class WaitingOnGrow extends CommunalThreadQueue<WaitingOnGrow> {
-//		private final int oldTableIndex;
-//		public WaitingOnGrow(Thread thread, int oldTableIndex) {
-//			super(thread);
-//			this.oldTableIndex = oldTableIndex;
-//		}
-//		void wake(int tableIndex) {
-//			WaitingOnGrow next = this.next;
-//			while (next != null) {
-//				if (tableIndex == next.oldTableIndex) {
-//					final WaitingOnGrow prev = next;
-//					next = next.next;
-//					prev.wake();
-//				} else {
-//					next = next.next;
-//				}
-//			}
-//		} 
-//	}
-//	
-//	protected static final class WaitingOnNode<N> extends CommunalThreadQueue<WaitingOnNode<N>> {
-//		private final N node;
-//		public WaitingOnNode(Thread thread, N node) {
-//			super(thread);
-//			this.node = node;
-//		}
-//		void wake(N deleted) {
-//			WaitingOnNode<N> next = this.next;
-//			while (next != null) {
-//				if (deleted == next.node) {
-//					final WaitingOnNode<N> prev = next;
-//					next = next.next;
-//					prev.wake();
-//				} else {
-//					next = next.next;
-//				}
-//			}
-//		}		 
-//	}
-//
-//	
-//	
-//	
-//	// *************************************
-//	// COUNTER DECLARATIONS
-//	// *************************************
-//	
-//	
-//	
-//	
-//	protected static interface Counter extends Serializable {
-//		public int getSafe();
-//		public int getUnsafe();
-//		public void increment(int hash);
-//		public void decrement(int hash);
-//		public boolean on();
-//		public Counter newInstance(int count);
-//	}
-//	protected static final class PreciseCounter implements Counter {
-//		private static final long serialVersionUID = -2830009566783179121L;
-//		private int count = 0;
-//		private static final long countOffset;
-//		public int getSafe() {
-//			return unsafe.getIntVolatile(this, countOffset);
-//		}
-//		public int getUnsafe() {
-//			return count;
-//		}
-//		public void increment(int hash) {
-//			{	final int count = this.count;
-//				if (unsafe.compareAndSwapInt(this, countOffset, count, count + 1))
-//					return ;	}
-//			while (true) {
-//				final int count = unsafe.getIntVolatile(this, countOffset);
-//				if (unsafe.compareAndSwapInt(this, countOffset, count, count + 1))
-//					return;
-//			}
-//		}
-//		public void decrement(int hash) {
-//			{	final int count = this.count;
-//				if (unsafe.compareAndSwapInt(this, countOffset, count, count - 1))
-//					return ;	 }
-//			while (true) {
-//				final int count = unsafe.getIntVolatile(this, countOffset);
-//				if (unsafe.compareAndSwapInt(this, countOffset, count, count - 1))
-//					return;
-//			}
-//		}
-//		public boolean on() { return true ; }
-//		static {
-//			try {
-//				final Field field = PreciseCounter.class.getDeclaredField("count");
-//				countOffset = unsafe.objectFieldOffset(field);
-//			} catch (Exception e) {
-//				throw new UndeclaredThrowableException(e);
-//			}
-//		}
-//		@Override
-//		public Counter newInstance(int count) {
-//			final PreciseCounter counter = new PreciseCounter();
-//			counter.count = count;
-//			return counter;
-//		}
-//	}
-//	protected static final class SampledCounter implements Counter {
-//		private static final long serialVersionUID = -6437345273821290811L;
-//		private int count = 0;
-//		private static final long countOffset;
-//		public final int getSafe() {
-//			return unsafe.getIntVolatile(this, countOffset) << 4;
-//		}
-//		public final int getUnsafe() {
-//			return count << 4;
-//		}
-//		public void increment(int hash) {
-//			if ((hash + System.nanoTime() & 31) != 0)
-//				return;
-//			{
-//				final int count = this.count;
-//				if (unsafe.compareAndSwapInt(this, countOffset, count, count + 1))
-//					return;
-//			}
-//			while (true) {
-//				final int count = unsafe.getIntVolatile(this, countOffset);
-//				if (unsafe.compareAndSwapInt(this, countOffset, count, count + 1))
-//					return;
-//			}
-//		}
-//		public void decrement(int hash) {
-//			if ((hash + System.nanoTime() & 31) != 0)
-//				return;
-//			{
-//				final int count = this.count;
-//				if (unsafe.compareAndSwapInt(this, countOffset, count, count - 1))
-//					return;
-//			}
-//			while (true) {
-//				final int count = unsafe.getIntVolatile(this, countOffset);
-//				if (unsafe.compareAndSwapInt(this, countOffset, count, count - 1))
-//					return;
-//			}
-//		}
-//		public boolean on() { return true ; }
-//		@Override
-//		public Counter newInstance(int count) {
-//			final SampledCounter counter = new SampledCounter();
-//			counter.count = Math.max(count >> 4, 1);
-//			return counter;
-//		}
-//
-//		static {
-//			try {
-//				final Field field = SampledCounter.class.getDeclaredField("count");
-//				countOffset = unsafe.objectFieldOffset(field);
-//			} catch (Exception e) {
-//				throw new UndeclaredThrowableException(e);
-//			}
-//		}
-//	}
-//	
-//	protected static final DontCount DONT_COUNT = new DontCount();
-//	protected static final class DontCount implements Counter {
-//		private static final long serialVersionUID = 1633916421321597636L;
-//		public final int getSafe() { return Integer.MIN_VALUE ; }
-//		public final int getUnsafe() { return Integer.MIN_VALUE ; }
-//		public void increment(int hash) { }
-//		public void decrement(int hash) { }
-//		public boolean on() { return false ; }
-//		public Counter newInstance(int count) { return this; }
-//	}
-//	
-//	
-//	
-//	
-//	// *************************************
-//	// "UNSAFE" OPERATIONS
-//	// *************************************
-//	
-//	
-//	
-//	
-//	private static final long tablePtrOffset;
-//    private static final long nodeArrayIndexBaseOffset = unsafe.arrayBaseOffset(LockFreeHashNode[].class);
-//    private static final long nodeArrayIndexScale = unsafe.arrayIndexScale(LockFreeHashNode[].class);
-//	static {
-//		try {
-//			final Field field = LockFreeHashStore.class.getDeclaredField("tablePtr");
-//			tablePtrOffset = unsafe.objectFieldOffset(field);
-//		} catch (Exception e) {
-//			throw new UndeclaredThrowableException(e);
-//		}
-//	}
-//	
-//	private static Unsafe getUnsafe() {
-//		Unsafe unsafe = null;
-//		try {
-//			Class<?> uc = Unsafe.class;
-//			Field[] fields = uc.getDeclaredFields();
-//			for (int i = 0; i < fields.length; i++) {
-//				if (fields[i].getName().equals("theUnsafe")) {
-//					fields[i].setAccessible(true);
-//					unsafe = (Unsafe) fields[i].get(uc);
-//					break;
-//				}
-//			}
-//		} catch (Exception e) {
-//			throw new UndeclaredThrowableException(e);
-//		}
-//		return unsafe;
-//	}
-//	
-//	private final boolean casTable(Table<N> expect, Table<N> update) {
-//		return unsafe.compareAndSwapObject(this, tablePtrOffset, expect, update);
-//	}
-//
-//	private final void setTable(Table<N> update) {
-//		unsafe.putObjectVolatile(this, tablePtrOffset, update);
-//	}
-//	
-//	@SuppressWarnings("unchecked")
-//	private final Table<N> getTableFresh() {
-//		return (Table<N>) unsafe.getObjectVolatile(this, tablePtrOffset);
-//	}
-//	
-//	private final Table<N> getTableUnsafe() {
-//		return tablePtr;
-//	}
-//	
-//	private static final <N extends LockFreeHashNode<N>> boolean casNodeArrayDirect(final N[] arr, final long i, final N expect, final N upd) {
-//		return unsafe.compareAndSwapObject(arr, i, expect, upd);
-//	}	
-//	private static final <N extends LockFreeHashNode<N>> boolean casNodeArray(final N[] arr, final int i, final N expect, final N upd) {
-//		return unsafe.compareAndSwapObject(arr, nodeArrayIndexBaseOffset + (nodeArrayIndexScale * i), expect, upd);
-//	}	
-//	private static final <N extends LockFreeHashNode<N>> void lazySetNodeArray(final N[] arr, final int i, final N upd) {
-//		unsafe.putOrderedObject(arr, nodeArrayIndexBaseOffset + (nodeArrayIndexScale * i), upd);
-//	}
-//	private static final long directNodeArrayIndex(final int i) {
-//		return nodeArrayIndexBaseOffset + (nodeArrayIndexScale * i);
-//	}
-//	@SuppressWarnings("unchecked")
-//	private static final <N extends LockFreeHashNode<N>> N getNodeVolatileDirect(final N[] arr, final long i) {
-//		return (N) unsafe.getObjectVolatile(arr, i);
-//	}
-//	@SuppressWarnings("unchecked")
-//	private static final <N extends LockFreeHashNode<N>> N getNodeVolatile(final N[] arr, final int i) {
-//		return (N) unsafe.getObjectVolatile(arr, nodeArrayIndexBaseOffset + (nodeArrayIndexScale * i));
-//	}
-//
-//	public static Rehasher defaultRehasher() {
-//		return Rehashers.jdkHashmapRehasher();
-//	}
-//
-//}
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.collections.base;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+import org.jjoost.util.Equality;
+import org.jjoost.util.Filter;
+import org.jjoost.util.Function;
+import org.jjoost.util.Functions;
+import org.jjoost.util.Iters;
+import org.jjoost.util.Rehasher;
+import org.jjoost.util.Rehashers;
+import org.jjoost.util.Visitor;
+import org.jjoost.util.concurrent.atomic.AtomicIntArrayUpdater;
+import org.jjoost.util.concurrent.atomic.AtomicIntUpdater;
+import org.jjoost.util.concurrent.atomic.AtomicRefArrayUpdater;
+import org.jjoost.util.concurrent.atomic.AtomicRefUpdater;
+
+/**
+ * A linearisable, non-blocking <code>HashStore</code>.
+ * <p>
+ * Each bucket holds an immutable array of the nodes that hash to it, kept in the same order as
+ * <code>SerialHashStore</code> keeps its chains, and every modification replaces that array with a single
+ * compare-and-set. Readers therefore never block and never observe a partially applied update.
+ * <p>
+ * Growing the table is cooperative and incremental: once the table needs to grow, each modifying operation
+ * migrates a small range of buckets into the new table before proceeding, and any operation that encounters a
+ * migrated bucket is forwarded to the new table. No thread ever waits for another to finish a resize.
+ *
+ * @author b.elliottsmith
+ */
+@SuppressWarnings("unchecked")
+public class LockFreeHashStore<N extends LockFreeHashStore.LockFreeHashNode<N>> implements HashStore<N, LockFreeHashStore<N>> {
+
+	private static final long serialVersionUID = -1578733824843315344L;
+
+	// the number of buckets a thread migrates each time it assists with growing the table
+	private static final int MIGRATION_STRIDE = 16;
+	// counters are striped by thread, with each stripe on its own cache line
+	private static final int COUNTER_SPACING = 16;
+	private static final int COUNTER_STRIPES;
+	static {
+		int stripes = 1;
+		while (stripes < Runtime.getRuntime().availableProcessors() && stripes < 32)
+			stripes <<= 1;
+		COUNTER_STRIPES = stripes;
+	}
+	private static final int TOTAL = 0;
+	private static final int UNIQUE = 1;
+
+	protected final float loadFactor;
+	private final int[] counts;
+	private volatile Table table;
+	// non-null only whilst statistics are being recorded
+	private transient volatile HashStoreCounters counters;
+
+	public LockFreeHashStore(int initialCapacity, float loadFactor) {
+		int capacity = 8;
+		while (capacity < initialCapacity)
+			capacity <<= 1;
+		this.loadFactor = loadFactor;
+		this.table = new Table(new Object[capacity], loadFactor);
+		this.counts = new int[COUNTER_STRIPES * COUNTER_SPACING];
+	}
+
+	private LockFreeHashStore(float loadFactor, Object[] buckets, int totalCount, int uniquePrefixCount) {
+		this.loadFactor = loadFactor;
+		this.table = new Table(buckets, loadFactor);
+		this.counts = new int[COUNTER_STRIPES * COUNTER_SPACING];
+		counts[TOTAL] = totalCount;
+		counts[UNIQUE] = uniquePrefixCount;
+	}
+
+	// **************************************************
+	// PUBLIC METHODS
+	// **************************************************
+
+	@Override
+	public int capacity() {
+		return table.buckets.length;
+	}
+
+	@Override
+	public int totalCount() {
+		return sum(TOTAL);
+	}
+
+	@Override
+	public int uniquePrefixCount() {
+		return sum(UNIQUE);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return totalCount() == 0;
+	}
+
+	@Override
+	public int clear() {
+		final List<N> cleared = new ArrayList<N>();
+		final Table t = table;
+		for (int i = 0 ; i != t.buckets.length ; i++)
+			clear(t, i, cleared);
+		return cleared.size();
+	}
+
+	@Override
+	public <V> Iterator<V> clearAndReturn(Function<? super N, ? extends V> f) {
+		final List<N> cleared = new ArrayList<N>();
+		final Table t = table;
+		for (int i = 0 ; i != t.buckets.length ; i++)
+			clear(t, i, cleared);
+		return Functions.apply(f, cleared.iterator());
+	}
+
+	@Override
+	public <NCmp> LockFreeHashStore<N> copy(Function<? super N, ? extends NCmp> nodeEqualityProj, HashNodeEquality<? super NCmp, ? super N> nodeEquality) {
+		final Table t = table;
+		final Object[] buckets = new Object[t.buckets.length];
+		int total = 0, unique = 0;
+		for (int i = 0 ; i != buckets.length ; i++) {
+			final Object[] orig = resolve(t, i);
+			if (orig != null) {
+				final Object[] copy = orig.clone();
+				final int count = copy.length - 1;
+				for (int j = 0 ; j != count ; j++)
+					copy[j] = ((N) orig[j]).copy();
+				buckets[i] = copy;
+				total += count;
+				unique += groups(copy);
+			}
+		}
+		return new LockFreeHashStore<N>(loadFactor, buckets, total, unique);
+	}
+
+	@Override
+	public String toString() {
+		return "{" + Iters.toString(all(null, null, Functions.<N>toString(true)), ", ") + "}";
+	}
+
+	@Override
+	public void recordStatistics(boolean record) {
+		counters = record ? HashStoreCounters.concurrent() : null;
+	}
+
+	/**
+	 * the chain length histogram is taken bucket by bucket, so is only approximate if the store is being modified
+	 */
+	@Override
+	public HashStoreStatistics statistics() {
+		final Table t = table;
+		long[] chains = new long[8];
+		for (int i = 0 ; i != t.buckets.length ; i++) {
+			final Object[] bucket = resolve(t, i);
+			chains = HashStoreStatistics.increment(chains, bucket == null ? 0 : bucket.length - 1);
+		}
+		return new HashStoreStatistics(totalCount(), uniquePrefixCount(), t.buckets.length, chains, counters);
+	}
+
+	// **************************************************
+	// PUT METHODS
+	// **************************************************
+
+	@Override
+	public <NCmp, V> V put(PutAction action, NCmp find, N put, HashNodeEquality<? super NCmp, ? super N> eq, Function<? super N, ? extends V> ret) {
+		final HashStoreCounters counters = this.counters;
+		assert (action != PutAction.ENSUREANDGET);
+		final int hash = put.hash;
+		final boolean mayReplace = eq.isUnique();
+		Table t = helpGrow();
+		while (true) {
+			t = writable(t, hash);
+			final Object[] buckets = t.buckets;
+			final int i = hash & (buckets.length - 1);
+			final Object cur = BUCKETS.getVolatile(buckets, i);
+			if (!isBucket(cur))
+				continue;
+			final Object[] bucket = (Object[]) cur;
+			final int start = groupStart(bucket, hash, find, eq);
+			if (counters != null)
+				counters.put(probes(start));
+			final Object[] update;
+			N replaced = null;
+			if (start < 0) {
+				if (action == PutAction.REPLACE)
+					return null;
+				update = insert(bucket, -1 - start, put, true);
+			} else {
+				final int end = groupEnd(bucket, start);
+				final int match = mayReplace ? firstMatch(bucket, start, end, find, eq) : -1;
+				if (match < 0) {
+					if (action == PutAction.REPLACE)
+						return null;
+					update = insert(bucket, end, put, false);
+				} else {
+					replaced = (N) bucket[match];
+					if (action == PutAction.IFABSENT)
+						return ret.apply(replaced);
+					update = bucket.clone();
+					update[match] = put;
+				}
+			}
+			if (BUCKETS.compareAndSet(buckets, i, cur, update)) {
+				if (replaced != null) {
+					replaced.deleted = true;
+					return ret.apply(replaced);
+				}
+				inserted(start < 0);
+				return null;
+			}
+			if (counters != null)
+				counters.casRetried();
+		}
+	}
+
+	@Override
+	public <NCmp, V> V put(PutAction action, int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq, HashNodeFactory<? super NCmp, N> factory, Function<? super N, ? extends V> ret) {
+		final HashStoreCounters counters = this.counters;
+		final boolean mayReplace = eq.isUnique();
+		N put = null;
+		Table t = helpGrow();
+		while (true) {
+			t = writable(t, hash);
+			final Object[] buckets = t.buckets;
+			final int i = hash & (buckets.length - 1);
+			final Object cur = BUCKETS.getVolatile(buckets, i);
+			if (!isBucket(cur))
+				continue;
+			final Object[] bucket = (Object[]) cur;
+			final int start = groupStart(bucket, hash, find, eq);
+			if (counters != null)
+				counters.put(probes(start));
+			final int end = start < 0 ? -1 - start : groupEnd(bucket, start);
+			final int match = start >= 0 && mayReplace ? firstMatch(bucket, start, end, find, eq) : -1;
+			final Object[] update;
+			N replaced = null;
+			if (match < 0) {
+				if (action == PutAction.REPLACE)
+					return null;
+				if (put == null)
+					put = factory.makeNode(hash, find);
+				update = insert(bucket, end, put, start < 0);
+			} else {
+				replaced = (N) bucket[match];
+				if (action == PutAction.IFABSENT | action == PutAction.ENSUREANDGET)
+					return ret.apply(replaced);
+				if (put == null)
+					put = factory.makeNode(hash, find);
+				update = bucket.clone();
+				update[match] = put;
+			}
+			if (BUCKETS.compareAndSet(buckets, i, cur, update)) {
+				if (replaced != null) {
+					replaced.deleted = true;
+					return ret.apply(replaced);
+				}
+				inserted(start < 0);
+				return action == PutAction.ENSUREANDGET ? ret.apply(put) : null;
+			}
+			if (counters != null)
+				counters.casRetried();
+		}
+	}
+
+	// **************************************************
+	// REMOVE METHODS
+	// **************************************************
+
+	@Override
+	public <NCmp> int remove(int hash, int removeAtMost, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq) {
+		if (removeAtMost < 1) {
+			if (removeAtMost == 0)
+				return 0;
+			throw new IllegalArgumentException("Cannot remove less than zero elements");
+		}
+		final Object[] removed = removeMatches(hash, removeAtMost, find, eq);
+		return removed == null ? 0 : removed.length;
+	}
+
+	@Override
+	public <NCmp, V> V removeAndReturnFirst(int hash, int removeAtMost, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq, Function<? super N, ? extends V> ret) {
+		if (removeAtMost < 1) {
+			if (removeAtMost == 0)
+				return null;
+			throw new IllegalArgumentException("Cannot remove less than zero elements");
+		}
+		final Object[] removed = removeMatches(hash, removeAtMost, find, eq);
+		return removed == null ? null : ret.apply((N) removed[0]);
+	}
+
+	@Override
+	public <NCmp, V> Iterable<V> removeAndReturn(int hash, int removeAtMost, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq, Function<? super N, ? extends V> ret) {
+		if (removeAtMost < 1) {
+			if (removeAtMost == 0)
+				return Collections.emptyList();
+			throw new IllegalArgumentException("Cannot remove less than zero elements");
+		}
+		final Object[] removed = removeMatches(hash, removeAtMost, find, eq);
+		if (removed == null)
+			return Collections.emptyList();
+		final List<V> r = new ArrayList<V>(removed.length);
+		for (Object n : removed)
+			r.add(ret.apply((N) n));
+		return r;
+	}
+
+	@Override
+	public <NCmp> boolean removeNode(Function<? super N, ? extends NCmp> nodePrefixEqFunc, HashNodeEquality<? super NCmp, ? super N> nodePrefixEq, N n) {
+		final HashStoreCounters counters = this.counters;
+		final int hash = n.hash;
+		final NCmp cmp = nodePrefixEqFunc.apply(n);
+		Table t = helpGrow();
+		while (true) {
+			if (n.deleted)
+				return false;
+			t = writable(t, hash);
+			final Object[] buckets = t.buckets;
+			final int i = hash & (buckets.length - 1);
+			final Object cur = BUCKETS.getVolatile(buckets, i);
+			if (!isBucket(cur))
+				continue;
+			final Object[] bucket = (Object[]) cur;
+			final int start = groupStart(bucket, hash, cmp, nodePrefixEq);
+			if (start < 0)
+				return false;
+			final int end = groupEnd(bucket, start);
+			int index = start;
+			while (index != end && bucket[index] != n)
+				index++;
+			if (index == end)
+				return false;
+			final boolean removedGroup = end - start == 1;
+			final Object[] update = without(bucket, start, end, new Object[] { n }, 1);
+			if (BUCKETS.compareAndSet(buckets, i, cur, update)) {
+				n.deleted = true;
+				count(-1, removedGroup ? -1 : 0);
+				return true;
+			}
+			if (counters != null)
+				counters.casRetried();
+		}
+	}
+
+	// **************************************************
+	// MEMBERSHIP AND RETRIEVAL METHODS
+	// **************************************************
+
+	@Override
+	public <NCmp> int count(int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq, int countUpTo) {
+		final HashStoreCounters counters = this.counters;
+		if (countUpTo < 1)
+			return 0;
+		final Object[] bucket = bucket(hash);
+		final int start = groupStart(bucket, hash, find, eq);
+		if (counters != null)
+			counters.find(probes(start));
+		if (start < 0)
+			return 0;
+		final boolean stopAtOne = eq.isUnique() | countUpTo == 1;
+		final int end = groupEnd(bucket, start);
+		int count = 0;
+		for (int i = start ; i != end ; i++) {
+			if (eq.suffixMatch(find, (N) bucket[i])) {
+				if (stopAtOne)
+					return 1;
+				if (++count == countUpTo)
+					return count;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public <NCmp, V> V first(int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq, Function<? super N, ? extends V> ret) {
+		final HashStoreCounters counters = this.counters;
+		final Object[] bucket = bucket(hash);
+		final int start = groupStart(bucket, hash, find, eq);
+		if (counters != null)
+			counters.find(probes(start));
+		if (start < 0)
+			return null;
+		final int match = firstMatch(bucket, start, groupEnd(bucket, start), find, eq);
+		return match < 0 ? null : ret.apply((N) bucket[match]);
+	}
+
+	@Override
+	public <NCmp, V> List<V> findNow(int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> findEq, Function<? super N, ? extends V> ret) {
+		final Object[] bucket = bucket(hash);
+		final int start = groupStart(bucket, hash, find, findEq);
+		if (start < 0)
+			return Collections.emptyList();
+		final int end = groupEnd(bucket, start);
+		final List<V> r = new ArrayList<V>(end - start);
+		for (int i = start ; i != end ; i++) {
+			final N n = (N) bucket[i];
+			if (findEq.suffixMatch(find, n))
+				r.add(ret.apply(n));
+		}
+		return r;
+	}
+
+	@Override
+	public <NCmp, NCmp2, V> Iterator<V> find(
+			int hash, NCmp find,
+			HashNodeEquality<? super NCmp, ? super N> findEq,
+			Function<? super N, ? extends NCmp2> nodeEqualityProj,
+			HashNodeEquality<? super NCmp2, ? super N> nodeEq,
+			Function<? super N, ? extends V> ret) {
+		return new SearchIterator<NCmp, NCmp2, V>(hash, find, findEq, nodeEqualityProj, nodeEq, ret);
+	}
+
+	@Override
+	public <NCmp, V> Iterator<V> all(
+			Function<? super N, ? extends NCmp> nodeEqualityProj,
+			HashNodeEquality<? super NCmp, ? super N> nodeEquality,
+			Function<? super N, ? extends V> ret) {
+		return new AllIterator<NCmp, V>(nodeEqualityProj, nodeEquality, ret);
+	}
+
+	@Override
+	public <V> Spliterator<V> spliterator(Function<? super N, ? extends V> ret, int characteristics) {
+		return Spliterators.spliteratorUnknownSize(new AllIterator<Object, V>(null, null, ret), characteristics | Spliterator.CONCURRENT);
+	}
+
+	@Override
+	public <V> boolean visit(int partition, int partitions, Function<? super N, ? extends V> ret, Visitor<? super V> visitor) {
+		HashStore.Helper.checkPartition(partition, partitions);
+		final long start = HashStore.Helper.hashPartitionStart(partition, partitions);
+		final long end = HashStore.Helper.hashPartitionStart(partition + 1, partitions);
+		final Table t = table;
+		final long width = HashStore.Helper.bucketWidth(t.buckets.length);
+		for (long rev = start - start % width ; rev < end ; rev += width)
+			if (!visit(t, Integer.reverse((int) rev), start, end, ret, visitor))
+				return false;
+		return true;
+	}
+
+	// visits a snapshot of bucket i, following it into both of its halves in the next table if it has been migrated;
+	// unlike resolve() we need not merge the halves, and each node is visited exactly once however the table grows
+	@SuppressWarnings("unchecked")
+	private <V> boolean visit(Table t, int i, long start, long end, Function<? super N, ? extends V> ret, Visitor<? super V> visitor) {
+		final Object cur = BUCKETS.getVolatile(t.buckets, i);
+		if (cur == FORWARDED)
+			return visit(t.next, i, start, end, ret, visitor) && visit(t.next, i + t.buckets.length, start, end, ret, visitor);
+		final Object[] bucket = cur instanceof Moving ? ((Moving) cur).bucket : (Object[]) cur;
+		if (bucket != null) {
+			for (int j = 0 ; j != bucket.length - 1 ; j++) {
+				final N n = (N) bucket[j];
+				// buckets at either end of the partition are shared with its neighbours
+				if (HashStore.Helper.inHashPartition(n.hash, start, end) && !visitor.visit(ret.apply(n)))
+					return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public <NCmp, NCmp2, V> Iterator<V> unique(
+			Function<? super N, ? extends NCmp> uniquenessEqualityProj,
+			Equality<? super NCmp> uniquenessEquality,
+			Locality duplicateLocality,
+			Function<? super N, ? extends NCmp2> nodeEqualityProj,
+			HashNodeEquality<? super NCmp2, ? super N> nodeEquality,
+			Function<? super N, ? extends V> ret) {
+		final Filter<N> filter = HashStore.Helper.<N, NCmp>forUniqueness(uniquenessEqualityProj, uniquenessEquality, duplicateLocality);
+		return new UniqueIterator<NCmp2, V>(filter, nodeEqualityProj, nodeEquality, ret);
+	}
+
+	// **************************************************
+	// NODE AND TABLE DECLARATIONS
+	// **************************************************
+
+	public static abstract class LockFreeHashNode<N extends LockFreeHashNode<N>> extends HashNode<N> {
+		private static final long serialVersionUID = -6236082606699747110L;
+		volatile boolean deleted;
+		public LockFreeHashNode(int hash) {
+			super(hash);
+		}
+		/**
+		 * @return true if this node has been removed from the store it was inserted into
+		 */
+		protected final boolean isDeleted() {
+			return deleted;
+		}
+	}
+
+	/**
+	 * A bucket array contains the nodes hashing to it followed by a <code>boolean[]</code> marking which of those nodes
+	 * begin a new prefix group, so that the unique prefix count can be maintained when buckets are cleared wholesale.
+	 * A bucket may otherwise contain <code>null</code> (empty), a <code>Moving</code> (being migrated to the next table),
+	 * <code>FORWARDED</code> (migrated), or <code>UNINITIALISED</code> (in a table that is still being populated).
+	 */
+	private static final class Table implements Serializable {
+		private static final long serialVersionUID = -1134873234813958325L;
+		final Object[] buckets;
+		final int loadLimit;
+		volatile Table next;
+		volatile int claimed;
+		volatile int migrated;
+		// when migration to this table began, if we are recording statistics
+		long started;
+		Table(Object[] buckets, float loadFactor) {
+			this.buckets = buckets;
+			this.loadLimit = (int) (buckets.length * loadFactor);
+		}
+	}
+
+	private static final class Moving implements Serializable {
+		private static final long serialVersionUID = 2400216462473547313L;
+		final Object[] bucket;
+		Moving(Object[] bucket) {
+			this.bucket = bucket;
+		}
+	}
+
+	private static final class Flag implements Serializable {
+		private static final long serialVersionUID = 7795693683224766474L;
+		final String type;
+		Flag(String type) {
+			this.type = type;
+		}
+		private Object readResolve() {
+			return type.equals(FORWARDED.type) ? FORWARDED : UNINITIALISED;
+		}
+		public String toString() {
+			return type;
+		}
+	}
+
+	private static final Flag FORWARDED = new Flag("FORWARDED");
+	private static final Flag UNINITIALISED = new Flag("UNINITIALISED");
+
+	private static final AtomicRefArrayUpdater BUCKETS = new AtomicRefArrayUpdater(Object[].class);
+	private static final AtomicIntArrayUpdater COUNTS = new AtomicIntArrayUpdater(int[].class);
+	private static final AtomicIntUpdater CLAIMED = new AtomicIntUpdater(Table.class, "claimed");
+	private static final AtomicIntUpdater MIGRATED = new AtomicIntUpdater(Table.class, "migrated");
+	@SuppressWarnings("rawtypes")
+	private static final AtomicRefUpdater<Table, Table> NEXT = AtomicRefUpdater.get(Table.class, Table.class, "next");
+	@SuppressWarnings("rawtypes")
+	private static final AtomicRefUpdater<LockFreeHashStore, Table> TABLE = AtomicRefUpdater.get(LockFreeHashStore.class, Table.class, "table");
+
+	// **************************************************
+	// ITERATOR CLASSES
+	// **************************************************
+
+	abstract class AbstractIterator<NCmp, V> extends AbstractHashNodeIterator<N, NCmp, V> {
+
+		AbstractIterator(
+				Function<? super N, ? extends NCmp> nodeEqualityProj,
+				HashNodeEquality<? super NCmp, ? super N> nodeEquality,
+				Function<? super N, ? extends V> ret) {
+			super(nodeEqualityProj, nodeEquality, ret);
+		}
+
+		@Override
+		protected final boolean isDeleted(N[] prevs, int prev, N[] nodes, int node) {
+			return nodes[node].deleted;
+		}
+
+		@Override
+		protected final void delete(N[] nodes, int node) {
+			removeNode(nodeEqualityProj, nodeEquality, nodes[node]);
+		}
+
+	}
+
+	final class SearchIterator<NCmp, NCmp2, V> extends AbstractIterator<NCmp2, V> {
+
+		SearchIterator(int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> findEq,
+				Function<? super N, ? extends NCmp2> nodeEqualityProj,
+				HashNodeEquality<? super NCmp2, ? super N> nodeEquality,
+				Function<? super N, ? extends V> ret) {
+			super(nodeEqualityProj, nodeEquality, ret);
+			final Object[] bucket = bucket(hash);
+			final int start = groupStart(bucket, hash, find, findEq);
+			if (start >= 0) {
+				final int end = groupEnd(bucket, start);
+				final N[] matches = (N[]) new LockFreeHashNode<?>[end - start];
+				int count = 0;
+				for (int i = start ; i != end ; i++) {
+					if (findEq.suffixMatch(find, (N) bucket[i]))
+						matches[count++] = (N) bucket[i];
+				}
+				if (count != 0) {
+					this.nextNodes = matches;
+					this.nextNodesCount = count;
+				}
+			}
+		}
+
+		@Override
+		protected boolean accept(N node) {
+			return true;
+		}
+
+		@Override
+		protected void nextHash(N[] prevs, int prev) {
+			nextNodes = null;
+		}
+
+	}
+
+	class AllIterator<NCmp, V> extends AbstractIterator<NCmp, V> {
+
+		final HashIter32Bit iter;
+		// the snapshot of the bucket we are currently visiting, and the position within it of the next node to visit
+		Object[] bucket;
+		int position;
+
+		AllIterator(Function<? super N, ? extends NCmp> nodeEqualityProj,
+				HashNodeEquality<? super NCmp, ? super N> nodeEquality,
+				Function<? super N, ? extends V> ret) {
+			super(nodeEqualityProj, nodeEquality, ret);
+			final int numTotalBits = Integer.bitCount(table.buckets.length - 1);
+			if (numTotalBits >= 8) iter = new HashIter32Bit(8, numTotalBits);
+			else iter = new HashIter32Bit(numTotalBits, numTotalBits);
+			bucket = resolve(table, iter.current());
+			nextHash(null, -1);
+		}
+
+		@Override
+		protected boolean accept(N node) {
+			return true;
+		}
+
+		@Override
+		protected void nextHash(N[] prevs, int prev) {
+			final Table t = table;
+			final int length = t.buckets.length;
+			if (iter.size() != length) {
+				// the table has grown, so re-read our position from the new table; nodes we have already visited will be filtered by iter.visit()
+				iter.resize(Integer.bitCount(length - 1));
+				bucket = resolve(t, iter.current());
+				position = 0;
+			}
+			while (true) {
+				if (bucket != null) {
+					final int count = bucket.length - 1;
+					while (position != count) {
+						final N n = (N) bucket[position];
+						if (iter.visit(n.hash)) {
+							N[] nodes = reuse != null ? reuse : (N[]) new LockFreeHashNode<?>[2];
+							int c = 0;
+							while (position != count && ((N) bucket[position]).hash == n.hash) {
+								if (c == nodes.length)
+									nodes = Arrays.copyOf(nodes, nodes.length << 1);
+								nodes[c++] = (N) bucket[position++];
+							}
+							this.nextNodes = nodes;
+							this.nextNodesCount = c;
+							return;
+						}
+						position++;
+					}
+				}
+				if (!iter.next()) {
+					reuse = nextNodes = null;
+					return;
+				}
+				bucket = resolve(t, iter.current());
+				position = 0;
+			}
+		}
+
+	}
+
+	final class UniqueIterator<NCmp, V> extends AllIterator<NCmp, V> {
+
+		final Filter<N> filter;
+
+		UniqueIterator(
+				Filter<N> filter,
+				Function<? super N, ? extends NCmp> nodeEqualityProj,
+				HashNodeEquality<? super NCmp, ? super N> nodeEquality,
+				Function<? super N, ? extends V> ret) {
+			super(nodeEqualityProj, nodeEquality, ret);
+			this.filter = filter;
+		}
+
+		@Override
+		protected final boolean accept(N node) {
+			return filter.accept(node);
+		}
+
+	}
+
+	// **************************************************
+	// PRIVATE METHODS
+	// **************************************************
+
+	private static boolean isBucket(Object o) {
+		return o == null || o.getClass() == Object[].class;
+	}
+
+	private static boolean[] starts(Object[] bucket) {
+		return (boolean[]) bucket[bucket.length - 1];
+	}
+
+	private static int groups(Object[] bucket) {
+		int groups = 0;
+		for (boolean start : starts(bucket))
+			if (start)
+				groups++;
+		return groups;
+	}
+
+	// returns the index of the first node in the bucket matching the prefix of find, or (-(insertion point) - 1) if there is none
+	private <NCmp> int groupStart(Object[] bucket, int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq) {
+		if (bucket == null)
+			return -1;
+		final int reverse = Integer.reverse(hash);
+		final int count = bucket.length - 1;
+		for (int i = 0 ; i != count ; i++) {
+			final N n = (N) bucket[i];
+			if (n.hash == hash && eq.prefixMatch(find, n))
+				return i;
+			if (HashNode.insertBefore(reverse, n))
+				return -1 - i;
+		}
+		return -1 - count;
+	}
+
+	// the number of nodes groupStart examined to produce the provided result
+	private static int probes(int start) {
+		return start < 0 ? -start : start + 1;
+	}
+
+	// returns the index following the last node in the group beginning at start
+	private static int groupEnd(Object[] bucket, int start) {
+		final boolean[] starts = starts(bucket);
+		int i = start + 1;
+		while (i != starts.length && !starts[i])
+			i++;
+		return i;
+	}
+
+	private <NCmp> int firstMatch(Object[] bucket, int start, int end, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq) {
+		for (int i = start ; i != end ; i++)
+			if (eq.suffixMatch(find, (N) bucket[i]))
+				return i;
+		return -1;
+	}
+
+	private static Object[] insert(Object[] bucket, int index, Object node, boolean newGroup) {
+		if (bucket == null)
+			return new Object[] { node, new boolean[] { true } };
+		final boolean[] starts = starts(bucket);
+		final Object[] r = new Object[bucket.length + 1];
+		final boolean[] rstarts = new boolean[starts.length + 1];
+		System.arraycopy(bucket, 0, r, 0, index);
+		System.arraycopy(starts, 0, rstarts, 0, index);
+		r[index] = node;
+		rstarts[index] = newGroup;
+		System.arraycopy(bucket, index, r, index + 1, starts.length - index);
+		System.arraycopy(starts, index, rstarts, index + 1, starts.length - index);
+		r[r.length - 1] = rstarts;
+		return r;
+	}
+
+	// returns a copy of the bucket without the provided nodes, all of which must occur in the group occupying [start, end)
+	private static Object[] without(Object[] bucket, int start, int end, Object[] removed, int removedCount) {
+		if (bucket.length - 1 == removedCount)
+			return null;
+		final boolean[] starts = starts(bucket);
+		final Object[] r = new Object[bucket.length - removedCount];
+		final boolean[] rstarts = new boolean[starts.length - removedCount];
+		System.arraycopy(bucket, 0, r, 0, start);
+		System.arraycopy(starts, 0, rstarts, 0, start);
+		int j = start, k = 0;
+		for (int i = start ; i != end ; i++) {
+			if (k != removedCount && bucket[i] == removed[k]) {
+				k++;
+			} else {
+				// the first surviving member of the group becomes its start
+				rstarts[j] = j == start;
+				r[j++] = bucket[i];
+			}
+		}
+		System.arraycopy(bucket, end, r, j, starts.length - end);
+		System.arraycopy(starts, end, rstarts, j, starts.length - end);
+		r[r.length - 1] = rstarts;
+		return r;
+	}
+
+	private <NCmp> Object[] removeMatches(int hash, int removeAtMost, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq) {
+		final HashStoreCounters counters = this.counters;
+		final int limit = eq.isUnique() ? 1 : removeAtMost;
+		Table t = helpGrow();
+		while (true) {
+			t = writable(t, hash);
+			final Object[] buckets = t.buckets;
+			final int i = hash & (buckets.length - 1);
+			final Object cur = BUCKETS.getVolatile(buckets, i);
+			if (!isBucket(cur))
+				continue;
+			final Object[] bucket = (Object[]) cur;
+			final int start = groupStart(bucket, hash, find, eq);
+			if (start < 0)
+				return null;
+			final int end = groupEnd(bucket, start);
+			Object[] removed = null;
+			int count = 0;
+			for (int j = start ; j != end && count != limit ; j++) {
+				if (eq.suffixMatch(find, (N) bucket[j])) {
+					if (removed == null)
+						removed = new Object[Math.min(end - start, limit)];
+					removed[count++] = bucket[j];
+				}
+			}
+			if (count == 0)
+				return null;
+			final boolean removedGroup = count == end - start;
+			if (BUCKETS.compareAndSet(buckets, i, cur, without(bucket, start, end, removed, count))) {
+				for (int j = 0 ; j != count ; j++)
+					((N) removed[j]).deleted = true;
+				count(-count, removedGroup ? -1 : 0);
+				return count == removed.length ? removed : Arrays.copyOf(removed, count);
+			}
+			if (counters != null)
+				counters.casRetried();
+		}
+	}
+
+	// returns the contents of the bucket the provided hash currently maps to
+	private Object[] bucket(int hash) {
+		Table t = table;
+		while (true) {
+			final int i = hash & (t.buckets.length - 1);
+			final Object cur = BUCKETS.getVolatile(t.buckets, i);
+			if (cur == FORWARDED)
+				t = t.next;
+			else if (cur instanceof Moving)
+				return ((Moving) cur).bucket;
+			else
+				return (Object[]) cur;
+		}
+	}
+
+	// returns the contents of bucket i of the provided table, merging the contents of the buckets it has been migrated to if necessary
+	private Object[] resolve(Table t, int i) {
+		final Object cur = BUCKETS.getVolatile(t.buckets, i);
+		if (cur == FORWARDED) {
+			final Object[] a = resolve(t.next, i);
+			final Object[] b = resolve(t.next, i + t.buckets.length);
+			if (a == null)
+				return b;
+			if (b == null)
+				return a;
+			final boolean[] as = starts(a), bs = starts(b);
+			final Object[] r = new Object[a.length + b.length - 1];
+			final boolean[] rs = new boolean[as.length + bs.length];
+			int ai = 0, bi = 0, ri = 0;
+			while (ai != as.length & bi != bs.length) {
+				// groups are never split between the two halves, so we can merge node by node
+				if (HashNode.insertBefore((HashNode<?>) b[bi], (HashNode<?>) a[ai])) {
+					rs[ri] = bs[bi];
+					r[ri++] = b[bi++];
+				} else {
+					rs[ri] = as[ai];
+					r[ri++] = a[ai++];
+				}
+			}
+			while (ai != as.length) {
+				rs[ri] = as[ai];
+				r[ri++] = a[ai++];
+			}
+			while (bi != bs.length) {
+				rs[ri] = bs[bi];
+				r[ri++] = b[bi++];
+			}
+			r[ri] = rs;
+			return r;
+		} else if (cur instanceof Moving) {
+			return ((Moving) cur).bucket;
+		}
+		return (Object[]) cur;
+	}
+
+	// returns the table in which the bucket for the provided hash may currently be modified, helping to migrate it if necessary
+	private Table writable(Table t, int hash) {
+		while (true) {
+			final int i = hash & (t.buckets.length - 1);
+			final Object cur = BUCKETS.getVolatile(t.buckets, i);
+			if (cur == FORWARDED)
+				t = t.next;
+			else if (cur instanceof Moving)
+				migrated(t, i, (Moving) cur);
+			else
+				return t;
+		}
+	}
+
+	private void clear(Table t, int i, List<N> cleared) {
+		while (true) {
+			final Object cur = BUCKETS.getVolatile(t.buckets, i);
+			if (cur == null) {
+				return;
+			} else if (cur == FORWARDED) {
+				clear(t.next, i, cleared);
+				clear(t.next, i + t.buckets.length, cleared);
+				return;
+			} else if (cur instanceof Moving) {
+				migrated(t, i, (Moving) cur);
+			} else if (BUCKETS.compareAndSet(t.buckets, i, cur, null)) {
+				final Object[] bucket = (Object[]) cur;
+				final int count = bucket.length - 1;
+				for (int j = 0 ; j != count ; j++) {
+					final N n = (N) bucket[j];
+					n.deleted = true;
+					cleared.add(n);
+				}
+				count(-count, -groups(bucket));
+				return;
+			}
+		}
+	}
+
+	private void inserted(boolean newGroup) {
+		final HashStoreCounters counters = this.counters;
+		count(1, newGroup ? 1 : 0);
+		if (newGroup) {
+			final Table t = table;
+			if (t.next == null && sum(UNIQUE) > t.loadLimit) {
+				final Object[] buckets = new Object[t.buckets.length << 1];
+				Arrays.fill(buckets, UNINITIALISED);
+				final Table next = new Table(buckets, loadFactor);
+				if (counters != null)
+					next.started = System.nanoTime();
+				NEXT.compareAndSet(t, null, next);
+				helpGrow();
+			}
+		}
+	}
+
+	// if the table is growing, migrates the next unclaimed range of buckets; returns the table to begin any operation with
+	private Table helpGrow() {
+		final HashStoreCounters counters = this.counters;
+		final Table t = table;
+		final Table next = t.next;
+		if (next == null)
+			return t;
+		final int length = t.buckets.length;
+		if (t.claimed >= length)
+			return t;
+		final int start = CLAIMED.addAndGet(t, MIGRATION_STRIDE);
+		if (start >= length)
+			return t;
+		final int end = Math.min(length, start + MIGRATION_STRIDE);
+		for (int i = start ; i != end ; i++) {
+			while (true) {
+				final Object cur = BUCKETS.getVolatile(t.buckets, i);
+				if (cur == FORWARDED) {
+					break;
+				} else if (cur instanceof Moving) {
+					migrated(t, i, (Moving) cur);
+					break;
+				} else {
+					final Moving moving = new Moving((Object[]) cur);
+					if (BUCKETS.compareAndSet(t.buckets, i, cur, moving)) {
+						migrated(t, i, moving);
+						break;
+					}
+				}
+			}
+		}
+		// addAndGet returns the prior value
+		if (MIGRATED.addAndGet(t, end - start) + (end - start) == length) {
+			if (TABLE.compareAndSet(this, t, next) && counters != null && next.started != 0)
+				counters.resized(System.nanoTime() - next.started);
+		}
+		return t;
+	}
+
+	// completes the migration of bucket i, which may be performed by any number of threads concurrently
+	private static void migrated(Table t, int i, Moving moving) {
+		final Table next = t.next;
+		final int length = t.buckets.length;
+		final Object[] bucket = moving.bucket;
+		Object[] lo = null, hi = null;
+		if (bucket != null) {
+			final boolean[] starts = starts(bucket);
+			int locount = 0;
+			for (int j = 0 ; j != starts.length ; j++)
+				if ((((HashNode<?>) bucket[j]).hash & length) == 0)
+					locount++;
+			final boolean[] lostarts = new boolean[locount], histarts = new boolean[starts.length - locount];
+			if (locount != 0)
+				lo = new Object[locount + 1];
+			if (locount != starts.length)
+				hi = new Object[starts.length - locount + 1];
+			int loi = 0, hii = 0;
+			for (int j = 0 ; j != starts.length ; j++) {
+				// every member of a group shares its hash, so groups are never split between the two halves
+				if ((((HashNode<?>) bucket[j]).hash & length) == 0) {
+					lostarts[loi] = starts[j];
+					lo[loi++] = bucket[j];
+				} else {
+					histarts[hii] = starts[j];
+					hi[hii++] = bucket[j];
+				}
+			}
+			if (lo != null)
+				lo[locount] = lostarts;
+			if (hi != null)
+				hi[hii] = histarts;
+		}
+		BUCKETS.compareAndSet(next.buckets, i, UNINITIALISED, lo);
+		BUCKETS.compareAndSet(next.buckets, i + length, UNINITIALISED, hi);
+		BUCKETS.compareAndSet(t.buckets, i, moving, FORWARDED);
+	}
+
+	private void count(int total, int unique) {
+		final int stripe = ((int) Thread.currentThread().getId() & (COUNTER_STRIPES - 1)) * COUNTER_SPACING;
+		if (total != 0)
+			COUNTS.addAndGet(counts, stripe + TOTAL, total);
+		if (unique != 0)
+			COUNTS.addAndGet(counts, stripe + UNIQUE, unique);
+	}
+
+	private int sum(int offset) {
+		int sum = 0;
+		for (int i = offset ; i < counts.length ; i += COUNTER_SPACING)
+			sum += COUNTS.getVolatile(counts, i);
+		// counts are updated after the modification they record, so may transiently be negative
+		return sum < 0 ? 0 : sum;
+	}
+
+	public static Rehasher defaultRehasher() {
+		return Rehashers.jdkConcurrentHashmapRehasher();
+	}
+
+}
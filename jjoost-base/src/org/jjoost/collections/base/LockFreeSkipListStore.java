@@ -0,0 +1,1149 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.base;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.jjoost.collections.base.HashStore.PutAction;
+import org.jjoost.util.FilterPartialOrder;
+import org.jjoost.util.Function;
+import org.jjoost.util.Functions;
+import org.jjoost.util.concurrent.atomic.AtomicIntArrayUpdater;
+import org.jjoost.util.concurrent.atomic.AtomicLongUpdater;
+import org.jjoost.util.concurrent.atomic.AtomicRefUpdater;
+import org.jjoost.util.tuples.ImmutablePair;
+import org.jjoost.util.tuples.Pair;
+
+/**
+ * A thread safe, lock free <code>OrderedStore</code> implemented as a skip list, using the same algorithm as
+ * <code>java.util.concurrent.ConcurrentSkipListMap</code>: nodes are deleted by clearing their item and are then unlinked
+ * from the base list with the help of a marker node, and index levels are maintained lazily on top of it. The index is
+ * also used to skip runs of nodes a <code>FilterPartialOrder</code> cannot accept, so that sparse range visits need
+ * not walk every node between the items they return.
+ * <p>
+ * Nodes are ordered by the <code>Comparator</code> provided on construction, with which every comparator provided to
+ * its methods must be consistent. If the store is unique <code>put()</code> replaces any node it compares equal to,
+ * otherwise equal nodes are ordered by a sequence number taken on insertion, so that they are visited in the order
+ * they were inserted. Iterators and range visits are weakly consistent, and <code>count()</code> is exact only when 
+ * the store is not being modified.
+ * 
+ * @author b.elliottsmith
+ */
+public class LockFreeSkipListStore<N> implements OrderedStore<N, LockFreeSkipListStore<N>> {
+
+	private static final long serialVersionUID = 2917493066290465106L;
+
+	// counters are striped by thread, with each stripe on its own cache line
+	private static final int COUNTER_SPACING = 16;
+	private static final int COUNTER_STRIPES;
+	static {
+		int stripes = 1;
+		while (stripes < Runtime.getRuntime().availableProcessors() && stripes < 32)
+			stripes <<= 1;
+		COUNTER_STRIPES = stripes;
+	}
+	// the item of the node heading the base list, which is never visited
+	private static final Object BASE_HEADER = new Object();
+	
+	protected final Comparator<? super N> order;
+	protected final boolean unique;
+	
+	private transient volatile HeadIndex<N> head;
+	private transient volatile long seq;
+	private transient int[] counts;
+	
+	public LockFreeSkipListStore(Comparator<? super N> order, boolean unique) {
+		this.order = order;
+		this.unique = unique;
+		init();
+	}
+	
+	private void init() {
+		head = new HeadIndex<N>(new Node<N>(null, 0, BASE_HEADER, null), null, null, 1);
+		counts = new int[COUNTER_STRIPES * COUNTER_SPACING];
+	}
+	
+	public Comparator<? super N> order() {
+		return order;
+	}
+	
+	public boolean isUnique() {
+		return unique;
+	}
+	
+	/**
+	 * Returns the number of index levels above the base list
+	 */
+	public int height() {
+		return head.level;
+	}
+	
+	// *************************************
+	// LIST AND INDEX NODES
+	// *************************************
+	
+	static final class Node<N> {
+		// the node as first inserted, which fixes our position in the list; null for markers and the base header
+		final N key;
+		// orders nodes the comparator considers equal, in a non-unique store
+		final long seq;
+		// the node currently stored, which may differ from key in a unique store; null once deleted, or this if a marker
+		volatile Object item;
+		volatile Node<N> next;
+		Node(N key, long seq, Object item, Node<N> next) {
+			this.key = key;
+			this.seq = seq;
+			this.item = item;
+			this.next = next;
+		}
+		// a marker, appended to a deleted node so that no node can be inserted after it whilst it is unlinked
+		Node(Node<N> next) {
+			this.key = null;
+			this.seq = 0;
+			this.item = this;
+			this.next = next;
+		}
+		boolean casItem(Object expect, Object update) {
+			return ITEM.compareAndSet(this, expect, update);
+		}
+		boolean casNext(Node<N> expect, Node<N> update) {
+			return NEXT.compareAndSet(this, expect, update);
+		}
+		// helps unlink this deleted node from its predecessor b, given its successor f
+		void helpDelete(Node<N> b, Node<N> f) {
+			if (f == next && this == b.next) {
+				if (f == null || f.item != f)
+					casNext(f, new Node<N>(f));
+				else
+					b.casNext(this, f.next);
+			}
+		}
+	}
+	
+	static class Index<N> {
+		final Node<N> node;
+		final Index<N> down;
+		volatile Index<N> right;
+		Index(Node<N> node, Index<N> down, Index<N> right) {
+			this.node = node;
+			this.down = down;
+			this.right = right;
+		}
+		boolean link(Index<N> succ, Index<N> insert) {
+			insert.right = succ;
+			return node.item != null && RIGHT.compareAndSet(this, succ, insert);
+		}
+		boolean unlink(Index<N> succ) {
+			return node.item != null && RIGHT.compareAndSet(this, succ, succ.right);
+		}
+	}
+	
+	static final class HeadIndex<N> extends Index<N> {
+		final int level;
+		HeadIndex(Node<N> node, Index<N> down, Index<N> right, int level) {
+			super(node, down, right);
+			this.level = level;
+		}
+	}
+	
+	@SuppressWarnings("rawtypes")
+	private static final AtomicRefUpdater<Node, Object> ITEM = AtomicRefUpdater.get(Node.class, Object.class, "item");
+	@SuppressWarnings("rawtypes")
+	private static final AtomicRefUpdater<Node, Node> NEXT = AtomicRefUpdater.get(Node.class, Node.class, "next");
+	@SuppressWarnings("rawtypes")
+	private static final AtomicRefUpdater<Index, Index> RIGHT = AtomicRefUpdater.get(Index.class, Index.class, "right");
+	@SuppressWarnings("rawtypes")
+	private static final AtomicRefUpdater<LockFreeSkipListStore, HeadIndex> HEAD = AtomicRefUpdater.get(LockFreeSkipListStore.class, HeadIndex.class, "head");
+	private static final AtomicLongUpdater SEQ = new AtomicLongUpdater(LockFreeSkipListStore.class, "seq");
+	private static final AtomicIntArrayUpdater COUNTS = new AtomicIntArrayUpdater(int[].class);
+	
+	// *************************************
+	// PROBES
+	// *************************************
+	
+	/**
+	 * A position in the list, which must follow some prefix of its nodes and precede the remainder
+	 */
+	private static abstract class Probe<N> {
+		abstract boolean follows(Node<N> n);
+	}
+	
+	private static final class Search<N, C> extends Probe<N> {
+		final C c;
+		final Function<? super N, ? extends C> f;
+		final Comparator<? super C> cmp;
+		// true if the probe follows the nodes it compares equal to, false if it precedes them
+		final boolean after;
+		Search(C c, Function<? super N, ? extends C> f, Comparator<? super C> cmp, boolean after) {
+			this.c = c;
+			this.f = f;
+			this.cmp = cmp;
+			this.after = after;
+		}
+		@Override
+		boolean follows(Node<N> n) {
+			final int r = cmp.compare(c, f.apply(n.key));
+			return r > 0 || (after && r == 0);
+		}
+		boolean matches(Node<N> n) {
+			return cmp.compare(c, f.apply(n.key)) == 0;
+		}
+	}
+	
+	// immediately precedes (or follows) the provided node
+	private final class At extends Probe<N> {
+		final Node<N> at;
+		final boolean after;
+		At(Node<N> at, boolean after) {
+			this.at = at;
+			this.after = after;
+		}
+		@Override
+		boolean follows(Node<N> n) {
+			int r = order.compare(at.key, n.key);
+			if (r == 0 && !unique)
+				r = Long.compare(at.seq, n.seq);
+			return r > 0 || (after && r == 0);
+		}
+	}
+	
+	// follows every node
+	private static final class End<N> extends Probe<N> {
+		@Override
+		boolean follows(Node<N> n) {
+			return true;
+		}
+	}
+	
+	// precedes the first node the pruner may accept anything up to
+	private static final class FromStart<N> extends Probe<N> {
+		final Pruner<N, ?> pruner;
+		FromStart(Pruner<N, ?> pruner) {
+			this.pruner = pruner;
+		}
+		@Override
+		boolean follows(Node<N> n) {
+			return !pruner.mayAccept(null, n.key);
+		}
+	}
+	
+	// follows the last node the pruner may accept anything from
+	private static final class ToEnd<N> extends Probe<N> {
+		final Pruner<N, ?> pruner;
+		ToEnd(Pruner<N, ?> pruner) {
+			this.pruner = pruner;
+		}
+		@Override
+		boolean follows(Node<N> n) {
+			return pruner.mayAccept(n.key, null);
+		}
+	}
+	
+	// precedes the first node after the provided one such that the pruner may accept anything between the two
+	private final class SkipForward extends Probe<N> {
+		final At at;
+		final Pruner<N, ?> pruner;
+		SkipForward(Node<N> at, Pruner<N, ?> pruner) {
+			this.at = new At(at, true);
+			this.pruner = pruner;
+		}
+		@Override
+		boolean follows(Node<N> n) {
+			return at.follows(n) || !pruner.mayAccept(at.at.key, n.key);
+		}
+	}
+	
+	// follows the last node before the provided one such that the pruner (if any) may accept anything between the two
+	private final class SkipBack extends Probe<N> {
+		final At at;
+		final Pruner<N, ?> pruner;
+		SkipBack(Node<N> at, Pruner<N, ?> pruner) {
+			this.at = new At(at, false);
+			this.pruner = pruner;
+		}
+		@Override
+		boolean follows(Node<N> n) {
+			return at.follows(n) && (pruner == null || pruner.mayAccept(n.key, at.at.key));
+		}
+	}
+	
+	private static final class Pruner<N, F> {
+		final FilterPartialOrder<F> filter;
+		final Function<? super N, ? extends F> f;
+		final Comparator<? super F> cmp;
+		Pruner(FilterPartialOrder<F> filter, Function<? super N, ? extends F> f, Comparator<? super F> cmp) {
+			this.filter = filter;
+			this.f = f;
+			this.cmp = cmp;
+		}
+		private F apply(N n) {
+			return n == null ? null : f.apply(n);
+		}
+		boolean accept(N n) {
+			return filter.accept(apply(n), cmp);
+		}
+		// bounds are inclusive, and null if unbounded
+		boolean mayAccept(N lb, N ub) {
+			return filter.mayAcceptBetween(apply(lb), true, apply(ub), true, cmp);
+		}
+	}
+	
+	private <C> Search<N, C> search(C c, Function<? super N, ? extends C> f, Comparator<? super C> cmp, boolean after) {
+		return new Search<N, C>(c, f, cmp, after);
+	}
+	
+	private <F> Pruner<N, F> pruner(FilterPartialOrder<F> filter, Function<? super N, ? extends F> f, Comparator<? super F> cmp) {
+		return new Pruner<N, F>(filter, f, cmp);
+	}
+	
+	// *************************************
+	// TRAVERSAL
+	// *************************************
+	
+	// returns the last node the index shows the probe to follow, or the base header if there is none, unlinking the index of any deleted nodes we pass 
+	private Node<N> findPredecessor(Probe<N> probe) {
+		for (;;) {
+			retry: for (Index<N> q = head, r = q.right, d ;;) {
+				if (r != null) {
+					final Node<N> n = r.node;
+					if (n.item == null) {
+						if (!q.unlink(r))
+							break retry;
+						r = q.right;
+						continue;
+					}
+					if (probe.follows(n)) {
+						q = r;
+						r = r.right;
+						continue;
+					}
+				}
+				if ((d = q.down) == null)
+					return q.node;
+				q = d;
+				r = d.right;
+			}
+		}
+	}
+	
+	// returns the first node the probe does not follow, or null if there is none
+	private Node<N> first(Probe<N> probe) {
+		for (;;) {
+			for (Node<N> b = findPredecessor(probe), n = b.next ;;) {
+				if (n == null)
+					return null;
+				final Node<N> f = n.next;
+				if (n != b.next)
+					break;
+				final Object v = n.item;
+				if (v == null) {
+					n.helpDelete(b, f);
+					break;
+				}
+				if (b.item == null || v == n)
+					break;
+				if (!probe.follows(n))
+					return n;
+				b = n;
+				n = f;
+			}
+		}
+	}
+	
+	// returns the last node the probe follows, or null if there is none
+	private Node<N> last(Probe<N> probe) {
+		for (;;) {
+			for (Node<N> b = findPredecessor(probe), n = b.next ;;) {
+				if (n == null)
+					return b.item == BASE_HEADER ? null : b;
+				final Node<N> f = n.next;
+				if (n != b.next)
+					break;
+				final Object v = n.item;
+				if (v == null) {
+					n.helpDelete(b, f);
+					break;
+				}
+				if (b.item == null || v == n)
+					break;
+				if (!probe.follows(n))
+					return b.item == BASE_HEADER ? null : b;
+				b = n;
+				n = f;
+			}
+		}
+	}
+	
+	// the next live node after n, which need not itself be live 
+	private static <N> Node<N> successor(Node<N> n) {
+		for (Node<N> m = n.next ; m != null ; m = m.next) {
+			final Object v = m.item;
+			if (v != null && v != m)
+				return m;
+		}
+		return null;
+	}
+	
+	private Node<N> predecessor(Node<N> n) {
+		return last(new At(n, false));
+	}
+	
+	/**
+	 * A live node, along with the item we read from it, since it may be replaced or deleted once we have found it
+	 */
+	private final class Cursor {
+		
+		Node<N> node;
+		N item;
+		
+		// positions on the first live node at or after n that the pruner accepts, returning false if there is none
+		@SuppressWarnings("unchecked")
+		boolean forward(Node<N> n, Pruner<N, ?> pruner) {
+			while (n != null) {
+				final Object v = n.item;
+				if (v == null || v == n) {
+					n = successor(n);
+					continue;
+				}
+				if (pruner == null || pruner.accept((N) v)) {
+					node = n;
+					item = (N) v;
+					return true;
+				}
+				if (!pruner.mayAccept(n.key, null))
+					return false;
+				Node<N> m = successor(n);
+				// if the next node cannot be accepted either, use the index to skip the rest of the run
+				if (m != null && !pruner.mayAccept(n.key, m.key))
+					m = first(new SkipForward(n, pruner));
+				n = m;
+			}
+			return false;
+		}
+		
+		// positions on the last live node at or before n that the pruner accepts, returning false if there is none
+		@SuppressWarnings("unchecked")
+		boolean back(Node<N> n, Pruner<N, ?> pruner) {
+			while (n != null) {
+				final Object v = n.item;
+				if (v != null && v != n) {
+					if (pruner == null || pruner.accept((N) v)) {
+						node = n;
+						item = (N) v;
+						return true;
+					}
+					if (!pruner.mayAccept(null, n.key))
+						return false;
+				}
+				n = last(new SkipBack(n, pruner));
+			}
+			return false;
+		}
+		
+	}
+	
+	private boolean start(Cursor c, boolean asc, Pruner<N, ?> pruner) {
+		if (asc)
+			return c.forward(pruner == null ? successor(head.node) : first(new FromStart<N>(pruner)), pruner);
+		return c.back(last(pruner == null ? new End<N>() : new ToEnd<N>(pruner)), pruner);
+	}
+	
+	// *************************************
+	// MODIFICATION
+	// *************************************
+	
+	private long nextSeq() {
+		return unique ? 0 : SEQ.incrementAndGet(this);
+	}
+	
+	private <C, V> V put(PutAction action, Search<N, C> find, N put, Function<? super C, N> factory, Function<? super N, ? extends V> ret) {
+		Node<N> z = null;
+		final Probe<N> probe;
+		if (!unique && action == PutAction.PUT) {
+			if (put == null)
+				put = factory.apply(find.c);
+			z = new Node<N>(put, nextSeq(), put, null);
+			probe = new At(z, false);
+		} else {
+			probe = find;
+		}
+		outer: for (;;) {
+			for (Node<N> b = findPredecessor(probe), n = b.next ;;) {
+				if (n != null) {
+					final Node<N> f = n.next;
+					if (n != b.next)
+						break;
+					final Object v = n.item;
+					if (v == null) {
+						n.helpDelete(b, f);
+						break;
+					}
+					if (b.item == null || v == n)
+						break;
+					if (probe.follows(n)) {
+						b = n;
+						n = f;
+						continue;
+					}
+					if (probe == find && find.matches(n)) {
+						if (action == PutAction.PUT) {
+							if (put == null)
+								put = factory.apply(find.c);
+							if (!n.casItem(v, put))
+								break;
+						}
+						@SuppressWarnings("unchecked")
+						final N existing = (N) v;
+						return ret.apply(existing);
+					}
+				}
+				if (z == null) {
+					if (put == null)
+						put = factory.apply(find.c);
+					z = new Node<N>(put, nextSeq(), put, n);
+				} else {
+					z.next = n;
+				}
+				if (!b.casNext(n, z))
+					break;
+				break outer;
+			}
+		}
+		count(1);
+		index(z);
+		return action == PutAction.ENSUREANDGET ? ret.apply(put) : null;
+	}
+	
+	// maybe adds a tower of index nodes for the newly inserted node z
+	private void index(Node<N> z) {
+		int rnd = ThreadLocalRandom.current().nextInt();
+		// a quarter of nodes are indexed, and each index level contains half of those nodes in the level below it
+		if ((rnd & 0x80000001) != 0)
+			return;
+		int level = 1, max;
+		while (((rnd >>>= 1) & 1) != 0)
+			level++;
+		Index<N> idx = null;
+		HeadIndex<N> h = head;
+		if (level <= (max = h.level)) {
+			for (int i = 1 ; i <= level ; i++)
+				idx = new Index<N>(z, idx, null);
+		} else {
+			// grow by at most one level at a time
+			level = max + 1;
+			@SuppressWarnings("unchecked")
+			final Index<N>[] idxs = (Index<N>[]) new Index<?>[level + 1];
+			for (int i = 1 ; i <= level ; i++)
+				idxs[i] = idx = new Index<N>(z, idx, null);
+			for (;;) {
+				h = head;
+				final int oldLevel = h.level;
+				if (level <= oldLevel)
+					break;
+				HeadIndex<N> newh = h;
+				for (int j = oldLevel + 1 ; j <= level ; j++)
+					newh = new HeadIndex<N>(h.node, newh, idxs[j], j);
+				if (HEAD.compareAndSet(this, h, newh)) {
+					h = newh;
+					idx = idxs[level = oldLevel];
+					break;
+				}
+			}
+		}
+		// link the tower in from the top down
+		final Probe<N> probe = new At(z, false);
+		splice: for (int insertionLevel = level ;;) {
+			int j = h.level;
+			for (Index<N> q = h, r = q.right, t = idx ;;) {
+				if (q == null || t == null)
+					break splice;
+				if (r != null) {
+					final Node<N> n = r.node;
+					if (n.item == null) {
+						if (!q.unlink(r))
+							break;
+						r = q.right;
+						continue;
+					}
+					if (probe.follows(n)) {
+						q = r;
+						r = r.right;
+						continue;
+					}
+				}
+				if (j == insertionLevel) {
+					if (!q.link(r, t))
+						break;
+					if (t.node.item == null) {
+						// deleted whilst we were linking it, so ensure our index is removed
+						clean(z);
+						break splice;
+					}
+					if (--insertionLevel == 0)
+						break splice;
+				}
+				if (--j >= insertionLevel && j < level)
+					t = t.down;
+				q = q.down;
+				r = q.right;
+			}
+		}
+	}
+	
+	// deletes the node if it still holds the item v, returning true if it did
+	private boolean delete(Node<N> n, Object v) {
+		if (!n.casItem(v, null))
+			return false;
+		count(-1);
+		clean(n);
+		return true;
+	}
+	
+	// ensures the deleted node n is unlinked from the list and the index
+	private void clean(Node<N> n) {
+		final Probe<N> probe = new At(n, false);
+		for (;;) {
+			for (Node<N> b = findPredecessor(probe), m = b.next ;;) {
+				if (m == null)
+					return;
+				final Node<N> f = m.next;
+				if (m != b.next)
+					break;
+				final Object v = m.item;
+				if (v == null) {
+					m.helpDelete(b, f);
+					break;
+				}
+				if (b.item == null || v == m)
+					break;
+				// a live node at or after our position, so we have been unlinked
+				if (!probe.follows(m))
+					return;
+				b = m;
+				m = f;
+			}
+		}
+	}
+	
+	private void count(int delta) {
+		final int stripe = ((int) Thread.currentThread().getId() & (COUNTER_STRIPES - 1)) * COUNTER_SPACING;
+		COUNTS.addAndGet(counts, stripe, delta);
+	}
+	
+	// appends the nodes, which must be in order, to this store, which must be empty and not yet shared
+	private void build(List<? extends N> nodes) {
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		// the last index in each level, with level i at tails[i - 1]
+		final List<Index<N>> tails = new ArrayList<Index<N>>();
+		HeadIndex<N> h = head;
+		tails.add(h);
+		Node<N> tail = h.node;
+		// numbered as nextSeq() would have numbered them, so that the next duplicate put is numbered after them all
+		long seq = 0;
+		for (N n : nodes) {
+			final Node<N> z = new Node<N>(n, unique ? 0 : seq++, n, null);
+			tail.next = z;
+			tail = z;
+			int rnd = random.nextInt();
+			if ((rnd & 0x80000001) != 0)
+				continue;
+			int level = 1;
+			while (((rnd >>>= 1) & 1) != 0)
+				level++;
+			if (level > h.level) {
+				level = h.level + 1;
+				h = new HeadIndex<N>(h.node, h, null, level);
+				tails.add(h);
+			}
+			Index<N> down = null;
+			for (int i = 0 ; i < level ; i++) {
+				final Index<N> idx = new Index<N>(z, down, null);
+				tails.get(i).right = idx;
+				tails.set(i, idx);
+				down = idx;
+			}
+		}
+		this.seq = seq;
+		counts[0] = nodes.size();
+		head = h;
+	}
+	
+	private LockFreeSkipListStore<N> create(List<? extends N> nodes) {
+		final LockFreeSkipListStore<N> r = new LockFreeSkipListStore<N>(order, unique);
+		r.build(nodes);
+		return r;
+	}
+	
+	// *************************************
+	// ITERATION
+	// *************************************
+	
+	private final class Iter<V> implements Iterator<V> {
+		
+		private final Cursor c = new Cursor();
+		private final boolean asc;
+		// if non-null, only those nodes the probe matches are visited
+		private final Search<N, ?> range;
+		private final Pruner<N, ?> pruner;
+		private final Function<? super N, ? extends V> ret;
+		private boolean hasNext;
+		private Node<N> prev;
+		private N prevItem;
+		
+		// if range is non-null it must follow the nodes it matches if, and only if, we are visiting them in descending order
+		private Iter(boolean asc, Search<N, ?> range, Pruner<N, ?> pruner, Function<? super N, ? extends V> ret) {
+			this.asc = asc;
+			this.range = range;
+			this.pruner = pruner;
+			this.ret = ret;
+			if (range == null)
+				hasNext = start(c, asc, pruner);
+			else
+				hasNext = check(asc ? c.forward(first(range), pruner) : c.back(last(range), pruner));
+		}
+		
+		private boolean check(boolean found) {
+			return found && (range == null || range.matches(c.node));
+		}
+		
+		@Override
+		public boolean hasNext() {
+			return hasNext;
+		}
+		
+		@Override
+		public V next() {
+			if (!hasNext)
+				throw new NoSuchElementException();
+			prev = c.node;
+			prevItem = c.item;
+			hasNext = check(asc ? c.forward(successor(prev), pruner) : c.back(predecessor(prev), pruner));
+			return ret.apply(prevItem);
+		}
+		
+		@Override
+		public void remove() {
+			if (prev == null)
+				throw new IllegalStateException();
+			delete(prev, prevItem);
+			prev = null;
+		}
+		
+	}
+	
+	// *************************************
+	// STORE METHODS
+	// *************************************
+	
+	@Override
+	public int count() {
+		int sum = 0;
+		for (int i = 0 ; i < counts.length ; i += COUNTER_SPACING)
+			sum += COUNTS.getVolatile(counts, i);
+		// counts are updated after the modification they record, so may transiently be negative
+		return sum < 0 ? 0 : sum;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return successor(head.node) == null;
+	}
+
+	@Override
+	public int clear() {
+		int removed = 0;
+		final Cursor c = new Cursor();
+		for (Node<N> n = successor(head.node) ; c.forward(n, null) ; n = successor(c.node))
+			if (delete(c.node, c.item))
+				removed++;
+		return removed;
+	}
+
+	@Override
+	public <V> Iterator<V> clearAndReturn(Function<? super N, ? extends V> f) {
+		final List<V> removed = new ArrayList<V>();
+		final Cursor c = new Cursor();
+		for (Node<N> n = successor(head.node) ; c.forward(n, null) ; n = successor(c.node))
+			if (delete(c.node, c.item))
+				removed.add(f.apply(c.item));
+		return removed.iterator();
+	}
+
+	@Override
+	public <V> Iterator<V> iterator(boolean asc, Function<? super N, V> ret) {
+		return new Iter<V>(asc, null, null, ret);
+	}
+
+	@Override
+	public <C> LockFreeSkipListStore<N> copy(FilterPartialOrder<C> filter, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder) {
+		final List<N> copy = new ArrayList<N>();
+		for (Iterator<N> iter = new Iter<N>(true, null, pruner(filter, cmpF, cmp), Functions.<N>identity()) ; iter.hasNext() ; )
+			copy.add(iter.next());
+		return create(copy);
+	}
+
+	@Override
+	public boolean removeExistingNode(N n) {
+		final Search<N, N> probe = search(n, Functions.<N>identity(), order, false);
+		for (Node<N> m = first(probe) ; m != null && probe.matches(m) ; m = successor(m))
+			if (m.item == n && delete(m, n))
+				return true;
+		return false;
+	}
+	
+	// *************************************
+	// INSERTION METHODS
+	// *************************************
+	
+	@Override
+	public <V> V put(N put, Function<? super N, ? extends V> ret) {
+		return put(PutAction.PUT, search(put, Functions.<N>identity(), order, false), put, null, ret);
+	}
+
+	@Override
+	public <C, V> V put(C find, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, Function<? super C, N> factory, Function<? super N, ? extends V> ret) {
+		return put(PutAction.PUT, search(find, cmpF, cmp, false), null, factory, ret);
+	}
+
+	@Override
+	public <V> V putIfAbsent(N put, Function<? super N, ? extends V> ret) {
+		return put(PutAction.IFABSENT, search(put, Functions.<N>identity(), order, false), put, null, ret);
+	}
+
+	@Override
+	public <C, V> V putIfAbsent(C put, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, Function<? super C, N> factory, Function<? super N, ? extends V> ret) {
+		return put(PutAction.IFABSENT, search(put, cmpF, cmp, false), null, factory, ret);
+	}
+
+	@Override
+	public <C, V> V ensureAndGet(C put, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, Function<? super C, N> factory, Function<? super N, ? extends V> ret) {
+		return put(PutAction.ENSUREANDGET, search(put, cmpF, cmp, false), null, factory, ret);
+	}
+
+	// *************************************
+	// METHODS ON ITEMS WITHOUT FILTERS
+	// *************************************
+	
+	// positions the cursor on the first node matching the probe, returning false if there is none
+	private boolean seekFirst(Cursor c, Search<N, ?> probe) {
+		return c.forward(first(probe), null) && probe.matches(c.node);
+	}
+	
+	@Override
+	public <C> boolean contains(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder) {
+		return seekFirst(new Cursor(), search(c, cmpF, cmp, false));
+	}
+
+	@Override
+	public <C> int count(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder) {
+		final Cursor cur = new Cursor();
+		final Search<N, C> probe = search(c, cmpF, cmp, false);
+		if (!seekFirst(cur, probe))
+			return 0;
+		if (cmpIsTotalOrder)
+			return 1;
+		int count = 1;
+		while (cur.forward(successor(cur.node), null) && probe.matches(cur.node))
+			count++;
+		return count;
+	}
+
+	@Override
+	public <C, V> V first(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends V> ret) {
+		final Cursor cur = new Cursor();
+		return seekFirst(cur, search(c, cmpF, cmp, false)) ? ret.apply(cur.item) : null;
+	}
+
+	@Override
+	public <C, V> V last(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends V> ret) {
+		final Cursor cur = new Cursor();
+		final Search<N, C> probe = search(c, cmpF, cmp, true);
+		return cur.back(last(probe), null) && probe.matches(cur.node) ? ret.apply(cur.item) : null;
+	}
+
+	@Override
+	public <C, V> Iterator<V> all(boolean asc, C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends V> ret) {
+		return new Iter<V>(asc, search(c, cmpF, cmp, !asc), null, ret);
+	}
+
+	@Override
+	public <C, F, V> Pair<V, V> boundaries(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends V> ret) {
+		return boundaries(c, cmpF, cmp, null, ret);
+	}
+
+	@Override
+	public <C, V> V ceil(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends V> ret) {
+		return find(c, cmpF, cmp, false, true, null, ret);
+	}
+
+	@Override
+	public <C, V> V floor(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends V> ret) {
+		return find(c, cmpF, cmp, true, false, null, ret);
+	}
+
+	@Override
+	public <C, V> V lesser(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends V> ret) {
+		return find(c, cmpF, cmp, false, false, null, ret);
+	}
+
+	@Override
+	public <C, V> V greater(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends V> ret) {
+		return find(c, cmpF, cmp, true, true, null, ret);
+	}
+	
+	// finds the nearest node the pruner accepts that sorts after (if asc) or before the probe, or is equal to it if (asc != after)
+	private <C, V> V find(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean after, boolean asc, Pruner<N, ?> pruner, Function<? super N, ? extends V> ret) {
+		final Cursor cur = new Cursor();
+		final Search<N, C> probe = search(c, cmpF, cmp, after);
+		final boolean found = asc ? cur.forward(first(probe), pruner) : cur.back(last(probe), pruner);
+		return found ? ret.apply(cur.item) : null;
+	}
+	
+	private <C, V> Pair<V, V> boundaries(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, Pruner<N, ?> pruner, Function<? super N, ? extends V> ret) {
+		final Cursor ceil = new Cursor(), floor = new Cursor();
+		final Search<N, C> lb = search(c, cmpF, cmp, false);
+		final boolean hasCeil = ceil.forward(first(lb), pruner);
+		final boolean hasFloor = floor.back(last(search(c, cmpF, cmp, true)), pruner);
+		final V first = hasCeil ? ret.apply(ceil.item) : null;
+		final V second = hasFloor ? ret.apply(floor.item) : null;
+		if (hasCeil && lb.matches(ceil.node))
+			return new ImmutablePair<V, V>(first, second);
+		return new ImmutablePair<V, V>(second, first);
+	}
+
+	@Override
+	public <C> int remove(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder) {
+		final Cursor cur = new Cursor();
+		final Search<N, C> probe = search(c, cmpF, cmp, false);
+		int removed = 0;
+		for (Node<N> n = first(probe) ; cur.forward(n, null) && probe.matches(cur.node) ; ) {
+			// if we fail to delete the node it has either been deleted or its item replaced, so we look at it again
+			if (delete(cur.node, cur.item)) {
+				removed++;
+				if (cmpIsTotalOrder)
+					break;
+				n = successor(cur.node);
+			} else {
+				n = cur.node;
+			}
+		}
+		return removed;
+	}
+
+	@Override
+	public <C, V> Iterable<V> removeAndReturn(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends V> ret) {
+		final Cursor cur = new Cursor();
+		final Search<N, C> probe = search(c, cmpF, cmp, false);
+		final List<V> removed = new ArrayList<V>();
+		for (Node<N> n = first(probe) ; cur.forward(n, null) && probe.matches(cur.node) ; ) {
+			if (delete(cur.node, cur.item)) {
+				removed.add(ret.apply(cur.item));
+				if (cmpIsTotalOrder)
+					break;
+				n = successor(cur.node);
+			} else {
+				n = cur.node;
+			}
+		}
+		return removed;
+	}
+
+	@Override
+	public <C, V> V removeAndReturnFirst(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends V> ret) {
+		final Cursor cur = new Cursor();
+		final Search<N, C> probe = search(c, cmpF, cmp, false);
+		for (Node<N> n = first(probe) ; cur.forward(n, null) && probe.matches(cur.node) ; n = cur.node)
+			if (delete(cur.node, cur.item))
+				return ret.apply(cur.item);
+		return null;
+	}
+
+	// *************************************
+	// METHODS ON VALUES WITH FILTERS
+	// *************************************
+	
+	@Override
+	public <C, F, V> Pair<V, V> boundaries(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends F> filterF, Comparator<? super F> filterCmp, boolean filterCmpIsTotalOrder, FilterPartialOrder<F> filter, Function<? super N, ? extends V> ret) {
+		return boundaries(c, cmpF, cmp, pruner(filter, filterF, filterCmp), ret);
+	}
+
+	@Override
+	public <C, F, V> V ceil(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends F> filterF, Comparator<? super F> filterCmp, boolean filterCmpIsTotalOrder, FilterPartialOrder<F> filter, Function<? super N, ? extends V> ret) {
+		return find(c, cmpF, cmp, false, true, pruner(filter, filterF, filterCmp), ret);
+	}
+
+	@Override
+	public <C, F, V> V floor(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends F> filterF, Comparator<? super F> filterCmp, boolean filterCmpIsTotalOrder, FilterPartialOrder<F> filter, Function<? super N, ? extends V> ret) {
+		return find(c, cmpF, cmp, true, false, pruner(filter, filterF, filterCmp), ret);
+	}
+
+	@Override
+	public <C, F, V> V lesser(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends F> filterF, Comparator<? super F> filterCmp, boolean filterCmpIsTotalOrder, FilterPartialOrder<F> filter, Function<? super N, ? extends V> ret) {
+		return find(c, cmpF, cmp, false, false, pruner(filter, filterF, filterCmp), ret);
+	}
+
+	@Override
+	public <C, F, V> V greater(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends F> filterF, Comparator<? super F> filterCmp, boolean filterCmpIsTotalOrder, FilterPartialOrder<F> filter, Function<? super N, ? extends V> ret) {
+		return find(c, cmpF, cmp, true, true, pruner(filter, filterF, filterCmp), ret);
+	}
+
+	// *************************************
+	// METHODS ON FILTERS
+	// *************************************
+	
+	@Override
+	public <C> boolean contains(FilterPartialOrder<C> filter, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder) {
+		return start(new Cursor(), true, pruner(filter, cmpF, cmp));
+	}
+
+	@Override
+	public <C> int count(FilterPartialOrder<C> filter, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder) {
+		final Cursor c = new Cursor();
+		final Pruner<N, C> pruner = pruner(filter, cmpF, cmp);
+		int count = 0;
+		for (boolean found = start(c, true, pruner) ; found ; found = c.forward(successor(c.node), pruner))
+			count++;
+		return count;
+	}
+
+	@Override
+	public <C, V> V first(FilterPartialOrder<C> filter, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends V> ret) {
+		final Cursor c = new Cursor();
+		return start(c, true, pruner(filter, cmpF, cmp)) ? ret.apply(c.item) : null;
+	}
+
+	@Override
+	public <C, V> V last(FilterPartialOrder<C> filter, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends V> ret) {
+		final Cursor c = new Cursor();
+		return start(c, false, pruner(filter, cmpF, cmp)) ? ret.apply(c.item) : null;
+	}
+
+	@Override
+	public <C, V> Iterator<V> all(boolean asc, FilterPartialOrder<C> filter, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends V> ret) {
+		return new Iter<V>(asc, null, pruner(filter, cmpF, cmp), ret);
+	}
+
+	@Override
+	public <C> int remove(FilterPartialOrder<C> filter, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder) {
+		final Cursor c = new Cursor();
+		final Pruner<N, C> pruner = pruner(filter, cmpF, cmp);
+		int removed = 0;
+		for (boolean found = start(c, true, pruner) ; found ; found = c.forward(successor(c.node), pruner))
+			if (delete(c.node, c.item))
+				removed++;
+		return removed;
+	}
+
+	@Override
+	public <C> LockFreeSkipListStore<N> removeAndReturn(FilterPartialOrder<C> filter, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder) {
+		final Cursor c = new Cursor();
+		final Pruner<N, C> pruner = pruner(filter, cmpF, cmp);
+		final List<N> removed = new ArrayList<N>();
+		for (boolean found = start(c, true, pruner) ; found ; found = c.forward(successor(c.node), pruner))
+			if (delete(c.node, c.item))
+				removed.add(c.item);
+		return create(removed);
+	}
+
+	@Override
+	public <C, V> V removeAndReturnFirst(FilterPartialOrder<C> filter, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends V> ret) {
+		final Cursor c = new Cursor();
+		final Pruner<N, C> pruner = pruner(filter, cmpF, cmp);
+		for (boolean found = start(c, true, pruner) ; found ; found = c.forward(c.node, pruner))
+			if (delete(c.node, c.item))
+				return ret.apply(c.item);
+		return null;
+	}
+	
+	// *************************************
+	// ORDER STATISTICS
+	// *************************************
+	
+	// there are no subtree sizes to consult, so both of these walk the list from its start
+	
+	@Override
+	public <C> int rank(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp) {
+		final Search<N, C> probe = search(c, cmpF, cmp, false);
+		final Cursor cur = new Cursor();
+		int rank = 0;
+		for (boolean found = start(cur, true, null) ; found && probe.follows(cur.node) ; found = cur.forward(successor(cur.node), null))
+			rank++;
+		return rank;
+	}
+
+	@Override
+	public <V> V select(int index, Function<? super N, ? extends V> ret) {
+		if (index < 0)
+			return null;
+		final Cursor cur = new Cursor();
+		for (boolean found = start(cur, true, null) ; found ; found = cur.forward(successor(cur.node), null))
+			if (index-- == 0)
+				return ret.apply(cur.item);
+		return null;
+	}
+	
+	// *************************************
+	// SERIALIZATION
+	// *************************************
+	
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		final List<N> nodes = new ArrayList<N>();
+		for (Iterator<N> iter = iterator(true, Functions.<N>identity()) ; iter.hasNext() ; )
+			nodes.add(iter.next());
+		out.writeInt(nodes.size());
+		for (N n : nodes)
+			out.writeObject(n);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		final int size = in.readInt();
+		final List<N> nodes = new ArrayList<N>(size);
+		for (int i = 0 ; i < size ; i++)
+			nodes.add((N) in.readObject());
+		init();
+		build(nodes);
+	}
+	
+	public String toString() {
+		final StringBuilder sb = new StringBuilder("{");
+		for (Iterator<N> iter = iterator(true, Functions.<N>identity()) ; iter.hasNext() ; ) {
+			sb.append(iter.next());
+			if (iter.hasNext())
+				sb.append(", ");
+		}
+		return sb.append("}").toString();
+	}
+	
+}
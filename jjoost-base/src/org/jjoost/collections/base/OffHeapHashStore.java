@@ -0,0 +1,1165 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.collections.base;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import org.jjoost.util.Equality;
+import org.jjoost.util.Filter;
+import org.jjoost.util.Function;
+import org.jjoost.util.Functions;
+import org.jjoost.util.Iters;
+import org.jjoost.util.Rehasher;
+import org.jjoost.util.Rehashers;
+import org.jjoost.util.Visitor;
+
+/**
+ * A serial <code>HashStore</code> that keeps its nodes serialised outside of the java heap, so that very large
+ * collections do not burden the garbage collector. Nodes are written by a <code>HashNodeCodec</code> into fixed size
+ * direct <code>ByteBuffer</code> segments, and indexed by an on-heap open addressing table of record addresses and
+ * hashes, laid out as in <code>OpenHashStore</code>. Every node returned by the store is freshly decoded, so
+ * modifying it has no effect on the store; as such this store is only suitable for collections whose nodes are
+ * immutable and have unique prefixes (sets and maps).
+ * <p>
+ * Each record is laid out as <code>[length + 1][hash][payload]</code>, with the length negated once the record is
+ * deleted, and a zero marking the end of the records in a segment. Replaced and removed records are reclaimed by
+ * compacting the live records into new segments once they outweigh the live records.
+ * <p>
+ * If constructed with a <code>File</code> the segments are instead memory mapped from that file, and on
+ * construction any records already present in the file are indexed (without being decoded), permitting a warm
+ * restart; the same codec and <code>Rehasher</code> must be used on each occasion. Space is not reclaimed in this
+ * mode, and writes are only guaranteed to reach the file once <code>force()</code> has been called.
+ *
+ * @author b.elliottsmith
+ */
+public class OffHeapHashStore<N extends HashNode<N>> implements HashStore<N, OffHeapHashStore<N>> {
+
+	private static final long serialVersionUID = 7432106599312386817L;
+
+	private static final int HEADER_SIZE = 8;
+	private static final int DEFAULT_SEGMENT_SIZE = 1 << 24;
+
+	protected final HashNodeCodec<N> codec;
+	protected final float loadFactor;
+	protected final int segmentSize;
+
+	// index; an address of zero marks an empty slot, otherwise it is one more than (segment << 32 | offset)
+	protected transient long[] addresses;
+	protected transient int[] hashes;
+	protected transient int totalNodeCount;
+	protected transient int uniquePrefixCount;
+	protected transient int loadLimit;
+
+	// slab
+	private transient List<ByteBuffer> segments;
+	private transient FileChannel channel;
+	private transient int writeSegment, writeOffset;
+	private transient long liveBytes, garbageBytes;
+	private transient ByteBuffer scratch;
+
+	// the slot most recently emptied by a removal, and the addresses of any records that shifting wrapped around the end of the table, so that iterators may resume safely
+	private transient int lastDeleted = -1;
+	private transient List<Long> lastWrapped;
+	// non-null only whilst statistics are being recorded
+	private transient volatile HashStoreCounters counters;
+
+	public OffHeapHashStore(int size, float loadFactor, HashNodeCodec<N> codec) {
+		this(size, loadFactor, DEFAULT_SEGMENT_SIZE, codec);
+	}
+
+	public OffHeapHashStore(int size, float loadFactor, int segmentSize, HashNodeCodec<N> codec) {
+		this.codec = codec;
+		this.loadFactor = loadFactor;
+		this.segmentSize = segmentSize;
+		init(size);
+		this.segments = new ArrayList<ByteBuffer>();
+	}
+
+	/**
+	 * Construct a store whose records are memory mapped from the provided file, indexing any records that the file
+	 * already contains
+	 */
+	public OffHeapHashStore(int size, float loadFactor, int segmentSize, File file, HashNodeCodec<N> codec) {
+		this.codec = codec;
+		this.loadFactor = loadFactor;
+		this.segmentSize = segmentSize;
+		init(size);
+		this.segments = new ArrayList<ByteBuffer>();
+		try {
+			this.channel = new RandomAccessFile(file, "rw").getChannel();
+			final long length = channel.size();
+			for (long offset = 0 ; offset < length ; offset += segmentSize)
+				segments.add(channel.map(FileChannel.MapMode.READ_WRITE, offset, segmentSize));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		restore();
+	}
+
+	private void init(int size) {
+		int capacity = 8;
+		while (capacity < size)
+			capacity <<= 1;
+		this.addresses = new long[capacity];
+		this.hashes = new int[capacity];
+		this.loadLimit = loadLimit(capacity, loadFactor);
+		this.scratch = ByteBuffer.allocate(256);
+		this.lastDeleted = -1;
+	}
+
+	// **************************************************
+	// PUBLIC METHODS
+	// **************************************************
+
+	@Override
+	public int capacity() {
+		return addresses.length;
+	}
+
+	@Override
+	public int totalCount() {
+		return totalNodeCount;
+	}
+
+	@Override
+	public int uniquePrefixCount() {
+		return uniquePrefixCount;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return totalNodeCount == 0;
+	}
+
+	/**
+	 * @return the number of bytes occupied by live records, excluding the space reserved for each segment
+	 */
+	public long liveBytes() {
+		return liveBytes;
+	}
+
+	/**
+	 * @return the number of bytes occupied by deleted records that have not yet been reclaimed
+	 */
+	public long garbageBytes() {
+		return garbageBytes;
+	}
+
+	/**
+	 * if memory mapped, force any changes to be written to the underlying file
+	 */
+	public void force() {
+		for (ByteBuffer segment : segments)
+			if (segment instanceof MappedByteBuffer)
+				((MappedByteBuffer) segment).force();
+	}
+
+	/**
+	 * if memory mapped, force any changes to be written to the underlying file and release it; the store may not
+	 * be used afterwards
+	 */
+	public void close() {
+		if (channel != null) {
+			force();
+			try {
+				channel.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	@Override
+	public int clear() {
+		final int r = totalNodeCount;
+		totalNodeCount = 0;
+		uniquePrefixCount = 0;
+		addresses = new long[addresses.length];
+		hashes = new int[addresses.length];
+		resetSlab();
+		return r;
+	}
+
+	@Override
+	public <V> Iterator<V> clearAndReturn(Function<? super N, ? extends V> f) {
+		// the records may be overwritten once cleared, so we decode them eagerly
+		final List<N> nodes = new ArrayList<N>(totalNodeCount);
+		for (int i = 0 ; i != addresses.length ; i++)
+			if (addresses[i] != 0)
+				nodes.add(decode(segments, addresses[i], hashes[i]));
+		clear();
+		return Functions.<N, V>apply(f, nodes).iterator();
+	}
+
+	@Override
+	public <NCmp> OffHeapHashStore<N> copy(Function<? super N, ? extends NCmp> nodeEqualityProj, HashNodeEquality<? super NCmp, ? super N> nodeEquality) {
+		final OffHeapHashStore<N> copy = new OffHeapHashStore<N>(addresses.length, loadFactor, segmentSize, codec);
+		copy.addresses = new long[addresses.length];
+		copy.hashes = hashes.clone();
+		copy.totalNodeCount = totalNodeCount;
+		copy.uniquePrefixCount = uniquePrefixCount;
+		for (int i = 0 ; i != addresses.length ; i++)
+			if (addresses[i] != 0)
+				copy.addresses[i] = copy.copyRecord(segments, addresses[i]);
+		return copy;
+	}
+
+	@Override
+	public String toString() {
+		return "{" + Iters.toString(all(null, null, Functions.<N>toString(true)), ", ") + "}";
+	}
+
+	@Override
+	public void recordStatistics(boolean record) {
+		counters = record ? HashStoreCounters.serial() : null;
+	}
+
+	/**
+	 * as for <code>OpenHashStore</code>, the chain length histogram counts the runs of occupied slots in the index
+	 */
+	@Override
+	public HashStoreStatistics statistics() {
+		final long[] addresses = this.addresses;
+		int start = 0;
+		while (addresses[start] != 0)
+			start++;
+		long[] runs = new long[8];
+		int run = 0;
+		for (int k = 1 ; k <= addresses.length ; k++) {
+			if (addresses[(start + k) & (addresses.length - 1)] != 0) {
+				run++;
+			} else {
+				if (run != 0)
+					runs = HashStoreStatistics.increment(runs, run);
+				runs = HashStoreStatistics.increment(runs, 0);
+				run = 0;
+			}
+		}
+		return new HashStoreStatistics(totalNodeCount, uniquePrefixCount, addresses.length, runs, counters);
+	}
+
+	// **************************************************
+	// public PUT METHODS
+	// **************************************************
+
+	@Override
+	public <NCmp, V> V put(PutAction action, NCmp find, N put, HashNodeEquality<? super NCmp, ? super N> eq, Function<? super N, ? extends V> ret) {
+		final HashStoreCounters counters = this.counters;
+		assert (action != PutAction.ENSUREANDGET);
+		maintain();
+
+		final boolean mayReplace = eq.isUnique();
+		final int hash = put.hash;
+		final long[] addresses = this.addresses;
+		final int[] hashes = this.hashes;
+		final int mask = addresses.length - 1;
+		boolean partial = false;
+		int i = hash & mask, probes = 1;
+		long a;
+		N n = null;
+		while ((a = addresses[i]) != 0) {
+			if (hashes[i] == hash) {
+				final N cur = decode(segments, a, hash);
+				if (eq.prefixMatch(find, cur)) {
+					partial = true;
+					if (mayReplace && eq.suffixMatch(find, cur)) {
+						n = cur;
+						break;
+					}
+				}
+			}
+			i = (i + 1) & mask;
+			probes++;
+		}
+		if (counters != null)
+			counters.put(probes);
+
+		if (n == null) {
+			if (action == PutAction.REPLACE)
+				return null;
+			addresses[i] = append(put);
+			hashes[i] = hash;
+			totalNodeCount++;
+			if (!partial)
+				uniquePrefixCount++;
+			return null;
+		}
+		if (action == PutAction.IFABSENT)
+			return ret.apply(n);
+		release(a);
+		addresses[i] = append(put);
+		return ret.apply(n);
+	}
+
+	@Override
+	public <NCmp, V> V put(PutAction action, final int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq, HashNodeFactory<? super NCmp, N> factory, Function<? super N, ? extends V> ret) {
+		final HashStoreCounters counters = this.counters;
+		maintain();
+
+		final boolean mayReplace = eq.isUnique();
+		final long[] addresses = this.addresses;
+		final int[] hashes = this.hashes;
+		final int mask = addresses.length - 1;
+		boolean partial = false;
+		int i = hash & mask, probes = 1;
+		long a;
+		N n = null;
+		while ((a = addresses[i]) != 0) {
+			if (hashes[i] == hash) {
+				final N cur = decode(segments, a, hash);
+				if (eq.prefixMatch(find, cur)) {
+					partial = true;
+					if (mayReplace && eq.suffixMatch(find, cur)) {
+						n = cur;
+						break;
+					}
+				}
+			}
+			i = (i + 1) & mask;
+			probes++;
+		}
+		if (counters != null)
+			counters.put(probes);
+
+		final N put, r;
+		switch (action) {
+		case IFABSENT:
+			if (n != null)
+				return ret.apply(n);
+			put = factory.makeNode(hash, find);
+			r = null;
+			break;
+		case ENSUREANDGET:
+			if (n != null)
+				return ret.apply(n);
+			put = factory.makeNode(hash, find);
+			r = put;
+			break;
+		case REPLACE:
+		case PUT:
+			if (n == null && action == PutAction.REPLACE)
+				return null;
+			put = factory.makeNode(hash, find);
+			r = n;
+			break;
+		default:
+			throw new IllegalStateException();
+		}
+
+		if (n == null) {
+			hashes[i] = hash;
+			totalNodeCount++;
+			if (!partial)
+				uniquePrefixCount++;
+		} else {
+			release(a);
+		}
+		addresses[i] = append(put);
+		return r == null ? null : ret.apply(r);
+	}
+
+	// **************************************************
+	// public REMOVE METHODS
+	// **************************************************
+
+	@Override
+	public <NCmp> int remove(int hash, int removeAtMost, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq) {
+		if (removeAtMost < 1) {
+			if (removeAtMost == 0)
+				return 0;
+			throw new IllegalArgumentException("Cannot remove less than zero elements");
+		}
+		return remove(hash, removeAtMost, find, eq, null);
+	}
+
+	@Override
+	public <NCmp, V> V removeAndReturnFirst(int hash, int removeAtMost, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq, Function<? super N, ? extends V> ret) {
+		if (removeAtMost < 1) {
+			if (removeAtMost == 0)
+				return null;
+			throw new IllegalArgumentException("Cannot remove less than zero elements");
+		}
+		final List<N> removed = new ArrayList<N>(1);
+		remove(hash, removeAtMost, find, eq, removed);
+		return removed.isEmpty() ? null : ret.apply(removed.get(0));
+	}
+
+	@Override
+	public <NCmp, V> Iterable<V> removeAndReturn(int hash, int removeAtMost, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq, Function<? super N, ? extends V> ret) {
+		if (removeAtMost < 1) {
+			if (removeAtMost == 0)
+				return Collections.emptyList();
+			throw new IllegalArgumentException("Cannot remove less than zero elements");
+		}
+		final List<N> removed = new ArrayList<N>(eq.isUnique() ? 1 : 4);
+		remove(hash, removeAtMost, find, eq, removed);
+		return Functions.apply(ret, removed);
+	}
+
+	/**
+	 * nodes are decoded afresh on every access, so the node to remove is located by its prefix rather than its identity
+	 */
+	@Override
+	public <NCmp> boolean removeNode(Function<? super N, ? extends NCmp> nodePrefixEqFunc, HashNodeEquality<? super NCmp, ? super N> nodePrefixEq, N n) {
+		if (nodePrefixEq == null)
+			throw new UnsupportedOperationException("OffHeapHashStore can only remove a node by its prefix");
+		final NCmp find = nodePrefixEqFunc.apply(n);
+		final long[] addresses = this.addresses;
+		final int[] hashes = this.hashes;
+		final int mask = addresses.length - 1;
+		int i = n.hash & mask;
+		long a;
+		while ((a = addresses[i]) != 0) {
+			if (hashes[i] == n.hash && nodePrefixEq.prefixMatch(find, decode(segments, a, n.hash))) {
+				delete(i);
+				totalNodeCount -= 1;
+				if (!containsPrefix(n.hash, find, nodePrefixEq))
+					uniquePrefixCount -= 1;
+				return true;
+			}
+			i = (i + 1) & mask;
+		}
+		return false;
+	}
+
+	// **************************************************
+	// public MEMBERSHIP METHODS
+	// **************************************************
+
+	@Override
+	public <NCmp> int count(int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq, int countUpTo) {
+		final HashStoreCounters counters = this.counters;
+		if (countUpTo < 1)
+			return 0;
+		final boolean stopAtOne = eq.isUnique() | countUpTo == 1;
+		final long[] addresses = this.addresses;
+		final int[] hashes = this.hashes;
+		final int mask = addresses.length - 1;
+		int count = 0;
+		int i = hash & mask, probes = 1;
+		long a;
+		while ((a = addresses[i]) != 0) {
+			if (hashes[i] == hash) {
+				final N n = decode(segments, a, hash);
+				if (eq.prefixMatch(find, n) && eq.suffixMatch(find, n)) {
+					if (++count == countUpTo | stopAtOne)
+						break;
+				}
+			}
+			i = (i + 1) & mask;
+			probes++;
+		}
+		if (counters != null)
+			counters.find(probes);
+		return count;
+	}
+
+	// **************************************************
+	// public RETRIEVAL METHODS
+	// **************************************************
+
+	@Override
+	public <NCmp, V> V first(int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq, Function<? super N, ? extends V> ret) {
+		final HashStoreCounters counters = this.counters;
+		final long[] addresses = this.addresses;
+		final int[] hashes = this.hashes;
+		final int mask = addresses.length - 1;
+		int i = hash & mask, probes = 1;
+		long a;
+		N r = null;
+		while ((a = addresses[i]) != 0) {
+			if (hashes[i] == hash) {
+				final N n = decode(segments, a, hash);
+				if (eq.prefixMatch(find, n) && eq.suffixMatch(find, n)) {
+					r = n;
+					break;
+				}
+			}
+			i = (i + 1) & mask;
+			probes++;
+		}
+		if (counters != null)
+			counters.find(probes);
+		return r == null ? null : ret.apply(r);
+	}
+
+	@Override
+	public <NCmp, V> List<V> findNow(int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> findEq, Function<? super N, ? extends V> ret) {
+		final List<N> matches = matches(hash, find, findEq);
+		if (matches.isEmpty())
+			return Collections.emptyList();
+		final List<V> r = new ArrayList<V>(matches.size());
+		for (N n : matches)
+			r.add(ret.apply(n));
+		return r;
+	}
+
+	@Override
+	public <NCmp, NCmp2, V> Iterator<V> find(int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> findEq,
+			Function<? super N, ? extends NCmp2> nodeEqualityProj, HashNodeEquality<? super NCmp2, ? super N> nodeEq,
+			Function<? super N, ? extends V> ret) {
+		return new SearchIterator<NCmp2, V>(matches(hash, find, findEq), nodeEqualityProj, nodeEq, ret);
+	}
+
+	@Override
+	public <NCmp, V> Iterator<V> all(Function<? super N, ? extends NCmp> nodeEqualityProj, HashNodeEquality<? super NCmp, ? super N> nodeEquality, Function<? super N, ? extends V> ret) {
+		return new TableIterator<NCmp, V>(null, nodeEqualityProj, nodeEquality, ret);
+	}
+
+	@Override
+	public <NCmp, NCmp2, V> Iterator<V> unique(
+			Function<? super N, ? extends NCmp> uniquenessEqualityProj,
+			Equality<? super NCmp> uniquenessEquality,
+			Locality duplicateLocality,
+			Function<? super N, ? extends NCmp2> nodeEqualityProj,
+			HashNodeEquality<? super NCmp2, ? super N> nodeEquality,
+			Function<? super N, ? extends V> ret) {
+		// equal prefixes are not adjacent in this store, so we can only rely on global uniqueness
+		final Filter<N> filter = HashStore.Helper.<N, NCmp>forUniqueness(uniquenessEqualityProj, uniquenessEquality, Locality.GLOBAL);
+		return new TableIterator<NCmp2, V>(filter, nodeEqualityProj, nodeEquality, ret);
+	}
+
+	@Override
+	public <V> Spliterator<V> spliterator(Function<? super N, ? extends V> ret, int characteristics) {
+		return new SlotSpliterator<V>(addresses, hashes, segments, 0, addresses.length, totalNodeCount, characteristics | Spliterator.SIZED, ret);
+	}
+
+	@Override
+	public <V> boolean visit(int partition, int partitions, Function<? super N, ? extends V> ret, Visitor<? super V> visitor) {
+		HashStore.Helper.checkPartition(partition, partitions);
+		final long[] addresses = this.addresses;
+		final int[] hashes = this.hashes;
+		final List<ByteBuffer> segments = this.segments;
+		final int end = HashStore.Helper.partitionStart(addresses.length, partition + 1, partitions);
+		for (int i = HashStore.Helper.partitionStart(addresses.length, partition, partitions) ; i != end ; i++)
+			if (addresses[i] != 0 && !visitor.visit(ret.apply(decode(segments, addresses[i], hashes[i]))))
+				return false;
+		return true;
+	}
+
+	// **************************************************
+	// ITERATOR CLASSES
+	// **************************************************
+
+	final class SearchIterator<NCmp, V> implements Iterator<V> {
+
+		final List<N> matches;
+		final Function<? super N, ? extends NCmp> nodeEqualityProj;
+		final HashNodeEquality<? super NCmp, ? super N> nodeEquality;
+		final Function<? super N, ? extends V> ret;
+		int next = 0;
+
+		SearchIterator(List<N> matches, Function<? super N, ? extends NCmp> nodeEqualityProj,
+				HashNodeEquality<? super NCmp, ? super N> nodeEquality, Function<? super N, ? extends V> ret) {
+			this.matches = matches;
+			this.nodeEqualityProj = nodeEqualityProj;
+			this.nodeEquality = nodeEquality;
+			this.ret = ret;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != matches.size();
+		}
+
+		@Override
+		public V next() {
+			if (next == matches.size())
+				throw new NoSuchElementException();
+			return ret.apply(matches.get(next++));
+		}
+
+		@Override
+		public void remove() {
+			if (next == 0)
+				throw new NoSuchElementException();
+			removeNode(nodeEqualityProj, nodeEquality, matches.get(next - 1));
+		}
+
+	}
+
+	/**
+	 * Visits a contiguous range of index slots, splitting by halving the range; each node is decoded by the thread
+	 * that visits it. The store must not be modified during traversal; growing or compacting the index is detected,
+	 * but other modifications may not be.
+	 */
+	final class SlotSpliterator<V> implements Spliterator<V> {
+
+		final long[] addresses;
+		final int[] hashes;
+		final List<ByteBuffer> segments;
+		final Function<? super N, ? extends V> ret;
+		int characteristics;
+		int index, end;
+		long estimate;
+
+		SlotSpliterator(long[] addresses, int[] hashes, List<ByteBuffer> segments, int index, int end, long estimate,
+				int characteristics, Function<? super N, ? extends V> ret) {
+			this.addresses = addresses;
+			this.hashes = hashes;
+			this.segments = segments;
+			this.index = index;
+			this.end = end;
+			this.estimate = estimate;
+			this.characteristics = characteristics;
+			this.ret = ret;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super V> action) {
+			if (addresses != OffHeapHashStore.this.addresses)
+				throw new ConcurrentModificationException();
+			while (index != end) {
+				final int i = index++;
+				if (addresses[i] != 0) {
+					action.accept(ret.apply(decode(segments, addresses[i], hashes[i])));
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super V> action) {
+			final long[] addresses = this.addresses;
+			final int end = this.end;
+			int index = this.index;
+			this.index = end;
+			if (addresses != OffHeapHashStore.this.addresses)
+				throw new ConcurrentModificationException();
+			while (index != end) {
+				final int i = index++;
+				if (addresses[i] != 0)
+					action.accept(ret.apply(decode(segments, addresses[i], hashes[i])));
+			}
+		}
+
+		@Override
+		public Spliterator<V> trySplit() {
+			final int mid = (index + end) >>> 1;
+			if (mid == index)
+				return null;
+			characteristics &= ~Spliterator.SIZED;
+			estimate >>>= 1;
+			final SlotSpliterator<V> split = new SlotSpliterator<V>(addresses, hashes, segments, mid, end, estimate, characteristics, ret);
+			end = mid;
+			return split;
+		}
+
+		@Override
+		public long estimateSize() {
+			return estimate;
+		}
+
+		@Override
+		public int characteristics() {
+			return characteristics;
+		}
+
+	}
+
+	/**
+	 * Visits the index in slot order, as <code>OpenHashStore.TableIterator</code>, but tracking records by their
+	 * address, which (unlike the nodes we decode from them) is stable until the index is grown or compacted; if
+	 * that happens we continue over the records as they were, in the segments they were in.
+	 */
+	final class TableIterator<NCmp, V> implements Iterator<V> {
+
+		final long[] addresses;
+		final int[] hashes;
+		final List<ByteBuffer> segments;
+		final Filter<N> filter;
+		final Function<? super N, ? extends NCmp> nodeEqualityProj;
+		final HashNodeEquality<? super NCmp, ? super N> nodeEquality;
+		final Function<? super N, ? extends V> ret;
+		List<Long> visited;
+		int index;
+		int nextIndex, prevIndex;
+		long nextAddress, prevAddress;
+		N prev, next;
+		boolean removed;
+
+		TableIterator(Filter<N> filter, Function<? super N, ? extends NCmp> nodeEqualityProj,
+				HashNodeEquality<? super NCmp, ? super N> nodeEquality, Function<? super N, ? extends V> ret) {
+			this.addresses = OffHeapHashStore.this.addresses;
+			this.hashes = OffHeapHashStore.this.hashes;
+			this.segments = OffHeapHashStore.this.segments;
+			this.filter = filter;
+			this.nodeEqualityProj = nodeEqualityProj;
+			this.nodeEquality = nodeEquality;
+			this.ret = ret;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (next == null && prevAddress != 0 && addresses == OffHeapHashStore.this.addresses && addresses[prevIndex] != prevAddress)
+				rewind();
+			while (next == null) {
+				if (index == addresses.length)
+					return false;
+				final long a = addresses[index++];
+				if (a != 0 && !skip(a)) {
+					final N n = decode(segments, a, hashes[index - 1]);
+					if (filter == null || filter.accept(n)) {
+						next = n;
+						nextIndex = index - 1;
+						nextAddress = a;
+					}
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public V next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			prev = next;
+			prevIndex = nextIndex;
+			prevAddress = nextAddress;
+			removed = false;
+			next = null;
+			return ret.apply(prev);
+		}
+
+		@Override
+		public void remove() {
+			if (prev == null || removed)
+				throw new NoSuchElementException();
+			removed = true;
+			if (addresses == OffHeapHashStore.this.addresses && addresses[prevIndex] == prevAddress) {
+				delete(prevIndex);
+				totalNodeCount -= 1;
+				if (nodeEquality == null || !containsPrefix(prev.hash, nodeEqualityProj.apply(prev), nodeEquality))
+					uniquePrefixCount -= 1;
+				// if we have already moved on to the next record it may be shifted into the region we are about to revisit
+				if (next != null)
+					visit(nextAddress);
+				rewind();
+			} else {
+				removeNode(nodeEqualityProj, nodeEquality, prev);
+			}
+		}
+
+		private void rewind() {
+			index = prevIndex;
+			if (lastDeleted == prevIndex && lastWrapped != null)
+				for (int i = 0 ; i != lastWrapped.size() ; i++)
+					visit(lastWrapped.get(i));
+			prev = null;
+			prevAddress = 0;
+		}
+
+		private void visit(long address) {
+			if (visited == null)
+				visited = new ArrayList<Long>(4);
+			visited.add(address);
+		}
+
+		private boolean skip(long address) {
+			if (visited != null)
+				for (int i = 0 ; i != visited.size() ; i++)
+					if (visited.get(i) == address)
+						return true;
+			return false;
+		}
+
+	}
+
+	// **************************************************
+	// PRIVATE METHODS
+	// **************************************************
+
+	private <NCmp> int remove(int hash, int removeAtMost, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq, List<N> removed) {
+		final boolean eqIsUniq = eq.isUnique();
+		final long[] addresses = this.addresses;
+		final int[] hashes = this.hashes;
+		final int mask = addresses.length - 1;
+		boolean keptNeighbours = false;
+		int r = 0;
+		int i = hash & mask;
+		long a;
+		while ((a = addresses[i]) != 0) {
+			if (hashes[i] == hash) {
+				final N n = decode(segments, a, hash);
+				if (eq.prefixMatch(find, n)) {
+					if (r != removeAtMost && eq.suffixMatch(find, n)) {
+						// the backward shift may move an unvisited record into this slot, so we do not advance
+						delete(i);
+						r++;
+						if (removed != null)
+							removed.add(n);
+						if (eqIsUniq)
+							break;
+						continue;
+					}
+					keptNeighbours = true;
+					if (eqIsUniq)
+						break;
+				}
+			}
+			i = (i + 1) & mask;
+		}
+		if (r != 0) {
+			totalNodeCount -= r;
+			if (!keptNeighbours && !(eqIsUniq && containsPrefix(hash, find, eq)))
+				uniquePrefixCount -= 1;
+		}
+		return r;
+	}
+
+	private <NCmp> boolean containsPrefix(int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq) {
+		final long[] addresses = this.addresses;
+		final int[] hashes = this.hashes;
+		final int mask = addresses.length - 1;
+		int i = hash & mask;
+		long a;
+		while ((a = addresses[i]) != 0) {
+			if (hashes[i] == hash && eq.prefixMatch(find, decode(segments, a, hash)))
+				return true;
+			i = (i + 1) & mask;
+		}
+		return false;
+	}
+
+	private <NCmp> List<N> matches(int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq) {
+		final long[] addresses = this.addresses;
+		final int[] hashes = this.hashes;
+		final int mask = addresses.length - 1;
+		List<N> r = null;
+		int i = hash & mask;
+		long a;
+		while ((a = addresses[i]) != 0) {
+			if (hashes[i] == hash) {
+				final N n = decode(segments, a, hash);
+				if (eq.prefixMatch(find, n) && eq.suffixMatch(find, n)) {
+					if (r == null)
+						r = new ArrayList<N>(eq.isUnique() ? 1 : 4);
+					r.add(n);
+					if (eq.isUnique())
+						break;
+				}
+			}
+			i = (i + 1) & mask;
+		}
+		if (r == null)
+			return Collections.emptyList();
+		return r;
+	}
+
+	/**
+	 * releases the record in slot <code>gap</code> and shifts back any records later in the probe sequence that may
+	 * then be moved closer to their home slot; does not maintain the counts
+	 */
+	private void delete(int gap) {
+		final long[] addresses = this.addresses;
+		final int[] hashes = this.hashes;
+		final int mask = addresses.length - 1;
+		release(addresses[gap]);
+		lastDeleted = gap;
+		lastWrapped = null;
+		int i = (gap + 1) & mask;
+		long a;
+		while ((a = addresses[i]) != 0) {
+			final int home = hashes[i] & mask;
+			// move the record at i into the gap unless its home lies cyclically within (gap, i]
+			if (gap <= i ? (gap >= home || home > i) : (gap >= home && home > i)) {
+				// a record moving from the front of the table to the back has already been visited by any iterator positioned at the deleted slot
+				if (i < lastDeleted && gap >= lastDeleted) {
+					if (lastWrapped == null)
+						lastWrapped = new ArrayList<Long>(2);
+					lastWrapped.add(a);
+				}
+				addresses[gap] = a;
+				hashes[gap] = hashes[i];
+				gap = i;
+			}
+			i = (i + 1) & mask;
+		}
+		addresses[gap] = 0;
+		hashes[gap] = 0;
+	}
+
+	private void maintain() {
+		if (totalNodeCount >= loadLimit)
+			grow();
+		if (channel == null && garbageBytes > liveBytes && garbageBytes >= segmentSize)
+			compact();
+	}
+
+	private void grow() {
+		final HashStoreCounters counters = this.counters;
+		final long start = counters == null ? 0 : System.nanoTime();
+		final long[] oldAddresses = addresses;
+		final int[] oldHashes = hashes;
+		final long[] addresses = new long[oldAddresses.length << 1];
+		final int[] hashes = new int[addresses.length];
+		final int mask = addresses.length - 1;
+		for (int j = 0 ; j != oldAddresses.length ; j++) {
+			final long a = oldAddresses[j];
+			if (a != 0) {
+				final int hash = oldHashes[j];
+				int i = hash & mask;
+				while (addresses[i] != 0)
+					i = (i + 1) & mask;
+				addresses[i] = a;
+				hashes[i] = hash;
+			}
+		}
+		this.addresses = addresses;
+		this.hashes = hashes;
+		this.loadLimit = loadLimit(addresses.length, loadFactor);
+		if (counters != null)
+			counters.resized(System.nanoTime() - start);
+	}
+
+	// copies the live records into new segments, leaving the old segments (and index) untouched for any iterators still using them
+	private void compact() {
+		final List<ByteBuffer> oldSegments = segments;
+		final long[] oldAddresses = addresses;
+		final long[] addresses = new long[oldAddresses.length];
+		resetSlab();
+		for (int i = 0 ; i != oldAddresses.length ; i++)
+			if (oldAddresses[i] != 0)
+				addresses[i] = copyRecord(oldSegments, oldAddresses[i]);
+		this.addresses = addresses;
+		this.hashes = hashes.clone();
+	}
+
+	// always leave at least one slot empty, so that every probe sequence terminates
+	private static int loadLimit(int capacity, float loadFactor) {
+		return Math.min(capacity - 1, (int) (capacity * loadFactor));
+	}
+
+	public static Rehasher defaultRehasher() {
+		return Rehashers.jdkHashmapRehasher();
+	}
+
+	// **************************************************
+	// SLAB MANAGEMENT
+	// **************************************************
+
+	private N decode(List<ByteBuffer> segments, long address, int hash) {
+		address -= 1;
+		final ByteBuffer buf = segments.get((int) (address >>> 32)).duplicate();
+		buf.position((int) address + HEADER_SIZE);
+		return codec.read(hash, buf);
+	}
+
+	private long append(N node) {
+		ByteBuffer scratch = this.scratch;
+		while (true) {
+			scratch.clear();
+			try {
+				codec.write(node, scratch);
+				break;
+			} catch (BufferOverflowException e) {
+				this.scratch = scratch = ByteBuffer.allocate(scratch.capacity() << 1);
+			}
+		}
+		scratch.flip();
+		final ByteBuffer segment = reserve(scratch.remaining());
+		final int offset = writeOffset;
+		segment.putInt(offset, scratch.remaining() + 1);
+		segment.putInt(offset + 4, node.hash);
+		final ByteBuffer dst = segment.duplicate();
+		dst.position(offset + HEADER_SIZE);
+		dst.put(scratch);
+		return written(segment, offset + HEADER_SIZE + scratch.limit());
+	}
+
+	// copies the record at the provided address (in the provided segments) into our slab, returning its new address
+	private long copyRecord(List<ByteBuffer> segments, long address) {
+		address -= 1;
+		final ByteBuffer src = segments.get((int) (address >>> 32)).duplicate();
+		final int length = src.getInt((int) address) - 1;
+		src.position((int) address).limit((int) address + HEADER_SIZE + length);
+		final ByteBuffer segment = reserve(length);
+		final int offset = writeOffset;
+		final ByteBuffer dst = segment.duplicate();
+		dst.position(offset);
+		dst.put(src);
+		return written(segment, offset + HEADER_SIZE + length);
+	}
+
+	// ensures there is room in the current segment for a record with the given payload length, and its end marker
+	private ByteBuffer reserve(int length) {
+		final int size = HEADER_SIZE + length + 4;
+		if (size > segmentSize)
+			throw new IllegalArgumentException("Record of " + length + " bytes does not fit in a segment of " + segmentSize + " bytes");
+		if (segments.isEmpty()) {
+			segments.add(allocate(0));
+		} else if (writeOffset + size > segmentSize) {
+			writeSegment++;
+			writeOffset = 0;
+			if (writeSegment == segments.size())
+				segments.add(allocate(writeSegment));
+		}
+		liveBytes += HEADER_SIZE + length;
+		return segments.get(writeSegment);
+	}
+
+	private long written(ByteBuffer segment, int end) {
+		segment.putInt(end, 0);
+		final long address = ((long) writeSegment << 32 | writeOffset) + 1;
+		writeOffset = end;
+		return address;
+	}
+
+	private ByteBuffer allocate(int segment) {
+		if (channel == null)
+			return ByteBuffer.allocateDirect(segmentSize);
+		try {
+			return channel.map(FileChannel.MapMode.READ_WRITE, (long) segment * segmentSize, segmentSize);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// marks the record deleted
+	private void release(long address) {
+		address -= 1;
+		final ByteBuffer segment = segments.get((int) (address >>> 32));
+		final int header = segment.getInt((int) address);
+		segment.putInt((int) address, -header);
+		liveBytes -= HEADER_SIZE + header - 1;
+		garbageBytes += HEADER_SIZE + header - 1;
+	}
+
+	private void resetSlab() {
+		if (channel == null) {
+			segments = new ArrayList<ByteBuffer>();
+		} else {
+			// a segment starting with an end marker terminates the file's records
+			for (ByteBuffer segment : segments)
+				segment.putInt(0, 0);
+		}
+		writeSegment = 0;
+		writeOffset = 0;
+		liveBytes = 0;
+		garbageBytes = 0;
+	}
+
+	// indexes the records found in the segments, leaving the write position after the last of them
+	private void restore() {
+		for (int s = 0 ; s != segments.size() ; s++) {
+			final ByteBuffer segment = segments.get(s);
+			if (s != 0 && segment.getInt(0) == 0)
+				break;
+			int offset = 0;
+			int header;
+			while (offset + 4 <= segmentSize && (header = segment.getInt(offset)) != 0) {
+				final int size = HEADER_SIZE + Math.abs(header) - 1;
+				if (header > 0) {
+					if (totalNodeCount >= loadLimit)
+						grow();
+					final int hash = segment.getInt(offset + 4);
+					final int mask = addresses.length - 1;
+					int i = hash & mask;
+					while (addresses[i] != 0)
+						i = (i + 1) & mask;
+					addresses[i] = ((long) s << 32 | offset) + 1;
+					hashes[i] = hash;
+					totalNodeCount++;
+					liveBytes += size;
+				} else {
+					garbageBytes += size;
+				}
+				offset += size;
+			}
+			writeSegment = s;
+			writeOffset = offset;
+		}
+		uniquePrefixCount = totalNodeCount;
+	}
+
+	// **************************************************
+	// SERIALIZATION
+	// **************************************************
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(addresses.length);
+		out.writeInt(totalNodeCount);
+		out.writeInt(uniquePrefixCount);
+		for (int i = 0 ; i != addresses.length ; i++) {
+			if (addresses[i] != 0) {
+				final long address = addresses[i] - 1;
+				final ByteBuffer src = segments.get((int) (address >>> 32)).duplicate();
+				final int length = src.getInt((int) address) - 1;
+				final byte[] bytes = new byte[length];
+				src.position((int) address + HEADER_SIZE);
+				src.get(bytes);
+				out.writeInt(hashes[i]);
+				out.writeInt(length);
+				out.write(bytes);
+			}
+		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		init(in.readInt());
+		segments = new ArrayList<ByteBuffer>();
+		final int count = in.readInt();
+		final int uniquePrefixCount = in.readInt();
+		final int mask = addresses.length - 1;
+		for (int j = 0 ; j != count ; j++) {
+			final int hash = in.readInt();
+			final byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			final ByteBuffer segment = reserve(bytes.length);
+			final int offset = writeOffset;
+			segment.putInt(offset, bytes.length + 1);
+			segment.putInt(offset + 4, hash);
+			final ByteBuffer dst = segment.duplicate();
+			dst.position(offset + HEADER_SIZE);
+			dst.put(bytes);
+			int i = hash & mask;
+			while (addresses[i] != 0)
+				i = (i + 1) & mask;
+			addresses[i] = written(segment, offset + HEADER_SIZE + bytes.length);
+			hashes[i] = hash;
+		}
+		this.totalNodeCount = count;
+		this.uniquePrefixCount = uniquePrefixCount;
+	}
+
+}
@@ -0,0 +1,841 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.collections.base;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import org.jjoost.util.Equality;
+import org.jjoost.util.Filter;
+import org.jjoost.util.Function;
+import org.jjoost.util.Functions;
+import org.jjoost.util.Iters;
+import org.jjoost.util.Rehasher;
+import org.jjoost.util.Rehashers;
+import org.jjoost.util.Visitor;
+
+/**
+ * A serial <code>HashStore</code> using open addressing with linear probing. Nodes are held directly in a flat array,
+ * with their hashes in a parallel <code>int[]</code> so that probing past non-matching entries never touches the nodes
+ * themselves; nodes consequently need no <code>next</code> pointer, and may extend <code>HashNode</code> directly.
+ * <p>
+ * Removal is by backward shifting, so no tombstones are left behind. Nodes with equal prefixes are not kept adjacent,
+ * so this store is only offered for collections whose nodes have unique prefixes (sets, maps and counting multisets).
+ *
+ * @author b.elliottsmith
+ */
+public class OpenHashStore<N extends HashNode<N>> implements HashStore<N, OpenHashStore<N>> {
+
+	private static final long serialVersionUID = -2935447130498526317L;
+
+	protected N[] nodes;
+	protected int[] hashes;
+	protected int totalNodeCount;
+	protected int uniquePrefixCount;
+	protected int loadLimit;
+	protected final float loadFactor;
+
+	// the slot most recently emptied by a removal, and any nodes that shifting wrapped around the end of the table, so that iterators may resume safely
+	private transient int lastDeleted = -1;
+	private transient List<N> lastWrapped;
+	// non-null only whilst statistics are being recorded
+	private transient volatile HashStoreCounters counters;
+
+	@SuppressWarnings("unchecked")
+	public OpenHashStore(int size, float loadFactor) {
+		int capacity = 8;
+		while (capacity < size)
+			capacity <<= 1;
+		this.nodes = (N[]) new HashNode<?>[capacity];
+		this.hashes = new int[capacity];
+		this.loadFactor = loadFactor;
+		this.loadLimit = loadLimit(capacity, loadFactor);
+	}
+
+	protected OpenHashStore(float loadFactor, N[] nodes, int[] hashes, int totalNodeCount, int uniquePrefixCount) {
+		this.nodes = nodes;
+		this.hashes = hashes;
+		this.totalNodeCount = totalNodeCount;
+		this.uniquePrefixCount = uniquePrefixCount;
+		this.loadFactor = loadFactor;
+		this.loadLimit = loadLimit(nodes.length, loadFactor);
+	}
+
+	// **************************************************
+	// PUBLIC METHODS
+	// **************************************************
+
+	@Override
+	public int capacity() {
+		return nodes.length;
+	}
+
+	@Override
+	public int totalCount() {
+		return totalNodeCount;
+	}
+
+	@Override
+	public int uniquePrefixCount() {
+		return uniquePrefixCount;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return totalNodeCount == 0;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public int clear() {
+		final int r = totalNodeCount;
+		totalNodeCount = 0;
+		uniquePrefixCount = 0;
+		nodes = (N[]) new HashNode<?>[nodes.length];
+		hashes = new int[nodes.length];
+		return r;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <V> Iterator<V> clearAndReturn(Function<? super N, ? extends V> f) {
+		final Iterator<V> r = new ClearedIterator<V>(nodes, f);
+		totalNodeCount = 0;
+		uniquePrefixCount = 0;
+		nodes = (N[]) new HashNode<?>[nodes.length];
+		hashes = new int[nodes.length];
+		return r;
+	}
+
+	@Override
+	public <NCmp> OpenHashStore<N> copy(Function<? super N, ? extends NCmp> nodeEqualityProj, HashNodeEquality<? super NCmp, ? super N> nodeEquality) {
+		final N[] nodes = this.nodes.clone();
+		for (int i = 0 ; i != nodes.length ; i++)
+			if (nodes[i] != null)
+				nodes[i] = nodes[i].copy();
+		return new OpenHashStore<N>(loadFactor, nodes, hashes.clone(), totalNodeCount, uniquePrefixCount);
+	}
+
+	@Override
+	public String toString() {
+		return "{" + Iters.toString(all(null, null, Functions.<N>toString(true)), ", ") + "}";
+	}
+
+	@Override
+	public void recordStatistics(boolean record) {
+		counters = record ? HashStoreCounters.serial() : null;
+	}
+
+	@Override
+	public HashStoreStatistics statistics() {
+		final N[] nodes = this.nodes;
+		// start from an empty slot, so that no run wraps around the end of the table
+		int start = 0;
+		while (nodes[start] != null)
+			start++;
+		long[] runs = new long[8];
+		int run = 0;
+		for (int k = 1 ; k <= nodes.length ; k++) {
+			if (nodes[(start + k) & (nodes.length - 1)] != null) {
+				run++;
+			} else {
+				if (run != 0)
+					runs = HashStoreStatistics.increment(runs, run);
+				runs = HashStoreStatistics.increment(runs, 0);
+				run = 0;
+			}
+		}
+		return new HashStoreStatistics(totalNodeCount, uniquePrefixCount, nodes.length, runs, counters);
+	}
+
+	// **************************************************
+	// public PUT METHODS
+	// **************************************************
+
+	@Override
+	public <NCmp, V> V put(PutAction action, NCmp find, N put, HashNodeEquality<? super NCmp, ? super N> eq, Function<? super N, ? extends V> ret) {
+		final HashStoreCounters counters = this.counters;
+		assert (action != PutAction.ENSUREANDGET);
+		grow();
+
+		final boolean mayReplace = eq.isUnique();
+		final int hash = put.hash;
+		final N[] nodes = this.nodes;
+		final int[] hashes = this.hashes;
+		final int mask = nodes.length - 1;
+		boolean partial = false;
+		int i = hash & mask, probes = 1;
+		N n;
+		while ((n = nodes[i]) != null) {
+			if (hashes[i] == hash && eq.prefixMatch(find, n)) {
+				partial = true;
+				if (mayReplace && eq.suffixMatch(find, n))
+					break;
+			}
+			i = (i + 1) & mask;
+			probes++;
+		}
+		if (counters != null)
+			counters.put(probes);
+
+		if (n == null) {
+			if (action == PutAction.REPLACE)
+				return null;
+			nodes[i] = put;
+			hashes[i] = hash;
+			totalNodeCount++;
+			if (!partial)
+				uniquePrefixCount++;
+			return null;
+		}
+		if (action == PutAction.IFABSENT)
+			return ret.apply(n);
+		nodes[i] = put;
+		return ret.apply(n);
+	}
+
+	@Override
+	public <NCmp, V> V put(PutAction action, final int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq, HashNodeFactory<? super NCmp, N> factory, Function<? super N, ? extends V> ret) {
+		final HashStoreCounters counters = this.counters;
+		grow();
+
+		final boolean mayReplace = eq.isUnique();
+		final N[] nodes = this.nodes;
+		final int[] hashes = this.hashes;
+		final int mask = nodes.length - 1;
+		boolean partial = false;
+		int i = hash & mask, probes = 1;
+		N n;
+		while ((n = nodes[i]) != null) {
+			if (hashes[i] == hash && eq.prefixMatch(find, n)) {
+				partial = true;
+				if (mayReplace && eq.suffixMatch(find, n))
+					break;
+			}
+			i = (i + 1) & mask;
+			probes++;
+		}
+		if (counters != null)
+			counters.put(probes);
+
+		final N put, r;
+		switch (action) {
+		case IFABSENT:
+			if (n != null)
+				return ret.apply(n);
+			put = factory.makeNode(hash, find);
+			r = null;
+			break;
+		case ENSUREANDGET:
+			if (n != null)
+				return ret.apply(n);
+			put = factory.makeNode(hash, find);
+			r = put;
+			break;
+		case REPLACE:
+		case PUT:
+			if (n == null && action == PutAction.REPLACE)
+				return null;
+			put = factory.makeNode(hash, find);
+			r = n;
+			break;
+		default:
+			throw new IllegalStateException();
+		}
+
+		nodes[i] = put;
+		if (n == null) {
+			hashes[i] = hash;
+			totalNodeCount++;
+			if (!partial)
+				uniquePrefixCount++;
+		}
+		return r == null ? null : ret.apply(r);
+	}
+
+	// **************************************************
+	// public REMOVE METHODS
+	// **************************************************
+
+	@Override
+	public <NCmp> int remove(int hash, int removeAtMost, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq) {
+		if (removeAtMost < 1) {
+			if (removeAtMost == 0)
+				return 0;
+			throw new IllegalArgumentException("Cannot remove less than zero elements");
+		}
+		return remove(hash, removeAtMost, find, eq, null, false);
+	}
+
+	@Override
+	public <NCmp, V> V removeAndReturnFirst(int hash, int removeAtMost, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq, Function<? super N, ? extends V> ret) {
+		if (removeAtMost < 1) {
+			if (removeAtMost == 0)
+				return null;
+			throw new IllegalArgumentException("Cannot remove less than zero elements");
+		}
+		final List<N> removed = new ArrayList<N>(1);
+		remove(hash, removeAtMost, find, eq, removed, false);
+		return removed.isEmpty() ? null : ret.apply(removed.get(0));
+	}
+
+	@Override
+	public <NCmp, V> Iterable<V> removeAndReturn(int hash, int removeAtMost, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq, Function<? super N, ? extends V> ret) {
+		if (removeAtMost < 1) {
+			if (removeAtMost == 0)
+				return Collections.emptyList();
+			throw new IllegalArgumentException("Cannot remove less than zero elements");
+		}
+		final List<N> removed = new ArrayList<N>(eq.isUnique() ? 1 : 4);
+		remove(hash, removeAtMost, find, eq, removed, true);
+		return Functions.apply(ret, removed);
+	}
+
+	@Override
+	public <NCmp> boolean removeNode(Function<? super N, ? extends NCmp> nodePrefixEqFunc, HashNodeEquality<? super NCmp, ? super N> nodePrefixEq, N n) {
+		final N[] nodes = this.nodes;
+		final int mask = nodes.length - 1;
+		int i = n.hash & mask;
+		N cur;
+		while ((cur = nodes[i]) != n) {
+			if (cur == null)
+				return false;
+			i = (i + 1) & mask;
+		}
+		delete(i);
+		totalNodeCount -= 1;
+		if (nodePrefixEq == null || !containsPrefix(n.hash, nodePrefixEqFunc.apply(n), nodePrefixEq))
+			uniquePrefixCount -= 1;
+		return true;
+	}
+
+	// **************************************************
+	// public MEMBERSHIP METHODS
+	// **************************************************
+
+	@Override
+	public <NCmp> int count(int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq, int countUpTo) {
+		final HashStoreCounters counters = this.counters;
+		if (countUpTo < 1)
+			return 0;
+		final boolean stopAtOne = eq.isUnique() | countUpTo == 1;
+		final N[] nodes = this.nodes;
+		final int[] hashes = this.hashes;
+		final int mask = nodes.length - 1;
+		int count = 0;
+		int i = hash & mask, probes = 1;
+		N n;
+		while ((n = nodes[i]) != null) {
+			if (hashes[i] == hash && eq.prefixMatch(find, n) && eq.suffixMatch(find, n)) {
+				if (++count == countUpTo | stopAtOne)
+					break;
+			}
+			i = (i + 1) & mask;
+			probes++;
+		}
+		if (counters != null)
+			counters.find(probes);
+		return count;
+	}
+
+	// **************************************************
+	// public RETRIEVAL METHODS
+	// **************************************************
+
+	@Override
+	public <NCmp, V> V first(int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq, Function<? super N, ? extends V> ret) {
+		final HashStoreCounters counters = this.counters;
+		final N[] nodes = this.nodes;
+		final int[] hashes = this.hashes;
+		final int mask = nodes.length - 1;
+		int i = hash & mask, probes = 1;
+		N n;
+		while ((n = nodes[i]) != null) {
+			if (hashes[i] == hash && eq.prefixMatch(find, n) && eq.suffixMatch(find, n))
+				break;
+			i = (i + 1) & mask;
+			probes++;
+		}
+		if (counters != null)
+			counters.find(probes);
+		return n == null ? null : ret.apply(n);
+	}
+
+	@Override
+	public <NCmp, V> List<V> findNow(int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> findEq, Function<? super N, ? extends V> ret) {
+		final List<N> matches = matches(hash, find, findEq);
+		if (matches.isEmpty())
+			return Collections.emptyList();
+		final List<V> r = new ArrayList<V>(matches.size());
+		for (N n : matches)
+			r.add(ret.apply(n));
+		return r;
+	}
+
+	@Override
+	public <NCmp, NCmp2, V> Iterator<V> find(int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> findEq,
+			Function<? super N, ? extends NCmp2> nodeEqualityProj, HashNodeEquality<? super NCmp2, ? super N> nodeEq,
+			Function<? super N, ? extends V> ret) {
+		return new SearchIterator<NCmp2, V>(matches(hash, find, findEq), nodeEqualityProj, nodeEq, ret);
+	}
+
+	@Override
+	public <NCmp, V> Iterator<V> all(Function<? super N, ? extends NCmp> nodeEqualityProj, HashNodeEquality<? super NCmp, ? super N> nodeEquality, Function<? super N, ? extends V> ret) {
+		return new TableIterator<NCmp, V>(null, nodeEqualityProj, nodeEquality, ret);
+	}
+
+	@Override
+	public <NCmp, NCmp2, V> Iterator<V> unique(
+			Function<? super N, ? extends NCmp> uniquenessEqualityProj,
+			Equality<? super NCmp> uniquenessEquality,
+			Locality duplicateLocality,
+			Function<? super N, ? extends NCmp2> nodeEqualityProj,
+			HashNodeEquality<? super NCmp2, ? super N> nodeEquality,
+			Function<? super N, ? extends V> ret) {
+		// equal prefixes are not adjacent in this store, so we can only rely on global uniqueness
+		final Filter<N> filter = HashStore.Helper.<N, NCmp>forUniqueness(uniquenessEqualityProj, uniquenessEquality, Locality.GLOBAL);
+		return new TableIterator<NCmp2, V>(filter, nodeEqualityProj, nodeEquality, ret);
+	}
+
+	@Override
+	public <V> Spliterator<V> spliterator(Function<? super N, ? extends V> ret, int characteristics) {
+		return new SlotSpliterator<V>(nodes, 0, nodes.length, totalNodeCount, characteristics | Spliterator.SIZED, ret);
+	}
+
+	@Override
+	public <V> boolean visit(int partition, int partitions, Function<? super N, ? extends V> ret, Visitor<? super V> visitor) {
+		HashStore.Helper.checkPartition(partition, partitions);
+		final N[] nodes = this.nodes;
+		final int end = HashStore.Helper.partitionStart(nodes.length, partition + 1, partitions);
+		for (int i = HashStore.Helper.partitionStart(nodes.length, partition, partitions) ; i != end ; i++) {
+			final N n = nodes[i];
+			if (n != null && !visitor.visit(ret.apply(n)))
+				return false;
+		}
+		return true;
+	}
+
+	// **************************************************
+	// ITERATOR CLASSES
+	// **************************************************
+
+	final class SearchIterator<NCmp, V> implements Iterator<V> {
+
+		final List<N> matches;
+		final Function<? super N, ? extends NCmp> nodeEqualityProj;
+		final HashNodeEquality<? super NCmp, ? super N> nodeEquality;
+		final Function<? super N, ? extends V> ret;
+		int next = 0;
+
+		SearchIterator(List<N> matches, Function<? super N, ? extends NCmp> nodeEqualityProj,
+				HashNodeEquality<? super NCmp, ? super N> nodeEquality, Function<? super N, ? extends V> ret) {
+			this.matches = matches;
+			this.nodeEqualityProj = nodeEqualityProj;
+			this.nodeEquality = nodeEquality;
+			this.ret = ret;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != matches.size();
+		}
+
+		@Override
+		public V next() {
+			if (next == matches.size())
+				throw new NoSuchElementException();
+			return ret.apply(matches.get(next++));
+		}
+
+		@Override
+		public void remove() {
+			if (next == 0)
+				throw new NoSuchElementException();
+			removeNode(nodeEqualityProj, nodeEquality, matches.get(next - 1));
+		}
+
+	}
+
+	/**
+	 * Visits the table in slot order. Removing a node shifts later nodes in its probe sequence back towards their home
+	 * slots, so once the last node we returned has been removed (by us or directly on the store) we resume from its
+	 * slot; the only nodes that can be moved behind us into the unvisited part of the table are those whose probe
+	 * sequence wraps around its end, which the store records and we then skip.
+	 */
+	final class TableIterator<NCmp, V> implements Iterator<V> {
+
+		final N[] nodes;
+		final Filter<N> filter;
+		final Function<? super N, ? extends NCmp> nodeEqualityProj;
+		final HashNodeEquality<? super NCmp, ? super N> nodeEquality;
+		final Function<? super N, ? extends V> ret;
+		List<N> visited;
+		int index;
+		int nextIndex, prevIndex;
+		N prev, next;
+		boolean removed;
+
+		TableIterator(Filter<N> filter, Function<? super N, ? extends NCmp> nodeEqualityProj,
+				HashNodeEquality<? super NCmp, ? super N> nodeEquality, Function<? super N, ? extends V> ret) {
+			this.nodes = OpenHashStore.this.nodes;
+			this.filter = filter;
+			this.nodeEqualityProj = nodeEqualityProj;
+			this.nodeEquality = nodeEquality;
+			this.ret = ret;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (next == null && prev != null && nodes == OpenHashStore.this.nodes && nodes[prevIndex] != prev)
+				rewind();
+			while (next == null) {
+				if (index == nodes.length)
+					return false;
+				final N n = nodes[index++];
+				if (n != null && !skip(n) && (filter == null || filter.accept(n))) {
+					next = n;
+					nextIndex = index - 1;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public V next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			prev = next;
+			prevIndex = nextIndex;
+			removed = false;
+			next = null;
+			return ret.apply(prev);
+		}
+
+		@Override
+		public void remove() {
+			if (prev == null || removed)
+				throw new NoSuchElementException();
+			removed = true;
+			if (nodes == OpenHashStore.this.nodes && nodes[prevIndex] == prev) {
+				delete(prevIndex);
+				totalNodeCount -= 1;
+				if (nodeEquality == null || !containsPrefix(prev.hash, nodeEqualityProj.apply(prev), nodeEquality))
+					uniquePrefixCount -= 1;
+				// if we have already moved on to the next node it may be shifted into the region we are about to revisit
+				if (next != null)
+					visit(next);
+				rewind();
+			} else {
+				removeNode(nodeEqualityProj, nodeEquality, prev);
+			}
+		}
+
+		private void rewind() {
+			index = prevIndex;
+			if (lastDeleted == prevIndex && lastWrapped != null)
+				for (int i = 0 ; i != lastWrapped.size() ; i++)
+					visit(lastWrapped.get(i));
+			prev = null;
+		}
+
+		private void visit(N n) {
+			if (visited == null)
+				visited = new ArrayList<N>(4);
+			visited.add(n);
+		}
+
+		private boolean skip(N n) {
+			if (visited != null)
+				for (int i = 0 ; i != visited.size() ; i++)
+					if (visited.get(i) == n)
+						return true;
+			return false;
+		}
+
+	}
+
+	/**
+	 * Visits a contiguous range of slots, splitting by halving the range. The store must not be modified during
+	 * traversal; a resize is detected, but other modifications may not be.
+	 */
+	final class SlotSpliterator<V> implements Spliterator<V> {
+
+		final N[] nodes;
+		final Function<? super N, ? extends V> ret;
+		int characteristics;
+		int index, end;
+		long estimate;
+
+		SlotSpliterator(N[] nodes, int index, int end, long estimate, int characteristics, Function<? super N, ? extends V> ret) {
+			this.nodes = nodes;
+			this.index = index;
+			this.end = end;
+			this.estimate = estimate;
+			this.characteristics = characteristics;
+			this.ret = ret;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super V> action) {
+			if (nodes != OpenHashStore.this.nodes)
+				throw new ConcurrentModificationException();
+			while (index != end) {
+				final N n = nodes[index++];
+				if (n != null) {
+					action.accept(ret.apply(n));
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super V> action) {
+			final N[] nodes = this.nodes;
+			final int end = this.end;
+			int index = this.index;
+			this.index = end;
+			while (index != end) {
+				final N n = nodes[index++];
+				if (n != null)
+					action.accept(ret.apply(n));
+			}
+			if (nodes != OpenHashStore.this.nodes)
+				throw new ConcurrentModificationException();
+		}
+
+		@Override
+		public Spliterator<V> trySplit() {
+			final int mid = (index + end) >>> 1;
+			if (mid == index)
+				return null;
+			characteristics &= ~Spliterator.SIZED;
+			estimate >>>= 1;
+			final SlotSpliterator<V> split = new SlotSpliterator<V>(nodes, mid, end, estimate, characteristics, ret);
+			end = mid;
+			return split;
+		}
+
+		@Override
+		public long estimateSize() {
+			return estimate;
+		}
+
+		@Override
+		public int characteristics() {
+			return characteristics;
+		}
+
+	}
+
+	private final class ClearedIterator<V> implements Iterator<V> {
+
+		final N[] nodes;
+		final Function<? super N, ? extends V> f;
+		int next = -1;
+
+		ClearedIterator(N[] nodes, Function<? super N, ? extends V> f) {
+			this.nodes = nodes;
+			this.f = f;
+			advance();
+		}
+
+		private void advance() {
+			next++;
+			while (next != nodes.length && nodes[next] == null)
+				next++;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != nodes.length;
+		}
+
+		@Override
+		public V next() {
+			if (next == nodes.length)
+				throw new NoSuchElementException();
+			final N r = nodes[next];
+			advance();
+			return f.apply(r);
+		}
+
+		@Override
+		public void remove() {
+			// no op - already removed
+		}
+
+	}
+
+	// **************************************************
+	// PRIVATE METHODS
+	// **************************************************
+
+	private <NCmp> int remove(int hash, int removeAtMost, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq, List<N> removed, boolean copy) {
+		final boolean eqIsUniq = eq.isUnique();
+		final N[] nodes = this.nodes;
+		final int[] hashes = this.hashes;
+		final int mask = nodes.length - 1;
+		boolean keptNeighbours = false;
+		int r = 0;
+		int i = hash & mask;
+		N n;
+		while ((n = nodes[i]) != null) {
+			if (hashes[i] == hash && eq.prefixMatch(find, n)) {
+				if (r != removeAtMost && eq.suffixMatch(find, n)) {
+					// the backward shift may move an unvisited node into this slot, so we do not advance
+					delete(i);
+					r++;
+					if (removed != null)
+						removed.add(copy ? n.copy() : n);
+					if (eqIsUniq)
+						break;
+					continue;
+				}
+				keptNeighbours = true;
+				if (eqIsUniq)
+					break;
+			}
+			i = (i + 1) & mask;
+		}
+		if (r != 0) {
+			totalNodeCount -= r;
+			if (!keptNeighbours && !(eqIsUniq && containsPrefix(hash, find, eq)))
+				uniquePrefixCount -= 1;
+		}
+		return r;
+	}
+
+	private <NCmp> boolean containsPrefix(int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq) {
+		final N[] nodes = this.nodes;
+		final int[] hashes = this.hashes;
+		final int mask = nodes.length - 1;
+		int i = hash & mask;
+		N n;
+		while ((n = nodes[i]) != null) {
+			if (hashes[i] == hash && eq.prefixMatch(find, n))
+				return true;
+			i = (i + 1) & mask;
+		}
+		return false;
+	}
+
+	private <NCmp> List<N> matches(int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq) {
+		final N[] nodes = this.nodes;
+		final int[] hashes = this.hashes;
+		final int mask = nodes.length - 1;
+		List<N> r = null;
+		int i = hash & mask;
+		N n;
+		while ((n = nodes[i]) != null) {
+			if (hashes[i] == hash && eq.prefixMatch(find, n) && eq.suffixMatch(find, n)) {
+				if (r == null)
+					r = new ArrayList<N>(eq.isUnique() ? 1 : 4);
+				r.add(n);
+				if (eq.isUnique())
+					break;
+			}
+			i = (i + 1) & mask;
+		}
+		if (r == null)
+			return Collections.emptyList();
+		return r;
+	}
+
+	/**
+	 * empties slot <code>gap</code> and shifts back any nodes later in the probe sequence that may then be
+	 * moved closer to their home slot; does not maintain the counts
+	 */
+	private void delete(int gap) {
+		final N[] nodes = this.nodes;
+		final int[] hashes = this.hashes;
+		final int mask = nodes.length - 1;
+		lastDeleted = gap;
+		lastWrapped = null;
+		int i = (gap + 1) & mask;
+		N n;
+		while ((n = nodes[i]) != null) {
+			final int home = hashes[i] & mask;
+			// move the node at i into the gap unless its home lies cyclically within (gap, i]
+			if (gap <= i ? (gap >= home || home > i) : (gap >= home && home > i)) {
+				// a node moving from the front of the table to the back has already been visited by any iterator positioned at the deleted slot
+				if (i < lastDeleted && gap >= lastDeleted) {
+					if (lastWrapped == null)
+						lastWrapped = new ArrayList<N>(2);
+					lastWrapped.add(n);
+				}
+				nodes[gap] = n;
+				hashes[gap] = hashes[i];
+				gap = i;
+			}
+			i = (i + 1) & mask;
+		}
+		nodes[gap] = null;
+		hashes[gap] = 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	protected void grow() {
+		final HashStoreCounters counters = this.counters;
+		if (totalNodeCount >= loadLimit) {
+			final long start = counters == null ? 0 : System.nanoTime();
+			final N[] oldNodes = nodes;
+			final int[] oldHashes = hashes;
+			final N[] nodes = (N[]) new HashNode<?>[oldNodes.length << 1];
+			final int[] hashes = new int[nodes.length];
+			final int mask = nodes.length - 1;
+			for (int j = 0 ; j != oldNodes.length ; j++) {
+				final N n = oldNodes[j];
+				if (n != null) {
+					final int hash = oldHashes[j];
+					int i = hash & mask;
+					while (nodes[i] != null)
+						i = (i + 1) & mask;
+					nodes[i] = n;
+					hashes[i] = hash;
+				}
+			}
+			this.nodes = nodes;
+			this.hashes = hashes;
+			this.loadLimit = loadLimit(nodes.length, loadFactor);
+			if (counters != null)
+				counters.resized(System.nanoTime() - start);
+		}
+	}
+
+	// always leave at least one slot empty, so that every probe sequence terminates
+	private static int loadLimit(int capacity, float loadFactor) {
+		return Math.min(capacity - 1, (int) (capacity * loadFactor));
+	}
+
+	public static Rehasher defaultRehasher() {
+		return Rehashers.jdkHashmapRehasher();
+	}
+
+}
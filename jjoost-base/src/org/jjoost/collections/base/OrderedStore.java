@@ -22,6 +22,7 @@
 
 package org.jjoost.collections.base;
 
+import java.io.Serializable;
 import java.util.Comparator;
 import java.util.Iterator;
 
@@ -29,7 +30,7 @@ import org.jjoost.util.FilterPartialOrder;
 import org.jjoost.util.Function;
 import org.jjoost.util.tuples.Pair;
 
-public interface OrderedStore<N, S extends OrderedStore<N, S>> {
+public interface OrderedStore<N, S extends OrderedStore<N, S>> extends Serializable {
 
     public int count();
 	public boolean isEmpty();
@@ -96,5 +97,14 @@ public interface OrderedStore<N, S extends OrderedStore<N, S>> {
 	public <C> int remove(FilterPartialOrder<C> filter, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder);
 	public <C> S removeAndReturn(FilterPartialOrder<C> filter, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder);
 	public <C, V> V removeAndReturnFirst(FilterPartialOrder<C> filter, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends V> ret);
+	
+	// *************************************
+	// ORDER STATISTICS
+	// *************************************
+	
+	// the number of nodes sorting strictly before c
+	public <C> int rank(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp);
+	// the node at the provided position in ascending order, or null if there is none
+	public <V> V select(int index, Function<? super N, ? extends V> ret);
 	
 }
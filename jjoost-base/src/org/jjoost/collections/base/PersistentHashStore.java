@@ -0,0 +1,943 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.base;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import org.jjoost.util.Equality;
+import org.jjoost.util.Filter;
+import org.jjoost.util.Function;
+import org.jjoost.util.Functions;
+import org.jjoost.util.Iters;
+import org.jjoost.util.Rehasher;
+import org.jjoost.util.Rehashers;
+import org.jjoost.util.Visitor;
+
+/**
+ * A serial <code>HashStore</code> backed by a persistent hash array mapped trie. Each level of the trie consumes five
+ * bits of the (rehashed) hash, lowest bits first, and holds only the slots that are occupied, indexed by a bitmap; nodes
+ * sharing an entire hash are kept together in a single immutable bucket, with equal prefixes adjacent.
+ * <p>
+ * <code>copy()</code> is O(1): the two stores share the trie, and either may subsequently be modified without affecting
+ * the other, by copying only the O(log32 n) branches on the path to the modification. Each store is given an edit token
+ * when it is created or copied, and modifies in place any branch it created under its current token, so a store that
+ * has not been copied (such as during a bulk load) allocates little more than a mutable store would.
+ * <p>
+ * Iterators and spliterators operate over a snapshot of the trie taken when they are created, so they are never
+ * invalidated by modifications to the store; removal through an iterator is supported. Since nodes may be shared with
+ * copies of the store, collections using this store must not offer any means of modifying a node in place.
+ *
+ * @author b.elliottsmith
+ */
+public class PersistentHashStore<N extends HashNode<N>> implements HashStore<N, PersistentHashStore<N>> {
+
+	private static final long serialVersionUID = 3925068710419637290L;
+
+	private static final int BITS = 5;
+	private static final int MASK = (1 << BITS) - 1;
+	// a branch at depth 6 consumes the top two bits of the hash, so no path has more than seven branches
+	private static final int MAX_DEPTH = 8;
+
+	protected Branch root;
+	protected int totalNodeCount;
+	protected int uniquePrefixCount;
+
+	// branches created under this token may be modified in place; a new token is taken whenever the trie is shared
+	private transient Object edit = new Object();
+	// non-null only whilst statistics are being recorded
+	private transient volatile HashStoreCounters counters;
+
+	public PersistentHashStore() {
+		this.root = new Branch(edit, 0, new Object[0]);
+	}
+
+	protected PersistentHashStore(Branch root, int totalNodeCount, int uniquePrefixCount) {
+		this.root = root;
+		this.totalNodeCount = totalNodeCount;
+		this.uniquePrefixCount = uniquePrefixCount;
+	}
+
+	// **************************************************
+	// PUBLIC METHODS
+	// **************************************************
+
+	/**
+	 * the trie grows one branch at a time, so it has no capacity beyond the nodes it holds
+	 */
+	@Override
+	public int capacity() {
+		return totalNodeCount;
+	}
+
+	@Override
+	public int totalCount() {
+		return totalNodeCount;
+	}
+
+	@Override
+	public int uniquePrefixCount() {
+		return uniquePrefixCount;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return totalNodeCount == 0;
+	}
+
+	@Override
+	public int clear() {
+		final int r = totalNodeCount;
+		totalNodeCount = 0;
+		uniquePrefixCount = 0;
+		root = new Branch(edit, 0, new Object[0]);
+		return r;
+	}
+
+	@Override
+	public <V> Iterator<V> clearAndReturn(Function<? super N, ? extends V> f) {
+		final Iterator<V> r = new ClearedIterator<V>(new Cursor(root), f);
+		clear();
+		return r;
+	}
+
+	/**
+	 * returns a store sharing this store's trie and nodes; the nodes are not copied, as neither store may modify them
+	 */
+	@Override
+	public <NCmp> PersistentHashStore<N> copy(Function<? super N, ? extends NCmp> nodeEqualityProj, HashNodeEquality<? super NCmp, ? super N> nodeEquality) {
+		edit = new Object();
+		return new PersistentHashStore<N>(root, totalNodeCount, uniquePrefixCount);
+	}
+
+	@Override
+	public String toString() {
+		return "{" + Iters.toString(all(null, null, Functions.<N>toString(true)), ", ") + "}";
+	}
+
+	@Override
+	public void recordStatistics(boolean record) {
+		counters = record ? HashStoreCounters.serial() : null;
+	}
+
+	/**
+	 * the chain length histogram records the number of branches traversed to reach each node, and the capacity the
+	 * total number of slots allocated across all branches
+	 */
+	@Override
+	public HashStoreStatistics statistics() {
+		final long[][] depths = new long[][] { new long[MAX_DEPTH] };
+		final int slots = statistics(root, 1, depths);
+		return new HashStoreStatistics(totalNodeCount, uniquePrefixCount, slots, depths[0], counters);
+	}
+
+	// **************************************************
+	// public PUT METHODS
+	// **************************************************
+
+	@Override
+	public <NCmp, V> V put(PutAction action, NCmp find, N put, HashNodeEquality<? super NCmp, ? super N> eq, Function<? super N, ? extends V> ret) {
+		final HashStoreCounters counters = this.counters;
+		assert (action != PutAction.ENSUREANDGET);
+		final boolean mayReplace = eq.isUnique();
+		final int hash = put.hash;
+		final Object leaf = leaf(hash);
+		final int size = size(leaf);
+		boolean partial = false;
+		int match = -1, insert = size;
+		for (int i = 0 ; i != size ; i++) {
+			final N n = node(leaf, i);
+			if (eq.prefixMatch(find, n)) {
+				partial = true;
+				insert = i + 1;
+				if (mayReplace && eq.suffixMatch(find, n)) {
+					match = i;
+					break;
+				}
+			}
+		}
+		if (counters != null)
+			counters.put(depth(hash));
+
+		if (match < 0) {
+			if (action == PutAction.REPLACE)
+				return null;
+			store(hash, insert(hash, leaf, size, insert, put));
+			totalNodeCount++;
+			if (!partial)
+				uniquePrefixCount++;
+			return null;
+		}
+		final N n = node(leaf, match);
+		if (action == PutAction.IFABSENT)
+			return ret.apply(n);
+		store(hash, replace(hash, leaf, size, match, put));
+		return ret.apply(n);
+	}
+
+	@Override
+	public <NCmp, V> V put(PutAction action, final int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq, HashNodeFactory<? super NCmp, N> factory, Function<? super N, ? extends V> ret) {
+		final HashStoreCounters counters = this.counters;
+		final boolean mayReplace = eq.isUnique();
+		final Object leaf = leaf(hash);
+		final int size = size(leaf);
+		boolean partial = false;
+		int match = -1, insert = size;
+		for (int i = 0 ; i != size ; i++) {
+			final N n = node(leaf, i);
+			if (eq.prefixMatch(find, n)) {
+				partial = true;
+				insert = i + 1;
+				if (mayReplace && eq.suffixMatch(find, n)) {
+					match = i;
+					break;
+				}
+			}
+		}
+		if (counters != null)
+			counters.put(depth(hash));
+
+		final N n = match < 0 ? null : node(leaf, match);
+		final N put, r;
+		switch (action) {
+		case IFABSENT:
+			if (n != null)
+				return ret.apply(n);
+			put = factory.makeNode(hash, find);
+			r = null;
+			break;
+		case ENSUREANDGET:
+			if (n != null)
+				return ret.apply(n);
+			put = factory.makeNode(hash, find);
+			r = put;
+			break;
+		case REPLACE:
+		case PUT:
+			if (n == null && action == PutAction.REPLACE)
+				return null;
+			put = factory.makeNode(hash, find);
+			r = n;
+			break;
+		default:
+			throw new IllegalStateException();
+		}
+
+		if (n == null) {
+			store(hash, insert(hash, leaf, size, insert, put));
+			totalNodeCount++;
+			if (!partial)
+				uniquePrefixCount++;
+		} else {
+			store(hash, replace(hash, leaf, size, match, put));
+		}
+		return r == null ? null : ret.apply(r);
+	}
+
+	// **************************************************
+	// public REMOVE METHODS
+	// **************************************************
+
+	@Override
+	public <NCmp> int remove(int hash, int removeAtMost, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq) {
+		if (removeAtMost < 1) {
+			if (removeAtMost == 0)
+				return 0;
+			throw new IllegalArgumentException("Cannot remove less than zero elements");
+		}
+		return remove(hash, removeAtMost, find, eq, null, false);
+	}
+
+	@Override
+	public <NCmp, V> V removeAndReturnFirst(int hash, int removeAtMost, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq, Function<? super N, ? extends V> ret) {
+		if (removeAtMost < 1) {
+			if (removeAtMost == 0)
+				return null;
+			throw new IllegalArgumentException("Cannot remove less than zero elements");
+		}
+		final List<N> removed = new ArrayList<N>(1);
+		remove(hash, removeAtMost, find, eq, removed, false);
+		return removed.isEmpty() ? null : ret.apply(removed.get(0));
+	}
+
+	@Override
+	public <NCmp, V> Iterable<V> removeAndReturn(int hash, int removeAtMost, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq, Function<? super N, ? extends V> ret) {
+		if (removeAtMost < 1) {
+			if (removeAtMost == 0)
+				return Collections.emptyList();
+			throw new IllegalArgumentException("Cannot remove less than zero elements");
+		}
+		final List<N> removed = new ArrayList<N>(eq.isUnique() ? 1 : 4);
+		remove(hash, removeAtMost, find, eq, removed, true);
+		return Functions.apply(ret, removed);
+	}
+
+	@Override
+	public <NCmp> boolean removeNode(Function<? super N, ? extends NCmp> nodePrefixEqFunc, HashNodeEquality<? super NCmp, ? super N> nodePrefixEq, N n) {
+		final int hash = n.hash;
+		final Object leaf = leaf(hash);
+		final int size = size(leaf);
+		int i = 0;
+		while (i != size && node(leaf, i) != n)
+			i++;
+		if (i == size)
+			return false;
+		final HashNode<?>[] keep = new HashNode<?>[size - 1];
+		boolean keptNeighbours = false;
+		final NCmp find = nodePrefixEq == null ? null : nodePrefixEqFunc.apply(n);
+		for (int j = 0, k = 0 ; j != size ; j++) {
+			if (j == i)
+				continue;
+			final N m = node(leaf, j);
+			if (nodePrefixEq != null && !keptNeighbours && nodePrefixEq.prefixMatch(find, m))
+				keptNeighbours = true;
+			keep[k++] = m;
+		}
+		store(hash, leaf(hash, keep, keep.length));
+		totalNodeCount -= 1;
+		if (!keptNeighbours)
+			uniquePrefixCount -= 1;
+		return true;
+	}
+
+	// **************************************************
+	// public MEMBERSHIP METHODS
+	// **************************************************
+
+	@Override
+	public <NCmp> int count(int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq, int countUpTo) {
+		final HashStoreCounters counters = this.counters;
+		if (countUpTo < 1)
+			return 0;
+		final boolean stopAtOne = eq.isUnique() | countUpTo == 1;
+		final Object leaf = leaf(hash);
+		final int size = size(leaf);
+		int count = 0;
+		for (int i = 0 ; i != size ; i++) {
+			final N n = node(leaf, i);
+			if (eq.prefixMatch(find, n) && eq.suffixMatch(find, n)) {
+				if (++count == countUpTo | stopAtOne)
+					break;
+			}
+		}
+		if (counters != null)
+			counters.find(depth(hash));
+		return count;
+	}
+
+	// **************************************************
+	// public RETRIEVAL METHODS
+	// **************************************************
+
+	@Override
+	public <NCmp, V> V first(int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq, Function<? super N, ? extends V> ret) {
+		final HashStoreCounters counters = this.counters;
+		final Object leaf = leaf(hash);
+		final int size = size(leaf);
+		if (counters != null)
+			counters.find(depth(hash));
+		for (int i = 0 ; i != size ; i++) {
+			final N n = node(leaf, i);
+			if (eq.prefixMatch(find, n) && eq.suffixMatch(find, n))
+				return ret.apply(n);
+		}
+		return null;
+	}
+
+	@Override
+	public <NCmp, V> List<V> findNow(int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> findEq, Function<? super N, ? extends V> ret) {
+		final List<N> matches = matches(hash, find, findEq);
+		if (matches.isEmpty())
+			return Collections.emptyList();
+		final List<V> r = new ArrayList<V>(matches.size());
+		for (N n : matches)
+			r.add(ret.apply(n));
+		return r;
+	}
+
+	@Override
+	public <NCmp, NCmp2, V> Iterator<V> find(int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> findEq,
+			Function<? super N, ? extends NCmp2> nodeEqualityProj, HashNodeEquality<? super NCmp2, ? super N> nodeEq,
+			Function<? super N, ? extends V> ret) {
+		return new SearchIterator<NCmp2, V>(matches(hash, find, findEq), nodeEqualityProj, nodeEq, ret);
+	}
+
+	@Override
+	public <NCmp, V> Iterator<V> all(Function<? super N, ? extends NCmp> nodeEqualityProj, HashNodeEquality<? super NCmp, ? super N> nodeEquality, Function<? super N, ? extends V> ret) {
+		return new TrieIterator<NCmp, V>(snapshot(), null, nodeEqualityProj, nodeEquality, ret);
+	}
+
+	@Override
+	public <NCmp, NCmp2, V> Iterator<V> unique(
+			Function<? super N, ? extends NCmp> uniquenessEqualityProj,
+			Equality<? super NCmp> uniquenessEquality,
+			Locality duplicateLocality,
+			Function<? super N, ? extends NCmp2> nodeEqualityProj,
+			HashNodeEquality<? super NCmp2, ? super N> nodeEquality,
+			Function<? super N, ? extends V> ret) {
+		final Filter<N> filter = HashStore.Helper.<N, NCmp>forUniqueness(uniquenessEqualityProj, uniquenessEquality, duplicateLocality);
+		return new TrieIterator<NCmp2, V>(snapshot(), filter, nodeEqualityProj, nodeEquality, ret);
+	}
+
+	@Override
+	public <V> Spliterator<V> spliterator(Function<? super N, ? extends V> ret, int characteristics) {
+		final Branch root = snapshot();
+		return new TrieSpliterator<V>(root.slots, 0, root.slots.length, totalNodeCount, characteristics | Spliterator.SIZED, ret);
+	}
+
+	@Override
+	public <V> boolean visit(int partition, int partitions, Function<? super N, ? extends V> ret, Visitor<? super V> visitor) {
+		HashStore.Helper.checkPartition(partition, partitions);
+		final Object[] slots = snapshot().slots;
+		final int end = HashStore.Helper.partitionStart(slots.length, partition + 1, partitions);
+		for (int i = HashStore.Helper.partitionStart(slots.length, partition, partitions) ; i != end ; i++)
+			if (!visit(slots[i], ret, visitor))
+				return false;
+		return true;
+	}
+
+	// visits, depth first, every node reachable from a slot; the trie is at most MAX_DEPTH deep, so we can safely recurse
+	@SuppressWarnings("unchecked")
+	private <V> boolean visit(Object slot, Function<? super N, ? extends V> ret, Visitor<? super V> visitor) {
+		if (slot instanceof Branch) {
+			for (Object child : ((Branch) slot).slots)
+				if (!visit(child, ret, visitor))
+					return false;
+		} else if (slot instanceof Bucket) {
+			for (HashNode<?> n : ((Bucket) slot).nodes)
+				if (!visitor.visit(ret.apply((N) n)))
+					return false;
+		} else if (slot != null) {
+			return visitor.visit(ret.apply((N) slot));
+		}
+		return true;
+	}
+
+	// **************************************************
+	// TRIE CLASSES
+	// **************************************************
+
+	protected static final class Branch implements Serializable {
+		private static final long serialVersionUID = -7001395722497950227L;
+		// the store that created this branch, if it may still modify it in place
+		transient Object edit;
+		int bitmap;
+		Object[] slots;
+		Branch(Object edit, int bitmap, Object[] slots) {
+			this.edit = edit;
+			this.bitmap = bitmap;
+			this.slots = slots;
+		}
+	}
+
+	// two or more nodes with the same hash; never modified once created
+	protected static final class Bucket implements Serializable {
+		private static final long serialVersionUID = 4590118364318213337L;
+		final int hash;
+		final HashNode<?>[] nodes;
+		Bucket(int hash, HashNode<?>[] nodes) {
+			this.hash = hash;
+			this.nodes = nodes;
+		}
+	}
+
+	// visits, depth first, every node reachable from a slot
+	static final class Cursor {
+
+		final Object[][] stack = new Object[MAX_DEPTH][];
+		final int[] index = new int[MAX_DEPTH];
+		int depth = -1;
+		HashNode<?>[] bucket;
+		int bucketIndex;
+		Object node;
+
+		Cursor(Object slot) {
+			push(slot);
+		}
+
+		private void push(Object slot) {
+			if (slot instanceof Branch) {
+				stack[++depth] = ((Branch) slot).slots;
+				index[depth] = 0;
+			} else if (slot instanceof Bucket) {
+				bucket = ((Bucket) slot).nodes;
+				bucketIndex = 0;
+			} else {
+				node = slot;
+			}
+		}
+
+		Object next() {
+			while (true) {
+				if (node != null) {
+					final Object r = node;
+					node = null;
+					return r;
+				}
+				if (bucket != null) {
+					if (bucketIndex != bucket.length)
+						return bucket[bucketIndex++];
+					bucket = null;
+				}
+				if (depth < 0)
+					return null;
+				if (index[depth] == stack[depth].length) {
+					stack[depth--] = null;
+					continue;
+				}
+				push(stack[depth][index[depth]++]);
+			}
+		}
+
+	}
+
+	// **************************************************
+	// ITERATOR CLASSES
+	// **************************************************
+
+	final class SearchIterator<NCmp, V> implements Iterator<V> {
+
+		final List<N> matches;
+		final Function<? super N, ? extends NCmp> nodeEqualityProj;
+		final HashNodeEquality<? super NCmp, ? super N> nodeEquality;
+		final Function<? super N, ? extends V> ret;
+		int next = 0;
+
+		SearchIterator(List<N> matches, Function<? super N, ? extends NCmp> nodeEqualityProj,
+				HashNodeEquality<? super NCmp, ? super N> nodeEquality, Function<? super N, ? extends V> ret) {
+			this.matches = matches;
+			this.nodeEqualityProj = nodeEqualityProj;
+			this.nodeEquality = nodeEquality;
+			this.ret = ret;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != matches.size();
+		}
+
+		@Override
+		public V next() {
+			if (next == matches.size())
+				throw new NoSuchElementException();
+			return ret.apply(matches.get(next++));
+		}
+
+		@Override
+		public void remove() {
+			if (next == 0)
+				throw new NoSuchElementException();
+			removeNode(nodeEqualityProj, nodeEquality, matches.get(next - 1));
+		}
+
+	}
+
+	final class TrieIterator<NCmp, V> implements Iterator<V> {
+
+		final Cursor cursor;
+		final Filter<N> filter;
+		final Function<? super N, ? extends NCmp> nodeEqualityProj;
+		final HashNodeEquality<? super NCmp, ? super N> nodeEquality;
+		final Function<? super N, ? extends V> ret;
+		N prev, next;
+
+		TrieIterator(Branch root, Filter<N> filter, Function<? super N, ? extends NCmp> nodeEqualityProj,
+				HashNodeEquality<? super NCmp, ? super N> nodeEquality, Function<? super N, ? extends V> ret) {
+			this.cursor = new Cursor(root);
+			this.filter = filter;
+			this.nodeEqualityProj = nodeEqualityProj;
+			this.nodeEquality = nodeEquality;
+			this.ret = ret;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public boolean hasNext() {
+			while (next == null) {
+				final N n = (N) cursor.next();
+				if (n == null)
+					return false;
+				if (filter == null || filter.accept(n))
+					next = n;
+			}
+			return true;
+		}
+
+		@Override
+		public V next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			prev = next;
+			next = null;
+			return ret.apply(prev);
+		}
+
+		@Override
+		public void remove() {
+			if (prev == null)
+				throw new NoSuchElementException();
+			removeNode(nodeEqualityProj, nodeEquality, prev);
+			prev = null;
+		}
+
+	}
+
+	/**
+	 * Visits a contiguous range of slots of one branch, splitting by halving the range, or by descending into the
+	 * branch occupying the range if it has only one slot.
+	 */
+	final class TrieSpliterator<V> implements Spliterator<V> {
+
+		final Function<? super N, ? extends V> ret;
+		Object[] slots;
+		int characteristics;
+		int index, end;
+		long estimate;
+		Cursor cursor;
+
+		TrieSpliterator(Object[] slots, int index, int end, long estimate, int characteristics, Function<? super N, ? extends V> ret) {
+			this.slots = slots;
+			this.index = index;
+			this.end = end;
+			this.estimate = estimate;
+			this.characteristics = characteristics;
+			this.ret = ret;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public boolean tryAdvance(Consumer<? super V> action) {
+			while (true) {
+				if (cursor != null) {
+					final N n = (N) cursor.next();
+					if (n != null) {
+						action.accept(ret.apply(n));
+						return true;
+					}
+					cursor = null;
+				}
+				if (index == end)
+					return false;
+				cursor = new Cursor(slots[index++]);
+			}
+		}
+
+		@Override
+		public Spliterator<V> trySplit() {
+			if (cursor != null)
+				return null;
+			if (end - index == 1 && slots[index] instanceof Branch) {
+				slots = ((Branch) slots[index]).slots;
+				index = 0;
+				end = slots.length;
+			}
+			final int mid = (index + end) >>> 1;
+			if (mid == index)
+				return null;
+			characteristics &= ~Spliterator.SIZED;
+			estimate >>>= 1;
+			final TrieSpliterator<V> split = new TrieSpliterator<V>(slots, mid, end, estimate, characteristics, ret);
+			end = mid;
+			return split;
+		}
+
+		@Override
+		public long estimateSize() {
+			return estimate;
+		}
+
+		@Override
+		public int characteristics() {
+			return characteristics;
+		}
+
+	}
+
+	private final class ClearedIterator<V> implements Iterator<V> {
+
+		final Cursor cursor;
+		final Function<? super N, ? extends V> f;
+		Object next;
+
+		ClearedIterator(Cursor cursor, Function<? super N, ? extends V> f) {
+			this.cursor = cursor;
+			this.f = f;
+			this.next = cursor.next();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public V next() {
+			if (next == null)
+				throw new NoSuchElementException();
+			final N r = (N) next;
+			next = cursor.next();
+			return f.apply(r);
+		}
+
+		@Override
+		public void remove() {
+			// no op - already removed
+		}
+
+	}
+
+	// **************************************************
+	// PRIVATE METHODS
+	// **************************************************
+
+	private <NCmp> int remove(int hash, int removeAtMost, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq, List<N> removed, boolean copy) {
+		final Object leaf = leaf(hash);
+		final int size = size(leaf);
+		if (size == 0)
+			return 0;
+		final HashNode<?>[] keep = new HashNode<?>[size];
+		boolean keptNeighbours = false;
+		int r = 0, kept = 0;
+		for (int i = 0 ; i != size ; i++) {
+			final N n = node(leaf, i);
+			if (eq.prefixMatch(find, n)) {
+				if (r != removeAtMost && eq.suffixMatch(find, n)) {
+					r++;
+					if (removed != null)
+						removed.add(copy ? n.copy() : n);
+					continue;
+				}
+				keptNeighbours = true;
+			}
+			keep[kept++] = n;
+		}
+		if (r != 0) {
+			store(hash, leaf(hash, keep, kept));
+			totalNodeCount -= r;
+			if (!keptNeighbours)
+				uniquePrefixCount -= 1;
+		}
+		return r;
+	}
+
+	private <NCmp> List<N> matches(int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq) {
+		final Object leaf = leaf(hash);
+		final int size = size(leaf);
+		List<N> r = null;
+		for (int i = 0 ; i != size ; i++) {
+			final N n = node(leaf, i);
+			if (eq.prefixMatch(find, n) && eq.suffixMatch(find, n)) {
+				if (r == null)
+					r = new ArrayList<N>(eq.isUnique() ? 1 : 4);
+				r.add(n);
+				if (eq.isUnique())
+					break;
+			}
+		}
+		if (r == null)
+			return Collections.emptyList();
+		return r;
+	}
+
+	// prevents any branch reachable from the current root being modified in place, and returns the root
+	private Branch snapshot() {
+		edit = new Object();
+		return root;
+	}
+
+	// returns the node or bucket with exactly the provided hash, or null if there is none
+	private Object leaf(int hash) {
+		Object slot = root;
+		int shift = 0;
+		while (slot instanceof Branch) {
+			final Branch branch = (Branch) slot;
+			final int bit = 1 << ((hash >>> shift) & MASK);
+			if ((branch.bitmap & bit) == 0)
+				return null;
+			slot = branch.slots[Integer.bitCount(branch.bitmap & (bit - 1))];
+			shift += BITS;
+		}
+		return hash(slot) == hash ? slot : null;
+	}
+
+	// the number of branches visited to find the provided hash
+	private int depth(int hash) {
+		Object slot = root;
+		int depth = 0, shift = 0;
+		while (slot instanceof Branch) {
+			final Branch branch = (Branch) slot;
+			final int bit = 1 << ((hash >>> shift) & MASK);
+			depth++;
+			if ((branch.bitmap & bit) == 0)
+				break;
+			slot = branch.slots[Integer.bitCount(branch.bitmap & (bit - 1))];
+			shift += BITS;
+		}
+		return depth;
+	}
+
+	private static int size(Object leaf) {
+		return leaf == null ? 0 : leaf instanceof Bucket ? ((Bucket) leaf).nodes.length : 1;
+	}
+
+	@SuppressWarnings("unchecked")
+	private N node(Object leaf, int i) {
+		return (N) (leaf instanceof Bucket ? ((Bucket) leaf).nodes[i] : leaf);
+	}
+
+	private static int hash(Object slot) {
+		return slot instanceof Bucket ? ((Bucket) slot).hash : ((HashNode<?>) slot).hash;
+	}
+
+	private static Object leaf(int hash, HashNode<?>[] nodes, int count) {
+		switch (count) {
+		case 0:
+			return null;
+		case 1:
+			return nodes[0];
+		default:
+			final HashNode<?>[] trimmed = new HashNode<?>[count];
+			System.arraycopy(nodes, 0, trimmed, 0, count);
+			return new Bucket(hash, trimmed);
+		}
+	}
+
+	private Object insert(int hash, Object leaf, int size, int index, N put) {
+		if (size == 0)
+			return put;
+		final HashNode<?>[] nodes = new HashNode<?>[size + 1];
+		for (int i = 0 ; i != index ; i++)
+			nodes[i] = node(leaf, i);
+		nodes[index] = put;
+		for (int i = index ; i != size ; i++)
+			nodes[i + 1] = node(leaf, i);
+		return new Bucket(hash, nodes);
+	}
+
+	private static Object replace(int hash, Object leaf, int size, int index, HashNode<?> put) {
+		if (size == 1)
+			return put;
+		final HashNode<?>[] nodes = ((Bucket) leaf).nodes.clone();
+		nodes[index] = put;
+		return new Bucket(hash, nodes);
+	}
+
+	// sets the leaf for the provided hash, removing it if null
+	private void store(int hash, Object leaf) {
+		root = store(root, 0, hash, leaf);
+	}
+
+	private Branch store(Branch branch, int shift, int hash, Object leaf) {
+		final int bit = 1 << ((hash >>> shift) & MASK);
+		final int i = Integer.bitCount(branch.bitmap & (bit - 1));
+		if ((branch.bitmap & bit) == 0) {
+			if (leaf == null)
+				return branch;
+			final Object[] slots = new Object[branch.slots.length + 1];
+			System.arraycopy(branch.slots, 0, slots, 0, i);
+			slots[i] = leaf;
+			System.arraycopy(branch.slots, i, slots, i + 1, branch.slots.length - i);
+			return editable(branch, branch.bitmap | bit, slots);
+		}
+		final Object cur = branch.slots[i];
+		final Object replace;
+		if (cur instanceof Branch) {
+			final Branch child = store((Branch) cur, shift + BITS, hash, leaf);
+			if (child.bitmap == 0)
+				replace = null;
+			else if (child.slots.length == 1 && !(child.slots[0] instanceof Branch))
+				// a branch holding a single leaf is never retained below the root
+				replace = child.slots[0];
+			else
+				replace = child;
+			if (replace == cur)
+				return branch;
+		} else if (hash(cur) == hash) {
+			replace = leaf;
+		} else {
+			if (leaf == null)
+				return branch;
+			replace = split(shift + BITS, cur, hash(cur), leaf, hash);
+		}
+		if (replace == null) {
+			final Object[] slots = new Object[branch.slots.length - 1];
+			System.arraycopy(branch.slots, 0, slots, 0, i);
+			System.arraycopy(branch.slots, i + 1, slots, i, slots.length - i);
+			return editable(branch, branch.bitmap & ~bit, slots);
+		}
+		final Branch r = editable(branch, branch.bitmap, branch.edit == edit ? branch.slots : branch.slots.clone());
+		r.slots[i] = replace;
+		return r;
+	}
+
+	// returns a branch with the provided contents, modifying the provided branch if we own it
+	private Branch editable(Branch branch, int bitmap, Object[] slots) {
+		if (branch.edit != edit)
+			return new Branch(edit, bitmap, slots);
+		branch.bitmap = bitmap;
+		branch.slots = slots;
+		return branch;
+	}
+
+	// creates the branches necessary to separate two leaves whose hashes agree in all bits below shift
+	private Branch split(int shift, Object a, int hashA, Object b, int hashB) {
+		final int ia = (hashA >>> shift) & MASK, ib = (hashB >>> shift) & MASK;
+		if (ia == ib)
+			return new Branch(edit, 1 << ia, new Object[] { split(shift + BITS, a, hashA, b, hashB) });
+		return new Branch(edit, (1 << ia) | (1 << ib), ia < ib ? new Object[] { a, b } : new Object[] { b, a });
+	}
+
+	private static int statistics(Branch branch, int depth, long[][] depths) {
+		int slots = branch.slots.length;
+		for (Object slot : branch.slots) {
+			if (slot instanceof Branch) {
+				slots += statistics((Branch) slot, depth + 1, depths);
+			} else {
+				for (int i = size(slot) ; i != 0 ; i--)
+					depths[0] = HashStoreStatistics.increment(depths[0], depth);
+			}
+		}
+		return slots;
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		// deserialized branches have no owner, so are copied before their first modification
+		edit = new Object();
+	}
+
+	public static Rehasher defaultRehasher() {
+		return Rehashers.jdkHashmapRehasher();
+	}
+
+}
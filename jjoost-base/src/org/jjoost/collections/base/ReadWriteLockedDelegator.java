@@ -0,0 +1,1408 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.collections.base;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.locks.StampedLock;
+
+import org.jjoost.collections.AnyMap;
+import org.jjoost.collections.AnyReadMap;
+import org.jjoost.collections.AnyReadSet;
+import org.jjoost.collections.AnySet;
+import org.jjoost.collections.ListMap;
+import org.jjoost.collections.Map;
+import org.jjoost.collections.MultiMap;
+import org.jjoost.collections.MultiSet;
+import org.jjoost.collections.ReadMap;
+import org.jjoost.collections.ReadSet;
+import org.jjoost.collections.Set;
+import org.jjoost.collections.UnitaryReadSet;
+import org.jjoost.collections.UnitarySet;
+import org.jjoost.util.Equality;
+import org.jjoost.util.Factory;
+import org.jjoost.util.Function;
+
+/**
+ * A sibling of <code>SynchronizedDelegator</code> for read-mostly collections: every read method of the wrapped
+ * collection (and of any view or iterator obtained from it) is performed under the shared lock of a
+ * <code>StampedLock</code>, and every modification under its exclusive lock, so that readers never block one another.
+ * No read is attempted optimistically, as an arbitrary delegate cannot be relied upon to fail, rather than loop or
+ * return garbage, if it is modified part way through a read.
+ * <p>
+ * The delegate's read methods must therefore be safe to execute concurrently with one another, and must not modify
+ * the delegate, as the serial hash stores' read methods do not. The lock is not reentrant, so functions and factories
+ * passed to a wrapped collection must not access it.
+ * 
+ * @author b.elliottsmith
+ */
+public class ReadWriteLockedDelegator {
+
+	protected final StampedLock lock = new StampedLock();
+
+	protected final class LockedIterator<V> implements Iterator<V> {
+
+		final Iterator<V> iter;
+		public LockedIterator(Iterator<V> iter) {
+			this.iter = iter;
+		}
+
+		@Override
+		public boolean hasNext() {
+			final long stamp = lock.readLock();
+			try {
+				return iter.hasNext();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override
+		public V next() {
+			final long stamp = lock.readLock();
+			try {
+				return iter.next();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+		@Override
+		public void remove() {
+			final long stamp = lock.writeLock();
+			try {
+				iter.remove();
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+
+	}
+
+	protected class LockedIterable<V, I extends Iterable<V>> implements Iterable<V> {
+
+		final I delegate;
+		public LockedIterable(I delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public final Iterator<V> iterator() {
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.iterator());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+	}
+
+	protected class LockedAnyReadSet<V, I extends AnyReadSet<V>> extends LockedIterable<V, I> implements AnyReadSet<V>, Instrumented {
+
+		private static final long serialVersionUID = -6659656215877484794L;
+
+		public LockedAnyReadSet(I set) {
+			super(set);
+		}
+
+		@Override public void recordStatistics(boolean record) {
+			final long stamp = lock.readLock();
+			try {
+				SynchronizedDelegator.instrumented(delegate).recordStatistics(record);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public HashStoreStatistics statistics() {
+			final long stamp = lock.readLock();
+			try {
+				return SynchronizedDelegator.instrumented(delegate).statistics();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+		@Override public Iterable<V> all(V value) {
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.all(value));
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public Boolean apply(V v) {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.apply(v);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public boolean contains(V value) {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.contains(value);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public AnyReadSet<V> copy() {
+			final long stamp = lock.readLock();
+			try {
+				return new ReadWriteLockedDelegator().wrap(delegate.copy());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public AnyReadSet<V> snapshot() {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.snapshot();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public int count(V value) {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.count(value);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public V first(V value) {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.first(value);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public boolean isEmpty() {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.isEmpty();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public List<V> list(V value) {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.list(value);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public boolean permitsDuplicates() {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.permitsDuplicates();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public int totalCount() {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.totalCount();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public int uniqueCount() {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.uniqueCount();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public Equality<? super V> equality() {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.equality();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override
+		public ReadMap<V, Integer> asMap() {
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.asMap());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override
+		public ReadSet<V> unique() {
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.unique());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+	}
+
+	protected class LockedReadSet<V, I extends ReadSet<V>> extends LockedAnyReadSet<V, I> implements ReadSet<V> {
+
+		private static final long serialVersionUID = -6659656215877484794L;
+
+		public LockedReadSet(I set) {
+			super(set);
+		}
+
+		@Override public ReadSet<V> copy() {
+			final long stamp = lock.readLock();
+			try {
+				return new ReadWriteLockedDelegator().wrap(delegate.copy());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public V get(V find) {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.get(find);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+		@Override
+		public int size() {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.size();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+	}
+
+	protected class LockedUnitaryReadSet<V, I extends UnitaryReadSet<V>> extends LockedReadSet<V, I> implements UnitaryReadSet<V> {
+
+		private static final long serialVersionUID = -6659656215877484794L;
+
+		public LockedUnitaryReadSet(I set) {
+			super(set);
+		}
+
+		@Override public UnitaryReadSet<V> copy() {
+			final long stamp = lock.readLock();
+			try {
+				return new ReadWriteLockedDelegator().wrap(delegate.copy());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public V get() {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.get();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override
+		public UnitaryReadSet<V> unique() {
+			final long stamp = lock.readLock();
+			try {
+				final UnitaryReadSet<V> r = delegate.unique();
+				return r == delegate ? this : wrap(r);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+	}
+
+	protected class LockedAnySet<V, I extends AnySet<V>> extends LockedAnyReadSet<V, I> implements AnySet<V> {
+
+		private static final long serialVersionUID = -6659656215877484794L;
+
+		public LockedAnySet(I set) {
+			super(set);
+		}
+
+		@Override public int clear() {
+			final long stamp = lock.writeLock();
+			try {
+				return delegate.clear();
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		@Override public Iterator<V> clearAndReturn() {
+			final long stamp = lock.writeLock();
+			try {
+				return delegate.clearAndReturn();
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		@Override public AnySet<V> copy() {
+			final long stamp = lock.readLock();
+			try {
+				return new ReadWriteLockedDelegator().wrap(delegate.copy());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public V put(V val) {
+			final long stamp = lock.writeLock();
+			try {
+				return delegate.put(val);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		@Override public int putAll(Iterable<V> val) {
+			final long stamp = lock.writeLock();
+			try {
+				return delegate.putAll(val);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		@Override public V putIfAbsent(V val) {
+			final long stamp = lock.writeLock();
+			try {
+				return delegate.putIfAbsent(val);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		@Override public int remove(V value) {
+			final long stamp = lock.writeLock();
+			try {
+				return delegate.remove(value);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		@Override public Iterable<V> removeAndReturn(V value) {
+			final long stamp = lock.writeLock();
+			try {
+				return wrap(delegate.removeAndReturn(value));
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		@Override public V removeAndReturnFirst(V value) {
+			final long stamp = lock.writeLock();
+			try {
+				return delegate.removeAndReturnFirst(value);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		@Override public Set<V> unique() {
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.unique());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public int remove(V value, int removeAtMost) {
+			final long stamp = lock.writeLock();
+			try {
+				return delegate.remove(value, removeAtMost);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		@Override public Iterable<V> removeAndReturn(V value, int removeAtMost) {
+			final long stamp = lock.writeLock();
+			try {
+				return delegate.removeAndReturn(value, removeAtMost);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		@Override public V removeAndReturnFirst(V value, int removeAtMost) {
+			final long stamp = lock.writeLock();
+			try {
+				return delegate.removeAndReturnFirst(value, removeAtMost);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		@Override public boolean add(V value) {
+			final long stamp = lock.writeLock();
+			try {
+				return delegate.add(value);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		@Override public void retain(AnySet<? super V> remove) {
+			final long stamp = lock.writeLock();
+			try {
+				delegate.retain(remove);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+
+
+	}
+
+	protected class LockedSet<V, I extends Set<V>> extends LockedAnySet<V, I> implements Set<V> {
+
+		private static final long serialVersionUID = -3056587011817527947L;
+
+		public LockedSet(I set) {
+			super(set);
+		}
+
+		@Override
+		public V get(V find) {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.get(find);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+		@Override
+		public int size() {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.size();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+		@Override
+		public Set<V> copy() {
+			final long stamp = lock.readLock();
+			try {
+				return new ReadWriteLockedDelegator().wrap(delegate.copy());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+	}
+
+	protected class LockedMultiSet<V, I extends MultiSet<V>> extends LockedAnySet<V, I> implements MultiSet<V> {
+
+		private static final long serialVersionUID = -5785923569245766291L;
+
+		public LockedMultiSet(I set) {
+			super(set);
+		}
+
+		@Override
+		public void put(V val, int numberOfTimes) {
+			final long stamp = lock.writeLock();
+			try {
+				delegate.put(val, numberOfTimes);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+
+		@Override
+		public MultiSet<V> copy() {
+			final long stamp = lock.readLock();
+			try {
+				return new ReadWriteLockedDelegator().wrap(delegate.copy());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+	}
+
+	protected class LockedUnitarySet<V, I extends UnitarySet<V>> extends LockedSet<V, I> implements UnitarySet<V> {
+
+		private static final long serialVersionUID = 2060537396163292489L;
+
+		public LockedUnitarySet(I set) {
+			super(set);
+		}
+
+		@Override
+		public V get() {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.get();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+		@Override
+		public V replace(V value) {
+			final long stamp = lock.writeLock();
+			try {
+				return delegate.replace(value);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+
+		@Override
+		public V putOrReplace(V value) {
+			final long stamp = lock.writeLock();
+			try {
+				return delegate.putOrReplace(value);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+
+		@Override
+		public UnitarySet<V> copy() {
+			final long stamp = lock.readLock();
+			try {
+				return new ReadWriteLockedDelegator().wrap(delegate.copy());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+		@Override
+		public UnitarySet<V> unique() {
+			final long stamp = lock.readLock();
+			try {
+				final UnitarySet<V> r = delegate.unique();
+				return r == delegate ? this : wrap(r);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+	}
+
+	protected class LockedAnyReadMap<K, V, M extends AnyReadMap<K, V>> implements AnyReadMap<K, V>, Instrumented {
+
+		private static final long serialVersionUID = 1L;
+		final M delegate;
+		public LockedAnyReadMap(M delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override public void recordStatistics(boolean record) {
+			final long stamp = lock.readLock();
+			try {
+				SynchronizedDelegator.instrumented(delegate).recordStatistics(record);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public HashStoreStatistics statistics() {
+			final long stamp = lock.readLock();
+			try {
+				return SynchronizedDelegator.instrumented(delegate).statistics();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+		@Override public boolean contains(K key) {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.contains(key);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public boolean contains(K key, V val) {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.contains(key, val);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public int count(K key) {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.count(key);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public int count(K key, V val) {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.count(key, val);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public V first(K key) {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.first(key);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public List<V> list(K key) {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.list(key);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public AnyReadMap<K, V> copy() {
+			final long stamp = lock.readLock();
+			try {
+				return new ReadWriteLockedDelegator().wrap(delegate.copy());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public AnyReadMap<K, V> snapshot() {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.snapshot();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public AnyReadSet<V> values() {
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.values());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public Iterable<Entry<K, V>> entries(K key) {
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.entries(key));
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public int totalCount() {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.totalCount();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public int uniqueKeyCount() {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.uniqueKeyCount();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public boolean isEmpty() {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.isEmpty();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public boolean permitsDuplicateKeys() {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.permitsDuplicateKeys();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public AnyReadSet<V> values(K key) {
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.values(key));
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		} @Override
+		public AnyReadSet<? extends Entry<K, V>> entries() {
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.entries());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public AnyReadSet<K> keys() {
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.keys());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}		
+
+	}
+
+
+	protected class LockedReadMap<K, V, M extends ReadMap<K, V>> extends LockedAnyReadMap<K, V, ReadMap<K, V>> implements ReadMap<K, V> {
+
+		private static final long serialVersionUID = 1L;
+		public LockedReadMap(M delegate) {
+			super(delegate);
+		}
+
+		@Override public ReadMap<K, V> copy() {
+			final long stamp = lock.readLock();
+			try {
+				return new ReadWriteLockedDelegator().wrap(delegate.copy());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public Iterable<Entry<K, V>> entries(K key) {
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.entries(key));
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public V apply(K v) {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.apply(v);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public V get(K key) {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.get(key);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public int size() {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.size();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public UnitaryReadSet<V> values(K key) {
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.values(key));
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+		@Override
+		public ReadSet<Entry<K, V>> entries() {
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.entries());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+		@Override
+		public ReadSet<K> keys() {
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.keys());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}		
+
+	}
+
+	protected class LockedAnyMap<K, V, M extends AnyMap<K, V>> implements AnyMap<K, V>, Instrumented {
+
+		private static final long serialVersionUID = 1L;
+		final M delegate;
+		public LockedAnyMap(M delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override public void recordStatistics(boolean record) {
+			final long stamp = lock.readLock();
+			try {
+				SynchronizedDelegator.instrumented(delegate).recordStatistics(record);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public HashStoreStatistics statistics() {
+			final long stamp = lock.readLock();
+			try {
+				return SynchronizedDelegator.instrumented(delegate).statistics();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+		@Override public V put(K key, V val) {
+			final long stamp = lock.writeLock();
+			try {
+				return delegate.put(key, val);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		@Override public V putIfAbsent(K key, V val) {
+			final long stamp = lock.writeLock();
+			try {
+				return delegate.putIfAbsent(key, val);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		@Override public boolean add(K key, V value) {
+			final long stamp = lock.writeLock();
+			try {
+				return delegate.add(key, value);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		@Override public boolean contains(K key) {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.contains(key);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public boolean contains(K key, V val) {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.contains(key, val);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public int count(K key) {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.count(key);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public int count(K key, V val) {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.count(key, val);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public V first(K key) {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.first(key);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public List<V> list(K key) {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.list(key);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public int remove(K key) {
+			final long stamp = lock.writeLock();
+			try {
+				return delegate.remove(key);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		@Override public int remove(K key, V val) {
+			final long stamp = lock.writeLock();
+			try {
+				return delegate.remove(key, val);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		@Override public AnyMap<K, V> copy() {
+			final long stamp = lock.readLock();
+			try {
+				return new ReadWriteLockedDelegator().wrap(delegate.copy());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public AnyReadMap<K, V> snapshot() {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.snapshot();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public Iterable<Entry<K, V>> removeAndReturn(K key) {
+			final long stamp = lock.writeLock();
+			try {
+				return delegate.removeAndReturn(key);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		@Override public Iterable<Entry<K, V>> removeAndReturn(K key, V val) {
+			final long stamp = lock.writeLock();
+			try {
+				return delegate.removeAndReturn(key, val);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		@Override public V removeAndReturnFirst(K key) {
+			final long stamp = lock.writeLock();
+			try {
+				return delegate.removeAndReturnFirst(key);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		@Override public AnySet<V> values() {
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.values());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public int clear() {
+			final long stamp = lock.writeLock();
+			try {
+				return delegate.clear();
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		@Override public Iterable<Entry<K, V>> entries(K key) {
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.entries(key));
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public Iterator<Entry<K, V>> clearAndReturn() {
+			final long stamp = lock.writeLock();
+			try {
+				return delegate.clearAndReturn();
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		@Override public int totalCount() {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.totalCount();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public int uniqueKeyCount() {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.uniqueKeyCount();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public boolean isEmpty() {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.isEmpty();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public boolean permitsDuplicateKeys() {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.permitsDuplicateKeys();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}		
+		@Override public AnyMap<V, K> inverse() {
+			// if this is a BiMap, we need to wrap the inverse structure with the same lock
+			// otherwise we should wrap it in a new one. for safety default will be to wrap in the same.
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.inverse());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public AnySet<V> values(K key) {
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.values(key));
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public AnySet<Entry<K, V>> entries() {
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.entries());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public AnySet<K> keys() {
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.keys());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+
+	}
+
+	protected class LockedMap<K, V> extends LockedAnyMap<K, V, Map<K, V>> implements Map<K, V> {
+
+		private static final long serialVersionUID = -2945163785917823422L;
+		public LockedMap(Map<K, V> delegate) {
+			super(delegate);
+		}
+
+		@Override public V get(K key) {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.get(key);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		} 
+		@Override public int size() {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.size();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}		
+		@Override public V apply(K v) {
+			final long stamp = lock.readLock();
+			try {
+				return delegate.apply(v);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public V putIfAbsent(K key, Function<? super K, ? extends V> putIfNotPresent) {
+			final long stamp = lock.writeLock();
+			try {
+				return delegate.putIfAbsent(key, putIfNotPresent);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		@Override public boolean replace(K key, V oldValue, V newValue) {
+			final long stamp = lock.writeLock();
+			try {
+				return delegate.replace(key, oldValue, newValue);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		@Override public V replace(K key, V val) {
+			final long stamp = lock.writeLock();
+			try {
+				return delegate.replace(key, val);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		@Override public V ensureAndGet(K key, Factory<? extends V> putIfNotPresent) {
+			final long stamp = lock.writeLock();
+			try {
+				return delegate.ensureAndGet(key, putIfNotPresent);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		@Override public V ensureAndGet(K key, Function<? super K, ? extends V> putIfNotPresent) {
+			final long stamp = lock.writeLock();
+			try {
+				return delegate.ensureAndGet(key, putIfNotPresent);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		@Override public UnitarySet<V> values(K key) {
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.values(key));
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public Set<Entry<K, V>> entries() {
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.entries());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public Set<K> keys() {
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.keys());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public Map<K, V> copy() {
+			final long stamp = lock.readLock();
+			try {
+				return new ReadWriteLockedDelegator().wrap(delegate.copy());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+	}
+
+	protected class LockedMultiMap<K, V> extends LockedAnyMap<K, V, MultiMap<K, V>> implements MultiMap<K, V> {
+
+		private static final long serialVersionUID = -2945163785917823422L;
+		public LockedMultiMap(MultiMap<K, V> delegate) {
+			super(delegate);
+		}
+
+		@Override public Set<V> values(K key) {
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.values(key));
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public Set<Entry<K, V>> entries() {
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.entries());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public MultiSet<K> keys() {
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.keys());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public MultiMap<K, V> copy() {
+			final long stamp = lock.readLock();
+			try {
+				return new ReadWriteLockedDelegator().wrap(delegate.copy());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+		@Override
+		public Iterable<V> apply(K v) {
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.apply(v));
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+	}
+
+	protected class LockedListMap<K, V> extends LockedAnyMap<K, V, ListMap<K, V>> implements ListMap<K, V> {
+
+		private static final long serialVersionUID = -2945163785917823422L;
+		public LockedListMap(ListMap<K, V> delegate) {
+			super(delegate);
+		}
+
+		@Override public MultiSet<V> values(K key) {
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.values(key));
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public MultiSet<Entry<K, V>> entries() {
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.entries());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public MultiSet<K> keys() {
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.keys());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		@Override public ListMap<K, V> copy() {
+			final long stamp = lock.readLock();
+			try {
+				return new ReadWriteLockedDelegator().wrap(delegate.copy());
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+		@Override
+		public Iterable<V> apply(K v) {
+			final long stamp = lock.readLock();
+			try {
+				return wrap(delegate.apply(v));
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+	}
+
+	protected <V> Iterator<V> wrap(final Iterator<V> iter) {
+		return new LockedIterator<V>(iter);
+	}	
+	protected <V> Iterable<V> wrap(final Iterable<V> iter) {
+		return new LockedIterable<V, Iterable<V>>(iter);
+	}
+	protected <V> AnyReadSet<V> wrap(final AnyReadSet<V> delegate) {
+		return new LockedAnyReadSet<V, AnyReadSet<V>>(delegate);
+	}	
+	protected <V> ReadSet<V> wrap(final ReadSet<V> delegate) {
+		return new LockedReadSet<V, ReadSet<V>>(delegate);
+	}	
+	protected <V> UnitaryReadSet<V> wrap(final UnitaryReadSet<V> delegate) {
+		return new LockedUnitaryReadSet<V, UnitaryReadSet<V>>(delegate);
+	}	
+	protected <V> AnySet<V> wrap(final AnySet<V> delegate) {
+		return new LockedAnySet<V, AnySet<V>>(delegate);
+	}	
+	protected <V> UnitarySet<V> wrap(final UnitarySet<V> delegate) {
+		return new LockedUnitarySet<V, UnitarySet<V>>(delegate);
+	}	
+	protected <V> Set<V> wrap(final Set<V> delegate) {
+		return new LockedSet<V, Set<V>>(delegate);
+	}	
+	protected <V> MultiSet<V> wrap(final MultiSet<V> delegate) {
+		return new LockedMultiSet<V, MultiSet<V>>(delegate);
+	}	
+	protected <K, V> AnyReadMap<K, V> wrap(final AnyReadMap<K, V> delegate) {
+		return new LockedAnyReadMap<K, V, AnyReadMap<K, V>>(delegate);
+	}	
+	protected <K, V> ReadMap<K, V> wrap(final ReadMap<K, V> delegate) {
+		return new LockedReadMap<K, V, ReadMap<K, V>>(delegate);
+	}	
+	protected <K, V> AnyMap<K, V> wrap(final AnyMap<K, V> delegate) {
+		return new LockedAnyMap<K, V, AnyMap<K, V>>(delegate);
+	}	
+	protected <K, V> Map<K, V> wrap(final Map<K, V> delegate) {
+		return new LockedMap<K, V>(delegate);
+	}
+	protected <K, V> MultiMap<K, V> wrap(final MultiMap<K, V> delegate) {
+		return new LockedMultiMap<K, V>(delegate);
+	}
+	protected <K, V> ListMap<K, V> wrap(final ListMap<K, V> delegate) {
+		return new LockedListMap<K, V>(delegate);
+	}
+
+	public static <V> Iterator<V> get(final Iterator<V> delegate) {
+		return new ReadWriteLockedDelegator().wrap(delegate);
+	}	
+	public static <V> Iterable<V> get(final Iterable<V> delegate) {
+		return new ReadWriteLockedDelegator().wrap(delegate);
+	}
+	public static <V> AnyReadSet<V> get(final AnyReadSet<V> delegate) {
+		return new ReadWriteLockedDelegator().wrap(delegate);
+	}	
+	public static <V> ReadSet<V> get(final ReadSet<V> delegate) {
+		return new ReadWriteLockedDelegator().wrap(delegate);
+	}	
+	public static <V> UnitaryReadSet<V> get(final UnitaryReadSet<V> delegate) {
+		return new ReadWriteLockedDelegator().wrap(delegate);
+	}	
+	public static <V> AnySet<V> get(final AnySet<V> delegate) {
+		return new ReadWriteLockedDelegator().wrap(delegate);
+	}	
+	public static <V> UnitarySet<V> get(final UnitarySet<V> delegate) {
+		return new ReadWriteLockedDelegator().wrap(delegate);
+	}	
+	public static <V> Set<V> get(final Set<V> delegate) {
+		return new ReadWriteLockedDelegator().wrap(delegate);
+	}	
+	public static <V> MultiSet<V> get(final MultiSet<V> delegate) {
+		return new ReadWriteLockedDelegator().wrap(delegate);
+	}	
+	public static <K, V> AnyReadMap<K, V> get(final AnyReadMap<K, V> delegate) {
+		return new ReadWriteLockedDelegator().wrap(delegate);
+	}	
+	public static <K, V> ReadMap<K, V> get(final ReadMap<K, V> delegate) {
+		return new ReadWriteLockedDelegator().wrap(delegate);
+	}	
+	public static <K, V> AnyMap<K, V> get(final AnyMap<K, V> delegate) {
+		return new ReadWriteLockedDelegator().wrap(delegate);
+	}	
+	public static <K, V> Map<K, V> get(final Map<K, V> delegate) {
+		return new ReadWriteLockedDelegator().wrap(delegate);
+	}
+	public static <K, V> MultiMap<K, V> get(final MultiMap<K, V> delegate) {
+		return new ReadWriteLockedDelegator().wrap(delegate);
+	}
+	public static <K, V> ListMap<K, V> get(final ListMap<K, V> delegate) {
+		return new ReadWriteLockedDelegator().wrap(delegate);
+	}
+
+}
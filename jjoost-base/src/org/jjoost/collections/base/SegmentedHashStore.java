@@ -25,11 +25,14 @@ package org.jjoost.collections.base;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 
 import org.jjoost.util.Equality;
 import org.jjoost.util.Factory;
 import org.jjoost.util.Function;
 import org.jjoost.util.Iters;
+import org.jjoost.util.Visitor;
 
 public class SegmentedHashStore<N extends HashNode<N>> implements HashStore<N, SegmentedHashStore<N>> {
 	
@@ -83,6 +86,18 @@ public class SegmentedHashStore<N extends HashNode<N>> implements HashStore<N, S
 //			iters[i] = segments[i].unique(uniquenessEqualityProj, uniquenessEquality, nodeEqualityProj, nodeEquality, ret);
 //		return Iters.concat(Arrays.asList(iters).iterator());
 	}
+	@Override
+	public <V> Spliterator<V> spliterator(Function<? super N, ? extends V> ret, int characteristics) {
+		return new SegmentSpliterator<V>(0, segments.length, ret, characteristics);
+	}
+	@Override
+	public <V> boolean visit(int partition, int partitions, Function<? super N, ? extends V> ret, Visitor<? super V> visitor) {
+		// each segment is partitioned in the same way, so that every partition gets a share of each
+		for (HashStore<N, ?> segment : segments)
+			if (!segment.visit(partition, partitions, ret, visitor))
+				return false;
+		return true;
+	}
 	@Override
 	public int clear() {
 		int c = 0;
@@ -170,6 +185,18 @@ public class SegmentedHashStore<N extends HashNode<N>> implements HashStore<N, S
 		return c;
 	}
 	@Override
+	public void recordStatistics(boolean record) {
+		for (HashStore<N, ?> segment : segments)
+			segment.recordStatistics(record);
+	}
+	@Override
+	public HashStoreStatistics statistics() {
+		HashStoreStatistics r = segments[0].statistics();
+		for (int i = 1 ; i != segments.length ; i++)
+			r = r.merge(segments[i].statistics());
+		return r;
+	}
+	@Override
 	public int capacity() {
 		int c = 0;
 		for (HashStore<N, ?> segment : segments)
@@ -182,4 +209,74 @@ public class SegmentedHashStore<N extends HashNode<N>> implements HashStore<N, S
 		return segmentFor(hash).findNow(hash, find, findEq, ret);
 	}
 	
+	
+	// splits first across the segments, and then within the last remaining segment
+	private final class SegmentSpliterator<V> implements Spliterator<V> {
+		
+		final Function<? super N, ? extends V> ret;
+		final int characteristics;
+		int segment, end;
+		Spliterator<V> current;
+		
+		SegmentSpliterator(int segment, int end, Function<? super N, ? extends V> ret, int characteristics) {
+			this.segment = segment;
+			this.end = end;
+			this.ret = ret;
+			this.characteristics = characteristics;
+		}
+		
+		@Override
+		public boolean tryAdvance(Consumer<? super V> action) {
+			while (true) {
+				if (current == null) {
+					if (segment == end)
+						return false;
+					current = segments[segment++].spliterator(ret, characteristics);
+				}
+				if (current.tryAdvance(action))
+					return true;
+				current = null;
+			}
+		}
+		
+		@Override
+		public void forEachRemaining(Consumer<? super V> action) {
+			if (current != null)
+				current.forEachRemaining(action);
+			current = null;
+			while (segment != end)
+				segments[segment++].spliterator(ret, characteristics).forEachRemaining(action);
+		}
+		
+		@Override
+		public Spliterator<V> trySplit() {
+			if (end - segment > 1) {
+				final int mid = (segment + end) >>> 1;
+				final SegmentSpliterator<V> split = new SegmentSpliterator<V>(mid, end, ret, characteristics);
+				end = mid;
+				return split;
+			}
+			if (current == null) {
+				if (segment == end)
+					return null;
+				current = segments[segment++].spliterator(ret, characteristics);
+			}
+			return current.trySplit();
+		}
+		
+		@Override
+		public long estimateSize() {
+			long size = current == null ? 0 : current.estimateSize();
+			for (int i = segment ; i != end ; i++)
+				size += segments[i].totalCount();
+			return size;
+		}
+		
+		@Override
+		public int characteristics() {
+			return characteristics;
+		}
+		
+	}
+	
 }
@@ -0,0 +1,1129 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.base;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.jjoost.collections.base.HashStore.PutAction;
+import org.jjoost.util.FilterPartialOrder;
+import org.jjoost.util.Function;
+import org.jjoost.util.Functions;
+import org.jjoost.util.tuples.ImmutablePair;
+import org.jjoost.util.tuples.Pair;
+
+/**
+ * A serial (i.e. not thread safe) <code>OrderedStore</code> implemented as a B+-tree. Nodes are held directly in wide,
+ * array-backed leaves so that an ordered visit touches contiguous memory, and every branch records the size of its
+ * subtree so that ranges can be counted without visiting their leaves. Each separator in a branch is the first node of
+ * the subtree to its right, so that subtrees a <code>FilterPartialOrder</code> cannot accept are skipped without being
+ * visited, and range visits run in O(log n + k).
+ * <p>
+ * Nodes are ordered by the <code>Comparator</code> provided on construction, with which every comparator provided to
+ * its methods must be consistent. If the store is unique <code>put()</code> replaces any node it compares equal to,
+ * otherwise it inserts the new node after all those equal to it, so that equal nodes are visited in insertion order.
+ * Nodes are shared, not copied, by <code>copy()</code> and so should be immutable.
+ * 
+ * @author b.elliottsmith
+ */
+public class SerialBTreeStore<N> implements OrderedStore<N, SerialBTreeStore<N>> {
+
+	private static final long serialVersionUID = -2291841628384616523L;
+
+	public static final int DEFAULT_LEAF_CAPACITY = 64;
+	public static final int DEFAULT_BRANCH_CAPACITY = 32;
+	
+	protected final Comparator<? super N> order;
+	protected final boolean unique;
+	protected final int leafCapacity;
+	protected final int branchCapacity;
+	
+	private transient Node root;
+	// the number of levels of branches above the leaves
+	private transient int depth;
+	// reused by every operation that modifies the tree, so is only valid for the duration of one
+	private transient Path path;
+
+	public SerialBTreeStore(Comparator<? super N> order, boolean unique) {
+		this(order, unique, DEFAULT_LEAF_CAPACITY, DEFAULT_BRANCH_CAPACITY);
+	}
+	
+	public SerialBTreeStore(Comparator<? super N> order, boolean unique, int leafCapacity, int branchCapacity) {
+		if (leafCapacity < 4 || branchCapacity < 4)
+			throw new IllegalArgumentException("Leaves and branches must each have a capacity of at least 4");
+		this.order = order;
+		this.unique = unique;
+		this.leafCapacity = leafCapacity;
+		this.branchCapacity = branchCapacity;
+		this.root = new Leaf(leafCapacity);
+	}
+	
+	public Comparator<? super N> order() {
+		return order;
+	}
+	
+	public boolean isUnique() {
+		return unique;
+	}
+	
+	/**
+	 * Returns the number of levels in the tree, including the leaves
+	 */
+	public int height() {
+		return depth + 1;
+	}
+	
+	// *************************************
+	// TREE NODES
+	// *************************************
+	
+	private static abstract class Node {
+		// the number of nodes of the store contained in this subtree
+		int size;
+	}
+	
+	private static final class Leaf extends Node {
+		final Object[] vals;
+		Leaf(int capacity) {
+			vals = new Object[capacity];
+		}
+	}
+	
+	private static final class Branch extends Node {
+		// seps[i] is the first node of children[i + 1]; both arrays have room for one entry more than capacity, to simplify splitting
+		final Node[] children;
+		final Object[] seps;
+		int count;
+		Branch(int capacity) {
+			children = new Node[capacity + 1];
+			seps = new Object[capacity];
+		}
+	}
+	
+	private static final class Probe<N, C> {
+		final C c;
+		final Function<? super N, ? extends C> f;
+		final Comparator<? super C> cmp;
+		Probe(C c, Function<? super N, ? extends C> f, Comparator<? super C> cmp) {
+			this.c = c;
+			this.f = f;
+			this.cmp = cmp;
+		}
+		@SuppressWarnings("unchecked")
+		int compare(Object n) {
+			return cmp.compare(c, f.apply((N) n));
+		}
+	}
+	
+	private static final class Pruner<N, F> {
+		final FilterPartialOrder<F> filter;
+		final Function<? super N, ? extends F> f;
+		final Comparator<? super F> cmp;
+		Pruner(FilterPartialOrder<F> filter, Function<? super N, ? extends F> f, Comparator<? super F> cmp) {
+			this.filter = filter;
+			this.f = f;
+			this.cmp = cmp;
+		}
+		@SuppressWarnings("unchecked")
+		private F apply(Object n) {
+			return n == null ? null : f.apply((N) n);
+		}
+		boolean accept(Object n) {
+			return filter.accept(apply(n), cmp);
+		}
+		// bounds are inclusive, and null if unbounded
+		boolean mayAccept(Object lb, Object ub) {
+			return filter.mayAcceptBetween(apply(lb), true, apply(ub), true, cmp);
+		}
+		boolean mayReject(Object lb, Object ub) {
+			return filter.mayRejectBetween(apply(lb), true, apply(ub), true, cmp);
+		}
+	}
+	
+	private <C> Probe<N, C> probe(C c, Function<? super N, ? extends C> f, Comparator<? super C> cmp) {
+		return new Probe<N, C>(c, f, cmp);
+	}
+	
+	private Probe<N, N> probe(N n) {
+		return new Probe<N, N>(n, Functions.<N>identity(), order);
+	}
+	
+	private <F> Pruner<N, F> pruner(FilterPartialOrder<F> filter, Function<? super N, ? extends F> f, Comparator<? super F> cmp) {
+		return new Pruner<N, F>(filter, f, cmp);
+	}
+	
+	// the number of items in a[0, len) that the probe sorts after (or not before, if after is true)
+	private static int search(Object[] a, int len, Probe<?, ?> probe, boolean after) {
+		int lo = 0, hi = len;
+		while (lo < hi) {
+			final int mid = (lo + hi) >>> 1;
+			final int c = probe.compare(a[mid]);
+			if (c > 0 || (after && c == 0))
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+	
+	// *************************************
+	// PATHS
+	// *************************************
+	
+	/**
+	 * A position in the tree, along with the branches (and the index of the child taken in each) leading to it
+	 */
+	private final class Path {
+		
+		Branch[] nodes = new Branch[4];
+		int[] idx = new int[4];
+		Leaf leaf;
+		int pos;
+		
+		private void ensureCapacity() {
+			if (nodes.length < depth) {
+				nodes = Arrays.copyOf(nodes, depth + 4);
+				idx = Arrays.copyOf(idx, depth + 4);
+			}
+		}
+		
+		// positions on the first node not sorting before the probe (or after it, if after is true), which may be one past the end of the leaf  
+		void seek(Probe<N, ?> probe, boolean after) {
+			ensureCapacity();
+			Node node = root;
+			for (int l = 0 ; l < depth ; l++) {
+				final Branch b = (Branch) node;
+				final int i = search(b.seps, b.count - 1, probe, after);
+				nodes[l] = b;
+				idx[l] = i;
+				node = b.children[i];
+			}
+			leaf = (Leaf) node;
+			pos = search(leaf.vals, leaf.size, probe, after);
+		}
+		
+		// positions before the first leaf (or after the last, if descending) the pruner may accept, returning false if there is none 
+		boolean first(boolean asc, Pruner<N, ?> pruner) {
+			ensureCapacity();
+			if (depth == 0) {
+				leaf = (Leaf) root;
+				pos = asc ? 0 : leaf.size - 1;
+				return true;
+			}
+			nodes[0] = (Branch) root;
+			idx[0] = asc ? -1 : nodes[0].count;
+			return descend(0, asc, pruner);
+		}
+		
+		// moves to the start (or end, if descending) of the next leaf in the direction of travel the pruner may accept, returning false if there is none 
+		boolean step(boolean asc, Pruner<N, ?> pruner) {
+			return descend(depth - 1, asc, pruner);
+		}
+		
+		private boolean descend(int level, boolean asc, Pruner<N, ?> pruner) {
+			final int dir = asc ? 1 : -1;
+			while (level >= 0) {
+				final Branch b = nodes[level];
+				int i = idx[level] + dir;
+				while (i >= 0 && i < b.count && pruner != null && !mayAccept(level, i, pruner))
+					i += dir;
+				if (i < 0 || i >= b.count) {
+					level--;
+					continue;
+				}
+				idx[level] = i;
+				final Node child = b.children[i];
+				if (level == depth - 1) {
+					leaf = (Leaf) child;
+					pos = asc ? 0 : leaf.size - 1;
+					return true;
+				}
+				nodes[++level] = (Branch) child;
+				idx[level] = asc ? -1 : ((Branch) child).count;
+			}
+			return false;
+		}
+		
+		private boolean mayAccept(int level, int i, Pruner<N, ?> pruner) {
+			if (level == depth - 1) {
+				final Leaf leaf = (Leaf) nodes[level].children[i];
+				return pruner.mayAccept(leaf.vals[0], leaf.vals[leaf.size - 1]);
+			}
+			return pruner.mayAccept(lowerBound(level, i), upperBound(level, i));
+		}
+		
+		// the first node of children[i] at the given level
+		private Object lowerBound(int level, int i) {
+			while (i == 0) {
+				if (--level < 0)
+					return null;
+				i = idx[level];
+			}
+			return nodes[level].seps[i - 1];
+		}
+		
+		// a node no smaller than any in children[i] at the given level
+		private Object upperBound(int level, int i) {
+			while (i == nodes[level].count - 1) {
+				if (--level < 0)
+					return null;
+				i = idx[level];
+			}
+			return nodes[level].seps[i];
+		}
+		
+		// if the position is one past the end of its leaf, moves to the start of the next; returns false if there is no such node
+		boolean forward() {
+			return pos < leaf.size || step(true, null);
+		}
+		
+		boolean next() {
+			return ++pos < leaf.size || step(true, null);
+		}
+		
+		boolean prev() {
+			return --pos >= 0 || step(false, null);
+		}
+		
+		@SuppressWarnings("unchecked")
+		N node() {
+			return (N) leaf.vals[pos];
+		}
+		
+		// the number of nodes preceding the position
+		int rank() {
+			int r = pos;
+			for (int l = 0 ; l < depth ; l++) {
+				final Branch b = nodes[l];
+				for (int i = 0 ; i < idx[l] ; i++)
+					r += b.children[i].size;
+			}
+			return r;
+		}
+		
+		// true if every branch above the given level took its last child 
+		boolean isLast(int level) {
+			for (int l = 0 ; l < level ; l++)
+				if (idx[l] != nodes[l].count - 1)
+					return false;
+			return true;
+		}
+		
+		// updates the separator bounding the subtree reached by nodes[level], after its first node has changed
+		void setLowerSeparator(int level, Object first) {
+			for (int l = level ; l >= 0 ; l--) {
+				if (idx[l] > 0) {
+					nodes[l].seps[idx[l] - 1] = first;
+					return;
+				}
+			}
+		}
+		
+		// positions on the provided node, by identity, returning false if it is not present
+		boolean locate(N n) {
+			seek(probe(n), false);
+			if (!forward())
+				return false;
+			while (true) {
+				final Object v = leaf.vals[pos];
+				if (v == n)
+					return true;
+				if (order.compare(n, node()) != 0)
+					return false;
+				if (!next())
+					return false;
+			}
+		}
+		
+	}
+	
+	private Path path() {
+		if (path == null)
+			path = new Path();
+		return path;
+	}
+	
+	// from the path's current position (inclusive) finds the first node in the direction of travel the pruner accepts 
+	private boolean scan(Path p, boolean asc, Pruner<N, ?> pruner) {
+		while (true) {
+			final Leaf leaf = p.leaf;
+			if (asc) {
+				for ( ; p.pos < leaf.size ; p.pos++)
+					if (pruner == null || pruner.accept(leaf.vals[p.pos]))
+						return true;
+			} else {
+				for ( ; p.pos >= 0 ; p.pos--)
+					if (pruner == null || pruner.accept(leaf.vals[p.pos]))
+						return true;
+			}
+			if (!p.step(asc, pruner))
+				return false;
+		}
+	}
+	
+	// *************************************
+	// MODIFICATION
+	// *************************************
+	
+	private int minLeaf() {
+		return leafCapacity >> 1;
+	}
+	
+	private int minBranch() {
+		return branchCapacity >> 1;
+	}
+	
+	// inserts the node at the path's position, which may be one past the end of its leaf
+	private void insert(Path p, N n) {
+		for (int l = 0 ; l < depth ; l++)
+			p.nodes[l].size++;
+		final Leaf leaf = p.leaf;
+		final int pos = p.pos;
+		final int size = leaf.size;
+		if (pos == 0 && depth > 0)
+			p.setLowerSeparator(depth - 1, n);
+		if (size < leafCapacity) {
+			System.arraycopy(leaf.vals, pos, leaf.vals, pos + 1, size - pos);
+			leaf.vals[pos] = n;
+			leaf.size = size + 1;
+			return;
+		}
+		// split the leaf, with the left keeping the first mid of the size + 1 nodes; if appending to the very end of the tree, 
+		// the left leaf is left full, so that ascending insertion (e.g. of a time series) produces a densely packed tree
+		final int mid = pos == size && p.isLast(depth) ? size : (size + 1) >>> 1;
+		final Leaf right = new Leaf(leafCapacity);
+		if (pos < mid) {
+			System.arraycopy(leaf.vals, mid - 1, right.vals, 0, size - mid + 1);
+			Arrays.fill(leaf.vals, mid - 1, size, null);
+			System.arraycopy(leaf.vals, pos, leaf.vals, pos + 1, mid - 1 - pos);
+			leaf.vals[pos] = n;
+		} else {
+			System.arraycopy(leaf.vals, mid, right.vals, 0, pos - mid);
+			right.vals[pos - mid] = n;
+			System.arraycopy(leaf.vals, pos, right.vals, pos - mid + 1, size - pos);
+			Arrays.fill(leaf.vals, mid, size, null);
+		}
+		leaf.size = mid;
+		right.size = size + 1 - mid;
+		insertChild(p, depth - 1, right, right.vals[0]);
+	}
+	
+	// inserts the child immediately after the one taken by the path at the given level
+	private void insertChild(Path p, int level, Node child, Object sep) {
+		if (level < 0) {
+			final Branch b = new Branch(branchCapacity);
+			b.children[0] = root;
+			b.children[1] = child;
+			b.seps[0] = sep;
+			b.count = 2;
+			b.size = root.size + child.size;
+			root = b;
+			depth++;
+			return;
+		}
+		final Branch b = p.nodes[level];
+		final int i = p.idx[level] + 1;
+		final int count = b.count;
+		System.arraycopy(b.children, i, b.children, i + 1, count - i);
+		System.arraycopy(b.seps, i - 1, b.seps, i, count - i);
+		b.children[i] = child;
+		b.seps[i - 1] = sep;
+		b.count = count + 1;
+		if (count < branchCapacity)
+			return;
+		final int total = count + 1;
+		// as for leaves, when appending leave the left branch as full as possible, but every branch must have at least two children 
+		final int mid = i == count && p.isLast(level) ? count - 1 : total >>> 1;
+		final Branch right = new Branch(branchCapacity);
+		System.arraycopy(b.children, mid, right.children, 0, total - mid);
+		System.arraycopy(b.seps, mid, right.seps, 0, total - mid - 1);
+		final Object up = b.seps[mid - 1];
+		Arrays.fill(b.children, mid, total, null);
+		Arrays.fill(b.seps, mid - 1, total - 1, null);
+		b.count = mid;
+		right.count = total - mid;
+		for (int j = 0 ; j < right.count ; j++)
+			right.size += right.children[j].size;
+		b.size -= right.size;
+		insertChild(p, level - 1, right, up);
+	}
+	
+	// removes the node at the path's position, rebalancing the tree as necessary
+	private N removeAt(Path p) {
+		final Leaf leaf = p.leaf;
+		final int pos = p.pos;
+		final N removed = p.node();
+		System.arraycopy(leaf.vals, pos + 1, leaf.vals, pos, leaf.size - pos - 1);
+		leaf.vals[--leaf.size] = null;
+		if (depth == 0)
+			return removed;
+		for (int l = 0 ; l < depth ; l++)
+			p.nodes[l].size--;
+		if (pos == 0 && leaf.size > 0)
+			p.setLowerSeparator(depth - 1, leaf.vals[0]);
+		if (leaf.size < minLeaf())
+			rebalance(p, leaf);
+		return removed;
+	}
+	
+	private void rebalance(Path p, Leaf leaf) {
+		final Branch parent = p.nodes[depth - 1];
+		final int i = p.idx[depth - 1];
+		final Leaf left = i > 0 ? (Leaf) parent.children[i - 1] : null;
+		final Leaf right = i + 1 < parent.count ? (Leaf) parent.children[i + 1] : null;
+		final int min = minLeaf();
+		if (left != null && left.size > min) {
+			System.arraycopy(leaf.vals, 0, leaf.vals, 1, leaf.size);
+			leaf.vals[0] = left.vals[--left.size];
+			left.vals[left.size] = null;
+			leaf.size++;
+			parent.seps[i - 1] = leaf.vals[0];
+		} else if (right != null && right.size > min) {
+			leaf.vals[leaf.size++] = right.vals[0];
+			System.arraycopy(right.vals, 1, right.vals, 0, --right.size);
+			right.vals[right.size] = null;
+			parent.seps[i] = right.vals[0];
+			if (leaf.size == 1)
+				p.setLowerSeparator(depth - 1, leaf.vals[0]);
+		} else if (left != null) {
+			System.arraycopy(leaf.vals, 0, left.vals, left.size, leaf.size);
+			left.size += leaf.size;
+			removeChild(parent, i);
+			rebalance(p, depth - 1);
+		} else {
+			if (leaf.size == 0)
+				p.setLowerSeparator(depth - 1, right.vals[0]);
+			System.arraycopy(right.vals, 0, leaf.vals, leaf.size, right.size);
+			leaf.size += right.size;
+			removeChild(parent, i + 1);
+			rebalance(p, depth - 1);
+		}
+	}
+	
+	private void rebalance(Path p, int level) {
+		final Branch b = p.nodes[level];
+		if (level == 0) {
+			if (b.count == 1) {
+				root = b.children[0];
+				depth--;
+			}
+			return;
+		}
+		final int min = minBranch();
+		if (b.count >= min)
+			return;
+		final Branch parent = p.nodes[level - 1];
+		final int i = p.idx[level - 1];
+		final Branch left = i > 0 ? (Branch) parent.children[i - 1] : null;
+		final Branch right = i + 1 < parent.count ? (Branch) parent.children[i + 1] : null;
+		if (left != null && left.count > min) {
+			final Node moved = left.children[left.count - 1];
+			System.arraycopy(b.children, 0, b.children, 1, b.count);
+			System.arraycopy(b.seps, 0, b.seps, 1, b.count - 1);
+			b.children[0] = moved;
+			b.seps[0] = parent.seps[i - 1];
+			b.count++;
+			parent.seps[i - 1] = left.seps[left.count - 2];
+			left.children[--left.count] = null;
+			left.seps[left.count - 1] = null;
+			left.size -= moved.size;
+			b.size += moved.size;
+		} else if (right != null && right.count > min) {
+			final Node moved = right.children[0];
+			b.seps[b.count - 1] = parent.seps[i];
+			b.children[b.count++] = moved;
+			parent.seps[i] = right.seps[0];
+			System.arraycopy(right.children, 1, right.children, 0, right.count - 1);
+			System.arraycopy(right.seps, 1, right.seps, 0, right.count - 2);
+			right.children[--right.count] = null;
+			right.seps[right.count - 1] = null;
+			right.size -= moved.size;
+			b.size += moved.size;
+		} else if (left != null) {
+			merge(left, parent.seps[i - 1], b);
+			removeChild(parent, i);
+			rebalance(p, level - 1);
+		} else {
+			merge(b, parent.seps[i], right);
+			removeChild(parent, i + 1);
+			rebalance(p, level - 1);
+		}
+	}
+	
+	// appends the contents of right to left 
+	private static void merge(Branch left, Object sep, Branch right) {
+		left.seps[left.count - 1] = sep;
+		System.arraycopy(right.seps, 0, left.seps, left.count, right.count - 1);
+		System.arraycopy(right.children, 0, left.children, left.count, right.count);
+		left.count += right.count;
+		left.size += right.size;
+	}
+	
+	// removes children[i] and the separator preceding it; i must be greater than zero
+	private static void removeChild(Branch b, int i) {
+		System.arraycopy(b.children, i + 1, b.children, i, b.count - i - 1);
+		System.arraycopy(b.seps, i, b.seps, i - 1, b.count - i - 1);
+		b.children[--b.count] = null;
+		b.seps[b.count - 1] = null;
+	}
+	
+	// replaces the contents of the tree with the provided nodes, which must already be sorted
+	private void build(List<? extends N> nodes) {
+		final int n = nodes.size();
+		if (n == 0) {
+			root = new Leaf(leafCapacity);
+			depth = 0;
+			return;
+		}
+		int count = (n + leafCapacity - 1) / leafCapacity;
+		Node[] level = new Node[count];
+		Object[] firsts = new Object[count];
+		for (int i = 0, k = 0 ; i < count ; i++) {
+			final Leaf leaf = new Leaf(leafCapacity);
+			leaf.size = n / count + (i < n % count ? 1 : 0);
+			for (int j = 0 ; j < leaf.size ; j++)
+				leaf.vals[j] = nodes.get(k++);
+			level[i] = leaf;
+			firsts[i] = leaf.vals[0];
+		}
+		int d = 0;
+		while (count > 1) {
+			final int parents = (count + branchCapacity - 1) / branchCapacity;
+			final Node[] up = new Node[parents];
+			final Object[] upFirsts = new Object[parents];
+			for (int i = 0, k = 0 ; i < parents ; i++) {
+				final Branch b = new Branch(branchCapacity);
+				b.count = count / parents + (i < count % parents ? 1 : 0);
+				upFirsts[i] = firsts[k];
+				for (int j = 0 ; j < b.count ; j++, k++) {
+					b.children[j] = level[k];
+					b.size += level[k].size;
+					if (j > 0)
+						b.seps[j - 1] = firsts[k];
+				}
+				up[i] = b;
+			}
+			level = up;
+			firsts = upFirsts;
+			count = parents;
+			d++;
+		}
+		root = level[0];
+		depth = d;
+	}
+	
+	private SerialBTreeStore<N> create(List<? extends N> nodes) {
+		final SerialBTreeStore<N> r = new SerialBTreeStore<N>(order, unique, leafCapacity, branchCapacity);
+		r.build(nodes);
+		return r;
+	}
+	
+	// *************************************
+	// ITERATION
+	// *************************************
+	
+	private final class Iter<V> implements Iterator<V> {
+		
+		private final Path p = new Path();
+		private final boolean asc;
+		// if non-null, only those nodes the probe compares equal to are visited
+		private final Probe<N, ?> range;
+		private final Pruner<N, ?> pruner;
+		private final Function<? super N, ? extends V> ret;
+		private boolean hasNext, canRemove;
+		private N next, prev;
+		
+		private Iter(boolean asc, Probe<N, ?> range, Pruner<N, ?> pruner, Function<? super N, ? extends V> ret) {
+			this.asc = asc;
+			this.range = range;
+			this.pruner = pruner;
+			this.ret = ret;
+			if (range == null) {
+				hasNext = p.first(asc, pruner) && find();
+			} else {
+				p.seek(range, !asc);
+				if (!asc)
+					p.pos--;
+				hasNext = find();
+			}
+		}
+		
+		private boolean find() {
+			if (!scan(p, asc, pruner))
+				return false;
+			if (range != null && range.compare(p.leaf.vals[p.pos]) != 0)
+				return false;
+			next = p.node();
+			return true;
+		}
+		
+		@Override
+		public boolean hasNext() {
+			return hasNext;
+		}
+		
+		@Override
+		public V next() {
+			if (!hasNext)
+				throw new NoSuchElementException();
+			prev = next;
+			canRemove = true;
+			p.pos += asc ? 1 : -1;
+			hasNext = find();
+			return ret.apply(prev);
+		}
+		
+		@Override
+		public void remove() {
+			if (!canRemove)
+				throw new IllegalStateException();
+			canRemove = false;
+			removeExistingNode(prev);
+			// the tree may have been rebalanced, so find our place again
+			if (hasNext && !p.locate(next))
+				throw new IllegalStateException();
+		}
+		
+	}
+	
+	// *************************************
+	// STORE METHODS
+	// *************************************
+	
+	@Override
+	public int count() {
+		return root.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return root.size == 0;
+	}
+
+	@Override
+	public int clear() {
+		final int count = root.size;
+		root = new Leaf(leafCapacity);
+		depth = 0;
+		return count;
+	}
+
+	@Override
+	public <V> Iterator<V> clearAndReturn(Function<? super N, ? extends V> f) {
+		final SerialBTreeStore<N> cleared = new SerialBTreeStore<N>(order, unique, leafCapacity, branchCapacity);
+		cleared.root = root;
+		cleared.depth = depth;
+		clear();
+		return cleared.new Iter<V>(true, null, null, f);
+	}
+
+	@Override
+	public <V> Iterator<V> iterator(boolean asc, Function<? super N, V> ret) {
+		return new Iter<V>(asc, null, null, ret);
+	}
+
+	@Override
+	public <C> SerialBTreeStore<N> copy(FilterPartialOrder<C> filter, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder) {
+		final List<N> copy = new ArrayList<N>();
+		for (Iterator<N> iter = new Iter<N>(true, null, pruner(filter, cmpF, cmp), Functions.<N>identity()) ; iter.hasNext() ; )
+			copy.add(iter.next());
+		return create(copy);
+	}
+
+	@Override
+	public boolean removeExistingNode(N n) {
+		final Path p = path();
+		if (!p.locate(n))
+			return false;
+		removeAt(p);
+		return true;
+	}
+	
+	// *************************************
+	// INSERTION METHODS
+	// *************************************
+	
+	private <C, V> V put(PutAction action, Probe<N, C> find, N put, Function<? super C, N> factory, Function<? super N, ? extends V> ret) {
+		final Path p = path();
+		if (!unique && action == PutAction.PUT) {
+			if (put == null)
+				put = factory.apply(find.c);
+			p.seek(probe(put), true);
+			insert(p, put);
+			return null;
+		}
+		p.seek(find, false);
+		if (p.forward() && find.compare(p.leaf.vals[p.pos]) == 0) {
+			final N existing = p.node();
+			if (action == PutAction.PUT) {
+				put = put != null ? put : factory.apply(find.c);
+				p.leaf.vals[p.pos] = put;
+				if (p.pos == 0)
+					p.setLowerSeparator(depth - 1, put);
+			}
+			return ret.apply(existing);
+		}
+		put = put != null ? put : factory.apply(find.c);
+		insert(p, put);
+		return action == PutAction.ENSUREANDGET ? ret.apply(put) : null;
+	}
+	
+	@Override
+	public <V> V put(N put, Function<? super N, ? extends V> ret) {
+		return put(PutAction.PUT, probe(put), put, null, ret);
+	}
+
+	@Override
+	public <C, V> V put(C find, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, Function<? super C, N> factory, Function<? super N, ? extends V> ret) {
+		return put(PutAction.PUT, probe(find, cmpF, cmp), null, factory, ret);
+	}
+
+	@Override
+	public <V> V putIfAbsent(N put, Function<? super N, ? extends V> ret) {
+		return put(PutAction.IFABSENT, probe(put), put, null, ret);
+	}
+
+	@Override
+	public <C, V> V putIfAbsent(C put, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, Function<? super C, N> factory, Function<? super N, ? extends V> ret) {
+		return put(PutAction.IFABSENT, probe(put, cmpF, cmp), null, factory, ret);
+	}
+
+	@Override
+	public <C, V> V ensureAndGet(C put, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, Function<? super C, N> factory, Function<? super N, ? extends V> ret) {
+		return put(PutAction.ENSUREANDGET, probe(put, cmpF, cmp), null, factory, ret);
+	}
+
+	// *************************************
+	// METHODS ON ITEMS WITHOUT FILTERS
+	// *************************************
+	
+	// positions the path on the first node equal to the probe, returning false if there is none
+	private boolean seekFirst(Path p, Probe<N, ?> probe) {
+		p.seek(probe, false);
+		return p.forward() && probe.compare(p.leaf.vals[p.pos]) == 0;
+	}
+	
+	@Override
+	public <C> boolean contains(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder) {
+		return seekFirst(path(), probe(c, cmpF, cmp));
+	}
+
+	@Override
+	public <C> int count(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder) {
+		final Path p = path();
+		final Probe<N, C> probe = probe(c, cmpF, cmp);
+		if (cmpIsTotalOrder)
+			return seekFirst(p, probe) ? 1 : 0;
+		p.seek(probe, false);
+		final int from = p.rank();
+		p.seek(probe, true);
+		return p.rank() - from;
+	}
+
+	@Override
+	public <C, V> V first(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends V> ret) {
+		final Path p = path();
+		return seekFirst(p, probe(c, cmpF, cmp)) ? ret.apply(p.node()) : null;
+	}
+
+	@Override
+	public <C, V> V last(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends V> ret) {
+		final Path p = path();
+		final Probe<N, C> probe = probe(c, cmpF, cmp);
+		p.seek(probe, true);
+		return p.prev() && probe.compare(p.leaf.vals[p.pos]) == 0 ? ret.apply(p.node()) : null;
+	}
+
+	@Override
+	public <C, V> Iterator<V> all(boolean asc, C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends V> ret) {
+		return new Iter<V>(asc, probe(c, cmpF, cmp), null, ret);
+	}
+
+	@Override
+	public <C, F, V> Pair<V, V> boundaries(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends V> ret) {
+		return boundaries(c, cmpF, cmp, null, ret);
+	}
+
+	@Override
+	public <C, V> V ceil(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends V> ret) {
+		return find(c, cmpF, cmp, false, true, null, ret);
+	}
+
+	@Override
+	public <C, V> V floor(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends V> ret) {
+		return find(c, cmpF, cmp, true, false, null, ret);
+	}
+
+	@Override
+	public <C, V> V lesser(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends V> ret) {
+		return find(c, cmpF, cmp, false, false, null, ret);
+	}
+
+	@Override
+	public <C, V> V greater(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends V> ret) {
+		return find(c, cmpF, cmp, true, true, null, ret);
+	}
+	
+	// finds the nearest node the pruner accepts that sorts after (if asc) or before the probe, or is equal to it if (asc != after)
+	private <C, V> V find(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean after, boolean asc, Pruner<N, ?> pruner, Function<? super N, ? extends V> ret) {
+		final Path p = path();
+		p.seek(probe(c, cmpF, cmp), after);
+		if (!asc)
+			p.pos--;
+		return scan(p, asc, pruner) ? ret.apply(p.node()) : null;
+	}
+	
+	private <C, V> Pair<V, V> boundaries(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, Pruner<N, ?> pruner, Function<? super N, ? extends V> ret) {
+		final Path p = path();
+		final Probe<N, C> probe = probe(c, cmpF, cmp);
+		p.seek(probe, false);
+		final boolean hasCeil = scan(p, true, pruner);
+		final N ceil = hasCeil ? p.node() : null;
+		p.seek(probe, true);
+		p.pos--;
+		final N floor = scan(p, false, pruner) ? p.node() : null;
+		final V first = ceil == null ? null : ret.apply(ceil);
+		final V second = floor == null ? null : ret.apply(floor);
+		if (hasCeil && probe.compare(ceil) == 0)
+			return new ImmutablePair<V, V>(first, second);
+		return new ImmutablePair<V, V>(second, first);
+	}
+
+	@Override
+	public <C> int remove(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder) {
+		final Path p = path();
+		final Probe<N, C> probe = probe(c, cmpF, cmp);
+		int removed = 0;
+		while (seekFirst(p, probe)) {
+			removeAt(p);
+			removed++;
+			if (cmpIsTotalOrder)
+				break;
+		}
+		return removed;
+	}
+
+	@Override
+	public <C, V> Iterable<V> removeAndReturn(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends V> ret) {
+		final Path p = path();
+		final Probe<N, C> probe = probe(c, cmpF, cmp);
+		final List<V> removed = new ArrayList<V>();
+		while (seekFirst(p, probe)) {
+			removed.add(ret.apply(removeAt(p)));
+			if (cmpIsTotalOrder)
+				break;
+		}
+		return removed;
+	}
+
+	@Override
+	public <C, V> V removeAndReturnFirst(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends V> ret) {
+		final Path p = path();
+		return seekFirst(p, probe(c, cmpF, cmp)) ? ret.apply(removeAt(p)) : null;
+	}
+
+	// *************************************
+	// METHODS ON VALUES WITH FILTERS
+	// *************************************
+	
+	@Override
+	public <C, F, V> Pair<V, V> boundaries(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends F> filterF, Comparator<? super F> filterCmp, boolean filterCmpIsTotalOrder, FilterPartialOrder<F> filter, Function<? super N, ? extends V> ret) {
+		return boundaries(c, cmpF, cmp, pruner(filter, filterF, filterCmp), ret);
+	}
+
+	@Override
+	public <C, F, V> V ceil(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends F> filterF, Comparator<? super F> filterCmp, boolean filterCmpIsTotalOrder, FilterPartialOrder<F> filter, Function<? super N, ? extends V> ret) {
+		return find(c, cmpF, cmp, false, true, pruner(filter, filterF, filterCmp), ret);
+	}
+
+	@Override
+	public <C, F, V> V floor(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends F> filterF, Comparator<? super F> filterCmp, boolean filterCmpIsTotalOrder, FilterPartialOrder<F> filter, Function<? super N, ? extends V> ret) {
+		return find(c, cmpF, cmp, true, false, pruner(filter, filterF, filterCmp), ret);
+	}
+
+	@Override
+	public <C, F, V> V lesser(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends F> filterF, Comparator<? super F> filterCmp, boolean filterCmpIsTotalOrder, FilterPartialOrder<F> filter, Function<? super N, ? extends V> ret) {
+		return find(c, cmpF, cmp, false, false, pruner(filter, filterF, filterCmp), ret);
+	}
+
+	@Override
+	public <C, F, V> V greater(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends F> filterF, Comparator<? super F> filterCmp, boolean filterCmpIsTotalOrder, FilterPartialOrder<F> filter, Function<? super N, ? extends V> ret) {
+		return find(c, cmpF, cmp, true, true, pruner(filter, filterF, filterCmp), ret);
+	}
+
+	// *************************************
+	// METHODS ON FILTERS
+	// *************************************
+	
+	@Override
+	public <C> boolean contains(FilterPartialOrder<C> filter, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder) {
+		final Path p = path();
+		final Pruner<N, C> pruner = pruner(filter, cmpF, cmp);
+		return p.first(true, pruner) && scan(p, true, pruner);
+	}
+
+	@Override
+	public <C> int count(FilterPartialOrder<C> filter, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder) {
+		return count(root, 0, null, null, pruner(filter, cmpF, cmp));
+	}
+	
+	// counts the nodes in the subtree accepted by the pruner, visiting only those subtrees it may both accept and reject nodes from 
+	private int count(Node node, int level, Object lb, Object ub, Pruner<N, ?> pruner) {
+		if (level == depth) {
+			final Leaf leaf = (Leaf) node;
+			if (leaf.size == 0 || !pruner.mayAccept(leaf.vals[0], leaf.vals[leaf.size - 1]))
+				return 0;
+			if (!pruner.mayReject(leaf.vals[0], leaf.vals[leaf.size - 1]))
+				return leaf.size;
+			int count = 0;
+			for (int i = 0 ; i < leaf.size ; i++)
+				if (pruner.accept(leaf.vals[i]))
+					count++;
+			return count;
+		}
+		if (!pruner.mayAccept(lb, ub))
+			return 0;
+		if (!pruner.mayReject(lb, ub))
+			return node.size;
+		final Branch b = (Branch) node;
+		int count = 0;
+		for (int i = 0 ; i < b.count ; i++)
+			count += count(b.children[i], level + 1, i == 0 ? lb : b.seps[i - 1], i == b.count - 1 ? ub : b.seps[i], pruner);
+		return count;
+	}
+
+	@Override
+	public <C, V> V first(FilterPartialOrder<C> filter, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends V> ret) {
+		final Path p = path();
+		final Pruner<N, C> pruner = pruner(filter, cmpF, cmp);
+		return p.first(true, pruner) && scan(p, true, pruner) ? ret.apply(p.node()) : null;
+	}
+
+	@Override
+	public <C, V> V last(FilterPartialOrder<C> filter, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends V> ret) {
+		final Path p = path();
+		final Pruner<N, C> pruner = pruner(filter, cmpF, cmp);
+		return p.first(false, pruner) && scan(p, false, pruner) ? ret.apply(p.node()) : null;
+	}
+
+	@Override
+	public <C, V> Iterator<V> all(boolean asc, FilterPartialOrder<C> filter, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends V> ret) {
+		return new Iter<V>(asc, null, pruner(filter, cmpF, cmp), ret);
+	}
+
+	@Override
+	public <C> int remove(FilterPartialOrder<C> filter, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder) {
+		int removed = 0;
+		for (Iterator<N> iter = new Iter<N>(true, null, pruner(filter, cmpF, cmp), Functions.<N>identity()) ; iter.hasNext() ; removed++) {
+			iter.next();
+			iter.remove();
+		}
+		return removed;
+	}
+
+	@Override
+	public <C> SerialBTreeStore<N> removeAndReturn(FilterPartialOrder<C> filter, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder) {
+		final List<N> removed = new ArrayList<N>();
+		for (Iterator<N> iter = new Iter<N>(true, null, pruner(filter, cmpF, cmp), Functions.<N>identity()) ; iter.hasNext() ; ) {
+			removed.add(iter.next());
+			iter.remove();
+		}
+		return create(removed);
+	}
+
+	@Override
+	public <C, V> V removeAndReturnFirst(FilterPartialOrder<C> filter, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp, boolean cmpIsTotalOrder, Function<? super N, ? extends V> ret) {
+		final Path p = path();
+		final Pruner<N, C> pruner = pruner(filter, cmpF, cmp);
+		return p.first(true, pruner) && scan(p, true, pruner) ? ret.apply(removeAt(p)) : null;
+	}
+	
+	// *************************************
+	// ORDER STATISTICS
+	// *************************************
+	
+	@Override
+	public <C> int rank(C c, Function<? super N, ? extends C> cmpF, Comparator<? super C> cmp) {
+		final Path p = path();
+		p.seek(probe(c, cmpF, cmp), false);
+		return p.rank();
+	}
+
+	// descends by subtree size, so visits only one child of each branch on the way down
+	@Override
+	public <V> V select(int index, Function<? super N, ? extends V> ret) {
+		if (index < 0 || index >= root.size)
+			return null;
+		Node node = root;
+		for (int l = 0 ; l < depth ; l++) {
+			final Branch b = (Branch) node;
+			int i = 0;
+			while (index >= b.children[i].size)
+				index -= b.children[i++].size;
+			node = b.children[i];
+		}
+		@SuppressWarnings("unchecked")
+		final N n = (N) ((Leaf) node).vals[index];
+		return ret.apply(n);
+	}
+	
+	// *************************************
+	// SERIALIZATION
+	// *************************************
+	
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(root.size);
+		for (Iterator<N> iter = iterator(true, Functions.<N>identity()) ; iter.hasNext() ; )
+			out.writeObject(iter.next());
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		final int size = in.readInt();
+		final List<N> nodes = new ArrayList<N>(size);
+		for (int i = 0 ; i < size ; i++)
+			nodes.add((N) in.readObject());
+		build(nodes);
+	}
+	
+	public String toString() {
+		final StringBuilder sb = new StringBuilder("{");
+		for (Iterator<N> iter = iterator(true, Functions.<N>identity()) ; iter.hasNext() ; ) {
+			sb.append(iter.next());
+			if (iter.hasNext())
+				sb.append(", ");
+		}
+		return sb.append("}").toString();
+	}
+	
+}
@@ -0,0 +1,757 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.base;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import org.jjoost.util.Equality;
+import org.jjoost.util.Filter;
+import org.jjoost.util.Function;
+import org.jjoost.util.Functions;
+import org.jjoost.util.Iters;
+import org.jjoost.util.Visitor;
+
+/**
+ * A serial store of one-to-one key/value pairs, in which each pair is a single <code>BiNode</code> carrying the hash of
+ * both its key and its value, and a <code>next</code> pointer for each, so that it may be linked into two chained tables
+ * at once: one indexed by key, the other by value. <code>byKey()</code> and <code>byValue()</code> offer each table
+ * as a <code>HashStore</code>, so that a map and its inverse may share every node.
+ * <p>
+ * Putting a pair through either view first removes any pair with an equal key or an equal value. The value view presents
+ * each node in a transient <code>InverseNode</code>, whose key is the node's value; only the nodes themselves are stored.
+ *
+ * @author b.elliottsmith
+ */
+@SuppressWarnings("unchecked")
+public class SerialBiHashStore<K, V> implements Serializable {
+
+	private static final long serialVersionUID = -3850296839815452014L;
+
+	private static final int KEYS = 0;
+	private static final int VALUES = 1;
+
+	private final Equality<? super K> keyEq;
+	private final Equality<? super V> valEq;
+	private final float loadFactor;
+	private final ByKey<K, V> byKey;
+	private final ByValue<K, V> byValue;
+	// the nodes are written individually, as serializing their next pointers could recurse arbitrarily deeply
+	private transient BiNode<K, V>[][] tables;
+	private transient int totalNodeCount;
+	private transient int loadLimit;
+	// non-null only whilst statistics are being recorded
+	private transient volatile HashStoreCounters counters;
+
+	public SerialBiHashStore(int size, float loadFactor, Equality<? super K> keyEquality, Equality<? super V> valEquality) {
+		int capacity = 8;
+		while (capacity < size)
+			capacity <<= 1;
+		this.keyEq = keyEquality;
+		this.valEq = valEquality;
+		this.loadFactor = loadFactor;
+		this.byKey = new ByKey<K, V>(this);
+		this.byValue = new ByValue<K, V>(this);
+		init(capacity);
+	}
+
+	public ByKey<K, V> byKey() {
+		return byKey;
+	}
+
+	public ByValue<K, V> byValue() {
+		return byValue;
+	}
+
+	public Equality<? super K> keyEquality() {
+		return keyEq;
+	}
+
+	public Equality<? super V> valueEquality() {
+		return valEq;
+	}
+
+	// **************************************************
+	// NODES
+	// **************************************************
+
+	public static final class BiNode<K, V> extends HashNode<BiNode<K, V>> implements Entry<K, V> {
+		private static final long serialVersionUID = 1928206632612744407L;
+		public final int valueHash;
+		private final K key;
+		private final V value;
+		private transient BiNode<K, V> nextByKey, nextByValue;
+		public BiNode(int keyHash, int valueHash, K key, V value) {
+			super(keyHash);
+			this.valueHash = valueHash;
+			this.key = key;
+			this.value = value;
+		}
+		@Override public K getKey() { return key ; }
+		@Override public V getValue() { return value ; }
+		@Override public V setValue(V value) { throw new UnsupportedOperationException() ; }
+		@Override public BiNode<K, V> copy() { return new BiNode<K, V>(hash, valueHash, key, value) ; }
+		@Override public String toString() { return "{" + key + " -> " + value + "}" ; }
+	}
+
+	/**
+	 * a view of a <code>BiNode</code> with its key and value exchanged
+	 */
+	public static final class InverseNode<V, K> extends HashNode<InverseNode<V, K>> implements Entry<V, K> {
+		private static final long serialVersionUID = -6211805513271862305L;
+		private final BiNode<K, V> node;
+		public InverseNode(BiNode<K, V> node) {
+			super(node.valueHash);
+			this.node = node;
+		}
+		@Override public V getKey() { return node.value ; }
+		@Override public K getValue() { return node.key ; }
+		@Override public K setValue(K value) { throw new UnsupportedOperationException() ; }
+		@Override public InverseNode<V, K> copy() { return new InverseNode<V, K>(node.copy()) ; }
+		@Override public String toString() { return "{" + node.value + " -> " + node.key + "}" ; }
+	}
+
+	private static int hash(BiNode<?, ?> n, int side) {
+		return side == KEYS ? n.hash : n.valueHash;
+	}
+
+	private static <K, V> BiNode<K, V> next(BiNode<K, V> n, int side) {
+		return side == KEYS ? n.nextByKey : n.nextByValue;
+	}
+
+	private static <K, V> void setNext(BiNode<K, V> n, int side, BiNode<K, V> next) {
+		if (side == KEYS)
+			n.nextByKey = next;
+		else
+			n.nextByValue = next;
+	}
+
+	private boolean equates(int side, BiNode<K, V> a, BiNode<K, V> b) {
+		return side == KEYS ? keyEq.equates(a.key, b.key) : valEq.equates(a.value, b.value);
+	}
+
+	// **************************************************
+	// TABLE MAINTENANCE
+	// **************************************************
+
+	private void init(int capacity) {
+		tables = (BiNode<K, V>[][]) new BiNode<?, ?>[][] { new BiNode<?, ?>[capacity], new BiNode<?, ?>[capacity] };
+		loadLimit = (int) (capacity * loadFactor);
+	}
+
+	private int clear() {
+		final int r = totalNodeCount;
+		init(tables[KEYS].length);
+		totalNodeCount = 0;
+		return r;
+	}
+
+	private SerialBiHashStore<K, V> copy() {
+		final SerialBiHashStore<K, V> copy = new SerialBiHashStore<K, V>(tables[KEYS].length, loadFactor, keyEq, valEq);
+		for (BiNode<K, V> head : tables[KEYS])
+			for (BiNode<K, V> n = head ; n != null ; n = n.nextByKey)
+				copy.link(n.copy());
+		return copy;
+	}
+
+	private void link(BiNode<K, V> n) {
+		if (totalNodeCount >= loadLimit)
+			grow();
+		for (int side = KEYS ; side <= VALUES ; side++) {
+			final BiNode<K, V>[] table = tables[side];
+			final int i = hash(n, side) & (table.length - 1);
+			setNext(n, side, table[i]);
+			table[i] = n;
+		}
+		totalNodeCount++;
+	}
+
+	// removes the node from both tables, leaving its next pointers intact for any iterator positioned on it
+	private boolean unlink(BiNode<K, V> n) {
+		for (int side = KEYS ; side <= VALUES ; side++) {
+			final BiNode<K, V>[] table = tables[side];
+			final int i = hash(n, side) & (table.length - 1);
+			BiNode<K, V> prev = null, cur = table[i];
+			while (cur != n) {
+				if (cur == null)
+					return false;
+				prev = cur;
+				cur = next(cur, side);
+			}
+			if (prev == null)
+				table[i] = next(n, side);
+			else
+				setNext(prev, side, next(n, side));
+		}
+		totalNodeCount--;
+		return true;
+	}
+
+	// the node, other than exclude, whose key (or value) on the given side equals that of n
+	private BiNode<K, V> bound(BiNode<K, V> n, int side, BiNode<K, V> exclude) {
+		final BiNode<K, V>[] table = tables[side];
+		final int hash = hash(n, side);
+		for (BiNode<K, V> cur = table[hash & (table.length - 1)] ; cur != null ; cur = next(cur, side))
+			if (cur != exclude && hash(cur, side) == hash && equates(side, n, cur))
+				return cur;
+		return null;
+	}
+
+	private void grow() {
+		final HashStoreCounters counters = this.counters;
+		final long start = counters == null ? 0 : System.nanoTime();
+		final BiNode<K, V>[][] old = tables;
+		init(old[KEYS].length << 1);
+		for (int side = KEYS ; side <= VALUES ; side++) {
+			final BiNode<K, V>[] table = tables[side];
+			final int mask = table.length - 1;
+			for (BiNode<K, V> head : old[side]) {
+				BiNode<K, V> n = head;
+				while (n != null) {
+					final BiNode<K, V> next = next(n, side);
+					final int i = hash(n, side) & mask;
+					setNext(n, side, table[i]);
+					table[i] = n;
+					n = next;
+				}
+			}
+		}
+		if (counters != null)
+			counters.resized(System.nanoTime() - start);
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(tables[KEYS].length);
+		out.writeInt(totalNodeCount);
+		for (BiNode<K, V> head : tables[KEYS])
+			for (BiNode<K, V> n = head ; n != null ; n = n.nextByKey)
+				out.writeObject(n);
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		init(in.readInt());
+		for (int i = in.readInt() ; i > 0 ; i--)
+			link((BiNode<K, V>) in.readObject());
+	}
+
+	// **************************************************
+	// VIEWS
+	// **************************************************
+
+	public static final class ByKey<K, V> extends View<K, V, BiNode<K, V>, ByKey<K, V>> {
+		private static final long serialVersionUID = -1387452260622739850L;
+		private ByKey(SerialBiHashStore<K, V> store) {
+			super(store, KEYS);
+		}
+		@Override BiNode<K, V> present(BiNode<K, V> n) { return n ; }
+		@Override BiNode<K, V> unwrap(BiNode<K, V> n) { return n ; }
+		@Override public <F> ByKey<K, V> copy(Function<? super BiNode<K, V>, ? extends F> nodeEqualityProj, HashNodeEquality<? super F, ? super BiNode<K, V>> nodeEquality) {
+			return store.copy().byKey;
+		}
+		public ByValue<K, V> inverse() {
+			return store.byValue;
+		}
+	}
+
+	public static final class ByValue<K, V> extends View<K, V, InverseNode<V, K>, ByValue<K, V>> {
+		private static final long serialVersionUID = 6405520867946512281L;
+		private ByValue(SerialBiHashStore<K, V> store) {
+			super(store, VALUES);
+		}
+		@Override InverseNode<V, K> present(BiNode<K, V> n) { return new InverseNode<V, K>(n) ; }
+		@Override BiNode<K, V> unwrap(InverseNode<V, K> n) { return n.node ; }
+		@Override public <F> ByValue<K, V> copy(Function<? super InverseNode<V, K>, ? extends F> nodeEqualityProj, HashNodeEquality<? super F, ? super InverseNode<V, K>> nodeEquality) {
+			return store.copy().byValue;
+		}
+		public ByKey<K, V> inverse() {
+			return store.byKey;
+		}
+	}
+
+	/**
+	 * the <code>HashStore</code> over one of the two tables; N is the type each node is presented as
+	 */
+	public static abstract class View<K, V, N extends HashNode<N>, S extends View<K, V, N, S>> implements HashStore<N, S> {
+
+		private static final long serialVersionUID = 4370393562785434226L;
+
+		protected final SerialBiHashStore<K, V> store;
+		private final int side;
+
+		private View(SerialBiHashStore<K, V> store, int side) {
+			this.store = store;
+			this.side = side;
+		}
+
+		public SerialBiHashStore<K, V> store() {
+			return store;
+		}
+
+		abstract N present(BiNode<K, V> n);
+		abstract BiNode<K, V> unwrap(N n);
+
+		private BiNode<K, V>[] table() {
+			return store.tables[side];
+		}
+
+		@Override
+		public int capacity() {
+			return table().length;
+		}
+
+		@Override
+		public int totalCount() {
+			return store.totalNodeCount;
+		}
+
+		@Override
+		public int uniquePrefixCount() {
+			return store.totalNodeCount;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return store.totalNodeCount == 0;
+		}
+
+		@Override
+		public int clear() {
+			return store.clear();
+		}
+
+		@Override
+		public <R> Iterator<R> clearAndReturn(Function<? super N, ? extends R> f) {
+			final List<R> cleared = new ArrayList<R>(store.totalNodeCount);
+			for (BiNode<K, V> head : table())
+				for (BiNode<K, V> n = head ; n != null ; n = next(n, side))
+					cleared.add(f.apply(present(n)));
+			store.clear();
+			return cleared.iterator();
+		}
+
+		@Override
+		public String toString() {
+			return "{" + Iters.toString(all(null, null, Functions.<N>toString(true)), ", ") + "}";
+		}
+
+		@Override
+		public void recordStatistics(boolean record) {
+			store.counters = record ? HashStoreCounters.serial() : null;
+		}
+
+		@Override
+		public HashStoreStatistics statistics() {
+			final BiNode<K, V>[] table = table();
+			long[] chains = new long[8];
+			for (int i = 0 ; i != table.length ; i++) {
+				int length = 0;
+				for (BiNode<K, V> n = table[i] ; n != null ; n = next(n, side))
+					length++;
+				chains = HashStoreStatistics.increment(chains, length);
+			}
+			return new HashStoreStatistics(store.totalNodeCount, store.totalNodeCount, table.length, chains, store.counters);
+		}
+
+		// **************************************************
+		// PUT METHODS
+		// **************************************************
+
+		// the node whose prefix matches, of which there can be at most one
+		private <F> BiNode<K, V> find(int hash, F find, HashNodeEquality<? super F, ? super N> eq, boolean put) {
+			final BiNode<K, V>[] table = table();
+			int probes = 1;
+			BiNode<K, V> n = table[hash & (table.length - 1)];
+			while (n != null && !(hash(n, side) == hash && eq.prefixMatch(find, present(n)))) {
+				n = next(n, side);
+				probes++;
+			}
+			final HashStoreCounters counters = store.counters;
+			if (counters != null) {
+				if (put)
+					counters.put(probes);
+				else
+					counters.find(probes);
+			}
+			return n;
+		}
+
+		// removes the pairs displaced by put, besides the match, and links it; returns the node that blocked the put if absent is set
+		private BiNode<K, V> link(BiNode<K, V> match, BiNode<K, V> put, boolean absent) {
+			final BiNode<K, V> conflict = store.bound(put, side ^ 1, match);
+			if (conflict != null) {
+				if (absent)
+					return conflict;
+				store.unlink(conflict);
+			}
+			if (match != null)
+				store.unlink(match);
+			store.link(put);
+			return null;
+		}
+
+		/**
+		 * Any pair sharing a key or value with the one put is removed. A pair that matches the prefix but not the suffix
+		 * of <code>find</code> binds the key to a different value, and is left unmodified by PUT and REPLACE.
+		 */
+		@Override
+		public <F, R> R put(PutAction action, F find, N put, HashNodeEquality<? super F, ? super N> eq, Function<? super N, ? extends R> ret) {
+			assert (action != PutAction.ENSUREANDGET);
+			final BiNode<K, V> p = unwrap(put);
+			final BiNode<K, V> m = find(hash(p, side), find, eq, true);
+			if (m != null) {
+				if (action == PutAction.IFABSENT)
+					return ret.apply(present(m));
+				if (!eq.suffixMatch(find, present(m)))
+					return null;
+			} else if (action == PutAction.REPLACE) {
+				return null;
+			}
+			final BiNode<K, V> blocked = link(m, p, action == PutAction.IFABSENT);
+			if (blocked != null)
+				return ret.apply(present(blocked));
+			return m == null ? null : ret.apply(present(m));
+		}
+
+		@Override
+		public <F, R> R put(PutAction action, int hash, F find, HashNodeEquality<? super F, ? super N> eq, HashNodeFactory<? super F, N> factory, Function<? super N, ? extends R> ret) {
+			final BiNode<K, V> m = find(hash, find, eq, true);
+			final boolean absent = action == PutAction.IFABSENT || action == PutAction.ENSUREANDGET;
+			if (m != null) {
+				if (absent)
+					return ret.apply(present(m));
+				if (!eq.suffixMatch(find, present(m)))
+					return null;
+			} else if (action == PutAction.REPLACE) {
+				return null;
+			}
+			final N put = factory.makeNode(hash, find);
+			final BiNode<K, V> p = unwrap(put);
+			final BiNode<K, V> blocked = link(m, p, absent);
+			if (blocked != null)
+				return ret.apply(present(blocked));
+			if (action == PutAction.ENSUREANDGET)
+				return ret.apply(put);
+			return m == null ? null : ret.apply(present(m));
+		}
+
+		// **************************************************
+		// REMOVE METHODS
+		// **************************************************
+
+		@Override
+		public <F> int remove(int hash, int removeAtMost, F find, HashNodeEquality<? super F, ? super N> eq) {
+			if (removeAtMost < 1) {
+				if (removeAtMost == 0)
+					return 0;
+				throw new IllegalArgumentException("Cannot remove less than zero elements");
+			}
+			return remove(hash, find, eq) == null ? 0 : 1;
+		}
+
+		@Override
+		public <F, R> R removeAndReturnFirst(int hash, int removeAtMost, F find, HashNodeEquality<? super F, ? super N> eq, Function<? super N, ? extends R> ret) {
+			if (removeAtMost < 1) {
+				if (removeAtMost == 0)
+					return null;
+				throw new IllegalArgumentException("Cannot remove less than zero elements");
+			}
+			final BiNode<K, V> removed = remove(hash, find, eq);
+			return removed == null ? null : ret.apply(present(removed));
+		}
+
+		@Override
+		public <F, R> Iterable<R> removeAndReturn(int hash, int removeAtMost, F find, HashNodeEquality<? super F, ? super N> eq, Function<? super N, ? extends R> ret) {
+			if (removeAtMost < 1) {
+				if (removeAtMost == 0)
+					return Collections.emptyList();
+				throw new IllegalArgumentException("Cannot remove less than zero elements");
+			}
+			final BiNode<K, V> removed = remove(hash, find, eq);
+			if (removed == null)
+				return Collections.emptyList();
+			return Collections.<R>singletonList(ret.apply(present(removed)));
+		}
+
+		@Override
+		public <F> boolean removeNode(Function<? super N, ? extends F> nodePrefixEqFunc, HashNodeEquality<? super F, ? super N> nodePrefixEq, N n) {
+			return store.unlink(unwrap(n));
+		}
+
+		private <F> BiNode<K, V> remove(int hash, F find, HashNodeEquality<? super F, ? super N> eq) {
+			final BiNode<K, V> n = find(hash, find, eq, false);
+			if (n == null || !eq.suffixMatch(find, present(n)))
+				return null;
+			store.unlink(n);
+			return n;
+		}
+
+		// **************************************************
+		// MEMBERSHIP AND RETRIEVAL METHODS
+		// **************************************************
+
+		private <F> BiNode<K, V> match(int hash, F find, HashNodeEquality<? super F, ? super N> eq) {
+			final BiNode<K, V> n = find(hash, find, eq, false);
+			return n == null || !eq.suffixMatch(find, present(n)) ? null : n;
+		}
+
+		@Override
+		public <F> int count(int hash, F find, HashNodeEquality<? super F, ? super N> eq, int countUpTo) {
+			if (countUpTo < 1)
+				return 0;
+			return match(hash, find, eq) == null ? 0 : 1;
+		}
+
+		@Override
+		public <F, R> R first(int hash, F find, HashNodeEquality<? super F, ? super N> eq, Function<? super N, ? extends R> ret) {
+			final BiNode<K, V> n = match(hash, find, eq);
+			return n == null ? null : ret.apply(present(n));
+		}
+
+		@Override
+		public <F, R> List<R> findNow(int hash, F find, HashNodeEquality<? super F, ? super N> findEq, Function<? super N, ? extends R> ret) {
+			final BiNode<K, V> n = match(hash, find, findEq);
+			if (n == null)
+				return Collections.emptyList();
+			final List<R> r = new ArrayList<R>(1);
+			r.add(ret.apply(present(n)));
+			return r;
+		}
+
+		@Override
+		public <F, F2, R> Iterator<R> find(int hash, F find, HashNodeEquality<? super F, ? super N> findEq,
+				Function<? super N, ? extends F2> nodeEqualityProj, HashNodeEquality<? super F2, ? super N> nodeEq,
+				Function<? super N, ? extends R> ret) {
+			final BiNode<K, V> n = match(hash, find, findEq);
+			return new SearchIterator<R>(n, ret);
+		}
+
+		@Override
+		public <F, R> Iterator<R> all(Function<? super N, ? extends F> nodeEqualityProj, HashNodeEquality<? super F, ? super N> nodeEquality, Function<? super N, ? extends R> ret) {
+			return new TableIterator<R>(null, ret);
+		}
+
+		@Override
+		public <F, F2, R> Iterator<R> unique(
+				Function<? super N, ? extends F> uniquenessEqualityProj,
+				Equality<? super F> uniquenessEquality,
+				Locality duplicateLocality,
+				Function<? super N, ? extends F2> nodeEqualityProj,
+				HashNodeEquality<? super F2, ? super N> nodeEquality,
+				Function<? super N, ? extends R> ret) {
+			final Filter<N> filter = HashStore.Helper.<N, F>forUniqueness(uniquenessEqualityProj, uniquenessEquality, duplicateLocality);
+			return new TableIterator<R>(filter, ret);
+		}
+
+		@Override
+		public <R> Spliterator<R> spliterator(Function<? super N, ? extends R> ret, int characteristics) {
+			final BiNode<K, V>[] table = table();
+			return new TableSpliterator<R>(table, 0, table.length, store.totalNodeCount, characteristics | Spliterator.SIZED, ret);
+		}
+
+		@Override
+		public <R> boolean visit(int partition, int partitions, Function<? super N, ? extends R> ret, Visitor<? super R> visitor) {
+			HashStore.Helper.checkPartition(partition, partitions);
+			final BiNode<K, V>[] table = table();
+			final int end = HashStore.Helper.partitionStart(table.length, partition + 1, partitions);
+			for (int i = HashStore.Helper.partitionStart(table.length, partition, partitions) ; i != end ; i++)
+				for (BiNode<K, V> n = table[i] ; n != null ; n = SerialBiHashStore.next(n, side))
+					if (!visitor.visit(ret.apply(present(n))))
+						return false;
+			return true;
+		}
+
+		// **************************************************
+		// ITERATOR CLASSES
+		// **************************************************
+
+		final class SearchIterator<R> implements Iterator<R> {
+
+			final Function<? super N, ? extends R> ret;
+			BiNode<K, V> next, prev;
+
+			SearchIterator(BiNode<K, V> next, Function<? super N, ? extends R> ret) {
+				this.next = next;
+				this.ret = ret;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public R next() {
+				if (next == null)
+					throw new NoSuchElementException();
+				prev = next;
+				next = null;
+				return ret.apply(present(prev));
+			}
+
+			@Override
+			public void remove() {
+				if (prev == null)
+					throw new NoSuchElementException();
+				store.unlink(prev);
+				prev = null;
+			}
+
+		}
+
+		/**
+		 * Visits the table in bucket order. Removed nodes retain their next pointers, so removals do not disturb the
+		 * iterator; growing the table does, and is reported as a <code>ConcurrentModificationException</code>.
+		 */
+		final class TableIterator<R> implements Iterator<R> {
+
+			final BiNode<K, V>[] table;
+			final Filter<N> filter;
+			final Function<? super N, ? extends R> ret;
+			int index;
+			BiNode<K, V> chain, prev, next;
+			N presented;
+
+			TableIterator(Filter<N> filter, Function<? super N, ? extends R> ret) {
+				this.table = table();
+				this.filter = filter;
+				this.ret = ret;
+			}
+
+			@Override
+			public boolean hasNext() {
+				if (table != table())
+					throw new ConcurrentModificationException();
+				while (next == null) {
+					while (chain == null) {
+						if (index == table.length)
+							return false;
+						chain = table[index++];
+					}
+					final BiNode<K, V> n = chain;
+					chain = SerialBiHashStore.next(n, side);
+					final N p = present(n);
+					if (filter == null || filter.accept(p)) {
+						next = n;
+						presented = p;
+					}
+				}
+				return true;
+			}
+
+			@Override
+			public R next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				prev = next;
+				next = null;
+				return ret.apply(presented);
+			}
+
+			@Override
+			public void remove() {
+				if (prev == null)
+					throw new NoSuchElementException();
+				store.unlink(prev);
+				prev = null;
+			}
+
+		}
+
+		/**
+		 * Visits a contiguous range of buckets, splitting by halving the range. The store must not be modified during
+		 * traversal.
+		 */
+		final class TableSpliterator<R> implements Spliterator<R> {
+
+			final BiNode<K, V>[] table;
+			final Function<? super N, ? extends R> ret;
+			int characteristics;
+			int index, end;
+			long estimate;
+			BiNode<K, V> chain;
+
+			TableSpliterator(BiNode<K, V>[] table, int index, int end, long estimate, int characteristics, Function<? super N, ? extends R> ret) {
+				this.table = table;
+				this.index = index;
+				this.end = end;
+				this.estimate = estimate;
+				this.characteristics = characteristics;
+				this.ret = ret;
+			}
+
+			@Override
+			public boolean tryAdvance(Consumer<? super R> action) {
+				if (table != table())
+					throw new ConcurrentModificationException();
+				while (chain == null) {
+					if (index == end)
+						return false;
+					chain = table[index++];
+				}
+				final BiNode<K, V> n = chain;
+				chain = next(n, side);
+				action.accept(ret.apply(present(n)));
+				return true;
+			}
+
+			@Override
+			public Spliterator<R> trySplit() {
+				final int mid = (index + end) >>> 1;
+				if (chain != null || mid == index)
+					return null;
+				characteristics &= ~Spliterator.SIZED;
+				estimate >>>= 1;
+				final TableSpliterator<R> split = new TableSpliterator<R>(table, mid, end, estimate, characteristics, ret);
+				end = mid;
+				return split;
+			}
+
+			@Override
+			public long estimateSize() {
+				return estimate;
+			}
+
+			@Override
+			public int characteristics() {
+				return characteristics;
+			}
+
+		}
+
+	}
+
+}
@@ -42,20 +42,7 @@ public final class SerialHashStore<N extends AbstractSerialHashStore.SerialHashN
 	@Override
 	public <NCmp> SerialHashStore<N> copy(Function<? super N, ? extends NCmp> nodeEqualityProj,
 		HashNodeEquality<? super NCmp, ? super N> nodeEquality) {
-		final N[] table = this.table.clone();
-		for (int i = 0 ; i != table.length ; i++) {
-			N orig = table[i];
-			if (orig != null) {
-				N copy = orig.copy();
-				table[i] = copy;
-				orig = orig.next;
-				while (orig != null) {
-					copy.next = copy = orig.copy();
-					orig = orig.next;
-				}
-			}
-		}
-		return new SerialHashStore<N>(loadFactor, table, totalNodeCount, uniquePrefixCount);
+		return new SerialHashStore<N>(loadFactor, copyTable(), totalNodeCount, uniquePrefixCount);
 	}
 
 }
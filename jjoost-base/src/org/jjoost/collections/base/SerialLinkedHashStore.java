@@ -24,8 +24,11 @@ package org.jjoost.collections.base;
 
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 
 import org.jjoost.util.Function;
+import org.jjoost.util.Visitor;
 
 @SuppressWarnings("unchecked")
 public final class SerialLinkedHashStore<N extends SerialLinkedHashStore.SerialLinkedHashNode<N>> extends AbstractSerialHashStore<N, SerialLinkedHashStore<N>> {
@@ -116,7 +119,8 @@ public final class SerialLinkedHashStore<N extends SerialLinkedHashStore.SerialL
 	@Override
 	public <NCmp> SerialLinkedHashStore<N> copy(Function<? super N, ? extends NCmp> nodeEqualityProj,
 		HashNodeEquality<? super NCmp, ? super N> nodeEquality) {
-		final N[] tbl = (N[]) new SerialLinkedHashNode[this.table.length];
+		// table is allocated by our superclass as a SerialHashNode[], so cannot be read here as an N[]
+		final N[] tbl = (N[]) new SerialLinkedHashNode[capacity()];
 		final int totalNodeCount = this.totalNodeCount;
 		final int uniquePrefixCount = this.uniquePrefixCount;
 		N newHead, newTail = newHead();
@@ -152,6 +156,25 @@ public final class SerialLinkedHashStore<N extends SerialLinkedHashStore.SerialL
 	public <NCmp, V> Iterator<V> all(Function<? super N, ? extends NCmp> nodePrefixEqFunc, HashNodeEquality<? super NCmp, ? super N> nodePrefixEq, Function<? super N, ? extends V> ret) {
 		return new LinkIterator<NCmp, V>(nodePrefixEqFunc, nodePrefixEq, ret);
 	}
+	
+	// insertion order cannot be preserved by splitting on bucket ranges, so we split by batching the linked iteration
+	@Override
+	public <V> Spliterator<V> spliterator(Function<? super N, ? extends V> ret, int characteristics) {
+		return Spliterators.spliterator(new LinkIterator<Object, V>(null, null, ret), totalNodeCount, characteristics | Spliterator.ORDERED);
+	}
+
+	// likewise a single partition is visited in insertion order; any more are visited by bucket range, and so are unordered
+	@Override
+	public <V> boolean visit(int partition, int partitions, Function<? super N, ? extends V> ret, Visitor<? super V> visitor) {
+		if (partitions != 1)
+			return super.visit(partition, partitions, ret, visitor);
+		HashStore.Helper.checkPartition(partition, partitions);
+		final N head = this.head;
+		for (N n = head.linkNext ; n != head ; n = n.linkNext)
+			if (!visitor.visit(ret.apply(n)))
+				return false;
+		return true;
+	}
 	
 	private final class LinkIterator<NCmp, V> implements Iterator<V> {
 
@@ -200,11 +223,19 @@ public final class SerialLinkedHashStore<N extends SerialLinkedHashStore.SerialL
 	
 	public N oldest() {
 		final N head = this.head;
-		final N next = head.next;
+		final N next = head.linkNext;
 		if (next != head) {
 			return next;
 		}
 		return null;
 	}
+	
+	/**
+	 * moves the provided node, which must be present in this store, to the newest end of the iteration order, so that
+	 * the store's order reflects access rather than insertion 
+	 */
+	public void touch(N n) {
+		reinserted(n);
+	}
 
 }
@@ -0,0 +1,583 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.collections.base;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.StampedLock;
+
+import org.jjoost.collections.base.AbstractSerialHashStore.SerialHashNode;
+import org.jjoost.util.Equality;
+import org.jjoost.util.Filter;
+import org.jjoost.util.Function;
+import org.jjoost.util.Functions;
+import org.jjoost.util.Iters;
+import org.jjoost.util.Rehasher;
+import org.jjoost.util.Rehashers;
+import org.jjoost.util.Visitor;
+
+/**
+ * A thread-safe <code>HashStore</code> sharing the bucket layout of <code>SerialHashStore</code>, guarded by a
+ * power-of-two number of <code>StampedLock</code>s. Each lock guards every bucket whose index shares its low bits,
+ * so writers only contend with other writers to the same stripe, and readers only with writers to the same stripe.
+ * Chains are relinked in place, so readers always acquire the read lock rather than attempt an optimistic read.
+ * Growing the table acquires every stripe in order.
+ * <p>
+ * Iteration is weakly consistent: each stripe is copied under its read lock as the iterator reaches it.
+ *
+ * @author b.elliottsmith
+ */
+@SuppressWarnings("unchecked")
+public class StripedHashStore<N extends SerialHashNode<N>> implements HashStore<N, StripedHashStore<N>> {
+
+	private static final long serialVersionUID = 2811870452153306549L;
+
+	protected final float loadFactor;
+	private final Stripe<N>[] stripes;
+	private final int stripeMask;
+	private volatile int loadLimit;
+	// non-null only whilst statistics are being recorded, and shared with every stripe
+	private transient volatile HashStoreCounters counters;
+
+	public StripedHashStore(int initialCapacity, float loadFactor, int stripeCount) {
+		if (stripeCount < 1)
+			throw new IllegalArgumentException("Cannot have fewer than one stripe");
+		int stripes = 1;
+		while (stripes < stripeCount)
+			stripes <<= 1;
+		int capacity = 8;
+		while (capacity < initialCapacity || capacity < stripes)
+			capacity <<= 1;
+		this.loadFactor = loadFactor;
+		this.stripes = (Stripe<N>[]) new Stripe<?>[stripes];
+		this.stripeMask = stripes - 1;
+		this.loadLimit = (int) (capacity * loadFactor);
+		final N[] table = (N[]) new SerialHashNode<?>[capacity];
+		for (int i = 0 ; i != stripes ; i++)
+			this.stripes[i] = new Stripe<N>(loadFactor, table, 0, 0);
+	}
+
+	private StripedHashStore(float loadFactor, Stripe<N>[] stripes) {
+		this.loadFactor = loadFactor;
+		this.stripes = stripes;
+		this.stripeMask = stripes.length - 1;
+		this.loadLimit = (int) (stripes[0].table.length * loadFactor);
+	}
+
+	// **************************************************
+	// PUBLIC METHODS
+	// **************************************************
+
+	@Override
+	public int capacity() {
+		return stripes[0].table.length;
+	}
+
+	@Override
+	public int totalCount() {
+		int sum = 0;
+		for (Stripe<N> stripe : stripes)
+			sum += stripe.totalNodeCount;
+		return sum;
+	}
+
+	@Override
+	public int uniquePrefixCount() {
+		int sum = 0;
+		for (Stripe<N> stripe : stripes)
+			sum += stripe.uniquePrefixCount;
+		return sum;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return totalCount() == 0;
+	}
+
+	@Override
+	public int clear() {
+		final long[] stamps = lockAll();
+		try {
+			final int r = totalCount();
+			reset((N[]) new SerialHashNode<?>[capacity()]);
+			return r;
+		} finally {
+			unlockAll(stamps);
+		}
+	}
+
+	@Override
+	public <V> Iterator<V> clearAndReturn(Function<? super N, ? extends V> f) {
+		final long[] stamps = lockAll();
+		try {
+			final List<N> cleared = new ArrayList<N>(totalCount());
+			for (int i = 0 ; i != stripes.length ; i++)
+				snapshot(i, cleared);
+			reset((N[]) new SerialHashNode<?>[capacity()]);
+			return Functions.apply(f, cleared.iterator());
+		} finally {
+			unlockAll(stamps);
+		}
+	}
+
+	@Override
+	public <NCmp> StripedHashStore<N> copy(Function<? super N, ? extends NCmp> nodeEqualityProj, HashNodeEquality<? super NCmp, ? super N> nodeEquality) {
+		final long[] stamps = new long[stripes.length];
+		for (int i = 0 ; i != stripes.length ; i++)
+			stamps[i] = readLock(stripes[i]);
+		try {
+			final Stripe<N>[] copies = (Stripe<N>[]) new Stripe<?>[stripes.length];
+			copies[0] = stripes[0].copy(nodeEqualityProj, nodeEquality);
+			for (int i = 1 ; i != stripes.length ; i++)
+				copies[i] = new Stripe<N>(loadFactor, copies[0].table, stripes[i].totalNodeCount, stripes[i].uniquePrefixCount);
+			return new StripedHashStore<N>(loadFactor, copies);
+		} finally {
+			for (int i = stripes.length - 1 ; i >= 0 ; i--)
+				stripes[i].lock.unlockRead(stamps[i]);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "{" + Iters.toString(all(null, null, Functions.<N>toString(true)), ", ") + "}";
+	}
+
+	@Override
+	public void recordStatistics(boolean record) {
+		final HashStoreCounters counters = record ? HashStoreCounters.concurrent() : null;
+		this.counters = counters;
+		for (Stripe<N> stripe : stripes)
+			stripe.counters = counters;
+	}
+
+	/**
+	 * the chain length histogram is computed without locking, so is only approximate if the store is being modified
+	 */
+	@Override
+	public HashStoreStatistics statistics() {
+		final N[] table = stripes[0].table;
+		long[] chains = new long[8];
+		for (int i = 0 ; i != table.length ; i++) {
+			int length = 0;
+			for (N n = table[i] ; n != null ; n = n.next)
+				length++;
+			chains = HashStoreStatistics.increment(chains, length);
+		}
+		return new HashStoreStatistics(totalCount(), uniquePrefixCount(), table.length, chains, counters);
+	}
+
+	// **************************************************
+	// PUT METHODS
+	// **************************************************
+
+	@Override
+	public <NCmp, V> V put(PutAction action, NCmp find, N put, HashNodeEquality<? super NCmp, ? super N> eq, Function<? super N, ? extends V> ret) {
+		final Stripe<N> stripe = stripe(put.hash);
+		final long stamp = writeLock(stripe);
+		final V r;
+		try {
+			r = stripe.put(action, find, put, eq, ret);
+		} finally {
+			stripe.lock.unlockWrite(stamp);
+		}
+		grow(stripe);
+		return r;
+	}
+
+	@Override
+	public <NCmp, V> V put(PutAction action, int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq, HashNodeFactory<? super NCmp, N> factory, Function<? super N, ? extends V> ret) {
+		final Stripe<N> stripe = stripe(hash);
+		final long stamp = writeLock(stripe);
+		final V r;
+		try {
+			r = stripe.put(action, hash, find, eq, factory, ret);
+		} finally {
+			stripe.lock.unlockWrite(stamp);
+		}
+		grow(stripe);
+		return r;
+	}
+
+	// **************************************************
+	// REMOVE METHODS
+	// **************************************************
+
+	@Override
+	public <NCmp> int remove(int hash, int removeAtMost, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq) {
+		final Stripe<N> stripe = stripe(hash);
+		final long stamp = writeLock(stripe);
+		try {
+			return stripe.remove(hash, removeAtMost, find, eq);
+		} finally {
+			stripe.lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public <NCmp, V> V removeAndReturnFirst(int hash, int removeAtMost, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq, Function<? super N, ? extends V> ret) {
+		final Stripe<N> stripe = stripe(hash);
+		final long stamp = writeLock(stripe);
+		try {
+			return stripe.removeAndReturnFirst(hash, removeAtMost, find, eq, ret);
+		} finally {
+			stripe.lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public <NCmp, V> Iterable<V> removeAndReturn(int hash, int removeAtMost, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq, Function<? super N, ? extends V> ret) {
+		final Stripe<N> stripe = stripe(hash);
+		final long stamp = writeLock(stripe);
+		try {
+			// the serial store returns copies of the removed nodes, so these are safe to visit outside of the lock
+			return stripe.removeAndReturn(hash, removeAtMost, find, eq, ret);
+		} finally {
+			stripe.lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public <NCmp> boolean removeNode(Function<? super N, ? extends NCmp> nodePrefixEqFunc, HashNodeEquality<? super NCmp, ? super N> nodePrefixEq, N n) {
+		final Stripe<N> stripe = stripe(n.hash);
+		final long stamp = writeLock(stripe);
+		try {
+			return stripe.removeNode(nodePrefixEqFunc, nodePrefixEq, n);
+		} finally {
+			stripe.lock.unlockWrite(stamp);
+		}
+	}
+
+	// **************************************************
+	// MEMBERSHIP AND RETRIEVAL METHODS
+	// **************************************************
+
+	// the chains of a stripe are relinked in place by its writers, so they may only be walked holding its read lock
+
+	@Override
+	public <NCmp> int count(int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq, int countUpTo) {
+		final Stripe<N> stripe = stripe(hash);
+		final long stamp = readLock(stripe);
+		try {
+			return stripe.count(hash, find, eq, countUpTo);
+		} finally {
+			stripe.lock.unlockRead(stamp);
+		}
+	}
+
+	@Override
+	public <NCmp, V> V first(int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> eq, Function<? super N, ? extends V> ret) {
+		final Stripe<N> stripe = stripe(hash);
+		final long stamp = readLock(stripe);
+		try {
+			return stripe.first(hash, find, eq, ret);
+		} finally {
+			stripe.lock.unlockRead(stamp);
+		}
+	}
+
+	@Override
+	public <NCmp, V> List<V> findNow(int hash, NCmp find, HashNodeEquality<? super NCmp, ? super N> findEq, Function<? super N, ? extends V> ret) {
+		final Stripe<N> stripe = stripe(hash);
+		final long stamp = readLock(stripe);
+		try {
+			return stripe.findNow(hash, find, findEq, ret);
+		} finally {
+			stripe.lock.unlockRead(stamp);
+		}
+	}
+
+	@Override
+	public <NCmp, NCmp2, V> Iterator<V> find(
+			int hash, NCmp find,
+			HashNodeEquality<? super NCmp, ? super N> findEq,
+			Function<? super N, ? extends NCmp2> nodeEqualityProj,
+			HashNodeEquality<? super NCmp2, ? super N> nodeEquality,
+			Function<? super N, ? extends V> ret) {
+		final List<N> nodes = findNow(hash, find, findEq, Functions.<N>identity());
+		return new SnapshotIterator<NCmp2, V>(nodes, null, nodeEqualityProj, nodeEquality, ret);
+	}
+
+	@Override
+	public <NCmp, V> Iterator<V> all(
+			Function<? super N, ? extends NCmp> nodeEqualityProj,
+			HashNodeEquality<? super NCmp, ? super N> nodeEquality,
+			Function<? super N, ? extends V> ret) {
+		return new SnapshotIterator<NCmp, V>(null, null, nodeEqualityProj, nodeEquality, ret);
+	}
+
+	@Override
+	public <V> Spliterator<V> spliterator(Function<? super N, ? extends V> ret, int characteristics) {
+		return Spliterators.spliteratorUnknownSize(new SnapshotIterator<Object, V>(null, null, null, null, ret), characteristics | Spliterator.CONCURRENT);
+	}
+
+	@Override
+	public <V> boolean visit(int partition, int partitions, Function<? super N, ? extends V> ret, Visitor<? super V> visitor) {
+		HashStore.Helper.checkPartition(partition, partitions);
+		final long start = HashStore.Helper.hashPartitionStart(partition, partitions);
+		final long end = HashStore.Helper.hashPartitionStart(partition + 1, partitions);
+		// each stripe owns a fixed range of reversed hashes, so we visit the stripes that share a part of the partition, and as
+		// with iteration copy that part under the stripe's read lock, so that the visitor may modify the store
+		final long stripeWidth = HashStore.Helper.bucketWidth(stripes.length);
+		final List<N> nodes = new ArrayList<N>();
+		for (long stripe = start - start % stripeWidth ; stripe < end ; stripe += stripeWidth) {
+			final Stripe<N> s = stripes[Integer.reverse((int) stripe)];
+			final long from = Math.max(start, stripe), to = Math.min(end, stripe + stripeWidth);
+			final long stamp = readLock(s);
+			try {
+				final N[] table = s.table;
+				final long width = HashStore.Helper.bucketWidth(table.length);
+				for (long rev = from - from % width ; rev < to ; rev += width)
+					for (N n = table[Integer.reverse((int) rev)] ; n != null ; n = n.next)
+						if (HashStore.Helper.inHashPartition(n.hash, from, to))
+							nodes.add(n);
+			} finally {
+				s.lock.unlockRead(stamp);
+			}
+			for (N n : nodes)
+				if (!visitor.visit(ret.apply(n)))
+					return false;
+			nodes.clear();
+		}
+		return true;
+	}
+
+	@Override
+	public <NCmp, NCmp2, V> Iterator<V> unique(
+			Function<? super N, ? extends NCmp> uniquenessEqualityProj,
+			Equality<? super NCmp> uniquenessEquality,
+			Locality duplicateLocality,
+			Function<? super N, ? extends NCmp2> nodeEqualityProj,
+			HashNodeEquality<? super NCmp2, ? super N> nodeEquality,
+			Function<? super N, ? extends V> ret) {
+		final Filter<N> filter = HashStore.Helper.<N, NCmp>forUniqueness(uniquenessEqualityProj, uniquenessEquality, duplicateLocality);
+		return new SnapshotIterator<NCmp2, V>(null, filter, nodeEqualityProj, nodeEquality, ret);
+	}
+
+	public static Rehasher defaultRehasher() {
+		return Rehashers.jdkHashmapRehasher();
+	}
+
+	public static int defaultStripeCount() {
+		return Math.max(16, Runtime.getRuntime().availableProcessors() << 2);
+	}
+
+	// **************************************************
+	// STRIPE AND ITERATOR CLASSES
+	// **************************************************
+
+	// a view of the shared table that can only safely be accessed whilst holding its lock; all stripes of a store
+	// share the same table, but each maintains the counts of the buckets it guards
+	static final class Stripe<N extends SerialHashNode<N>> extends AbstractSerialHashStore<N, Stripe<N>> {
+
+		private static final long serialVersionUID = -4460361364367049082L;
+
+		final StampedLock lock = new StampedLock();
+
+		Stripe(float loadFactor, N[] table, int totalNodeCount, int uniquePrefixCount) {
+			super(loadFactor, table, totalNodeCount, uniquePrefixCount);
+		}
+
+		// the owning store grows the table once the stripe's lock has been released
+		@Override
+		protected void grow() {
+		}
+
+		// copies the whole table, which is shared with every other stripe, so the caller must hold every stripe's lock
+		@Override
+		public <NCmp> Stripe<N> copy(Function<? super N, ? extends NCmp> nodeEqualityProj, HashNodeEquality<? super NCmp, ? super N> nodeEquality) {
+			return new Stripe<N>(loadFactor, copyTable(), totalNodeCount, uniquePrefixCount);
+		}
+
+	}
+
+	final class SnapshotIterator<NCmp, V> implements Iterator<V> {
+
+		final Filter<? super N> filter;
+		final Function<? super N, ? extends NCmp> nodeEqualityProj;
+		final HashNodeEquality<? super NCmp, ? super N> nodeEquality;
+		final Function<? super N, ? extends V> ret;
+		final List<N> nodes;
+		// the next stripe to copy once we exhaust nodes; once this reaches stripes.length we are finished
+		int stripe;
+		int next = 0;
+		boolean ready = false;
+		N last;
+
+		SnapshotIterator(List<N> nodes, Filter<? super N> filter,
+				Function<? super N, ? extends NCmp> nodeEqualityProj,
+				HashNodeEquality<? super NCmp, ? super N> nodeEquality,
+				Function<? super N, ? extends V> ret) {
+			this.filter = filter;
+			this.nodeEqualityProj = nodeEqualityProj;
+			this.nodeEquality = nodeEquality;
+			this.ret = ret;
+			if (nodes == null) {
+				this.nodes = new ArrayList<N>();
+				this.stripe = 0;
+			} else {
+				this.nodes = nodes;
+				this.stripe = stripes.length;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (ready)
+				return true;
+			while (true) {
+				while (next != nodes.size()) {
+					if (filter == null || filter.accept(nodes.get(next)))
+						return ready = true;
+					next++;
+				}
+				if (stripe == stripes.length)
+					return false;
+				nodes.clear();
+				next = 0;
+				final Stripe<N> s = stripes[stripe];
+				final long stamp = readLock(s);
+				try {
+					snapshot(stripe, nodes);
+				} finally {
+					s.lock.unlockRead(stamp);
+				}
+				stripe++;
+			}
+		}
+
+		@Override
+		public V next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			ready = false;
+			last = nodes.get(next++);
+			return ret.apply(last);
+		}
+
+		@Override
+		public void remove() {
+			if (last == null)
+				throw new NoSuchElementException();
+			removeNode(nodeEqualityProj, nodeEquality, last);
+			last = null;
+		}
+
+	}
+
+	// **************************************************
+	// PRIVATE METHODS
+	// **************************************************
+
+	private Stripe<N> stripe(int hash) {
+		return stripes[hash & stripeMask];
+	}
+
+	// must hold the lock for stripe i
+	private void snapshot(int i, List<N> into) {
+		final N[] table = stripes[i].table;
+		for (int bucket = i ; bucket < table.length ; bucket += stripes.length) {
+			for (N n = table[bucket] ; n != null ; n = n.next)
+				into.add(n);
+		}
+	}
+
+	// must hold every lock
+	private void reset(N[] table) {
+		for (Stripe<N> stripe : stripes) {
+			stripe.table = table;
+			stripe.totalNodeCount = 0;
+			stripe.uniquePrefixCount = 0;
+		}
+	}
+
+	private void grow(Stripe<N> modified) {
+		// if the table is over its load limit, at least one stripe must be over its share of it
+		if (modified.uniquePrefixCount < loadLimit >> Integer.bitCount(stripeMask))
+			return;
+		if (uniquePrefixCount() < loadLimit)
+			return;
+		final long[] stamps = lockAll();
+		try {
+			if (uniquePrefixCount() < loadLimit)
+				return;
+			final HashStoreCounters counters = this.counters;
+			final long start = counters == null ? 0 : System.nanoTime();
+			final Stripe<N> first = stripes[0];
+			final N[] oldTable = first.table;
+			final N[] newTable = (N[]) new SerialHashNode<?>[oldTable.length << 1];
+			first.table = newTable;
+			first.rehash(oldTable);
+			for (Stripe<N> stripe : stripes)
+				stripe.table = newTable;
+			loadLimit = (int) (newTable.length * loadFactor);
+			if (counters != null)
+				counters.resized(System.nanoTime() - start);
+		} finally {
+			unlockAll(stamps);
+		}
+	}
+
+	// acquire the lock, timing the wait if it is contended and we are recording statistics
+	private long writeLock(Stripe<N> stripe) {
+		final HashStoreCounters counters = this.counters;
+		if (counters == null)
+			return stripe.lock.writeLock();
+		long stamp = stripe.lock.tryWriteLock();
+		if (stamp == 0) {
+			final long start = System.nanoTime();
+			stamp = stripe.lock.writeLock();
+			counters.lockWaited(System.nanoTime() - start);
+		}
+		return stamp;
+	}
+
+	private long readLock(Stripe<N> stripe) {
+		final HashStoreCounters counters = this.counters;
+		if (counters == null)
+			return stripe.lock.readLock();
+		long stamp = stripe.lock.tryReadLock();
+		if (stamp == 0) {
+			final long start = System.nanoTime();
+			stamp = stripe.lock.readLock();
+			counters.lockWaited(System.nanoTime() - start);
+		}
+		return stamp;
+	}
+
+	private long[] lockAll() {
+		final long[] stamps = new long[stripes.length];
+		for (int i = 0 ; i != stripes.length ; i++)
+			stamps[i] = writeLock(stripes[i]);
+		return stamps;
+	}
+
+	private void unlockAll(long[] stamps) {
+		for (int i = stripes.length - 1 ; i >= 0 ; i--)
+			stripes[i].lock.unlockWrite(stamps[i]);
+	}
+
+}
@@ -90,13 +90,24 @@ public class SynchronizedDelegator {
 		
 	}
 	
-	protected class SyncAnyReadSet<V, I extends AnyReadSet<V>> extends SyncIterable<V, I> implements AnyReadSet<V> {
+	protected class SyncAnyReadSet<V, I extends AnyReadSet<V>> extends SyncIterable<V, I> implements AnyReadSet<V>, Instrumented {
 		
 		private static final long serialVersionUID = -6659656215877484794L;
 		
 		public SyncAnyReadSet(I set) {
 			super(set);
 		}
+
+		@Override public void recordStatistics(boolean record) {
+			synchronized (SynchronizedDelegator.this) {
+				instrumented(delegate).recordStatistics(record);
+			}
+		}
+		@Override public HashStoreStatistics statistics() {
+			synchronized (SynchronizedDelegator.this) {
+				return instrumented(delegate).statistics();
+			}
+		}
 		
 		@Override public Iterable<V> all(V value) {
 			synchronized(SynchronizedDelegator.this) {
@@ -118,6 +129,11 @@ public class SynchronizedDelegator {
 				return new SynchronizedDelegator().wrap(delegate.copy());
 			}
 		}
+		@Override public AnyReadSet<V> snapshot() {
+			synchronized(SynchronizedDelegator.this) {
+				return delegate.snapshot();
+			}
+		}
 		@Override public int count(V value) {
 			synchronized(SynchronizedDelegator.this) {
 				return delegate.count(value);
@@ -417,13 +433,24 @@ public class SynchronizedDelegator {
 		
 	}
 	
-	protected class SyncAnyReadMap<K, V, M extends AnyReadMap<K, V>> implements AnyReadMap<K, V> {
+	protected class SyncAnyReadMap<K, V, M extends AnyReadMap<K, V>> implements AnyReadMap<K, V>, Instrumented {
 		
 		private static final long serialVersionUID = 1L;
 		final M delegate;
 		public SyncAnyReadMap(M delegate) {
 			this.delegate = delegate;
 		}
+
+		@Override public void recordStatistics(boolean record) {
+			synchronized (SynchronizedDelegator.this) {
+				instrumented(delegate).recordStatistics(record);
+			}
+		}
+		@Override public HashStoreStatistics statistics() {
+			synchronized (SynchronizedDelegator.this) {
+				return instrumented(delegate).statistics();
+			}
+		}
 		
 		@Override public boolean contains(K key) {
 			synchronized (SynchronizedDelegator.this) {
@@ -460,6 +487,11 @@ public class SynchronizedDelegator {
 				return new SynchronizedDelegator().wrap(delegate.copy());
 			}
 		}
+		@Override public AnyReadMap<K, V> snapshot() {
+			synchronized (SynchronizedDelegator.this) {
+				return delegate.snapshot();
+			}
+		}
 		@Override public AnyReadSet<V> values() {
 			synchronized (SynchronizedDelegator.this) {
 				return wrap(delegate.values());
@@ -563,7 +595,7 @@ public class SynchronizedDelegator {
 		
 	}
 	
-	protected class SyncAnyMap<K, V, M extends AnyMap<K, V>> implements AnyMap<K, V> {
+	protected class SyncAnyMap<K, V, M extends AnyMap<K, V>> implements AnyMap<K, V>, Instrumented {
 
 		private static final long serialVersionUID = 1L;
 		final M delegate;
@@ -571,6 +603,17 @@ public class SynchronizedDelegator {
 			this.delegate = delegate;
 		}
 
+		@Override public void recordStatistics(boolean record) {
+			synchronized (SynchronizedDelegator.this) {
+				instrumented(delegate).recordStatistics(record);
+			}
+		}
+		@Override public HashStoreStatistics statistics() {
+			synchronized (SynchronizedDelegator.this) {
+				return instrumented(delegate).statistics();
+			}
+		}
+
 		@Override public V put(K key, V val) {
 			synchronized (SynchronizedDelegator.this) {
 				return delegate.put(key, val);
@@ -631,6 +674,11 @@ public class SynchronizedDelegator {
 				return new SynchronizedDelegator().wrap(delegate.copy());
 			}
 		}
+		@Override public AnyReadMap<K, V> snapshot() {
+			synchronized (SynchronizedDelegator.this) {
+				return delegate.snapshot();
+			}
+		}
 		@Override public Iterable<Entry<K, V>> removeAndReturn(K key) {
 			synchronized (delegate) {
 				return delegate.removeAndReturn(key);
@@ -902,6 +950,13 @@ public class SynchronizedDelegator {
 		return new SyncListMap<K, V>(delegate);
 	}
 	
+	// statistics are collected through the wrapper, so that the delegate's table is only walked whilst it is locked
+	static Instrumented instrumented(Object delegate) {
+		if (!(delegate instanceof Instrumented))
+			throw new UnsupportedOperationException(delegate.getClass().getName() + " does not record statistics");
+		return (Instrumented) delegate;
+	}
+	
 	public static <V> Iterator<V> get(final Iterator<V> delegate) {
 		return new SynchronizedDelegator().wrap(delegate);
 	}	
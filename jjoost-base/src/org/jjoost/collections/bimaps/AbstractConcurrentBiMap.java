@@ -0,0 +1,332 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.collections.bimaps;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jjoost.collections.AnyMap;
+import org.jjoost.util.Equality;
+import org.jjoost.util.Rehasher;
+import org.jjoost.util.Rehashers;
+
+/**
+ * A thread-safe <code>BiMap</code>. Every pair is guarded by two locks: the stripe of its key and the stripe of its
+ * value, drawn from one array of locks shared by the map and its inverse. A modification first reads, without locking,
+ * every pair it may displace, then acquires the stripes of all of them in index order, and retries if any of those
+ * pairs changed in the meantime; so writers contend only with writers touching the same stripes, and both directions
+ * are always updated together.
+ * <p>
+ * Reads are delegated directly to the underlying maps, so are lock-free if those maps are; a reader may briefly see a
+ * pair in one direction before it appears in (or after it has been removed from) the other. The keys and values must
+ * have the same definition of equality as the maps they are stored in, so that equal objects share a stripe.
+ *
+ * @author b.elliottsmith
+ */
+public abstract class AbstractConcurrentBiMap<
+	K, V, 
+	M extends AnyMap<K, V>, 
+	I extends AnyMap<V, K>> 
+extends AbstractBiMap<K, V, M, I> {
+
+	private static final long serialVersionUID = -4376602618394592375L;
+
+	protected final Stripes<K, V> stripes;
+
+	protected AbstractConcurrentBiMap(M forwards, Stripes<K, V> stripes) {
+		super(forwards);
+		this.stripes = stripes;
+	}
+
+	private AnyMap<V, K> back() {
+		return partner().map;
+	}
+
+	// the value that putting a new value for this key would displace, if any
+	private V boundValue(K key) {
+		return map.permitsDuplicateKeys() ? null : map.first(key);
+	}
+
+	// the key that putting a new key for this value would displace, if any
+	private K boundKey(V val) {
+		final AnyMap<V, K> back = back();
+		return back.permitsDuplicateKeys() ? null : back.first(val);
+	}
+
+	@Override
+	public int clear() {
+		final int[] locked = stripes.lockAll();
+		try {
+			back().clear();
+			return map.clear();
+		} finally {
+			stripes.unlock(locked);
+		}
+	}
+
+	@Override
+	public boolean add(K key, V val) {
+		return putIfAbsent(key, val) == null;
+	}
+
+	@Override
+	public V put(K key, V val) {
+		return put(key, val, false, null);
+	}
+
+	/**
+	 * Binds <code>key</code> to <code>val</code>, first removing any pair either would displace in a direction
+	 * that does not permit duplicates. If <code>replace</code> is set, the pair is only put if <code>key</code> is
+	 * already bound to a value, which must equal <code>expect</code> if that is not <code>null</code>.
+	 * 
+	 * @return the value of any pair removed as a result of this action
+	 */
+	protected final V put(K key, V val, boolean replace, V expect) {
+		check(key, val);
+		final AnyMap<V, K> back = back();
+		while (true) {
+			final V prevVal = boundValue(key);
+			final K prevKey = boundKey(val);
+			final int[] locked = stripes.lock(key, prevKey, val, prevVal);
+			try {
+				if (prevVal != boundValue(key) || prevKey != boundKey(val))
+					continue;
+				if (replace && (prevVal == null ? !map.contains(key) : expect != null && !map.contains(key, expect)))
+					return null;
+				// leave an existing pair untouched, so that readers never see it disappear
+				if (prevVal != null && prevKey != null && map.contains(key, val))
+					return prevVal;
+				if (prevVal != null)
+					back.remove(prevVal, key);
+				if (prevKey != null)
+					map.remove(prevKey, val);
+				final V r = map.put(key, val);
+				back.put(val, key);
+				return prevVal != null ? prevVal : r;
+			} finally {
+				stripes.unlock(locked);
+			}
+		}
+	}
+
+	/**
+	 * Binds <code>key</code> to <code>val</code> as described by <code>AnyMap.putIfAbsent()</code>; however if the
+	 * inverse map does not permit duplicates and <code>val</code> is already bound to a key, the pair is not put and,
+	 * unless a <code>Map</code> already binds <code>key</code> to some value, <code>val</code> is returned.
+	 */
+	@Override
+	public V putIfAbsent(K key, V val) {
+		check(key, val);
+		final AnyMap<V, K> back = back();
+		while (true) {
+			final K prevKey = boundKey(val);
+			final int[] locked = stripes.lock(key, prevKey, val, null);
+			try {
+				if (prevKey != boundKey(val))
+					continue;
+				if (prevKey != null) {
+					final V r = boundValue(key);
+					return r != null ? r : val;
+				}
+				final V r = map.putIfAbsent(key, val);
+				if (r == null)
+					back.put(val, key);
+				return r;
+			} finally {
+				stripes.unlock(locked);
+			}
+		}
+	}
+
+	@Override
+	public int remove(K key, V val) {
+		check(key, val);
+		final int[] locked = stripes.lock(key, null, val, null);
+		try {
+			final int r = map.remove(key, val);
+			if (r != 0)
+				back().remove(val, key);
+			return r;
+		} finally {
+			stripes.unlock(locked);
+		}
+	}
+
+	@Override
+	public Iterable<Entry<K, V>> removeAndReturn(K key, V val) {
+		check(key, val);
+		final int[] locked = stripes.lock(key, null, val, null);
+		try {
+			final Iterable<Entry<K, V>> r = map.removeAndReturn(key, val);
+			if (r.iterator().hasNext())
+				back().remove(val, key);
+			return r;
+		} finally {
+			stripes.unlock(locked);
+		}
+	}
+
+	@Override
+	public int remove(K key) {
+		int c = 0;
+		for (Iterator<Entry<K, V>> iter = removeAll(key).iterator() ; iter.hasNext() ; iter.next())
+			c++;
+		return c;
+	}
+
+	@Override
+	public Iterable<Entry<K, V>> removeAndReturn(K key) {
+		return removeAll(key);
+	}
+
+	@Override
+	public V removeAndReturnFirst(K key) {
+		final Iterator<Entry<K, V>> iter = removeAll(key).iterator();
+		return iter.hasNext() ? iter.next().getValue() : null;
+	}
+
+	private Iterable<Entry<K, V>> removeAll(K key) {
+		final AnyMap<V, K> back = back();
+		while (true) {
+			final List<V> vals = map.list(key);
+			final int[] locked = stripes.lock(key, vals);
+			try {
+				// whilst we hold the key's stripe its values cannot change, but they may have done so before we took it
+				if (!same(vals, map.list(key)))
+					continue;
+				final Iterable<Entry<K, V>> removed = map.removeAndReturn(key);
+				for (Entry<K, V> entry : removed)
+					back.remove(entry.getValue(), key);
+				return removed;
+			} finally {
+				stripes.unlock(locked);
+			}
+		}
+	}
+
+	private static boolean same(List<?> a, List<?> b) {
+		if (a.size() != b.size())
+			return false;
+		for (int i = 0 ; i != a.size() ; i++)
+			if (a.get(i) != b.get(i))
+				return false;
+		return true;
+	}
+
+	protected static final class Stripes<K, V> implements Serializable {
+
+		private static final long serialVersionUID = 6350385316096154049L;
+		private static final Rehasher REHASHER = Rehashers.jdkHashmapRehasher();
+
+		// the first half guard the keys of the forwards map, the second its values
+		private final ReentrantLock[] locks;
+		private final int mask, keyOffset, valOffset;
+		private final Equality<? super K> keyEq;
+		private final Equality<? super V> valEq;
+		private final Stripes<V, K> inverse;
+
+		public Stripes(int stripeCount, Equality<? super K> keyEq, Equality<? super V> valEq) {
+			if (stripeCount < 1)
+				throw new IllegalArgumentException("Cannot have fewer than one stripe");
+			int stripes = 1;
+			while (stripes < stripeCount)
+				stripes <<= 1;
+			this.locks = new ReentrantLock[stripes << 1];
+			for (int i = 0 ; i != locks.length ; i++)
+				locks[i] = new ReentrantLock();
+			this.mask = stripes - 1;
+			this.keyOffset = 0;
+			this.valOffset = stripes;
+			this.keyEq = keyEq;
+			this.valEq = valEq;
+			this.inverse = new Stripes<V, K>(this);
+		}
+
+		private Stripes(Stripes<V, K> inverse) {
+			this.locks = inverse.locks;
+			this.mask = inverse.mask;
+			this.keyOffset = inverse.valOffset;
+			this.valOffset = inverse.keyOffset;
+			this.keyEq = inverse.valEq;
+			this.valEq = inverse.keyEq;
+			this.inverse = inverse;
+		}
+
+		public Stripes<V, K> inverse() {
+			return inverse;
+		}
+
+		// new locks with the same striping
+		Stripes<K, V> copy() {
+			return new Stripes<K, V>(mask + 1, keyEq, valEq);
+		}
+
+		private int key(K key) {
+			return key == null ? -1 : keyOffset + (REHASHER.rehash(keyEq.hash(key)) & mask);
+		}
+
+		private int val(V val) {
+			return val == null ? -1 : valOffset + (REHASHER.rehash(valEq.hash(val)) & mask);
+		}
+
+		// locks the stripes of the provided keys and values, any of which may be null
+		int[] lock(K key1, K key2, V val1, V val2) {
+			return lock(new int[] { key(key1), key(key2), val(val1), val(val2) });
+		}
+
+		int[] lock(K key, List<V> vals) {
+			final int[] stripes = new int[vals.size() + 1];
+			stripes[0] = key(key);
+			for (int i = 0 ; i != vals.size() ; i++)
+				stripes[i + 1] = val(vals.get(i));
+			return lock(stripes);
+		}
+
+		int[] lockAll() {
+			final int[] stripes = new int[locks.length];
+			for (int i = 0 ; i != stripes.length ; i++)
+				stripes[i] = i;
+			return lock(stripes);
+		}
+
+		private int[] lock(int[] stripes) {
+			Arrays.sort(stripes);
+			for (int i = 0 ; i != stripes.length ; i++)
+				if (stripes[i] >= 0 && (i == 0 || stripes[i] != stripes[i - 1]))
+					locks[stripes[i]].lock();
+			return stripes;
+		}
+
+		void unlock(int[] stripes) {
+			for (int i = stripes.length - 1 ; i >= 0 ; i--)
+				if (stripes[i] >= 0 && (i == 0 || stripes[i] != stripes[i - 1]))
+					locks[stripes[i]].unlock();
+		}
+
+	}
+
+}
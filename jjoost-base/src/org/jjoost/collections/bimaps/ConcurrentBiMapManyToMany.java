@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.collections.bimaps;
+
+import java.util.Map.Entry;
+
+import org.jjoost.collections.MultiMap;
+import org.jjoost.collections.MultiSet;
+import org.jjoost.collections.Set;
+import org.jjoost.collections.maps.concurrent.LockFreeInlineMultiHashMap;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Equality;
+
+/**
+ * A thread-safe many-to-many <code>BiMap</code>; see <code>AbstractConcurrentBiMap</code>. By default both directions
+ * are stored in a <code>LockFreeInlineMultiHashMap</code>, so reads in either direction never block.
+ *
+ * @author b.elliottsmith
+ */
+public class ConcurrentBiMapManyToMany<K, V> extends AbstractConcurrentBiMap<K, V, MultiMap<K, V>, MultiMap<V, K>> implements MultiMap<K, V> {
+
+	private static final long serialVersionUID = -1147480215957410742L;
+
+	private final ConcurrentBiMapManyToMany<V, K> partner;
+	@Override protected final AbstractBiMap<V, K, MultiMap<V, K>, MultiMap<K, V>> partner() {
+		return partner;
+	}
+
+	public ConcurrentBiMapManyToMany() {
+		this(Equalities.object(), Equalities.object());
+	}
+
+	public ConcurrentBiMapManyToMany(Equality<? super K> keyEquality, Equality<? super V> valEquality) {
+		this(new LockFreeInlineMultiHashMap<K, V>(keyEquality), new LockFreeInlineMultiHashMap<V, K>(valEquality), keyEquality, valEquality, 64);
+	}
+
+	/**
+	 * @param keyEquality the key equality of <code>forwards</code>, and the value equality of <code>back</code>
+	 * @param valEquality the value equality of <code>forwards</code>, and the key equality of <code>back</code>
+	 */
+	public ConcurrentBiMapManyToMany(MultiMap<K, V> forwards, MultiMap<V, K> back, Equality<? super K> keyEquality, Equality<? super V> valEquality, int stripeCount) {
+		this(forwards, back, new Stripes<K, V>(stripeCount, keyEquality, valEquality));
+	}
+
+	private ConcurrentBiMapManyToMany(MultiMap<K, V> forwards, MultiMap<V, K> back, Stripes<K, V> stripes) {
+		super(forwards, stripes);
+		this.partner = new ConcurrentBiMapManyToMany<V, K>(back, stripes.inverse(), this);
+	}
+
+	private ConcurrentBiMapManyToMany(MultiMap<K, V> forwards, Stripes<K, V> stripes, ConcurrentBiMapManyToMany<V, K> partner) {
+		super(forwards, stripes);
+		this.partner = partner;
+	}
+	
+	@Override
+	public MultiMap<K, V> copy() {
+		final int[] locked = stripes.lockAll();
+		try {
+			return new ConcurrentBiMapManyToMany<K, V>(map.copy(), partner.map.copy(), stripes.copy());
+		} finally {
+			stripes.unlock(locked);
+		}
+	}
+
+	public MultiMap<V, K> inverse() {
+		return partner;
+	}
+	
+	@Override
+	public Set<Entry<K, V>> entries() {
+		return map.entries();
+	}
+
+	@Override
+	public MultiSet<K> keys() {
+		return map.keys();
+	}
+
+	@Override
+	public Iterable<V> apply(K key) {
+		return map.values(key);
+	}
+
+	@Override
+	public Set<V> values(K key) {
+		return map.values(key);
+	}
+	
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.collections.bimaps;
+
+import java.util.Map.Entry;
+
+import org.jjoost.collections.Map;
+import org.jjoost.collections.Set;
+import org.jjoost.collections.UnitarySet;
+import org.jjoost.collections.maps.concurrent.LockFreeHashMap;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Equality;
+import org.jjoost.util.Factory;
+import org.jjoost.util.Function;
+
+/**
+ * A thread-safe one-to-one <code>BiMap</code>; see <code>AbstractConcurrentBiMap</code>. By default both directions
+ * are stored in a <code>LockFreeHashMap</code>, so <code>get()</code> and <code>inverse().get()</code> never block.
+ *
+ * @author b.elliottsmith
+ */
+public class ConcurrentBiMapOneToOne<K, V> extends AbstractConcurrentBiMap<K, V, Map<K, V>, Map<V, K>> implements Map<K, V> {
+
+	private static final long serialVersionUID = 8410873094467215311L;
+
+	private final ConcurrentBiMapOneToOne<V, K> partner;
+	@Override protected final AbstractBiMap<V, K, Map<V, K>, Map<K, V>> partner() {
+		return partner;
+	}
+
+	public ConcurrentBiMapOneToOne() {
+		this(Equalities.object(), Equalities.object());
+	}
+
+	public ConcurrentBiMapOneToOne(Equality<? super K> keyEquality, Equality<? super V> valEquality) {
+		this(new LockFreeHashMap<K, V>(keyEquality), new LockFreeHashMap<V, K>(valEquality), keyEquality, valEquality, 64);
+	}
+
+	/**
+	 * @param keyEquality the key equality of <code>forwards</code>, and the value equality of <code>back</code>
+	 * @param valEquality the value equality of <code>forwards</code>, and the key equality of <code>back</code>
+	 */
+	public ConcurrentBiMapOneToOne(Map<K, V> forwards, Map<V, K> back, Equality<? super K> keyEquality, Equality<? super V> valEquality, int stripeCount) {
+		this(forwards, back, new Stripes<K, V>(stripeCount, keyEquality, valEquality));
+	}
+
+	private ConcurrentBiMapOneToOne(Map<K, V> forwards, Map<V, K> back, Stripes<K, V> stripes) {
+		super(forwards, stripes);
+		this.partner = new ConcurrentBiMapOneToOne<V, K>(back, stripes.inverse(), this);
+	}
+
+	private ConcurrentBiMapOneToOne(Map<K, V> forwards, Stripes<K, V> stripes, ConcurrentBiMapOneToOne<V, K> partner) {
+		super(forwards, stripes);
+		this.partner = partner;
+	}
+	
+	@Override
+	public Map<K, V> copy() {
+		final int[] locked = stripes.lockAll();
+		try {
+			return new ConcurrentBiMapOneToOne<K, V>(map.copy(), partner.map.copy(), stripes.copy());
+		} finally {
+			stripes.unlock(locked);
+		}
+	}
+
+	public Map<V, K> inverse() {
+		return partner;
+	}
+	
+	@Override
+	public Set<Entry<K, V>> entries() {
+		return map.entries();
+	}
+
+	@Override
+	public Set<K> keys() {
+		return map.keys();
+	}
+
+	@Override
+	public V ensureAndGet(K key, Factory<? extends V> putIfNotPresent) {
+		final V v = map.get(key);
+		if (v != null)
+			return v;
+		final V val = putIfNotPresent.create();
+		final V r = putIfAbsent(key, val);
+		return r == null ? val : r;
+	}
+
+	@Override
+	public V ensureAndGet(K key, Function<? super K, ? extends V> putIfNotPresent) {
+		final V v = map.get(key);
+		if (v != null)
+			return v;
+		final V val = putIfNotPresent.apply(key);
+		final V r = putIfAbsent(key, val);
+		return r == null ? val : r;
+	}
+
+	@Override
+	public V putIfAbsent(K key, Function<? super K, ? extends V> putIfNotPresent) {
+		final V v = map.get(key);
+		if (v != null)
+			return v;
+		return putIfAbsent(key, putIfNotPresent.apply(key));
+	}
+
+	@Override
+	public V get(K key) {
+		return map.get(key);
+	}
+
+	@Override
+	public int size() {
+		return map.size();
+	}
+
+	@Override
+	public V apply(K v) {
+		return map.apply(v);
+	}
+
+	@Override
+	public UnitarySet<V> values(K key) {
+		return map.values(key);
+	}
+
+	@Override
+	public boolean replace(K key, V oldValue, V newValue) {
+		return put(key, newValue, true, oldValue) != null;
+	}
+
+	@Override
+	public V replace(K key, V val) {
+		return put(key, val, true, null);
+	}
+
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.collections.bimaps;
+
+import java.util.Map.Entry;
+
+import org.jjoost.collections.Map;
+import org.jjoost.collections.base.SerialBiHashStore;
+import org.jjoost.collections.base.SerialBiHashStore.BiNode;
+import org.jjoost.collections.base.SerialBiHashStore.InverseNode;
+import org.jjoost.collections.base.SerialHashStore;
+import org.jjoost.collections.maps.base.HashMap;
+import org.jjoost.collections.maps.base.HashMapNodeFactory;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Equality;
+import org.jjoost.util.Rehasher;
+
+/**
+ * A serial one-to-one <code>BiMap</code> that stores each pair just once, in a <code>SerialBiHashStore</code>, rather
+ * than as a separate node in each of two maps. The map and its <code>inverse()</code> are each a full <code>Map</code>
+ * over the same nodes; putting a pair into either removes any existing pair with an equal key or an equal value, and
+ * <code>putIfAbsent()</code> returns the value if it is already bound to some other key.
+ *
+ * @author b.elliottsmith
+ */
+public class SerialBiMapOneToOne<K, V> extends HashMap<K, V, BiNode<K, V>, SerialBiHashStore.ByKey<K, V>> {
+
+	private static final long serialVersionUID = 4018539305623458614L;
+
+	private final Inverse<V, K> inverse;
+
+	public SerialBiMapOneToOne() {
+		this(16, 0.75f);
+	}
+	public SerialBiMapOneToOne(int minimumInitialCapacity, float loadFactor) {
+		this(minimumInitialCapacity, loadFactor, SerialHashStore.defaultRehasher(), Equalities.object(), Equalities.object());
+	}
+	public SerialBiMapOneToOne(Equality<? super K> keyEquality, Equality<? super V> valEquality) {
+		this(16, 0.75f, SerialHashStore.defaultRehasher(), keyEquality, valEquality);
+	}
+	
+	public SerialBiMapOneToOne( 
+			int minimumInitialCapacity, float loadFactor, 
+			Rehasher rehasher, Equality<? super K> keyEquality, Equality<? super V> valEquality) 
+	{
+		this(rehasher, new SerialBiHashStore<K, V>(minimumInitialCapacity, loadFactor, keyEquality, valEquality).byKey());
+	}
+	
+	private SerialBiMapOneToOne(Rehasher rehasher, SerialBiHashStore.ByKey<K, V> store) {
+		this(rehasher, store.store(), store);
+	}
+
+	private SerialBiMapOneToOne(Rehasher rehasher, SerialBiHashStore<K, V> store, SerialBiHashStore.ByKey<K, V> byKey) {
+		super(rehasher, new KeyEquality<K, V>(store.keyEquality()), new EntryEquality<K, V>(store.keyEquality(), store.valueEquality()),
+			new NodeFactory<K, V>(rehasher, store.valueEquality()), byKey);
+		this.inverse = new Inverse<V, K>(rehasher, store, this);
+	}
+
+	@Override
+	public SerialBiMapOneToOne<K, V> copy() {
+		return new SerialBiMapOneToOne<K, V>(rehasher, store.copy(null, null));
+	}
+
+	@Override
+	public Map<V, K> inverse() {
+		return inverse;
+	}
+
+	private static final class Inverse<V, K> extends HashMap<V, K, InverseNode<V, K>, SerialBiHashStore.ByValue<K, V>> {
+
+		private static final long serialVersionUID = -4705826221002993305L;
+
+		private final SerialBiMapOneToOne<K, V> inverse;
+
+		private Inverse(Rehasher rehasher, SerialBiHashStore<K, V> store, SerialBiMapOneToOne<K, V> inverse) {
+			super(rehasher, new InverseKeyEquality<V, K>(store.valueEquality()), new InverseEntryEquality<V, K>(store.valueEquality(), store.keyEquality()),
+				new InverseNodeFactory<V, K>(rehasher, store.keyEquality()), store.byValue());
+			this.inverse = inverse;
+		}
+
+		@Override
+		public Map<V, K> copy() {
+			return inverse.copy().inverse();
+		}
+
+		@Override
+		public Map<K, V> inverse() {
+			return inverse;
+		}
+
+	}
+
+	private static final class NodeFactory<K, V> implements HashMapNodeFactory<K, V, BiNode<K, V>> {
+		private static final long serialVersionUID = -3120476331185286707L;
+		private final Rehasher rehasher;
+		private final Equality<? super V> valEq;
+		private NodeFactory(Rehasher rehasher, Equality<? super V> valEq) {
+			this.rehasher = rehasher;
+			this.valEq = valEq;
+		}
+		@Override
+		public final BiNode<K, V> makeNode(final int hash, final K key, final V value) {
+			return new BiNode<K, V>(hash, rehasher.rehash(valEq.hash(value)), key, value);
+		}
+	}
+
+	private static final class InverseNodeFactory<V, K> implements HashMapNodeFactory<V, K, InverseNode<V, K>> {
+		private static final long serialVersionUID = 3702166003779390618L;
+		private final Rehasher rehasher;
+		private final Equality<? super K> keyEq;
+		private InverseNodeFactory(Rehasher rehasher, Equality<? super K> keyEq) {
+			this.rehasher = rehasher;
+			this.keyEq = keyEq;
+		}
+		@Override
+		public final InverseNode<V, K> makeNode(final int hash, final V value, final K key) {
+			return new InverseNode<V, K>(new BiNode<K, V>(rehasher.rehash(keyEq.hash(key)), hash, key, value));
+		}
+	}
+
+	private static final class KeyEquality<K, V> extends HashMap.KeyEquality<K, V, BiNode<K, V>> {
+		private static final long serialVersionUID = -7813036361578233432L;
+		private KeyEquality(Equality<? super K> keyEq) {
+			super(keyEq);
+		}
+		@Override
+		public boolean prefixMatch(K cmp, BiNode<K, V> n) {
+			return keyEq.equates(cmp, n.getKey());
+		}
+	}
+
+	private static final class EntryEquality<K, V> extends HashMap.NodeEquality<K, V, BiNode<K, V>> {
+		private static final long serialVersionUID = 1578204622906522357L;
+		private EntryEquality(Equality<? super K> keyEq, Equality<? super V> valEq) {
+			super(keyEq, valEq);
+		}
+		@Override
+		public boolean prefixMatch(Entry<K, V> cmp, BiNode<K, V> n) {
+			return keyEq.equates(cmp.getKey(), n.getKey());
+		}
+		@Override
+		public boolean suffixMatch(Entry<K, V> cmp, BiNode<K, V> n) {
+			return valEq.equates(cmp.getValue(), n.getValue());
+		}
+	}
+
+	private static final class InverseKeyEquality<V, K> extends HashMap.KeyEquality<V, K, InverseNode<V, K>> {
+		private static final long serialVersionUID = 8466730862193434806L;
+		private InverseKeyEquality(Equality<? super V> valEq) {
+			super(valEq);
+		}
+		@Override
+		public boolean prefixMatch(V cmp, InverseNode<V, K> n) {
+			return keyEq.equates(cmp, n.getKey());
+		}
+	}
+
+	private static final class InverseEntryEquality<V, K> extends HashMap.NodeEquality<V, K, InverseNode<V, K>> {
+		private static final long serialVersionUID = -2339431806957335178L;
+		private InverseEntryEquality(Equality<? super V> valEq, Equality<? super K> keyEq) {
+			super(valEq, keyEq);
+		}
+		@Override
+		public boolean prefixMatch(Entry<V, K> cmp, InverseNode<V, K> n) {
+			return keyEq.equates(cmp.getKey(), n.getKey());
+		}
+		@Override
+		public boolean suffixMatch(Entry<V, K> cmp, InverseNode<V, K> n) {
+			return valEq.equates(cmp.getValue(), n.getValue());
+		}
+	}
+
+}
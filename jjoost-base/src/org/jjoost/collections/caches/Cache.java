@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.caches;
+
+import java.io.Serializable;
+
+import org.jjoost.util.Function;
+
+/**
+ * A bounded key-value store that evicts entries according to an <code>EvictionPolicy</code> once the total weight
+ * of its entries exceeds its maximum, and that may expire entries a fixed time after they were written. Unlike a
+ * <code>Map</code>, a <code>Cache</code> may forget any entry at any time, so a hit is never guaranteed.
+ * 
+ * @author b.elliottsmith
+ */
+public interface Cache<K, V> extends Serializable {
+
+	/**
+	 * @return the value currently cached against the key, or <code>null</code> if there is none
+	 */
+	public V get(K key);
+	
+	/**
+	 * Returns the value cached against the key, computing and caching it with the provided function if there is
+	 * none. A <code>null</code> result from the function is returned but not cached.
+	 */
+	public V ensureAndGet(K key, Function<? super K, ? extends V> loader);
+	
+	/**
+	 * @return the value previously cached against the key, or <code>null</code> if there was none
+	 */
+	public V put(K key, V val);
+	
+	/**
+	 * @return the value already cached against the key, or <code>null</code> if there was none and the provided value was cached
+	 */
+	public V putIfAbsent(K key, V val);
+	
+	/**
+	 * @return the value that was cached against the key, or <code>null</code> if there was none
+	 */
+	public V remove(K key);
+	
+	public void clear();
+	
+	/**
+	 * removes every entry that has expired; expired entries are otherwise only removed once they are encountered
+	 */
+	public void purgeExpired();
+	
+	public int totalCount();
+	
+	/**
+	 * @return the total weight of the entries currently cached
+	 */
+	public long weight();
+	
+	public long maximumWeight();
+	
+	public CacheStatistics statistics();
+	
+}
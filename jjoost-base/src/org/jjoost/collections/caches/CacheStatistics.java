@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.caches;
+
+import java.io.Serializable;
+
+/**
+ * An immutable snapshot of the size of a <code>Cache</code> and of the lookups and evictions it has performed
+ * 
+ * @author b.elliottsmith
+ */
+public final class CacheStatistics implements Serializable {
+
+	private static final long serialVersionUID = -3516405982713418302L;
+
+	private final int totalCount;
+	private final long weight;
+	private final long hits, misses, evictions, expirations;
+	
+	public CacheStatistics(int totalCount, long weight, long hits, long misses, long evictions, long expirations) {
+		this.totalCount = totalCount;
+		this.weight = weight;
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.expirations = expirations;
+	}
+	
+	/**
+	 * @return the statistics of a cache composed of the two caches these statistics were taken from
+	 */
+	public CacheStatistics merge(CacheStatistics that) {
+		return new CacheStatistics(totalCount + that.totalCount, weight + that.weight, hits + that.hits, 
+			misses + that.misses, evictions + that.evictions, expirations + that.expirations);
+	}
+	
+	public int totalCount() { return totalCount; }
+	public long weight() { return weight; }
+	public long hits() { return hits; }
+	/** @return the number of lookups that found no entry, or found an expired entry */
+	public long misses() { return misses; }
+	/** @return the number of entries removed, or refused admission, to keep the cache within its maximum weight */
+	public long evictions() { return evictions; }
+	public long expirations() { return expirations; }
+	
+	public double hitRate() {
+		final long lookups = hits + misses;
+		return lookups == 0 ? 1d : hits / (double) lookups;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("{count: %d, weight: %d, hits: %d, misses: %d, hit rate: %.3f, evictions: %d, expirations: %d}", 
+			totalCount, weight, hits, misses, hitRate(), evictions, expirations);
+	}
+	
+}
@@ -0,0 +1,212 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.caches;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jjoost.collections.base.SerialHashStore;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Equality;
+import org.jjoost.util.Function;
+import org.jjoost.util.Rehasher;
+
+/**
+ * A thread safe <code>Cache</code> that partitions its keys by the high bits of their hash between a number of
+ * <code>SerialCache</code> segments, each holding an equal share of the maximum weight and guarded by its own monitor.
+ * Eviction is therefore per segment, and only approximates the chosen policy over the cache as a whole.
+ * <p>
+ * <code>ensureAndGet()</code> runs the loader while holding the segment's monitor, so that a value is loaded at most
+ * once however many threads request it concurrently; loaders should consequently be cheap, or the cache given
+ * enough segments that unrelated keys seldom wait on one another.
+ * 
+ * @author b.elliottsmith
+ */
+public class ConcurrentCache<K, V> implements Cache<K, V> {
+
+	private static final long serialVersionUID = -1395416407728470915L;
+	
+	// the smallest maximum weight the default segment count will give a segment
+	private static final long MIN_SEGMENT_WEIGHT = 64;
+	
+	private final SerialCache<K, V>[] segments;
+	private final int shift;
+	private final long maximumWeight;
+	
+	public ConcurrentCache(long maximumSize) {
+		this(EvictionPolicy.LRU, maximumSize);
+	}
+	public ConcurrentCache(EvictionPolicy policy, long maximumSize) {
+		this(policy, maximumSize, null, 0, TimeUnit.NANOSECONDS);
+	}
+	public ConcurrentCache(EvictionPolicy policy, long maximumWeight, Weigher<? super K, ? super V> weigher, long expireAfterWrite, TimeUnit unit) {
+		this(policy, maximumWeight, weigher, expireAfterWrite, unit, defaultSegmentCount(maximumWeight), 
+			SerialHashStore.defaultRehasher(), Equalities.object());
+	}
+	
+	/**
+	 * @param segmentCount the number of independently locked segments, which is rounded up to a power of two
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentCache(
+			EvictionPolicy policy, long maximumWeight, Weigher<? super K, ? super V> weigher, 
+			long expireAfterWrite, TimeUnit unit, 
+			int segmentCount, Rehasher rehasher, Equality<? super K> keyEquality) 
+	{
+		if (maximumWeight <= 0) {
+			throw new IllegalArgumentException("maximumWeight must be greater than zero");
+		}
+		if (segmentCount <= 0) {
+			throw new IllegalArgumentException("segmentCount must be greater than zero");
+		}
+		int bits = 0;
+		while (1 << bits < segmentCount && bits != 16)
+			bits++;
+		final int count = (int) Math.min(1 << bits, maximumWeight);
+		while (1 << bits > count)
+			bits--;
+		this.segments = (SerialCache<K, V>[]) new SerialCache<?, ?>[1 << bits];
+		this.shift = 32 - bits;
+		this.maximumWeight = maximumWeight;
+		final long share = maximumWeight >> bits, remainder = maximumWeight & ((1 << bits) - 1);
+		for (int i = 0 ; i != segments.length ; i++) {
+			segments[i] = new SerialCache<K, V>(policy, share + (i < remainder ? 1 : 0), weigher, expireAfterWrite, unit, rehasher, keyEquality);
+		}
+	}
+	
+	private static int defaultSegmentCount(long maximumWeight) {
+		final long segments = Math.min(4 * Runtime.getRuntime().availableProcessors(), maximumWeight / MIN_SEGMENT_WEIGHT);
+		return (int) Math.max(1, segments);
+	}
+	
+	private SerialCache<K, V> segment(int hash) {
+		return segments[(int) ((hash & 0xFFFFFFFFL) >>> shift)];
+	}
+	
+	@Override
+	public V get(K key) {
+		final int hash = segments[0].hash(key);
+		final SerialCache<K, V> segment = segment(hash);
+		synchronized (segment) {
+			return segment.get(hash, key);
+		}
+	}
+
+	@Override
+	public V ensureAndGet(K key, Function<? super K, ? extends V> loader) {
+		final int hash = segments[0].hash(key);
+		final SerialCache<K, V> segment = segment(hash);
+		synchronized (segment) {
+			return segment.ensureAndGet(hash, key, loader);
+		}
+	}
+
+	@Override
+	public V put(K key, V val) {
+		final int hash = segments[0].hash(key);
+		final SerialCache<K, V> segment = segment(hash);
+		synchronized (segment) {
+			return segment.put(hash, key, val, false);
+		}
+	}
+
+	@Override
+	public V putIfAbsent(K key, V val) {
+		final int hash = segments[0].hash(key);
+		final SerialCache<K, V> segment = segment(hash);
+		synchronized (segment) {
+			return segment.put(hash, key, val, true);
+		}
+	}
+
+	@Override
+	public V remove(K key) {
+		final int hash = segments[0].hash(key);
+		final SerialCache<K, V> segment = segment(hash);
+		synchronized (segment) {
+			return segment.remove(hash, key);
+		}
+	}
+
+	@Override
+	public void clear() {
+		for (SerialCache<K, V> segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	@Override
+	public void purgeExpired() {
+		for (SerialCache<K, V> segment : segments) {
+			synchronized (segment) {
+				segment.purgeExpired();
+			}
+		}
+	}
+
+	@Override
+	public int totalCount() {
+		int count = 0;
+		for (SerialCache<K, V> segment : segments) {
+			synchronized (segment) {
+				count += segment.totalCount();
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public long weight() {
+		long weight = 0;
+		for (SerialCache<K, V> segment : segments) {
+			synchronized (segment) {
+				weight += segment.weight();
+			}
+		}
+		return weight;
+	}
+
+	@Override
+	public long maximumWeight() {
+		return maximumWeight;
+	}
+
+	/**
+	 * @return the statistics of every segment, merged; the segments are visited in turn, so the result is not an atomic snapshot
+	 */
+	@Override
+	public CacheStatistics statistics() {
+		CacheStatistics statistics = null;
+		for (SerialCache<K, V> segment : segments) {
+			final CacheStatistics next;
+			synchronized (segment) {
+				next = segment.statistics();
+			}
+			statistics = statistics == null ? next : statistics.merge(next);
+		}
+		return statistics;
+	}
+
+}
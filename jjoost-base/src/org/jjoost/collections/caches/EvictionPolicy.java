@@ -0,0 +1,51 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.caches;
+
+/**
+ * Decides which entry a <code>Cache</code> evicts once it exceeds its maximum weight
+ * 
+ * @author b.elliottsmith
+ */
+public enum EvictionPolicy {
+
+	/** evicts the least recently read or written entry */
+	LRU,
+	
+	/**
+	 * evicts the least frequently used of the few least recently used entries; sampling the victim from the recency
+	 * order keeps eviction constant time, at the cost of occasionally evicting an entry that is not the least
+	 * frequently used overall
+	 */
+	LFU,
+	
+	/**
+	 * admits new entries to a small LRU window, which holds one percent of the maximum weight; entries evicted from the
+	 * window are only admitted to the LRU main region if a count-min sketch of recent accesses, including misses,
+	 * estimates them to be more popular than the main region's own eviction candidate. This retains a frequently
+	 * used working set through scans and bursts of one-off keys, which flush an LRU cache.
+	 */
+	TINY_LFU
+	
+}
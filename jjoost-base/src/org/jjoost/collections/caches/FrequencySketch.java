@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.caches;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A count-min sketch of four rows of four bit counters, packed sixteen to a <code>long</code>, estimating how often
+ * each hash has been seen recently. Once the number of increments reaches ten times the width of the sketch every
+ * counter is halved, so that the estimates decay and favour recent popularity.
+ * 
+ * @author b.elliottsmith
+ */
+final class FrequencySketch implements Serializable {
+
+	private static final long serialVersionUID = 7290154233586102374L;
+	
+	private static final long[] SEEDS = new long[] { 
+		0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L 
+	};
+	private static final long RESET_MASK = 0x7777777777777777L;
+	
+	private final long[] table;
+	private final int sampleSize;
+	private int increments;
+	
+	FrequencySketch(long maximumSize) {
+		int width = 8;
+		while (width < maximumSize && width < 1 << 20)
+			width <<= 1;
+		this.table = new long[width];
+		this.sampleSize = 10 * width;
+	}
+	
+	/** @return the estimated number of recent occurrences of the hash, at most fifteen */
+	int frequency(int hash) {
+		final int start = (hash & 3) << 2;
+		int frequency = Integer.MAX_VALUE;
+		for (int i = 0 ; i != 4 ; i++) {
+			final int offset = (start + i) << 2;
+			final int count = (int) ((table[index(hash, i)] >>> offset) & 0xF);
+			if (count < frequency)
+				frequency = count;
+		}
+		return frequency;
+	}
+	
+	void increment(int hash) {
+		final int start = (hash & 3) << 2;
+		boolean incremented = false;
+		for (int i = 0 ; i != 4 ; i++) {
+			final int index = index(hash, i);
+			final int offset = (start + i) << 2;
+			if (((table[index] >>> offset) & 0xF) != 0xF) {
+				table[index] += 1L << offset;
+				incremented = true;
+			}
+		}
+		if (incremented && ++increments == sampleSize)
+			reset();
+	}
+	
+	void clear() {
+		Arrays.fill(table, 0);
+		increments = 0;
+	}
+	
+	private void reset() {
+		for (int i = 0 ; i != table.length ; i++)
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		increments >>>= 1;
+	}
+	
+	private int index(int hash, int row) {
+		long h = (hash + SEEDS[row]) * SEEDS[row];
+		h += h >>> 32;
+		return (int) h & (table.length - 1);
+	}
+	
+}
@@ -0,0 +1,417 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.caches;
+
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+import org.jjoost.collections.base.HashNodeEquality;
+import org.jjoost.collections.base.HashStore.PutAction;
+import org.jjoost.collections.base.SerialHashStore;
+import org.jjoost.collections.base.SerialLinkedHashStore;
+import org.jjoost.collections.base.SerialLinkedHashStore.SerialLinkedHashNode;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Equality;
+import org.jjoost.util.Function;
+import org.jjoost.util.Functions;
+import org.jjoost.util.Rehasher;
+
+/**
+ * A single threaded <code>Cache</code> that keeps its entries in a <code>SerialLinkedHashStore</code>, touching
+ * them on every read or write so that the store's iteration order runs from the least to the most recently used. The
+ * <code>TINY_LFU</code> policy keeps a second such store for its admission window.
+ * 
+ * @author b.elliottsmith
+ */
+public class SerialCache<K, V> implements Cache<K, V> {
+
+	private static final long serialVersionUID = 6181208735510733262L;
+	
+	// the number of least recently used entries the LFU policy chooses its victim from
+	private static final int LFU_SAMPLE = 8;
+
+	private final EvictionPolicy policy;
+	private final long maximumWeight;
+	private final long maximumWindowWeight;
+	private final Weigher<? super K, ? super V> weigher;
+	private final long expireAfterWriteNanos;
+	private final Rehasher rehasher;
+	private final Equality<? super K> keyEquality;
+	private final KeyEquality<K, V> keyEq;
+	private final SerialLinkedHashStore<Node<K, V>> main;
+	private final SerialLinkedHashStore<Node<K, V>> window;
+	private final FrequencySketch sketch;
+	private long mainWeight, windowWeight;
+	private long hits, misses, evictions, expirations;
+	
+	public SerialCache(long maximumSize) {
+		this(EvictionPolicy.LRU, maximumSize);
+	}
+	public SerialCache(EvictionPolicy policy, long maximumSize) {
+		this(policy, maximumSize, null, 0, TimeUnit.NANOSECONDS);
+	}
+	/**
+	 * @param weigher computes the weight of each entry, or <code>null</code> to give every entry a weight of one
+	 * @param expireAfterWrite the time after which an entry expires, or zero if entries never expire
+	 */
+	public SerialCache(EvictionPolicy policy, long maximumWeight, Weigher<? super K, ? super V> weigher, long expireAfterWrite, TimeUnit unit) {
+		this(policy, maximumWeight, weigher, expireAfterWrite, unit, SerialHashStore.defaultRehasher(), Equalities.object());
+	}
+	public SerialCache(
+			EvictionPolicy policy, long maximumWeight, Weigher<? super K, ? super V> weigher, 
+			long expireAfterWrite, TimeUnit unit, 
+			Rehasher rehasher, Equality<? super K> keyEquality) 
+	{
+		if (maximumWeight <= 0) {
+			throw new IllegalArgumentException("maximumWeight must be greater than zero");
+		}
+		if (expireAfterWrite < 0) {
+			throw new IllegalArgumentException("expireAfterWrite must not be negative");
+		}
+		this.policy = policy;
+		this.maximumWeight = maximumWeight;
+		this.weigher = weigher;
+		this.expireAfterWriteNanos = unit.toNanos(expireAfterWrite);
+		this.rehasher = rehasher;
+		this.keyEquality = keyEquality;
+		this.keyEq = new KeyEquality<K, V>(keyEquality);
+		this.main = new SerialLinkedHashStore<Node<K, V>>(16, 0.75f);
+		if (policy == EvictionPolicy.TINY_LFU) {
+			this.maximumWindowWeight = Math.max(1, maximumWeight / 100);
+			this.window = new SerialLinkedHashStore<Node<K, V>>(16, 0.75f);
+			this.sketch = new FrequencySketch(maximumWeight);
+		} else {
+			this.maximumWindowWeight = 0;
+			this.window = null;
+			this.sketch = null;
+		}
+	}
+	
+	static final class Node<K, V> extends SerialLinkedHashNode<Node<K, V>> implements Entry<K, V> {
+		private static final long serialVersionUID = -2316447361574431296L;
+		private final K key;
+		private V value;
+		private int weight;
+		private int frequency;
+		private long expires;
+		private boolean windowed;
+		Node(int hash, K key, V value, int weight, long expires) {
+			super(hash);
+			this.key = key;
+			this.value = value;
+			this.weight = weight;
+			this.expires = expires;
+			this.frequency = 1;
+		}
+		// the next most recently used node, or null if this is the most recently used
+		@SuppressWarnings("unchecked")
+		Node<K, V> newer() {
+			final Object next = linkNext;
+			return next instanceof Node ? (Node<K, V>) next : null;
+		}
+		@Override public K getKey() { return key ; }
+		@Override public V getValue() { return value ; }
+		@Override public V setValue(V value) { throw new UnsupportedOperationException() ; }
+		@Override public Node<K, V> copy() { 
+			final Node<K, V> copy = new Node<K, V>(hash, key, value, weight, expires);
+			copy.frequency = frequency;
+			copy.windowed = windowed;
+			return copy; 
+		}
+		@Override public String toString() { return "{" + key + " -> " + value + "}" ; }
+	}
+	
+	private static final class KeyEquality<K, V> implements HashNodeEquality<K, Node<K, V>> {
+		private static final long serialVersionUID = 4529135624306715741L;
+		private final Equality<? super K> keyEq;
+		private KeyEquality(Equality<? super K> keyEq) { this.keyEq = keyEq ; }
+		@Override public boolean prefixMatch(K cmp, Node<K, V> n) { return keyEq.equates(cmp, n.key) ; }
+		@Override public boolean suffixMatch(K cmp, Node<K, V> n) { return true ; }
+		@Override public boolean isUnique() { return true ; }
+	}
+	
+	private static <K, V> Function<Node<K, V>, Node<K, V>> nodeProj() {
+		return Functions.<Node<K, V>>identity();
+	}
+	
+	private static <K, V> Function<Node<K, V>, K> keyProj() {
+		return Functions.<K, Node<K, V>>getMapEntryKeyProjection();
+	}
+	
+	// the methods taking a hash are also used by ConcurrentCache, which must hash the key to select a segment
+	
+	final int hash(K key) {
+		return rehasher.rehash(keyEquality.hash(key));
+	}
+	
+	final V get(int hash, K key) {
+		if (sketch != null)
+			sketch.increment(hash);
+		final Node<K, V> n = find(hash, key);
+		if (n == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		accessed(n);
+		return n.value;
+	}
+	
+	final V ensureAndGet(int hash, K key, Function<? super K, ? extends V> loader) {
+		V val = get(hash, key);
+		if (val == null && (val = loader.apply(key)) != null)
+			write(hash, key, val, false);
+		return val;
+	}
+
+	final V put(int hash, K key, V val, boolean ifAbsent) {
+		if (sketch != null)
+			sketch.increment(hash);
+		return write(hash, key, val, ifAbsent);
+	}
+	
+	final V remove(int hash, K key) {
+		final Node<K, V> n = find(hash, key);
+		if (n == null)
+			return null;
+		unlink(n);
+		return n.value;
+	}
+	
+	private V write(int hash, K key, V val, boolean ifAbsent) {
+		final Node<K, V> n = find(hash, key);
+		if (n == null) {
+			final Node<K, V> insert = new Node<K, V>(hash, key, val, weigh(key, val), expires());
+			if (window != null) {
+				insert.windowed = true;
+				window.put(PutAction.IFABSENT, key, insert, keyEq, SerialCache.<K, V>nodeProj());
+				windowWeight += insert.weight;
+			} else {
+				main.put(PutAction.IFABSENT, key, insert, keyEq, SerialCache.<K, V>nodeProj());
+				mainWeight += insert.weight;
+			}
+			evict();
+			return null;
+		}
+		final V prev = n.value;
+		if (!ifAbsent) {
+			final int weight = weigh(key, val);
+			if (n.windowed)
+				windowWeight += weight - n.weight;
+			else
+				mainWeight += weight - n.weight;
+			n.value = val;
+			n.weight = weight;
+			n.expires = expires();
+		}
+		accessed(n);
+		if (!ifAbsent)
+			evict();
+		return prev;
+	}
+	
+	// returns the unexpired node for the key, removing it if it has expired
+	private Node<K, V> find(int hash, K key) {
+		Node<K, V> n = main.first(hash, key, keyEq, SerialCache.<K, V>nodeProj());
+		if (n == null && window != null)
+			n = window.first(hash, key, keyEq, SerialCache.<K, V>nodeProj());
+		if (n != null && expired(n)) {
+			unlink(n);
+			expirations++;
+			return null;
+		}
+		return n;
+	}
+	
+	private void accessed(Node<K, V> n) {
+		if (n.frequency != Integer.MAX_VALUE)
+			n.frequency++;
+		(n.windowed ? window : main).touch(n);
+	}
+	
+	private void unlink(Node<K, V> n) {
+		if (n.windowed) {
+			window.removeNode(SerialCache.<K, V>keyProj(), keyEq, n);
+			windowWeight -= n.weight;
+		} else {
+			main.removeNode(SerialCache.<K, V>keyProj(), keyEq, n);
+			mainWeight -= n.weight;
+		}
+	}
+	
+	private void evict() {
+		while (windowWeight > maximumWindowWeight) {
+			final Node<K, V> candidate = window.oldest();
+			unlink(candidate);
+			candidate.windowed = false;
+			if (admit(candidate)) {
+				main.put(PutAction.IFABSENT, candidate.key, candidate, keyEq, SerialCache.<K, V>nodeProj());
+				mainWeight += candidate.weight;
+			} else {
+				evictions++;
+			}
+		}
+		while (mainWeight + windowWeight > maximumWeight && !main.isEmpty()) {
+			final Node<K, V> victim = victim();
+			unlink(victim);
+			if (expired(victim))
+				expirations++;
+			else
+				evictions++;
+		}
+	}
+	
+	// makes room in the main region for an entry leaving the window, unless it is less popular than the entries it would displace
+	private boolean admit(Node<K, V> candidate) {
+		final long limit = maximumWeight - windowWeight;
+		if (candidate.weight > limit)
+			return false;
+		final int frequency = sketch.frequency(candidate.hash);
+		while (mainWeight + candidate.weight > limit) {
+			final Node<K, V> victim = main.oldest();
+			if (expired(victim)) {
+				unlink(victim);
+				expirations++;
+				continue;
+			}
+			if (sketch.frequency(victim.hash) >= frequency)
+				return false;
+			unlink(victim);
+			evictions++;
+		}
+		return true;
+	}
+	
+	private Node<K, V> victim() {
+		Node<K, V> victim = main.oldest();
+		if (policy == EvictionPolicy.LFU) {
+			// the most recently used entry is never sampled, so that a new entry is not evicted before it can be used
+			Node<K, V> n = victim;
+			for (int i = 1 ; i != LFU_SAMPLE && (n = n.newer()) != null && n.newer() != null ; i++) {
+				if (n.frequency < victim.frequency)
+					victim = n;
+			}
+		}
+		return victim;
+	}
+	
+	private int weigh(K key, V val) {
+		if (weigher == null)
+			return 1;
+		final int weight = weigher.weigh(key, val);
+		if (weight <= 0)
+			throw new IllegalArgumentException("weight of " + key + " must be greater than zero");
+		return weight;
+	}
+	
+	private long expires() {
+		return expireAfterWriteNanos == 0 ? 0 : System.nanoTime() + expireAfterWriteNanos;
+	}
+	
+	private boolean expired(Node<K, V> n) {
+		return expireAfterWriteNanos != 0 && System.nanoTime() - n.expires >= 0;
+	}
+	
+	private void purgeExpired(SerialLinkedHashStore<Node<K, V>> store) {
+		Node<K, V> n = store.oldest();
+		while (n != null) {
+			final Node<K, V> next = n.newer();
+			if (expired(n)) {
+				unlink(n);
+				expirations++;
+			}
+			n = next;
+		}
+	}
+	
+	@Override
+	public V get(K key) {
+		return get(hash(key), key);
+	}
+	
+	@Override
+	public V ensureAndGet(K key, Function<? super K, ? extends V> loader) {
+		return ensureAndGet(hash(key), key, loader);
+	}
+
+	@Override
+	public V put(K key, V val) {
+		return put(hash(key), key, val, false);
+	}
+
+	@Override
+	public V putIfAbsent(K key, V val) {
+		return put(hash(key), key, val, true);
+	}
+
+	@Override
+	public V remove(K key) {
+		return remove(hash(key), key);
+	}
+
+	@Override
+	public void clear() {
+		main.clear();
+		mainWeight = 0;
+		if (window != null) {
+			window.clear();
+			windowWeight = 0;
+			sketch.clear();
+		}
+	}
+
+	@Override
+	public void purgeExpired() {
+		if (expireAfterWriteNanos == 0)
+			return;
+		purgeExpired(main);
+		if (window != null)
+			purgeExpired(window);
+	}
+
+	@Override
+	public int totalCount() {
+		return main.totalCount() + (window == null ? 0 : window.totalCount());
+	}
+
+	@Override
+	public long weight() {
+		return mainWeight + windowWeight;
+	}
+
+	@Override
+	public long maximumWeight() {
+		return maximumWeight;
+	}
+	
+	public EvictionPolicy policy() {
+		return policy;
+	}
+
+	@Override
+	public CacheStatistics statistics() {
+		return new CacheStatistics(totalCount(), weight(), hits, misses, evictions, expirations);
+	}
+
+}
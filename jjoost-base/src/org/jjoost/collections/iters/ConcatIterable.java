@@ -73,5 +73,8 @@ public class ConcatIterable<E> implements Iterable<E> {
     }
 
     public void add(Iterable<? extends E> iter) { this.members.add(iter) ; }
+    
+    // the members in order, for those (such as Pipeline) that visit them directly
+    List<Iterable<? extends E>> members() { return members; }
 
 }
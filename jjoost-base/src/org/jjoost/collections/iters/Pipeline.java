@@ -0,0 +1,312 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.iters;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+import java.util.stream.StreamSupport;
+
+import org.jjoost.util.Filter;
+import org.jjoost.util.Function;
+import org.jjoost.util.Iters;
+
+/**
+ * A chain of filter, map, drop and head stages over one or more sources, as created by <code>Iters.pipeline()</code>.
+ * Wrapping each stage in its own <code>Iterator</code> costs a <code>hasNext()</code> and <code>next()</code> call per stage
+ * for every element, and often a lookahead; the terminal methods of a <code>Pipeline</code> instead push each element
+ * through every stage in a single loop over the sources, allocating nothing per element, so that adding stages adds
+ * only the cost of the stages themselves.
+ * <p>
+ * A <code>Pipeline</code> is immutable, so each stage method returns a new one and any <code>Pipeline</code> may be run
+ * any number of times. Its <code>iterator()</code> is provided for those callers that must pull elements, and is the
+ * equivalent chain of <code>FilteredIterator</code>, <code>MappedIterator</code> and <code>HeadIterator</code>.
+ * 
+ * @author b.elliottsmith
+ *
+ * @param <E>
+ */
+public final class Pipeline<E> extends AbstractIterable<E> {
+
+	private static final byte FILTER = 0, MAP = 1, DROP = 2, HEAD = 3;
+	
+	private final Iterable<?>[] sources;
+	private final byte[] kinds;
+	// the Filter or Function of each FILTER or MAP stage
+	private final Object[] ops;
+	// the number of elements dropped or taken by each DROP or HEAD stage
+	private final int[] counts;
+	
+	private Pipeline(Iterable<?>[] sources, byte[] kinds, Object[] ops, int[] counts) {
+		this.sources = sources;
+		this.kinds = kinds;
+		this.ops = ops;
+		this.counts = counts;
+	}
+	
+	/**
+	 * Returns a <code>Pipeline</code> with no stages over the provided source; if the source is a 
+	 * <code>ConcatIterable</code> its members are visited directly, rather than through a <code>ConcatIterator</code>
+	 * 
+	 * @param source an <code>Iterable</code>
+	 * @return a <code>Pipeline</code> over the source
+	 */
+	@SuppressWarnings("unchecked")
+	public static <E> Pipeline<E> of(Iterable<? extends E> source) {
+		if (source instanceof Pipeline)
+			return (Pipeline<E>) source;
+		final List<Iterable<?>> sources = new ArrayList<Iterable<?>>();
+		flatten(source, sources);
+		return new Pipeline<E>(sources.toArray(new Iterable<?>[sources.size()]), new byte[0], new Object[0], new int[0]);
+	}
+	
+	private static void flatten(Iterable<?> source, List<Iterable<?>> into) {
+		if (source instanceof ConcatIterable) {
+			for (Iterable<?> member : ((ConcatIterable<?>) source).members())
+				flatten(member, into);
+		} else {
+			into.add(source);
+		}
+	}
+	
+	// *************************************
+	// STAGES
+	// *************************************
+	
+	/**
+	 * Returns a <code>Pipeline</code> that visits the elements of this one followed by those of the provided source;
+	 * since the stages of a <code>Pipeline</code> apply to all of its sources, sources may only be added before any stage
+	 * 
+	 * @param source an <code>Iterable</code>
+	 * @return a <code>Pipeline</code> over the sources of this one followed by the provided source
+	 */
+	public Pipeline<E> concat(Iterable<? extends E> source) {
+		if (kinds.length != 0)
+			throw new IllegalStateException("Sources may not be added to a Pipeline once it has stages");
+		final List<Iterable<?>> sources = new ArrayList<Iterable<?>>(Arrays.asList(this.sources));
+		flatten(source, sources);
+		return new Pipeline<E>(sources.toArray(new Iterable<?>[sources.size()]), kinds, ops, counts);
+	}
+	
+	/**
+	 * Returns a <code>Pipeline</code> that visits only those elements of this one the filter accepts
+	 */
+	public Pipeline<E> filter(Filter<? super E> filter) {
+		return append(FILTER, filter, 0);
+	}
+	
+	/**
+	 * Returns a <code>Pipeline</code> that visits the result of applying the function to each element of this one
+	 */
+	public <F> Pipeline<F> map(Function<? super E, ? extends F> function) {
+		return append(MAP, function, 0);
+	}
+	
+	/**
+	 * Returns a <code>Pipeline</code> that visits all but the first <code>count</code> elements of this one
+	 */
+	public Pipeline<E> drop(int count) {
+		if (count < 0)
+			throw new IllegalArgumentException(String.format("Pipeline cannot drop fewer than zero items (%d requested)", count));
+		return append(DROP, null, count);
+	}
+	
+	/**
+	 * Returns a <code>Pipeline</code> that visits only the first <code>count</code> elements of this one, and stops
+	 * consuming its sources once it has done so
+	 */
+	public Pipeline<E> head(int count) {
+		if (count < 0)
+			throw new IllegalArgumentException(String.format("Pipeline cannot limit itself to fewer than zero items (%d requested)", count));
+		return append(HEAD, null, count);
+	}
+	
+	private <F> Pipeline<F> append(byte kind, Object op, int count) {
+		final int size = kinds.length;
+		final byte[] kinds = Arrays.copyOf(this.kinds, size + 1);
+		final Object[] ops = Arrays.copyOf(this.ops, size + 1);
+		final int[] counts = Arrays.copyOf(this.counts, size + 1);
+		kinds[size] = kind;
+		ops[size] = op;
+		counts[size] = count;
+		return new Pipeline<F>(sources, kinds, ops, counts);
+	}
+	
+	// *************************************
+	// TERMINALS
+	// *************************************
+	
+	/**
+	 * Passes every element of the <code>Pipeline</code> to the action, in order
+	 */
+	@Override
+	public void forEach(Consumer<? super E> action) {
+		final int[] remaining = counts.clone();
+		for (int i = 0 ; i != kinds.length ; i++)
+			if (kinds[i] == HEAD && remaining[i] == 0)
+				return;
+		for (Iterable<?> source : sources) {
+			if (source instanceof List && source instanceof RandomAccess) {
+				final List<?> list = (List<?>) source;
+				for (int i = 0 ; i != list.size() ; i++)
+					if (!push(list.get(i), remaining, action))
+						return;
+			} else {
+				for (Iterator<?> iter = source.iterator() ; iter.hasNext() ; )
+					if (!push(iter.next(), remaining, action))
+						return;
+			}
+		}
+	}
+	
+	/**
+	 * As <code>forEach(action)</code>, except that if <code>parallel</code> is true and the <code>Pipeline</code> has no
+	 * drop or head stages (which depend on the order elements arrive in) each source is split using its 
+	 * <code>Spliterator</code> and visited in parallel, so that the action may be invoked concurrently and in any order
+	 */
+	public void forEach(final Consumer<? super E> action, boolean parallel) {
+		if (!parallel || isPositional()) {
+			forEach(action);
+			return;
+		}
+		final Consumer<Object> push = new Consumer<Object>() {
+			@Override
+			public void accept(Object v) {
+				push(v, null, action);
+			}
+		};
+		for (Iterable<?> source : sources)
+			StreamSupport.stream(source.spliterator(), true).forEach(push);
+	}
+	
+	/**
+	 * Returns the elements of the <code>Pipeline</code> in a new <code>List</code>
+	 */
+	public List<E> toList() {
+		final List<E> list = new ArrayList<E>();
+		forEach(new Consumer<E>() {
+			@Override
+			public void accept(E v) {
+				list.add(v);
+			}
+		});
+		return list;
+	}
+	
+	/**
+	 * Returns the number of elements in the <code>Pipeline</code>
+	 */
+	public int count() {
+		final int[] count = new int[1];
+		forEach(new Consumer<E>() {
+			@Override
+			public void accept(E v) {
+				count[0]++;
+			}
+		});
+		return count[0];
+	}
+	
+	/**
+	 * Returns the first element of the <code>Pipeline</code>, or <code>null</code> if it is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public E first() {
+		final Object[] first = new Object[1];
+		head(1).forEach(new Consumer<E>() {
+			@Override
+			public void accept(E v) {
+				first[0] = v;
+			}
+		});
+		return (E) first[0];
+	}
+	
+	@Override
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public Iterator<E> iterator() {
+		Iterator iter = sources.length == 1 ? sources[0].iterator() : new ConcatIterable(Arrays.asList(sources)).iterator();
+		for (int i = 0 ; i != kinds.length ; i++) {
+			switch (kinds[i]) {
+			case FILTER:
+				iter = new FilteredIterator(iter, (Filter) ops[i]);
+				break;
+			case MAP:
+				iter = new MappedIterator(iter, (Function) ops[i]);
+				break;
+			case DROP:
+				iter = Iters.drop(iter, counts[i]);
+				break;
+			case HEAD:
+				iter = new HeadIterator(iter, counts[i]);
+				break;
+			}
+		}
+		return iter;
+	}
+	
+	private boolean isPositional() {
+		for (byte kind : kinds)
+			if (kind == DROP || kind == HEAD)
+				return true;
+		return false;
+	}
+	
+	/**
+	 * Passes v through each stage, and to the action if it survives them all, returning false once a head stage has 
+	 * taken its last element; remaining holds the count left for each drop or head stage, and is updated  
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean push(Object v, int[] remaining, Consumer<? super E> action) {
+		boolean done = false;
+		for (int i = 0 ; i != kinds.length ; i++) {
+			switch (kinds[i]) {
+			case FILTER:
+				if (!((Filter<Object>) ops[i]).accept(v))
+					return !done;
+				break;
+			case MAP:
+				v = ((Function<Object, Object>) ops[i]).apply(v);
+				break;
+			case DROP:
+				if (remaining[i] != 0) {
+					remaining[i]--;
+					return !done;
+				}
+				break;
+			case HEAD:
+				// the last element we take, so we stop once it has been through the remaining stages
+				if (--remaining[i] == 0)
+					done = true;
+				break;
+			}
+		}
+		action.accept((E) v);
+		return !done;
+	}
+	
+}
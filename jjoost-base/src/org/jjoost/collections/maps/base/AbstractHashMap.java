@@ -27,14 +27,18 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Spliterator;
 
 import org.jjoost.collections.AnyMap;
 import org.jjoost.collections.AnySet;
 import org.jjoost.collections.MultiSet;
+import org.jjoost.collections.base.AbstractSerialHashStore;
 import org.jjoost.collections.base.HashNode;
 import org.jjoost.collections.base.HashNodeEquality;
 import org.jjoost.collections.base.HashStore;
 import org.jjoost.collections.base.HashStore.PutAction;
+import org.jjoost.collections.base.HashStoreStatistics;
+import org.jjoost.collections.base.Instrumented;
 import org.jjoost.collections.iters.AbstractIterable;
 import org.jjoost.collections.maps.ImmutableMapEntry;
 import org.jjoost.collections.sets.base.AbstractSet;
@@ -45,8 +49,9 @@ import org.jjoost.util.Function;
 import org.jjoost.util.Functions;
 import org.jjoost.util.Iters;
 import org.jjoost.util.Rehasher;
+import org.jjoost.util.Visitor;
 
-public abstract class AbstractHashMap<K, V, N extends HashNode<N> & Map.Entry<K, V>, S extends HashStore<N, S>> implements AnyMap<K, V> {
+public abstract class AbstractHashMap<K, V, N extends HashNode<N> & Map.Entry<K, V>, S extends HashStore<N, S>> implements AnyMap<K, V>, Instrumented {
 
 	protected static abstract class NodeEquality<K, V, N extends HashNode<N> & Map.Entry<K, V>> implements HashNodeEquality<Entry<K, V>, N>, Equality<Entry<K, V>> {
 		private static final long serialVersionUID = -4970889935020537472L;
@@ -122,6 +127,22 @@ public abstract class AbstractHashMap<K, V, N extends HashNode<N> & Map.Entry<K,
 		return store.capacity();
 	}
 	
+	@Override
+	public void recordStatistics(boolean record) {
+		store.recordStatistics(record);
+	}
+	@Override
+	public HashStoreStatistics statistics() {
+		return store.statistics();
+	}
+	
+	/**
+	 * See {@link AbstractSerialHashStore#incrementalResize(boolean)}
+	 */
+	public void incrementalResize(boolean incremental) {
+		HashStore.Helper.incrementalResize(store, incremental);
+	}
+	
 	protected final int hash(K key) {
 		return rehasher.rehash(keyEq.keyEq.hash(key));
 	}
@@ -216,6 +237,16 @@ public abstract class AbstractHashMap<K, V, N extends HashNode<N> & Map.Entry<K,
 		public Iterator<V> iterator() {
 			return store.all(keyProj(), keyEq, valProj());
 		}
+		
+		@Override
+		public Spliterator<V> spliterator() {
+			return store.spliterator(valProj(), 0);
+		}
+		
+		@Override
+		public boolean visit(int partition, int partitions, Visitor<? super V> visitor) {
+			return store.visit(partition, partitions, valProj(), visitor);
+		}
 		@Override
 		public Equality<? super V> equality() {
 			return nodeEq.valEq ;
@@ -449,6 +480,16 @@ public abstract class AbstractHashMap<K, V, N extends HashNode<N> & Map.Entry<K,
 		public Iterator<K> iterator() {
 			return store.all(keyProj(), keyEq, keyProj());
 		}
+		
+		@Override
+		public Spliterator<K> spliterator() {
+			return store.spliterator(keyProj(), permitsDuplicates() ? 0 : Spliterator.DISTINCT);
+		}
+		
+		@Override
+		public boolean visit(int partition, int partitions, Visitor<? super K> visitor) {
+			return store.visit(partition, partitions, keyProj(), visitor);
+		}
 
 		@Override
 		public boolean isEmpty() {
@@ -591,6 +632,16 @@ public abstract class AbstractHashMap<K, V, N extends HashNode<N> & Map.Entry<K,
 		public Iterator<Entry<K, V>> iterator() {
 			return store.all(keyProj(), keyEq, entryProj());
 		}
+		
+		@Override
+		public Spliterator<Entry<K, V>> spliterator() {
+			return store.spliterator(entryProj(), permitsDuplicates() ? 0 : Spliterator.DISTINCT);
+		}
+		
+		@Override
+		public boolean visit(int partition, int partitions, Visitor<? super Entry<K, V>> visitor) {
+			return store.visit(partition, partitions, entryProj(), visitor);
+		}
 		
 		@Override
 		public boolean isEmpty() {
@@ -1,1484 +1,792 @@
-//package org.jjoost.collections.maps.base;
-//
-//import java.util.Comparator;
-//import java.util.Iterator;
-//import java.util.List;
-//import java.util.Map.Entry;
-//
-//import org.jjoost.collections.AnyMap;
-//import org.jjoost.collections.OrderedMap;
-//import org.jjoost.collections.OrderedSet;
-//import org.jjoost.collections.base.OrderedStore;
-//import org.jjoost.collections.iters.AbstractIterable;
-//import org.jjoost.collections.maps.ImmutableMapEntry;
-//import org.jjoost.util.Equalities;
-//import org.jjoost.util.Equality;
-//import org.jjoost.util.FilterPartialOrder;
-//import org.jjoost.util.Filters;
-//import org.jjoost.util.Function;
-//import org.jjoost.util.Functions;
-//import org.jjoost.util.Iters;
-//import org.jjoost.util.tuples.Pair;
-//
-//public abstract class AbstractOrderedMap<K, V, N extends Entry<K, V>, S extends OrderedStore<N, S>, M extends OrderedMap<K, V>> implements OrderedMap<K, V> {
-//
-//	private static final long serialVersionUID = 8356596119889029488L;
-//
-//	private final S store;
-//	private final boolean keyCmpIsTotalOrder;
-//	private final Comparator<? super K> keyCmp;
-//	private final boolean entryCmpIsTotalOrder;
-//	private final Comparator<Entry<K, V>> entryCmp;
-//	private final EntryComparator<K, V> entryInsertCmp;
-//	private final OrderedMapNodeFactory<K, V, N> nodeFactory;
-//	
-//	public AbstractOrderedMap(S store, boolean keyCmpIsTotalOrder, Comparator<? super K> keyCmp, boolean entryCmpIsTotalOrder,
-//			Comparator<Entry<K, V>> entryCmp, Comparator<Entry<K, V>> entryInsertCmp, OrderedMapNodeFactory<K, V, N> nodeFactory) {
-//		super();
-//		this.store = store;
-//		this.keyCmpIsTotalOrder = keyCmpIsTotalOrder;
-//		this.keyCmp = keyCmp;
-//		this.entryCmpIsTotalOrder = entryCmpIsTotalOrder;
-//		this.entryCmp = entryCmp;
-//		this.entryInsertCmp = entryInsertCmp;
-//		this.nodeFactory = nodeFactory;
-//	}
-//
-//	protected abstract M create(S store, Comparator<? super K> keyComparator, Comparator<Entry<K, V>> entryComparator, OrderedMapNodeFactory<K, V, N> nodeFactory);
-//	
-//	protected M create(S store) {
-//		return create(store, keyCmp, entryCmp, nodeFactory);
-//	}
-//	
-//	protected final Function<Entry<K, V>, K> keyProj() {
-//		return Functions.<K, Entry<K, V>>getMapEntryKeyProjection();
-//	}
-//	
-//	protected final Function<Entry<K, V>, V> valProj() {
-//		return Functions.<V, Entry<K, V>>getMapEntryValueProjection();
-//	}
-//	
-//	protected final Function<Entry<K, V>, Entry<K, V>> entryProj() {
-//		return Functions.<Entry<K, V>>identity();
-//	}
-//	
-//	@Override
-//	public Pair<V, V> boundaries(K find) {
-//		return store.boundaries(find, keyProj(), keyCmp, keyCmpIsTotalOrder, entryProj(), entryCmp, entryCmpIsTotalOrder, Filters.<Entry<K, V>>acceptAll(), valProj());
-//	}
-//	@Override
-//	public Pair<Entry<K, V>, Entry<K, V>> boundaryEntries(K find) {
-//		return store.boundaries(find, keyProj(), keyCmp, keyCmpIsTotalOrder, entryProj(), entryCmp, entryCmpIsTotalOrder, Filters.<Entry<K, V>>acceptAll(), entryProj());
-//	}
-//	@Override
-//	public V ceil(K find) {
-//		return store.ceil(find, keyProj(), keyCmp, keyCmpIsTotalOrder, valProj());
-//	}
-//	@Override
-//	public Entry<K, V> ceilEntry(K find) {
-//		return store.ceil(find, keyProj(), keyCmp, keyCmpIsTotalOrder, entryProj());
-//	}
-//
-//	@Override
-//	public int remove(FilterPartialOrder<K> filter) {
-//		return store.remove(filter, keyProj(), keyCmp, keyCmpIsTotalOrder);
-//	}
-//
-//	@Override
-//	public M removeAndReturn(FilterPartialOrder<K> filter) {
-//		return create(store.removeAndReturn(filter, keyProj(), keyCmp, keyCmpIsTotalOrder));
-//	}
-//
-//	@Override
-//	public M removeByEntryAndReturn(FilterPartialOrder<Entry<K, V>> filter) {
-//		return create(store.removeAndReturn(filter, entryProj(), entryCmp, entryCmpIsTotalOrder));
-//	}
-//
-//	@Override
-//	public Iterable<Entry<K, V>> entries(final K key, final boolean asc) {
-//		return new AbstractIterable<Entry<K, V>>() {
-//			@Override
-//			public Iterator<Entry<K, V>> iterator() {
-//				return store.<K, Entry<K, V>>all(asc, key, keyProj(), keyCmp, keyCmpIsTotalOrder, entryProj());
-//			}
-//		};
-//	}
-//
-//	@Override
-//	public Entry<K, V> first(FilterPartialOrder<Entry<K, V>> filter) {
-//		return store.first(filter, entryProj(), entryCmp, entryCmpIsTotalOrder, entryProj());
-//	}
-//
-//	@Override
-//	public Iterable<Entry<K, V>> firstOfEachKey() {
-//		if (keyCmpIsTotalOrder) 
-//			return entries();
-//		return new AbstractIterable<Entry<K, V>>() {
-//			@Override
-//			public Iterator<Entry<K, V>> iterator() {
-//				return store.<K, Entry<K, V>>all(true, Filters.<K>uniqueAsc(), keyProj(), keyCmp, keyCmpIsTotalOrder, entryProj());
-//			}
-//			@Override
-//			protected Equality<? super Entry<K, V>> equality() {
-//				return Equalities.forComparator(entryCmp);
-//			}			
-//		};
-//	}
-//
-//	@Override
-//	public Iterable<Entry<K, V>> lastOfEachKey() {
-//		if (keyCmpIsTotalOrder) 
-//			return entries().all(false);
-//		return new AbstractIterable<Entry<K, V>>() {
-//			@Override
-//			public Iterator<Entry<K, V>> iterator() {
-//				return store.<K, Entry<K, V>>all(false, Filters.<K>uniqueDesc(), 
-//						keyProj(), keyCmp, keyCmpIsTotalOrder, 
-//						entryProj()
-//				);
-//			}			
-//		};
-//	}
-//
-//	@Override
-//	public V floor(K find) {
-//		return store.<K, V>floor(find, keyProj(), keyCmp, keyCmpIsTotalOrder, valProj());
-//	}
-//
-//	@Override
-//	public Entry<K, V> floorEntry(K find) {
-//		return store.<K, Entry<K, V>>floor(find, keyProj(), keyCmp, keyCmpIsTotalOrder, entryProj());
-//	}
-//
-//	@Override
-//	public V greater(K find) {
-//		return store.<K, V>greater(find, keyProj(), keyCmp, keyCmpIsTotalOrder, valProj());
-//	}
-//
-//	@Override
-//	public Entry<K, V> greaterEntry(K find) {
-//		return store.<K, Entry<K, V>>greater(find, keyProj(), keyCmp, keyCmpIsTotalOrder, entryProj());
-//	}
-//
-//	@Override
-//	public Entry<K, V> last(FilterPartialOrder<Entry<K, V>> filter) {
-//		return store.last(filter, entryProj(), entryCmp, entryCmpIsTotalOrder, entryProj());
-//	}
-//
-//	@Override
-//	public V last(K key) {
-//		return store.<K, V>last(key, keyProj(), keyCmp, keyCmpIsTotalOrder, valProj());
-//	}
-//
-//	@Override
-//	public V lesser(K find) {
-//		return store.<K, V>lesser(find, keyProj(), keyCmp, keyCmpIsTotalOrder, valProj());
-//	}
-//
-//	@Override
-//	public Entry<K, V> lesserEntry(K find) {
-//		return store.<K, Entry<K, V>>lesser(find, keyProj(), keyCmp, keyCmpIsTotalOrder, entryProj());
-//	}
-//
-//	@Override
-//	public Iterable<V> values(final boolean asc) {
-//		return new AbstractIterable<V>() {
-//			@Override
-//			public Iterator<V> iterator() {
-//				return store.iterator(asc, valProj());
-//			}
-//		};
-//	}
-//
-//	@Override
-//	public Iterable<V> values(final K key, final boolean asc) {
-//		return new AbstractIterable<V>() {
-//			@Override
-//			public Iterator<V> iterator() {
-//				return store.all(asc, key, keyProj(), keyCmp, keyCmpIsTotalOrder, valProj());
-//			}
-//		};
-//	}
-//
-//	@Override
-//	public int clear() {
-//		return store.clear();
-//	}
-//
-//	@Override
-//	public Iterator<Entry<K, V>> clearAndReturn() {
-//		return store.clearAndReturn(entryProj());
-//	}
-//
-//	@Override
-//	public V put(K key, V val) {
-//		return store.put(nodeFactory.make(key, val), valProj());
-//	}
-//
-//	@Override
-//	public V putIfAbsent(K key, V val) {
-//		return store.putIfAbsent(nodeFactory.make(key, val), valProj());
-//	}
-//
-//	@Override
-//	public int remove(K key, V val) {
-//		return store.<Entry<K, V>>remove(new ImmutableMapEntry<K, V>(key, val), entryProj(), entryCmp, entryCmpIsTotalOrder);
-//	}
-//
-//	@Override
-//	public int remove(K key) {
-//		return store.<K>remove(key, keyProj(), keyCmp, keyCmpIsTotalOrder);
-//	}
-//
-//	@Override
-//	public Iterable<Entry<K, V>> removeAndReturn(K key, V val) {
-//		return store.<Entry<K, V>, Entry<K, V>>removeAndReturn(new ImmutableMapEntry<K, V>(key, val), entryProj(), entryCmp, entryCmpIsTotalOrder, entryProj());
-//	}
-//
-//	@Override
-//	public Iterable<Entry<K, V>> removeAndReturn(K key) {
-//		return store.<K, Entry<K, V>>removeAndReturn(key, keyProj(), keyCmp, keyCmpIsTotalOrder, entryProj());
-//	}
-//
-//	@Override
-//	public V removeAndReturnFirst(K key) {
-//		return store.<K, V>removeAndReturnFirst(key, keyProj(), keyCmp, keyCmpIsTotalOrder, valProj());
-//	}
-//
-//	@Override
-//	public void shrink() {
-//	}
-//
-//	@Override
-//	public boolean contains(K key, V val) {
-//		return store.<Entry<K, V>>contains(new ImmutableMapEntry<K, V>(key, val), entryProj(), entryCmp, entryCmpIsTotalOrder);
-//	}
-//
-//	@Override
-//	public boolean contains(K key) {
-//		return store.<K>contains(key, keyProj(), keyCmp, keyCmpIsTotalOrder);
-//	}
-//
-//	@Override
-//	public int count(K key, V val) {
-//		return store.<Entry<K, V>>count(new ImmutableMapEntry<K, V>(key, val), entryProj(), entryCmp, entryCmpIsTotalOrder);
-//	}
-//
-//	@Override
-//	public int count(K key) {
-//		return store.<K>count(key, keyProj(), keyCmp, keyCmpIsTotalOrder);
-//	}
-//
-//	@Override
-//	public Iterable<Entry<K, V>> entries(K key) {
-//		return entries(key, true);
-//	}
-//
-//	@Override
-//	public V first(K key) {
-//		return store.<K, V>first(key, keyProj(), keyCmp, keyCmpIsTotalOrder, valProj());
-//	}
-//
-//	@Override
-//	public boolean isEmpty() {
-//		return store.isEmpty();
-//	}
-//
-//	@Override
-//	public List<V> list(K key) {
-//		return Iters.toList(values(key));
-//	}
-//
-//	@Override
-//	public boolean permitsDuplicateKeys() {
-//		return !keyCmpIsTotalOrder;
-//	}
-//
-//	@Override
-//	public int totalCount() {
-//		return store.count();
-//	}
-//
-//	@Override
-//	public int uniqueKeyCount() {
-//		if (keyCmpIsTotalOrder)
-//			return store.count();
-//		return store.count(Filters.<K>uniqueAsc(), keyProj(), keyCmp, false);
-//	}
-//
-//	@Override
-//	public Iterable<V> values() {
-//		return values(true);
-//	}
-//
-//	@Override
-//	public OrderedMap<K, V> copy() {
-//		return create(store.<K>copy(Filters.<K>acceptAll(), keyProj(), keyCmp, keyCmpIsTotalOrder));
-//	}
-//
-//	@Override
-//	public M filterCopyByKey(FilterPartialOrder<K> filter) {
-//		return create(store.<K>copy(filter, keyProj(), keyCmp, keyCmpIsTotalOrder));
-//	}
-//
-//	@Override
-//	public M filterCopyByEntry(FilterPartialOrder<Entry<K, V>> filter) {
-//		return create(store.<Entry<K, V>>copy(filter, entryProj(), entryCmp, entryCmpIsTotalOrder));
-//	}
-//
-//
-////	@Override
-////	public Iterable<Entry<K, V>> firstOfEachKey(final FilterPartialOrder<Entry<K, V>> filter) {
-////		if (keyCmpIsTotalOrder)
-////			return entries().all(filter, true);
-////		return new AbstractIterable<Entry<K, V>>() {
-////			@SuppressWarnings("unchecked")
-////			@Override
-////			public Iterator<Entry<K, V>> iterator() {
-////				return store.<Entry<K, V>, Entry<K, V>>
-////				all(true, 
-////						Filters.and(filter, Filters.forceComparator(Filters.<K>uniqueAsc(), keyCmp, keyProj())), 
-////						entryProj(), entryCmp, entryCmpIsTotalOrder, 
-////						entryProj()
-////				);
-////			}			
-////		};
-////	}
-////
-////	@Override
-////	public Iterable<Entry<K, V>> lastOfEachKey(final FilterPartialOrder<Entry<K, V>> filter) {
-////		if (keyCmpIsTotalOrder)
-////			return entries().all(filter, false);
-////		return new AbstractIterable<Entry<K, V>>() {
-////			@SuppressWarnings("unchecked")
-////			@Override
-////			public Iterator<Entry<K, V>> iterator() {
-////				return store.<Entry<K, V>, Entry<K, V>>
-////				all(false, 
-////						Filters.and(filter, Filters.forceComparator(Filters.<K>uniqueDesc(), keyCmp, keyProj())), 
-////						entryProj(), entryCmp, entryCmpIsTotalOrder, 
-////						entryProj()
-////				);
-////			}			
-////		};
-////	}
-////	@Override
-////	public Iterable<V> filterValuesByKey(final FilterPartialOrder<K> filter, final boolean asc) {
-////		return new AbstractIterable<V>() {
-////			@Override
-////			public Iterator<V> iterator() {
-////				return store.all(asc, filter, keyProj(), keyCmp, keyCmpIsTotalOrder, valProj());
-////			}
-////		};
-////	}
-////
-////	@Override
-////	public Iterable<V> filterValuesByEntry(final FilterPartialOrder<Entry<K, V>> filter, final boolean asc) {
-////		return new AbstractIterable<V>() {
-////			@Override
-////			public Iterator<V> iterator() {
-////				return store.all(asc, filter, entryProj(), entryCmp, entryCmpIsTotalOrder, valProj());
-////			}
-////		};
-////	}
-////
-////	@Override
-////	public Iterable<Entry<K, V>> unique(final FilterPartialOrder<Entry<K, V>> filter, final boolean asc) {
-////		if (entryCmpIsTotalOrder)
-////			return all(filter, asc);
-////		return new AbstractIterable<Entry<K, V>>() {
-////			@SuppressWarnings("unchecked")
-////			@Override
-////			public Iterator<Entry<K, V>> iterator() {
-////				return store.<Entry<K, V>, Entry<K, V>>
-////				all(asc, 
-////						Filters.and(filter, asc ? Filters.<Entry<K, V>>uniqueAsc() : Filters.<Entry<K, V>>uniqueDesc()), 
-////						entryProj(), entryCmp, entryCmpIsTotalOrder, 
-////						entryProj()
-////				);
-////			}			
-////		};
-////	}
-////	@Override
-////	public Iterable<Entry<K, V>> all(final FilterPartialOrder<Entry<K, V>> filter, final boolean asc) {
-////		return new AbstractIterable<Entry<K, V>>() {
-////			@Override
-////			public Iterator<Entry<K, V>> iterator() {
-////				return store.<Entry<K, V>, Entry<K, V>>all(asc, filter, entryProj(), entryCmp, entryCmpIsTotalOrder, entryProj());
-////			}
-////		};
-////	}
-////	@Override
-////	public Iterable<Entry<K, V>> allByKey(final FilterPartialOrder<K> filter, final boolean asc) {
-////		return new AbstractIterable<Entry<K, V>>() {
-////			@Override
-////			public Iterator<Entry<K, V>> iterator() {
-////				return store.all(asc, filter, keyProj(), keyCmp, keyCmpIsTotalOrder, entryProj());
-////			}
-////		};
-////	}
-////
-////	@Override
-////	public Iterable<Entry<K, V>> uniqueByKey(final FilterPartialOrder<K> filter, final boolean asc) {
-////		if (entryCmpIsTotalOrder)
-////			return allByKey(filter, asc);
-////		return new AbstractIterable<Entry<K, V>>() {
-////			@SuppressWarnings("unchecked")
-////			@Override
-////			public Iterator<Entry<K, V>> iterator() {
-////				return store.<Entry<K, V>, Entry<K, V>>
-////				all(asc, 
-////						Filters.and(Filters.forceComparator(filter, keyCmp, keyProj()), 
-////								asc ? Filters.<Entry<K, V>>uniqueAsc() : Filters.<Entry<K, V>>uniqueDesc()
-////						), 
-////						entryProj(), entryCmp, entryCmpIsTotalOrder, 
-////						entryProj()
-////				);
-////			}			
-////		};
-////	}
-////
-////	@Override
-////	public Iterable<K> allByEntry(final FilterPartialOrder<Entry<K, V>> filter, final boolean asc) {
-////		return new AbstractIterable<K>() {
-////			@Override
-////			public Iterator<K> iterator() {
-////				return store.all(asc, filter, entryProj(), entryCmp, entryCmpIsTotalOrder, keyProj());
-////			}
-////		};
-////	}
-////
-////	@Override
-////	public Iterable<K> uniqueByEntry(final FilterPartialOrder<Entry<K, V>> filter, final boolean asc) {
-////		if (keyCmpIsTotalOrder)
-////			return allByEntry(filter, asc);
-////		return new AbstractIterable<K>() {
-////			@SuppressWarnings("unchecked")
-////			@Override
-////			public Iterator<K> iterator() {
-////				return store.<Entry<K, V>, K>
-////				all(asc, 
-////						Filters.and(filter, Filters.forceComparator(
-////								asc ? Filters.<K>uniqueAsc() : Filters.<K>uniqueDesc(), 
-////							keyCmp, keyProj())), 
-////						entryProj(), entryCmp, entryCmpIsTotalOrder, keyProj()
-////				);
-////			}			
-////		};
-////	}
-////
-////	@Override
-////	public Iterable<K> unique(final FilterPartialOrder<K> filter, final boolean asc) {
-////		if (keyCmpIsTotalOrder)
-////			return all(filter, asc);
-////		return new AbstractIterable<K>() {
-////			@SuppressWarnings("unchecked")
-////			@Override
-////			public Iterator<K> iterator() {
-////				return store.<K, K>
-////				all(asc, 
-////						Filters.and(filter, asc ? Filters.<K>uniqueAsc() : Filters.<K>uniqueDesc()), 
-////						keyProj(), keyCmp, keyCmpIsTotalOrder, 
-////						keyProj()
-////				);
-////			}			
-////		};
-////	}
-////
-////	@Override
-////	public Iterable<K> all(final FilterPartialOrder<K> filter, final boolean asc) {
-////		return new AbstractIterable<K>() {
-////			@Override
-////			public Iterator<K> iterator() {
-////				return store.<K, K>all(asc, filter, keyProj(), keyCmp, keyCmpIsTotalOrder, keyProj());
-////			}
-////		};
-////	}
-////	
-//
-//	protected abstract class AbstractFilteredKeySet implements OrderedSet<K> {
-//
-//		private static final long serialVersionUID = -4052628932082605271L;
-//		
-//		protected final FilterPartialOrder<Entry<K, V>> filter;
-//		public AbstractFilteredKeySet(FilterPartialOrder<Entry<K, V>> filter) {
-//			super();
-//			this.filter = filter;
-//		}
-//
-//		protected final FilterPartialOrder<Entry<K, V>> filterWithKeyLookup(K key) {
-//			return Filters.and(Filters.<K, Entry<K, V>>forceComparator(Filters.isEqualTo(key), keyCmp, keyProj()), filter);
-//		}
-//		
-//		protected final FilterPartialOrder<Entry<K, V>> filterWithKeyFilter(FilterPartialOrder<K> filter2) {
-//			return Filters.and(filter, Filters.forceComparator(filter2, keyCmp, keyProj()));
-//		}
-//		
-//		@Override
-//		public Iterable<K> all(final boolean asc) {
-//			return new AbstractIterable<K>() {
-//				@Override
-//				public Iterator<K> iterator() {
-//					return store.all(asc, filter, entryProj(), entryCmp, entryCmpIsTotalOrder, keyProj());
-//				}
-//			};
-//		}
-//
-//		@Override
-//		public Iterable<K> all(final K value, final boolean asc) {
-//			return new AbstractIterable<K>() {
-//				@Override
-//				public Iterator<K> iterator() {
-//					return store.all(asc, filterWithKeyLookup(value), entryProj(), entryCmp, entryCmpIsTotalOrder, keyProj());
-//				}
-//			};
-//		}
-//
-//		@Override
-//		public Iterable<K> all(K value) {
-//			return all(value, true);
-//		}
-//
-//		@Override
-//		public boolean isEmpty() {
-//			return store.contains(filter, entryProj(), entryCmp, entryCmpIsTotalOrder);
-//		}
-//
-//		@Override
-//		public boolean permitsDuplicates() {
-//			return !keyCmpIsTotalOrder;
-//		}
-//
-//		@Override
-//		public int totalCount() {
-//			return store.count(filter, entryProj(), entryCmp, entryCmpIsTotalOrder);
-//		}
-//
-//		@Override
-//		public int uniqueCount() {
-//			return store.count(filterWithKeyFilter(Filters.<K>uniqueAsc()), entryProj(), entryCmp, entryCmpIsTotalOrder);
-//		}
-//
-//		@Override
-//		public Iterable<K> unique(final boolean asc) {
-//			return new AbstractIterable<K>() {
-//				@Override
-//				public Iterator<K> iterator() {
-//					return store.all(asc, filterWithKeyFilter(Filters.<K>uniqueAsc()), entryProj(), entryCmp, entryCmpIsTotalOrder, keyProj());
-//				}
-//			};
-//		}
-//
-//		@Override
-//		public Iterable<K> unique() {
-//			return unique(true);
-//		}
-//
-//		@Override
-//		public Pair<K, K> boundaries(K find) {
-//			return store.boundaries(find, keyProj(), keyCmp, keyCmpIsTotalOrder, entryProj(), entryCmp, entryCmpIsTotalOrder, filter, keyProj());
-//		}
-//
-//		@Override
-//		public int count(FilterPartialOrder<K> filter) {
-//			return store.count(filterWithKeyFilter(filter), entryProj(), entryCmp, entryCmpIsTotalOrder);
-//		}
-//
-//		@Override
-//		public K ceil(K find) {
-//			return store.ceil(find, keyProj(), keyCmp, keyCmpIsTotalOrder, entryProj(), entryCmp, entryCmpIsTotalOrder, filter, keyProj());
-//		}
-//
-//		@Override
-//		public K floor(K find) {
-//			return store.floor(find, keyProj(), keyCmp, keyCmpIsTotalOrder, entryProj(), entryCmp, entryCmpIsTotalOrder, filter, keyProj());
-//		}
-//
-//		@Override
-//		public K greater(K find) {
-//			return store.greater(find, keyProj(), keyCmp, keyCmpIsTotalOrder, entryProj(), entryCmp, entryCmpIsTotalOrder, filter, keyProj());
-//		}
-//
-//		@Override
-//		public K lesser(K find) {
-//			return store.lesser(find, keyProj(), keyCmp, keyCmpIsTotalOrder, entryProj(), entryCmp, entryCmpIsTotalOrder, filter, keyProj());
-//		}
-//
-//		@Override
-//		public K first() {
-//			return store.first(filter, entryProj(), entryCmp, entryCmpIsTotalOrder, keyProj());
-//		}
-//
-//		@Override
-//		public K first(K find) {
-//			return store.first(filterWithKeyLookup(find), entryProj(), entryCmp, entryCmpIsTotalOrder, keyProj());
-//		}
-//
-//		@Override
-//		public K first(FilterPartialOrder<K> filter) {
-//			return store.first(filterWithKeyFilter(filter), entryProj(), entryCmp, entryCmpIsTotalOrder, keyProj());
-//		}
-//
-//		@Override
-//		public K last() {
-//			return store.last(filter, entryProj(), entryCmp, entryCmpIsTotalOrder, keyProj());
-//		}
-//
-//		@Override
-//		public K last(FilterPartialOrder<K> filter) {
-//			return store.last(filterWithKeyFilter(filter), entryProj(), entryCmp, entryCmpIsTotalOrder, keyProj());
-//		}
-//
-//		@Override
-//		public K last(K find) {
-//			return store.last(filterWithKeyLookup(find), entryProj(), entryCmp, entryCmpIsTotalOrder, keyProj());
-//		}
-//
-//		@Override
-//		public int clear() {
-//			return store.remove(filter, entryProj(), entryCmp, entryCmpIsTotalOrder);
-//		}
-//
-//		@Override
-//		public Iterator<K> clearAndReturn() {
-//			return store.removeAndReturn(filter, entryProj(), entryCmp, entryCmpIsTotalOrder).iterator(true, keyProj());
-//		}
-//
-//		@Override
-//		public K put(K val) {
-//			throw new UnsupportedOperationException();
-//		}
-//
-//		@Override
-//		public int putAll(Iterable<K> val) {
-//			throw new UnsupportedOperationException();
-//		}
-//
-//		@Override
-//		public K putIfAbsent(K val) {
-//			throw new UnsupportedOperationException();
-//		}
-//
-//		@Override
-//		public int remove(K value) {
-//			return store.remove(filterWithKeyLookup(value), entryProj(), entryCmp, entryCmpIsTotalOrder);
-//		}
-//
-//		@Override
-//		public Iterable<K> removeAndReturn(K value) {
-//			final S s = store.removeAndReturn(filterWithKeyLookup(value), entryProj(), entryCmp, entryCmpIsTotalOrder);
-//			return new AbstractIterable<K>() {
-//				@Override
-//				public Iterator<K> iterator() {
-//					return s.iterator(true, keyProj());
-//				}
-//				
-//			};
-//		}
-//
-//		@Override
-//		public K removeAndReturnFirst(K value) {
-//			return store.removeAndReturnFirst(filterWithKeyLookup(value), entryProj(), entryCmp, entryCmpIsTotalOrder, keyProj());
-//		}
-//
-//		@Override
-//		public Iterator<K> iterator() {
-//			return store.all(true, filter, entryProj(), entryCmp, entryCmpIsTotalOrder, keyProj());
-//		}
-//
-//		@Override
-//		public OrderedSet<K> filterCopy(FilterPartialOrder<K> filter) {
-//			return create(store.copy(filterWithKeyFilter(filter), entryProj(), entryCmp, entryCmpIsTotalOrder)).keys();
-//		}
-//
-//		@Override
-//		public OrderedSet<K> copy() {
-//			return create(store.copy(filter, entryProj(), entryCmp, entryCmpIsTotalOrder)).keys();
-//		}
-//
-//		@Override
-//		public int remove(FilterPartialOrder<K> filter) {
-//			return store.remove(filterWithKeyFilter(filter), entryProj(), entryCmp, entryCmpIsTotalOrder);
-//		}
-//
-//		@Override
-//		public OrderedSet<K> removeAndReturn(FilterPartialOrder<K> filter) {
-//			return create(store.removeAndReturn(filterWithKeyFilter(filter), entryProj(), entryCmp, entryCmpIsTotalOrder)).keys();
-//		}
-//
-//		@Override
-//		public K removeAndReturnFirst(FilterPartialOrder<K> filter) {
-//			return store.removeAndReturnFirst(filterWithKeyFilter(filter), entryProj(), entryCmp, entryCmpIsTotalOrder, keyProj());
-//		}
-//
-//		@Override
-//		public boolean contains(K value) {
-//			return store.contains(filterWithKeyLookup(value), entryProj(), entryCmp, entryCmpIsTotalOrder);
-//		}
-//
-//		@Override
-//		public int count(K value) {
-//			return store.count(filterWithKeyLookup(value), entryProj(), entryCmp, entryCmpIsTotalOrder);
-//		}
-//
-//		@Override
-//		public List<K> list(K value) {
-//			return Iters.toList(all(value));
-//		}
-//
-//		@Override
-//		public Boolean apply(K v) {
-//			return contains(v);
-//		}
-//		
-//		@Override
-//		public void shrink() {
-//		}
-//
-//	}
-//	
-//	protected abstract class AbstractFilteredMap implements OrderedMap<K, V> {
-//
-//		private static final long serialVersionUID = 5724108304692745490L;
-//		protected final FilterPartialOrder<Entry<K, V>> filter;
-//		public AbstractFilteredMap(FilterPartialOrder<Entry<K, V>> filter) {
-//			this.filter = filter;
-//		}
-//
-//		protected final FilterPartialOrder<Entry<K, V>> filterWithKeyLookup(K key) {
-//			return Filters.and(Filters.<K, Entry<K, V>>forceComparator(Filters.isEqualTo(key), keyCmp, keyProj()), filter);
-//		}
-//		
-//		protected final FilterPartialOrder<Entry<K, V>> filterWithEntryLookup(K key, V val) {
-//			final ImmutableMapEntry<K, V> entry = new ImmutableMapEntry<K, V>(key, val);
-//			return Filters.and(Filters.<Entry<K, V>>isEqualTo(entry), filter);
-//		}
-//		
-//		protected final FilterPartialOrder<Entry<K, V>> filterWithKeyFilter(FilterPartialOrder<K> filter2) {
-//			return Filters.and(filter, Filters.forceComparator(filter2, keyCmp, keyProj()));
-//		}
-//
-//		@Override
-//		public OrderedMap<K, V> copy() {
-//			return create(store.copy(filter, entryProj(), entryCmp, entryCmpIsTotalOrder));
-//		}
-//
-//		@Override
-//		public OrderedMap<K, V> filterCopyByEntry(FilterPartialOrder<Entry<K, V>> filter) {
-//			return create(store.copy(Filters.and(this.filter, filter), entryProj(), entryCmp, entryCmpIsTotalOrder));
-//		}
-//
-//		@Override
-//		public OrderedMap<K, V> filterCopyByKey(FilterPartialOrder<K> filter) {
-//			return create(store.copy(filterWithKeyFilter(filter), entryProj(), entryCmp, entryCmpIsTotalOrder));
-//		}
-//
-//		@Override
-//		public Entry<K, V> removeAndReturnFirst(FilterPartialOrder<K> filter) {
-//			return store.removeAndReturnFirst(filterWithKeyFilter(filter), entryProj(), entryCmp, entryCmpIsTotalOrder, entryProj());
-//		}
-//
-//		@Override
-//		public int remove(FilterPartialOrder<K> filter) {
-//			return store.remove(filterWithKeyFilter(filter), entryProj(), entryCmp, entryCmpIsTotalOrder);
-//		}
-//
-//		@Override
-//		public OrderedMap<K, V> removeAndReturn(FilterPartialOrder<K> filter) {
-//			return create(store.removeAndReturn(filterWithKeyFilter(filter), entryProj(), entryCmp, entryCmpIsTotalOrder));
-//		}
-//
-//		@Override
-//		public OrderedMap<K, V> removeByEntryAndReturn(FilterPartialOrder<Entry<K, V>> filter) {
-//			return AbstractOrderedMap.this.removeByEntryAndReturn(Filters.and(filter, this.filter));
-//		}
-//
-//		@Override
-//		public int clear() {
-//			return store.remove(filter, entryProj(), entryCmp, entryCmpIsTotalOrder);
-//		}
-//
-//		@Override
-//		public Iterator<Entry<K, V>> clearAndReturn() {
-//			return AbstractOrderedMap.this.removeByEntryAndReturn(this.filter).entries().iterator();
-//		}
-//
-//		@Override
-//		public AnyMap<V, K> inverse() {
-//			throw new UnsupportedOperationException();
-//		}
-//
-//		@Override
-//		public V put(K key, V val) {
-//			N n = nodeFactory.make(key, val);
-//			if (!filter.accept(n, entryCmp))
-//				throw new IllegalArgumentException(String.format("(%s->%s) does not pass the filter %s", key, val, filter));
-//			return store.put(n, valProj());
-//		}
-//
-//		@Override
-//		public V putIfAbsent(K key, V val) {
-//			N n = nodeFactory.make(key, val);
-//			if (!filter.accept(n, entryCmp))
-//				throw new IllegalArgumentException(String.format("(%s->%s) does not pass the filter %s", key, val, filter));
-//			return store.putIfAbsent(n, valProj());
-//		}
-//
-//		@Override
-//		public int remove(K key, V val) {
-//			return store.remove(filterWithEntryLookup(key, val), entryProj(), entryCmp, entryCmpIsTotalOrder);
-//		}
-//
-//		@Override
-//		public int remove(K key) {
-//			return store.remove(filterWithKeyLookup(key), entryProj(), entryCmp, entryCmpIsTotalOrder);
-//		}
-//
-//		@Override
-//		public Iterable<Entry<K, V>> removeAndReturn(K key, V val) {
-//			return removeByEntryAndReturn(filterWithEntryLookup(key, val)).entries();
-//		}
-//
-//		@Override
-//		public Iterable<Entry<K, V>> removeAndReturn(K key) {
-//			return removeByEntryAndReturn(filterWithKeyLookup(key)).entries();
-//		}
-//
-//		@Override
-//		public V removeAndReturnFirst(K key) {
-//			return store.removeAndReturnFirst(filterWithKeyLookup(key), entryProj(), entryCmp, entryCmpIsTotalOrder, valProj());
-//		}
-//
-//		@Override
-//		public Pair<V, V> boundaries(K find) {
-//			return store.boundaries(find, keyProj(), keyCmp, keyCmpIsTotalOrder, entryProj(), entryCmp, entryCmpIsTotalOrder, filter, valProj());
-//		}
-//
-//		@Override
-//		public Entry<K, V> first(FilterPartialOrder<Entry<K, V>> filter) {
-//			return store.first(Filters.and(this.filter, filter), entryProj(), entryCmp, entryCmpIsTotalOrder, entryProj());
-//		}
-//
-//		@Override
-//		public Pair<Entry<K, V>, Entry<K, V>> boundaryEntries(K find) {
-//			return store.boundaries(find, keyProj(), keyCmp, keyCmpIsTotalOrder, entryProj(), entryCmp, entryCmpIsTotalOrder, filter, entryProj());
-//		}
-//
-//		@Override
-//		public V ceil(K find) {
-//			return store.ceil(find, keyProj(), keyCmp, keyCmpIsTotalOrder, entryProj(), entryCmp, entryCmpIsTotalOrder, filter, valProj());
-//		}
-//
-//		@Override
-//		public Entry<K, V> ceilEntry(K find) {
-//			return store.ceil(find, keyProj(), keyCmp, keyCmpIsTotalOrder, entryProj(), entryCmp, entryCmpIsTotalOrder, filter, entryProj());
-//		}
-//
-//		@Override
-//		public V floor(K find) {			
-//			return store.floor(find, keyProj(), keyCmp, keyCmpIsTotalOrder, entryProj(), entryCmp, entryCmpIsTotalOrder, filter, valProj());
-//		}
-//
-//		@Override
-//		public Entry<K, V> floorEntry(K find) {
-//			return store.floor(find, keyProj(), keyCmp, keyCmpIsTotalOrder, entryProj(), entryCmp, entryCmpIsTotalOrder, filter, entryProj());
-//		}
-//
-//		@Override
-//		public V greater(K find) {
-//			return store.greater(find, keyProj(), keyCmp, keyCmpIsTotalOrder, entryProj(), entryCmp, entryCmpIsTotalOrder, filter, valProj());
-//		}
-//
-//		@Override
-//		public Entry<K, V> greaterEntry(K find) {
-//			return store.greater(find, keyProj(), keyCmp, keyCmpIsTotalOrder, entryProj(), entryCmp, entryCmpIsTotalOrder, filter, entryProj());
-//		}
-//
-//		@Override
-//		public V lesser(K find) {
-//			return store.lesser(find, keyProj(), keyCmp, keyCmpIsTotalOrder, entryProj(), entryCmp, entryCmpIsTotalOrder, filter, valProj());
-//		}
-//
-//		@Override
-//		public Entry<K, V> lesserEntry(K find) {
-//			return store.lesser(find, keyProj(), keyCmp, keyCmpIsTotalOrder, entryProj(), entryCmp, entryCmpIsTotalOrder, filter, entryProj());
-//		}
-//
-//		@Override
-//		public V first(K find) {
-//			return store.first(filterWithKeyLookup(find), entryProj(), entryCmp, entryCmpIsTotalOrder, valProj());
-//		}
-//
-//		@Override
-//		public Entry<K, V> last(FilterPartialOrder<Entry<K, V>> filter) {
-//			return store.last(Filters.and(this.filter, filter), entryProj(), entryCmp, entryCmpIsTotalOrder, entryProj());
-//		}
-//
-//		@Override
-//		public V last(K find) {
-//			return store.last(filterWithKeyLookup(find), entryProj(), entryCmp, entryCmpIsTotalOrder, valProj());
-//		}
-//
-//		@Override
-//		public Iterable<Entry<K, V>> firstOfEachKey() {			
-//			if (keyCmpIsTotalOrder) 
-//				return entries();
-//			return new AbstractIterable<Entry<K, V>>() {
-//				@Override
-//				public Iterator<Entry<K, V>> iterator() {
-//					return store.all(true, filterWithKeyFilter(Filters.<K>uniqueAsc()), entryProj(), entryCmp, entryCmpIsTotalOrder, entryProj());
-//				}
-//			};
-//		}
-//
-//		@Override
-//		public Iterable<Entry<K, V>> lastOfEachKey() {
-//			if (keyCmpIsTotalOrder) 
-//				return entries().all(false);
-//			return new AbstractIterable<Entry<K, V>>() {
-//				@Override
-//				public Iterator<Entry<K, V>> iterator() {
-//					return store.all(false, filterWithKeyFilter(Filters.<K>uniqueDesc()), entryProj(), entryCmp, entryCmpIsTotalOrder, entryProj());
-//				}
-//			};
-//		}
-//
-//		@Override
-//		public Iterable<V> values(final boolean asc) {
-//			return new AbstractIterable<V>() {
-//				@Override
-//				public Iterator<V> iterator() {
-//					return store.all(asc, filter, entryProj(), entryCmp, entryCmpIsTotalOrder, valProj());
-//				}
-//			};
-//		}
-//
-//		@Override
-//		public Iterable<V> values(final K key, final boolean asc) {
-//			return new AbstractIterable<V>() {
-//				@Override
-//				public Iterator<V> iterator() {
-//					return store.all(asc, filterWithKeyLookup(key), entryProj(), entryCmp, entryCmpIsTotalOrder, valProj());
-//				}
-//			};
-//		}
-//
-//		@Override
-//		public boolean contains(K key, V val) {
-//			return store.contains(filterWithEntryLookup(key, val), entryProj(), entryCmp, entryCmpIsTotalOrder);
-//		}
-//
-//		@Override
-//		public boolean contains(K key) {
-//			return store.contains(filterWithKeyLookup(key), entryProj(), entryCmp, entryCmpIsTotalOrder);
-//		}
-//
-//		@Override
-//		public int count(K key, V val) {
-//			return store.count(filterWithEntryLookup(key, val), entryProj(), entryCmp, entryCmpIsTotalOrder);
-//		}
-//
-//		@Override
-//		public Iterable<V> values() {
-//			return values(true);
-//		}
-//
-//		@Override
-//		public int count(K key) {
-//			return store.count(filterWithKeyLookup(key), entryProj(), entryCmp, entryCmpIsTotalOrder);
-//		}
-//
-//		@Override
-//		public Iterable<Entry<K, V>> entries(final K find, final boolean asc) {
-//			return new AbstractIterable<Entry<K, V>>() {
-//				@Override
-//				public Iterator<Entry<K, V>> iterator() {
-//					return store.all(asc, filterWithKeyLookup(find), entryProj(), entryCmp, entryCmpIsTotalOrder, entryProj());
-//				}				
-//			};
-//		}
-//
-//		@Override
-//		public Iterable<Entry<K, V>> entries(K key) {
-//			return entries(key, true);
-//		}
-//
-//		@Override
-//		public List<V> list(K key) {
-//			return Iters.toList(values(key));
-//		}
-//
-//		@Override
-//		public boolean permitsDuplicateKeys() {
-//			return AbstractOrderedMap.this.permitsDuplicateKeys();
-//		}
-//
-//		@Override
-//		public boolean isEmpty() {
-//			return AbstractOrderedMap.this.isEmpty();
-//		}
-//
-//		@Override
-//		public int totalCount() {
-//			return store.count(filter, entryProj(), entryCmp, entryCmpIsTotalOrder);
-//		}
-//
-//		@Override
-//		public int uniqueKeyCount() {
-//			return store.count(Filters.and(filter, Filters.<Entry<K, V>>uniqueAsc()), entryProj(), entryCmp, entryCmpIsTotalOrder);
-//		}
-//
-//		@Override
-//		public void shrink() {
-//		}
-//		
-//	}
-//
-//	protected abstract class AbstractEntrySet implements OrderedMapEntrySet<K, V> {
-//
-//		private static final long serialVersionUID = -16290453333104178L;
-//
-//		@Override
-//		public int remove(FilterPartialOrder<Entry<K, V>> filter) {
-//			return store.remove(filter, entryProj(), entryCmp, entryCmpIsTotalOrder);
-//		}
-//		
-//		@Override
-//		public Entry<K, V> removeAndReturnFirst(FilterPartialOrder<Entry<K, V>> filter) {
-//			return store.removeAndReturnFirst(filter, entryProj(), entryCmp, entryCmpIsTotalOrder, entryProj());
-//		}
-//
-//		@Override
-//		public Entry<K, V> first() {
-//			return store.first(Filters.<Entry<K, V>>acceptAll(), entryProj(), entryCmp, entryCmpIsTotalOrder, entryProj());
-//		}
-//
-//		@Override
-//		public Entry<K, V> last() {
-//			return store.last(Filters.<Entry<K, V>>acceptAll(), entryProj(), entryCmp, entryCmpIsTotalOrder, entryProj());
-//		}
-//
-//		@Override
-//		public OrderedMapEntrySet<K, V> removeAndReturn(FilterPartialOrder<Entry<K, V>> filter) {
-//			return AbstractOrderedMap.this.removeByEntryAndReturn(filter).entries();
-//		}
-//		
-//		@Override
-//		public Iterable<Entry<K, V>> unique(final boolean asc) {
-//			if (entryCmpIsTotalOrder)
-//				return all(asc);
-//			return new AbstractIterable<Entry<K, V>>() {
-//				@Override
-//				public Iterator<Entry<K, V>> iterator() {
-//					return store.<Entry<K, V>, Entry<K, V>>
-//					all(asc, asc ? Filters.<Entry<K, V>>uniqueAsc() : Filters.<Entry<K, V>>uniqueDesc(), 
-//						entryProj(), entryCmp, entryCmpIsTotalOrder, entryProj()
-//					);
-//				}			
-//			};
-//		}
-//
-//		@Override
-//		public Iterable<Entry<K, V>> unique() {
-//			return unique(true);
-//		}
-//
-//		@Override
-//		public int clear() {
-//			return AbstractOrderedMap.this.clear();
-//		}
-//
-//		@Override
-//		public Iterator<Entry<K, V>> clearAndReturn() {
-//			return AbstractOrderedMap.this.clearAndReturn();
-//		}
-//
-//		@Override
-//		public org.jjoost.collections.OrderedMap.OrderedMapEntrySet<K, V> copy() {
-//			return AbstractOrderedMap.this.copy().entries();
-//		}
-//
-//		@Override
-//		public Entry<K, V> put(Entry<K, V> val) {
-//			return store.<Entry<K, V>, Entry<K, V>>put(val, entryProj(), entryInsertCmp, nodeFactory, entryProj());
-//		}
-//
-//		@Override
-//		public int putAll(Iterable<Entry<K, V>> vals) {
-//			int c = 0;
-//			for (Entry<K, V> val : vals)
-//				if (put(val) == null)
-//					c++;
-//			return c;
-//		}
-//
-//		@Override
-//		public Entry<K, V> putIfAbsent(Entry<K, V> val) {
-//			return store.<Entry<K, V>, Entry<K, V>>putIfAbsent(val, entryProj(), entryInsertCmp, nodeFactory, entryProj());
-//		}
-//
-//		@Override
-//		public int remove(Entry<K, V> val) {
-//			return store.<Entry<K, V>>remove(val, entryProj(), entryCmp, entryCmpIsTotalOrder);
-//		}
-//
-//		@Override
-//		public Iterable<Entry<K, V>> removeAndReturn(Entry<K, V> val) {
-//			return store.<Entry<K, V>, Entry<K, V>>removeAndReturn(val, entryProj(), entryCmp, entryCmpIsTotalOrder, entryProj());
-//		}
-//
-//		@Override
-//		public Entry<K, V> removeAndReturnFirst(Entry<K, V> val) {
-//			return store.<Entry<K, V>, Entry<K, V>>removeAndReturnFirst(val, entryProj(), entryCmp, entryCmpIsTotalOrder, entryProj());
-//		}
-//
-//		@Override
-//		public void shrink() {
-//		}
-//
-//		@Override
-//		public Iterable<Entry<K, V>> all(final boolean asc) {
-//			return new AbstractIterable<Entry<K, V>>() {
-//				@Override
-//				public Iterator<Entry<K, V>> iterator() {
-//					return store.<Entry<K, V>>iterator(asc, entryProj());
-//				}
-//			};
-//		}
-//
-//		@Override
-//		public Iterable<Entry<K, V>> all(final Entry<K, V> value) {
-//			return all(value, true);
-//		}
-//
-//		@Override
-//		public Iterable<Entry<K, V>> all(final Entry<K, V> value, final boolean asc) {
-//			return new AbstractIterable<Entry<K, V>>() {
-//				@Override
-//				public Iterator<Entry<K, V>> iterator() {
-//					return store.<Entry<K, V>, Entry<K, V>>all(asc, value, entryProj(), entryCmp, entryCmpIsTotalOrder, entryProj());
-//				}
-//			};
-//		}
-//
-//		@Override
-//		public Pair<Entry<K, V>, Entry<K, V>> boundaries(Entry<K, V> find) {
-//			return store.boundaries(find, entryProj(), entryCmp, entryCmpIsTotalOrder, entryProj(), entryCmp, entryCmpIsTotalOrder, Filters.<Entry<K, V>>acceptAll(), entryProj());
-//		}
-//
-//		@Override
-//		public Entry<K, V> ceil(Entry<K, V> find) {
-//			return store.ceil(find, entryProj(), entryCmp, entryCmpIsTotalOrder, entryProj());
-//		}
-//
-//		@Override
-//		public int count(FilterPartialOrder<Entry<K, V>> filter) {
-//			return store.count(filter, entryProj(), entryCmp, entryCmpIsTotalOrder);
-//		}
-//
-//		@Override
-//		public org.jjoost.collections.OrderedMap.OrderedMapEntrySet<K, V> filterCopy(FilterPartialOrder<Entry<K, V>> filter) {
-//			return create(store.copy(filter, entryProj(), entryCmp, entryCmpIsTotalOrder)).entries();
-//		}
-//
-//		@Override
-//		public Entry<K, V> first(FilterPartialOrder<Entry<K, V>> filter) {
-//			return store.first(filter, entryProj(), entryCmp, entryCmpIsTotalOrder, entryProj());
-//		}
-//
-//		@Override
-//		public Entry<K, V> floor(Entry<K, V> find) {
-//			return store.floor(find, entryProj(), entryCmp, entryCmpIsTotalOrder, entryProj());
-//		}
-//
-//		@Override
-//		public Entry<K, V> greater(Entry<K, V> find) {
-//			return store.greater(find, entryProj(), entryCmp, entryCmpIsTotalOrder, entryProj());
-//		}
-//
-//		@Override
-//		public Entry<K, V> last(Entry<K, V> find) {
-//			return store.last(find, entryProj(), entryCmp, entryCmpIsTotalOrder, entryProj());
-//		}
-//
-//		@Override
-//		public Entry<K, V> last(FilterPartialOrder<Entry<K, V>> filter) {
-//			return store.last(filter, entryProj(), entryCmp, entryCmpIsTotalOrder, entryProj());
-//		}
-//
-//		@Override
-//		public Entry<K, V> lesser(Entry<K, V> find) {
-//			return store.lesser(find, entryProj(), entryCmp, entryCmpIsTotalOrder, entryProj());
-//		}
-//
-//		@Override
-//		public boolean permitsDuplicates() {
-//			return !entryCmpIsTotalOrder;
-//		}
-//
-//		@Override
-//		public boolean contains(Entry<K, V> value) {
-//			return store.contains(value, entryProj(), entryCmp, entryCmpIsTotalOrder);
-//		}
-//
-//		@Override
-//		public int count(Entry<K, V> value) {
-//			return store.count(value, entryProj(), entryCmp, entryCmpIsTotalOrder);
-//		}
-//
-//		@Override
-//		public Entry<K, V> first(Entry<K, V> value) {
-//			return store.first(value, entryProj(), entryCmp, entryCmpIsTotalOrder, entryProj());
-//		}
-//
-//		@Override
-//		public boolean isEmpty() {
-//			return store.isEmpty();
-//		}
-//
-//		@Override
-//		public List<Entry<K, V>> list(Entry<K, V> value) {
-//			return Iters.toList(all(value, true));
-//		}
-//
-//		@Override
-//		public int totalCount() {
-//			return store.count();
-//		}
-//
-//		@Override
-//		public int uniqueCount() {
-//			if (entryCmpIsTotalOrder)
-//				return store.count();
-//			throw new UnsupportedOperationException();
-//		}
-//
-//		@Override
-//		public Iterator<Entry<K, V>> iterator() {
-//			return store.iterator(true, entryProj());
-//		}
-//
-//		@Override
-//		public Boolean apply(Entry<K, V> v) {
-//			return contains(v);
-//		}		
-//		
-//	}
-//
-//	protected abstract class AbstractKeySet implements OrderedSet<K> {
-//		
-//		private static final long serialVersionUID = -16290453333104178L;
-//		
-//		@Override
-//		public int remove(FilterPartialOrder<K> filter) {
-//			return store.remove(filter, keyProj(), keyCmp, keyCmpIsTotalOrder);
-//		}
-//		
-//		@Override
-//		public OrderedSet<K> removeAndReturn(FilterPartialOrder<K> filter) {
-//			return create(store.removeAndReturn(filter, keyProj(), keyCmp, keyCmpIsTotalOrder)).keys();
-//		}
-//		
-//		@Override
-//		public int uniqueCount() {
-//			if (keyCmpIsTotalOrder)
-//				return store.count();
-//			return AbstractOrderedMap.this.uniqueKeyCount();
-//		}
-//		
-//		@Override
-//		public Iterable<K> unique(final boolean asc) {
-//			if (keyCmpIsTotalOrder)
-//				return all(asc);
-//			return new AbstractIterable<K>() {
-//				@Override
-//				public Iterator<K> iterator() {
-//					return store.<K, K>
-//					all(asc, asc ? Filters.<K>uniqueAsc() : Filters.<K>uniqueDesc(), 
-//						keyProj(), keyCmp, keyCmpIsTotalOrder, keyProj()
-//					);
-//				}			
-//			};
-//		}
-//
-//		@Override
-//		public Iterable<K> unique() {
-//			return unique(true);
-//		}
-//		
-//		@Override
-//		public int clear() {
-//			return AbstractOrderedMap.this.clear();
-//		}
-//		
-//		@Override
-//		public Iterator<K> clearAndReturn() {
-//			return store.clearAndReturn(keyProj());
-//		}
-//		
-//		@Override
-//		public OrderedSet<K> copy() {
-//			return AbstractOrderedMap.this.copy().keys();
-//		}
-//		
-//		@Override
-//		public K put(K val) {
-//			throw new UnsupportedOperationException();
-//		}
-//		
-//		@Override
-//		public int putAll(Iterable<K> vals) {
-//			int c = 0;
-//			for (K val : vals)
-//				if (put(val) == null)
-//					c++;
-//			return c;
-//		}
-//		
-//		@Override
-//		public K putIfAbsent(K val) {
-//			throw new UnsupportedOperationException();
-//		}
-//		
-//		@Override
-//		public int remove(K val) {
-//			return store.<K>remove(val, keyProj(), keyCmp, keyCmpIsTotalOrder);
-//		}
-//		
-//		@Override
-//		public Iterable<K> removeAndReturn(K val) {
-//			return store.<K, K>removeAndReturn(val, keyProj(), keyCmp, keyCmpIsTotalOrder, keyProj());
-//		}
-//		
-//		@Override
-//		public K removeAndReturnFirst(K val) {
-//			return store.<K, K>removeAndReturnFirst(val, keyProj(), keyCmp, keyCmpIsTotalOrder, keyProj());
-//		}
-//		
-//		@Override
-//		public void shrink() {
-//		}
-//		
-//		@Override
-//		public Iterable<K> all(final boolean asc) {
-//			return new AbstractIterable<K>() {
-//				@Override
-//				public Iterator<K> iterator() {
-//					return store.<K>iterator(asc, keyProj());
-//				}
-//			};
-//		}
-//		
-//		@Override
-//		public Iterable<K> all(final K value) {
-//			return all(value, true);
-//		}
-//		
-//		@Override
-//		public Iterable<K> all(final K value, final boolean asc) {
-//			return new AbstractIterable<K>() {
-//				@Override
-//				public Iterator<K> iterator() {
-//					return store.<K, K>all(asc, value, keyProj(), keyCmp, keyCmpIsTotalOrder, keyProj());
-//				}
-//			};
-//		}
-//		
-//		@Override
-//		public Pair<K, K> boundaries(K find) {
-//			return store.boundaries(find, keyProj(), keyCmp, keyCmpIsTotalOrder, entryProj(), entryCmp, entryCmpIsTotalOrder, Filters.<Entry<K, V>>acceptAll(), keyProj());
-//		}
-//		
-//		@Override
-//		public K ceil(K find) {
-//			return store.ceil(find, keyProj(), keyCmp, keyCmpIsTotalOrder, keyProj());
-//		}
-//		
-//		@Override
-//		public int count(FilterPartialOrder<K> filter) {
-//			return store.count(filter, keyProj(), keyCmp, keyCmpIsTotalOrder);
-//		}
-//		
-//		@Override
-//		public OrderedSet<K> filterCopy(FilterPartialOrder<K> filter) {
-//			return create(store.copy(filter, keyProj(), keyCmp, keyCmpIsTotalOrder)).keys();
-//		}
-//		
-//		@Override
-//		public K first(FilterPartialOrder<K> filter) {
-//			return store.first(filter, keyProj(), keyCmp, keyCmpIsTotalOrder, keyProj());
-//		}
-//		
-//		@Override
-//		public K floor(K find) {
-//			return store.floor(find, keyProj(), keyCmp, keyCmpIsTotalOrder, keyProj());
-//		}
-//		
-//		@Override
-//		public K greater(K find) {
-//			return store.greater(find, keyProj(), keyCmp, keyCmpIsTotalOrder, keyProj());
-//		}
-//		
-//		@Override
-//		public K last(K find) {
-//			return store.last(find, keyProj(), keyCmp, keyCmpIsTotalOrder, keyProj());
-//		}
-//		
-//		@Override
-//		public K last(FilterPartialOrder<K> filter) {
-//			return store.last(filter, keyProj(), keyCmp, keyCmpIsTotalOrder, keyProj());
-//		}
-//		
-//		@Override
-//		public K lesser(K find) {
-//			return store.lesser(find, keyProj(), keyCmp, keyCmpIsTotalOrder, keyProj());
-//		}
-//		
-//		@Override
-//		public boolean permitsDuplicates() {
-//			return !keyCmpIsTotalOrder;
-//		}
-//		
-//		@Override
-//		public boolean contains(K value) {
-//			return store.contains(value, keyProj(), keyCmp, keyCmpIsTotalOrder);
-//		}
-//		
-//		@Override
-//		public int count(K value) {
-//			return store.count(value, keyProj(), keyCmp, keyCmpIsTotalOrder);
-//		}
-//		
-//		@Override
-//		public K first(K value) {
-//			return store.first(value, keyProj(), keyCmp, keyCmpIsTotalOrder, keyProj());
-//		}
-//		
-//		@Override
-//		public boolean isEmpty() {
-//			return store.isEmpty();
-//		}
-//		
-//		@Override
-//		public List<K> list(K value) {
-//			return Iters.toList(all(value));
-//		}
-//		
-//		@Override
-//		public int totalCount() {
-//			return store.count();
-//		}
-//		
-//		@Override
-//		public Iterator<K> iterator() {
-//			return store.iterator(true, keyProj());
-//		}
-//		
-//		@Override
-//		public Boolean apply(K v) {
-//			return contains(v);
-//		}		
-//		
-//	}
-//	
-//}
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.maps.base;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.jjoost.collections.AnyMap;
+import org.jjoost.collections.AnySet;
+import org.jjoost.collections.MultiSet;
+import org.jjoost.collections.OrderedMap;
+import org.jjoost.collections.base.OrderedStore;
+import org.jjoost.collections.iters.AbstractIterable;
+import org.jjoost.collections.iters.MappedIterable;
+import org.jjoost.collections.maps.ImmutableMapEntry;
+import org.jjoost.collections.sets.base.AbstractOrderedSet;
+import org.jjoost.collections.sets.base.AbstractSet;
+import org.jjoost.collections.sets.base.IterableSet;
+import org.jjoost.util.Equality;
+import org.jjoost.util.FilterPartialOrder;
+import org.jjoost.util.Filters;
+import org.jjoost.util.Function;
+import org.jjoost.util.Functions;
+import org.jjoost.util.Iters;
+import org.jjoost.util.filters.PartialOrderAcceptBetween;
+import org.jjoost.util.tuples.Pair;
+
+/**
+ * The base class for maps backed by an <code>OrderedStore</code>, whose nodes are the entries of the map ordered by
+ * the <code>Comparator</code> over keys the map was constructed with. Entries with equal keys are visited in the order
+ * they were inserted. As with <code>AbstractOrderedSet</code>, a map may be a lazy view of those entries in another map
+ * accepted by a <code>FilterPartialOrder</code>, in which case all operations are restricted to those entries.
+ * <p>
+ * Entry filters are applied with a comparator over entries that compares only their keys.
+ * 
+ * @author b.elliottsmith
+ */
+public abstract class AbstractOrderedMap<K, V, N extends Entry<K, V>, S extends OrderedStore<N, S>> implements OrderedMap<K, V> {
+
+	private static final long serialVersionUID = -4436734000474316233L;
+
+	protected final S store;
+	protected final Comparator<? super K> keyCmp;
+	protected final KeyComparator<K, V> entryCmp;
+	protected final Equality<? super V> valEq;
+	protected final OrderedMapNodeFactory<K, V, N> nodeFactory;
+	// true if at most one entry may be present for any key, so that lookups may stop at the first found
+	protected final boolean unique;
+	// the filter restricting the entries visible to this map, or null if all are
+	protected final FilterPartialOrder<N> restrict;
+	protected IterableSet<V> valueSet;
+	
+	protected AbstractOrderedMap(S store, Comparator<? super K> keyCmp, Equality<? super V> valEq, 
+			OrderedMapNodeFactory<K, V, N> nodeFactory, boolean unique, FilterPartialOrder<N> restrict) {
+		this.store = store;
+		this.keyCmp = keyCmp;
+		this.entryCmp = new KeyComparator<K, V>(keyCmp);
+		this.valEq = valEq;
+		this.nodeFactory = nodeFactory;
+		this.unique = unique;
+		this.restrict = restrict;
+	}
+	
+	/**
+	 * Returns a map of the same type as this one, backed by the provided store and restricted to the entries accepted
+	 * by the provided filter (or all, if it is null)
+	 */
+	protected abstract AbstractOrderedMap<K, V, N, S> create(S store, FilterPartialOrder<N> restrict);
+	
+	protected final Function<Entry<K, V>, K> keyProj() {
+		return Functions.<K, Entry<K, V>>getMapEntryKeyProjection();
+	}
+	
+	protected final Function<Entry<K, V>, V> valProj() {
+		return Functions.<V, Entry<K, V>>getMapEntryValueProjection();
+	}
+	
+	protected final Function<N, N> nodeProj() {
+		return Functions.<N>identity();
+	}
+	
+	protected final Function<Entry<K, V>, Entry<K, V>> entryProj() {
+		return Functions.<Entry<K, V>>identity();
+	}
+	
+	// makes the node to insert for the key and value, checking it is visible to this map
+	protected final N node(K key, V val) {
+		final N node = nodeFactory.make(key, val);
+		if (restrict != null && !restrict.accept(node, entryCmp))
+			throw new IllegalArgumentException(key + " -> " + val + " is not in the range of entries visible to this map");
+		return node;
+	}
+	
+	protected final FilterPartialOrder<N> keyFilter(FilterPartialOrder<K> filter) {
+		return Filters.forceComparator(filter, keyCmp, keyProj());
+	}
+	
+	protected final FilterPartialOrder<N> entryFilter(FilterPartialOrder<Entry<K, V>> filter) {
+		return Filters.forceComparator(filter, entryCmp, entryProj());
+	}
+	
+	protected final FilterPartialOrder<N> visible() {
+		return restrict == null ? Filters.<N>acceptAll() : restrict;
+	}
+	
+	protected final FilterPartialOrder<N> and(FilterPartialOrder<N> filter) {
+		return restrict == null ? filter : Filters.and(restrict, filter);
+	}
+	
+	// the filter selecting the visible entries with the key, or null if the comparator alone suffices to select them
+	protected final FilterPartialOrder<N> selector(K key) {
+		if (restrict == null)
+			return null;
+		return and(keyFilter(PartialOrderAcceptBetween.get(key, true, key, true)));
+	}
+	
+	// the filter selecting the visible entries with the key and value
+	protected final FilterPartialOrder<N> selector(K key, V val) {
+		return and(new KeyValueFilter<K, V, N>(key, val, keyCmp, valEq));
+	}
+	
+	// *************************************
+	// READ METHODS
+	// *************************************
+	
+	@Override
+	public boolean contains(K key) {
+		final FilterPartialOrder<N> select = selector(key);
+		if (select == null)
+			return store.contains(key, keyProj(), keyCmp, unique);
+		return store.contains(select, nodeProj(), entryCmp, false);
+	}
+
+	@Override
+	public boolean contains(K key, V val) {
+		return store.contains(selector(key, val), nodeProj(), entryCmp, false);
+	}
+
+	@Override
+	public int count(K key) {
+		final FilterPartialOrder<N> select = selector(key);
+		if (select == null)
+			return store.count(key, keyProj(), keyCmp, unique);
+		return store.count(select, nodeProj(), entryCmp, false);
+	}
+
+	@Override
+	public int count(K key, V val) {
+		return store.count(selector(key, val), nodeProj(), entryCmp, false);
+	}
+
+	@Override
+	public V first(K key) {
+		final FilterPartialOrder<N> select = selector(key);
+		if (select == null)
+			return store.first(key, keyProj(), keyCmp, unique, valProj());
+		return store.first(select, nodeProj(), entryCmp, false, valProj());
+	}
+
+	@Override
+	public V last(K key) {
+		final FilterPartialOrder<N> select = selector(key);
+		if (select == null)
+			return store.last(key, keyProj(), keyCmp, unique, valProj());
+		return store.last(select, nodeProj(), entryCmp, false, valProj());
+	}
+
+	@Override
+	public List<V> list(K key) {
+		return Iters.toList(values(key, true));
+	}
+
+	@Override
+	public Iterable<Entry<K, V>> entries(K key) {
+		return entries(key, true);
+	}
+	
+	@Override
+	public Iterable<Entry<K, V>> entries(K key, boolean asc) {
+		return find(key, asc, entryProj());
+	}
+	
+	@Override
+	public Iterable<V> values(K key, boolean asc) {
+		return find(key, asc, valProj());
+	}
+	
+	private <R> Iterable<R> find(final K key, final boolean asc, final Function<? super N, ? extends R> ret) {
+		return new AbstractIterable<R>() {
+			@Override
+			public Iterator<R> iterator() {
+				final FilterPartialOrder<N> select = selector(key);
+				if (select == null)
+					return store.all(asc, key, keyProj(), keyCmp, unique, ret);
+				return store.all(asc, select, nodeProj(), entryCmp, false, ret);
+			}
+		};
+	}
+
+	@Override
+	public Iterable<V> values(final boolean asc) {
+		return new AbstractIterable<V>() {
+			@Override
+			public Iterator<V> iterator() {
+				return store.all(asc, visible(), nodeProj(), entryCmp, false, valProj());
+			}
+		};
+	}
+	
+	@Override
+	public IterableSet<V> values() {
+		if (valueSet == null)
+			valueSet = new IterableSet.ConcreteIterableSet<V>(valEq, values(true));
+		return valueSet;
+	}
+
+	@Override
+	public int totalCount() {
+		return restrict == null ? store.count() : store.count(restrict, nodeProj(), entryCmp, false);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return restrict == null ? store.isEmpty() : !store.contains(restrict, nodeProj(), entryCmp, false);
+	}
+
+	@Override
+	public Entry<K, V> first(FilterPartialOrder<Entry<K, V>> filter) {
+		return store.first(and(entryFilter(filter)), nodeProj(), entryCmp, false, entryProj());
+	}
+
+	@Override
+	public Entry<K, V> last(FilterPartialOrder<Entry<K, V>> filter) {
+		return store.last(and(entryFilter(filter)), nodeProj(), entryCmp, false, entryProj());
+	}
+
+	@Override
+	public Iterable<Entry<K, V>> firstOfEachKey() {
+		return ofEachKey(true);
+	}
+
+	@Override
+	public Iterable<Entry<K, V>> lastOfEachKey() {
+		return ofEachKey(false);
+	}
+	
+	// visits keys in ascending order if we want the first entry of each, and descending otherwise
+	private Iterable<Entry<K, V>> ofEachKey(final boolean first) {
+		if (unique)
+			return entries().all(first);
+		return new MappedIterable<K, Entry<K, V>>(keys().unique(first), new Function<K, Entry<K, V>>() {
+			private static final long serialVersionUID = 6271429016432432961L;
+			@Override
+			public Entry<K, V> apply(K key) {
+				final FilterPartialOrder<N> select = selector(key);
+				if (select == null)
+					return first ? store.first(key, keyProj(), keyCmp, unique, entryProj()) : store.last(key, keyProj(), keyCmp, unique, entryProj());
+				return first ? store.first(select, nodeProj(), entryCmp, false, entryProj()) : store.last(select, nodeProj(), entryCmp, false, entryProj());
+			}
+		});
+	}
+
+	@Override
+	public Entry<K, V> greaterEntry(K find) {
+		return greater(find, entryProj());
+	}
+
+	@Override
+	public Entry<K, V> lesserEntry(K find) {
+		return lesser(find, entryProj());
+	}
+
+	@Override
+	public V greater(K find) {
+		return greater(find, valProj());
+	}
+
+	@Override
+	public V lesser(K find) {
+		return lesser(find, valProj());
+	}
+
+	@Override
+	public Entry<K, V> floorEntry(K find) {
+		return floor(find, entryProj());
+	}
+
+	@Override
+	public Entry<K, V> ceilEntry(K find) {
+		return ceil(find, entryProj());
+	}
+
+	@Override
+	public V floor(K find) {
+		return floor(find, valProj());
+	}
+
+	@Override
+	public V ceil(K find) {
+		return ceil(find, valProj());
+	}
+
+	@Override
+	public Pair<V, V> boundaries(K find) {
+		return boundaries(find, valProj());
+	}
+
+	@Override
+	public Pair<Entry<K, V>, Entry<K, V>> boundaryEntries(K find) {
+		return boundaries(find, entryProj());
+	}
+	
+	private <R> R greater(K find, Function<? super N, ? extends R> ret) {
+		if (restrict == null)
+			return store.greater(find, keyProj(), keyCmp, unique, ret);
+		return store.greater(find, keyProj(), keyCmp, unique, nodeProj(), entryCmp, false, restrict, ret);
+	}
+	
+	private <R> R lesser(K find, Function<? super N, ? extends R> ret) {
+		if (restrict == null)
+			return store.lesser(find, keyProj(), keyCmp, unique, ret);
+		return store.lesser(find, keyProj(), keyCmp, unique, nodeProj(), entryCmp, false, restrict, ret);
+	}
+	
+	private <R> R floor(K find, Function<? super N, ? extends R> ret) {
+		if (restrict == null)
+			return store.floor(find, keyProj(), keyCmp, unique, ret);
+		return store.floor(find, keyProj(), keyCmp, unique, nodeProj(), entryCmp, false, restrict, ret);
+	}
+	
+	private <R> R ceil(K find, Function<? super N, ? extends R> ret) {
+		if (restrict == null)
+			return store.ceil(find, keyProj(), keyCmp, unique, ret);
+		return store.ceil(find, keyProj(), keyCmp, unique, nodeProj(), entryCmp, false, restrict, ret);
+	}
+	
+	private <R> Pair<R, R> boundaries(K find, Function<? super N, ? extends R> ret) {
+		if (restrict == null)
+			return store.<K, R, R>boundaries(find, keyProj(), keyCmp, unique, ret);
+		return store.boundaries(find, keyProj(), keyCmp, unique, nodeProj(), entryCmp, false, restrict, ret);
+	}
+	
+	@Override
+	public int rank(K key) {
+		if (restrict == null)
+			return store.rank(key, keyProj(), keyCmp);
+		return store.count(and(keyFilter(Filters.<K>isLess(key))), nodeProj(), entryCmp, false);
+	}
+	
+	@Override
+	public V select(int index) {
+		return select(index, valProj());
+	}
+	
+	@Override
+	public Entry<K, V> selectEntry(int index) {
+		return select(index, entryProj());
+	}
+	
+	private <R> R select(int index, Function<? super N, ? extends R> ret) {
+		if (restrict == null)
+			return store.select(index, ret);
+		// positions in the store are not positions in a restricted view, so we must visit the view's entries
+		if (index < 0)
+			return null;
+		final Iterator<R> iter = Iters.drop(store.all(true, restrict, nodeProj(), entryCmp, false, ret), index);
+		return iter.hasNext() ? iter.next() : null;
+	}
+	
+	// *************************************
+	// MODIFICATION METHODS
+	// *************************************
+	
+	@Override
+	public int remove(K key) {
+		final FilterPartialOrder<N> select = selector(key);
+		if (select == null)
+			return store.remove(key, keyProj(), keyCmp, unique);
+		return store.remove(select, nodeProj(), entryCmp, false);
+	}
+
+	@Override
+	public int remove(K key, V val) {
+		return store.remove(selector(key, val), nodeProj(), entryCmp, false);
+	}
+
+	@Override
+	public Iterable<Entry<K, V>> removeAndReturn(K key) {
+		final FilterPartialOrder<N> select = selector(key);
+		if (select == null)
+			return store.removeAndReturn(key, keyProj(), keyCmp, unique, entryProj());
+		return Iters.toList(store.removeAndReturn(select, nodeProj(), entryCmp, false).iterator(true, entryProj()));
+	}
+
+	@Override
+	public Iterable<Entry<K, V>> removeAndReturn(K key, V val) {
+		return Iters.toList(store.removeAndReturn(selector(key, val), nodeProj(), entryCmp, false).iterator(true, entryProj()));
+	}
+
+	@Override
+	public V removeAndReturnFirst(K key) {
+		final FilterPartialOrder<N> select = selector(key);
+		if (select == null)
+			return store.removeAndReturnFirst(key, keyProj(), keyCmp, unique, valProj());
+		return store.removeAndReturnFirst(select, nodeProj(), entryCmp, false, valProj());
+	}
+	
+	@Override
+	public int remove(FilterPartialOrder<K> filter) {
+		return store.remove(and(keyFilter(filter)), nodeProj(), entryCmp, false);
+	}
+
+	@Override
+	public Entry<K, V> removeAndReturnFirst(FilterPartialOrder<K> filter) {
+		return store.removeAndReturnFirst(and(keyFilter(filter)), nodeProj(), entryCmp, false, entryProj());
+	}
+	
+	@Override
+	public int clear() {
+		return restrict == null ? store.clear() : store.remove(restrict, nodeProj(), entryCmp, false);
+	}
+
+	@Override
+	public Iterator<Entry<K, V>> clearAndReturn() {
+		if (restrict == null)
+			return store.clearAndReturn(entryProj());
+		return store.removeAndReturn(restrict, nodeProj(), entryCmp, false).iterator(true, entryProj());
+	}
+
+	@Override
+	public AnyMap<V, K> inverse() {
+		throw new UnsupportedOperationException();
+	}
+	
+	// *************************************
+	// VIEWS AND COPIES
+	// *************************************
+	
+	@Override
+	public AbstractOrderedMap<K, V, N, S> filterByKey(FilterPartialOrder<K> filter) {
+		return create(store, and(keyFilter(filter)));
+	}
+
+	@Override
+	public AbstractOrderedMap<K, V, N, S> filterByEntry(FilterPartialOrder<Entry<K, V>> filter) {
+		return create(store, and(entryFilter(filter)));
+	}
+
+	@Override
+	public AbstractOrderedMap<K, V, N, S> filterCopyByKey(FilterPartialOrder<K> filter) {
+		return create(store.copy(and(keyFilter(filter)), nodeProj(), entryCmp, false), null);
+	}
+
+	@Override
+	public AbstractOrderedMap<K, V, N, S> filterCopyByEntry(FilterPartialOrder<Entry<K, V>> filter) {
+		return create(store.copy(and(entryFilter(filter)), nodeProj(), entryCmp, false), null);
+	}
+
+	@Override
+	public AbstractOrderedMap<K, V, N, S> copy() {
+		return create(store.copy(visible(), nodeProj(), entryCmp, false), null);
+	}
+	
+	@Override
+	public AbstractOrderedMap<K, V, N, S> removeAndReturn(FilterPartialOrder<K> filter) {
+		return create(store.removeAndReturn(and(keyFilter(filter)), nodeProj(), entryCmp, false), null);
+	}
+	
+	@Override
+	public AbstractOrderedMap<K, V, N, S> removeByEntryAndReturn(FilterPartialOrder<Entry<K, V>> filter) {
+		return create(store.removeAndReturn(and(entryFilter(filter)), nodeProj(), entryCmp, false), null);
+	}
+	
+	public String toString() {
+		return "{" + Iters.toString(entries(), ", ") + "}";
+	}
+	
+	// *************************************
+	// SET VIEWS
+	// *************************************
+	
+	/**
+	 * The base class for the entry sets of ordered maps; entries are located by both key and value, but as 
+	 * with the map itself ordered by key alone. Entries cannot be inserted via this set.
+	 */
+	protected abstract class AbstractEntrySet extends AbstractOrderedSet<Entry<K, V>, N, S> {
+		
+		private static final long serialVersionUID = -2474693718301728475L;
+
+		protected AbstractEntrySet() {
+			super(AbstractOrderedMap.this.store, Functions.<Entry<K, V>>identity(), AbstractOrderedMap.this.entryCmp, AbstractOrderedMap.this.entryCmp, AbstractOrderedMap.this.unique, AbstractOrderedMap.this.restrict, null);
+		}
+		
+		@Override
+		protected FilterPartialOrder<N> selector(Entry<K, V> entry) {
+			return AbstractOrderedMap.this.selector(entry.getKey(), entry.getValue());
+		}
+		
+		@Override
+		public Equality<? super Entry<K, V>> equality() {
+			return new EntryEquality<K, V>(keyCmp, valEq);
+		}
+		
+		@Override
+		public Iterable<Entry<K, V>> unique(final boolean asc) {
+			if (AbstractOrderedMap.this.unique)
+				return all(asc);
+			// entries with equal keys are not necessarily equal, so we cannot simply skip runs of equal keys
+			return new AbstractIterable<Entry<K, V>>() {
+				@Override
+				public Iterator<Entry<K, V>> iterator() {
+					return Filters.apply(Filters.unique(equality()), all(asc).iterator());
+				}
+			};
+		}
+		
+		@Override
+		public boolean add(Entry<K, V> entry) {
+			throw new UnsupportedOperationException();
+		}
+		
+	}
+	
+	/**
+	 * The base class for the set of values associated with a given key 
+	 */
+	protected abstract class AbstractKeyValueSet extends AbstractSet<V> implements AnySet<V> {
+		
+		private static final long serialVersionUID = -3025706264498287931L;
+		
+		protected final K key;
+		
+		protected AbstractKeyValueSet(K key) {
+			this.key = key;
+		}
+		
+		@Override
+		public Equality<? super V> equality() {
+			return valEq;
+		}
+		
+		@Override
+		public boolean contains(V val) {
+			return AbstractOrderedMap.this.contains(key, val);
+		}
+		
+		@Override
+		public int count(V val) {
+			return AbstractOrderedMap.this.count(key, val);
+		}
+		
+		@Override
+		public V first(V val) {
+			return store.first(selector(key, val), nodeProj(), entryCmp, false, valProj());
+		}
+		
+		@Override
+		public Iterable<V> all(final V val) {
+			return new AbstractIterable<V>() {
+				@Override
+				public Iterator<V> iterator() {
+					return store.all(true, selector(key, val), nodeProj(), entryCmp, false, valProj());
+				}
+			};
+		}
+		
+		@Override
+		public List<V> list(V val) {
+			return Iters.toList(all(val));
+		}
+		
+		@Override
+		public Iterator<V> iterator() {
+			return values(key, true).iterator();
+		}
+		
+		@Override
+		public int totalCount() {
+			return AbstractOrderedMap.this.count(key);
+		}
+		
+		@Override
+		public int uniqueCount() {
+			if (!permitsDuplicates())
+				return totalCount();
+			return Iters.count(Filters.apply(Filters.unique(valEq), iterator()));
+		}
+		
+		@Override
+		public boolean isEmpty() {
+			return !AbstractOrderedMap.this.contains(key);
+		}
+		
+		@Override
+		public Boolean apply(V val) {
+			return contains(val);
+		}
+		
+		@Override
+		public int remove(V val) {
+			return AbstractOrderedMap.this.remove(key, val);
+		}
+		
+		@Override
+		public int remove(V val, int atMost) {
+			int c = 0;
+			while (c < atMost && removeAndReturnFirst(val) != null)
+				c++;
+			return c;
+		}
+		
+		@Override
+		public Iterable<V> removeAndReturn(V val) {
+			return Iters.toList(store.removeAndReturn(selector(key, val), nodeProj(), entryCmp, false).iterator(true, valProj()));
+		}
+		
+		@Override
+		public Iterable<V> removeAndReturn(V val, int atMost) {
+			final List<V> r = new ArrayList<V>();
+			while (r.size() < atMost && contains(val))
+				r.add(removeAndReturnFirst(val));
+			return r;
+		}
+		
+		@Override
+		public V removeAndReturnFirst(V val) {
+			return store.removeAndReturnFirst(selector(key, val), nodeProj(), entryCmp, false, valProj());
+		}
+		
+		@Override
+		public V removeAndReturnFirst(V val, int atMost) {
+			if (atMost < 1)
+				return null;
+			final V r = removeAndReturnFirst(val);
+			remove(val, atMost - 1);
+			return r;
+		}
+		
+		@Override
+		public int putAll(Iterable<V> vals) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public int clear() {
+			return AbstractOrderedMap.this.remove(key);
+		}
+		
+		@Override
+		public Iterator<V> clearAndReturn() {
+			return new MappedIterable<Entry<K, V>, V>(AbstractOrderedMap.this.removeAndReturn(key), valProj()).iterator();
+		}
+		
+		@Override
+		public String toString() {
+			return "{" + Iters.toString(this, ", ") + "}";
+		}
+		
+	}
+	
+	// *************************************
+	// COMPARATORS AND FILTERS
+	// *************************************
+	
+	/**
+	 * Orders entries by their keys alone
+	 */
+	public static final class KeyComparator<K, V> implements Comparator<Entry<K, V>>, Serializable {
+		private static final long serialVersionUID = 2993542618564281957L;
+		private final Comparator<? super K> keyCmp;
+		public KeyComparator(Comparator<? super K> keyCmp) {
+			this.keyCmp = keyCmp;
+		}
+		@Override
+		public int compare(Entry<K, V> a, Entry<K, V> b) {
+			return keyCmp.compare(a.getKey(), b.getKey());
+		}
+	}
+	
+	/**
+	 * Equates entries whose keys compare equal and whose values are equal
+	 */
+	protected static final class EntryEquality<K, V> implements Equality<Entry<K, V>> {
+		private static final long serialVersionUID = -7093870651862052342L;
+		private final Comparator<? super K> keyCmp;
+		private final Equality<? super V> valEq;
+		public EntryEquality(Comparator<? super K> keyCmp, Equality<? super V> valEq) {
+			this.keyCmp = keyCmp;
+			this.valEq = valEq;
+		}
+		@Override
+		public boolean equates(Entry<K, V> a, Entry<K, V> b) {
+			return keyCmp.compare(a.getKey(), b.getKey()) == 0 && valEq.equates(a.getValue(), b.getValue());
+		}
+		@Override
+		public int hash(Entry<K, V> o) {
+			return valEq.hash(o.getValue());
+		}
+		@Override
+		public boolean equals(Object that) {
+			return that instanceof EntryEquality 
+				&& ((EntryEquality<?, ?>) that).keyCmp.equals(keyCmp) 
+				&& ((EntryEquality<?, ?>) that).valEq.equals(valEq);
+		}
+		@Override
+		public int hashCode() {
+			return keyCmp.hashCode() ^ valEq.hashCode();
+		}
+	}
+	
+	/**
+	 * Accepts those entries with the given key and value; may accept any range containing the key
+	 */
+	private static final class KeyValueFilter<K, V, N extends Entry<K, V>> implements FilterPartialOrder<N> {
+		private static final long serialVersionUID = 4127335693106716402L;
+		private final K key;
+		private final V val;
+		private final Comparator<? super K> keyCmp;
+		private final Equality<? super V> valEq;
+		private KeyValueFilter(K key, V val, Comparator<? super K> keyCmp, Equality<? super V> valEq) {
+			this.key = key;
+			this.val = val;
+			this.keyCmp = keyCmp;
+			this.valEq = valEq;
+		}
+		@Override
+		public boolean accept(N test, Comparator<? super N> cmp) {
+			return keyCmp.compare(test.getKey(), key) == 0 && valEq.equates(val, test.getValue());
+		}
+		@Override
+		public boolean mayAcceptBetween(N lb, boolean lbInclusive, N ub, boolean ubInclusive, Comparator<? super N> cmp) {
+			return (lb == null || keyCmp.compare(lb.getKey(), key) <= 0) && (ub == null || keyCmp.compare(key, ub.getKey()) <= 0);
+		}
+		@Override
+		public boolean mayRejectBetween(N lb, boolean lbInclusive, N ub, boolean ubInclusive, Comparator<? super N> cmp) {
+			return true;
+		}
+	}
+	
+	// *************************************
+	// NODE FACTORIES
+	// *************************************
+	
+	@SuppressWarnings("rawtypes")
+	private static final ImmutableEntryFactory IMMUTABLE_ENTRY_FACTORY = new ImmutableEntryFactory();
+	
+	/**
+	 * Returns a factory producing <code>ImmutableMapEntry</code> nodes
+	 */
+	@SuppressWarnings("unchecked")
+	public static <K, V> OrderedMapNodeFactory<K, V, Entry<K, V>> immutableEntryFactory() {
+		return IMMUTABLE_ENTRY_FACTORY;
+	}
+	
+	private static final class ImmutableEntryFactory<K, V> implements OrderedMapNodeFactory<K, V, Entry<K, V>> {
+		private static final long serialVersionUID = -6386264311470367532L;
+		@Override
+		public Entry<K, V> make(K key, V val) {
+			return new ImmutableMapEntry<K, V>(key, val);
+		}
+		@Override
+		public Entry<K, V> apply(Entry<K, V> entry) {
+			return make(entry.getKey(), entry.getValue());
+		}
+	}
+	
+}
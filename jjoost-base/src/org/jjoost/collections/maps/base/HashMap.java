@@ -22,11 +22,13 @@
 
 package org.jjoost.collections.maps.base;
 
+import java.util.List;
 import java.util.Map.Entry;
 
 import org.jjoost.collections.Map;
 import org.jjoost.collections.Set;
 import org.jjoost.collections.UnitarySet;
+import org.jjoost.collections.base.AbstractSerialHashStore;
 import org.jjoost.collections.base.HashNode;
 import org.jjoost.collections.base.HashNodeFactory;
 import org.jjoost.collections.base.HashStore;
@@ -34,6 +36,7 @@ import org.jjoost.collections.base.HashStore.PutAction;
 import org.jjoost.util.Equality;
 import org.jjoost.util.Factory;
 import org.jjoost.util.Function;
+import org.jjoost.util.Iters;
 import org.jjoost.util.Rehasher;
 
 public class HashMap<K, V, N extends HashNode<N> & Entry<K, V>, S extends HashStore<N, S>> extends AbstractHashMap<K, V, N, S> implements Map<K, V> {
@@ -84,6 +87,33 @@ public class HashMap<K, V, N extends HashNode<N> & Entry<K, V>, S extends HashSt
 		return store.put(PutAction.IFABSENT, key, nodeFactory.makeNode(hash(key), key, val), keyEq, valProj());
 	}
 
+	/**
+	 * Puts every entry as though by <code>put()</code>, in iteration order, returning the number of keys added; if backed
+	 * by a serial hash store the table is grown just once and populated by up to <code>parallelism</code> threads, see
+	 * <code>AbstractSerialHashStore.putAll()</code>
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public int putAll(Iterable<? extends Entry<K, V>> entries, int parallelism) {
+		if (!(store instanceof AbstractSerialHashStore)) {
+			int c = 0;
+			for (Entry<K, V> entry : entries) {
+				final K key = entry.getKey();
+				if (store.put(PutAction.PUT, key, nodeFactory.makeNode(hash(key), key, entry.getValue()), keyEq, nodeProj()) == null)
+					c++;
+			}
+			return c;
+		}
+		final List<? extends Entry<K, V>> list = entries instanceof List ? (List<? extends Entry<K, V>>) entries : Iters.toList(entries);
+		return ((AbstractSerialHashStore) store).putAll(PutAction.PUT, list, new Function<Entry<K, V>, N>() {
+			private static final long serialVersionUID = -4620436862367442712L;
+			@Override
+			public N apply(Entry<K, V> entry) {
+				final K key = entry.getKey();
+				return nodeFactory.makeNode(hash(key), key, entry.getValue());
+			}
+		}, keyProj(), keyEq, parallelism);
+	}
+
 	@Override
 	public V replace(K key, V val) {
 		N n = store.first(hash(key), key, keyEq, nodeProj());
@@ -0,0 +1,280 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.maps.base;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map.Entry;
+
+import org.jjoost.collections.AnySet;
+import org.jjoost.collections.MultiSet;
+import org.jjoost.collections.OrderedListMap;
+import org.jjoost.collections.Set;
+import org.jjoost.collections.base.OrderedStore;
+import org.jjoost.collections.sets.base.AbstractUniqueSetAdapter;
+import org.jjoost.collections.sets.base.OrderedStoreMultiSet;
+import org.jjoost.util.Equality;
+import org.jjoost.util.FilterPartialOrder;
+import org.jjoost.util.Iters;
+
+/**
+ * An <code>OrderedListMap</code> backed by a non-unique <code>OrderedStore</code>; values associated with the 
+ * same key are visited in the order they were inserted
+ * 
+ * @author b.elliottsmith
+ */
+public class OrderedStoreListMap<K, V, N extends Entry<K, V>, S extends OrderedStore<N, S>> extends AbstractOrderedMap<K, V, N, S> implements OrderedListMap<K, V> {
+
+	private static final long serialVersionUID = -1932446373498123720L;
+
+	private OrderedStoreMultiSet<K, N, S> keySet;
+	private EntrySet entrySet;
+	
+	public OrderedStoreListMap(S store, Comparator<? super K> keyCmp, Equality<? super V> valEq, 
+			OrderedMapNodeFactory<K, V, N> nodeFactory, FilterPartialOrder<N> restrict) {
+		super(store, keyCmp, valEq, nodeFactory, false, restrict);
+	}
+
+	@Override
+	protected OrderedStoreListMap<K, V, N, S> create(S store, FilterPartialOrder<N> restrict) {
+		return new OrderedStoreListMap<K, V, N, S>(store, keyCmp, valEq, nodeFactory, restrict);
+	}
+	
+	@Override
+	public V put(K key, V val) {
+		store.put(node(key, val), valProj());
+		return null;
+	}
+
+	@Override
+	public V putIfAbsent(K key, V val) {
+		final V existing = store.first(selector(key, val), nodeProj(), entryCmp, false, valProj());
+		if (existing != null)
+			return existing;
+		return put(key, val);
+	}
+
+	@Override
+	public boolean add(K key, V val) {
+		put(key, val);
+		return true;
+	}
+	
+	@Override
+	public Iterable<V> apply(K key) {
+		return values(key);
+	}
+
+	@Override
+	public int uniqueKeyCount() {
+		return keys().uniqueCount();
+	}
+
+	@Override
+	public boolean permitsDuplicateKeys() {
+		return true;
+	}
+	
+	@Override
+	public MultiSet<V> values(K key) {
+		return new KeyValueSet(key);
+	}
+
+	@Override
+	public OrderedStoreMultiSet<K, N, S> keys() {
+		if (keySet == null)
+			keySet = new OrderedStoreMultiSet<K, N, S>(store, keyProj(), keyCmp, entryCmp, restrict, null);
+		return keySet;
+	}
+
+	@Override
+	public OrderedListMapEntrySet<K, V> entries() {
+		if (entrySet == null)
+			entrySet = new EntrySet();
+		return entrySet;
+	}
+	
+	@Override
+	public OrderedStoreListMap<K, V, N, S> copy() {
+		return (OrderedStoreListMap<K, V, N, S>) super.copy();
+	}
+
+	@Override
+	public OrderedStoreListMap<K, V, N, S> filterByKey(FilterPartialOrder<K> filter) {
+		return (OrderedStoreListMap<K, V, N, S>) super.filterByKey(filter);
+	}
+
+	@Override
+	public OrderedStoreListMap<K, V, N, S> filterByEntry(FilterPartialOrder<Entry<K, V>> filter) {
+		return (OrderedStoreListMap<K, V, N, S>) super.filterByEntry(filter);
+	}
+
+	@Override
+	public OrderedStoreListMap<K, V, N, S> filterCopyByKey(FilterPartialOrder<K> filter) {
+		return (OrderedStoreListMap<K, V, N, S>) super.filterCopyByKey(filter);
+	}
+
+	@Override
+	public OrderedStoreListMap<K, V, N, S> filterCopyByEntry(FilterPartialOrder<Entry<K, V>> filter) {
+		return (OrderedStoreListMap<K, V, N, S>) super.filterCopyByEntry(filter);
+	}
+
+	@Override
+	public OrderedStoreListMap<K, V, N, S> removeAndReturn(FilterPartialOrder<K> filter) {
+		return (OrderedStoreListMap<K, V, N, S>) super.removeAndReturn(filter);
+	}
+
+	@Override
+	public OrderedStoreListMap<K, V, N, S> removeByEntryAndReturn(FilterPartialOrder<Entry<K, V>> filter) {
+		return (OrderedStoreListMap<K, V, N, S>) super.removeByEntryAndReturn(filter);
+	}
+	
+	final class KeyValueSet extends AbstractKeyValueSet implements MultiSet<V> {
+		
+		private static final long serialVersionUID = -5616302941404212151L;
+		private UniqueKeyValueSet unique;
+		
+		public KeyValueSet(K key) {
+			super(key);
+		}
+		
+		@Override
+		public boolean permitsDuplicates() {
+			return true;
+		}
+		
+		@Override
+		public boolean add(V val) {
+			return OrderedStoreListMap.this.add(key, val);
+		}
+		
+		@Override
+		public V put(V val) {
+			return OrderedStoreListMap.this.put(key, val);
+		}
+		
+		@Override
+		public void put(V val, int numberOfTimes) {
+			for (int i = 0 ; i != numberOfTimes ; i++)
+				put(val);
+		}
+		
+		@Override
+		public V putIfAbsent(V val) {
+			return OrderedStoreListMap.this.putIfAbsent(key, val);
+		}
+		
+		@Override
+		public MultiSet<V> copy() {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public Set<V> unique() {
+			if (unique == null)
+				unique = new UniqueKeyValueSet();
+			return unique;
+		}
+		
+		private final class UniqueKeyValueSet extends AbstractUniqueSetAdapter<V> {
+			private static final long serialVersionUID = 3386442513402683245L;
+			@Override
+			protected AnySet<V> set() {
+				return KeyValueSet.this;
+			}
+			@Override
+			public Iterator<V> iterator() {
+				return uniq(KeyValueSet.this.iterator());
+			}
+		}
+		
+	}
+	
+	final class EntrySet extends AbstractEntrySet implements OrderedListMapEntrySet<K, V> {
+		
+		private static final long serialVersionUID = 5731722651823913893L;
+		private UniqueEntrySet unique;
+
+		@Override
+		public void put(Entry<K, V> entry, int numberOfTimes) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public int uniqueCount() {
+			return Iters.count(unique(true));
+		}
+
+		@Override
+		public boolean permitsDuplicates() {
+			return true;
+		}
+
+		@Override
+		public Set<Entry<K, V>> unique() {
+			if (unique == null)
+				unique = new UniqueEntrySet();
+			return unique;
+		}
+
+		@Override
+		public OrderedListMapEntrySet<K, V> filter(FilterPartialOrder<Entry<K, V>> filter) {
+			return filterByEntry(filter).entries();
+		}
+
+		@Override
+		public OrderedListMapEntrySet<K, V> filterByKey(FilterPartialOrder<K> filter, boolean asc) {
+			return OrderedStoreListMap.this.filterByKey(filter).entries();
+		}
+
+		@Override
+		public OrderedListMapEntrySet<K, V> filterCopy(FilterPartialOrder<Entry<K, V>> filter) {
+			return filterCopyByEntry(filter).entries();
+		}
+
+		@Override
+		public OrderedListMapEntrySet<K, V> copy() {
+			return OrderedStoreListMap.this.copy().entries();
+		}
+
+		@Override
+		public OrderedListMapEntrySet<K, V> removeAndReturn(FilterPartialOrder<Entry<K, V>> filter) {
+			return removeByEntryAndReturn(filter).entries();
+		}
+		
+		private final class UniqueEntrySet extends AbstractUniqueSetAdapter<Entry<K, V>> {
+			private static final long serialVersionUID = -2870716406082735102L;
+			@Override
+			protected AnySet<Entry<K, V>> set() {
+				return EntrySet.this;
+			}
+			@Override
+			public Iterator<Entry<K, V>> iterator() {
+				return EntrySet.this.unique(true).iterator();
+			}
+		}
+		
+	}
+
+}
@@ -0,0 +1,324 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.maps.base;
+
+import java.util.Comparator;
+import java.util.Map.Entry;
+
+import org.jjoost.collections.OrderedScalarMap;
+import org.jjoost.collections.UnitarySet;
+import org.jjoost.collections.base.OrderedStore;
+import org.jjoost.collections.sets.base.OrderedStoreSet;
+import org.jjoost.util.Equality;
+import org.jjoost.util.Factory;
+import org.jjoost.util.FilterPartialOrder;
+import org.jjoost.util.Function;
+
+/**
+ * An <code>OrderedScalarMap</code> backed by a unique <code>OrderedStore</code> 
+ * 
+ * @author b.elliottsmith
+ */
+public class OrderedStoreMap<K, V, N extends Entry<K, V>, S extends OrderedStore<N, S>> extends AbstractOrderedMap<K, V, N, S> implements OrderedScalarMap<K, V> {
+
+	private static final long serialVersionUID = 5404478929337702128L;
+
+	private OrderedStoreSet<K, N, S> keySet;
+	private EntrySet entrySet;
+	
+	public OrderedStoreMap(S store, Comparator<? super K> keyCmp, Equality<? super V> valEq, 
+			OrderedMapNodeFactory<K, V, N> nodeFactory, FilterPartialOrder<N> restrict) {
+		super(store, keyCmp, valEq, nodeFactory, true, restrict);
+	}
+
+	@Override
+	protected OrderedStoreMap<K, V, N, S> create(S store, FilterPartialOrder<N> restrict) {
+		return new OrderedStoreMap<K, V, N, S>(store, keyCmp, valEq, nodeFactory, restrict);
+	}
+	
+	@Override
+	public V put(K key, V val) {
+		return store.put(node(key, val), valProj());
+	}
+
+	@Override
+	public V putIfAbsent(K key, V val) {
+		return store.putIfAbsent(node(key, val), valProj());
+	}
+
+	@Override
+	public boolean add(K key, V val) {
+		return store.putIfAbsent(node(key, val), valProj()) == null;
+	}
+	
+	@Override
+	public V get(K key) {
+		return first(key);
+	}
+
+	@Override
+	public V apply(K key) {
+		return first(key);
+	}
+	
+	@Override
+	public int size() {
+		return totalCount();
+	}
+
+	@Override
+	public int uniqueKeyCount() {
+		return totalCount();
+	}
+
+	@Override
+	public boolean permitsDuplicateKeys() {
+		return false;
+	}
+	
+	@Override
+	public V replace(K key, V val) {
+		if (!contains(key))
+			return null;
+		return put(key, val);
+	}
+
+	@Override
+	public boolean replace(K key, V oldValue, V newValue) {
+		if (!contains(key, oldValue))
+			return false;
+		put(key, newValue);
+		return true;
+	}
+	
+	@Override
+	public V putIfAbsent(K key, Function<? super K, ? extends V> putIfNotPresent) {
+		return store.putIfAbsent(key, keyProj(), keyCmp, factory(putIfNotPresent), valProj());
+	}
+
+	@Override
+	public V ensureAndGet(K key, Function<? super K, ? extends V> putIfNotPresent) {
+		return store.ensureAndGet(key, keyProj(), keyCmp, factory(putIfNotPresent), valProj());
+	}
+
+	@Override
+	public V ensureAndGet(K key, final Factory<? extends V> putIfNotPresent) {
+		return store.ensureAndGet(key, keyProj(), keyCmp, new Function<K, N>() {
+			private static final long serialVersionUID = -2367019716094604937L;
+			@Override
+			public N apply(K key) {
+				return node(key, putIfNotPresent.create());
+			}
+		}, valProj());
+	}
+	
+	private Function<K, N> factory(final Function<? super K, ? extends V> f) {
+		return new Function<K, N>() {
+			private static final long serialVersionUID = 8461367263127843313L;
+			@Override
+			public N apply(K key) {
+				return node(key, f.apply(key));
+			}
+		};
+	}
+	
+	@Override
+	public UnitarySet<V> values(K key) {
+		return new KeyValueSet(key);
+	}
+
+	@Override
+	public OrderedStoreSet<K, N, S> keys() {
+		if (keySet == null)
+			keySet = new OrderedStoreSet<K, N, S>(store, keyProj(), keyCmp, entryCmp, restrict, null);
+		return keySet;
+	}
+
+	@Override
+	public OrderedScalarMapEntrySet<K, V> entries() {
+		if (entrySet == null)
+			entrySet = new EntrySet();
+		return entrySet;
+	}
+	
+	@Override
+	public OrderedStoreMap<K, V, N, S> copy() {
+		return (OrderedStoreMap<K, V, N, S>) super.copy();
+	}
+
+	@Override
+	public OrderedStoreMap<K, V, N, S> filterByKey(FilterPartialOrder<K> filter) {
+		return (OrderedStoreMap<K, V, N, S>) super.filterByKey(filter);
+	}
+
+	@Override
+	public OrderedStoreMap<K, V, N, S> filterByEntry(FilterPartialOrder<Entry<K, V>> filter) {
+		return (OrderedStoreMap<K, V, N, S>) super.filterByEntry(filter);
+	}
+
+	@Override
+	public OrderedStoreMap<K, V, N, S> filterCopyByKey(FilterPartialOrder<K> filter) {
+		return (OrderedStoreMap<K, V, N, S>) super.filterCopyByKey(filter);
+	}
+
+	@Override
+	public OrderedStoreMap<K, V, N, S> filterCopyByEntry(FilterPartialOrder<Entry<K, V>> filter) {
+		return (OrderedStoreMap<K, V, N, S>) super.filterCopyByEntry(filter);
+	}
+
+	@Override
+	public OrderedStoreMap<K, V, N, S> removeAndReturn(FilterPartialOrder<K> filter) {
+		return (OrderedStoreMap<K, V, N, S>) super.removeAndReturn(filter);
+	}
+
+	@Override
+	public OrderedStoreMap<K, V, N, S> removeByEntryAndReturn(FilterPartialOrder<Entry<K, V>> filter) {
+		return (OrderedStoreMap<K, V, N, S>) super.removeByEntryAndReturn(filter);
+	}
+	
+	final class KeyValueSet extends AbstractKeyValueSet implements UnitarySet<V> {
+		
+		private static final long serialVersionUID = -6005374738429853290L;
+		
+		public KeyValueSet(K key) {
+			super(key);
+		}
+		
+		@Override
+		public V get() {
+			return OrderedStoreMap.this.first(key);
+		}
+		
+		@Override
+		public V get(V find) {
+			return first(find);
+		}
+		
+		@Override
+		public int size() {
+			return OrderedStoreMap.this.contains(key) ? 1 : 0;
+		}
+		
+		@Override
+		public boolean permitsDuplicates() {
+			return false;
+		}
+		
+		@Override
+		public UnitarySet<V> copy() {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public UnitarySet<V> unique() {
+			return this;
+		}
+		
+		@Override
+		public boolean add(V val) {
+			return putIfAbsent(val) == null;
+		}
+		
+		@Override
+		public V put(V val) {
+			final V existing = OrderedStoreMap.this.putIfAbsent(key, val);
+			if (existing != null && !valEq.equates(existing, val))
+				throw new IllegalStateException("This set can only contain one value at a time; to replace the value use replace() or putOrReplace()");
+			return existing;
+		}
+		
+		@Override
+		public V putIfAbsent(V val) {
+			return OrderedStoreMap.this.putIfAbsent(key, val);
+		}
+		
+		@Override
+		public V replace(V val) {
+			return OrderedStoreMap.this.replace(key, val);
+		}
+		
+		@Override
+		public V putOrReplace(V val) {
+			return OrderedStoreMap.this.put(key, val);
+		}
+		
+	}
+	
+	final class EntrySet extends AbstractEntrySet implements OrderedScalarMapEntrySet<K, V> {
+		
+		private static final long serialVersionUID = -3373014963700924460L;
+
+		@Override
+		public Entry<K, V> get(Entry<K, V> find) {
+			return first(find);
+		}
+
+		@Override
+		public int size() {
+			return totalCount();
+		}
+
+		@Override
+		public int uniqueCount() {
+			return totalCount();
+		}
+
+		@Override
+		public boolean permitsDuplicates() {
+			return false;
+		}
+
+		@Override
+		public EntrySet unique() {
+			return this;
+		}
+
+		@Override
+		public OrderedScalarMapEntrySet<K, V> filter(FilterPartialOrder<Entry<K, V>> filter) {
+			return filterByEntry(filter).entries();
+		}
+
+		@Override
+		public OrderedScalarMapEntrySet<K, V> filterByKey(FilterPartialOrder<K> filter, boolean asc) {
+			return OrderedStoreMap.this.filterByKey(filter).entries();
+		}
+
+		@Override
+		public OrderedScalarMapEntrySet<K, V> filterCopy(FilterPartialOrder<Entry<K, V>> filter) {
+			return filterCopyByEntry(filter).entries();
+		}
+
+		@Override
+		public OrderedScalarMapEntrySet<K, V> copy() {
+			return OrderedStoreMap.this.copy().entries();
+		}
+
+		@Override
+		public OrderedScalarMapEntrySet<K, V> removeAndReturn(FilterPartialOrder<Entry<K, V>> filter) {
+			return removeByEntryAndReturn(filter).entries();
+		}
+		
+	}
+
+}
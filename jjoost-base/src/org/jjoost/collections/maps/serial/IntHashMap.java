@@ -0,0 +1,450 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.collections.maps.serial;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+import org.jjoost.collections.AnyReadSet;
+import org.jjoost.collections.ReadMap;
+import org.jjoost.collections.ReadSet;
+import org.jjoost.collections.UnitaryReadSet;
+import org.jjoost.collections.base.IntHashTable;
+import org.jjoost.collections.maps.ImmutableMapEntry;
+import org.jjoost.collections.sets.base.AbstractReadSet;
+import org.jjoost.collections.sets.base.ImmutableEmptyUnitarySet;
+import org.jjoost.collections.sets.base.ImmutableUnitarySet;
+import org.jjoost.collections.sets.serial.SerialHashSet;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Equality;
+import org.jjoost.util.Filters;
+import org.jjoost.util.Iters;
+import org.jjoost.util.Rehasher;
+
+/**
+ * A map from primitive <code>int</code> keys to values, storing keys and values in parallel arrays; the primitive
+ * methods never box or allocate on lookup. The boxed <code>ReadMap</code> methods are provided for interoperability,
+ * and treat a <code>null</code> key as absent.
+ *
+ * @author b.elliottsmith
+ */
+public class IntHashMap<V> extends IntHashTable implements ReadMap<Integer, V> {
+
+	private static final long serialVersionUID = 4891386765580059730L;
+
+	private final Equality<? super V> valEquality;
+	private Object[] values;
+
+	public IntHashMap() {
+		this(16, 0.75f);
+	}
+	public IntHashMap(int minimumInitialCapacity, float loadFactor) {
+		this(minimumInitialCapacity, loadFactor, IntHashTable.defaultRehasher(), Equalities.object());
+	}
+	public IntHashMap(Rehasher rehasher, Equality<? super V> valEquality) {
+		this(16, 0.75f, rehasher, valEquality);
+	}
+	public IntHashMap(int minimumInitialCapacity, float loadFactor, Rehasher rehasher, Equality<? super V> valEquality) {
+		super(minimumInitialCapacity, loadFactor, rehasher);
+		this.valEquality = valEquality;
+		this.values = new Object[capacity() + 1];
+	}
+	protected IntHashMap(IntHashMap<V> copy) {
+		super(copy);
+		this.valEquality = copy.valEquality;
+		this.values = copy.values.clone();
+	}
+
+	// **************************************************
+	// PRIMITIVE METHODS
+	// **************************************************
+
+	@SuppressWarnings("unchecked")
+	public V get(int key) {
+		final int slot = slot(key);
+		return slot < 0 ? null : (V) values[slot];
+	}
+
+	@SuppressWarnings("unchecked")
+	public V put(int key, V val) {
+		final int slot = insert(key);
+		if (slot < 0) {
+			values[~slot] = val;
+			return null;
+		}
+		final V r = (V) values[slot];
+		values[slot] = val;
+		return r;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V putIfAbsent(int key, V val) {
+		final int slot = insert(key);
+		if (slot < 0) {
+			values[~slot] = val;
+			return null;
+		}
+		return (V) values[slot];
+	}
+
+	public int remove(int key) {
+		final int slot = slot(key);
+		if (slot < 0)
+			return 0;
+		removeSlot(slot);
+		return 1;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V removeAndReturnFirst(int key) {
+		final int slot = slot(key);
+		if (slot < 0)
+			return null;
+		final V r = (V) values[slot];
+		removeSlot(slot);
+		return r;
+	}
+
+	@Override
+	protected void move(int from, int to) {
+		values[to] = values[from];
+	}
+	@Override
+	protected void clearSlot(int slot) {
+		values[slot] = null;
+	}
+	@Override
+	protected void rehash(int capacity, int[] slots) {
+		final Object[] values = new Object[capacity + 1];
+		for (int i = 0 ; i != slots.length ; i++)
+			if (slots[i] >= 0)
+				values[slots[i]] = this.values[i];
+		this.values = values;
+	}
+	@Override
+	protected void cleared() {
+		Arrays.fill(values, null);
+	}
+
+	// **************************************************
+	// BOXED READ METHODS
+	// **************************************************
+
+	@Override
+	public V get(Integer key) {
+		return key == null ? null : get(key.intValue());
+	}
+	@Override
+	public V apply(Integer key) {
+		return get(key);
+	}
+	@Override
+	public V first(Integer key) {
+		return get(key);
+	}
+	@Override
+	public boolean contains(Integer key) {
+		return key != null && contains(key.intValue());
+	}
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean contains(Integer key, V val) {
+		final int slot = key == null ? -1 : slot(key.intValue());
+		return slot >= 0 && valEquality.equates(val, (V) values[slot]);
+	}
+	@Override
+	public int count(Integer key) {
+		return contains(key) ? 1 : 0;
+	}
+	@Override
+	public int count(Integer key, V val) {
+		return contains(key, val) ? 1 : 0;
+	}
+	@Override
+	public List<V> list(Integer key) {
+		final int slot = key == null ? -1 : slot(key.intValue());
+		return slot < 0 ? Collections.<V>emptyList() : Collections.singletonList(value(slot));
+	}
+	@Override
+	public Iterable<Entry<Integer, V>> entries(Integer key) {
+		final int slot = key == null ? -1 : slot(key.intValue());
+		return slot < 0 ? Collections.<Entry<Integer, V>>emptyList() : Collections.singletonList(entry(slot));
+	}
+	@Override
+	public UnitaryReadSet<V> values(Integer key) {
+		final int slot = key == null ? -1 : slot(key.intValue());
+		if (slot < 0) {
+			return new ImmutableEmptyUnitarySet<V>() {
+				private static final long serialVersionUID = 6029718241297022474L;
+				@Override
+				public int size() {
+					return 0;
+				}
+				@Override
+				public V get(V find) {
+					return null;
+				}
+				@Override
+				public UnitaryReadSet<V> copy() {
+					return this;
+				}
+				@Override
+				public Equality<? super V> equality() {
+					return valEquality;
+				}
+			};
+		}
+		final V value = value(slot);
+		return new ImmutableUnitarySet<V>() {
+			private static final long serialVersionUID = 5656737394922367923L;
+			@Override
+			protected V value() {
+				return value;
+			}
+			@Override
+			public Equality<? super V> equality() {
+				return valEquality;
+			}
+		};
+	}
+	@Override
+	public ReadSet<Integer> keys() {
+		return keySet();
+	}
+	@Override
+	public ReadSet<Entry<Integer, V>> entries() {
+		return new EntrySet();
+	}
+	@Override
+	public AnyReadSet<V> values() {
+		return new ValueSet();
+	}
+	@Override
+	public int totalCount() {
+		return size;
+	}
+	@Override
+	public int uniqueKeyCount() {
+		return size;
+	}
+	@Override
+	public boolean permitsDuplicateKeys() {
+		return false;
+	}
+	@Override
+	public IntHashMap<V> copy() {
+		return new IntHashMap<V>(this);
+	}
+	@Override
+	public String toString() {
+		return "{" + Iters.toString(entries(), ", ") + "}";
+	}
+
+	@SuppressWarnings("unchecked")
+	private V value(int slot) {
+		return (V) values[slot];
+	}
+
+	private Entry<Integer, V> entry(int slot) {
+		return new ImmutableMapEntry<Integer, V>(key(slot), value(slot));
+	}
+
+	// **************************************************
+	// VIEWS
+	// **************************************************
+
+	private abstract class SlotIterator<E> implements Iterator<E> {
+		int next = nextSlot(-1);
+		abstract E get(int slot);
+		@Override
+		public boolean hasNext() {
+			return next >= 0;
+		}
+		@Override
+		public E next() {
+			if (next < 0)
+				throw new NoSuchElementException();
+			final E r = get(next);
+			next = nextSlot(next);
+			return r;
+		}
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	private final class EntrySet extends AbstractReadSet<Entry<Integer, V>> implements ReadSet<Entry<Integer, V>> {
+		private static final long serialVersionUID = -4210510651926632891L;
+		private int slot(Entry<Integer, V> find) {
+			final int slot = find == null || find.getKey() == null ? -1 : IntHashMap.this.slot(find.getKey().intValue());
+			return slot >= 0 && valEquality.equates(find.getValue(), value(slot)) ? slot : -1;
+		}
+		@Override
+		public Iterator<Entry<Integer, V>> iterator() {
+			return new SlotIterator<Entry<Integer, V>>() {
+				@Override
+				Entry<Integer, V> get(int slot) {
+					return entry(slot);
+				}
+			};
+		}
+		@Override
+		public Entry<Integer, V> get(Entry<Integer, V> find) {
+			return first(find);
+		}
+		@Override
+		public Entry<Integer, V> first(Entry<Integer, V> find) {
+			final int slot = slot(find);
+			return slot < 0 ? null : entry(slot);
+		}
+		@Override
+		public List<Entry<Integer, V>> list(Entry<Integer, V> find) {
+			final int slot = slot(find);
+			return slot < 0 ? Collections.<Entry<Integer, V>>emptyList() : Collections.singletonList(entry(slot));
+		}
+		@Override
+		public Iterable<Entry<Integer, V>> all(Entry<Integer, V> find) {
+			return list(find);
+		}
+		@Override
+		public boolean contains(Entry<Integer, V> find) {
+			return slot(find) >= 0;
+		}
+		@Override
+		public Boolean apply(Entry<Integer, V> find) {
+			return contains(find);
+		}
+		@Override
+		public int count(Entry<Integer, V> find) {
+			return contains(find) ? 1 : 0;
+		}
+		@Override
+		public int size() {
+			return size;
+		}
+		@Override
+		public int totalCount() {
+			return size;
+		}
+		@Override
+		public int uniqueCount() {
+			return size;
+		}
+		@Override
+		public boolean isEmpty() {
+			return size == 0;
+		}
+		@Override
+		public boolean permitsDuplicates() {
+			return false;
+		}
+		@Override
+		public Equality<? super Entry<Integer, V>> equality() {
+			return Equalities.object();
+		}
+		@Override
+		public ReadSet<Entry<Integer, V>> unique() {
+			return this;
+		}
+		@Override
+		public ReadSet<Entry<Integer, V>> copy() {
+			return IntHashMap.this.copy().entries();
+		}
+	}
+
+	private final class ValueSet extends AbstractReadSet<V> implements AnyReadSet<V> {
+		private static final long serialVersionUID = -3507649212400433275L;
+		@Override
+		public Iterator<V> iterator() {
+			return new SlotIterator<V>() {
+				@Override
+				V get(int slot) {
+					return value(slot);
+				}
+			};
+		}
+		@Override
+		public V first(V find) {
+			for (V v : this)
+				if (valEquality.equates(find, v))
+					return v;
+			return null;
+		}
+		@Override
+		public List<V> list(V find) {
+			return Iters.toList(all(find));
+		}
+		@Override
+		public Iterable<V> all(V find) {
+			return Filters.apply(Filters.isEqualTo(find, valEquality), this);
+		}
+		@Override
+		public boolean contains(V find) {
+			return Iters.contains(valEquality, find, iterator());
+		}
+		@Override
+		public Boolean apply(V find) {
+			return contains(find);
+		}
+		@Override
+		public int count(V find) {
+			return Iters.count(valEquality, find, iterator());
+		}
+		@Override
+		public int totalCount() {
+			return size;
+		}
+		@Override
+		public int uniqueCount() {
+			return unique().totalCount();
+		}
+		@Override
+		public boolean isEmpty() {
+			return size == 0;
+		}
+		@Override
+		public boolean permitsDuplicates() {
+			return true;
+		}
+		@Override
+		public Equality<? super V> equality() {
+			return valEquality;
+		}
+		@Override
+		public ReadSet<V> unique() {
+			final SerialHashSet<V> unique = new SerialHashSet<V>(valEquality);
+			unique.putAll(this);
+			return unique;
+		}
+		@Override
+		public AnyReadSet<V> copy() {
+			return IntHashMap.this.copy().values();
+		}
+	}
+
+}
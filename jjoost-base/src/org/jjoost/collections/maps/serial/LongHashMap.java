@@ -0,0 +1,450 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.collections.maps.serial;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+import org.jjoost.collections.AnyReadSet;
+import org.jjoost.collections.ReadMap;
+import org.jjoost.collections.ReadSet;
+import org.jjoost.collections.UnitaryReadSet;
+import org.jjoost.collections.base.LongHashTable;
+import org.jjoost.collections.maps.ImmutableMapEntry;
+import org.jjoost.collections.sets.base.AbstractReadSet;
+import org.jjoost.collections.sets.base.ImmutableEmptyUnitarySet;
+import org.jjoost.collections.sets.base.ImmutableUnitarySet;
+import org.jjoost.collections.sets.serial.SerialHashSet;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Equality;
+import org.jjoost.util.Filters;
+import org.jjoost.util.Iters;
+import org.jjoost.util.Rehasher;
+
+/**
+ * A map from primitive <code>long</code> keys to values, storing keys and values in parallel arrays; the primitive
+ * methods never box or allocate on lookup. The boxed <code>ReadMap</code> methods are provided for interoperability,
+ * and treat a <code>null</code> key as absent.
+ *
+ * @author b.elliottsmith
+ */
+public class LongHashMap<V> extends LongHashTable implements ReadMap<Long, V> {
+
+	private static final long serialVersionUID = 8212954391367512016L;
+
+	private final Equality<? super V> valEquality;
+	private Object[] values;
+
+	public LongHashMap() {
+		this(16, 0.75f);
+	}
+	public LongHashMap(int minimumInitialCapacity, float loadFactor) {
+		this(minimumInitialCapacity, loadFactor, LongHashTable.defaultRehasher(), Equalities.object());
+	}
+	public LongHashMap(Rehasher rehasher, Equality<? super V> valEquality) {
+		this(16, 0.75f, rehasher, valEquality);
+	}
+	public LongHashMap(int minimumInitialCapacity, float loadFactor, Rehasher rehasher, Equality<? super V> valEquality) {
+		super(minimumInitialCapacity, loadFactor, rehasher);
+		this.valEquality = valEquality;
+		this.values = new Object[capacity() + 1];
+	}
+	protected LongHashMap(LongHashMap<V> copy) {
+		super(copy);
+		this.valEquality = copy.valEquality;
+		this.values = copy.values.clone();
+	}
+
+	// **************************************************
+	// PRIMITIVE METHODS
+	// **************************************************
+
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		final int slot = slot(key);
+		return slot < 0 ? null : (V) values[slot];
+	}
+
+	@SuppressWarnings("unchecked")
+	public V put(long key, V val) {
+		final int slot = insert(key);
+		if (slot < 0) {
+			values[~slot] = val;
+			return null;
+		}
+		final V r = (V) values[slot];
+		values[slot] = val;
+		return r;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V putIfAbsent(long key, V val) {
+		final int slot = insert(key);
+		if (slot < 0) {
+			values[~slot] = val;
+			return null;
+		}
+		return (V) values[slot];
+	}
+
+	public int remove(long key) {
+		final int slot = slot(key);
+		if (slot < 0)
+			return 0;
+		removeSlot(slot);
+		return 1;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V removeAndReturnFirst(long key) {
+		final int slot = slot(key);
+		if (slot < 0)
+			return null;
+		final V r = (V) values[slot];
+		removeSlot(slot);
+		return r;
+	}
+
+	@Override
+	protected void move(int from, int to) {
+		values[to] = values[from];
+	}
+	@Override
+	protected void clearSlot(int slot) {
+		values[slot] = null;
+	}
+	@Override
+	protected void rehash(int capacity, int[] slots) {
+		final Object[] values = new Object[capacity + 1];
+		for (int i = 0 ; i != slots.length ; i++)
+			if (slots[i] >= 0)
+				values[slots[i]] = this.values[i];
+		this.values = values;
+	}
+	@Override
+	protected void cleared() {
+		Arrays.fill(values, null);
+	}
+
+	// **************************************************
+	// BOXED READ METHODS
+	// **************************************************
+
+	@Override
+	public V get(Long key) {
+		return key == null ? null : get(key.longValue());
+	}
+	@Override
+	public V apply(Long key) {
+		return get(key);
+	}
+	@Override
+	public V first(Long key) {
+		return get(key);
+	}
+	@Override
+	public boolean contains(Long key) {
+		return key != null && contains(key.longValue());
+	}
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean contains(Long key, V val) {
+		final int slot = key == null ? -1 : slot(key.longValue());
+		return slot >= 0 && valEquality.equates(val, (V) values[slot]);
+	}
+	@Override
+	public int count(Long key) {
+		return contains(key) ? 1 : 0;
+	}
+	@Override
+	public int count(Long key, V val) {
+		return contains(key, val) ? 1 : 0;
+	}
+	@Override
+	public List<V> list(Long key) {
+		final int slot = key == null ? -1 : slot(key.longValue());
+		return slot < 0 ? Collections.<V>emptyList() : Collections.singletonList(value(slot));
+	}
+	@Override
+	public Iterable<Entry<Long, V>> entries(Long key) {
+		final int slot = key == null ? -1 : slot(key.longValue());
+		return slot < 0 ? Collections.<Entry<Long, V>>emptyList() : Collections.singletonList(entry(slot));
+	}
+	@Override
+	public UnitaryReadSet<V> values(Long key) {
+		final int slot = key == null ? -1 : slot(key.longValue());
+		if (slot < 0) {
+			return new ImmutableEmptyUnitarySet<V>() {
+				private static final long serialVersionUID = -2426286264066580187L;
+				@Override
+				public int size() {
+					return 0;
+				}
+				@Override
+				public V get(V find) {
+					return null;
+				}
+				@Override
+				public UnitaryReadSet<V> copy() {
+					return this;
+				}
+				@Override
+				public Equality<? super V> equality() {
+					return valEquality;
+				}
+			};
+		}
+		final V value = value(slot);
+		return new ImmutableUnitarySet<V>() {
+			private static final long serialVersionUID = 4469815473744470802L;
+			@Override
+			protected V value() {
+				return value;
+			}
+			@Override
+			public Equality<? super V> equality() {
+				return valEquality;
+			}
+		};
+	}
+	@Override
+	public ReadSet<Long> keys() {
+		return keySet();
+	}
+	@Override
+	public ReadSet<Entry<Long, V>> entries() {
+		return new EntrySet();
+	}
+	@Override
+	public AnyReadSet<V> values() {
+		return new ValueSet();
+	}
+	@Override
+	public int totalCount() {
+		return size;
+	}
+	@Override
+	public int uniqueKeyCount() {
+		return size;
+	}
+	@Override
+	public boolean permitsDuplicateKeys() {
+		return false;
+	}
+	@Override
+	public LongHashMap<V> copy() {
+		return new LongHashMap<V>(this);
+	}
+	@Override
+	public String toString() {
+		return "{" + Iters.toString(entries(), ", ") + "}";
+	}
+
+	@SuppressWarnings("unchecked")
+	private V value(int slot) {
+		return (V) values[slot];
+	}
+
+	private Entry<Long, V> entry(int slot) {
+		return new ImmutableMapEntry<Long, V>(key(slot), value(slot));
+	}
+
+	// **************************************************
+	// VIEWS
+	// **************************************************
+
+	private abstract class SlotIterator<E> implements Iterator<E> {
+		int next = nextSlot(-1);
+		abstract E get(int slot);
+		@Override
+		public boolean hasNext() {
+			return next >= 0;
+		}
+		@Override
+		public E next() {
+			if (next < 0)
+				throw new NoSuchElementException();
+			final E r = get(next);
+			next = nextSlot(next);
+			return r;
+		}
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	private final class EntrySet extends AbstractReadSet<Entry<Long, V>> implements ReadSet<Entry<Long, V>> {
+		private static final long serialVersionUID = 2722300640294405271L;
+		private int slot(Entry<Long, V> find) {
+			final int slot = find == null || find.getKey() == null ? -1 : LongHashMap.this.slot(find.getKey().longValue());
+			return slot >= 0 && valEquality.equates(find.getValue(), value(slot)) ? slot : -1;
+		}
+		@Override
+		public Iterator<Entry<Long, V>> iterator() {
+			return new SlotIterator<Entry<Long, V>>() {
+				@Override
+				Entry<Long, V> get(int slot) {
+					return entry(slot);
+				}
+			};
+		}
+		@Override
+		public Entry<Long, V> get(Entry<Long, V> find) {
+			return first(find);
+		}
+		@Override
+		public Entry<Long, V> first(Entry<Long, V> find) {
+			final int slot = slot(find);
+			return slot < 0 ? null : entry(slot);
+		}
+		@Override
+		public List<Entry<Long, V>> list(Entry<Long, V> find) {
+			final int slot = slot(find);
+			return slot < 0 ? Collections.<Entry<Long, V>>emptyList() : Collections.singletonList(entry(slot));
+		}
+		@Override
+		public Iterable<Entry<Long, V>> all(Entry<Long, V> find) {
+			return list(find);
+		}
+		@Override
+		public boolean contains(Entry<Long, V> find) {
+			return slot(find) >= 0;
+		}
+		@Override
+		public Boolean apply(Entry<Long, V> find) {
+			return contains(find);
+		}
+		@Override
+		public int count(Entry<Long, V> find) {
+			return contains(find) ? 1 : 0;
+		}
+		@Override
+		public int size() {
+			return size;
+		}
+		@Override
+		public int totalCount() {
+			return size;
+		}
+		@Override
+		public int uniqueCount() {
+			return size;
+		}
+		@Override
+		public boolean isEmpty() {
+			return size == 0;
+		}
+		@Override
+		public boolean permitsDuplicates() {
+			return false;
+		}
+		@Override
+		public Equality<? super Entry<Long, V>> equality() {
+			return Equalities.object();
+		}
+		@Override
+		public ReadSet<Entry<Long, V>> unique() {
+			return this;
+		}
+		@Override
+		public ReadSet<Entry<Long, V>> copy() {
+			return LongHashMap.this.copy().entries();
+		}
+	}
+
+	private final class ValueSet extends AbstractReadSet<V> implements AnyReadSet<V> {
+		private static final long serialVersionUID = -5113227659526770766L;
+		@Override
+		public Iterator<V> iterator() {
+			return new SlotIterator<V>() {
+				@Override
+				V get(int slot) {
+					return value(slot);
+				}
+			};
+		}
+		@Override
+		public V first(V find) {
+			for (V v : this)
+				if (valEquality.equates(find, v))
+					return v;
+			return null;
+		}
+		@Override
+		public List<V> list(V find) {
+			return Iters.toList(all(find));
+		}
+		@Override
+		public Iterable<V> all(V find) {
+			return Filters.apply(Filters.isEqualTo(find, valEquality), this);
+		}
+		@Override
+		public boolean contains(V find) {
+			return Iters.contains(valEquality, find, iterator());
+		}
+		@Override
+		public Boolean apply(V find) {
+			return contains(find);
+		}
+		@Override
+		public int count(V find) {
+			return Iters.count(valEquality, find, iterator());
+		}
+		@Override
+		public int totalCount() {
+			return size;
+		}
+		@Override
+		public int uniqueCount() {
+			return unique().totalCount();
+		}
+		@Override
+		public boolean isEmpty() {
+			return size == 0;
+		}
+		@Override
+		public boolean permitsDuplicates() {
+			return true;
+		}
+		@Override
+		public Equality<? super V> equality() {
+			return valEquality;
+		}
+		@Override
+		public ReadSet<V> unique() {
+			final SerialHashSet<V> unique = new SerialHashSet<V>(valEquality);
+			unique.putAll(this);
+			return unique;
+		}
+		@Override
+		public AnyReadSet<V> copy() {
+			return LongHashMap.this.copy().values();
+		}
+	}
+
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.collections.maps.serial;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import org.jjoost.collections.base.HashNodeCodec;
+import org.jjoost.collections.base.OffHeapHashStore;
+import org.jjoost.collections.maps.base.HashMap;
+import org.jjoost.util.Codec;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Equality;
+import org.jjoost.util.Rehasher;
+
+/**
+ * A <code>HashMap</code> whose entries are serialised off heap by an <code>OffHeapHashStore</code>, using the provided
+ * key and value codecs. Entries returned by the map are copies, so <code>setValue()</code> on them has no effect;
+ * use <code>put()</code> instead.
+ */
+public class OffHeapHashMap<K, V> extends HashMap<K, V, OpenHashMap.Node<K, V>, OffHeapHashStore<OpenHashMap.Node<K, V>>>{
+
+	private static final long serialVersionUID = 2216730146517232891L;
+
+	public OffHeapHashMap(Codec<K> keyCodec, Codec<V> valCodec) {
+		this(16, 0.75f, keyCodec, valCodec);
+	}
+	public OffHeapHashMap(int minimumInitialCapacity, float loadFactor, Codec<K> keyCodec, Codec<V> valCodec) {
+		this(minimumInitialCapacity, loadFactor, OffHeapHashStore.defaultRehasher(), Equalities.object(), Equalities.object(), keyCodec, valCodec);
+	}
+	public OffHeapHashMap( 
+			int minimumInitialCapacity, float loadFactor, 
+			Rehasher rehasher, Equality<? super K> keyEquality, Equality<? super V> valEquality,
+			Codec<K> keyCodec, Codec<V> valCodec) 
+	{
+		this(rehasher, keyEquality, valEquality, 
+			new OffHeapHashStore<OpenHashMap.Node<K, V>>(minimumInitialCapacity, loadFactor, new NodeCodec<K, V>(keyCodec, valCodec)));
+	}
+	
+	/**
+	 * Construct a map memory mapped from the provided file, restoring any entries it already contains
+	 */
+	public OffHeapHashMap( 
+			int minimumInitialCapacity, float loadFactor, int segmentSize, File file,
+			Rehasher rehasher, Equality<? super K> keyEquality, Equality<? super V> valEquality,
+			Codec<K> keyCodec, Codec<V> valCodec) 
+	{
+		this(rehasher, keyEquality, valEquality, 
+			new OffHeapHashStore<OpenHashMap.Node<K, V>>(minimumInitialCapacity, loadFactor, segmentSize, file, new NodeCodec<K, V>(keyCodec, valCodec)));
+	}
+	
+	protected OffHeapHashMap(Rehasher rehasher, Equality<? super K> keyEquality, Equality<? super V> valEquality, OffHeapHashStore<OpenHashMap.Node<K, V>> store) {
+		super(rehasher, new OpenHashMap.KeyEquality<K, V>(keyEquality), new OpenHashMap.EntryEquality<K, V>(keyEquality, valEquality),
+			OpenHashMap.<K, V>openNodeFactory(), store);
+	}
+	
+	/**
+	 * @see OffHeapHashStore#force()
+	 */
+	public void force() {
+		store.force();
+	}
+	
+	/**
+	 * @see OffHeapHashStore#close()
+	 */
+	public void close() {
+		store.close();
+	}
+	
+	public static final class NodeCodec<K, V> implements HashNodeCodec<OpenHashMap.Node<K, V>> {
+		private static final long serialVersionUID = -3524420813380581129L;
+		private final Codec<K> keyCodec;
+		private final Codec<V> valCodec;
+		public NodeCodec(Codec<K> keyCodec, Codec<V> valCodec) {
+			this.keyCodec = keyCodec;
+			this.valCodec = valCodec;
+		}
+		@Override
+		public void write(OpenHashMap.Node<K, V> node, ByteBuffer buf) {
+			keyCodec.write(node.getKey(), buf);
+			valCodec.write(node.getValue(), buf);
+		}
+		@Override
+		public OpenHashMap.Node<K, V> read(int hash, ByteBuffer buf) {
+			final K key = keyCodec.read(buf);
+			return new OpenHashMap.Node<K, V>(hash, key, valCodec.read(buf));
+		}
+	}
+	
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.collections.maps.serial;
+
+import java.util.Map.Entry;
+
+import org.jjoost.collections.base.HashNode;
+import org.jjoost.collections.base.PersistentHashStore;
+import org.jjoost.collections.maps.base.InlineMultiHashMap;
+import org.jjoost.collections.maps.base.HashMapNodeFactory;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Equality;
+import org.jjoost.util.Rehasher;
+
+/**
+ * A <code>MultiMap</code> backed by a <code>PersistentHashStore</code>. <code>copy()</code> is O(1), and the map and its copy
+ * may both be modified freely afterwards, each paying only for the parts of the trie it changes; <code>with()</code> and
+ * <code>without()</code> return a modified copy, leaving this map unchanged. Entries may not be modified in place.
+ *
+ * @author b.elliottsmith
+ */
+public class PersistentInlineMultiHashMap<K, V> extends InlineMultiHashMap<K, V, PersistentInlineMultiHashMap.Node<K, V>, PersistentHashStore<PersistentInlineMultiHashMap.Node<K, V>>>{
+
+	private static final long serialVersionUID = 5284402297731630826L;
+
+	public PersistentInlineMultiHashMap() {
+		this(PersistentHashStore.defaultRehasher(), Equalities.object(), Equalities.object());
+	}
+	public PersistentInlineMultiHashMap(Equality<? super K> keyEquality) {
+		this(PersistentHashStore.defaultRehasher(), keyEquality);
+	}	
+	public PersistentInlineMultiHashMap(Rehasher rehasher, Equality<? super K> keyEquality) { 
+		this(rehasher, keyEquality, Equalities.object());
+	}	
+	public PersistentInlineMultiHashMap(Rehasher rehasher, Equality<? super K> keyEquality, Equality<? super V> valEquality) { 
+		super(rehasher, new KeyEquality<K, V>(keyEquality), new EntryEquality<K, V>(keyEquality, valEquality),
+			PersistentInlineMultiHashMap.<K, V>factory(), 
+			new PersistentHashStore<Node<K, V>>());
+	}
+	
+	private PersistentInlineMultiHashMap(PersistentInlineMultiHashMap<K, V> copy) {
+		super(copy.rehasher, copy.keyEq, copy.nodeEq, copy.nodeFactory, copy.store.copy(null, null));
+	}
+	
+	@Override
+	public PersistentInlineMultiHashMap<K, V> copy() {
+		return new PersistentInlineMultiHashMap<K, V>(this);
+	}
+	
+	/**
+	 * @return a copy of this map that also maps <code>key</code> to <code>val</code>
+	 */
+	public PersistentInlineMultiHashMap<K, V> with(K key, V val) {
+		final PersistentInlineMultiHashMap<K, V> r = copy();
+		r.put(key, val);
+		return r;
+	}
+	
+	/**
+	 * @return a copy of this map without any of the mappings for <code>key</code>
+	 */
+	public PersistentInlineMultiHashMap<K, V> without(K key) {
+		final PersistentInlineMultiHashMap<K, V> r = copy();
+		r.remove(key);
+		return r;
+	}
+	
+	public static final class Node<K, V> extends HashNode<Node<K, V>> implements Entry<K, V> {
+		private static final long serialVersionUID = -1688215806345740962L;
+		public Node(int hash, K key, V value) {
+			super(hash);
+			this.key = key;
+			this.value = value;
+		}
+		private final K key;
+		private final V value;
+		@Override public K getKey() { return key ; }
+		@Override public V getValue() { return value ; }
+		@Override public V setValue(V value) { throw new UnsupportedOperationException() ; }
+		@Override public Node<K, V> copy() { return new Node<K, V>(hash, key, value) ; }
+		@Override public String toString() { return "{" + key + " -> " + value + "}" ; }
+	}
+	
+	@SuppressWarnings("rawtypes")
+	private static final NodeFactory FACTORY = new NodeFactory();
+	
+	@SuppressWarnings("unchecked")
+	public static <K, V> NodeFactory<K, V> factory() {
+		return FACTORY;
+	}
+	
+	public static final class NodeFactory<K, V> implements HashMapNodeFactory<K, V, Node<K, V>> {
+		private static final long serialVersionUID = 7530066418905113418L;
+		@Override
+		public final Node<K, V> makeNode(final int hash, final K key, final V value) {
+			return new Node<K, V>(hash, key, value);
+		}
+	}
+
+	public static final class KeyEquality<K, V> extends InlineMultiHashMap.KeyEquality<K, V, Node<K, V>> {
+		private static final long serialVersionUID = -2450373309517254090L;
+		public KeyEquality(Equality<? super K> keyEq) {
+			super(keyEq);
+		}
+		@Override
+		public boolean prefixMatch(K cmp, Node<K, V> n) {
+			return keyEq.equates(cmp, n.key);
+		}
+	}
+
+	public static final class EntryEquality<K, V> extends InlineMultiHashMap.NodeEquality<K, V, Node<K, V>> {
+		private static final long serialVersionUID = 4815593006277452117L;
+
+		public EntryEquality(Equality<? super K> keyEq, Equality<? super V> valEq) {
+			super(keyEq, valEq);
+		}
+		@Override
+		public boolean prefixMatch(Entry<K, V> cmp, Node<K, V> n) {
+			return keyEq.equates(cmp.getKey(), n.key);
+		}
+		@Override
+		public boolean suffixMatch(Entry<K, V> cmp, Node<K, V> n) {
+			return valEq.equates(cmp.getValue(), n.value);
+		}
+	}
+	
+}
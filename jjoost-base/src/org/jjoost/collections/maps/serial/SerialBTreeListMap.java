@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.maps.serial;
+
+import java.util.Comparator;
+import java.util.Map.Entry;
+
+import org.jjoost.collections.base.SerialBTreeStore;
+import org.jjoost.collections.maps.base.AbstractOrderedMap;
+import org.jjoost.collections.maps.base.OrderedStoreListMap;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Equality;
+import org.jjoost.util.order.NaturalOrder;
+
+/**
+ * A serial <code>OrderedListMap</code> backed by a <code>SerialBTreeStore</code>; values associated with the same key
+ * are visited in the order they were inserted
+ * 
+ * @author b.elliottsmith
+ */
+public class SerialBTreeListMap<K, V> extends OrderedStoreListMap<K, V, Entry<K, V>, SerialBTreeStore<Entry<K, V>>> {
+
+	private static final long serialVersionUID = 7268417120335910423L;
+
+	/**
+	 * Constructs a map ordered by the natural ordering of its keys, which must be <code>Comparable</code>
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public SerialBTreeListMap() {
+		this((Comparator<? super K>) NaturalOrder.get());
+	}
+	
+	public SerialBTreeListMap(Comparator<? super K> keyCmp) {
+		this(keyCmp, Equalities.object());
+	}
+	
+	public SerialBTreeListMap(Comparator<? super K> keyCmp, Equality<? super V> valEq) {
+		this(keyCmp, valEq, SerialBTreeStore.DEFAULT_LEAF_CAPACITY, SerialBTreeStore.DEFAULT_BRANCH_CAPACITY);
+	}
+	
+	public SerialBTreeListMap(Comparator<? super K> keyCmp, Equality<? super V> valEq, int leafCapacity, int branchCapacity) {
+		super(new SerialBTreeStore<Entry<K, V>>(new AbstractOrderedMap.KeyComparator<K, V>(keyCmp), false, leafCapacity, branchCapacity), 
+			keyCmp, valEq, AbstractOrderedMap.<K, V>immutableEntryFactory(), null);
+	}
+	
+}
@@ -25,12 +25,16 @@ package org.jjoost.collections.maps.wrappers;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 import org.jjoost.collections.AnyMap;
 import org.jjoost.collections.AnySet;
 import org.jjoost.collections.Map;
 import org.jjoost.collections.Set;
 import org.jjoost.collections.UnitarySet;
+import org.jjoost.util.Equality;
 import org.jjoost.util.Factory;
 import org.jjoost.util.Function;
 
@@ -39,16 +43,29 @@ public class DefaultFunctionMap<K, V> implements Map<K, V> {
 	private static final long serialVersionUID = 7778573411318310241L;
 	private final Map<K, V> delegate;
 	private final Function<? super K, ? extends V> defaultFunction;
-
-	public DefaultFunctionMap(Map<K, V> delegate,
-			Function<? super K, ? extends V> defaultFunction) {
-		super();
-		this.delegate = delegate;
-		this.defaultFunction = defaultFunction;
+	private final SingleFlight<K, V> singleFlight;
+
+	public DefaultFunctionMap(Map<K, V> delegate,
+			Function<? super K, ? extends V> defaultFunction) {
+		this(delegate, defaultFunction, null);
+	}
+
+	/**
+	 * Constructs a map whose missing values are computed with single-flight semantics: of the threads concurrently
+	 * missing a key, only one computes its value, and the others wait for it. The delegate must be thread safe.
+	 * 
+	 * @param keyEquality the key equality of the delegate, or <code>null</code> to call the delegate's
+	 *            <code>ensureAndGet()</code> directly
+	 */
+	public DefaultFunctionMap(Map<K, V> delegate,
+			Function<? super K, ? extends V> defaultFunction, Equality<? super K> keyEquality) {
+		this.delegate = delegate;
+		this.defaultFunction = defaultFunction;
+		this.singleFlight = keyEquality == null ? null : new SingleFlight<K, V>(keyEquality);
 	}
 
 	public V apply(K v) {
-		return delegate.ensureAndGet(v, defaultFunction);
+		return get(v);
 	}
 
 	public int clear() {
@@ -68,7 +85,7 @@ public class DefaultFunctionMap<K, V> implements Map<K, V> {
 	}
 
 	public Map<K, V> copy() {
-		return new DefaultFunctionMap<K, V>(delegate.copy(), defaultFunction);
+		return new DefaultFunctionMap<K, V>(delegate.copy(), defaultFunction, singleFlight == null ? null : singleFlight.keyEquality());
 	}
 
 	public int count(K key, V val) {
@@ -80,12 +97,40 @@ public class DefaultFunctionMap<K, V> implements Map<K, V> {
 	}
 
 	public V ensureAndGet(K key, Factory<? extends V> putIfNotPresent) {
-		return delegate.ensureAndGet(key, putIfNotPresent);
+		if (singleFlight == null)
+			return delegate.ensureAndGet(key, putIfNotPresent);
+		return singleFlight.ensureAndGet(delegate, key, SingleFlight.<K, V>function(putIfNotPresent));
 	}
 
 	public V ensureAndGet(K key,
 			Function<? super K, ? extends V> putIfNotPresent) {
-		return delegate.ensureAndGet(key, putIfNotPresent);
+		if (singleFlight == null)
+			return delegate.ensureAndGet(key, putIfNotPresent);
+		return singleFlight.ensureAndGet(delegate, key, putIfNotPresent);
+	}
+
+	/**
+	 * Returns a future of the value of the key, computing any missing value in the common <code>ForkJoinPool</code>
+	 */
+	public CompletableFuture<V> getAsync(K key) {
+		return getAsync(key, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Returns a future of the value of the key, computing any missing value with the provided executor; concurrent
+	 * requests for the same missing key share a single computation. Without single-flight semantics the map is not
+	 * assumed to be thread safe, so the value is instead computed by the calling thread.
+	 */
+	public CompletableFuture<V> getAsync(K key, Executor executor) {
+		if (singleFlight != null)
+			return singleFlight.ensureAndGetAsync(delegate, key, defaultFunction, executor);
+		final CompletableFuture<V> r = new CompletableFuture<V>();
+		try {
+			r.complete(get(key));
+		} catch (RuntimeException e) {
+			r.completeExceptionally(e);
+		}
+		return r;
 	}
 
 	public Set<Entry<K, V>> entries() {
@@ -97,7 +142,9 @@ public class DefaultFunctionMap<K, V> implements Map<K, V> {
 	}
 
 	public V get(K key) {
-		return delegate.ensureAndGet(key, defaultFunction);
+		if (singleFlight == null)
+			return delegate.ensureAndGet(key, defaultFunction);
+		return singleFlight.ensureAndGet(delegate, key, defaultFunction);
 	}
 
 	public AnyMap<V, K> inverse() {
@@ -178,7 +225,7 @@ public class DefaultFunctionMap<K, V> implements Map<K, V> {
 
 	@Override
 	public V first(K key) {
-		return delegate.ensureAndGet(key, defaultFunction);
+		return get(key);
 	}
 
 	@Override
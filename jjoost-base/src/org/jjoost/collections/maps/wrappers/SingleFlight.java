@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.maps.wrappers;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import org.jjoost.collections.Map;
+import org.jjoost.collections.maps.concurrent.LockFreeHashMap;
+import org.jjoost.util.Equality;
+import org.jjoost.util.Factory;
+import org.jjoost.util.Function;
+
+/**
+ * Ensures that, of the threads concurrently missing the same key in a thread safe <code>Map</code>, only one computes
+ * the key's value; the others wait on a future that the computing thread completes once it has inserted the value. The
+ * value is computed without holding any lock on the map, and the future is discarded once complete, so that state is
+ * only retained for keys being computed. If the computation throws, every waiting thread rethrows the same exception,
+ * and the next thread to miss the key computes it afresh.
+ * 
+ * @author b.elliottsmith
+ */
+final class SingleFlight<K, V> implements Serializable {
+
+	private static final long serialVersionUID = -3301858613470392017L;
+	
+	private final Equality<? super K> keyEquality;
+	private transient Map<K, CompletableFuture<V>> flights;
+	
+	SingleFlight(Equality<? super K> keyEquality) {
+		this.keyEquality = keyEquality;
+		this.flights = new LockFreeHashMap<K, CompletableFuture<V>>(keyEquality);
+	}
+	
+	Equality<? super K> keyEquality() {
+		return keyEquality;
+	}
+	
+	V ensureAndGet(Map<K, V> map, K key, Function<? super K, ? extends V> function) {
+		final V val = map.first(key);
+		if (val != null || map.contains(key))
+			return val;
+		final CompletableFuture<V> flight = new CompletableFuture<V>();
+		final CompletableFuture<V> existing = flights.putIfAbsent(key, flight);
+		if (existing != null)
+			return join(existing);
+		return compute(map, key, function, flight);
+	}
+	
+	/**
+	 * As <code>ensureAndGet()</code>, except that the value is computed by the provided executor, and the caller
+	 * never waits; if the executor rejects the computation, the returned future completes with the rejection
+	 */
+	CompletableFuture<V> ensureAndGetAsync(final Map<K, V> map, final K key, final Function<? super K, ? extends V> function, Executor executor) {
+		final V val = map.first(key);
+		if (val != null || map.contains(key))
+			return CompletableFuture.completedFuture(val);
+		final CompletableFuture<V> flight = new CompletableFuture<V>();
+		final CompletableFuture<V> existing = flights.putIfAbsent(key, flight);
+		if (existing != null)
+			return dependent(existing);
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						compute(map, key, function, flight);
+					} catch (RuntimeException e) {
+						// reported through the future
+					} catch (Error e) {
+						// reported through the future
+					}
+				}
+			});
+		} catch (RuntimeException e) {
+			flights.remove(key, flight);
+			flight.completeExceptionally(e);
+		}
+		return dependent(flight);
+	}
+	
+	// the value may have been inserted by a flight that completed between our miss and our own flight starting
+	private V compute(Map<K, V> map, K key, Function<? super K, ? extends V> function, CompletableFuture<V> flight) {
+		try {
+			V val = map.first(key);
+			if (val == null && !map.contains(key)) {
+				val = function.apply(key);
+				final V existing = map.putIfAbsent(key, val);
+				if (existing != null)
+					val = existing;
+			}
+			flight.complete(val);
+			return val;
+		} catch (RuntimeException e) {
+			flight.completeExceptionally(e);
+			throw e;
+		} catch (Error e) {
+			flight.completeExceptionally(e);
+			throw e;
+		} finally {
+			flights.remove(key, flight);
+		}
+	}
+	
+	private static <V> V join(CompletableFuture<V> flight) {
+		try {
+			return flight.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			if (e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw e;
+		}
+	}
+	
+	// callers are given a dependent future, so that none may complete the future shared by the flight's other callers
+	private static <V> CompletableFuture<V> dependent(CompletableFuture<V> flight) {
+		return flight.thenApply(java.util.function.Function.<V>identity());
+	}
+	
+	static <K, V> Function<K, V> function(final Factory<? extends V> factory) {
+		return new Function<K, V>() {
+			private static final long serialVersionUID = 4169713862431906316L;
+			@Override
+			public V apply(K key) {
+				return factory.create();
+			}
+		};
+	}
+	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		flights = new LockFreeHashMap<K, CompletableFuture<V>>(keyEquality);
+	}
+	
+}
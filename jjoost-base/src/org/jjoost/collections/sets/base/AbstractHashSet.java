@@ -24,6 +24,7 @@ package org.jjoost.collections.sets.base;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
 
 import org.jjoost.collections.AnySet;
 import org.jjoost.collections.base.HashNode;
@@ -31,19 +32,24 @@ import org.jjoost.collections.base.HashNodeEquality;
 import org.jjoost.collections.base.HashNodeFactory;
 import org.jjoost.collections.base.HashStore;
 import org.jjoost.collections.base.HashStore.PutAction;
-//import org.jjoost.collections.base.LockFreeHashStore.LockFreeHashNode;
+import org.jjoost.collections.base.HashStoreStatistics;
+import org.jjoost.collections.base.Instrumented;
+import org.jjoost.collections.base.LockFreeHashStore.LockFreeHashNode;
 //import org.jjoost.collections.base.LockFreeLinkedHashStore.LockFreeLinkedHashNode;
+import org.jjoost.collections.base.AbstractSerialHashStore;
 import org.jjoost.collections.base.AbstractSerialHashStore.SerialHashNode;
 import org.jjoost.collections.base.SerialLinkedHashStore.SerialLinkedHashNode;
 import org.jjoost.util.Equality;
 import org.jjoost.util.Function;
 import org.jjoost.util.Functions;
+import org.jjoost.util.Iters;
 import org.jjoost.util.Objects;
 import org.jjoost.util.Rehasher;
+import org.jjoost.util.Visitor;
 import org.jjoost.util.tuples.Value;
 
 @SuppressWarnings("deprecation")
-public abstract class AbstractHashSet<V, N extends HashNode<N> & Value<V>, S extends HashStore<N, S>> extends AbstractSet<V> implements AnySet<V> {
+public abstract class AbstractHashSet<V, N extends HashNode<N> & Value<V>, S extends HashStore<N, S>> extends AbstractSet<V> implements AnySet<V>, Instrumented {
 
 	private static final long serialVersionUID = 3187373892419456381L;
 	
@@ -63,6 +69,22 @@ public abstract class AbstractHashSet<V, N extends HashNode<N> & Value<V>, S ext
 		return store.capacity();
 	}
 	
+	@Override
+	public void recordStatistics(boolean record) {
+		store.recordStatistics(record);
+	}
+	@Override
+	public HashStoreStatistics statistics() {
+		return store.statistics();
+	}
+	
+	/**
+	 * See {@link AbstractSerialHashStore#incrementalResize(boolean)}
+	 */
+	public void incrementalResize(boolean incremental) {
+		HashStore.Helper.incrementalResize(store, incremental);
+	}
+	
 	protected final int hash(V key) {
 		return rehasher.rehash(valEq.valEq.hash(key));
 	}
@@ -112,6 +134,24 @@ public abstract class AbstractHashSet<V, N extends HashNode<N> & Value<V>, S ext
 		}
 		return c;
 	}
+	
+	/**
+	 * Equivalent to <code>putAll(vals)</code>, except that if backed by a serial hash store the table is grown just once
+	 * and populated by up to <code>parallelism</code> threads; see <code>AbstractSerialHashStore.putAll()</code>
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public int putAll(Iterable<V> vals, int parallelism) {
+		if (!(store instanceof AbstractSerialHashStore))
+			return putAll(vals);
+		final List<V> list = vals instanceof List ? (List<V>) vals : Iters.toList(vals);
+		return ((AbstractSerialHashStore) store).putAll(PutAction.PUT, list, new Function<V, N>() {
+			private static final long serialVersionUID = 2791716355702735290L;
+			@Override
+			public N apply(V val) {
+				return nodeFactory.makeNode(hash(val), val);
+			}
+		}, valProj(), valEq, parallelism);
+	}
 
 	@Override
 	public V removeAndReturnFirst(V value) {
@@ -167,6 +207,16 @@ public abstract class AbstractHashSet<V, N extends HashNode<N> & Value<V>, S ext
 	public Iterator<V> iterator() {
 		return store.all(valProj(), valEq, valProj());
 	}
+
+	@Override
+	public Spliterator<V> spliterator() {
+		return store.spliterator(valProj(), permitsDuplicates() ? 0 : Spliterator.DISTINCT);
+	}
+
+	@Override
+	public boolean visit(int partition, int partitions, Visitor<? super V> visitor) {
+		return store.visit(partition, partitions, valProj(), visitor);
+	}
 
 	@Override
 	public Boolean apply(V v) {
@@ -231,6 +281,31 @@ public abstract class AbstractHashSet<V, N extends HashNode<N> & Value<V>, S ext
 		}
 	}
 	
+	public static final class OpenHashSetNode<V> extends HashNode<OpenHashSetNode<V>> implements Value<V> {
+		private static final long serialVersionUID = 4227304850542217553L;
+		public OpenHashSetNode(int hash, V value) {
+			super(hash);
+			this.value = value;
+		}
+		private V value;
+		@Override public V getValue() { return value ; }
+		@Override public OpenHashSetNode<V> copy() { return new OpenHashSetNode<V>(hash, value) ; }
+		@Override public String toString() { return Objects.toString(value) ; }
+	}
+	
+	private static final OpenHashSetNodeFactory<?> OPEN_FACTORY = new OpenHashSetNodeFactory<Object>();
+	@SuppressWarnings("unchecked")
+	public static <V> OpenHashSetNodeFactory<V> openNodeFactory() {
+		return (OpenHashSetNodeFactory<V>) OPEN_FACTORY;
+	}
+	public static final class OpenHashSetNodeFactory<V> implements HashNodeFactory<V, OpenHashSetNode<V>> {
+		private static final long serialVersionUID = -1930402911318447512L;
+		@Override
+		public final OpenHashSetNode<V> makeNode(final int hash, final V value) {
+			return new OpenHashSetNode<V>(hash, value);
+		}
+	}
+	
 	public static final class SerialLinkedHashSetNode<V> extends SerialLinkedHashNode<SerialLinkedHashSetNode<V>> implements Value<V> {
 		private static final long serialVersionUID = -5766263745864028747L;
 		public SerialLinkedHashSetNode(int hash, V value) {
@@ -257,33 +332,33 @@ public abstract class AbstractHashSet<V, N extends HashNode<N> & Value<V>, S ext
 		}
 	}
 	
-//	public static final class LockFreeHashSetNode<V> extends LockFreeHashNode<LockFreeHashSetNode<V>> implements Value<V> {
-//		private static final long serialVersionUID = -5766263745864028747L;
-//		public LockFreeHashSetNode(int hash, V value) {
-//			super(hash);
-//			this.value = value;
-//		}
-//		private V value;
-//		@Override public V getValue() { return value ; }
-//		@Override public LockFreeHashSetNode<V> copy() { return new LockFreeHashSetNode<V>(hash, value) ; }
-//		@Override public String toString() { return Objects.toString(value) ; }
-//	}
-//	
-//	@SuppressWarnings("rawtypes")
-//	private static final LockFreeHashSetNodeFactory LOCKFREE_FACTORY = new LockFreeHashSetNodeFactory();
-//	@SuppressWarnings("unchecked")
-//	public static <V> LockFreeHashSetNodeFactory<V> lockFreeNodeFactory() {
-//		return LOCKFREE_FACTORY;
-//	}
-//	public static final class LockFreeHashSetNodeFactory<V> implements HashNodeFactory<V, LockFreeHashSetNode<V>> {
-//		private static final long serialVersionUID = -1108755693852364279L;
-//
-//		@Override
-//		public final LockFreeHashSetNode<V> makeNode(final int hash, final V value) {
-//			return new LockFreeHashSetNode<V>(hash, value);
-//		}
-//	}
-//	
+	public static final class LockFreeHashSetNode<V> extends LockFreeHashNode<LockFreeHashSetNode<V>> implements Value<V> {
+		private static final long serialVersionUID = -5766263745864028747L;
+		public LockFreeHashSetNode(int hash, V value) {
+			super(hash);
+			this.value = value;
+		}
+		private V value;
+		@Override public V getValue() { return value ; }
+		@Override public LockFreeHashSetNode<V> copy() { return new LockFreeHashSetNode<V>(hash, value) ; }
+		@Override public String toString() { return Objects.toString(value) ; }
+	}
+	
+	@SuppressWarnings("rawtypes")
+	private static final LockFreeHashSetNodeFactory LOCKFREE_FACTORY = new LockFreeHashSetNodeFactory();
+	@SuppressWarnings("unchecked")
+	public static <V> LockFreeHashSetNodeFactory<V> lockFreeNodeFactory() {
+		return LOCKFREE_FACTORY;
+	}
+	public static final class LockFreeHashSetNodeFactory<V> implements HashNodeFactory<V, LockFreeHashSetNode<V>> {
+		private static final long serialVersionUID = -1108755693852364279L;
+
+		@Override
+		public final LockFreeHashSetNode<V> makeNode(final int hash, final V value) {
+			return new LockFreeHashSetNode<V>(hash, value);
+		}
+	}
+	
 //	public static final class LockFreeLinkedHashSetNode<V> extends LockFreeLinkedHashNode<LockFreeLinkedHashSetNode<V>> implements Value<V> {
 //		private static final long serialVersionUID = -5766263745864028747L;
 //		public LockFreeLinkedHashSetNode(int hash, V value) {
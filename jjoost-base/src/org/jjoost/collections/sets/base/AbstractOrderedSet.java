@@ -0,0 +1,460 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.sets.base;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import org.jjoost.collections.AnySet;
+import org.jjoost.collections.OrderedSet;
+import org.jjoost.collections.base.OrderedStore;
+import org.jjoost.collections.iters.AbstractIterable;
+import org.jjoost.collections.iters.FilteredIterator;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Equality;
+import org.jjoost.util.Filter;
+import org.jjoost.util.FilterPartialOrder;
+import org.jjoost.util.Filters;
+import org.jjoost.util.Function;
+import org.jjoost.util.Functions;
+import org.jjoost.util.Iters;
+import org.jjoost.util.filters.PartialOrderAcceptBetween;
+import org.jjoost.util.tuples.Pair;
+
+/**
+ * The base class for sets backed by an <code>OrderedStore</code>. Values are projected from the nodes of the store, and 
+ * are located and ordered using the <code>Comparator</code> the set was constructed with, so that two values are
+ * considered equal iff the comparator returns zero for them; the order of the nodes in the store must be consistent 
+ * with it. A set may be a lazy view of the nodes in a store accepted by a <code>FilterPartialOrder</code>, in which 
+ * case all operations (including modifications) are restricted to the values it accepts.
+ * 
+ * @author b.elliottsmith
+ */
+public abstract class AbstractOrderedSet<V, N, S extends OrderedStore<N, S>> extends AbstractSet<V> implements OrderedSet<V> {
+
+	private static final long serialVersionUID = 5406512093814926627L;
+
+	protected final S store;
+	protected final Function<? super N, V> proj;
+	protected final Comparator<? super V> cmp;
+	protected final Comparator<? super N> nodeCmp;
+	// true if at most one value equal to any other may be present in the store, so that lookups may stop at the first found
+	protected final boolean unique;
+	// the filter restricting the nodes visible to this set, or null if all are
+	protected final FilterPartialOrder<N> restrict;
+	// makes the node to insert for a value, or null if the set does not support insertion
+	protected final Function<? super V, N> factory;
+	
+	protected AbstractOrderedSet(S store, Function<? super N, V> proj, Comparator<? super V> cmp, Comparator<? super N> nodeCmp, 
+			boolean unique, FilterPartialOrder<N> restrict, Function<? super V, N> factory) {
+		this.store = store;
+		this.proj = proj;
+		this.cmp = cmp;
+		this.nodeCmp = nodeCmp;
+		this.unique = unique;
+		this.restrict = restrict;
+		this.factory = factory;
+	}
+	
+	protected final Function<N, N> nodeProj() {
+		return Functions.<N>identity();
+	}
+	
+	// makes the node to insert for the value, checking it is visible to this set
+	protected final N node(V v) {
+		if (factory == null)
+			throw new UnsupportedOperationException();
+		final N node = factory.apply(v);
+		if (restrict != null && !restrict.accept(node, nodeCmp))
+			throw new IllegalArgumentException(v + " is not in the range of values visible to this set");
+		return node;
+	}
+	
+	// the filter over nodes equivalent to the provided filter over values
+	protected final FilterPartialOrder<N> nodeFilter(FilterPartialOrder<V> filter) {
+		return Filters.forceComparator(filter, cmp, proj);
+	}
+	
+	// the filter selecting all nodes visible to this set
+	protected final FilterPartialOrder<N> visible() {
+		return restrict == null ? Filters.<N>acceptAll() : restrict;
+	}
+	
+	// the filter selecting all nodes visible to this set and accepted by the provided filter
+	protected final FilterPartialOrder<N> and(FilterPartialOrder<N> filter) {
+		return restrict == null ? filter : Filters.and(restrict, filter);
+	}
+	
+	/**
+	 * Returns the filter selecting the visible nodes equal to the provided value, or null if (as when there is 
+	 * no restriction) the comparator alone suffices to select them  
+	 */
+	protected FilterPartialOrder<N> selector(V v) {
+		if (restrict == null)
+			return null;
+		return and(nodeFilter(PartialOrderAcceptBetween.get(v, true, v, true)));
+	}
+	
+	// *************************************
+	// READ METHODS
+	// *************************************
+	
+	@Override
+	public boolean contains(V v) {
+		final FilterPartialOrder<N> select = selector(v);
+		if (select == null)
+			return store.contains(v, proj, cmp, unique);
+		return store.contains(select, nodeProj(), nodeCmp, false);
+	}
+
+	@Override
+	public int count(V v) {
+		final FilterPartialOrder<N> select = selector(v);
+		if (select == null)
+			return store.count(v, proj, cmp, unique);
+		return store.count(select, nodeProj(), nodeCmp, false);
+	}
+
+	@Override
+	public V first(V v) {
+		final FilterPartialOrder<N> select = selector(v);
+		if (select == null)
+			return store.first(v, proj, cmp, unique, proj);
+		return store.first(select, nodeProj(), nodeCmp, false, proj);
+	}
+
+	@Override
+	public V last(V v) {
+		final FilterPartialOrder<N> select = selector(v);
+		if (select == null)
+			return store.last(v, proj, cmp, unique, proj);
+		return store.last(select, nodeProj(), nodeCmp, false, proj);
+	}
+	
+	@Override
+	public List<V> list(V v) {
+		return Iters.toList(all(v));
+	}
+
+	@Override
+	public Iterable<V> all(V v) {
+		return all(v, true);
+	}
+
+	@Override
+	public Iterable<V> all(final V v, final boolean asc) {
+		return new AbstractIterable<V>() {
+			@Override
+			public Iterator<V> iterator() {
+				final FilterPartialOrder<N> select = selector(v);
+				if (select == null)
+					return store.all(asc, v, proj, cmp, unique, proj);
+				return store.all(asc, select, nodeProj(), nodeCmp, false, proj);
+			}
+		};
+	}
+	
+	@Override
+	public Iterable<V> all(final boolean asc) {
+		return new AbstractIterable<V>() {
+			@Override
+			public Iterator<V> iterator() {
+				if (restrict == null)
+					return store.iterator(asc, proj);
+				return store.all(asc, restrict, nodeProj(), nodeCmp, false, proj);
+			}
+		};
+	}
+	
+	@Override
+	public Iterable<V> unique(final boolean asc) {
+		if (unique)
+			return all(asc);
+		return new AbstractIterable<V>() {
+			@Override
+			public Iterator<V> iterator() {
+				return new FilteredIterator<V>(all(asc).iterator(), new AcceptDistinct<V>(cmp));
+			}
+		};
+	}
+	
+	@Override
+	public Iterator<V> iterator() {
+		return all(true).iterator();
+	}
+
+	@Override
+	public int totalCount() {
+		return restrict == null ? store.count() : store.count(restrict, nodeProj(), nodeCmp, false);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return restrict == null ? store.isEmpty() : !store.contains(restrict, nodeProj(), nodeCmp, false);
+	}
+	
+	@Override
+	public V first() {
+		return store.first(visible(), nodeProj(), nodeCmp, false, proj);
+	}
+
+	@Override
+	public V last() {
+		return store.last(visible(), nodeProj(), nodeCmp, false, proj);
+	}
+
+	@Override
+	public V first(FilterPartialOrder<V> filter) {
+		return store.first(and(nodeFilter(filter)), nodeProj(), nodeCmp, false, proj);
+	}
+
+	@Override
+	public V last(FilterPartialOrder<V> filter) {
+		return store.last(and(nodeFilter(filter)), nodeProj(), nodeCmp, false, proj);
+	}
+
+	@Override
+	public V floor(V v) {
+		if (restrict == null)
+			return store.floor(v, proj, cmp, unique, proj);
+		return store.floor(v, proj, cmp, unique, nodeProj(), nodeCmp, false, restrict, proj);
+	}
+
+	@Override
+	public V ceil(V v) {
+		if (restrict == null)
+			return store.ceil(v, proj, cmp, unique, proj);
+		return store.ceil(v, proj, cmp, unique, nodeProj(), nodeCmp, false, restrict, proj);
+	}
+
+	@Override
+	public V lesser(V v) {
+		if (restrict == null)
+			return store.lesser(v, proj, cmp, unique, proj);
+		return store.lesser(v, proj, cmp, unique, nodeProj(), nodeCmp, false, restrict, proj);
+	}
+
+	@Override
+	public V greater(V v) {
+		if (restrict == null)
+			return store.greater(v, proj, cmp, unique, proj);
+		return store.greater(v, proj, cmp, unique, nodeProj(), nodeCmp, false, restrict, proj);
+	}
+
+	@Override
+	public Pair<V, V> boundaries(V v) {
+		if (restrict == null)
+			return store.<V, V, V>boundaries(v, proj, cmp, unique, proj);
+		return store.boundaries(v, proj, cmp, unique, nodeProj(), nodeCmp, false, restrict, proj);
+	}
+
+	@Override
+	public int count(FilterPartialOrder<V> filter) {
+		return store.count(and(nodeFilter(filter)), nodeProj(), nodeCmp, false);
+	}
+	
+	@Override
+	public int rank(V v) {
+		if (restrict == null)
+			return store.rank(v, proj, cmp);
+		return count(Filters.<V>isLess(v));
+	}
+	
+	@Override
+	public V select(int index) {
+		if (restrict == null)
+			return store.select(index, proj);
+		// positions in the store are not positions in a restricted view, so we must visit the view's values
+		if (index < 0)
+			return null;
+		final Iterator<V> iter = Iters.drop(all(true).iterator(), index);
+		return iter.hasNext() ? iter.next() : null;
+	}
+	
+	@Override
+	public V percentile(double p) {
+		if (!(p >= 0 && p <= 1))
+			throw new IllegalArgumentException("percentile must be between 0 and 1, not " + p);
+		final int count = totalCount();
+		if (count == 0)
+			return null;
+		return select(Math.max(0, (int) Math.ceil(p * count) - 1));
+	}
+	
+	@Override
+	public Boolean apply(V v) {
+		return contains(v);
+	}
+	
+	/**
+	 * Returns object equality; the ordered sets themselves consider two values equal iff their comparator returns zero,
+	 * so the two should be consistent
+	 */
+	@Override
+	public Equality<? super V> equality() {
+		return Equalities.object();
+	}
+	
+	public Comparator<? super V> comparator() {
+		return cmp;
+	}
+	
+	// *************************************
+	// MODIFICATION METHODS
+	// *************************************
+	
+	@Override
+	public V put(V v) {
+		return store.put(node(v), proj);
+	}
+	
+	@Override
+	public int putAll(Iterable<V> vs) {
+		int c = 0;
+		for (V v : vs)
+			if (add(v))
+				c++;
+		return c;
+	}
+
+	@Override
+	public V putIfAbsent(V v) {
+		return store.putIfAbsent(node(v), proj);
+	}
+
+	@Override
+	public int remove(V v) {
+		final FilterPartialOrder<N> select = selector(v);
+		if (select == null)
+			return store.remove(v, proj, cmp, unique);
+		return store.remove(select, nodeProj(), nodeCmp, false);
+	}
+
+	@Override
+	public int remove(V v, int atMost) {
+		if (atMost >= count(v))
+			return remove(v);
+		int c = 0;
+		while (c < atMost && removeAndReturnFirst(v) != null)
+			c++;
+		return c;
+	}
+
+	@Override
+	public Iterable<V> removeAndReturn(V v) {
+		final FilterPartialOrder<N> select = selector(v);
+		if (select == null)
+			return store.removeAndReturn(v, proj, cmp, unique, proj);
+		return Iters.toList(store.removeAndReturn(select, nodeProj(), nodeCmp, false).iterator(true, proj));
+	}
+
+	@Override
+	public Iterable<V> removeAndReturn(V v, int atMost) {
+		final List<V> r = new ArrayList<V>();
+		while (r.size() < atMost && contains(v))
+			r.add(removeAndReturnFirst(v));
+		return r;
+	}
+
+	@Override
+	public V removeAndReturnFirst(V v) {
+		final FilterPartialOrder<N> select = selector(v);
+		if (select == null)
+			return store.removeAndReturnFirst(v, proj, cmp, unique, proj);
+		return store.removeAndReturnFirst(select, nodeProj(), nodeCmp, false, proj);
+	}
+
+	@Override
+	public V removeAndReturnFirst(V v, int atMost) {
+		if (atMost < 1)
+			return null;
+		final V r = removeAndReturnFirst(v);
+		remove(v, atMost - 1);
+		return r;
+	}
+
+	@Override
+	public int remove(FilterPartialOrder<V> filter) {
+		return store.remove(and(nodeFilter(filter)), nodeProj(), nodeCmp, false);
+	}
+
+	@Override
+	public V removeAndReturnFirst(FilterPartialOrder<V> filter) {
+		return store.removeAndReturnFirst(and(nodeFilter(filter)), nodeProj(), nodeCmp, false, proj);
+	}
+	
+	@Override
+	public int clear() {
+		return restrict == null ? store.clear() : store.remove(restrict, nodeProj(), nodeCmp, false);
+	}
+
+	@Override
+	public Iterator<V> clearAndReturn() {
+		if (restrict == null)
+			return store.clearAndReturn(proj);
+		return store.removeAndReturn(restrict, nodeProj(), nodeCmp, false).iterator(true, proj);
+	}
+	
+	@Override
+	public void retain(AnySet<? super V> retain) {
+		final Iterator<V> iter = iterator();
+		while (iter.hasNext())
+			if (!retain.contains(iter.next()))
+				iter.remove();
+	}
+	
+	// a store containing a copy of the nodes visible to this set, and accepted by the filter if it is not null
+	protected final S copyStore(FilterPartialOrder<V> filter) {
+		return store.copy(filter == null ? visible() : and(nodeFilter(filter)), nodeProj(), nodeCmp, false);
+	}
+	
+	// a store containing the nodes visible to this set accepted by the filter, which are removed from this set
+	protected final S removeStore(FilterPartialOrder<V> filter) {
+		return store.removeAndReturn(and(nodeFilter(filter)), nodeProj(), nodeCmp, false);
+	}
+	
+	/**
+	 * accepts a value only if it is not equal (by the comparator) to the value offered before it, which 
+	 * in an ordered visit filters out all but the first of each run of equal values
+	 */
+	private static final class AcceptDistinct<V> implements Filter<V> {
+		private static final long serialVersionUID = -3393713418312545095L;
+		private final Comparator<? super V> cmp;
+		private boolean first = true;
+		private V prev;
+		private AcceptDistinct(Comparator<? super V> cmp) {
+			this.cmp = cmp;
+		}
+		@Override
+		public boolean accept(V next) {
+			final boolean r = first || cmp.compare(prev, next) != 0;
+			first = false;
+			prev = next;
+			return r;
+		}
+	}
+	
+}
@@ -25,16 +25,21 @@ package org.jjoost.collections.sets.base;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 
 import org.jjoost.collections.AnySet;
 import org.jjoost.collections.MultiSet;
 import org.jjoost.collections.Set;
+import org.jjoost.collections.base.AbstractSerialHashStore;
 import org.jjoost.collections.base.HashNode;
 import org.jjoost.collections.base.HashNodeEquality;
 import org.jjoost.collections.base.HashNodeFactory;
 import org.jjoost.collections.base.HashStore;
 import org.jjoost.collections.base.HashStore.Locality;
 import org.jjoost.collections.base.HashStore.PutAction;
+import org.jjoost.collections.base.HashStoreStatistics;
+import org.jjoost.collections.base.Instrumented;
 import org.jjoost.collections.iters.EmptyIterator;
 import org.jjoost.collections.iters.UniformIterator;
 import org.jjoost.util.Counter;
@@ -47,7 +52,7 @@ import org.jjoost.util.Iters;
 import org.jjoost.util.Rehasher;
 import org.jjoost.util.tuples.Value;
 
-public class NestedMultiHashSet<V, N extends HashNode<N> & NestedMultiHashSet.INode<V, N>> extends AbstractSet<V> implements MultiSet<V> {
+public class NestedMultiHashSet<V, N extends HashNode<N> & NestedMultiHashSet.INode<V, N>> extends AbstractSet<V> implements MultiSet<V>, Instrumented {
 
 	private static final long serialVersionUID = 3187373892419456381L;
 	
@@ -78,7 +83,23 @@ public class NestedMultiHashSet<V, N extends HashNode<N> & NestedMultiHashSet.IN
 		return store.capacity();
 	}
 	
-	final int hash(V key) {
+	@Override
+	public void recordStatistics(boolean record) {
+		store.recordStatistics(record);
+	}
+	@Override
+	public HashStoreStatistics statistics() {
+		return store.statistics();
+	}
+	
+	/**
+	 * See {@link AbstractSerialHashStore#incrementalResize(boolean)}
+	 */
+	public void incrementalResize(boolean incremental) {
+		HashStore.Helper.incrementalResize(store, incremental);
+	}
+	
+	protected final int hash(V key) {
 		return rehasher.rehash(valEq.valEq.hash(key));
 	}
 	
@@ -390,6 +411,11 @@ public class NestedMultiHashSet<V, N extends HashNode<N> & NestedMultiHashSet.IN
 		final Iterator<Iterator<V>> iters = store.all(valProj(), valEq, f);
 		return Iters.concat(iters);
 	}
+
+	@Override
+	public Spliterator<V> spliterator() {
+		return new ConcatSpliterator<V>(store.spliterator(new NodeContentsIterator<V, N>(this), 0));
+	}
 
 	@Override
 	public Boolean apply(V v) {
@@ -463,5 +489,41 @@ public class NestedMultiHashSet<V, N extends HashNode<N> & NestedMultiHashSet.IN
 			return n.iterator(set);
 		}
 	}
+
+	// flattens the per node iterators produced by the store's spliterator; splits only on the store's terms
+	private static final class ConcatSpliterator<V> implements Spliterator<V>, Consumer<Iterator<V>> {
+		final Spliterator<Iterator<V>> iters;
+		Iterator<V> current;
+		public ConcatSpliterator(Spliterator<Iterator<V>> iters) {
+			this.iters = iters;
+		}
+		@Override
+		public void accept(Iterator<V> iter) {
+			current = iter;
+		}
+		@Override
+		public boolean tryAdvance(Consumer<? super V> action) {
+			while (current == null || !current.hasNext()) {
+				current = null;
+				if (!iters.tryAdvance(this))
+					return false;
+			}
+			action.accept(current.next());
+			return true;
+		}
+		@Override
+		public Spliterator<V> trySplit() {
+			final Spliterator<Iterator<V>> split = iters.trySplit();
+			return split == null ? null : new ConcatSpliterator<V>(split);
+		}
+		@Override
+		public long estimateSize() {
+			return iters.estimateSize();
+		}
+		@Override
+		public int characteristics() {
+			return 0;
+		}
+	}
 
 }
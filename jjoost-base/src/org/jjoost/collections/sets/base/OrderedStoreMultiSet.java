@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.sets.base;
+
+import java.util.Comparator;
+import java.util.Iterator;
+
+import org.jjoost.collections.AnySet;
+import org.jjoost.collections.OrderedMultiSet;
+import org.jjoost.collections.Set;
+import org.jjoost.collections.base.OrderedStore;
+import org.jjoost.util.FilterPartialOrder;
+import org.jjoost.util.Function;
+import org.jjoost.util.Iters;
+
+/**
+ * An <code>OrderedMultiSet</code> backed by a non-unique <code>OrderedStore</code>; equal values are visited in the order
+ * they were inserted
+ * 
+ * @author b.elliottsmith
+ */
+public class OrderedStoreMultiSet<V, N, S extends OrderedStore<N, S>> extends AbstractOrderedSet<V, N, S> implements OrderedMultiSet<V> {
+
+	private static final long serialVersionUID = 2806163470212874129L;
+
+	private UniqueSet unique;
+	
+	public OrderedStoreMultiSet(S store, Function<? super N, V> proj, Comparator<? super V> cmp, Comparator<? super N> nodeCmp, 
+			FilterPartialOrder<N> restrict, Function<? super V, N> factory) {
+		super(store, proj, cmp, nodeCmp, false, restrict, factory);
+	}
+	
+	@Override
+	public boolean add(V v) {
+		put(v);
+		return true;
+	}
+	
+	@Override
+	public void put(V v, int numberOfTimes) {
+		for (int i = 0 ; i < numberOfTimes ; i++)
+			store.put(node(v), proj);
+	}
+	
+	@Override
+	public int uniqueCount() {
+		return Iters.count(unique(true));
+	}
+
+	@Override
+	public boolean permitsDuplicates() {
+		return true;
+	}
+
+	@Override
+	public Set<V> unique() {
+		if (unique == null)
+			unique = new UniqueSet();
+		return unique;
+	}
+	
+	private final class UniqueSet extends AbstractUniqueSetAdapter<V> {
+		
+		private static final long serialVersionUID = -6245329409718470951L;
+
+		@Override
+		protected AnySet<V> set() {
+			return OrderedStoreMultiSet.this;
+		}
+
+		@Override
+		public Iterator<V> iterator() {
+			return wrap(OrderedStoreMultiSet.this.unique(true).iterator());
+		}
+		
+	}
+
+	@Override
+	public OrderedStoreMultiSet<V, N, S> filter(FilterPartialOrder<V> filter) {
+		return new OrderedStoreMultiSet<V, N, S>(store, proj, cmp, nodeCmp, and(nodeFilter(filter)), factory);
+	}
+
+	@Override
+	public OrderedStoreMultiSet<V, N, S> filterCopy(FilterPartialOrder<V> filter) {
+		return new OrderedStoreMultiSet<V, N, S>(copyStore(filter), proj, cmp, nodeCmp, null, factory);
+	}
+
+	@Override
+	public OrderedStoreMultiSet<V, N, S> copy() {
+		return new OrderedStoreMultiSet<V, N, S>(copyStore(null), proj, cmp, nodeCmp, null, factory);
+	}
+
+	@Override
+	public OrderedStoreMultiSet<V, N, S> removeAndReturn(FilterPartialOrder<V> filter) {
+		return new OrderedStoreMultiSet<V, N, S>(removeStore(filter), proj, cmp, nodeCmp, null, factory);
+	}
+
+}
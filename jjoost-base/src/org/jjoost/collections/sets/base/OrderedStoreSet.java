@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.sets.base;
+
+import java.util.Comparator;
+
+import org.jjoost.collections.OrderedScalarSet;
+import org.jjoost.collections.base.OrderedStore;
+import org.jjoost.util.FilterPartialOrder;
+import org.jjoost.util.Function;
+
+/**
+ * An <code>OrderedScalarSet</code> backed by a unique <code>OrderedStore</code>
+ * 
+ * @author b.elliottsmith
+ */
+public class OrderedStoreSet<V, N, S extends OrderedStore<N, S>> extends AbstractOrderedSet<V, N, S> implements OrderedScalarSet<V> {
+
+	private static final long serialVersionUID = -4430521867542087301L;
+
+	public OrderedStoreSet(S store, Function<? super N, V> proj, Comparator<? super V> cmp, Comparator<? super N> nodeCmp, 
+			FilterPartialOrder<N> restrict, Function<? super V, N> factory) {
+		super(store, proj, cmp, nodeCmp, true, restrict, factory);
+	}
+	
+	@Override
+	public boolean add(V v) {
+		return store.putIfAbsent(node(v), proj) == null;
+	}
+	
+	@Override
+	public V get(V v) {
+		return first(v);
+	}
+
+	@Override
+	public int size() {
+		return totalCount();
+	}
+
+	@Override
+	public int uniqueCount() {
+		return totalCount();
+	}
+
+	@Override
+	public boolean permitsDuplicates() {
+		return false;
+	}
+
+	@Override
+	public OrderedStoreSet<V, N, S> unique() {
+		return this;
+	}
+
+	@Override
+	public OrderedStoreSet<V, N, S> filter(FilterPartialOrder<V> filter) {
+		return new OrderedStoreSet<V, N, S>(store, proj, cmp, nodeCmp, and(nodeFilter(filter)), factory);
+	}
+
+	@Override
+	public OrderedStoreSet<V, N, S> filterCopy(FilterPartialOrder<V> filter) {
+		return new OrderedStoreSet<V, N, S>(copyStore(filter), proj, cmp, nodeCmp, null, factory);
+	}
+
+	@Override
+	public OrderedStoreSet<V, N, S> copy() {
+		return new OrderedStoreSet<V, N, S>(copyStore(null), proj, cmp, nodeCmp, null, factory);
+	}
+
+	@Override
+	public OrderedStoreSet<V, N, S> removeAndReturn(FilterPartialOrder<V> filter) {
+		return new OrderedStoreSet<V, N, S>(removeStore(filter), proj, cmp, nodeCmp, null, factory);
+	}
+
+}
@@ -0,0 +1,338 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.sets.concurrent;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.jjoost.collections.base.SerialHashStore;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Equality;
+import org.jjoost.util.Function;
+import org.jjoost.util.Rehasher;
+
+/**
+ * A thread safe interner, returning for any value the first equal value it was given. Values are partitioned by the
+ * high bits of their hash between a number of shards, each a hash table of immutable chains; a hit is found without
+ * locking or writing to shared memory, and only a miss locks the shard it inserts into.
+ * <p>
+ * Canonical values may be held by <code>WEAK</code> or <code>SOFT</code> references, so that the garbage collector
+ * may reclaim those that are no longer used elsewhere; the table entries of reclaimed values are expunged by the next
+ * miss in the same shard. With <code>STRONG</code> references the interner grows without bound.
+ * 
+ * @author b.elliottsmith
+ */
+public class ConcurrentIntern<V> implements Function<V, V> {
+
+	private static final long serialVersionUID = -4730529148626107347L;
+	
+	public static enum Strength { STRONG, SOFT, WEAK }
+	
+	private final Strength strength;
+	private final Rehasher rehasher;
+	private final Equality<? super V> equality;
+	private final int shift;
+	private transient EqualityMatch<V> match;
+	// not serialized, as the canonical instances would not be canonical in the deserializing vm
+	private transient Shard<V>[] shards;
+	
+	public ConcurrentIntern() {
+		this(Strength.STRONG);
+	}
+	public ConcurrentIntern(Strength strength) {
+		this(strength, defaultShardCount(), SerialHashStore.defaultRehasher(), Equalities.object());
+	}
+	/**
+	 * @param shardCount the number of independently locked shards, which is rounded up to a power of two
+	 */
+	public ConcurrentIntern(Strength strength, int shardCount, Rehasher rehasher, Equality<? super V> equality) {
+		if (shardCount <= 0) {
+			throw new IllegalArgumentException("shardCount must be greater than zero");
+		}
+		int bits = 0;
+		while (1 << bits < shardCount && bits != 16)
+			bits++;
+		this.strength = strength;
+		this.rehasher = rehasher;
+		this.equality = equality;
+		this.shift = 32 - bits;
+		this.match = new EqualityMatch<V>(equality);
+		this.shards = shards(strength, 1 << bits);
+	}
+	
+	private static int defaultShardCount() {
+		return 4 * Runtime.getRuntime().availableProcessors();
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static <V> Shard<V>[] shards(Strength strength, int count) {
+		final Shard<V>[] shards = (Shard<V>[]) new Shard<?>[count];
+		for (int i = 0 ; i != count ; i++)
+			shards[i] = new Shard<V>(strength);
+		return shards;
+	}
+	
+	/**
+	 * Compares a sought value, of whatever type, with the canonical values in the interner
+	 */
+	protected static interface Match<F, V> {
+		public boolean matches(F find, V canonical);
+	}
+	
+	private static final class EqualityMatch<V> implements Match<V, V> {
+		private final Equality<? super V> equality;
+		private EqualityMatch(Equality<? super V> equality) { this.equality = equality ; }
+		@Override public boolean matches(V find, V canonical) { return equality.equates(find, canonical) ; }
+	}
+	
+	@Override
+	public V apply(V v) {
+		if (v == null)
+			return null;
+		final int hash = hash(equality.hash(v));
+		final V canonical = find(hash, v, match);
+		return canonical != null ? canonical : intern(hash, v, match, v);
+	}
+	
+	/**
+	 * @return the number of canonical values held, including any reclaimed values that have yet to be expunged
+	 */
+	public int totalCount() {
+		int count = 0;
+		for (Shard<V> shard : shards) {
+			synchronized (shard) {
+				count += shard.count;
+			}
+		}
+		return count;
+	}
+	
+	public void clear() {
+		for (Shard<V> shard : shards) {
+			synchronized (shard) {
+				shard.clear();
+			}
+		}
+	}
+	
+	/**
+	 * @param hash the hash of the value being interned, as computed by this interner's <code>Equality</code>
+	 * @return the hash used by this interner, which applies its <code>Rehasher</code>
+	 */
+	protected final int hash(int hash) {
+		return rehasher.rehash(hash);
+	}
+	
+	/**
+	 * finds the canonical value matching <code>find</code>, without locking
+	 * 
+	 * @return the canonical value, or <code>null</code> if there is none
+	 */
+	protected final <F> V find(int hash, F find, Match<? super F, ? super V> match) {
+		return shard(hash).find(hash, find, match);
+	}
+	
+	/**
+	 * returns the canonical value matching <code>find</code>, making <code>insert</code> the canonical value if there is none
+	 */
+	protected final <F> V intern(int hash, F find, Match<? super F, ? super V> match, V insert) {
+		final Shard<V> shard = shard(hash);
+		synchronized (shard) {
+			final V canonical = shard.find(hash, find, match);
+			if (canonical != null)
+				return canonical;
+			shard.insert(hash, insert);
+			return insert;
+		}
+	}
+	
+	private Shard<V> shard(int hash) {
+		return shards[(int) ((hash & 0xFFFFFFFFL) >>> shift)];
+	}
+	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		match = new EqualityMatch<V>(equality);
+		shards = shards(strength, 1 << (32 - shift));
+	}
+	
+	private static interface Entry<V> {
+		public V get();
+		public int hash();
+		public Entry<V> next();
+	}
+	
+	private static final class StrongEntry<V> implements Entry<V> {
+		private final V value;
+		private final int hash;
+		private final Entry<V> next;
+		private StrongEntry(V value, int hash, Entry<V> next) {
+			this.value = value;
+			this.hash = hash;
+			this.next = next;
+		}
+		@Override public V get() { return value ; }
+		@Override public int hash() { return hash ; }
+		@Override public Entry<V> next() { return next ; }
+	}
+	
+	private static final class WeakEntry<V> extends WeakReference<V> implements Entry<V> {
+		private final int hash;
+		private final Entry<V> next;
+		private WeakEntry(V value, int hash, Entry<V> next, ReferenceQueue<V> queue) {
+			super(value, queue);
+			this.hash = hash;
+			this.next = next;
+		}
+		@Override public int hash() { return hash ; }
+		@Override public Entry<V> next() { return next ; }
+	}
+	
+	private static final class SoftEntry<V> extends SoftReference<V> implements Entry<V> {
+		private final int hash;
+		private final Entry<V> next;
+		private SoftEntry(V value, int hash, Entry<V> next, ReferenceQueue<V> queue) {
+			super(value, queue);
+			this.hash = hash;
+			this.next = next;
+		}
+		@Override public int hash() { return hash ; }
+		@Override public Entry<V> next() { return next ; }
+	}
+	
+	// chains are immutable, and are published by a volatile write to the table, so that they may be read without locking;
+	// all modifications are made whilst holding the shard's monitor 
+	private static final class Shard<V> {
+		
+		private final Strength strength;
+		private final ReferenceQueue<V> queue;
+		private volatile AtomicReferenceArray<Entry<V>> table;
+		private int count;
+		
+		private Shard(Strength strength) {
+			this.strength = strength;
+			this.queue = strength == Strength.STRONG ? null : new ReferenceQueue<V>();
+			this.table = new AtomicReferenceArray<Entry<V>>(16);
+		}
+		
+		private <F> V find(int hash, F find, Match<? super F, ? super V> match) {
+			final AtomicReferenceArray<Entry<V>> table = this.table;
+			for (Entry<V> e = table.get(hash & (table.length() - 1)) ; e != null ; e = e.next()) {
+				if (e.hash() == hash) {
+					final V v = e.get();
+					if (v != null && match.matches(find, v))
+						return v;
+				}
+			}
+			return null;
+		}
+		
+		private void insert(int hash, V v) {
+			expunge();
+			AtomicReferenceArray<Entry<V>> table = this.table;
+			if (++count > table.length() - (table.length() >> 2))
+				table = resize(table);
+			final int index = hash & (table.length() - 1);
+			table.set(index, entry(v, hash, table.get(index)));
+		}
+		
+		private Entry<V> entry(V v, int hash, Entry<V> next) {
+			switch (strength) {
+			case WEAK:
+				return new WeakEntry<V>(v, hash, next, queue);
+			case SOFT:
+				return new SoftEntry<V>(v, hash, next, queue);
+			default:
+				return new StrongEntry<V>(v, hash, next);
+			}
+		}
+		
+		// the live entries are copied to a table of twice the size, and the reclaimed ones dropped
+		private AtomicReferenceArray<Entry<V>> resize(AtomicReferenceArray<Entry<V>> table) {
+			final AtomicReferenceArray<Entry<V>> resized = new AtomicReferenceArray<Entry<V>>(table.length() << 1);
+			final int mask = resized.length() - 1;
+			for (int i = 0 ; i != table.length() ; i++) {
+				for (Entry<V> e = table.get(i) ; e != null ; e = e.next()) {
+					final V v = e.get();
+					if (v == null) {
+						count--;
+					} else {
+						final int index = e.hash() & mask;
+						resized.lazySet(index, entry(v, e.hash(), resized.get(index)));
+					}
+				}
+			}
+			this.table = resized;
+			return resized;
+		}
+		
+		private void expunge() {
+			if (queue == null)
+				return;
+			Reference<? extends V> reclaimed;
+			while ((reclaimed = queue.poll()) != null) {
+				final AtomicReferenceArray<Entry<V>> table = this.table;
+				purge(table, ((Entry<?>) reclaimed).hash() & (table.length() - 1));
+			}
+		}
+		
+		// rebuilds the chain without its reclaimed entries; the suffix following the last of them is reused as is.
+		// an entry may be enqueued after it has already been dropped by a resize, or by purging another entry, in which
+		// case its chain is either unaffected or cleared of it anyway
+		private void purge(AtomicReferenceArray<Entry<V>> table, int index) {
+			final Entry<V> head = table.get(index);
+			Entry<V> last = null;
+			for (Entry<V> e = head ; e != null ; e = e.next()) {
+				if (e.get() == null)
+					last = e;
+			}
+			if (last == null)
+				return;
+			Entry<V> chain = last.next();
+			count--;
+			for (Entry<V> e = head ; e != last ; e = e.next()) {
+				final V v = e.get();
+				if (v == null)
+					count--;
+				else
+					chain = entry(v, e.hash(), chain);
+			}
+			table.set(index, chain);
+		}
+		
+		private void clear() {
+			while (queue != null && queue.poll() != null)
+				;
+			table = new AtomicReferenceArray<Entry<V>>(16);
+			count = 0;
+		}
+		
+	}
+	
+}
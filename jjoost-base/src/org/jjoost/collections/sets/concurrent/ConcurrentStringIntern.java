@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.sets.concurrent;
+
+import org.jjoost.collections.base.SerialHashStore;
+import org.jjoost.util.Equalities;
+
+/**
+ * A <code>ConcurrentIntern</code> of strings that may also intern any <code>CharSequence</code>, or a range of one.
+ * The hash of the range is computed as <code>String.hashCode()</code> would compute it, and compared with the
+ * canonical strings character by character, so that a <code>String</code> is only allocated when the range has no
+ * canonical string yet; a parser may therefore intern tokens directly from its buffer, wrapped if necessary by a
+ * <code>CharBuffer</code>.
+ * 
+ * @author b.elliottsmith
+ */
+public class ConcurrentStringIntern extends ConcurrentIntern<String> {
+
+	private static final long serialVersionUID = 5208360436193758240L;
+
+	public ConcurrentStringIntern() {
+		this(Strength.STRONG);
+	}
+	public ConcurrentStringIntern(Strength strength) {
+		this(strength, 4 * Runtime.getRuntime().availableProcessors());
+	}
+	public ConcurrentStringIntern(Strength strength, int shardCount) {
+		super(strength, shardCount, SerialHashStore.defaultRehasher(), Equalities.object());
+	}
+	
+	private static final class Range {
+		private final CharSequence seq;
+		private final int start, length;
+		private Range(CharSequence seq, int start, int end) {
+			this.seq = seq;
+			this.start = start;
+			this.length = end - start;
+		}
+	}
+	
+	private static final Match<Range, String> RANGE_MATCH = new Match<Range, String>() {
+		@Override
+		public boolean matches(Range find, String canonical) {
+			if (canonical.length() != find.length)
+				return false;
+			final CharSequence seq = find.seq;
+			final int start = find.start;
+			for (int i = 0 ; i != find.length ; i++) {
+				if (seq.charAt(start + i) != canonical.charAt(i))
+					return false;
+			}
+			return true;
+		}
+	};
+	
+	public String intern(CharSequence seq) {
+		return intern(seq, 0, seq.length());
+	}
+	
+	/**
+	 * @return the canonical string equal to the characters of <code>seq</code> from <code>start</code>, inclusive, to <code>end</code>, exclusive
+	 */
+	public String intern(CharSequence seq, int start, int end) {
+		if (start < 0 || end > seq.length() || start > end)
+			throw new IndexOutOfBoundsException("[" + start + ", " + end + ") of " + seq.length());
+		int hash = 0;
+		for (int i = start ; i != end ; i++)
+			hash = 31 * hash + seq.charAt(i);
+		hash = hash(hash);
+		final Range range = new Range(seq, start, end);
+		final String canonical = find(hash, range, RANGE_MATCH);
+		return canonical != null ? canonical : intern(hash, range, RANGE_MATCH, seq.subSequence(start, end).toString());
+	}
+	
+}
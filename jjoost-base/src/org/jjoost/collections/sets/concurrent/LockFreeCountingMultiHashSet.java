@@ -1,193 +1,197 @@
-///**
-// * Copyright (c) 2010 Benedict Elliott Smith
-// * 
-// * Permission is hereby granted, free of charge, to any person obtaining a copy
-// * of this software and associated documentation files (the "Software"), to deal
-// * in the Software without restriction, including without limitation the rights
-// * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
-// * copies of the Software, and to permit persons to whom the Software is
-// * furnished to do so, subject to the following conditions:
-// * 
-// * The above copyright notice and this permission notice shall be included in
-// * all copies or substantial portions of the Software.
-// * 
-// * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
-// * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
-// * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
-// * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
-// * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
-// * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
-// * THE SOFTWARE.
-// */
-//
-//package org.jjoost.collections.sets.concurrent;
-//
-//import java.util.Iterator;
-//import java.util.List;
-//import java.util.NoSuchElementException;
-//
-//import org.jjoost.collections.base.HashNodeFactory;
-//import org.jjoost.collections.base.LockFreeHashStore;
-//import org.jjoost.collections.base.SerialHashStore;
-//import org.jjoost.collections.base.LockFreeHashStore.Counting;
-//import org.jjoost.collections.base.LockFreeHashStore.LockFreeHashNode;
-//import org.jjoost.collections.lists.UniformList;
-//import org.jjoost.collections.sets.base.NestedMultiHashSet;
-//import org.jjoost.util.Counters;
-//import org.jjoost.util.Equalities;
-//import org.jjoost.util.Equality;
-//import org.jjoost.util.Rehasher;
-//
-//public class LockFreeCountingMultiHashSet<V> extends NestedMultiHashSet<V, LockFreeCountingMultiHashSet.Node<V>>{
-//
-//	private static final long serialVersionUID = 1051610520557989640L;
-//
-//	public LockFreeCountingMultiHashSet() {
-//		this(16, 0.75f);
-//	}
-//	public LockFreeCountingMultiHashSet(int minimumInitialCapacity, float loadFactor) {
-//		this(minimumInitialCapacity, loadFactor, SerialHashStore.defaultRehasher(), Equalities.object());
-//	}
-//	
-//	public LockFreeCountingMultiHashSet(Equality<? super V> keyEquality) {
-//		this(SerialHashStore.defaultRehasher(), keyEquality);
-//	}
-//	
-//	public LockFreeCountingMultiHashSet(Rehasher rehasher, Equality<? super V> keyEquality) { 
-//		this(16, 0.75f, rehasher, keyEquality);
-//	}
-//	
-//	public LockFreeCountingMultiHashSet( 
-//			int minimumInitialCapacity, float loadFactor, 
-//			Rehasher rehasher, Equality<? super V> keyEquality) 
-//	{
-//		super(Counters.newThreadSafeCounter(), rehasher, 
-//			new NestedMultiHashSet.ValueEquality<V, LockFreeCountingMultiHashSet.Node<V>>(keyEquality), 
-//			LockFreeCountingMultiHashSet.<V>factory(), 
-//			new LockFreeHashStore<Node<V>>(minimumInitialCapacity, loadFactor, Counting.PRECISE, Counting.OFF));
-//	}
-//
-//	// TODO : this implementation DOES NOT WORK IF USED CONCURRENTLY - WHICH IS ITS WHOLE POINT! SO FIX.
-//	public static final class Node<V> extends LockFreeHashNode<Node<V>> implements NestedMultiHashSet.INode<V, Node<V>> {
-//		
-//		private static final long serialVersionUID = -5766263745864028747L;
-//		
-//		public Node(int hash, V value, int count) {
-//			super(hash);
-//			this.value = value;
-//			this.count = count;
-//		}
-//		
-//		private final V value;
-//		private int count;
-//		
-//		@Override 
-//		public V getValue() { 
-//			return value;
-//		}
-//		
-//		@Override 
-//		public synchronized Node<V> copy() { 
-//			return new Node<V>(hash, value, count);
-//		}
-//		
-//		@Override 
-//		public synchronized int count() {
-//			return count;
-//		}
-//		
-//		@Override 
-//		public synchronized int remove(int i) {
-//			final int newc = count - i;
-//			if (newc <= 0) {
-//				final int oldc = count;
-//				count = -1;
-//				return oldc;
-//			}
-//			count = newc;
-//			return i;
-//		}
-//		
-//		@Override
-//		public synchronized List<V> removeAndReturn(int target) {
-//			return new UniformList<V>(value, remove(target));
-//		}
-//
-//		@Override 
-//		public synchronized boolean put(V val) {
-//			if (count < 0)
-//				return false;
-//			count += 1;
-//			return true;
-//		}
-//		
-//		@Override 
-//		public synchronized boolean put(V val, int c) {
-//			if (count < 0)
-//				return false;
-//			count += c;
-//			return true;
-//		}
-//		
-//		@Override 
-//		public synchronized boolean valid() { 
-//			return count >= 0;
-//		}
-//		
-//		@Override
-//		public boolean initialise() {
-//			if (count != 0)
-//				return false;
-//			count = 1;
-//			return true;
-//		}
-//		
-//		@Override
-//		public Iterator<V> iterator(final NestedMultiHashSet<V, Node<V>> arg) {
-//			final LockFreeCountingMultiHashSet<V> set = (LockFreeCountingMultiHashSet<V>) arg;
-//			return new Iterator<V>() {
-//				int c = 0;
-//				boolean last = false;
-//				boolean next = false;
-//				@Override
-//				public boolean hasNext() {
-//					return next = (count > c);
-//				}
-//				@Override
-//				public V next() {
-//					if (!next)
-//						throw new NoSuchElementException();
-//					c++;
-//					last = true;
-//					return value;
-//				}
-//				@Override
-//				public void remove() {
-//					if (!last)
-//						throw new NoSuchElementException();
-//					count -= 1;
-//					c -= 1;
-//					if (count <= 0) {
-//						count = -1;
-//						set.removeNode(Node.this);
-//					}
-//				}
-//			};
-//		}
-//		
-//	}
-//	
-//	@SuppressWarnings("unchecked")
-//	private static final NodeFactory FACTORY = new NodeFactory();
-//	@SuppressWarnings("unchecked")
-//	public static <V> NodeFactory<V> factory() {
-//		return FACTORY;
-//	}
-//	public static final class NodeFactory<V> implements HashNodeFactory<V, Node<V>> {
-//		@Override
-//		public final Node<V> makeNode(final int hash, final V value) {
-//			return new Node<V>(hash, value, 0);
-//		}
-//	}
-//
-//}
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.collections.sets.concurrent;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.jjoost.collections.base.HashNodeFactory;
+import org.jjoost.collections.base.LockFreeHashStore;
+import org.jjoost.collections.base.LockFreeHashStore.LockFreeHashNode;
+import org.jjoost.collections.lists.UniformList;
+import org.jjoost.collections.sets.base.NestedMultiHashSet;
+import org.jjoost.util.Counters;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Equality;
+import org.jjoost.util.Rehasher;
+import org.jjoost.util.concurrent.atomic.AtomicIntUpdater;
+
+public class LockFreeCountingMultiHashSet<V> extends NestedMultiHashSet<V, LockFreeCountingMultiHashSet.Node<V>> {
+
+	private static final long serialVersionUID = 1051610520557989640L;
+
+	public LockFreeCountingMultiHashSet() {
+		this(16, 0.75f);
+	}
+	public LockFreeCountingMultiHashSet(int minimumInitialCapacity, float loadFactor) {
+		this(minimumInitialCapacity, loadFactor, LockFreeHashStore.defaultRehasher(), Equalities.object());
+	}
+	
+	public LockFreeCountingMultiHashSet(Equality<? super V> keyEquality) {
+		this(LockFreeHashStore.defaultRehasher(), keyEquality);
+	}
+	
+	public LockFreeCountingMultiHashSet(Rehasher rehasher, Equality<? super V> keyEquality) { 
+		this(16, 0.75f, rehasher, keyEquality);
+	}
+	
+	public LockFreeCountingMultiHashSet( 
+			int minimumInitialCapacity, float loadFactor, 
+			Rehasher rehasher, Equality<? super V> keyEquality) 
+	{
+		super(Counters.newThreadSafeCounter(), rehasher, 
+			new NestedMultiHashSet.ValueEquality<V, LockFreeCountingMultiHashSet.Node<V>>(keyEquality), 
+			LockFreeCountingMultiHashSet.<V>lockFreeNodeFactory(), 
+			new LockFreeHashStore<Node<V>>(minimumInitialCapacity, loadFactor));
+	}
+
+	// a count of -1 indicates the node has been (or is being) removed from the store, and must not be resurrected
+	public static final class Node<V> extends LockFreeHashNode<Node<V>> implements NestedMultiHashSet.INode<V, Node<V>> {
+		
+		private static final long serialVersionUID = -5766263745864028747L;
+		private static final AtomicIntUpdater COUNT = new AtomicIntUpdater(Node.class, "count");
+		
+		public Node(int hash, V value, int count) {
+			super(hash);
+			this.value = value;
+			this.count = count;
+		}
+		
+		private final V value;
+		private volatile int count;
+		
+		@Override public V getValue() { 
+			return value;
+		}
+		
+		@Override public Node<V> copy() { 
+			return new Node<V>(hash, value, count);
+		}
+		
+		@Override public int count() {
+			final int c = count;
+			return c < 0 ? 0 : c;
+		}
+		
+		@Override public int remove(int i) {
+			while (true) {
+				final int oldc = count;
+				if (oldc < 0)
+					return 0;
+				final int newc = oldc - i;
+				if (newc <= 0) {
+					if (COUNT.compareAndSet(this, oldc, -1))
+						return oldc;
+				} else if (COUNT.compareAndSet(this, oldc, newc)) {
+					return i;
+				}
+			}
+		}
+		
+		@Override
+		public List<V> removeAndReturn(int target) {
+			return new UniformList<V>(value, remove(target));
+		}
+
+		@Override public boolean put(V val) {
+			while (true) {
+				final int oldc = count;
+				if (oldc < 0 || oldc == Integer.MAX_VALUE)
+					return false;
+				if (COUNT.compareAndSet(this, oldc, oldc + 1))
+					return true;
+			}
+		}
+		
+		@Override public boolean put(V val, int c) {
+			while (true) {
+				final int oldc = count;
+				if (oldc < 0)
+					return false;
+				if (COUNT.compareAndSet(this, oldc, (int) Math.min((long) oldc + c, Integer.MAX_VALUE)))
+					return true;
+			}
+		}
+		
+		@Override 
+		public boolean valid() { 
+			return count > 0;
+		}
+		
+		@Override
+		public boolean initialise() {
+			return COUNT.compareAndSet(this, 0, 1);
+		}
+		
+		@Override
+		public Iterator<V> iterator(final NestedMultiHashSet<V, Node<V>> arg) {
+			final LockFreeCountingMultiHashSet<V> set = (LockFreeCountingMultiHashSet<V>) arg;
+			return new Iterator<V>() {
+				int c = 0;
+				boolean last = false;
+				boolean next = false;
+				@Override
+				public boolean hasNext() {
+					return next = (count > c);
+				}
+				@Override
+				public V next() {
+					if (!next)
+						throw new NoSuchElementException();
+					c++;
+					last = true;
+					return value;
+				}
+				@Override
+				public void remove() {
+					if (!last)
+						throw new NoSuchElementException();
+					last = false;
+					if (Node.this.remove(1) == 0)
+						return;
+					c -= 1;
+					set.totalCount.add(-1);
+					if (count < 0)
+						set.removeNode(Node.this);
+				}
+			};
+		}
+
+	}
+	
+	@SuppressWarnings("rawtypes")
+	private static final LockFreeCountingHashSetNodeFactory LOCK_FREE_NODE_FACTORY = new LockFreeCountingHashSetNodeFactory();
+	@SuppressWarnings("unchecked")
+	public static <V> LockFreeCountingHashSetNodeFactory<V> lockFreeNodeFactory() {
+		return LOCK_FREE_NODE_FACTORY;
+	}
+	public static final class LockFreeCountingHashSetNodeFactory<V> implements HashNodeFactory<V, Node<V>> {
+		private static final long serialVersionUID = -1108755693852364279L;
+		@Override
+		public final Node<V> makeNode(final int hash, final V value) {
+			return new Node<V>(hash, value, 0);
+		}
+	}
+
+}
@@ -1,62 +1,60 @@
-///**
-// * Copyright (c) 2010 Benedict Elliott Smith
-// * 
-// * Permission is hereby granted, free of charge, to any person obtaining a copy
-// * of this software and associated documentation files (the "Software"), to deal
-// * in the Software without restriction, including without limitation the rights
-// * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
-// * copies of the Software, and to permit persons to whom the Software is
-// * furnished to do so, subject to the following conditions:
-// * 
-// * The above copyright notice and this permission notice shall be included in
-// * all copies or substantial portions of the Software.
-// * 
-// * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
-// * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
-// * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
-// * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
-// * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
-// * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
-// * THE SOFTWARE.
-// */
-//
-//package org.jjoost.collections.sets.concurrent;
-//
-//import org.jjoost.collections.base.LockFreeHashStore;
-//import org.jjoost.collections.base.SerialHashStore;
-//import org.jjoost.collections.base.LockFreeHashStore.Counting;
-//import org.jjoost.collections.sets.base.AbstractHashSet;
-//import org.jjoost.collections.sets.base.HashSet;
-//import org.jjoost.util.Equalities;
-//import org.jjoost.util.Equality;
-//import org.jjoost.util.Rehasher;
-//
-//public class LockFreeHashSet<V> extends HashSet<V, AbstractHashSet.LockFreeHashSetNode<V>>{
-//
-//	private static final long serialVersionUID = 1051610520557989640L;
-//
-//	public LockFreeHashSet() {
-//		this(16, 0.75f);
-//	}
-//	public LockFreeHashSet(int minimumInitialCapacity, float loadFactor) {
-//		this(minimumInitialCapacity, loadFactor, SerialHashStore.defaultRehasher(), Equalities.object());
-//	}
-//	
-//	public LockFreeHashSet(Equality<? super V> keyEquality) {
-//		this(SerialHashStore.defaultRehasher(), keyEquality);
-//	}
-//	
-//	public LockFreeHashSet(Rehasher rehasher, Equality<? super V> keyEquality) { 
-//		this(16, 0.75f, rehasher, keyEquality);
-//	}
-//	
-//	public LockFreeHashSet( 
-//			int minimumInitialCapacity, float loadFactor, 
-//			Rehasher rehasher, Equality<? super V> keyEquality) 
-//	{
-//		super(rehasher, keyEquality, 
-//			AbstractHashSet.<V>lockFreeNodeFactory(), 
-//			new LockFreeHashStore<LockFreeHashSetNode<V>>(minimumInitialCapacity, loadFactor, Counting.PRECISE, Counting.OFF));
-//	}
-//
-//}
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.collections.sets.concurrent;
+
+import org.jjoost.collections.base.LockFreeHashStore;
+import org.jjoost.collections.sets.base.AbstractHashSet;
+import org.jjoost.collections.sets.base.HashSet;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Equality;
+import org.jjoost.util.Rehasher;
+
+public class LockFreeHashSet<V> extends HashSet<V, AbstractHashSet.LockFreeHashSetNode<V>, LockFreeHashStore<AbstractHashSet.LockFreeHashSetNode<V>>> {
+
+	private static final long serialVersionUID = 1051610520557989640L;
+
+	public LockFreeHashSet() {
+		this(16, 0.75f);
+	}
+	public LockFreeHashSet(int minimumInitialCapacity, float loadFactor) {
+		this(minimumInitialCapacity, loadFactor, LockFreeHashStore.defaultRehasher(), Equalities.object());
+	}
+	
+	public LockFreeHashSet(Equality<? super V> keyEquality) {
+		this(LockFreeHashStore.defaultRehasher(), keyEquality);
+	}
+	
+	public LockFreeHashSet(Rehasher rehasher, Equality<? super V> keyEquality) { 
+		this(16, 0.75f, rehasher, keyEquality);
+	}
+	
+	public LockFreeHashSet( 
+			int minimumInitialCapacity, float loadFactor, 
+			Rehasher rehasher, Equality<? super V> keyEquality) 
+	{
+		super(rehasher, keyEquality, 
+			AbstractHashSet.<V>lockFreeNodeFactory(), 
+			new LockFreeHashStore<LockFreeHashSetNode<V>>(minimumInitialCapacity, loadFactor));
+	}
+
+}
@@ -0,0 +1,432 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.sets.concurrent;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.ObjLongConsumer;
+
+import org.jjoost.collections.Map;
+import org.jjoost.collections.base.HashNodeFactory;
+import org.jjoost.collections.base.HashStore.PutAction;
+import org.jjoost.collections.base.LockFreeHashStore;
+import org.jjoost.collections.base.LockFreeHashStore.LockFreeHashNode;
+import org.jjoost.collections.lists.UniformList;
+import org.jjoost.collections.maps.serial.SerialHashMap;
+import org.jjoost.collections.sets.base.NestedMultiHashSet;
+import org.jjoost.util.Counters;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Equality;
+import org.jjoost.util.Rehasher;
+import org.jjoost.util.concurrent.atomic.AtomicLongUpdater;
+import org.jjoost.util.concurrent.atomic.AtomicRefUpdater;
+
+/**
+ * A lock free counting <code>MultiSet</code> for high rate counters, whose counts are <code>long</code>s. Each
+ * value's count is a single field updated by compare-and-set until two threads collide on it, at which point the value
+ * inflates a small array of cache line padded cells, in the manner of <code>LongAdder</code>, and contending threads
+ * spread their updates over these. <code>add(v, delta)</code> performs no allocation once <code>v</code> is present.
+ * <p>
+ * No total is maintained, as a shared total would reintroduce the contention the cells avoid, so
+ * <code>totalCount()</code> sums every count. <code>drainTo()</code> and <code>snapshotAndReset()</code> take each
+ * value's count for a periodic flush; every concurrent addition is either taken by the flush or left for the next.
+ * The <code>int</code> counts of the <code>MultiSet</code> interface saturate at <code>Integer.MAX_VALUE</code>.
+ * 
+ * @author b.elliottsmith
+ */
+public class LockFreeLongCountingMultiHashSet<V> extends NestedMultiHashSet<V, LockFreeLongCountingMultiHashSet.Node<V>> {
+
+	private static final long serialVersionUID = -2671893140512238834L;
+
+	public LockFreeLongCountingMultiHashSet() {
+		this(16, 0.75f);
+	}
+	public LockFreeLongCountingMultiHashSet(int minimumInitialCapacity, float loadFactor) {
+		this(minimumInitialCapacity, loadFactor, LockFreeHashStore.defaultRehasher(), Equalities.object());
+	}
+	
+	public LockFreeLongCountingMultiHashSet(Equality<? super V> keyEquality) {
+		this(LockFreeHashStore.defaultRehasher(), keyEquality);
+	}
+	
+	public LockFreeLongCountingMultiHashSet(Rehasher rehasher, Equality<? super V> keyEquality) { 
+		this(16, 0.75f, rehasher, keyEquality);
+	}
+	
+	public LockFreeLongCountingMultiHashSet( 
+			int minimumInitialCapacity, float loadFactor, 
+			Rehasher rehasher, Equality<? super V> keyEquality) 
+	{
+		super(Counters.newDoNothingCounter(), rehasher, 
+			new NestedMultiHashSet.ValueEquality<V, LockFreeLongCountingMultiHashSet.Node<V>>(keyEquality), 
+			LockFreeLongCountingMultiHashSet.<V>lockFreeNodeFactory(), 
+			new LockFreeHashStore<Node<V>>(minimumInitialCapacity, loadFactor));
+	}
+	
+	/**
+	 * Adds <code>delta</code> occurrences of <code>val</code>
+	 */
+	public void add(V val, long delta) {
+		if (delta <= 0) {
+			if (delta < 0)
+				throw new IllegalArgumentException("Cannot add less than zero occurrences");
+			return;
+		}
+		final int hash = hash(val);
+		final Node<V> n = store.first(hash, val, valEq, nodeProj());
+		if (n != null && n.add(delta))
+			return;
+		while (!store.put(PutAction.ENSUREANDGET, hash, val, valEq, nodeFactory, nodeProj()).add(delta));
+	}
+	
+	public long longCount(V val) {
+		final Node<V> n = store.first(hash(val), val, valEq, nodeProj());
+		return n == null ? 0 : n.sum();
+	}
+	
+	public long longTotalCount() {
+		long total = 0;
+		final Iterator<Node<V>> iter = store.all(valProj(), valEq, nodeProj());
+		while (iter.hasNext())
+			total += iter.next().sum();
+		return total;
+	}
+	
+	@Override
+	public int totalCount() {
+		return (int) Math.min(Integer.MAX_VALUE, longTotalCount());
+	}
+	
+	/**
+	 * Removes every value, passing each with its count to <code>sink</code>
+	 * 
+	 * @return the number of values passed to <code>sink</code>
+	 */
+	public int drainTo(ObjLongConsumer<? super V> sink) {
+		int drained = 0;
+		final Iterator<Node<V>> iter = store.all(valProj(), valEq, nodeProj());
+		while (iter.hasNext()) {
+			final Node<V> n = iter.next();
+			final long count = n.kill();
+			removeNode(n);
+			if (count > 0) {
+				sink.accept(n.getValue(), count);
+				drained++;
+			}
+		}
+		return drained;
+	}
+	
+	/**
+	 * Resets the count of every value to zero, returning the counts taken. The values themselves are retained, so that
+	 * subsequent additions remain free of allocation; <code>drainTo()</code> should be used periodically if the set
+	 * of values changes over time.
+	 */
+	public Map<V, Long> snapshotAndReset() {
+		final Map<V, Long> snapshot = new SerialHashMap<V, Long>(rehasher, equality());
+		final Iterator<Node<V>> iter = store.all(valProj(), valEq, nodeProj());
+		while (iter.hasNext()) {
+			final Node<V> n = iter.next();
+			final long count = n.reset();
+			if (count > 0)
+				snapshot.put(n.getValue(), count);
+		}
+		return snapshot;
+	}
+	
+	@Override
+	public LockFreeLongCountingMultiHashSet<V> copy() {
+		final LockFreeLongCountingMultiHashSet<V> copy = new LockFreeLongCountingMultiHashSet<V>(rehasher, equality());
+		final Iterator<Node<V>> iter = store.all(valProj(), valEq, nodeProj());
+		while (iter.hasNext()) {
+			final Node<V> n = iter.next();
+			copy.add(n.getValue(), n.sum());
+		}
+		return copy;
+	}
+	
+	// the number of cells, and the number of longs each occupies so that no two share a cache line
+	private static final int CELLS = cellCount();
+	private static final int STRIDE = 8;
+	private static final long DEAD = Long.MIN_VALUE;
+	private static final AtomicLongArray DEAD_CELLS = new AtomicLongArray(0);
+	
+	private static int cellCount() {
+		int cells = 1;
+		while (cells < Runtime.getRuntime().availableProcessors())
+			cells <<= 1;
+		return cells;
+	}
+
+	/**
+	 * A count of <code>DEAD</code> indicates the node has been (or is being) removed from the store, and must not be
+	 * resurrected. Counts in the cells are only taken from them by compare-and-set, or by marking them
+	 * <code>DEAD</code>, after which any thread updating them falls back to the node's own count; so every addition is
+	 * either observed by whoever takes the counts, or lands in the node's count afterwards, where it either survives
+	 * or causes the node's removal to fail and be retried. Only additions are lock free: anything that takes counts
+	 * synchronises on the node, so that at most one thread marks its cells at once.
+	 */
+	public static final class Node<V> extends LockFreeHashNode<Node<V>> implements NestedMultiHashSet.INode<V, Node<V>> {
+		
+		private static final long serialVersionUID = 8812034951452104466L;
+		private static final AtomicLongUpdater COUNT = new AtomicLongUpdater(Node.class, "count");
+		@SuppressWarnings("rawtypes")
+		private static final AtomicRefUpdater<Node, AtomicLongArray> CELLS_UPDATER = AtomicRefUpdater.get(Node.class, AtomicLongArray.class, "cells");
+		
+		public Node(int hash, V value, long count) {
+			super(hash);
+			this.value = value;
+			this.count = count;
+		}
+		
+		private final V value;
+		private volatile long count;
+		private transient volatile AtomicLongArray cells;
+		
+		@Override public V getValue() { 
+			return value;
+		}
+		
+		@Override public Node<V> copy() { 
+			return new Node<V>(hash, value, sum());
+		}
+		
+		boolean add(long delta) {
+			final long c = count;
+			if (c == DEAD)
+				return false;
+			if (COUNT.compareAndSet(this, c, c + delta))
+				return true;
+			return addContended(delta);
+		}
+		
+		// the thread's slot is fixed by its id, and moves on if it collides within the cells too
+		private boolean addContended(long delta) {
+			int slot = (int) Thread.currentThread().getId() * 0x9E3779B9;
+			while (true) {
+				AtomicLongArray cells = this.cells;
+				if (cells == null) {
+					cells = new AtomicLongArray(CELLS * STRIDE);
+					if (!CELLS_UPDATER.compareAndSet(this, null, cells))
+						continue;
+				}
+				if (cells != DEAD_CELLS) {
+					final int i = (slot >>> 16 & (CELLS - 1)) * STRIDE;
+					final long v = cells.get(i);
+					if (v != DEAD && cells.compareAndSet(i, v, v + delta))
+						return true;
+					slot += 0x10000;
+				}
+				final long c = count;
+				if (c == DEAD)
+					return false;
+				if (COUNT.compareAndSet(this, c, c + delta))
+					return true;
+			}
+		}
+		
+		long sum() {
+			long sum = count;
+			if (sum == DEAD)
+				return 0;
+			final AtomicLongArray cells = this.cells;
+			if (cells != null) {
+				for (int i = 0 ; i < cells.length() ; i += STRIDE) {
+					final long v = cells.get(i);
+					if (v != DEAD)
+						sum += v;
+				}
+			}
+			return sum;
+		}
+		
+		// takes every count, leaving the node alive with a count of zero
+		synchronized long reset() {
+			long taken = 0;
+			final AtomicLongArray cells = this.cells;
+			if (cells != null && cells != DEAD_CELLS) {
+				for (int i = 0 ; i < cells.length() ; i += STRIDE) {
+					while (true) {
+						final long v = cells.get(i);
+						if (v == DEAD)
+							break;
+						if (cells.compareAndSet(i, v, 0)) {
+							taken += v;
+							break;
+						}
+					}
+				}
+			}
+			while (true) {
+				final long c = count;
+				if (c == DEAD)
+					return taken;
+				if (COUNT.compareAndSet(this, c, 0))
+					return taken + c;
+			}
+		}
+		
+		synchronized long kill() {
+			return remove(Long.MAX_VALUE);
+		}
+		
+		// stops new cells being created, and marks the existing ones dead so that all additions land in count,
+		// returning the counts taken from them; the caller must either reinstate cells or mark the node dead
+		private long takeCells() {
+			AtomicLongArray cells;
+			do {
+				cells = this.cells;
+			} while (!CELLS_UPDATER.compareAndSet(this, cells, DEAD_CELLS));
+			long taken = 0;
+			if (cells != null && cells != DEAD_CELLS) {
+				for (int i = 0 ; i < cells.length() ; i += STRIDE)
+					taken += getAndSet(cells, i, DEAD);
+			}
+			return taken;
+		}
+		
+		// removes up to target occurrences, returning the number removed, and marking the node dead if none remain
+		private synchronized long remove(long target) {
+			if (count == DEAD)
+				return 0;
+			final long taken = takeCells();
+			while (true) {
+				final long c = count;
+				final long total = c + taken;
+				if (total > target) {
+					if (COUNT.compareAndSet(this, c, total - target)) {
+						this.cells = null;
+						return target;
+					}
+				} else if (COUNT.compareAndSet(this, c, DEAD)) {
+					return total;
+				}
+			}
+		}
+		
+		// folds the cells into count, so that it alone need be serialized
+		private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+			if (count != DEAD) {
+				final long taken = takeCells();
+				while (true) {
+					final long c = count;
+					if (COUNT.compareAndSet(this, c, c + taken))
+						break;
+				}
+				this.cells = null;
+			}
+			out.defaultWriteObject();
+		}
+		
+		private static long getAndSet(AtomicLongArray cells, int i, long upd) {
+			while (true) {
+				final long v = cells.get(i);
+				if (cells.compareAndSet(i, v, upd))
+					return v == DEAD ? 0 : v;
+			}
+		}
+		
+		@Override public int count() {
+			return (int) Math.min(Integer.MAX_VALUE, sum());
+		}
+		
+		@Override public int remove(int target) {
+			return (int) remove((long) target);
+		}
+		
+		@Override
+		public List<V> removeAndReturn(int target) {
+			return new UniformList<V>(value, remove(target));
+		}
+
+		@Override public boolean put(V val) {
+			return add(1);
+		}
+		
+		@Override public boolean put(V val, int c) {
+			return add(c);
+		}
+		
+		@Override 
+		public boolean valid() { 
+			return sum() > 0;
+		}
+		
+		@Override
+		public synchronized boolean initialise() {
+			return sum() == 0 && COUNT.compareAndSet(this, 0, 1);
+		}
+		
+		@Override
+		public Iterator<V> iterator(final NestedMultiHashSet<V, Node<V>> set) {
+			final long total = sum();
+			return new Iterator<V>() {
+				long c = 0;
+				boolean last = false;
+				@Override
+				public boolean hasNext() {
+					return c < total;
+				}
+				@Override
+				public V next() {
+					if (c >= total)
+						throw new NoSuchElementException();
+					c++;
+					last = true;
+					return value;
+				}
+				@Override
+				public void remove() {
+					if (!last)
+						throw new NoSuchElementException();
+					last = false;
+					if (Node.this.remove(1L) == 0)
+						return;
+					if (count == DEAD)
+						((LockFreeLongCountingMultiHashSet<V>) set).removeNode(Node.this);
+				}
+			};
+		}
+
+	}
+	
+	@SuppressWarnings("rawtypes")
+	private static final LockFreeLongCountingHashSetNodeFactory LOCK_FREE_NODE_FACTORY = new LockFreeLongCountingHashSetNodeFactory();
+	@SuppressWarnings("unchecked")
+	public static <V> LockFreeLongCountingHashSetNodeFactory<V> lockFreeNodeFactory() {
+		return LOCK_FREE_NODE_FACTORY;
+	}
+	public static final class LockFreeLongCountingHashSetNodeFactory<V> implements HashNodeFactory<V, Node<V>> {
+		private static final long serialVersionUID = 3325718802211361584L;
+		@Override
+		public final Node<V> makeNode(final int hash, final V value) {
+			return new Node<V>(hash, value, 0);
+		}
+	}
+
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.sets.concurrent;
+
+import java.util.Comparator;
+
+import org.jjoost.collections.base.LockFreeSkipListStore;
+import org.jjoost.collections.sets.base.OrderedStoreMultiSet;
+import org.jjoost.util.Functions;
+import org.jjoost.util.order.NaturalOrder;
+
+/**
+ * A thread safe, lock free <code>OrderedMultiSet</code> backed by a <code>LockFreeSkipListStore</code>
+ * 
+ * @author b.elliottsmith
+ */
+public class LockFreeSkipListMultiSet<V> extends OrderedStoreMultiSet<V, V, LockFreeSkipListStore<V>> {
+
+	private static final long serialVersionUID = -6124488790332165027L;
+
+	/**
+	 * Constructs a set ordered by the natural ordering of its values, which must be <code>Comparable</code>
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public LockFreeSkipListMultiSet() {
+		this((Comparator<? super V>) NaturalOrder.get());
+	}
+	
+	public LockFreeSkipListMultiSet(Comparator<? super V> cmp) {
+		super(new LockFreeSkipListStore<V>(cmp, false), 
+			Functions.<V>identity(), cmp, cmp, null, Functions.<V>identity());
+	}
+	
+}
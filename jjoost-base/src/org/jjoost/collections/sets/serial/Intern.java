@@ -2,6 +2,14 @@ package org.jjoost.collections.sets.serial;
 
 import org.jjoost.util.Function;
 
+/**
+ * A single threaded interner that evicts its oldest canonical value once it holds more than <code>maxSize</code>
+ * 
+ * @deprecated use <code>ConcurrentIntern</code>, which may be shared between threads and may hold its canonical
+ * values by weak or soft reference
+ * @author b.elliottsmith
+ */
+@Deprecated
 public class Intern<V> implements Function<V, V> {
 
 	private static final long serialVersionUID = -2042387823021980500L;
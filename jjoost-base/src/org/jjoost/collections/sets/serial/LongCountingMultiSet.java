@@ -0,0 +1,259 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.collections.sets.serial;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.jjoost.collections.MultiReadSet;
+import org.jjoost.collections.ReadMap;
+import org.jjoost.collections.ReadSet;
+import org.jjoost.collections.base.LongHashTable;
+import org.jjoost.collections.sets.base.SetToCountMapAdapter;
+import org.jjoost.util.Equality;
+import org.jjoost.util.Iters;
+import org.jjoost.util.Rehasher;
+
+/**
+ * A counting multiset of primitive <code>long</code> values, keeping an <code>int</code> occurrence count in an array
+ * parallel to the values; the primitive methods never box. The boxed <code>MultiReadSet</code> methods are provided
+ * for interoperability, and <code>null</code> is never a member.
+ *
+ * @author b.elliottsmith
+ */
+public class LongCountingMultiSet extends LongHashTable implements MultiReadSet<Long> {
+
+	private static final long serialVersionUID = 5128461357017738021L;
+
+	private final ReadSet<Long> unique = keySet();
+	private int[] counts;
+	private int totalCount;
+
+	public LongCountingMultiSet() {
+		this(16, 0.75f);
+	}
+	public LongCountingMultiSet(int minimumInitialCapacity, float loadFactor) {
+		this(minimumInitialCapacity, loadFactor, LongHashTable.defaultRehasher());
+	}
+	public LongCountingMultiSet(Rehasher rehasher) {
+		this(16, 0.75f, rehasher);
+	}
+	public LongCountingMultiSet(int minimumInitialCapacity, float loadFactor, Rehasher rehasher) {
+		super(minimumInitialCapacity, loadFactor, rehasher);
+		this.counts = new int[capacity() + 1];
+	}
+	protected LongCountingMultiSet(LongCountingMultiSet copy) {
+		super(copy);
+		this.counts = copy.counts.clone();
+		this.totalCount = copy.totalCount;
+	}
+
+	// **************************************************
+	// PRIMITIVE METHODS
+	// **************************************************
+
+	public void add(long value) {
+		add(value, 1);
+	}
+
+	/**
+	 * adds <code>n</code> occurrences of the value, returning the resulting count
+	 */
+	public int add(long value, int n) {
+		if (n < 0)
+			throw new IllegalArgumentException("Cannot add a negative number of occurrences: " + n);
+		if (n == 0)
+			return count(value);
+		int slot = insert(value);
+		if (slot < 0)
+			slot = ~slot;
+		totalCount += n;
+		return counts[slot] += n;
+	}
+
+	/**
+	 * removes every occurrence of the value, returning the number removed
+	 */
+	public int remove(long value) {
+		final int slot = slot(value);
+		if (slot < 0)
+			return 0;
+		final int r = counts[slot];
+		totalCount -= r;
+		removeSlot(slot);
+		return r;
+	}
+
+	/**
+	 * removes up to <code>n</code> occurrences of the value, returning the number removed
+	 */
+	public int remove(long value, int n) {
+		if (n < 0)
+			throw new IllegalArgumentException("Cannot remove a negative number of occurrences: " + n);
+		final int slot = slot(value);
+		if (slot < 0 || n == 0)
+			return 0;
+		final int count = counts[slot];
+		if (n >= count) {
+			totalCount -= count;
+			removeSlot(slot);
+			return count;
+		}
+		counts[slot] = count - n;
+		totalCount -= n;
+		return n;
+	}
+
+	public int count(long value) {
+		final int slot = slot(value);
+		return slot < 0 ? 0 : counts[slot];
+	}
+
+	@Override
+	public int clear() {
+		final int r = totalCount;
+		super.clear();
+		return r;
+	}
+
+	@Override
+	protected void move(int from, int to) {
+		counts[to] = counts[from];
+	}
+	@Override
+	protected void clearSlot(int slot) {
+		counts[slot] = 0;
+	}
+	@Override
+	protected void rehash(int capacity, int[] slots) {
+		final int[] counts = new int[capacity + 1];
+		for (int i = 0 ; i != slots.length ; i++)
+			if (slots[i] >= 0)
+				counts[slots[i]] = this.counts[i];
+		this.counts = counts;
+	}
+	@Override
+	protected void cleared() {
+		Arrays.fill(counts, 0);
+		totalCount = 0;
+	}
+
+	// **************************************************
+	// BOXED READ METHODS
+	// **************************************************
+
+	@Override
+	public Long first(Long find) {
+		return unique.first(find);
+	}
+	@Override
+	public Iterable<Long> all(Long find) {
+		return list(find);
+	}
+	@Override
+	public List<Long> list(Long find) {
+		final int count = find == null ? 0 : count(find.longValue());
+		return count == 0 ? Collections.<Long>emptyList() : Collections.nCopies(count, find);
+	}
+	@Override
+	public boolean contains(Long find) {
+		return unique.contains(find);
+	}
+	@Override
+	public Boolean apply(Long find) {
+		return unique.contains(find);
+	}
+	@Override
+	public int count(Long find) {
+		return find == null ? 0 : count(find.longValue());
+	}
+	@Override
+	public Iterator<Long> iterator() {
+		return new OccurrenceIterator();
+	}
+	@Override
+	public int totalCount() {
+		return totalCount;
+	}
+	@Override
+	public int uniqueCount() {
+		return size;
+	}
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	@Override
+	public boolean permitsDuplicates() {
+		return true;
+	}
+	@Override
+	public Equality<? super Long> equality() {
+		return unique.equality();
+	}
+	@Override
+	public ReadSet<Long> unique() {
+		return unique;
+	}
+	@Override
+	public ReadMap<Long, Integer> asMap() {
+		return new SetToCountMapAdapter<Long>(this);
+	}
+	@Override
+	public LongCountingMultiSet copy() {
+		return new LongCountingMultiSet(this);
+	}
+
+	@Override
+	public String toString() {
+		return "{" + Iters.toString(this, ", ") + "}";
+	}
+
+	private final class OccurrenceIterator implements Iterator<Long> {
+		int slot = nextSlot(-1);
+		int remaining = slot < 0 ? 0 : counts[slot];
+		@Override
+		public boolean hasNext() {
+			return remaining > 0;
+		}
+		@Override
+		public Long next() {
+			if (remaining == 0)
+				throw new NoSuchElementException();
+			final long r = key(slot);
+			if (--remaining == 0) {
+				slot = nextSlot(slot);
+				remaining = slot < 0 ? 0 : counts[slot];
+			}
+			return r;
+		}
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+}
@@ -0,0 +1,189 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.collections.sets.serial;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+import org.jjoost.collections.ReadMap;
+import org.jjoost.collections.ReadSet;
+import org.jjoost.collections.base.LongHashTable;
+import org.jjoost.util.Equality;
+import org.jjoost.util.Rehasher;
+
+/**
+ * A set of primitive <code>long</code> values; the primitive methods never box. The boxed <code>ReadSet</code> methods
+ * are provided for interoperability, and <code>null</code> is never a member.
+ *
+ * @author b.elliottsmith
+ */
+public class LongHashSet extends LongHashTable implements ReadSet<Long> {
+
+	private static final long serialVersionUID = -2707733925436391412L;
+
+	private final ReadSet<Long> view = keySet();
+
+	public LongHashSet() {
+		this(16, 0.75f);
+	}
+	public LongHashSet(int minimumInitialCapacity, float loadFactor) {
+		this(minimumInitialCapacity, loadFactor, LongHashTable.defaultRehasher());
+	}
+	public LongHashSet(Rehasher rehasher) {
+		this(16, 0.75f, rehasher);
+	}
+	public LongHashSet(int minimumInitialCapacity, float loadFactor, Rehasher rehasher) {
+		super(minimumInitialCapacity, loadFactor, rehasher);
+	}
+	protected LongHashSet(LongHashSet copy) {
+		super(copy);
+	}
+
+	// **************************************************
+	// PRIMITIVE METHODS
+	// **************************************************
+
+	public boolean add(long value) {
+		return insert(value) < 0;
+	}
+
+	public int remove(long value) {
+		final int slot = slot(value);
+		if (slot < 0)
+			return 0;
+		removeSlot(slot);
+		return 1;
+	}
+
+	public int count(long value) {
+		return slot(value) < 0 ? 0 : 1;
+	}
+
+	@Override
+	protected void move(int from, int to) {
+	}
+	@Override
+	protected void clearSlot(int slot) {
+	}
+	@Override
+	protected void rehash(int capacity, int[] slots) {
+	}
+	@Override
+	protected void cleared() {
+	}
+
+	// **************************************************
+	// BOXED READ METHODS
+	// **************************************************
+
+	@Override
+	public Long get(Long find) {
+		return view.get(find);
+	}
+	@Override
+	public Long first(Long find) {
+		return view.first(find);
+	}
+	@Override
+	public Iterable<Long> all(Long find) {
+		return view.all(find);
+	}
+	@Override
+	public List<Long> list(Long find) {
+		return view.list(find);
+	}
+	@Override
+	public boolean contains(Long find) {
+		return view.contains(find);
+	}
+	@Override
+	public Boolean apply(Long find) {
+		return view.contains(find);
+	}
+	@Override
+	public int count(Long find) {
+		return view.count(find);
+	}
+	@Override
+	public Iterator<Long> iterator() {
+		return keyIterator();
+	}
+	@Override
+	public int totalCount() {
+		return size;
+	}
+	@Override
+	public int uniqueCount() {
+		return size;
+	}
+	@Override
+	public boolean permitsDuplicates() {
+		return false;
+	}
+	@Override
+	public Equality<? super Long> equality() {
+		return view.equality();
+	}
+	@Override
+	public ReadSet<Long> unique() {
+		return this;
+	}
+	@Override
+	public ReadMap<Long, Integer> asMap() {
+		return view.asMap();
+	}
+	@Override
+	public LongHashSet copy() {
+		return new LongHashSet(this);
+	}
+
+	@Override
+	public String toString() {
+		return view.toString();
+	}
+	@Override
+	public boolean equals(Object that) {
+		if (this == that)
+			return true;
+		if (!(that instanceof LongHashSet))
+			return view.equals(that);
+		final LongHashSet set = (LongHashSet) that;
+		if (set.size != size)
+			return false;
+		for (PrimitiveIterator.OfLong iter = keyIterator() ; iter.hasNext() ; )
+			if (!set.contains(iter.nextLong()))
+				return false;
+		return true;
+	}
+	@Override
+	public int hashCode() {
+		int h = 0;
+		for (PrimitiveIterator.OfLong iter = keyIterator() ; iter.hasNext() ; ) {
+			final long k = iter.nextLong();
+			h += (int) (k ^ (k >>> 32));
+		}
+		return h;
+	}
+
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.collections.sets.serial;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import org.jjoost.collections.base.HashNodeCodec;
+import org.jjoost.collections.base.OffHeapHashStore;
+import org.jjoost.collections.sets.base.AbstractHashSet;
+import org.jjoost.collections.sets.base.HashSet;
+import org.jjoost.util.Codec;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Equality;
+import org.jjoost.util.Rehasher;
+
+/**
+ * A <code>HashSet</code> whose values are serialised off heap by an <code>OffHeapHashStore</code>, using the provided codec
+ */
+public class OffHeapHashSet<V> extends HashSet<V, AbstractHashSet.OpenHashSetNode<V>, OffHeapHashStore<AbstractHashSet.OpenHashSetNode<V>>> {
+
+	private static final long serialVersionUID = -1377216404447380317L;
+
+	public OffHeapHashSet(Codec<V> codec) {
+		this(16, 0.75f, codec);
+	}
+	public OffHeapHashSet(int minimumInitialCapacity, float loadFactor, Codec<V> codec) {
+		this(minimumInitialCapacity, loadFactor, OffHeapHashStore.defaultRehasher(), Equalities.object(), codec);
+	}
+	public OffHeapHashSet( 
+			int minimumInitialCapacity, float loadFactor, 
+			Rehasher rehasher, Equality<? super V> keyEquality, Codec<V> codec) 
+	{
+		super(rehasher, keyEquality, 
+			AbstractHashSet.<V>openNodeFactory(), 
+			new OffHeapHashStore<OpenHashSetNode<V>>(minimumInitialCapacity, loadFactor, new NodeCodec<V>(codec)));
+	}
+	
+	/**
+	 * Construct a set memory mapped from the provided file, restoring any values it already contains
+	 */
+	public OffHeapHashSet( 
+			int minimumInitialCapacity, float loadFactor, int segmentSize, File file,
+			Rehasher rehasher, Equality<? super V> keyEquality, Codec<V> codec) 
+	{
+		super(rehasher, keyEquality, 
+			AbstractHashSet.<V>openNodeFactory(), 
+			new OffHeapHashStore<OpenHashSetNode<V>>(minimumInitialCapacity, loadFactor, segmentSize, file, new NodeCodec<V>(codec)));
+	}
+	
+	/**
+	 * @see OffHeapHashStore#force()
+	 */
+	public void force() {
+		store.force();
+	}
+	
+	/**
+	 * @see OffHeapHashStore#close()
+	 */
+	public void close() {
+		store.close();
+	}
+	
+	public static final class NodeCodec<V> implements HashNodeCodec<OpenHashSetNode<V>> {
+		private static final long serialVersionUID = 8860613367391287766L;
+		private final Codec<V> codec;
+		public NodeCodec(Codec<V> codec) {
+			this.codec = codec;
+		}
+		@Override
+		public void write(OpenHashSetNode<V> node, ByteBuffer buf) {
+			codec.write(node.getValue(), buf);
+		}
+		@Override
+		public OpenHashSetNode<V> read(int hash, ByteBuffer buf) {
+			return new OpenHashSetNode<V>(hash, codec.read(buf));
+		}
+	}
+
+}
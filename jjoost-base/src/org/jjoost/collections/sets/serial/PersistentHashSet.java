@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.collections.sets.serial;
+
+import org.jjoost.collections.base.PersistentHashStore;
+import org.jjoost.collections.sets.base.AbstractHashSet;
+import org.jjoost.collections.sets.base.HashSet;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Equality;
+import org.jjoost.util.Rehasher;
+
+/**
+ * A <code>Set</code> backed by a <code>PersistentHashStore</code>. <code>copy()</code> is O(1), and the set and its copy
+ * may both be modified freely afterwards, each paying only for the parts of the trie it changes; <code>with()</code> and
+ * <code>without()</code> return a modified copy, leaving this set unchanged.
+ *
+ * @author b.elliottsmith
+ */
+public class PersistentHashSet<V> extends HashSet<V, AbstractHashSet.OpenHashSetNode<V>, PersistentHashStore<AbstractHashSet.OpenHashSetNode<V>>> {
+
+	private static final long serialVersionUID = 1429563508717034585L;
+
+	public PersistentHashSet() {
+		this(PersistentHashStore.defaultRehasher(), Equalities.object());
+	}
+	
+	public PersistentHashSet(Equality<? super V> keyEquality) {
+		this(PersistentHashStore.defaultRehasher(), keyEquality);
+	}
+	
+	public PersistentHashSet(Rehasher rehasher, Equality<? super V> keyEquality) { 
+		super(rehasher, keyEquality, 
+			AbstractHashSet.<V>openNodeFactory(), 
+			new PersistentHashStore<OpenHashSetNode<V>>());
+	}
+	
+	private PersistentHashSet(PersistentHashSet<V> copy) {
+		super(copy.rehasher, copy.valEq.getValueEquality(), copy.nodeFactory, copy.store.copy(null, null));
+	}
+	
+	@Override
+	public PersistentHashSet<V> copy() {
+		return new PersistentHashSet<V>(this);
+	}
+	
+	/**
+	 * @return a copy of this set containing <code>val</code>
+	 */
+	public PersistentHashSet<V> with(V val) {
+		final PersistentHashSet<V> r = copy();
+		r.add(val);
+		return r;
+	}
+	
+	/**
+	 * @return a copy of this set not containing <code>val</code>
+	 */
+	public PersistentHashSet<V> without(V val) {
+		final PersistentHashSet<V> r = copy();
+		r.remove(val);
+		return r;
+	}
+
+}
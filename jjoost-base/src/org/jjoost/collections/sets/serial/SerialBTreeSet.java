@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.sets.serial;
+
+import java.util.Comparator;
+
+import org.jjoost.collections.base.SerialBTreeStore;
+import org.jjoost.collections.sets.base.OrderedStoreSet;
+import org.jjoost.util.Functions;
+import org.jjoost.util.order.NaturalOrder;
+
+/**
+ * A serial <code>OrderedScalarSet</code> backed by a <code>SerialBTreeStore</code>
+ * 
+ * @author b.elliottsmith
+ */
+public class SerialBTreeSet<V> extends OrderedStoreSet<V, V, SerialBTreeStore<V>> {
+
+	private static final long serialVersionUID = -1986218359420346012L;
+
+	/**
+	 * Constructs a set ordered by the natural ordering of its values, which must be <code>Comparable</code>
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public SerialBTreeSet() {
+		this((Comparator<? super V>) NaturalOrder.get());
+	}
+	
+	public SerialBTreeSet(Comparator<? super V> cmp) {
+		this(cmp, SerialBTreeStore.DEFAULT_LEAF_CAPACITY, SerialBTreeStore.DEFAULT_BRANCH_CAPACITY);
+	}
+	
+	public SerialBTreeSet(Comparator<? super V> cmp, int leafCapacity, int branchCapacity) {
+		super(new SerialBTreeStore<V>(cmp, true, leafCapacity, branchCapacity), 
+			Functions.<V>identity(), cmp, cmp, null, Functions.<V>identity());
+	}
+	
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.sketches;
+
+import java.io.Serializable;
+
+import org.jjoost.util.Equality;
+import org.jjoost.util.Rehasher;
+
+/**
+ * The hashing shared by the probabilistic sketches. A value's hash is computed by the sketch's <code>Equality</code>
+ * and <code>Rehasher</code>, as for any hash collection, and then finalised so that the bits the sketches select
+ * between are well distributed whatever the quality of the <code>Rehasher</code>. Values whose hashes collide are
+ * indistinguishable to every sketch, so no sketch can distinguish more than 2<sup>32</sup> values.
+ * 
+ * @author b.elliottsmith
+ */
+abstract class AbstractSketch<V> implements Serializable {
+
+	private static final long serialVersionUID = 1726405937826345561L;
+	
+	protected final Rehasher rehasher;
+	protected final Equality<? super V> equality;
+	
+	protected AbstractSketch(Rehasher rehasher, Equality<? super V> equality) {
+		this.rehasher = rehasher;
+		this.equality = equality;
+	}
+	
+	protected final int hash(V v) {
+		return mix(rehasher.rehash(equality.hash(v)));
+	}
+	
+	// a second hash independent of the first, for double hashing; always odd, so it cycles through any power of two
+	protected static int hash2(int hash) {
+		return mix(hash ^ 0x9E3779B9) | 1;
+	}
+	
+	// the murmur3 finaliser
+	private static int mix(int h) {
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+	
+	protected final void checkMergeable(AbstractSketch<?> that, boolean sameShape) {
+		if (!sameShape)
+			throw new IllegalArgumentException("Cannot merge sketches of different dimensions");
+		if (!rehasher.equals(that.rehasher) && rehasher.getClass() != that.rehasher.getClass())
+			throw new IllegalArgumentException("Cannot merge sketches that hash differently");
+	}
+	
+}
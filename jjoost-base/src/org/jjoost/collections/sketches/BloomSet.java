@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.sketches;
+
+import java.util.Arrays;
+
+import org.jjoost.collections.base.SerialHashStore;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Equality;
+import org.jjoost.util.Filter;
+import org.jjoost.util.Rehasher;
+
+/**
+ * A Bloom filter, answering whether a value may have been added to it in memory fixed at construction.
+ * <code>contains(v)</code> is always true for a value that was added, and is true for a value that was not with a
+ * probability that grows as values are added; <code>expectedFalsePositiveRate()</code> estimates it from the
+ * proportion of bits set.
+ * <p>
+ * The filter is not thread safe. Filters built separately with the same dimensions and hashing may be combined with
+ * <code>merge()</code>, and are equivalent to a single filter of their combined input.
+ * 
+ * @author b.elliottsmith
+ */
+public class BloomSet<V> extends AbstractSketch<V> implements Filter<V> {
+
+	private static final long serialVersionUID = -6119284037251069731L;
+	
+	private final long[] bits;
+	private final long bitCount;
+	private final int hashCount;
+	
+	/**
+	 * @param expectedInsertions the number of distinct values the filter is sized for
+	 * @param falsePositiveRate the desired false positive rate once <code>expectedInsertions</code> values have been added
+	 */
+	public BloomSet(long expectedInsertions, double falsePositiveRate) {
+		this(expectedInsertions, falsePositiveRate, SerialHashStore.defaultRehasher(), Equalities.object());
+	}
+	public BloomSet(long expectedInsertions, double falsePositiveRate, Rehasher rehasher, Equality<? super V> equality) {
+		this(bitCount(expectedInsertions, falsePositiveRate), hashCount(expectedInsertions, falsePositiveRate), rehasher, equality);
+	}
+	public BloomSet(long bitCount, int hashCount, Rehasher rehasher, Equality<? super V> equality) {
+		super(rehasher, equality);
+		if (bitCount <= 0 || hashCount <= 0)
+			throw new IllegalArgumentException("bitCount and hashCount must be greater than zero");
+		if (bitCount > (long) (Integer.MAX_VALUE - 8) * 64)
+			throw new IllegalArgumentException("bitCount is too large");
+		this.bits = new long[(int) ((bitCount + 63) >>> 6)];
+		this.bitCount = bits.length * 64L;
+		this.hashCount = hashCount;
+	}
+	
+	private static long bitCount(long expectedInsertions, double falsePositiveRate) {
+		if (expectedInsertions <= 0)
+			throw new IllegalArgumentException("expectedInsertions must be greater than zero");
+		if (falsePositiveRate <= 0 || falsePositiveRate >= 1)
+			throw new IllegalArgumentException("falsePositiveRate must be between zero and one");
+		return (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+	}
+	
+	private static int hashCount(long expectedInsertions, double falsePositiveRate) {
+		final double bitsPerValue = bitCount(expectedInsertions, falsePositiveRate) / (double) expectedInsertions;
+		return Math.max(1, (int) Math.round(bitsPerValue * Math.log(2)));
+	}
+	
+	/**
+	 * @return <code>true</code> if the value was certainly not present, and <code>false</code> if it may have been
+	 */
+	public boolean add(V val) {
+		final int h1 = hash(val), h2 = hash2(h1);
+		boolean added = false;
+		for (int i = 0 ; i != hashCount ; i++) {
+			final long bit = index(h1, h2, i);
+			final int word = (int) (bit >>> 6);
+			final long mask = 1L << bit;
+			if ((bits[word] & mask) == 0) {
+				bits[word] |= mask;
+				added = true;
+			}
+		}
+		return added;
+	}
+	
+	/**
+	 * @return <code>false</code> if the value was certainly never added, and <code>true</code> if it probably was
+	 */
+	public boolean contains(V val) {
+		final int h1 = hash(val), h2 = hash2(h1);
+		for (int i = 0 ; i != hashCount ; i++) {
+			final long bit = index(h1, h2, i);
+			if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0)
+				return false;
+		}
+		return true;
+	}
+	
+	@Override
+	public boolean accept(V test) {
+		return contains(test);
+	}
+	
+	// double hashing over the full 64 bit range of combinations, so that large filters are not limited to 2^32 bits
+	private long index(int h1, int h2, int i) {
+		final long combined = ((long) h1 << 32 | (h2 & 0xFFFFFFFFL)) + i * (((long) h2 << 32) | (h1 & 0xFFFFFFFFL) | 1);
+		return (combined & Long.MAX_VALUE) % bitCount;
+	}
+	
+	/**
+	 * @return the false positive rate implied by the proportion of bits currently set
+	 */
+	public double expectedFalsePositiveRate() {
+		long set = 0;
+		for (long word : bits)
+			set += Long.bitCount(word);
+		return Math.pow(set / (double) bitCount, hashCount);
+	}
+	
+	public boolean isEmpty() {
+		for (long word : bits)
+			if (word != 0)
+				return false;
+		return true;
+	}
+	
+	public long bitCount() {
+		return bitCount;
+	}
+	
+	public int hashCount() {
+		return hashCount;
+	}
+	
+	/**
+	 * adds every value added to <code>that</code> to this filter
+	 */
+	public void merge(BloomSet<? extends V> that) {
+		checkMergeable(that, bitCount == that.bitCount && hashCount == that.hashCount);
+		for (int i = 0 ; i != bits.length ; i++)
+			bits[i] |= that.bits[i];
+	}
+	
+	public BloomSet<V> copy() {
+		final BloomSet<V> copy = new BloomSet<V>(bitCount, hashCount, rehasher, equality);
+		copy.merge(this);
+		return copy;
+	}
+	
+	public void clear() {
+		Arrays.fill(bits, 0);
+	}
+	
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.sketches;
+
+import java.util.Arrays;
+
+import org.jjoost.collections.base.SerialHashStore;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Equality;
+import org.jjoost.util.Rehasher;
+
+/**
+ * A count-min sketch, estimating the number of occurrences of each value added to it in memory fixed at construction.
+ * <code>count(v)</code> never underestimates; with probability <code>confidence</code> it overestimates by no more
+ * than <code>epsilon</code> times the total number of occurrences added.
+ * <p>
+ * The sketch is not thread safe. Sketches built separately, by different threads or on different machines, with the
+ * same dimensions and hashing, may be combined with <code>merge()</code>, and are equivalent to a single sketch of
+ * their combined input.
+ * 
+ * @author b.elliottsmith
+ */
+public class CountMinMultiSet<V> extends AbstractSketch<V> {
+
+	private static final long serialVersionUID = 3468932150387641522L;
+	
+	private final int width;
+	private final int depth;
+	private final long[] counts;
+	private long totalCount;
+	
+	/**
+	 * @param epsilon the error bound, as a fraction of the total number of occurrences
+	 * @param confidence the probability the error bound holds for any given value
+	 */
+	public CountMinMultiSet(double epsilon, double confidence) {
+		this(epsilon, confidence, SerialHashStore.defaultRehasher(), Equalities.object());
+	}
+	public CountMinMultiSet(double epsilon, double confidence, Rehasher rehasher, Equality<? super V> equality) {
+		this(width(epsilon), depth(confidence), rehasher, equality);
+	}
+	/**
+	 * @param width the number of counters in each row, which is rounded up to a power of two
+	 * @param depth the number of rows
+	 */
+	public CountMinMultiSet(int width, int depth, Rehasher rehasher, Equality<? super V> equality) {
+		super(rehasher, equality);
+		if (width <= 0 || depth <= 0)
+			throw new IllegalArgumentException("width and depth must be greater than zero");
+		int w = 1;
+		while (w < width && w != 1 << 30)
+			w <<= 1;
+		if ((long) w * depth > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("width * depth must be less than 2^31");
+		this.width = w;
+		this.depth = depth;
+		this.counts = new long[w * depth];
+	}
+	
+	private static int width(double epsilon) {
+		if (epsilon <= 0 || epsilon >= 1)
+			throw new IllegalArgumentException("epsilon must be between zero and one");
+		return (int) Math.ceil(Math.E / epsilon);
+	}
+	
+	private static int depth(double confidence) {
+		if (confidence <= 0 || confidence >= 1)
+			throw new IllegalArgumentException("confidence must be between zero and one");
+		return (int) Math.ceil(Math.log(1 / (1 - confidence)));
+	}
+	
+	public void put(V val) {
+		add(val, 1);
+	}
+	
+	public void put(V val, int numberOfTimes) {
+		add(val, numberOfTimes);
+	}
+	
+	public void add(V val, long numberOfTimes) {
+		if (numberOfTimes < 0)
+			throw new IllegalArgumentException("Cannot add less than zero occurrences");
+		final int h1 = hash(val), h2 = hash2(h1);
+		final int mask = width - 1;
+		for (int row = 0 ; row != depth ; row++)
+			counts[row * width + ((h1 + row * h2) & mask)] += numberOfTimes;
+		totalCount += numberOfTimes;
+	}
+	
+	/**
+	 * @return an estimate of the number of occurrences of <code>val</code>, which is never less than the true number
+	 */
+	public long longCount(V val) {
+		final int h1 = hash(val), h2 = hash2(h1);
+		final int mask = width - 1;
+		long count = Long.MAX_VALUE;
+		for (int row = 0 ; row != depth ; row++)
+			count = Math.min(count, counts[row * width + ((h1 + row * h2) & mask)]);
+		return count;
+	}
+	
+	public int count(V val) {
+		return (int) Math.min(Integer.MAX_VALUE, longCount(val));
+	}
+	
+	public boolean contains(V val) {
+		return longCount(val) > 0;
+	}
+	
+	/**
+	 * @return the exact number of occurrences added
+	 */
+	public long totalCount() {
+		return totalCount;
+	}
+	
+	public boolean isEmpty() {
+		return totalCount == 0;
+	}
+	
+	public int width() {
+		return width;
+	}
+	
+	public int depth() {
+		return depth;
+	}
+	
+	/**
+	 * adds the occurrences counted by <code>that</code> to this sketch
+	 */
+	public void merge(CountMinMultiSet<? extends V> that) {
+		checkMergeable(that, width == that.width && depth == that.depth);
+		for (int i = 0 ; i != counts.length ; i++)
+			counts[i] += that.counts[i];
+		totalCount += that.totalCount;
+	}
+	
+	public CountMinMultiSet<V> copy() {
+		final CountMinMultiSet<V> copy = new CountMinMultiSet<V>(width, depth, rehasher, equality);
+		copy.merge(this);
+		return copy;
+	}
+	
+	public void clear() {
+		Arrays.fill(counts, 0);
+		totalCount = 0;
+	}
+	
+}
@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.sketches;
+
+import java.util.Arrays;
+
+import org.jjoost.collections.base.SerialHashStore;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Equality;
+import org.jjoost.util.Rehasher;
+
+/**
+ * A HyperLogLog sketch, estimating the number of distinct values added to it in <code>2^precision</code> bytes.
+ * The relative standard error of <code>uniqueCount()</code> is around <code>1.04 / sqrt(2^precision)</code>, so
+ * that the default precision of 14 gives an error of around 0.8% in 16KiB. Since values are hashed to 32 bits, the
+ * estimate is corrected for hash collisions as it approaches 2<sup>32</sup>, loses accuracy beyond around a
+ * billion distinct values, and saturates once the sketch is consistent with every hash having been seen.
+ * <p>
+ * The sketch is not thread safe. Sketches built separately with the same precision and hashing may be combined with
+ * <code>merge()</code>, and are equivalent to a single sketch of their combined input.
+ * 
+ * @author b.elliottsmith
+ */
+public class HyperLogLog<V> extends AbstractSketch<V> {
+
+	private static final long serialVersionUID = -4391305638245905713L;
+	
+	private static final double TWO_TO_32 = 4294967296d;
+	
+	private final int precision;
+	private final byte[] registers;
+	
+	public HyperLogLog() {
+		this(14);
+	}
+	public HyperLogLog(int precision) {
+		this(precision, SerialHashStore.defaultRehasher(), Equalities.object());
+	}
+	/**
+	 * @param precision the base two logarithm of the number of registers, between 4 and 16
+	 */
+	public HyperLogLog(int precision, Rehasher rehasher, Equality<? super V> equality) {
+		super(rehasher, equality);
+		if (precision < 4 || precision > 16)
+			throw new IllegalArgumentException("precision must be between 4 and 16");
+		this.precision = precision;
+		this.registers = new byte[1 << precision];
+	}
+	
+	/**
+	 * @return <code>true</code> if the sketch changed, in which case the value was certainly not present before
+	 */
+	public boolean add(V val) {
+		final int hash = hash(val);
+		final int register = hash >>> (32 - precision);
+		final int rank = Math.min(Integer.numberOfLeadingZeros(hash << precision), 32 - precision) + 1;
+		if (registers[register] < rank) {
+			registers[register] = (byte) rank;
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * @return an estimate of the number of distinct values added
+	 */
+	public long uniqueCount() {
+		final int m = registers.length;
+		double sum = 0;
+		int zeros = 0;
+		for (byte register : registers) {
+			sum += 1d / (1L << register);
+			if (register == 0)
+				zeros++;
+		}
+		double estimate = alpha(m) * m * m / sum;
+		if (estimate <= 2.5 * m) {
+			if (zeros != 0)
+				estimate = m * Math.log(m / (double) zeros);
+		} else if (estimate > TWO_TO_32 / 30) {
+			// the correction diverges as the raw estimate reaches 2^32, so the raw estimate is taken to be at most 2^32 less
+			// the standard error, beyond which the sketch cannot distinguish larger cardinalities
+			estimate = -TWO_TO_32 * Math.log(Math.max(1 - estimate / TWO_TO_32, relativeError()));
+		}
+		return Math.round(estimate);
+	}
+	
+	private static double alpha(int m) {
+		switch (m) {
+		case 16:
+			return 0.673;
+		case 32:
+			return 0.697;
+		case 64:
+			return 0.709;
+		default:
+			return 0.7213 / (1 + 1.079 / m);
+		}
+	}
+	
+	public boolean isEmpty() {
+		for (byte register : registers)
+			if (register != 0)
+				return false;
+		return true;
+	}
+	
+	public int precision() {
+		return precision;
+	}
+	
+	/**
+	 * @return the relative standard error of <code>uniqueCount()</code>
+	 */
+	public double relativeError() {
+		return 1.04 / Math.sqrt(registers.length);
+	}
+	
+	/**
+	 * adds every value added to <code>that</code> to this sketch
+	 */
+	public void merge(HyperLogLog<? extends V> that) {
+		checkMergeable(that, precision == that.precision);
+		for (int i = 0 ; i != registers.length ; i++)
+			if (registers[i] < that.registers[i])
+				registers[i] = that.registers[i];
+	}
+	
+	public HyperLogLog<V> copy() {
+		final HyperLogLog<V> copy = new HyperLogLog<V>(precision, rehasher, equality);
+		copy.merge(this);
+		return copy;
+	}
+	
+	public void clear() {
+		Arrays.fill(registers, (byte) 0);
+	}
+	
+}
@@ -0,0 +1,48 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.util;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+/**
+ * A simple interface defining how values are serialised to, and read back from, a <code>ByteBuffer</code>; used by
+ * collections that keep their contents off heap. Encodings must be self-delimiting, i.e. <code>read()</code> must
+ * consume exactly the bytes that <code>write()</code> produced.
+ * 
+ * @author b.elliottsmith
+ */
+public interface Codec<V> extends Serializable {
+
+	/**
+	 * write the value at the buffer's current position, advancing it; a <code>BufferOverflowException</code> may be
+	 * thrown if the buffer is too small, in which case the caller will retry with a larger buffer
+	 */
+	public void write(V value, ByteBuffer buf);
+
+	/**
+	 * read a value from the buffer's current position, advancing it past the value
+	 */
+	public V read(ByteBuffer buf);
+
+}
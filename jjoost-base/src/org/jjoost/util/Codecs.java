@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A collection of default implementations of <code>Codec</code>
+ * 
+ * @author b.elliottsmith
+ */
+public class Codecs {
+
+	/**
+	 * Return a Codec that writes a <code>String</code> (which may be <code>null</code>) as its length followed by its UTF-8 bytes
+	 * @return a Codec for <code>String</code>
+	 */
+	public static Codec<String> utf8() { return UTF8 ; }
+	private static final Codec<String> UTF8 = new Utf8Codec();
+	private static final class Utf8Codec implements Codec<String> {
+		private static final long serialVersionUID = -4106451793364209617L;
+		@Override
+		public void write(String value, ByteBuffer buf) {
+			if (value == null) {
+				buf.putInt(-1);
+				return;
+			}
+			final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			buf.putInt(bytes.length);
+			buf.put(bytes);
+		}
+		@Override
+		public String read(ByteBuffer buf) {
+			final int length = buf.getInt();
+			if (length < 0)
+				return null;
+			final byte[] bytes = new byte[length];
+			buf.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * Return a Codec that writes a non-null <code>Long</code> as eight bytes
+	 * @return a Codec for <code>Long</code>
+	 */
+	public static Codec<Long> longs() { return LONGS ; }
+	private static final Codec<Long> LONGS = new LongCodec();
+	private static final class LongCodec implements Codec<Long> {
+		private static final long serialVersionUID = 2830918409861224536L;
+		@Override
+		public void write(Long value, ByteBuffer buf) {
+			buf.putLong(value.longValue());
+		}
+		@Override
+		public Long read(ByteBuffer buf) {
+			return Long.valueOf(buf.getLong());
+		}
+	}
+
+	/**
+	 * Return a Codec that writes a non-null <code>Integer</code> as four bytes
+	 * @return a Codec for <code>Integer</code>
+	 */
+	public static Codec<Integer> integers() { return INTEGERS ; }
+	private static final Codec<Integer> INTEGERS = new IntegerCodec();
+	private static final class IntegerCodec implements Codec<Integer> {
+		private static final long serialVersionUID = -7301427310961582744L;
+		@Override
+		public void write(Integer value, ByteBuffer buf) {
+			buf.putInt(value.intValue());
+		}
+		@Override
+		public Integer read(ByteBuffer buf) {
+			return Integer.valueOf(buf.getInt());
+		}
+	}
+
+}
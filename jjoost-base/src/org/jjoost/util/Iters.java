@@ -42,6 +42,7 @@ import org.jjoost.collections.iters.HeadClosableIterator;
 import org.jjoost.collections.iters.HeadIterable;
 import org.jjoost.collections.iters.HeadIterator;
 import org.jjoost.collections.iters.OnceIterable;
+import org.jjoost.collections.iters.Pipeline;
 
 /**
  * A class declaring useful methods for working with <code>Iterator</code> and <code>Iterable</code> objects
@@ -379,7 +380,32 @@ public class Iters {
 	 *         <code>Iterator</code>
 	 */
 	public static <E> ConcatIterator<E> concat(Iterator<? extends Iterator<E>> a) {
-		return new ConcatIterator<E>(a);
+		return new ConcatIterator<E>(a);
+	}
+	
+	/**
+	 * Returns a <code>Pipeline</code> over the provided <code>Iterable</code>, to which filter, map, drop and head stages
+	 * may be added and then run as a single loop, without the per element overhead of the equivalent chain of wrapping
+	 * <code>Iterator</code> objects. If the <code>Iterable</code> was created by <code>concat()</code> its members are
+	 * visited directly.
+	 * 
+	 * @param source
+	 *            an <code>Iterable</code>
+	 * @return a <code>Pipeline</code> with no stages over the provided <code>Iterable</code>
+	 */
+	public static <E> Pipeline<E> pipeline(Iterable<? extends E> source) {
+		return Pipeline.of(source);
+	}
+	
+	/**
+	 * Returns a one-shot <code>Pipeline</code> over the provided <code>Iterator</code>
+	 * 
+	 * @param source
+	 *            an <code>Iterator</code>
+	 * @return a <code>Pipeline</code> with no stages, which may be run only once, over the provided <code>Iterator</code>
+	 */
+	public static <E> Pipeline<E> pipeline(Iterator<E> source) {
+		return Pipeline.of(new OnceIterable<E>(source));
 	}
 	
 	/**
@@ -502,7 +528,7 @@ public class Iters {
 	 * @return an <code>Iterator</code> returning <b>all but</b> the first <code>count</code> elements of the supplied <code>Iterator</code>
 	 */
     public static <E> Iterator<E> drop(Iterator<E> iter, int count) {
-    	while (iter.hasNext() && count > 0)
+    	while (iter.hasNext() && count-- > 0)
     		iter.next();
     	return iter;
     }
@@ -518,7 +544,7 @@ public class Iters {
 	 * @return an <code>Iterator</code> returning <b>all but</b> the first <code>count</code> elements of the supplied <code>Iterator</code>
 	 */
     public static <E> Iterator<E> drop(int count, Iterator<E> iter) {
-    	while (iter.hasNext() && count > 0)
+    	while (iter.hasNext() && count-- > 0)
     		iter.next();
     	return iter;
     }
@@ -534,7 +560,7 @@ public class Iters {
 	 * @return an <code>Iterator</code> returning <b>all but</b> the first <code>count</code> elements of the supplied <code>Iterator</code>
 	 */
     public static <E> ClosableIterator<E> drop(ClosableIterator<E> iter, int count) {
-    	while (iter.hasNext() && count > 0)
+    	while (iter.hasNext() && count-- > 0)
     		iter.next();
     	return iter;
     }
@@ -550,7 +576,7 @@ public class Iters {
      * @return an <code>Iterator</code> returning <b>all but</b> the first <code>count</code> elements of the supplied <code>Iterator</code>
      */
     public static <E> ClosableIterator<E> drop(int count, ClosableIterator<E> iter) {
-    	while (iter.hasNext() && count > 0)
+    	while (iter.hasNext() && count-- > 0)
     		iter.next();
     	return iter;
     }
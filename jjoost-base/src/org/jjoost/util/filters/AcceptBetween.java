@@ -49,8 +49,8 @@ public class AcceptBetween<E extends Comparable<? super E>> extends PartialOrder
 
 	@Override
 	public boolean accept(E test) {
-		return (lb == null || lb.compareTo(test) < lbOffsetIfUbInclusive)
-			&& (ub == null || test.compareTo(ub) < ubOffsetIfLbInclusive);
+		return (lb == null || lb.compareTo(test) < (lbIsInclusive ? 1 : 0))
+			&& (ub == null || test.compareTo(ub) < (ubIsInclusive ? 1 : 0));
 	}
 
     /**
@@ -36,8 +36,8 @@ public class PartialOrderAcceptBetween<E> implements FilterPartialOrder<E> {
 
 	final E lb;
 	final E ub;
-	final int lbOffsetIfUbInclusive;
-	final int ubOffsetIfLbInclusive;
+	final boolean lbIsInclusive;
+	final boolean ubIsInclusive;
 
     /**
      * Constructs a new filter that accepts everything between the provided lower and upper bounds, as determined by the <code>Comparator</code> provided to its methods. 
@@ -56,26 +56,26 @@ public class PartialOrderAcceptBetween<E> implements FilterPartialOrder<E> {
 		super();
 		this.lb = lb;
 		this.ub = ub;
-		lbOffsetIfUbInclusive = lbIsInclusive ? 1 : 0;
-		ubOffsetIfLbInclusive = ubIsInclusive ? 1 : 0;
+		this.lbIsInclusive = lbIsInclusive;
+		this.ubIsInclusive = ubIsInclusive;
 	}
 
 	@Override
 	public boolean accept(E test, Comparator<? super E> cmp) {
-		return (lb == null || cmp.compare(test, lb) > lbOffsetIfUbInclusive)
-				&& (ub == null || cmp.compare(test, ub) < ubOffsetIfLbInclusive);
+		return (lb == null || cmp.compare(test, lb) > (lbIsInclusive ? -1 : 0))
+				&& (ub == null || cmp.compare(test, ub) < (ubIsInclusive ? 1 : 0));
 	}
 
 	@Override
 	public boolean mayAcceptBetween(E lb, boolean lbInclusive, E ub, boolean ubInclusive, Comparator<? super E> cmp) {
-		return (this.lb == null || ub == null || cmp.compare(this.lb, ub) < (lbInclusive ? lbOffsetIfUbInclusive : 0))
-				&& (this.ub == null || lb == null || cmp.compare(lb, this.ub) < (ubInclusive ? ubOffsetIfLbInclusive : 0));
+		return (this.lb == null || ub == null || cmp.compare(ub, this.lb) > (ubInclusive && lbIsInclusive ? -1 : 0))
+				&& (this.ub == null || lb == null || cmp.compare(lb, this.ub) < (lbInclusive && ubIsInclusive ? 1 : 0));
 	}
 
 	@Override
 	public boolean mayRejectBetween(E lb, boolean lbInclusive, E ub, boolean ubInclusive, Comparator<? super E> cmp) {
-		return (lb == null || (this.lb != null && cmp.compare(lb, this.lb) < (lbInclusive ? 0 : lbOffsetIfUbInclusive)))
-		|| (ub == null || (this.ub != null && cmp.compare(this.ub, ub) < (ubInclusive ? 0 : ubOffsetIfLbInclusive )));
+		return (this.lb != null && (lb == null || cmp.compare(lb, this.lb) < (lbInclusive && !lbIsInclusive ? 1 : 0)))
+			|| (this.ub != null && (ub == null || cmp.compare(ub, this.ub) > (ubInclusive && !ubIsInclusive ? -1 : 0)));
 	}
 	
     /**
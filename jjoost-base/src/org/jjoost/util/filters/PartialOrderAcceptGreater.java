@@ -50,12 +50,12 @@ public class PartialOrderAcceptGreater<E> implements FilterPartialOrder<E> {
 
 	@Override
 	public boolean accept(E test, Comparator<? super E> cmp) {
-		return cmp.compare(than, test) > 0;
+		return cmp.compare(test, than) > 0;
 	}
 
 	@Override
 	public boolean mayAcceptBetween(E lb, boolean lbInclusive, E ub, boolean ubInclusive, Comparator<? super E> cmp) {
-		return ub == null || cmp.compare(than, ub) > 0;
+		return ub == null || cmp.compare(ub, than) > 0;
 	}
 
 	@Override
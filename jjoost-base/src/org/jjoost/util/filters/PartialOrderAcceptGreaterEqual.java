@@ -50,13 +50,13 @@ public class PartialOrderAcceptGreaterEqual<E> implements FilterPartialOrder<E>
 
 	@Override
 	public boolean accept(E test, Comparator<? super E> cmp) {
-		return cmp.compare(than, test) >= 0;
+		return cmp.compare(test, than) >= 0;
 	}
 
 	@Override
 	public boolean mayAcceptBetween(E lb, boolean lbInclusive, E ub, boolean ubInclusive, Comparator<? super E> cmp) {
 		final int offset = ubInclusive ? -1 : 0;
-		return ub == null || cmp.compare(than, ub) > offset;
+		return ub == null || cmp.compare(ub, than) > offset;
 	}
 	
 	@Override
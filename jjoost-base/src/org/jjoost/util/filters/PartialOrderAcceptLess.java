@@ -59,7 +59,7 @@ public class PartialOrderAcceptLess<E> implements FilterPartialOrder<E> {
 	@Override
 	public boolean mayRejectBetween(E lb, boolean lbInclusive, E ub, boolean ubInclusive, Comparator<? super E> cmp) {
 		final int offset = ubInclusive ? -1 : 0;
-		return ub == null || cmp.compare(than, ub) > offset;
+		return ub == null || cmp.compare(ub, than) > offset;
 	}
 
     /**
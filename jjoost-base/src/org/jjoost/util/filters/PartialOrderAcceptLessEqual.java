@@ -63,7 +63,7 @@ public class PartialOrderAcceptLessEqual<E> implements FilterPartialOrder<E> {
 
 	@Override
 	public boolean mayRejectBetween(E lb, boolean lbInclusive, E ub, boolean ubInclusive, Comparator<? super E> cmp) {
-		return ub == null || cmp.compare(than, ub) > 0;
+		return ub == null || cmp.compare(ub, than) > 0;
 	}
 	
     /**
@@ -61,14 +61,19 @@ public class PartialOrderOverride<S, T> implements FilterPartialOrder<T> {
 		this.f = f;
 	}
 
+	// null bounds represent +/- infinity, so must be passed through rather than to the function
+	private S apply(T bound) {
+		return bound == null ? null : f.apply(bound);
+	}
+	
 	@Override
 	public boolean mayAcceptBetween(T lb, boolean lbInclusive, T ub, boolean ubInclusive, Comparator<? super T> _) {
-		return underlying.mayAcceptBetween(f.apply(lb), lbInclusive, f.apply(ub), ubInclusive, cmp);
+		return underlying.mayAcceptBetween(apply(lb), lbInclusive, apply(ub), ubInclusive, cmp);
 	}
 
 	@Override
 	public boolean mayRejectBetween(T lb, boolean lbInclusive, T ub, boolean ubInclusive, Comparator<? super T> _) {
-		return underlying.mayRejectBetween(f.apply(lb), lbInclusive, f.apply(ub), ubInclusive, cmp);
+		return underlying.mayRejectBetween(apply(lb), lbInclusive, apply(ub), ubInclusive, cmp);
 	}
 	
 	@Override
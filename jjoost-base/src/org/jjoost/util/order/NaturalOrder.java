@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.util.order;
+
+import java.io.Serializable;
+import java.util.Comparator;
+
+/**
+ * A <code>Comparator</code> that delegates to the <code>compareTo()</code> method of its (<code>Comparable</code>) arguments
+ * 
+ * @author b.elliottsmith
+ */
+public final class NaturalOrder<E extends Comparable<? super E>> implements Comparator<E>, Serializable {
+
+	private static final long serialVersionUID = -6173460592307562541L;
+	
+	@SuppressWarnings("rawtypes")
+	private static final NaturalOrder INSTANCE = new NaturalOrder();
+
+	@Override
+	public int compare(E a, E b) {
+		return a.compareTo(b);
+	}
+
+	@SuppressWarnings("unchecked")
+	public static <E extends Comparable<? super E>> NaturalOrder<E> get() {
+		return INSTANCE;
+	}
+	
+	private Object readResolve() {
+		return INSTANCE;
+	}
+	
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.util.tuples;
+
+import org.jjoost.util.Objects;
+
+/**
+ * A simple immutable implementation of <code>Pair</code>
+ * 
+ * @author b.elliottsmith
+ */
+public final class ImmutablePair<A, B> implements Pair<A, B> {
+
+	private static final long serialVersionUID = 4817025478163593842L;
+
+	private final A first;
+	private final B second;
+	
+	public ImmutablePair(A first, B second) {
+		this.first = first;
+		this.second = second;
+	}
+	
+	public A first() {
+		return first;
+	}
+
+	public B second() {
+		return second;
+	}
+	
+	@Override
+	public int hashCode() {
+		return (first == null ? 0 : first.hashCode() * 31) ^ (second == null ? 0 : second.hashCode());
+	}
+
+	@Override
+	public boolean equals(Object that) {
+		return that instanceof Pair && equals((Pair<?, ?>) that);
+	}
+	
+	public boolean equals(Pair<?, ?> that) {
+		return Objects.equalQuick(this.first, that.first()) && Objects.equalQuick(this.second, that.second());
+	}
+	
+	public String toString() {
+		return "(" + first + ", " + second + ")";
+	}
+	
+}
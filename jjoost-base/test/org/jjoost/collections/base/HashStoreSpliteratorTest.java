@@ -0,0 +1,95 @@
+package org.jjoost.collections.base;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import junit.framework.TestCase;
+
+import org.jjoost.collections.AnyReadSet;
+import org.jjoost.collections.maps.serial.SerialHashMap;
+import org.jjoost.collections.maps.serial.SerialLinkedHashMap;
+import org.jjoost.collections.sets.concurrent.LockFreeHashSet;
+import org.jjoost.collections.sets.concurrent.StripedHashSet;
+import org.jjoost.collections.sets.serial.OpenHashSet;
+import org.jjoost.collections.sets.serial.SerialCountingMultiHashSet;
+import org.jjoost.collections.sets.serial.SerialHashSet;
+
+public class HashStoreSpliteratorTest extends TestCase {
+
+	private static final int COUNT = 50000;
+
+	// the parallel stream must visit exactly what the iterator does
+	private static void check(AnyReadSet<Integer> set) {
+		final List<Integer> expect = new ArrayList<Integer>();
+		for (Integer i : set)
+			expect.add(i);
+		final List<Integer> sequential = set.stream().sorted().collect(Collectors.toList());
+		final List<Integer> parallel = set.parallelStream().sorted().collect(Collectors.toList());
+		java.util.Collections.sort(expect);
+		assertEquals(expect, sequential);
+		assertEquals(expect, parallel);
+	}
+
+	public void testSerialHashSet() {
+		final SerialHashSet<Integer> set = new SerialHashSet<Integer>();
+		for (int i = 0 ; i != COUNT ; i++)
+			set.add(i * 31);
+		check(set);
+		final Spliterator<Integer> split = set.spliterator();
+		assertTrue(split.hasCharacteristics(Spliterator.SIZED | Spliterator.DISTINCT));
+		assertEquals(COUNT, split.getExactSizeIfKnown());
+		final Spliterator<Integer> prefix = split.trySplit();
+		assertNotNull(prefix);
+		assertFalse(split.hasCharacteristics(Spliterator.SIZED));
+	}
+
+	public void testOpenHashSet() {
+		final OpenHashSet<Integer> set = new OpenHashSet<Integer>();
+		for (int i = 0 ; i != COUNT ; i++)
+			set.add(i);
+		check(set);
+	}
+
+	public void testConcurrentSets() {
+		final LockFreeHashSet<Integer> lockFree = new LockFreeHashSet<Integer>();
+		final StripedHashSet<Integer> striped = new StripedHashSet<Integer>();
+		for (int i = 0 ; i != COUNT ; i++) {
+			lockFree.add(i);
+			striped.add(i);
+		}
+		check(lockFree);
+		check(striped);
+		assertTrue(lockFree.spliterator().hasCharacteristics(Spliterator.CONCURRENT));
+	}
+
+	public void testCountingMultiSet() {
+		final SerialCountingMultiHashSet<Integer> set = new SerialCountingMultiHashSet<Integer>();
+		for (int i = 0 ; i != COUNT ; i++)
+			set.add(i % 1000);
+		check(set);
+		assertEquals(COUNT, set.parallelStream().count());
+		assertEquals(1000, set.parallelStream().distinct().count());
+	}
+
+	public void testMaps() {
+		final SerialHashMap<Integer, Integer> map = new SerialHashMap<Integer, Integer>();
+		final SerialLinkedHashMap<Integer, Integer> linked = new SerialLinkedHashMap<Integer, Integer>();
+		for (int i = 0 ; i != COUNT ; i++) {
+			map.put(i, -i);
+			linked.put(COUNT - i, i);
+		}
+		check(map.keys());
+		check(map.values());
+		assertEquals(COUNT, map.parallelStream().count());
+		// a linked map streams in insertion order
+		final Iterator<Entry<Integer, Integer>> expect = linked.entries().iterator();
+		for (Entry<Integer, Integer> e : linked.stream().collect(Collectors.toList()))
+			assertEquals(expect.next().getKey(), e.getKey());
+		assertTrue(linked.entries().spliterator().hasCharacteristics(Spliterator.ORDERED));
+	}
+
+}
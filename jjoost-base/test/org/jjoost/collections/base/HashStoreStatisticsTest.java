@@ -0,0 +1,167 @@
+package org.jjoost.collections.base;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+
+import org.jjoost.collections.Map;
+import org.jjoost.collections.MapMaker;
+import org.jjoost.collections.Set;
+import org.jjoost.collections.SetMaker;
+import org.jjoost.collections.maps.serial.SerialHashMap;
+import org.jjoost.collections.sets.concurrent.LockFreeHashSet;
+import org.jjoost.collections.sets.concurrent.StripedHashSet;
+import org.jjoost.collections.sets.serial.OpenHashSet;
+import org.jjoost.collections.sets.serial.SerialHashSet;
+
+public class HashStoreStatisticsTest extends TestCase {
+
+	private static final int COUNT = 10000;
+
+	// every bucket is counted once, and every node is counted in exactly one chain; for open addressing
+	// stores every empty slot is counted once, and every occupied slot in exactly one run
+	private static void checkHistogram(HashStoreStatistics stats, boolean open) {
+		final long[] chains = stats.chainLengths();
+		long buckets = 0, nodes = 0;
+		for (int i = 0 ; i != chains.length ; i++) {
+			buckets += open && i != 0 ? i * chains[i] : chains[i];
+			nodes += i * chains[i];
+		}
+		assertEquals(stats.totalCount(), nodes);
+		assertEquals(stats.capacity(), buckets);
+	}
+
+	public void testSerialMap() {
+		final SerialHashMap<Integer, Integer> map = new SerialHashMap<Integer, Integer>();
+		map.put(-1, -1);
+		assertEquals(0, map.statistics().puts());
+		map.recordStatistics(true);
+		for (int i = 0 ; i != COUNT ; i++)
+			map.put(i, i);
+		for (int i = 0 ; i != COUNT ; i++)
+			assertEquals(Integer.valueOf(i), map.get(i));
+		final HashStoreStatistics stats = map.statistics();
+		assertEquals(COUNT + 1, stats.totalCount());
+		assertEquals(COUNT, stats.puts());
+		assertTrue(stats.finds() >= COUNT);
+		assertTrue(stats.averageFindProbes() >= 1);
+		assertTrue(stats.resizes() > 0);
+		assertEquals(0, stats.casRetries());
+		checkHistogram(stats, false);
+		map.recordStatistics(false);
+		map.get(1);
+		assertEquals(0, map.statistics().finds());
+	}
+
+	public void testOpenSet() {
+		final OpenHashSet<Integer> set = new OpenHashSet<Integer>();
+		set.recordStatistics(true);
+		for (int i = 0 ; i != COUNT ; i++)
+			set.add(i * 17);
+		for (int i = 0 ; i != COUNT ; i++)
+			assertFalse(set.contains(i * 17 + 1));
+		final HashStoreStatistics stats = set.statistics();
+		assertEquals(COUNT, stats.puts());
+		assertEquals(COUNT, stats.finds());
+		assertTrue(stats.findProbes() >= COUNT);
+		checkHistogram(stats, true);
+	}
+
+	public void testConcurrentSets() throws InterruptedException {
+		final StripedHashSet<Integer> striped = new StripedHashSet<Integer>();
+		final LockFreeHashSet<Integer> lockFree = new LockFreeHashSet<Integer>();
+		striped.recordStatistics(true);
+		lockFree.recordStatistics(true);
+		final Thread[] threads = new Thread[4];
+		for (int t = 0 ; t != threads.length ; t++) {
+			final int offset = t;
+			threads[t] = new Thread() {
+				public void run() {
+					for (int i = offset ; i < COUNT ; i += threads.length) {
+						striped.add(i);
+						lockFree.add(i);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		for (Instrumented set : new Instrumented[] { striped, lockFree }) {
+			final HashStoreStatistics stats = set.statistics();
+			assertEquals(COUNT, stats.totalCount());
+			assertEquals(COUNT, stats.puts() - stats.casRetries());
+			assertTrue(stats.resizes() > 0);
+			checkHistogram(stats, false);
+		}
+	}
+
+	public void testMonitor() throws Exception {
+		final SerialHashSet<Integer> set = new SerialHashSet<Integer>();
+		final ObjectName name = HashStoreMonitor.register("test", set);
+		try {
+			for (int i = 0 ; i != 100 ; i++)
+				set.add(i);
+			assertEquals(Long.valueOf(100), ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Puts"));
+			assertEquals(Integer.valueOf(100), ManagementFactory.getPlatformMBeanServer().getAttribute(name, "TotalCount"));
+			ManagementFactory.getPlatformMBeanServer().invoke(name, "reset", null, null);
+			assertEquals(0, set.statistics().puts());
+		} finally {
+			HashStoreMonitor.unregister(name);
+		}
+	}
+
+	// a reset must never leave a concurrent modification without counters to record to
+	public void testResetDuringModification() throws InterruptedException {
+		final LockFreeHashSet<Integer> set = new LockFreeHashSet<Integer>();
+		final HashStoreMonitor monitor = new HashStoreMonitor(set);
+		set.recordStatistics(true);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		final AtomicBoolean done = new AtomicBoolean();
+		final Thread writer = new Thread() {
+			public void run() {
+				try {
+					for (int i = 0 ; !done.get() ; i++) {
+						set.add(i & 0xFFFF);
+						set.contains(i & 0xFFFF);
+						set.remove((i + 0x8000) & 0xFFFF);
+					}
+				} catch (Throwable t) {
+					failure.set(t);
+				}
+			}
+		};
+		writer.start();
+		for (int i = 0 ; i != 100000 ; i++)
+			monitor.reset();
+		done.set(true);
+		writer.join();
+		assertNull(failure.get());
+	}
+
+	public void testLockedWrappers() throws Exception {
+		for (HashStoreType type : new HashStoreType[] { HashStoreType.synchronous(), HashStoreType.readWriteLocked() }) {
+			final Map<Integer, Integer> map = MapMaker.<Integer, Integer>hash().type(type).newMap();
+			final Set<Integer> set = SetMaker.<Integer>hash().type(type).newSet();
+			final ObjectName name = HashStoreMonitor.register("locked", (Instrumented) map);
+			try {
+				((Instrumented) set).recordStatistics(true);
+				for (int i = 0 ; i != COUNT ; i++) {
+					map.put(i, i);
+					set.add(i);
+				}
+				assertEquals(Long.valueOf(COUNT), ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Puts"));
+				final HashStoreStatistics stats = ((Instrumented) set).statistics();
+				assertEquals(COUNT, stats.puts());
+				checkHistogram(stats, false);
+			} finally {
+				HashStoreMonitor.unregister(name);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,169 @@
+package org.jjoost.collections.base;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import junit.framework.TestCase;
+
+import org.jjoost.collections.AnyReadSet;
+import org.jjoost.collections.bimaps.SerialBiMapOneToOne;
+import org.jjoost.collections.maps.serial.SerialHashMap;
+import org.jjoost.collections.sets.concurrent.LockFreeHashSet;
+import org.jjoost.collections.sets.concurrent.StripedHashSet;
+import org.jjoost.collections.sets.serial.OffHeapHashSet;
+import org.jjoost.collections.sets.serial.OpenHashSet;
+import org.jjoost.collections.sets.serial.PersistentHashSet;
+import org.jjoost.collections.sets.serial.SerialCountingMultiHashSet;
+import org.jjoost.collections.sets.serial.SerialHashSet;
+import org.jjoost.collections.sets.serial.SerialLinkedHashSet;
+import org.jjoost.util.Codecs;
+import org.jjoost.util.Visitor;
+
+public class HashStoreVisitTest extends TestCase {
+
+	private static final int COUNT = 20000;
+
+	private static final class Collector<V> implements Visitor<V> {
+		final List<V> visited = new ArrayList<V>();
+		final int limit;
+		Collector(int limit) {
+			this.limit = limit;
+		}
+		@Override
+		public boolean visit(V visit) {
+			visited.add(visit);
+			return visited.size() != limit;
+		}
+	}
+
+	private static <V extends Comparable<? super V>> List<V> sorted(Iterable<V> vs) {
+		final List<V> r = new ArrayList<V>();
+		for (V v : vs)
+			r.add(v);
+		Collections.sort(r);
+		return r;
+	}
+
+	// every partitioning must visit exactly what the iterator does, and a visit must stop as soon as the visitor asks
+	private static void check(AnyReadSet<Integer> set) {
+		final List<Integer> expect = sorted(set);
+		for (int partitions = 1 ; partitions != 8 ; partitions++) {
+			final Collector<Integer> all = new Collector<Integer>(-1);
+			for (int partition = 0 ; partition != partitions ; partition++)
+				assertTrue(set.visit(partition, partitions, all));
+			assertEquals(expect, sorted(all.visited));
+		}
+		final Collector<Integer> some = new Collector<Integer>(10);
+		assertFalse(set.visit(some));
+		assertEquals(10, some.visited.size());
+		try {
+			set.visit(2, 2, some);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	public void testSerialSets() {
+		final SerialHashSet<Integer> serial = new SerialHashSet<Integer>();
+		final OpenHashSet<Integer> open = new OpenHashSet<Integer>();
+		final PersistentHashSet<Integer> persistent = new PersistentHashSet<Integer>();
+		final OffHeapHashSet<Integer> offHeap = new OffHeapHashSet<Integer>(Codecs.integers());
+		final SerialCountingMultiHashSet<Integer> multi = new SerialCountingMultiHashSet<Integer>();
+		for (int i = 0 ; i != COUNT ; i++) {
+			serial.add(i * 31);
+			open.add(i);
+			persistent.add(i);
+			offHeap.add(i);
+			multi.add(i % 1000);
+		}
+		check(serial);
+		check(open);
+		check(persistent);
+		check(offHeap);
+		check(multi);
+	}
+
+	public void testLinkedSetVisitsInInsertionOrder() {
+		final SerialLinkedHashSet<Integer> set = new SerialLinkedHashSet<Integer>();
+		for (int i = 0 ; i != COUNT ; i++)
+			set.add(COUNT - i);
+		check(set);
+		final Collector<Integer> visited = new Collector<Integer>(-1);
+		set.visit(visited);
+		final Iterator<Integer> expect = set.iterator();
+		for (Integer i : visited.visited)
+			assertEquals(expect.next(), i);
+	}
+
+	public void testConcurrentSets() {
+		final LockFreeHashSet<Integer> lockFree = new LockFreeHashSet<Integer>();
+		final StripedHashSet<Integer> striped = new StripedHashSet<Integer>();
+		for (int i = 0 ; i != COUNT ; i++) {
+			lockFree.add(i);
+			striped.add(i);
+		}
+		check(lockFree);
+		check(striped);
+	}
+
+	// whilst the table grows underneath a visit, every value present throughout must still be visited exactly once
+	public void testLockFreeVisitDuringGrowth() throws InterruptedException {
+		final LockFreeHashSet<Integer> set = new LockFreeHashSet<Integer>();
+		for (int i = 0 ; i != COUNT ; i++)
+			set.add(i);
+		final AtomicBoolean done = new AtomicBoolean();
+		final Thread writer = new Thread() {
+			@Override
+			public void run() {
+				for (int i = COUNT ; !done.get() && i != COUNT * 50 ; i++)
+					set.add(i);
+			}
+		};
+		writer.start();
+		try {
+			for (int round = 0 ; round != 10 ; round++) {
+				final int[] seen = new int[COUNT];
+				for (int partition = 0 ; partition != 4 ; partition++) {
+					set.visit(partition, 4, new Visitor<Integer>() {
+						@Override
+						public boolean visit(Integer visit) {
+							if (visit < COUNT)
+								seen[visit]++;
+							return true;
+						}
+					});
+				}
+				for (int i = 0 ; i != COUNT ; i++)
+					assertEquals(1, seen[i]);
+			}
+		} finally {
+			done.set(true);
+			writer.join();
+		}
+	}
+
+	public void testMaps() {
+		final SerialHashMap<Integer, Integer> map = new SerialHashMap<Integer, Integer>();
+		final SerialBiMapOneToOne<Integer, Integer> bimap = new SerialBiMapOneToOne<Integer, Integer>();
+		for (int i = 0 ; i != COUNT ; i++) {
+			map.put(i, -i);
+			bimap.put(i, -i);
+		}
+		check(map.keys());
+		check(map.values());
+		check(bimap.keys());
+		final Collector<Entry<Integer, Integer>> entries = new Collector<Entry<Integer, Integer>>(-1);
+		assertTrue(map.visit(entries));
+		assertEquals(COUNT, entries.visited.size());
+		for (Entry<Integer, Integer> e : entries.visited)
+			assertEquals(-e.getKey(), e.getValue().intValue());
+		final Collector<Entry<Integer, Integer>> half = new Collector<Entry<Integer, Integer>>(-1);
+		assertTrue(bimap.visit(1, 2, half));
+		assertTrue(half.visited.size() > 0 && half.visited.size() < COUNT);
+	}
+
+}
@@ -0,0 +1,154 @@
+package org.jjoost.collections.base;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.jjoost.collections.Map;
+import org.jjoost.collections.maps.serial.SerialHashMap;
+import org.jjoost.collections.maps.serial.SerialLinkedHashMap;
+import org.jjoost.collections.sets.serial.SerialInlineMultiHashSet;
+
+public class IncrementalResizeTest extends TestCase {
+
+	private static void check(java.util.Map<Integer, Integer> expect, Map<Integer, Integer> map) {
+		assertEquals(expect.size(), map.totalCount());
+		for (Entry<Integer, Integer> e : expect.entrySet())
+			assertEquals(e.getValue(), map.get(e.getKey()));
+	}
+
+	public void testRandomOperations() {
+		final Random random = new Random(0);
+		final java.util.HashMap<Integer, Integer> expect = new java.util.HashMap<Integer, Integer>();
+		final SerialHashMap<Integer, Integer> map = new SerialHashMap<Integer, Integer>();
+		map.incrementalResize(true);
+		for (int i = 0 ; i != 200000 ; i++) {
+			final int key = random.nextInt(50000);
+			switch (random.nextInt(4)) {
+			case 0:
+				assertEquals(expect.remove(key), map.removeAndReturnFirst(key));
+				break;
+			case 1:
+				assertEquals(expect.containsKey(key), map.contains(key));
+				break;
+			default:
+				assertEquals(expect.put(key, i), map.put(key, i));
+			}
+			if (i % 20000 == 0)
+				check(expect, map);
+		}
+		check(expect, map);
+	}
+
+	// lookups, iteration and removal through an iterator must all see every node part way through a migration
+	public void testMidMigration() {
+		final SerialHashMap<Integer, Integer> map = new SerialHashMap<Integer, Integer>();
+		map.incrementalResize(true);
+		int capacity = map.capacity(), i = 0;
+		while (map.capacity() == capacity)
+			map.put(i, i++);
+		for (int j = 0 ; j != 10 ; j++)
+			map.put(i, i++);
+		for (int j = 0 ; j != i ; j++)
+			assertEquals(Integer.valueOf(j), map.get(j));
+		final List<Integer> keys = new ArrayList<Integer>();
+		for (Iterator<Integer> iter = map.keys().iterator() ; iter.hasNext() ; ) {
+			final Integer key = iter.next();
+			keys.add(key);
+			if ((key & 1) == 0)
+				iter.remove();
+		}
+		assertEquals(i, keys.size());
+		for (int j = 0 ; j != i ; j++)
+			assertEquals((j & 1) != 0, map.contains(j));
+	}
+
+	public void testMultiSetAndLinkedMap() {
+		final SerialInlineMultiHashSet<Integer> set = new SerialInlineMultiHashSet<Integer>();
+		final SerialLinkedHashMap<Integer, Integer> linked = new SerialLinkedHashMap<Integer, Integer>();
+		set.incrementalResize(true);
+		linked.incrementalResize(true);
+		for (int i = 0 ; i != 30000 ; i++) {
+			set.add(i % 7000);
+			linked.put(30000 - i, i);
+			assertEquals(i / 7000 + 1, set.count(i % 7000));
+		}
+		for (int i = 0 ; i != 7000 ; i++)
+			assertEquals(i < 2000 ? 5 : 4, set.count(i));
+		int i = 0;
+		for (Entry<Integer, Integer> e : linked.entries())
+			assertEquals(Integer.valueOf(i++), e.getValue());
+		assertEquals(30000, i);
+	}
+
+	// reads must not finish the resize, so that several threads may share a store part way through a migration
+	public void testConcurrentReadsMidMigration() throws InterruptedException {
+		final SerialHashMap<Integer, Integer> map = new SerialHashMap<Integer, Integer>();
+		map.incrementalResize(true);
+		int capacity = map.capacity(), count = 0;
+		while (map.capacity() == capacity)
+			map.put(count, count++);
+		final int total = count;
+		final List<Throwable> failures = new ArrayList<Throwable>();
+		final Thread[] readers = new Thread[4];
+		for (int t = 0 ; t != readers.length ; t++) {
+			readers[t] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int round = 0 ; round != 20 ; round++) {
+							int seen = 0;
+							for (Integer key : map.keys()) {
+								assertEquals(key, map.get(key));
+								seen++;
+							}
+							assertEquals(total, seen);
+							assertEquals(total, map.keys().stream().count());
+							assertEquals(total, map.copy().totalCount());
+							assertEquals(total, map.statistics().totalCount());
+						}
+					} catch (Throwable e) {
+						synchronized (failures) {
+							failures.add(e);
+						}
+					}
+				}
+			};
+			readers[t].start();
+		}
+		for (Thread reader : readers)
+			reader.join();
+		assertEquals(new ArrayList<Throwable>(), failures);
+		for (int j = 0 ; j != total ; j++)
+			assertEquals(Integer.valueOf(j), map.get(j));
+	}
+
+	@SuppressWarnings("unchecked")
+	public void testSerializeMidMigration() throws Exception {
+		final SerialHashMap<Integer, Integer> map = new SerialHashMap<Integer, Integer>();
+		map.incrementalResize(true);
+		final java.util.HashMap<Integer, Integer> expect = new java.util.HashMap<Integer, Integer>();
+		int capacity = map.capacity();
+		for (int i = 0 ; map.capacity() == capacity ; i++) {
+			map.put(i, -i);
+			expect.put(i, -i);
+		}
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(map);
+		out.close();
+		final SerialHashMap<Integer, Integer> copy = (SerialHashMap<Integer, Integer>) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+		check(expect, copy);
+		check(expect, map);
+		check(expect, map.copy());
+	}
+
+}
@@ -0,0 +1,94 @@
+package org.jjoost.collections.base;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+import org.jjoost.collections.sets.concurrent.LockFreeCountingMultiHashSet;
+import org.jjoost.collections.sets.concurrent.LockFreeHashSet;
+
+public class LockFreeHashStoreTest extends TestCase {
+
+	private static final int THREADS = 8;
+	private static final int PER_THREAD = 20000;
+
+	private static void runAll(List<Callable<Object>> tasks) throws Exception {
+		final ExecutorService exec = Executors.newFixedThreadPool(tasks.size());
+		try {
+			final List<Future<Object>> results = new ArrayList<Future<Object>>();
+			for (Callable<Object> task : tasks)
+				results.add(exec.submit(task));
+			for (Future<Object> result : results)
+				result.get();
+		} finally {
+			exec.shutdownNow();
+		}
+	}
+
+	public void testConcurrentPutAndRemoveWhileGrowing() throws Exception {
+		final LockFreeHashSet<Integer> set = new LockFreeHashSet<Integer>(8, 0.75f);
+		final List<Callable<Object>> puts = new ArrayList<Callable<Object>>();
+		for (int t = 0 ; t != THREADS ; t++) {
+			final int offset = t * PER_THREAD;
+			puts.add(new Callable<Object>() {
+				public Object call() {
+					for (int i = 0 ; i != PER_THREAD ; i++) {
+						assertTrue(set.add(offset + i));
+						assertTrue(set.contains(offset + i));
+					}
+					return null;
+				}
+			});
+		}
+		runAll(puts);
+		assertEquals(THREADS * PER_THREAD, set.totalCount());
+		assertEquals(THREADS * PER_THREAD, set.uniqueCount());
+		int iterated = 0;
+		for (Integer i : set) {
+			assertTrue(i.intValue() >= 0 && i.intValue() < THREADS * PER_THREAD);
+			iterated++;
+		}
+		assertEquals(THREADS * PER_THREAD, iterated);
+
+		final List<Callable<Object>> removes = new ArrayList<Callable<Object>>();
+		for (int t = 0 ; t != THREADS ; t++) {
+			final int offset = t * PER_THREAD;
+			removes.add(new Callable<Object>() {
+				public Object call() {
+					for (int i = 0 ; i < PER_THREAD ; i += 2)
+						assertEquals(1, set.remove(offset + i));
+					return null;
+				}
+			});
+		}
+		runAll(removes);
+		assertEquals(THREADS * PER_THREAD / 2, set.totalCount());
+		for (int i = 0 ; i != THREADS * PER_THREAD ; i++)
+			assertEquals(Integer.toString(i), (i & 1) == 1, set.contains(i));
+	}
+
+	public void testConcurrentCounting() throws Exception {
+		final LockFreeCountingMultiHashSet<Integer> set = new LockFreeCountingMultiHashSet<Integer>(8, 0.75f);
+		final int keys = 1000;
+		final List<Callable<Object>> puts = new ArrayList<Callable<Object>>();
+		for (int t = 0 ; t != THREADS ; t++) {
+			puts.add(new Callable<Object>() {
+				public Object call() {
+					for (int i = 0 ; i != PER_THREAD ; i++)
+						set.add(i % keys);
+					return null;
+				}
+			});
+		}
+		runAll(puts);
+		assertEquals(THREADS * PER_THREAD, set.totalCount());
+		for (int i = 0 ; i != keys ; i++)
+			assertEquals(THREADS * PER_THREAD / keys, set.count(i));
+	}
+
+}
@@ -0,0 +1,295 @@
+package org.jjoost.collections.base;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.jjoost.util.FilterPartialOrder;
+import org.jjoost.util.Filters;
+import org.jjoost.util.Function;
+import org.jjoost.util.Functions;
+import org.jjoost.util.order.NaturalOrder;
+
+public class LockFreeSkipListStoreTest extends TestCase {
+
+	private static final Function<Integer, Integer> ID = Functions.<Integer>identity();
+	private static final NaturalOrder<Integer> CMP = NaturalOrder.<Integer>get();
+	
+	// the expected contents of a non-unique store, as a count per value
+	private static void check(TreeMap<Integer, Integer> expect, LockFreeSkipListStore<Integer> store) {
+		final List<Integer> list = new ArrayList<Integer>();
+		for (Entry<Integer, Integer> e : expect.entrySet())
+			for (int i = 0 ; i != e.getValue() ; i++)
+				list.add(e.getKey());
+		assertEquals(list.size(), store.count());
+		int i = 0;
+		for (Iterator<Integer> iter = store.iterator(true, ID) ; iter.hasNext() ; )
+			assertEquals(list.get(i++), iter.next());
+		assertEquals(list.size(), i);
+		for (Iterator<Integer> iter = store.iterator(false, ID) ; iter.hasNext() ; )
+			assertEquals(list.get(--i), iter.next());
+		assertEquals(0, i);
+	}
+	
+	public void testRandomOperations() {
+		for (boolean unique : new boolean[] { true, false }) {
+			final Random random = new Random(0);
+			final TreeMap<Integer, Integer> expect = new TreeMap<Integer, Integer>();
+			final LockFreeSkipListStore<Integer> store = new LockFreeSkipListStore<Integer>(CMP, unique);
+			for (int i = 0 ; i != 100000 ; i++) {
+				final Integer v = random.nextInt(2000);
+				final Integer count = expect.get(v);
+				switch (random.nextInt(8)) {
+				case 0:
+				case 1:
+					assertEquals(count == null ? 0 : count.intValue(), store.remove(v, ID, CMP, false));
+					expect.remove(v);
+					break;
+				case 2:
+					assertEquals(expect.ceilingKey(v), store.ceil(v, ID, CMP, false, ID));
+					assertEquals(expect.floorKey(v), store.floor(v, ID, CMP, false, ID));
+					assertEquals(expect.higherKey(v), store.greater(v, ID, CMP, false, ID));
+					assertEquals(expect.lowerKey(v), store.lesser(v, ID, CMP, false, ID));
+					assertEquals(count == null ? 0 : count.intValue(), store.count(v, ID, CMP, false));
+					int rank = 0;
+					for (Integer k : expect.headMap(v).values())
+						rank += k;
+					assertEquals(rank, store.rank(v, ID, CMP));
+					assertEquals(expect.ceilingKey(v), store.select(rank, ID));
+					break;
+				case 3:
+					final FilterPartialOrder<Integer> filter = Filters.isBetween(v, v + 100);
+					int c = 0;
+					for (Integer k : expect.subMap(v, v + 100).values())
+						c += k;
+					assertEquals(c, store.count(filter, ID, CMP, false));
+					Integer ceil = expect.ceilingKey(v + 50);
+					if (ceil != null && ceil >= v + 100)
+						ceil = null;
+					assertEquals(ceil, store.ceil(v + 50, ID, CMP, false, ID, CMP, false, filter, ID));
+					Integer floor = expect.floorKey(v + 200);
+					if (floor != null && floor >= v + 100)
+						floor = expect.lowerKey(v + 100);
+					if (floor != null && floor < v)
+						floor = null;
+					assertEquals(floor, store.floor(v + 200, ID, CMP, false, ID, CMP, false, filter, ID));
+					break;
+				default:
+					if (unique) {
+						store.put(v, ID);
+						expect.put(v, 1);
+					} else {
+						store.put(v, ID);
+						expect.put(v, count == null ? 1 : count + 1);
+					}
+				}
+				if (i % 10000 == 0)
+					check(expect, store);
+			}
+			check(expect, store);
+		}
+	}
+	
+	private static final int THREADS = 8;
+	private static final int PER_THREAD = 20000;
+
+	private static void runAll(List<Callable<Object>> tasks) throws Exception {
+		final ExecutorService exec = Executors.newFixedThreadPool(tasks.size());
+		try {
+			final List<Future<Object>> results = new ArrayList<Future<Object>>();
+			for (Callable<Object> task : tasks)
+				results.add(exec.submit(task));
+			for (Future<Object> result : results)
+				result.get();
+		} finally {
+			exec.shutdownNow();
+		}
+	}
+	
+	// iterators must visit live values in order, and never a value that was deleted before they started
+	public void testConcurrentPutRemoveAndIterate() throws Exception {
+		final LockFreeSkipListStore<Integer> store = new LockFreeSkipListStore<Integer>(CMP, true);
+		final List<Callable<Object>> puts = new ArrayList<Callable<Object>>();
+		for (int t = 0 ; t != THREADS ; t++) {
+			final int offset = t;
+			puts.add(new Callable<Object>() {
+				public Object call() {
+					for (int i = 0 ; i != PER_THREAD ; i++) {
+						final Integer v = i * THREADS + offset;
+						assertNull(store.putIfAbsent(v, ID));
+						assertTrue(store.contains(v, ID, CMP, true));
+					}
+					return null;
+				}
+			});
+		}
+		runAll(puts);
+		assertEquals(THREADS * PER_THREAD, store.count());
+		int i = 0;
+		for (Iterator<Integer> iter = store.iterator(true, ID) ; iter.hasNext() ; )
+			assertEquals(Integer.valueOf(i++), iter.next());
+		assertEquals(THREADS * PER_THREAD, i);
+		
+		final List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		for (int t = 0 ; t != THREADS ; t++) {
+			final int offset = t;
+			if ((t & 1) == 0) {
+				tasks.add(new Callable<Object>() {
+					public Object call() {
+						for (int i = 0 ; i < PER_THREAD ; i++) {
+							final Integer v = i * THREADS + offset;
+							assertEquals(v, store.removeAndReturnFirst(v, ID, CMP, true, ID));
+						}
+						return null;
+					}
+				});
+			} else {
+				tasks.add(new Callable<Object>() {
+					public Object call() {
+						final boolean asc = (offset & 2) == 0;
+						final FilterPartialOrder<Integer> filter = Filters.isBetween(offset * 1000, offset * 10000);
+						for (int r = 0 ; r != 10 ; r++) {
+							Integer prev = null;
+							for (Iterator<Integer> iter = store.all(asc, filter, ID, CMP, true, ID) ; iter.hasNext() ; ) {
+								final Integer next = iter.next();
+								assertTrue(filter.accept(next, CMP));
+								if (prev != null)
+									assertTrue(asc ? prev < next : prev > next);
+								prev = next;
+							}
+						}
+						return null;
+					}
+				});
+			}
+		}
+		runAll(tasks);
+		final TreeMap<Integer, Integer> expect = new TreeMap<Integer, Integer>();
+		for (i = 0 ; i != THREADS * PER_THREAD ; i++)
+			if ((i % THREADS & 1) == 1)
+				expect.put(i, 1);
+		check(expect, store);
+	}
+	
+	// competing threads never insert duplicates, and every value is removed exactly once
+	public void testConcurrentEnsureAndRemoveFirst() throws Exception {
+		final LockFreeSkipListStore<Integer> store = new LockFreeSkipListStore<Integer>(CMP, false);
+		final Function<Integer, Integer> factory = Functions.<Integer>identity();
+		final List<Callable<Object>> ensures = new ArrayList<Callable<Object>>();
+		for (int t = 0 ; t != THREADS ; t++) {
+			ensures.add(new Callable<Object>() {
+				public Object call() {
+					for (int i = 0 ; i != PER_THREAD ; i++)
+						assertEquals(Integer.valueOf(i % 1000), store.ensureAndGet(i % 1000, ID, CMP, factory, ID));
+					return null;
+				}
+			});
+		}
+		runAll(ensures);
+		assertEquals(1000, store.count());
+		for (int i = 0 ; i != 1000 ; i++)
+			assertEquals(1, store.count(i, ID, CMP, false));
+		final AtomicInteger removed = new AtomicInteger();
+		final List<Callable<Object>> removes = new ArrayList<Callable<Object>>();
+		for (int t = 0 ; t != THREADS ; t++) {
+			removes.add(new Callable<Object>() {
+				public Object call() {
+					while (store.removeAndReturnFirst(Filters.<Integer>acceptAll(), ID, CMP, false, ID) != null)
+						removed.incrementAndGet();
+					return null;
+				}
+			});
+		}
+		runAll(removes);
+		assertEquals(1000, removed.get());
+		assertTrue(store.isEmpty());
+		assertEquals(0, store.count());
+	}
+	
+	public void testIteratorRemoval() {
+		final LockFreeSkipListStore<Integer> store = new LockFreeSkipListStore<Integer>(CMP, false);
+		final TreeMap<Integer, Integer> expect = new TreeMap<Integer, Integer>();
+		for (int i = 0 ; i != 3000 ; i++) {
+			store.put(i % 1000, ID);
+			expect.put(i % 1000, 3);
+		}
+		for (Iterator<Integer> iter = store.all(true, Filters.isBetween(100, 900), ID, CMP, false, ID) ; iter.hasNext() ; ) {
+			final Integer v = iter.next();
+			if (v % 3 != 0) {
+				iter.remove();
+				if (expect.put(v, expect.get(v) - 1) == 1)
+					expect.remove(v);
+			}
+		}
+		check(expect, store);
+		int c = 0;
+		for (Iterator<Integer> iter = store.all(false, 300, ID, CMP, false, ID) ; iter.hasNext() ; c++)
+			assertEquals(Integer.valueOf(300), iter.next());
+		assertEquals(3, c);
+		final LockFreeSkipListStore<Integer> removed = store.removeAndReturn(Filters.isLess(500), ID, CMP, false);
+		check(new TreeMap<Integer, Integer>(expect.headMap(500)), removed);
+		check(new TreeMap<Integer, Integer>(expect.tailMap(500)), store);
+	}
+	
+	@SuppressWarnings("unchecked")
+	public void testSerialization() throws Exception {
+		final LockFreeSkipListStore<Integer> store = new LockFreeSkipListStore<Integer>(CMP, true);
+		final TreeMap<Integer, Integer> expect = new TreeMap<Integer, Integer>();
+		for (int i = 0 ; i != 10000 ; i++) {
+			store.put(i * 7 % 10000, ID);
+			expect.put(i, 1);
+		}
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(store);
+		out.close();
+		final LockFreeSkipListStore<Integer> copy = (LockFreeSkipListStore<Integer>) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+		check(expect, copy);
+		check(expect, store.copy(Filters.<Integer>acceptAll(), ID, CMP, true));
+		store.clear();
+		check(new TreeMap<Integer, Integer>(), store);
+		check(expect, copy);
+	}
+	
+	// duplicates put after a copy or deserialization must be numbered after those copied, else descending iteration skips one
+	@SuppressWarnings("unchecked")
+	public void testDuplicatesAfterCopyAndSerialization() throws Exception {
+		final LockFreeSkipListStore<Integer> store = new LockFreeSkipListStore<Integer>(CMP, false);
+		final TreeMap<Integer, Integer> expect = new TreeMap<Integer, Integer>();
+		for (int i = 0 ; i != 3 ; i++) {
+			store.put(4, ID);
+			store.put(i, ID);
+		}
+		expect.put(0, 1);
+		expect.put(1, 1);
+		expect.put(2, 1);
+		expect.put(4, 4);
+		final LockFreeSkipListStore<Integer> copy = store.copy(Filters.<Integer>acceptAll(), ID, CMP, true);
+		copy.put(4, ID);
+		check(expect, copy);
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(store);
+		out.close();
+		final LockFreeSkipListStore<Integer> read = (LockFreeSkipListStore<Integer>) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+		read.put(4, ID);
+		check(expect, read);
+		store.put(4, ID);
+		check(expect, store);
+	}
+	
+}
@@ -0,0 +1,166 @@
+package org.jjoost.collections.base;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.jjoost.collections.maps.serial.IntHashMap;
+import org.jjoost.collections.maps.serial.LongHashMap;
+import org.jjoost.collections.sets.serial.LongCountingMultiSet;
+import org.jjoost.collections.sets.serial.LongHashSet;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Rehasher;
+
+public class LongHashTableTest extends TestCase {
+
+	// crowds every key into the last few slots of the table, so that probe sequences wrap around its end
+	private static final Rehasher CROWDING = new Rehasher() {
+		private static final long serialVersionUID = 1L;
+		@Override
+		public int rehash(int hash) {
+			return -1 - (hash & 3);
+		}
+	};
+
+	// small keys, including zero and negatives, so that we see plenty of collisions and the zero slot
+	private static long key(Random random) {
+		return random.nextInt(64) - 16;
+	}
+
+	public void testLongHashSetAgainstJdk() {
+		final Random random = new Random(0);
+		for (int round = 0 ; round != 50 ; round++) {
+			final LongHashSet set = new LongHashSet(8, 0.75f, CROWDING);
+			final java.util.HashSet<Long> expect = new java.util.HashSet<Long>();
+			for (int op = 0 ; op != 2000 ; op++) {
+				final long k = key(random);
+				switch (random.nextInt(4)) {
+				case 0:
+				case 1:
+					assertEquals(expect.add(k), set.add(k));
+					break;
+				case 2:
+					assertEquals(expect.remove(k) ? 1 : 0, set.remove(k));
+					break;
+				case 3:
+					assertEquals(expect.contains(k), set.contains(k));
+					assertEquals(expect.contains(k), set.contains(Long.valueOf(k)));
+					break;
+				}
+				assertEquals(expect.size(), set.size());
+			}
+			final java.util.HashSet<Long> visited = new java.util.HashSet<Long>();
+			for (PrimitiveIterator.OfLong iter = set.keyIterator() ; iter.hasNext() ; )
+				assertTrue(visited.add(iter.nextLong()));
+			assertEquals(expect, visited);
+			assertEquals(set, set.copy());
+		}
+	}
+
+	public void testLongHashMapAgainstJdk() {
+		final Random random = new Random(1);
+		for (int round = 0 ; round != 50 ; round++) {
+			final LongHashMap<String> map = new LongHashMap<String>(8, 0.75f, CROWDING, Equalities.object());
+			final HashMap<Long, String> expect = new HashMap<Long, String>();
+			for (int op = 0 ; op != 2000 ; op++) {
+				final long k = key(random);
+				final String v = Integer.toString(random.nextInt(4));
+				switch (random.nextInt(5)) {
+				case 0:
+				case 1:
+					assertEquals(expect.put(k, v), map.put(k, v));
+					break;
+				case 2:
+					final String prev = expect.get(k);
+					if (prev == null)
+						expect.put(k, v);
+					assertEquals(prev, map.putIfAbsent(k, v));
+					break;
+				case 3:
+					assertEquals(expect.remove(k), map.removeAndReturnFirst(k));
+					break;
+				case 4:
+					assertEquals(expect.get(k), map.get(k));
+					assertEquals(expect.get(k), map.get(Long.valueOf(k)));
+					break;
+				}
+				assertEquals(expect.size(), map.totalCount());
+			}
+			final HashMap<Long, String> visited = new HashMap<Long, String>();
+			for (java.util.Map.Entry<Long, String> e : map.entries())
+				assertNull(visited.put(e.getKey(), e.getValue()));
+			assertEquals(expect, visited);
+			assertEquals(expect.size(), map.keys().totalCount());
+			assertEquals(expect.size(), map.copy().totalCount());
+		}
+	}
+
+	public void testIntHashMapGrowth() {
+		final IntHashMap<Integer> map = new IntHashMap<Integer>();
+		for (int i = -5000 ; i != 5000 ; i++)
+			assertNull(map.put(i * 7, i));
+		assertEquals(10000, map.totalCount());
+		for (int i = -5000 ; i != 5000 ; i++) {
+			assertEquals(Integer.valueOf(i), map.get(i * 7));
+			assertNull(map.get(i * 7 + 1));
+		}
+		for (int i = -5000 ; i != 5000 ; i += 2)
+			assertEquals(1, map.remove(i * 7));
+		assertEquals(5000, map.totalCount());
+		for (int i = -5000 ; i != 5000 ; i++)
+			assertEquals((i & 1) == 0 ? 0 : 1, map.count(Integer.valueOf(i * 7)));
+	}
+
+	public void testLongCountingMultiSetAgainstJdk() {
+		final Random random = new Random(2);
+		for (int round = 0 ; round != 50 ; round++) {
+			final LongCountingMultiSet set = new LongCountingMultiSet(8, 0.75f, CROWDING);
+			final HashMap<Long, Integer> expect = new HashMap<Long, Integer>();
+			int total = 0;
+			for (int op = 0 ; op != 2000 ; op++) {
+				final long k = key(random);
+				final Integer prev = expect.get(k);
+				final int count = prev == null ? 0 : prev.intValue();
+				switch (random.nextInt(4)) {
+				case 0:
+				case 1:
+					final int n = random.nextInt(3);
+					if (count + n > 0)
+						expect.put(k, count + n);
+					total += n;
+					assertEquals(count + n, set.add(k, n));
+					break;
+				case 2:
+					final int m = random.nextInt(3);
+					final int removed = Math.min(m, count);
+					if (count - removed == 0)
+						expect.remove(k);
+					else
+						expect.put(k, count - removed);
+					total -= removed;
+					assertEquals(removed, set.remove(k, m));
+					break;
+				case 3:
+					assertEquals(count, set.count(k));
+					break;
+				}
+				assertEquals(total, set.totalCount());
+				assertEquals(expect.size(), set.uniqueCount());
+			}
+			final HashMap<Long, Integer> visited = new HashMap<Long, Integer>();
+			for (Iterator<Long> iter = set.iterator() ; iter.hasNext() ; ) {
+				final Long k = iter.next();
+				final Integer prev = visited.get(k);
+				visited.put(k, prev == null ? 1 : prev + 1);
+			}
+			assertEquals(expect, visited);
+			assertEquals(expect.size(), set.unique().totalCount());
+			assertEquals(total, set.clear());
+			assertTrue(set.isEmpty());
+		}
+	}
+
+}
@@ -0,0 +1,151 @@
+package org.jjoost.collections.base;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.jjoost.collections.maps.serial.OffHeapHashMap;
+import org.jjoost.collections.maps.serial.OpenHashMap;
+import org.jjoost.collections.sets.serial.OffHeapHashSet;
+import org.jjoost.util.Codecs;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Rehasher;
+import org.jjoost.util.Rehashers;
+
+public class OffHeapHashStoreTest extends TestCase {
+
+	// crowds every value into the last few slots of the table, so that probe sequences wrap around its end
+	private static final Rehasher CROWDING = new Rehasher() {
+		private static final long serialVersionUID = 1L;
+		@Override
+		public int rehash(int hash) {
+			return -1 - (hash & 3);
+		}
+	};
+
+	public void testRandomAgainstJdk() {
+		final Random random = new Random(0);
+		for (int round = 0 ; round != 50 ; round++) {
+			final OffHeapHashSet<Integer> set = new OffHeapHashSet<Integer>(8, 0.75f, CROWDING, Equalities.object(), Codecs.integers());
+			final java.util.HashSet<Integer> expect = new java.util.HashSet<Integer>();
+			for (int op = 0 ; op != 2000 ; op++) {
+				final Integer v = random.nextInt(64);
+				switch (random.nextInt(4)) {
+				case 0:
+				case 1:
+					assertEquals(expect.add(v), set.add(v));
+					break;
+				case 2:
+					assertEquals(expect.remove(v) ? 1 : 0, set.remove(v));
+					break;
+				case 3:
+					assertEquals(expect.contains(v), set.contains(v));
+					break;
+				}
+				assertEquals(expect.size(), set.totalCount());
+			}
+			// remove a random selection through the iterator, checking each value is visited exactly once
+			final java.util.HashSet<Integer> before = new java.util.HashSet<Integer>(expect);
+			final java.util.HashSet<Integer> visited = new java.util.HashSet<Integer>();
+			final Iterator<Integer> iter = set.iterator();
+			while (iter.hasNext()) {
+				final Integer v = iter.next();
+				assertTrue(v.toString(), visited.add(v));
+				if (random.nextBoolean()) {
+					iter.remove();
+					expect.remove(v);
+				}
+			}
+			assertEquals(before, visited);
+			assertEquals(expect.size(), set.totalCount());
+			for (int v = 0 ; v != 64 ; v++)
+				assertEquals(expect.contains(v), set.contains(v));
+		}
+	}
+
+	public void testReplacementIsCompacted() {
+		final OffHeapHashStore<OpenHashMap.Node<String, Long>> store = mapStore(null);
+		final OffHeapHashMap<String, Long> map = new TestMap(store);
+		for (long i = 0 ; i != 100000 ; i++)
+			map.put("key" + (i % 100), i);
+		assertEquals(100, map.totalCount());
+		for (long i = 0 ; i != 100 ; i++)
+			assertEquals(Long.valueOf(99900 + i), map.get("key" + i));
+		// replaced entries must have been reclaimed, rather than accumulating
+		assertTrue(store.garbageBytes() < 2 * 4096 + store.liveBytes());
+	}
+
+	public void testMappedFileRestart() throws Exception {
+		final File file = File.createTempFile("offheap", ".dat");
+		file.deleteOnExit();
+		OffHeapHashMap<String, Long> map = new TestMap(mapStore(file));
+		for (long i = 0 ; i != 10000 ; i++)
+			map.put("key" + i, i);
+		for (long i = 0 ; i < 10000 ; i += 3)
+			map.remove("key" + i);
+		for (long i = 1 ; i < 10000 ; i += 3)
+			map.put("key" + i, -i);
+		map.close();
+
+		map = new TestMap(mapStore(file));
+		assertEquals(10000 - 3334, map.totalCount());
+		for (long i = 0 ; i != 10000 ; i++) {
+			final Long expect = i % 3 == 0 ? null : i % 3 == 1 ? -i : i;
+			assertEquals(expect, map.get("key" + i));
+		}
+		map.clear();
+		map.put("a", 1L);
+		map.close();
+
+		map = new TestMap(mapStore(file));
+		assertEquals(1, map.totalCount());
+		assertEquals(Long.valueOf(1), map.get("a"));
+		map.close();
+	}
+
+	@SuppressWarnings("unchecked")
+	public void testSerializationAndCopy() throws Exception {
+		final OffHeapHashMap<String, Long> map = new TestMap(mapStore(null));
+		for (long i = 0 ; i != 1000 ; i++)
+			map.put("key" + i, i);
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(map);
+		out.close();
+		final OffHeapHashMap<String, Long> read = (OffHeapHashMap<String, Long>) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+		final org.jjoost.collections.Map<String, Long> copy = map.copy();
+		map.clear();
+		for (org.jjoost.collections.Map<String, Long> check : new org.jjoost.collections.Map[] { read, copy }) {
+			assertEquals(1000, check.totalCount());
+			int count = 0;
+			for (Entry<String, Long> e : check.entries()) {
+				assertEquals("key" + e.getValue(), e.getKey());
+				count++;
+			}
+			assertEquals(1000, count);
+		}
+	}
+
+	private static OffHeapHashStore<OpenHashMap.Node<String, Long>> mapStore(File file) {
+		final OffHeapHashMap.NodeCodec<String, Long> codec = new OffHeapHashMap.NodeCodec<String, Long>(Codecs.utf8(), Codecs.longs());
+		return file == null
+			? new OffHeapHashStore<OpenHashMap.Node<String, Long>>(16, 0.75f, 4096, codec)
+			: new OffHeapHashStore<OpenHashMap.Node<String, Long>>(16, 0.75f, 4096, file, codec);
+	}
+
+	// exposes the store, so that we can construct maps over small segments
+	private static final class TestMap extends OffHeapHashMap<String, Long> {
+		private static final long serialVersionUID = 1L;
+		TestMap(OffHeapHashStore<OpenHashMap.Node<String, Long>> store) {
+			super(Rehashers.jdkHashmapRehasher(), Equalities.object(), Equalities.object(), store);
+		}
+	}
+
+}
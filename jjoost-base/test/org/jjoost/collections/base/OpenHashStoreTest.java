@@ -0,0 +1,63 @@
+package org.jjoost.collections.base;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.jjoost.collections.sets.serial.OpenHashSet;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Rehasher;
+
+public class OpenHashStoreTest extends TestCase {
+
+	// crowds every value into the last few slots of the table, so that probe sequences wrap around its end
+	private static final Rehasher CROWDING = new Rehasher() {
+		private static final long serialVersionUID = 1L;
+		@Override
+		public int rehash(int hash) {
+			return -1 - (hash & 3);
+		}
+	};
+
+	public void testRandomAgainstJdk() {
+		final Random random = new Random(0);
+		for (int round = 0 ; round != 50 ; round++) {
+			final OpenHashSet<Integer> set = new OpenHashSet<Integer>(8, 0.75f, CROWDING, Equalities.object());
+			final java.util.HashSet<Integer> expect = new java.util.HashSet<Integer>();
+			for (int op = 0 ; op != 2000 ; op++) {
+				final Integer v = random.nextInt(64);
+				switch (random.nextInt(4)) {
+				case 0:
+				case 1:
+					assertEquals(expect.add(v), set.add(v));
+					break;
+				case 2:
+					assertEquals(expect.remove(v) ? 1 : 0, set.remove(v));
+					break;
+				case 3:
+					assertEquals(expect.contains(v), set.contains(v));
+					break;
+				}
+				assertEquals(expect.size(), set.totalCount());
+			}
+			// remove a random selection through the iterator, checking each value is visited exactly once
+			final java.util.HashSet<Integer> before = new java.util.HashSet<Integer>(expect);
+			final java.util.HashSet<Integer> visited = new java.util.HashSet<Integer>();
+			final Iterator<Integer> iter = set.iterator();
+			while (iter.hasNext()) {
+				final Integer v = iter.next();
+				assertTrue(v.toString(), visited.add(v));
+				if (random.nextBoolean()) {
+					iter.remove();
+					expect.remove(v);
+				}
+			}
+			assertEquals(before, visited);
+			assertEquals(expect.size(), set.totalCount());
+			for (int v = 0 ; v != 64 ; v++)
+				assertEquals(expect.contains(v), set.contains(v));
+		}
+	}
+
+}
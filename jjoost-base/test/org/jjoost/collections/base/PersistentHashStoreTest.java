@@ -0,0 +1,162 @@
+package org.jjoost.collections.base;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.jjoost.collections.Map;
+import org.jjoost.collections.maps.serial.PersistentHashMap;
+import org.jjoost.collections.maps.serial.PersistentInlineMultiHashMap;
+import org.jjoost.collections.sets.serial.PersistentHashSet;
+import org.jjoost.util.Rehasher;
+
+public class PersistentHashStoreTest extends TestCase {
+
+	// forces every key into one of a small number of hashes that agree in their low bits, to exercise deep branches and buckets
+	private static final Rehasher COLLIDING = new Rehasher() {
+		private static final long serialVersionUID = 1L;
+		@Override
+		public int rehash(int hash) {
+			return (hash & 7) << 29;
+		}
+	};
+
+	private static void check(java.util.Map<Integer, Integer> expect, Map<Integer, Integer> map) {
+		assertEquals(expect.size(), map.totalCount());
+		for (Entry<Integer, Integer> e : expect.entrySet())
+			assertEquals(e.getValue(), map.get(e.getKey()));
+		int c = 0;
+		for (Entry<Integer, Integer> e : map.entries()) {
+			assertEquals(expect.get(e.getKey()), e.getValue());
+			c++;
+		}
+		assertEquals(expect.size(), c);
+	}
+
+	public void testRandomOperations() {
+		for (Rehasher rehasher : new Rehasher[] { PersistentHashStore.defaultRehasher(), COLLIDING }) {
+			final Random random = new Random(0);
+			final java.util.HashMap<Integer, Integer> expect = new java.util.HashMap<Integer, Integer>();
+			final PersistentHashMap<Integer, Integer> map = new PersistentHashMap<Integer, Integer>(rehasher, org.jjoost.util.Equalities.object());
+			final int keys = rehasher == COLLIDING ? 200 : 50000;
+			for (int i = 0 ; i != 100000 ; i++) {
+				final int key = random.nextInt(keys);
+				switch (random.nextInt(4)) {
+				case 0:
+					assertEquals(expect.remove(key), map.removeAndReturnFirst(key));
+					break;
+				case 1:
+					assertEquals(expect.containsKey(key), map.contains(key));
+					break;
+				default:
+					assertEquals(expect.put(key, i), map.put(key, i));
+				}
+				if (i % 20000 == 0)
+					check(expect, map);
+			}
+			check(expect, map);
+		}
+	}
+
+	// a copy and its original must be independent, however they are subsequently modified
+	public void testCopiesAreIndependent() {
+		final PersistentHashMap<Integer, Integer> map = new PersistentHashMap<Integer, Integer>();
+		final java.util.HashMap<Integer, Integer> expect = new java.util.HashMap<Integer, Integer>();
+		final List<PersistentHashMap<Integer, Integer>> versions = new ArrayList<PersistentHashMap<Integer, Integer>>();
+		final List<java.util.HashMap<Integer, Integer>> expected = new ArrayList<java.util.HashMap<Integer, Integer>>();
+		for (int i = 0 ; i != 20000 ; i++) {
+			if (i % 1000 == 0) {
+				versions.add(map.copy());
+				expected.add(new java.util.HashMap<Integer, Integer>(expect));
+			}
+			map.put(i % 3000, i);
+			expect.put(i % 3000, i);
+			if (i % 7 == 0) {
+				map.remove(i % 2000);
+				expect.remove(i % 2000);
+			}
+		}
+		for (int i = 0 ; i != versions.size() ; i++)
+			check(expected.get(i), versions.get(i));
+		// modifying a copy leaves the map it was copied from untouched
+		final PersistentHashMap<Integer, Integer> first = versions.get(1);
+		first.clear();
+		first.put(-1, -1);
+		check(expected.get(2), versions.get(2));
+		check(expect, map);
+		final PersistentHashMap<Integer, Integer> with = map.with(-1, -1).without(0);
+		check(expect, map);
+		assertEquals(Integer.valueOf(-1), with.get(-1));
+		assertFalse(with.contains(0));
+		assertEquals(expect.size() + (expect.containsKey(0) ? 0 : 1), with.totalCount());
+	}
+
+	public void testIterationIsUnaffectedByModification() {
+		final PersistentHashSet<Integer> set = new PersistentHashSet<Integer>();
+		for (int i = 0 ; i != 10000 ; i++)
+			set.add(i);
+		final PersistentHashSet<Integer> snapshot = set.with(-1);
+		int c = 0;
+		for (Iterator<Integer> iter = set.iterator() ; iter.hasNext() ; c++) {
+			final int i = iter.next();
+			set.add(i + 10000);
+			if ((i & 1) == 0)
+				iter.remove();
+		}
+		assertEquals(10000, c);
+		assertEquals(15000, set.totalCount());
+		for (int i = 0 ; i != 10000 ; i++)
+			assertEquals((i & 1) == 1, set.contains(i));
+		assertEquals(10001, snapshot.totalCount());
+		assertTrue(snapshot.contains(-1) && snapshot.contains(0));
+		long sum = 0;
+		for (Object i : snapshot.parallelStream().toArray())
+			sum += (Integer) i;
+		assertEquals(10000L * 9999 / 2 - 1, sum);
+	}
+
+	public void testMultiMap() {
+		final PersistentInlineMultiHashMap<Integer, Integer> map = new PersistentInlineMultiHashMap<Integer, Integer>(COLLIDING, org.jjoost.util.Equalities.object());
+		for (int i = 0 ; i != 1000 ; i++)
+			map.put(i % 50, i);
+		final PersistentInlineMultiHashMap<Integer, Integer> without = map.without(7);
+		assertEquals(50, map.keys().unique().totalCount());
+		for (int i = 0 ; i != 50 ; i++) {
+			assertEquals(20, map.count(i));
+			assertEquals(i == 7 ? 0 : 20, without.count(i));
+		}
+		map.remove(3, 3);
+		assertEquals(19, map.count(3));
+		assertEquals(20, without.count(3));
+		assertEquals(999, map.totalCount());
+		assertEquals(980, without.totalCount());
+	}
+
+	@SuppressWarnings("unchecked")
+	public void testSerialization() throws Exception {
+		final PersistentHashMap<Integer, Integer> map = new PersistentHashMap<Integer, Integer>();
+		final java.util.HashMap<Integer, Integer> expect = new java.util.HashMap<Integer, Integer>();
+		for (int i = 0 ; i != 5000 ; i++) {
+			map.put(i, -i);
+			expect.put(i, -i);
+		}
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(map);
+		out.close();
+		final PersistentHashMap<Integer, Integer> copy = (PersistentHashMap<Integer, Integer>) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+		check(expect, copy);
+		copy.put(1, 1);
+		copy.remove(2);
+		check(expect, map);
+	}
+
+}
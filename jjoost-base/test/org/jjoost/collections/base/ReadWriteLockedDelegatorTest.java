@@ -0,0 +1,93 @@
+package org.jjoost.collections.base;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import org.jjoost.collections.ListMap;
+import org.jjoost.collections.Map;
+import org.jjoost.collections.MapMaker;
+import org.jjoost.collections.MultiMap;
+import org.jjoost.collections.MultiSet;
+import org.jjoost.collections.Set;
+import org.jjoost.collections.SetMaker;
+import org.jjoost.collections.sets.serial.SerialHashSet;
+
+public class ReadWriteLockedDelegatorTest extends TestCase {
+
+	public void testMakers() {
+		for (HashStoreType type : new HashStoreType[] { HashStoreType.readWriteLocked(), HashStoreType.linkedReadWriteLocked() }) {
+			final Map<Integer, Integer> map = MapMaker.<Integer, Integer>hash().type(type).newMap();
+			final MultiMap<Integer, Integer> multiMap = MapMaker.<Integer, Integer>hash().type(type).newMultiMap();
+			final ListMap<Integer, Integer> listMap = MapMaker.<Integer, Integer>hash().type(type).newListMap();
+			final Set<Integer> set = SetMaker.<Integer>hash().type(type).newSet();
+			final MultiSet<Integer> multiSet = SetMaker.<Integer>hash().type(type).newMultiSet();
+			for (int i = 0 ; i != 1000 ; i++) {
+				map.put(i, -i);
+				multiMap.put(i % 100, i);
+				listMap.put(i % 100, i % 3);
+				set.add(i);
+				multiSet.add(i % 10);
+			}
+			assertEquals(Integer.valueOf(-7), map.get(7));
+			assertEquals(1000, map.keys().totalCount());
+			assertEquals(10, multiMap.count(5));
+			assertEquals(10, listMap.count(5));
+			assertTrue(set.contains(999));
+			assertEquals(100, multiSet.count(3));
+			int c = 0;
+			for (Iterator<Integer> iter = set.iterator() ; iter.hasNext() ; c++) {
+				if (iter.next() % 2 == 0)
+					iter.remove();
+			}
+			assertEquals(1000, c);
+			assertEquals(500, set.totalCount());
+			assertNull(map.get(1000));
+			assertEquals(1000, map.totalCount());
+		}
+	}
+
+	// readers race a writer that continually grows and clears the set; every read must see a consistent state
+	public void testConcurrentReaders() throws InterruptedException {
+		final Map<Integer, Integer> map = ReadWriteLockedDelegator.get(MapMaker.<Integer, Integer>hash().newMap());
+		final Set<Integer> set = ReadWriteLockedDelegator.get((Set<Integer>) new SerialHashSet<Integer>());
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		final Thread[] readers = new Thread[4];
+		final long end = System.currentTimeMillis() + 500;
+		for (int t = 0 ; t != readers.length ; t++) {
+			readers[t] = new Thread() {
+				public void run() {
+					try {
+						int i = 0;
+						while (System.currentTimeMillis() < end) {
+							final Integer v = map.get(i);
+							if (v != null && v.intValue() != -i)
+								throw new AssertionError(i + "=" + v);
+							if (map.contains(i) && map.count(i) > 1)
+								throw new AssertionError(i);
+							set.contains(i);
+							i = (i + 1) & 0xFFFF;
+						}
+					} catch (Throwable e) {
+						failure.compareAndSet(null, e);
+					}
+				}
+			};
+			readers[t].start();
+		}
+		while (System.currentTimeMillis() < end) {
+			for (int i = 0 ; i != 1 << 16 ; i++) {
+				map.put(i, -i);
+				set.add(i);
+			}
+			map.clear();
+			set.clear();
+		}
+		for (Thread reader : readers)
+			reader.join();
+		if (failure.get() != null)
+			throw new AssertionError(failure.get());
+	}
+
+}
@@ -0,0 +1,159 @@
+package org.jjoost.collections.base;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+
+import junit.framework.TestCase;
+
+import org.jjoost.util.FilterPartialOrder;
+import org.jjoost.util.Filters;
+import org.jjoost.util.Function;
+import org.jjoost.util.Functions;
+import org.jjoost.util.order.NaturalOrder;
+
+public class SerialBTreeStoreTest extends TestCase {
+
+	private static final Function<Integer, Integer> ID = Functions.<Integer>identity();
+	private static final NaturalOrder<Integer> CMP = NaturalOrder.<Integer>get();
+	
+	// the expected contents of a non-unique store, as a count per value
+	private static void check(TreeMap<Integer, Integer> expect, SerialBTreeStore<Integer> store) {
+		final List<Integer> list = new ArrayList<Integer>();
+		for (Entry<Integer, Integer> e : expect.entrySet())
+			for (int i = 0 ; i != e.getValue() ; i++)
+				list.add(e.getKey());
+		assertEquals(list.size(), store.count());
+		int i = 0;
+		for (Iterator<Integer> iter = store.iterator(true, ID) ; iter.hasNext() ; )
+			assertEquals(list.get(i++), iter.next());
+		assertEquals(list.size(), i);
+		for (Iterator<Integer> iter = store.iterator(false, ID) ; iter.hasNext() ; )
+			assertEquals(list.get(--i), iter.next());
+		assertEquals(0, i);
+	}
+	
+	public void testRandomOperations() {
+		for (boolean unique : new boolean[] { true, false }) {
+			final Random random = new Random(0);
+			final TreeMap<Integer, Integer> expect = new TreeMap<Integer, Integer>();
+			final SerialBTreeStore<Integer> store = new SerialBTreeStore<Integer>(CMP, unique, 4, 4);
+			for (int i = 0 ; i != 100000 ; i++) {
+				final Integer v = random.nextInt(2000);
+				final Integer count = expect.get(v);
+				switch (random.nextInt(8)) {
+				case 0:
+				case 1:
+					assertEquals(count == null ? 0 : count.intValue(), store.remove(v, ID, CMP, false));
+					expect.remove(v);
+					break;
+				case 2:
+					assertEquals(expect.ceilingKey(v), store.ceil(v, ID, CMP, false, ID));
+					assertEquals(expect.floorKey(v), store.floor(v, ID, CMP, false, ID));
+					assertEquals(expect.higherKey(v), store.greater(v, ID, CMP, false, ID));
+					assertEquals(expect.lowerKey(v), store.lesser(v, ID, CMP, false, ID));
+					assertEquals(count == null ? 0 : count.intValue(), store.count(v, ID, CMP, false));
+					int rank = 0;
+					for (Integer k : expect.headMap(v).values())
+						rank += k;
+					assertEquals(rank, store.rank(v, ID, CMP));
+					assertEquals(expect.ceilingKey(v), store.select(rank, ID));
+					break;
+				case 3:
+					final FilterPartialOrder<Integer> filter = Filters.isBetween(v, v + 100);
+					int c = 0;
+					for (Integer k : expect.subMap(v, v + 100).values())
+						c += k;
+					assertEquals(c, store.count(filter, ID, CMP, false));
+					Integer ceil = expect.ceilingKey(v + 50);
+					if (ceil != null && ceil >= v + 100)
+						ceil = null;
+					assertEquals(ceil, store.ceil(v + 50, ID, CMP, false, ID, CMP, false, filter, ID));
+					Integer floor = expect.floorKey(v + 200);
+					if (floor != null && floor >= v + 100)
+						floor = expect.lowerKey(v + 100);
+					if (floor != null && floor < v)
+						floor = null;
+					assertEquals(floor, store.floor(v + 200, ID, CMP, false, ID, CMP, false, filter, ID));
+					break;
+				default:
+					if (unique) {
+						store.put(v, ID);
+						expect.put(v, 1);
+					} else {
+						store.put(v, ID);
+						expect.put(v, count == null ? 1 : count + 1);
+					}
+				}
+				if (i % 10000 == 0)
+					check(expect, store);
+			}
+			check(expect, store);
+		}
+	}
+	
+	// ascending insertion should leave every leaf but the last full, and the branches all but full 
+	public void testAppend() {
+		final SerialBTreeStore<Integer> store = new SerialBTreeStore<Integer>(CMP, true, 16, 4);
+		for (int i = 0 ; i != 4096 ; i++)
+			store.put(i, ID);
+		assertEquals(6, store.height());
+		for (int i = 0 ; i != 4096 ; i++) {
+			assertEquals(Integer.valueOf(i), store.first(i, ID, CMP, true, ID));
+			assertEquals(4096 - i, store.count(Filters.isGreaterEq(i), ID, CMP, true));
+		}
+	}
+	
+	public void testIteratorRemoval() {
+		final SerialBTreeStore<Integer> store = new SerialBTreeStore<Integer>(CMP, false, 4, 4);
+		final TreeMap<Integer, Integer> expect = new TreeMap<Integer, Integer>();
+		for (int i = 0 ; i != 3000 ; i++) {
+			store.put(i % 1000, ID);
+			expect.put(i % 1000, 3);
+		}
+		for (Iterator<Integer> iter = store.all(true, Filters.isBetween(100, 900), ID, CMP, false, ID) ; iter.hasNext() ; ) {
+			final Integer v = iter.next();
+			if (v % 3 != 0) {
+				iter.remove();
+				if (expect.put(v, expect.get(v) - 1) == 1)
+					expect.remove(v);
+			}
+		}
+		check(expect, store);
+		int c = 0;
+		for (Iterator<Integer> iter = store.all(false, 300, ID, CMP, false, ID) ; iter.hasNext() ; c++)
+			assertEquals(Integer.valueOf(300), iter.next());
+		assertEquals(3, c);
+		final SerialBTreeStore<Integer> removed = store.removeAndReturn(Filters.isLess(500), ID, CMP, false);
+		check(new TreeMap<Integer, Integer>(expect.headMap(500)), removed);
+		check(new TreeMap<Integer, Integer>(expect.tailMap(500)), store);
+	}
+	
+	@SuppressWarnings("unchecked")
+	public void testSerialization() throws Exception {
+		final SerialBTreeStore<Integer> store = new SerialBTreeStore<Integer>(CMP, true);
+		final TreeMap<Integer, Integer> expect = new TreeMap<Integer, Integer>();
+		for (int i = 0 ; i != 10000 ; i++) {
+			store.put(i * 7 % 10000, ID);
+			expect.put(i, 1);
+		}
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(store);
+		out.close();
+		final SerialBTreeStore<Integer> copy = (SerialBTreeStore<Integer>) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+		check(expect, copy);
+		check(expect, store.copy(Filters.<Integer>acceptAll(), ID, CMP, true));
+		store.clear();
+		check(new TreeMap<Integer, Integer>(), store);
+		check(expect, copy);
+	}
+	
+}
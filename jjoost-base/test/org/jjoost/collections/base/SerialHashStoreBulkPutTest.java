@@ -0,0 +1,89 @@
+package org.jjoost.collections.base;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.jjoost.collections.Map;
+import org.jjoost.collections.MapMaker;
+import org.jjoost.collections.Set;
+import org.jjoost.collections.SetMaker;
+import org.jjoost.collections.maps.ImmutableMapEntry;
+import org.jjoost.collections.maps.serial.SerialHashMap;
+import org.jjoost.collections.maps.serial.SerialLinkedHashMap;
+import org.jjoost.collections.sets.serial.SerialInlineMultiHashSet;
+
+public class SerialHashStoreBulkPutTest extends TestCase {
+
+	// enough entries to be split over several partitions, with plenty of duplicate keys
+	private static List<Entry<Integer, Integer>> entries(int count, int keys) {
+		final Random random = new Random(0);
+		final List<Entry<Integer, Integer>> r = new ArrayList<Entry<Integer, Integer>>(count);
+		for (int i = 0 ; i != count ; i++)
+			r.add(new ImmutableMapEntry<Integer, Integer>(random.nextInt(keys), i));
+		return r;
+	}
+
+	public void testMapMatchesSequentialPut() {
+		final List<Entry<Integer, Integer>> entries = entries(100000, 60000);
+		final SerialHashMap<Integer, Integer> expect = new SerialHashMap<Integer, Integer>();
+		for (Entry<Integer, Integer> entry : entries)
+			expect.put(entry.getKey(), entry.getValue());
+		final SerialHashMap<Integer, Integer> map = new SerialHashMap<Integer, Integer>();
+		map.put(-1, -1);
+		assertEquals(expect.totalCount(), map.putAll(entries, 4));
+		assertEquals(expect.totalCount() + 1, map.totalCount());
+		assertEquals(expect.totalCount() + 1, map.keys().totalCount());
+		for (Entry<Integer, Integer> entry : expect.entries())
+			assertEquals(entry.getValue(), map.get(entry.getKey()));
+		assertEquals(Integer.valueOf(-1), map.get(-1));
+		// and the map remains usable afterwards
+		for (int i = 0 ; i != 1000 ; i++)
+			map.remove(i);
+		for (int i = 0 ; i != 1000 ; i++)
+			assertFalse(map.contains(i));
+	}
+
+	public void testLinkedMapRetainsInsertionOrder() {
+		final List<Entry<Integer, Integer>> entries = entries(50000, 20000);
+		final SerialLinkedHashMap<Integer, Integer> expect = new SerialLinkedHashMap<Integer, Integer>();
+		for (Entry<Integer, Integer> entry : entries)
+			expect.put(entry.getKey(), entry.getValue());
+		final Map<Integer, Integer> map = MapMaker.<Integer, Integer>hash().type(HashStoreType.linkedSerial()).buildFrom(entries, 4);
+		assertTrue(map instanceof SerialLinkedHashMap);
+		final Iterator<Entry<Integer, Integer>> a = expect.entries().iterator(), b = map.entries().iterator();
+		while (a.hasNext()) {
+			final Entry<Integer, Integer> x = a.next(), y = b.next();
+			assertEquals(x.getKey(), y.getKey());
+			assertEquals(x.getValue(), y.getValue());
+		}
+		assertFalse(b.hasNext());
+	}
+
+	public void testSetsAndMultiSets() {
+		final List<Integer> values = new ArrayList<Integer>();
+		final Random random = new Random(1);
+		for (int i = 0 ; i != 40000 ; i++)
+			values.add(random.nextInt(10000));
+		final Set<Integer> set = SetMaker.<Integer>hash().buildFrom(values, 8);
+		final java.util.HashSet<Integer> expect = new java.util.HashSet<Integer>(values);
+		assertEquals(expect.size(), set.totalCount());
+		for (Integer v : expect)
+			assertTrue(set.contains(v));
+
+		final SerialInlineMultiHashSet<Integer> multi = new SerialInlineMultiHashSet<Integer>();
+		assertEquals(values.size(), multi.putAll(values, 8));
+		assertEquals(values.size(), multi.totalCount());
+		assertEquals(expect.size(), multi.unique().totalCount());
+		final java.util.HashMap<Integer, Integer> counts = new java.util.HashMap<Integer, Integer>();
+		for (Integer v : values)
+			counts.put(v, counts.containsKey(v) ? counts.get(v) + 1 : 1);
+		for (Entry<Integer, Integer> e : counts.entrySet())
+			assertEquals(e.getValue().intValue(), multi.count(e.getKey()));
+	}
+
+}
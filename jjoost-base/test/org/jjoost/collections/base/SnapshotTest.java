@@ -0,0 +1,63 @@
+package org.jjoost.collections.base;
+
+import java.util.Map.Entry;
+
+import junit.framework.TestCase;
+
+import org.jjoost.collections.AnyReadMap;
+import org.jjoost.collections.AnyReadSet;
+import org.jjoost.collections.Map;
+import org.jjoost.collections.MapMaker;
+import org.jjoost.collections.Set;
+import org.jjoost.collections.SetMaker;
+
+public class SnapshotTest extends TestCase {
+
+	private static final HashStoreType[] TYPES = new HashStoreType[] {
+		HashStoreType.serial(), HashStoreType.synchronous(), HashStoreType.linkedSynchronous(),
+		HashStoreType.readWriteLocked(), HashStoreType.striped(), HashStoreType.lockFree(),
+		HashStoreType.persistent(), HashStoreType.synchronousPersistent(), HashStoreType.readWriteLockedPersistent()
+	};
+
+	public void testMapSnapshots() {
+		for (HashStoreType type : TYPES) {
+			final Map<Integer, Integer> map = MapMaker.<Integer, Integer>hash().type(type).newMap();
+			for (int i = 0 ; i != 1000 ; i++)
+				map.put(i, -i);
+			final AnyReadMap<Integer, Integer> snapshot = map.snapshot();
+			final AnyReadSet<? extends Entry<Integer, Integer>> entries = map.entries().snapshot();
+			// neither may be wrapped by the delegator, as that would reintroduce locking
+			assertFalse(type.toString(), snapshot.getClass().getEnclosingClass() == SynchronizedDelegator.class);
+			assertFalse(type.toString(), entries.getClass().getEnclosingClass() == ReadWriteLockedDelegator.class);
+			for (int i = 0 ; i != 1000 ; i++) {
+				map.remove(i);
+				map.put(i + 1000, i);
+			}
+			assertEquals(1000, snapshot.totalCount());
+			assertEquals(1000, entries.totalCount());
+			int c = 0;
+			for (Entry<Integer, Integer> e : entries) {
+				assertTrue(e.getKey() < 1000);
+				assertEquals(-e.getKey(), e.getValue().intValue());
+				c++;
+			}
+			assertEquals(1000, c);
+			for (int i = 0 ; i != 1000 ; i++)
+				assertEquals(Integer.valueOf(-i), snapshot.first(i));
+		}
+	}
+
+	public void testSetSnapshots() {
+		for (HashStoreType type : TYPES) {
+			final Set<Integer> set = SetMaker.<Integer>hash().type(type).newSet();
+			for (int i = 0 ; i != 1000 ; i++)
+				set.add(i);
+			final AnyReadSet<Integer> snapshot = set.snapshot();
+			set.clear();
+			assertEquals(1000, snapshot.totalCount());
+			for (int i = 0 ; i != 1000 ; i++)
+				assertTrue(snapshot.contains(i));
+		}
+	}
+
+}
@@ -0,0 +1,72 @@
+package org.jjoost.collections.base;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import junit.framework.TestCase;
+
+import org.jjoost.collections.maps.concurrent.StripedHashMap;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Rehashers;
+
+public class StripedHashStoreTest extends TestCase {
+
+	private static final int THREADS = 8;
+	private static final int PER_THREAD = 20000;
+
+	public void testConcurrentPutGetAndRemoveWhileGrowing() throws Exception {
+		final StripedHashMap<Integer, Integer> map = new StripedHashMap<Integer, Integer>(8, 0.75f, 4, Rehashers.identity(), Equalities.object(), Equalities.object());
+		final AtomicBoolean writing = new AtomicBoolean(true);
+		final ExecutorService exec = Executors.newFixedThreadPool(THREADS + 1);
+		try {
+			// the reader only ever looks for keys that are present throughout, whilst writers grow the table around it
+			for (int i = 0 ; i != 100 ; i++)
+				map.put(-1 - i, i);
+			final Future<Object> reader = exec.submit(new Callable<Object>() {
+				public Object call() {
+					while (writing.get()) {
+						for (int i = 0 ; i != 100 ; i++)
+							assertEquals(Integer.valueOf(i), map.get(-1 - i));
+					}
+					return null;
+				}
+			});
+			final List<Future<Object>> writers = new ArrayList<Future<Object>>();
+			for (int t = 0 ; t != THREADS ; t++) {
+				final int offset = t * PER_THREAD;
+				writers.add(exec.submit(new Callable<Object>() {
+					public Object call() {
+						for (int i = 0 ; i != PER_THREAD ; i++)
+							assertNull(map.put(offset + i, i));
+						for (int i = 0 ; i < PER_THREAD ; i += 2)
+							assertEquals(1, map.remove(offset + i));
+						return null;
+					}
+				}));
+			}
+			for (Future<Object> writer : writers)
+				writer.get();
+			writing.set(false);
+			reader.get();
+		} finally {
+			exec.shutdownNow();
+		}
+		assertEquals(100 + THREADS * PER_THREAD / 2, map.totalCount());
+		for (int t = 0 ; t != THREADS ; t++) {
+			for (int i = 0 ; i != PER_THREAD ; i++)
+				assertEquals((i & 1) == 1 ? Integer.valueOf(i) : null, map.get(t * PER_THREAD + i));
+		}
+		int iterated = 0;
+		for (Integer k : map.keys()) {
+			assertTrue(k < 0 || (k & 1) == 1);
+			iterated++;
+		}
+		assertEquals(100 + THREADS * PER_THREAD / 2, iterated);
+	}
+
+}
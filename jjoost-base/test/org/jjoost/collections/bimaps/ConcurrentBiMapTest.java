@@ -0,0 +1,131 @@
+package org.jjoost.collections.bimaps;
+
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import org.jjoost.collections.AnyMap;
+import org.jjoost.collections.Map;
+import org.jjoost.collections.MultiMap;
+
+public class ConcurrentBiMapTest extends TestCase {
+
+	// every pair in each direction must be present in the other
+	private static <K, V> void checkConsistent(AnyMap<K, V> map) {
+		final AnyMap<V, K> inverse = map.inverse();
+		int c = 0;
+		for (Entry<K, V> e : map.entries()) {
+			assertTrue(e.toString(), inverse.contains(e.getValue(), e.getKey()));
+			c++;
+		}
+		assertEquals(c, map.totalCount());
+		assertEquals(c, inverse.totalCount());
+	}
+
+	public void testOneToOne() {
+		final ConcurrentBiMapOneToOne<Integer, String> map = new ConcurrentBiMapOneToOne<Integer, String>();
+		assertNull(map.put(1, "a"));
+		assertNull(map.put(2, "b"));
+		assertEquals("a", map.put(1, "c"));
+		assertFalse(map.inverse().contains("a"));
+		// binding 2 to "c" displaces both 2 -> "b" and 1 -> "c"
+		assertEquals("b", map.put(2, "c"));
+		assertFalse(map.contains(1));
+		assertEquals(Integer.valueOf(2), map.inverse().get("c"));
+		assertEquals("c", map.putIfAbsent(2, "d"));
+		assertEquals("c", map.putIfAbsent(3, "c"));
+		assertFalse(map.contains(3));
+		assertTrue(map.add(3, "d"));
+		assertFalse(map.replace(3, "x", "e"));
+		assertTrue(map.replace(3, "d", "e"));
+		assertNull(map.replace(4, "f"));
+		assertEquals("e", map.ensureAndGet(3, new org.jjoost.util.Factory<String>() {
+			private static final long serialVersionUID = 1L;
+			public String create() {
+				throw new AssertionError();
+			}
+		}));
+		assertEquals(Integer.valueOf(3), map.inverse().removeAndReturnFirst("e"));
+		assertFalse(map.contains(3));
+		checkConsistent(map);
+		final Map<Integer, String> copy = map.copy();
+		map.clear();
+		assertEquals(1, copy.totalCount());
+		assertEquals(Integer.valueOf(2), copy.inverse().first("c"));
+		checkConsistent(copy);
+		checkConsistent(map);
+	}
+
+	public void testManyToMany() {
+		final ConcurrentBiMapManyToMany<Integer, Integer> map = new ConcurrentBiMapManyToMany<Integer, Integer>();
+		for (int i = 0 ; i != 100 ; i++)
+			for (int j = 0 ; j != 10 ; j++)
+				assertTrue(map.add(i, j));
+		assertFalse(map.add(5, 5));
+		assertEquals(100, map.inverse().count(7));
+		assertEquals(10, map.remove(7));
+		assertEquals(99, map.inverse().count(7));
+		assertEquals(1, map.inverse().remove(3, 8));
+		assertFalse(map.contains(8, 3));
+		checkConsistent(map);
+	}
+
+	// writers race over a small domain; afterwards both directions must agree, and each side must be one-to-one
+	public void testConcurrentWriters() throws InterruptedException {
+		final ConcurrentBiMapOneToOne<Integer, Integer> oneToOne = new ConcurrentBiMapOneToOne<Integer, Integer>();
+		final ConcurrentBiMapManyToMany<Integer, Integer> manyToMany = new ConcurrentBiMapManyToMany<Integer, Integer>();
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		final Thread[] writers = new Thread[4];
+		for (int t = 0 ; t != writers.length ; t++) {
+			final int seed = t;
+			writers[t] = new Thread() {
+				public void run() {
+					try {
+						final Random random = new Random(seed);
+						final Map<Integer, Integer> inverse = oneToOne.inverse();
+						final MultiMap<Integer, Integer> manyInverse = manyToMany.inverse();
+						for (int i = 0 ; i != 100000 ; i++) {
+							final int k = random.nextInt(64), v = random.nextInt(64);
+							switch (random.nextInt(6)) {
+							case 0:
+								oneToOne.remove(k);
+								manyToMany.remove(k);
+								break;
+							case 1:
+								inverse.put(v, k);
+								manyInverse.remove(v, k);
+								break;
+							case 2:
+								oneToOne.putIfAbsent(k, v);
+								manyInverse.removeAndReturn(v);
+								break;
+							default:
+								oneToOne.put(k, v);
+								manyToMany.put(k, v);
+							}
+							final Integer r = oneToOne.get(k);
+							if (r != null && r.intValue() >= 64)
+								throw new AssertionError(r);
+						}
+					} catch (Throwable e) {
+						failure.compareAndSet(null, e);
+					}
+				}
+			};
+			writers[t].start();
+		}
+		for (Thread writer : writers)
+			writer.join();
+		if (failure.get() != null)
+			throw new AssertionError(failure.get());
+		checkConsistent(oneToOne);
+		checkConsistent(oneToOne.inverse());
+		checkConsistent(manyToMany);
+		checkConsistent(manyToMany.inverse());
+		assertEquals(oneToOne.keys().totalCount(), oneToOne.keys().unique().totalCount());
+		assertEquals(oneToOne.inverse().keys().totalCount(), oneToOne.inverse().keys().unique().totalCount());
+	}
+
+}
@@ -0,0 +1,133 @@
+package org.jjoost.collections.bimaps;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.jjoost.collections.Map;
+
+public class SerialBiMapOneToOneTest extends TestCase {
+
+	private static void check(java.util.Map<Integer, Integer> expect, Map<Integer, Integer> map) {
+		final Map<Integer, Integer> inverse = (Map<Integer, Integer>) map.inverse();
+		assertEquals(expect.size(), map.totalCount());
+		assertEquals(expect.size(), inverse.totalCount());
+		for (Entry<Integer, Integer> e : expect.entrySet()) {
+			assertEquals(e.getValue(), map.get(e.getKey()));
+			assertEquals(e.getKey(), inverse.get(e.getValue()));
+		}
+		int c = 0;
+		for (Entry<Integer, Integer> e : inverse.entries()) {
+			assertEquals(e.getKey(), expect.get(e.getValue()));
+			c++;
+		}
+		assertEquals(expect.size(), c);
+	}
+
+	// the reference implementation: a pair of maps kept one-to-one by hand
+	private static Integer put(java.util.Map<Integer, Integer> expect, java.util.Map<Integer, Integer> back, Integer k, Integer v) {
+		final Integer prevVal = expect.remove(k);
+		if (prevVal != null)
+			back.remove(prevVal);
+		final Integer prevKey = back.remove(v);
+		if (prevKey != null)
+			expect.remove(prevKey);
+		expect.put(k, v);
+		back.put(v, k);
+		return prevVal;
+	}
+
+	public void testRandomOperations() {
+		final Random random = new Random(0);
+		final java.util.HashMap<Integer, Integer> expect = new java.util.HashMap<Integer, Integer>();
+		final java.util.HashMap<Integer, Integer> back = new java.util.HashMap<Integer, Integer>();
+		final SerialBiMapOneToOne<Integer, Integer> map = new SerialBiMapOneToOne<Integer, Integer>();
+		final Map<Integer, Integer> inverse = map.inverse();
+		assertSame(map, inverse.inverse());
+		for (int i = 0 ; i != 200000 ; i++) {
+			final int k = random.nextInt(5000), v = random.nextInt(5000);
+			switch (random.nextInt(5)) {
+			case 0:
+				final Integer removed = expect.remove(k);
+				if (removed != null)
+					back.remove(removed);
+				assertEquals(removed, map.removeAndReturnFirst(k));
+				break;
+			case 1:
+				final Integer removedKey = back.remove(v);
+				if (removedKey != null)
+					expect.remove(removedKey);
+				assertEquals(removedKey, inverse.removeAndReturnFirst(v));
+				break;
+			case 2:
+				assertEquals(put(back, expect, v, k), inverse.put(v, k));
+				break;
+			default:
+				assertEquals(put(expect, back, k, v), map.put(k, v));
+			}
+			if (i % 20000 == 0)
+				check(expect, map);
+		}
+		check(expect, map);
+	}
+
+	public void testConflicts() {
+		final SerialBiMapOneToOne<Integer, String> map = new SerialBiMapOneToOne<Integer, String>();
+		map.put(1, "a");
+		map.put(2, "b");
+		assertEquals("a", map.putIfAbsent(3, "a"));
+		assertFalse(map.add(3, "b"));
+		assertEquals("a", map.putIfAbsent(1, "c"));
+		assertTrue(map.add(3, "c"));
+		assertFalse(map.replace(1, "b", "d"));
+		assertTrue(map.replace(1, "a", "d"));
+		assertNull(map.inverse().get("a"));
+		assertEquals("d", map.replace(1, "b"));
+		assertFalse(map.contains(2));
+		assertEquals(Integer.valueOf(1), map.inverse().get("b"));
+		assertEquals("c", map.ensureAndGet(3, new org.jjoost.util.Function<Integer, String>() {
+			private static final long serialVersionUID = 1L;
+			public String apply(Integer k) {
+				throw new AssertionError();
+			}
+		}));
+		assertEquals(2, map.totalCount());
+	}
+
+	public void testIterationCopyAndSerialization() throws Exception {
+		final SerialBiMapOneToOne<Integer, Integer> map = new SerialBiMapOneToOne<Integer, Integer>();
+		final java.util.HashMap<Integer, Integer> expect = new java.util.HashMap<Integer, Integer>();
+		for (int i = 0 ; i != 10000 ; i++) {
+			map.put(i, -i);
+			expect.put(i, -i);
+		}
+		for (Iterator<Integer> iter = map.inverse().keys().iterator() ; iter.hasNext() ; ) {
+			final int v = iter.next();
+			if (v % 3 == 0) {
+				iter.remove();
+				expect.remove(-v);
+			}
+		}
+		check(expect, map);
+		final Map<Integer, Integer> copy = (Map<Integer, Integer>) map.inverse().copy().inverse();
+		map.clear();
+		check(expect, copy);
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(copy);
+		out.close();
+		@SuppressWarnings("unchecked")
+		final Map<Integer, Integer> read = (Map<Integer, Integer>) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+		check(expect, read);
+		read.inverse().put(1, 1);
+		assertEquals(Integer.valueOf(1), read.get(1));
+		assertFalse(read.inverse().contains(-1));
+	}
+
+}
@@ -0,0 +1,146 @@
+package org.jjoost.collections.caches;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import org.jjoost.util.Function;
+
+public class CacheTest extends TestCase {
+
+	private static final Function<Integer, Integer> NEGATE = new Function<Integer, Integer>() {
+		private static final long serialVersionUID = 1L;
+		public Integer apply(Integer v) {
+			return -v;
+		}
+	};
+	
+	public void testLru() {
+		final SerialCache<Integer, Integer> cache = new SerialCache<Integer, Integer>(3);
+		for (int i = 0 ; i != 3 ; i++)
+			assertNull(cache.put(i, -i));
+		assertEquals(Integer.valueOf(0), cache.get(0));
+		assertNull(cache.put(3, -3));
+		assertNull(cache.get(1));
+		assertEquals(Integer.valueOf(0), cache.get(0));
+		assertEquals(Integer.valueOf(-2), cache.putIfAbsent(2, 7));
+		assertEquals(Integer.valueOf(-3), cache.put(3, 3));
+		assertEquals(Integer.valueOf(3), cache.remove(3));
+		assertEquals(2, cache.totalCount());
+		final CacheStatistics statistics = cache.statistics();
+		assertEquals(2, statistics.hits());
+		assertEquals(1, statistics.misses());
+		assertEquals(1, statistics.evictions());
+	}
+	
+	public void testLfu() {
+		final SerialCache<Integer, Integer> cache = new SerialCache<Integer, Integer>(EvictionPolicy.LFU, 4);
+		for (int i = 0 ; i != 4 ; i++)
+			cache.put(i, -i);
+		cache.get(0);
+		cache.get(0);
+		for (int i = 1 ; i != 4 ; i++)
+			cache.get(i);
+		// 0 is the least recently used, but also the most frequently used
+		cache.put(4, -4);
+		assertEquals(Integer.valueOf(0), cache.get(0));
+		assertNull(cache.get(1));
+		assertEquals(4, cache.totalCount());
+	}
+	
+	// one-off keys interleaved with a hot working set flush it from an LRU cache, but not from a TinyLFU cache
+	public void testScanResistance() {
+		for (EvictionPolicy policy : new EvictionPolicy[] { EvictionPolicy.LRU, EvictionPolicy.TINY_LFU }) {
+			final SerialCache<Integer, Integer> cache = new SerialCache<Integer, Integer>(policy, 150);
+			int hits = 0;
+			for (int i = 0 ; i != 40000 ; i++) {
+				final int key = (i & 1) == 0 ? (i >> 1) % 100 : 1000 + i;
+				final boolean hit = cache.get(key) != null;
+				if (!hit)
+					cache.put(key, -key);
+				if (hit && i >= 20000)
+					hits++;
+			}
+			if (policy == EvictionPolicy.LRU)
+				assertEquals(0, hits);
+			else
+				assertTrue(Integer.toString(hits), hits >= 9000);
+			assertTrue(cache.totalCount() <= 150);
+			assertEquals(cache.totalCount(), cache.weight());
+			assertEquals(40000, cache.statistics().hits() + cache.statistics().misses());
+		}
+	}
+	
+	public void testWeightAndExpiry() throws InterruptedException {
+		final Weigher<String, String> length = new Weigher<String, String>() {
+			private static final long serialVersionUID = 1L;
+			public int weigh(String key, String val) {
+				return val.length();
+			}
+		};
+		for (EvictionPolicy policy : EvictionPolicy.values()) {
+			final SerialCache<String, String> cache = new SerialCache<String, String>(policy, 1000, length, 0, TimeUnit.SECONDS);
+			for (int i = 0 ; i != 1000 ; i++) {
+				cache.put(Integer.toString(i % 300), Integer.toString(i));
+				assertTrue(cache.weight() <= 1000);
+			}
+			assertEquals(cache.weight(), cache.statistics().weight());
+		}
+		final SerialCache<Integer, Integer> cache = new SerialCache<Integer, Integer>(EvictionPolicy.LRU, 10, null, 1, TimeUnit.MILLISECONDS);
+		cache.put(1, 1);
+		cache.put(2, 2);
+		Thread.sleep(20);
+		assertNull(cache.get(1));
+		cache.purgeExpired();
+		assertEquals(0, cache.totalCount());
+		assertEquals(2, cache.statistics().expirations());
+	}
+	
+	public void testConcurrent() throws InterruptedException {
+		for (EvictionPolicy policy : EvictionPolicy.values()) {
+			final ConcurrentCache<Integer, Integer> cache = new ConcurrentCache<Integer, Integer>(policy, 1000);
+			final AtomicInteger loads = new AtomicInteger();
+			final Function<Integer, Integer> loader = new Function<Integer, Integer>() {
+				private static final long serialVersionUID = 1L;
+				public Integer apply(Integer v) {
+					loads.incrementAndGet();
+					return -v;
+				}
+			};
+			final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+			final Thread[] threads = new Thread[4];
+			for (int t = 0 ; t != threads.length ; t++) {
+				final int seed = t;
+				threads[t] = new Thread() {
+					public void run() {
+						try {
+							final Random random = new Random(seed);
+							for (int i = 0 ; i != 100000 ; i++) {
+								final int key = random.nextInt(2000);
+								final Integer val = cache.ensureAndGet(key, loader);
+								if (val.intValue() != -key)
+									throw new AssertionError(key + "=" + val);
+							}
+						} catch (Throwable e) {
+							failure.compareAndSet(null, e);
+						}
+					}
+				};
+				threads[t].start();
+			}
+			for (Thread thread : threads)
+				thread.join();
+			if (failure.get() != null)
+				throw new AssertionError(failure.get());
+			final CacheStatistics statistics = cache.statistics();
+			assertEquals(400000, statistics.hits() + statistics.misses());
+			assertEquals(loads.get(), statistics.misses());
+			assertTrue(cache.totalCount() <= 1000);
+			assertEquals(cache.totalCount(), statistics.totalCount());
+		}
+	}
+	
+}
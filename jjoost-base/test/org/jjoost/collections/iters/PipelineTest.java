@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.iters;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import junit.framework.TestCase;
+
+import org.jjoost.util.Filter;
+import org.jjoost.util.Function;
+import org.jjoost.util.Iters;
+
+public class PipelineTest extends TestCase {
+
+	private static final Filter<Integer> EVEN = new Filter<Integer>() {
+		private static final long serialVersionUID = 1L;
+		public boolean accept(Integer v) {
+			return (v & 1) == 0;
+		}
+	};
+	
+	private static final Function<Integer, String> TO_STRING = new Function<Integer, String>() {
+		private static final long serialVersionUID = 1L;
+		public String apply(Integer v) {
+			return Integer.toString(v);
+		}
+	};
+	
+	private static List<Integer> range(int from, int to) {
+		final List<Integer> list = new ArrayList<Integer>();
+		for (int i = from ; i < to ; i++)
+			list.add(i);
+		return list;
+	}
+	
+	// the pushed and pulled results must agree with each other, and with the wrapping iterators
+	private static <E> void check(List<E> expect, Pipeline<E> pipeline) {
+		assertEquals(expect, pipeline.toList());
+		assertEquals(expect, Iters.toList(pipeline.iterator()));
+		assertEquals(expect.size(), pipeline.count());
+		assertEquals(expect.isEmpty() ? null : expect.get(0), pipeline.first());
+	}
+	
+	public void testStages() {
+		final List<Integer> source = range(0, 100);
+		check(source, Iters.pipeline(source));
+		check(Arrays.asList("20", "22", "24"), Iters.pipeline(source).filter(EVEN).drop(10).head(3).map(TO_STRING));
+		check(Arrays.asList(20, 22, 24), Iters.pipeline(source).drop(20).head(6).filter(EVEN));
+		check(Arrays.asList(0, 2), Iters.pipeline(source).filter(EVEN).head(10).head(2));
+		check(new ArrayList<Integer>(), Iters.pipeline(source).head(0));
+		check(new ArrayList<Integer>(), Iters.pipeline(source).drop(200));
+		final Pipeline<Integer> evens = Iters.pipeline(new LinkedList<Integer>(source)).filter(EVEN);
+		check(Iters.toList(new FilteredIterable<Integer>(source, EVEN)), evens);
+		// pipelines are immutable, so adding a stage leaves the original untouched
+		evens.head(1);
+		assertEquals(50, evens.count());
+		try {
+			evens.head(-1);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+	
+	// a head stage must stop consuming the source as soon as it has taken its last element
+	public void testHeadStopsEarly() {
+		final Iterator<Integer> source = range(0, 100).iterator();
+		assertEquals(Arrays.asList(0, 2, 4), Iters.pipeline(source).filter(EVEN).head(3).toList());
+		assertEquals(Integer.valueOf(5), source.next());
+	}
+	
+	public void testConcat() {
+		final List<Integer> a = range(0, 10), b = range(10, 15), c = range(15, 30);
+		check(range(0, 30), Iters.pipeline(Iters.concat(a, Iters.concat(b, c))));
+		check(range(0, 15), Iters.pipeline(a).concat(b));
+		check(Arrays.asList(8, 10, 12), Iters.pipeline(Iters.concat(a, b)).filter(EVEN).drop(4).head(3));
+		try {
+			Iters.pipeline(a).head(1).concat(b);
+			fail();
+		} catch (IllegalStateException e) {
+		}
+	}
+	
+	public void testParallel() {
+		final AtomicLong sum = new AtomicLong();
+		final Consumer<String> add = new Consumer<String>() {
+			public void accept(String v) {
+				sum.addAndGet(Integer.parseInt(v));
+			}
+		};
+		Iters.pipeline(Iters.concat(range(0, 100000), range(0, 1000))).filter(EVEN).map(TO_STRING).forEach(add, true);
+		assertEquals(2499950000L + 249500, sum.get());
+		sum.set(0);
+		// positional stages run serially, so see the elements in order
+		Iters.pipeline(range(0, 100000)).filter(EVEN).head(10).map(TO_STRING).forEach(add, true);
+		assertEquals(90L, sum.get());
+	}
+	
+}
@@ -0,0 +1,30 @@
+package org.jjoost.collections.maps.serial;
+
+import java.util.Arrays;
+
+import org.jjoost.collections.maps.base.HashMap;
+import org.jjoost.collections.maps.base.HashMapTest;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Rehashers;
+
+public class OpenHashMapTest extends HashMapTest {
+
+	@Override
+	protected HashMap<String, String, ?, ?> createMap() {
+		return new OpenHashMap<String, String>(Rehashers.identity(), Equalities.object());
+	}
+
+	// linear probing places q in the first free slot after a, rather than alongside a in its bucket
+	@Override
+	public void testIterator() {
+		checkEmpty();
+		put(null);
+		put("a");
+		put("b");
+		put("c");
+		put("q");
+		checkIteratorContents(Arrays.asList(null, "a", "b", "c", "q").iterator(), iterator(), true);
+		checkAndClear(5);
+	}
+
+}
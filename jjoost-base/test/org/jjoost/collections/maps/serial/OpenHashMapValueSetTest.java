@@ -0,0 +1,20 @@
+package org.jjoost.collections.maps.serial;
+
+import org.jjoost.collections.maps.base.HashMap;
+import org.jjoost.collections.maps.base.HashMapValueSetTest;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Rehashers;
+
+public class OpenHashMapValueSetTest extends HashMapValueSetTest {
+
+	@Override
+	protected HashMap<String, String, ?, ?> createMap() {
+		return new OpenHashMap<String, String>(Rehashers.identity(), Equalities.object());
+	}
+	
+	@Override
+	protected boolean duplicatesGrowTable() {
+		return true;
+	}
+
+}
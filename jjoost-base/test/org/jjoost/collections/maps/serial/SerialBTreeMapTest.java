@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.maps.serial;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+
+import junit.framework.TestCase;
+
+import org.jjoost.collections.OrderedListMap;
+import org.jjoost.collections.OrderedScalarMap;
+import org.jjoost.collections.maps.ImmutableMapEntry;
+import org.jjoost.util.Filters;
+import org.jjoost.util.Iters;
+
+public class SerialBTreeMapTest extends TestCase {
+
+	private static List<Integer> keys(Iterable<Entry<Integer, String>> entries) {
+		final List<Integer> r = new ArrayList<Integer>();
+		for (Entry<Integer, String> e : entries)
+			r.add(e.getKey());
+		return r;
+	}
+	
+	public void testAgainstTreeMap() {
+		final Random random = new Random(0);
+		final TreeMap<Integer, String> expect = new TreeMap<Integer, String>();
+		final SerialBTreeMap<Integer, String> map = new SerialBTreeMap<Integer, String>();
+		for (int i = 0 ; i != 50000 ; i++) {
+			final Integer k = random.nextInt(1000);
+			final String v = Integer.toString(random.nextInt(10));
+			switch (random.nextInt(4)) {
+			case 0:
+				assertEquals(expect.put(k, v), map.put(k, v));
+				break;
+			case 1:
+				assertEquals(expect.remove(k), map.removeAndReturnFirst(k));
+				break;
+			case 2:
+				assertEquals(expect.get(k), map.get(k));
+				assertEquals(expect.containsKey(k), map.contains(k));
+				break;
+			case 3:
+				assertEquals(expect.ceilingKey(k), map.ceilEntry(k) == null ? null : map.ceilEntry(k).getKey());
+				assertEquals(expect.floorKey(k), map.floorEntry(k) == null ? null : map.floorEntry(k).getKey());
+				assertEquals(expect.higherKey(k), map.greaterEntry(k) == null ? null : map.greaterEntry(k).getKey());
+				assertEquals(expect.lowerKey(k), map.lesserEntry(k) == null ? null : map.lesserEntry(k).getKey());
+				break;
+			}
+		}
+		assertEquals(expect.size(), map.size());
+		assertEquals(new ArrayList<Integer>(expect.keySet()), keys(map.entries()));
+		assertEquals(new ArrayList<String>(expect.values()), Iters.toList(map.values(true)));
+	}
+	
+	public void testFilterByKey() {
+		final OrderedScalarMap<Integer, String> map = new SerialBTreeMap<Integer, String>();
+		for (int i = 0 ; i != 100 ; i++)
+			map.put(i, Integer.toString(i));
+		final OrderedScalarMap<Integer, String> view = map.filterByKey(Filters.isBetween(20, 30));
+		assertEquals(10, view.size());
+		assertEquals(Integer.valueOf(20), view.keys().first());
+		assertEquals(Integer.valueOf(29), view.keys().last());
+		assertFalse(view.contains(30));
+		assertNull(view.get(50));
+		assertEquals("25", view.ceil(25));
+		assertNull(view.greater(29));
+		assertEquals("29", view.floor(90));
+		// modifications through the view are restricted to its range
+		assertEquals(5, view.remove(Filters.isLess(25)));
+		assertEquals(95, map.size());
+		try {
+			view.put(50, "50");
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+		view.put(25, "x");
+		assertEquals("x", map.get(25));
+		assertEquals(5, view.clear());
+		assertEquals(90, map.size());
+		assertEquals(Arrays.asList(19, 30), Iters.toList(map.keys().filter(Filters.isBetween(19, 31))));
+	}
+	
+	public void testRankAndSelect() {
+		final OrderedScalarMap<Integer, String> map = new SerialBTreeMap<Integer, String>();
+		for (int i = 0 ; i != 1000 ; i++)
+			map.put(i * 2, Integer.toString(i));
+		assertEquals(0, map.rank(-5));
+		assertEquals(10, map.rank(20));
+		assertEquals(11, map.rank(21));
+		assertEquals(1000, map.rank(5000));
+		assertEquals("10", map.select(10));
+		assertEquals(Integer.valueOf(20), map.selectEntry(10).getKey());
+		assertNull(map.select(1000));
+		final OrderedScalarMap<Integer, String> view = map.filterByKey(Filters.isBetween(100, 200));
+		assertEquals(10, view.rank(120));
+		assertEquals("60", view.select(10));
+		assertNull(view.selectEntry(50));
+		assertEquals(Integer.valueOf(198), view.keys().percentile(1));
+	}
+	
+	public void testCopyAndEntries() {
+		final SerialBTreeMap<Integer, String> map = new SerialBTreeMap<Integer, String>();
+		for (int i = 0 ; i != 1000 ; i++)
+			map.put(i, Integer.toString(i));
+		final OrderedScalarMap<Integer, String> copy = map.filterCopyByKey(Filters.isGreaterEq(500));
+		map.clear();
+		assertEquals(500, copy.size());
+		assertTrue(copy.entries().contains(new ImmutableMapEntry<Integer, String>(700, "700")));
+		assertFalse(copy.entries().contains(new ImmutableMapEntry<Integer, String>(700, "701")));
+		assertEquals(1, copy.entries().remove(new ImmutableMapEntry<Integer, String>(700, "700")));
+		assertEquals(499, copy.size());
+		assertEquals(Integer.valueOf(999), copy.lastOfEachKey().iterator().next().getKey());
+	}
+	
+	public void testListMap() {
+		final OrderedListMap<Integer, String> map = new SerialBTreeListMap<Integer, String>();
+		for (int i = 0 ; i != 100 ; i++)
+			for (int j = 0 ; j != 3 ; j++)
+				map.put(i % 10, Integer.toString(i));
+		assertEquals(300, map.totalCount());
+		assertEquals(10, map.uniqueKeyCount());
+		assertEquals(30, map.count(3));
+		// values for a key are visited in insertion order
+		final List<String> expect = new ArrayList<String>();
+		for (int i = 3 ; i < 100 ; i += 10)
+			for (int j = 0 ; j != 3 ; j++)
+				expect.add(Integer.toString(i));
+		assertEquals(expect, Iters.toList(map.values(3)));
+		assertEquals(3, map.count(3, "13"));
+		assertEquals(10, map.values(3).uniqueCount());
+		assertEquals(3, map.remove(3, "13"));
+		assertEquals(27, map.count(3));
+		assertEquals(10, Iters.count(map.firstOfEachKey()));
+		assertEquals("0", map.first(0));
+		assertEquals("90", map.last(0));
+		assertEquals(99, map.entries().uniqueCount());
+		assertEquals(267, map.filterByKey(Filters.isBetween(0, 9)).totalCount());
+	}
+	
+}
@@ -0,0 +1,124 @@
+package org.jjoost.collections.maps.wrappers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import org.jjoost.collections.Map;
+import org.jjoost.collections.MapMaker;
+import org.jjoost.collections.base.HashStoreType;
+import org.jjoost.util.Function;
+
+public class SingleFlightTest extends TestCase {
+
+	// counts its calls, and is slow enough that concurrent misses overlap; throws for negative keys until told otherwise
+	private static final class Loader implements Function<Integer, Integer> {
+		private static final long serialVersionUID = 1L;
+		private final AtomicInteger calls = new AtomicInteger();
+		private volatile boolean fail = true;
+		public Integer apply(Integer key) {
+			calls.incrementAndGet();
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			if (key < 0 && fail)
+				throw new IllegalArgumentException(key.toString());
+			return key * 2;
+		}
+	}
+	
+	private static List<Object> getConcurrently(final Map<Integer, Integer> map, final int key, int threads) throws InterruptedException {
+		final CountDownLatch start = new CountDownLatch(1);
+		final List<Object> results = new ArrayList<Object>();
+		final Thread[] getters = new Thread[threads];
+		for (int t = 0 ; t != threads ; t++) {
+			getters[t] = new Thread() {
+				public void run() {
+					Object result;
+					try {
+						start.await();
+						result = map.get(key);
+					} catch (Throwable e) {
+						result = e;
+					}
+					synchronized (results) {
+						results.add(result);
+					}
+				}
+			};
+			getters[t].start();
+		}
+		start.countDown();
+		for (Thread getter : getters)
+			getter.join();
+		return results;
+	}
+	
+	public void testSingleFlight() throws InterruptedException {
+		for (HashStoreType type : new HashStoreType[] { HashStoreType.lockFree(), HashStoreType.striped(), HashStoreType.synchronous() }) {
+			final Loader loader = new Loader();
+			final Map<Integer, Integer> map = MapMaker.<Integer, Integer>hash().type(type).defaultsTo(loader).newMap();
+			for (Object result : getConcurrently(map, 21, 8))
+				assertEquals(Integer.valueOf(42), result);
+			assertEquals(1, loader.calls.get());
+			assertEquals(Integer.valueOf(42), map.get(21));
+			assertEquals(1, loader.calls.get());
+			assertEquals(1, map.totalCount());
+		}
+	}
+	
+	public void testFailureIsSharedAndNotCached() throws InterruptedException {
+		final Loader loader = new Loader();
+		final Map<Integer, Integer> map = MapMaker.<Integer, Integer>hash().type(HashStoreType.lockFree()).defaultsTo(loader).newMap();
+		for (Object result : getConcurrently(map, -1, 8))
+			assertTrue(String.valueOf(result), result instanceof IllegalArgumentException);
+		assertEquals(1, loader.calls.get());
+		assertFalse(map.contains(-1));
+		loader.fail = false;
+		assertEquals(Integer.valueOf(-2), map.get(-1));
+		assertEquals(2, loader.calls.get());
+	}
+	
+	public void testAsync() throws InterruptedException, ExecutionException {
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			final Loader loader = new Loader();
+			final DefaultFunctionMap<Integer, Integer> map = (DefaultFunctionMap<Integer, Integer>) 
+				MapMaker.<Integer, Integer>hash().type(HashStoreType.lockFree()).defaultsTo(loader).newMap();
+			final List<CompletableFuture<Integer>> futures = new ArrayList<CompletableFuture<Integer>>();
+			for (int i = 0 ; i != 8 ; i++)
+				futures.add(map.getAsync(5, executor));
+			for (CompletableFuture<Integer> future : futures)
+				assertEquals(Integer.valueOf(10), future.get());
+			assertEquals(1, loader.calls.get());
+			assertTrue(map.getAsync(5).isDone());
+			final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+			try {
+				map.getAsync(-3, executor).get();
+			} catch (ExecutionException e) {
+				failure.set(e.getCause());
+			}
+			assertTrue(failure.get() instanceof IllegalArgumentException);
+			// a serial map computes the value in the calling thread
+			final Loader serialLoader = new Loader();
+			final DefaultFunctionMap<Integer, Integer> serial = (DefaultFunctionMap<Integer, Integer>) 
+				MapMaker.<Integer, Integer>hash().defaultsTo(serialLoader).newMap();
+			assertTrue(serial.getAsync(4, executor).isDone());
+			assertEquals(Integer.valueOf(8), serial.getAsync(4, executor).get());
+			assertEquals(1, serialLoader.calls.get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+}
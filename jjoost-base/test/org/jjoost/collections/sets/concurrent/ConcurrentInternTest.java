@@ -0,0 +1,102 @@
+package org.jjoost.collections.sets.concurrent;
+
+import java.nio.CharBuffer;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import org.jjoost.collections.base.SerialHashStore;
+import org.jjoost.collections.sets.concurrent.ConcurrentIntern.Strength;
+import org.jjoost.util.Equalities;
+
+public class ConcurrentInternTest extends TestCase {
+
+	public void testIntern() {
+		for (Strength strength : Strength.values()) {
+			final ConcurrentIntern<String> intern = new ConcurrentIntern<String>(strength);
+			final String[] canonical = new String[1000];
+			for (int i = 0 ; i != canonical.length ; i++) {
+				canonical[i] = Integer.toString(i);
+				assertSame(canonical[i], intern.apply(canonical[i]));
+			}
+			for (int i = 0 ; i != canonical.length ; i++)
+				assertSame(canonical[i], intern.apply(new String(canonical[i])));
+			assertNull(intern.apply(null));
+			assertEquals(1000, intern.totalCount());
+			intern.clear();
+			assertEquals(0, intern.totalCount());
+		}
+	}
+	
+	public void testCharSequence() {
+		final ConcurrentStringIntern intern = new ConcurrentStringIntern();
+		final String hello = intern.apply(new String("hello"));
+		final StringBuilder buffer = new StringBuilder("<<hello>>");
+		assertSame(hello, intern.intern(buffer, 2, 7));
+		assertSame(hello, intern.intern(CharBuffer.wrap("hello".toCharArray())));
+		final String hell = intern.intern(buffer, 2, 6);
+		assertEquals("hell", hell);
+		assertSame(hell, intern.apply(new String("hell")));
+		assertSame(intern.intern(""), intern.intern(buffer, 3, 3));
+		assertEquals(3, intern.totalCount());
+		try {
+			intern.intern(buffer, 5, 10);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+		}
+	}
+	
+	public void testWeakValuesAreReclaimed() throws InterruptedException {
+		final ConcurrentIntern<String> intern = new ConcurrentIntern<String>(Strength.WEAK, 1, SerialHashStore.defaultRehasher(), Equalities.object());
+		final String retained = intern.apply(new String("retained"));
+		for (int i = 0 ; i != 10000 ; i++)
+			intern.apply(new String("garbage" + i));
+		// entries are only expunged by a miss, so keep interning new values until the collector has run
+		for (int i = 0 ; i != 100 && intern.totalCount() > 5000 ; i++) {
+			System.gc();
+			Thread.sleep(10);
+			intern.apply(new String("trigger" + i));
+		}
+		assertTrue(Integer.toString(intern.totalCount()), intern.totalCount() <= 5000);
+		assertSame(retained, intern.apply(new String("retained")));
+	}
+	
+	public void testConcurrent() throws InterruptedException {
+		final ConcurrentStringIntern intern = new ConcurrentStringIntern(Strength.WEAK);
+		final ConcurrentHashMap<String, String> first = new ConcurrentHashMap<String, String>();
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		final Thread[] threads = new Thread[4];
+		for (int t = 0 ; t != threads.length ; t++) {
+			final int seed = t;
+			threads[t] = new Thread() {
+				public void run() {
+					try {
+						final Random random = new Random(seed);
+						final StringBuilder buffer = new StringBuilder();
+						for (int i = 0 ; i != 100000 ; i++) {
+							buffer.setLength(0);
+							buffer.append('[').append(random.nextInt(5000)).append(']');
+							final String canonical = (i & 1) == 0 
+								? intern.intern(buffer, 1, buffer.length() - 1) 
+								: intern.apply(buffer.substring(1, buffer.length() - 1));
+							final String prev = first.putIfAbsent(canonical, canonical);
+							if (prev != null && prev != canonical)
+								throw new AssertionError(canonical);
+						}
+					} catch (Throwable e) {
+						failure.compareAndSet(null, e);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		if (failure.get() != null)
+			throw new AssertionError(failure.get());
+		assertEquals(first.size(), intern.totalCount());
+	}
+	
+}
@@ -0,0 +1,93 @@
+package org.jjoost.collections.sets.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ObjLongConsumer;
+
+import org.jjoost.collections.Map;
+import org.jjoost.collections.sets.base.MultiHashSetTest;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Rehashers;
+
+public class LockFreeLongCountingMultiHashSetTest extends MultiHashSetTest {
+
+	private final LockFreeLongCountingMultiHashSet<String> set = new LockFreeLongCountingMultiHashSet<String>(Rehashers.identity(), Equalities.object());
+	
+	public LockFreeLongCountingMultiHashSet<String> getSet() {
+		return set;
+	}
+	
+	protected int capacity() {
+		return getSet().capacity();
+	}
+
+	@Override
+	protected boolean duplicatesGrowTable() {
+		return false;
+	}
+	
+	public void testLongCounts() {
+		final LockFreeLongCountingMultiHashSet<String> set = new LockFreeLongCountingMultiHashSet<String>();
+		set.add("a", 3L * Integer.MAX_VALUE);
+		set.add("a", 1);
+		set.add("b", 5);
+		assertEquals(3L * Integer.MAX_VALUE + 1, set.longCount("a"));
+		assertEquals(Integer.MAX_VALUE, set.count("a"));
+		assertEquals(3L * Integer.MAX_VALUE + 6, set.longTotalCount());
+		assertEquals(2, set.remove("b", 2));
+		assertEquals(3, set.longCount("b"));
+		final Map<String, Long> snapshot = set.snapshotAndReset();
+		assertEquals(Long.valueOf(3L * Integer.MAX_VALUE + 1), snapshot.get("a"));
+		assertEquals(Long.valueOf(3), snapshot.get("b"));
+		assertEquals(0, set.longTotalCount());
+		assertEquals(2, set.uniqueCount());
+		try {
+			set.add("a", -1);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+	
+	// adders race periodic flushes; every addition must be flushed exactly once
+	public void testConcurrentAddsAndFlushes() throws InterruptedException {
+		final LockFreeLongCountingMultiHashSet<Integer> set = new LockFreeLongCountingMultiHashSet<Integer>();
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		final AtomicLong flushed = new AtomicLong();
+		final ObjLongConsumer<Integer> sink = new ObjLongConsumer<Integer>() {
+			public void accept(Integer key, long count) {
+				flushed.addAndGet(count);
+			}
+		};
+		final Thread[] adders = new Thread[4];
+		for (int t = 0 ; t != adders.length ; t++) {
+			adders[t] = new Thread() {
+				public void run() {
+					try {
+						for (int i = 0 ; i != 500000 ; i++)
+							set.add(i & 3, 1 + (i & 1));
+					} catch (Throwable e) {
+						failure.compareAndSet(null, e);
+					}
+				}
+			};
+			adders[t].start();
+		}
+		int rounds = 0;
+		while (adders[0].isAlive() || adders[adders.length - 1].isAlive()) {
+			if ((rounds++ & 1) == 0) {
+				set.drainTo(sink);
+			} else {
+				for (Long count : set.snapshotAndReset().values())
+					flushed.addAndGet(count);
+			}
+		}
+		for (Thread adder : adders)
+			adder.join();
+		if (failure.get() != null)
+			throw new AssertionError(failure.get());
+		set.drainTo(sink);
+		assertEquals(adders.length * 750000L, flushed.get());
+		assertEquals(0, set.longTotalCount());
+	}
+
+}
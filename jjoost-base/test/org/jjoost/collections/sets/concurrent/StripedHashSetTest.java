@@ -0,0 +1,20 @@
+package org.jjoost.collections.sets.concurrent;
+
+import org.jjoost.collections.sets.base.HashSet;
+import org.jjoost.collections.sets.base.HashSetTest;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Rehashers;
+
+public class StripedHashSetTest extends HashSetTest {
+
+	private final StripedHashSet<String> set = new StripedHashSet<String>(Rehashers.identity(), Equalities.object());
+	
+	public HashSet<String, ?, ?> getSet() {
+		return set;
+	}
+	
+	protected int capacity() {
+		return getSet().capacity();
+	}
+
+}
@@ -0,0 +1,24 @@
+package org.jjoost.collections.sets.concurrent;
+
+import org.jjoost.collections.sets.base.MultiHashSetTest;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Rehashers;
+
+public class StripedInlineMultiHashSetTest extends MultiHashSetTest {
+
+	private final StripedInlineMultiHashSet<String> set = new StripedInlineMultiHashSet<String>(Rehashers.identity(), Equalities.object());
+	
+	public StripedInlineMultiHashSet<String> getSet() {
+		return set;
+	}
+	
+	protected int capacity() {
+		return getSet().capacity();
+	}
+
+	@Override
+	protected boolean duplicatesGrowTable() {
+		return false;
+	}
+
+}
@@ -0,0 +1,20 @@
+package org.jjoost.collections.sets.concurrent;
+
+import org.jjoost.collections.MultiSet;
+import org.jjoost.collections.sets.base.MultiHashSetUniqueSetTest;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Rehashers;
+
+public class StripedInlineMultiHashSetUniqueSetTest extends MultiHashSetUniqueSetTest {
+
+	private final StripedInlineMultiHashSet<String> set = new StripedInlineMultiHashSet<String>(Rehashers.identity(), Equalities.object());
+	
+	public MultiSet<String> getMultiSet() {
+		return set;
+	}
+	
+	protected int capacity() {
+		return set.capacity();
+	}
+
+}
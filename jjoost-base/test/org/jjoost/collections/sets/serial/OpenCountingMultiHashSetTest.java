@@ -0,0 +1,41 @@
+package org.jjoost.collections.sets.serial;
+
+import java.util.Arrays;
+
+import org.jjoost.collections.sets.base.MultiHashSetTest;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Rehashers;
+
+public class OpenCountingMultiHashSetTest extends MultiHashSetTest {
+
+	private final OpenCountingMultiHashSet<String> set = new OpenCountingMultiHashSet<String>(Rehashers.identity(), Equalities.object());
+	
+	public OpenCountingMultiHashSet<String> getSet() {
+		return set;
+	}
+	
+	protected int capacity() {
+		return getSet().capacity();
+	}
+
+	@Override
+	protected boolean duplicatesGrowTable() {
+		return false;
+	}
+
+	// linear probing places q in the first free slot after a, rather than alongside a in its bucket
+	@Override
+	public void testIterator() {
+		checkEmpty();
+		put(null);
+		put("a");
+		put("a");
+		put("b");
+		put("c");
+		put("q");
+		put("q");
+		checkIteratorContents(Arrays.asList(null, "a", "a", "b", "c", "q", "q").iterator(), iterator(), true);
+		checkAndClear(7);
+	}
+
+}
@@ -0,0 +1,35 @@
+package org.jjoost.collections.sets.serial;
+
+import java.util.Arrays;
+
+import org.jjoost.collections.sets.base.HashSet;
+import org.jjoost.collections.sets.base.HashSetTest;
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Rehashers;
+
+public class OpenHashSetTest extends HashSetTest {
+
+	private final OpenHashSet<String> set = new OpenHashSet<String>(Rehashers.identity(), Equalities.object());
+	
+	public HashSet<String, ?, ?> getSet() {
+		return set;
+	}
+	
+	protected int capacity() {
+		return getSet().capacity();
+	}
+
+	// linear probing places q in the first free slot after a, rather than alongside a in its bucket
+	@Override
+	public void testIterator() {
+		checkEmpty();
+		put(null);
+		put("a");
+		put("b");
+		put("c");
+		put("q");
+		checkIteratorContents(Arrays.asList(null, "a", "b", "c", "q").iterator(), iterator(), true);
+		checkAndClear(5);
+	}
+
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jjoost.collections.sets.serial;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+import org.jjoost.collections.OrderedMultiSet;
+import org.jjoost.collections.OrderedScalarSet;
+import org.jjoost.collections.OrderedSet;
+import org.jjoost.util.Filters;
+import org.jjoost.util.Iters;
+
+public class SerialBTreeSetTest extends TestCase {
+
+	public void testAgainstTreeSet() {
+		final Random random = new Random(0);
+		final TreeSet<Integer> expect = new TreeSet<Integer>();
+		final OrderedScalarSet<Integer> set = new SerialBTreeSet<Integer>();
+		for (int i = 0 ; i != 50000 ; i++) {
+			final Integer v = random.nextInt(1000);
+			switch (random.nextInt(3)) {
+			case 0:
+				assertEquals(expect.add(v), set.add(v));
+				break;
+			case 1:
+				assertEquals(expect.remove(v) ? 1 : 0, set.remove(v));
+				break;
+			case 2:
+				assertEquals(expect.contains(v), set.contains(v));
+				assertEquals(expect.ceiling(v), set.ceil(v));
+				assertEquals(expect.lower(v), set.lesser(v));
+				break;
+			}
+		}
+		assertEquals(expect.size(), set.size());
+		assertEquals(new ArrayList<Integer>(expect), Iters.toList(set));
+		assertEquals(new ArrayList<Integer>(expect.descendingSet()), Iters.toList(set.all(false)));
+	}
+	
+	public void testFilter() {
+		final OrderedScalarSet<Integer> set = new SerialBTreeSet<Integer>();
+		for (int i = 0 ; i != 100 ; i++)
+			set.add(i);
+		final OrderedScalarSet<Integer> view = set.filter(Filters.isBetween(10, 20));
+		assertEquals(10, view.size());
+		assertEquals(Integer.valueOf(10), view.first());
+		assertEquals(Integer.valueOf(19), view.last());
+		assertNull(view.ceil(20));
+		assertFalse(view.contains(50));
+		assertEquals(0, view.remove(50));
+		try {
+			view.add(50);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+		final OrderedSet<Integer> removed = set.removeAndReturn(Filters.isLess(15));
+		assertEquals(15, removed.totalCount());
+		assertEquals(5, view.size());
+		assertEquals(85, set.size());
+		assertEquals(Arrays.asList(15, 16, 17, 18, 19), Iters.toList(view));
+	}
+	
+	public void testRankAndSelect() {
+		final OrderedMultiSet<Integer> set = new SerialBTreeMultiSet<Integer>();
+		for (int i = 0 ; i != 10000 ; i++)
+			set.add(i / 2);
+		for (int i = 0 ; i != 5000 ; i++) {
+			assertEquals(i * 2, set.rank(i));
+			assertEquals(Integer.valueOf(i), set.select(i * 2));
+			assertEquals(Integer.valueOf(i), set.select(i * 2 + 1));
+		}
+		assertNull(set.select(-1));
+		assertNull(set.select(10000));
+		assertEquals(Integer.valueOf(0), set.percentile(0));
+		assertEquals(Integer.valueOf(2499), set.percentile(0.5));
+		assertEquals(Integer.valueOf(4949), set.percentile(0.99));
+		assertEquals(Integer.valueOf(4999), set.percentile(1));
+		final OrderedSet<Integer> view = set.filter(Filters.isBetween(1000, 2000));
+		assertEquals(0, view.rank(1000));
+		assertEquals(200, view.rank(1100));
+		assertEquals(Integer.valueOf(1100), view.select(200));
+		assertNull(view.select(2000));
+		assertEquals(Integer.valueOf(1999), view.percentile(1));
+		try {
+			set.percentile(1.5);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+	
+	public void testMultiSet() {
+		final OrderedMultiSet<String> set = new SerialBTreeMultiSet<String>();
+		for (String s : new String[] { "c", "a", "b", "a", "c", "a" })
+			set.add(s);
+		assertEquals(6, set.totalCount());
+		assertEquals(3, set.uniqueCount());
+		assertEquals(3, set.count("a"));
+		assertEquals(Arrays.asList("a", "a", "a", "b", "c", "c"), Iters.toList(set));
+		assertEquals(Arrays.asList("c", "b", "a"), Iters.toList(set.unique(false)));
+		assertEquals(3, set.unique().size());
+		assertEquals(2, set.remove("a", 2));
+		final List<String> rest = Iters.toList(set.filterCopy(Filters.isGreaterEq("b")));
+		assertEquals(Arrays.asList("b", "c", "c"), rest);
+		assertEquals(4, set.clear());
+	}
+	
+}
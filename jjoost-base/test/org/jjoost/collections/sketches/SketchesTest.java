@@ -0,0 +1,128 @@
+package org.jjoost.collections.sketches;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import junit.framework.TestCase;
+
+import org.jjoost.util.Equalities;
+import org.jjoost.util.Rehasher;
+import org.jjoost.util.Rehashers;
+
+public class SketchesTest extends TestCase {
+
+	@SuppressWarnings("unchecked")
+	private static <E> E serialize(E e) throws Exception {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(e);
+		out.close();
+		return (E) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+	}
+	
+	public void testCountMin() throws Exception {
+		// the identity rehasher leaves consecutive integers' hashes consecutive, which the sketch must cope with
+		final CountMinMultiSet<Integer> a = new CountMinMultiSet<Integer>(0.001, 0.99, Rehashers.identity(), Equalities.object());
+		final CountMinMultiSet<Integer> b = new CountMinMultiSet<Integer>(0.001, 0.99, Rehashers.identity(), Equalities.object());
+		for (int i = 0 ; i != 100000 ; i++) {
+			a.put(i % 1000);
+			b.add(i % 10, 2);
+		}
+		final CountMinMultiSet<Integer> merged = serialize(a);
+		merged.merge(b);
+		assertEquals(300000, merged.totalCount());
+		int exceeded = 0;
+		for (int i = 0 ; i != 1000 ; i++) {
+			final long expect = 100 + (i < 10 ? 20000 : 0);
+			final long count = merged.longCount(i);
+			assertTrue(count >= expect);
+			if (count > expect + 0.001 * merged.totalCount())
+				exceeded++;
+		}
+		assertTrue(Integer.toString(exceeded), exceeded <= 10);
+		assertFalse(a.contains(-1) && a.contains(-2) && a.contains(-3));
+		try {
+			a.merge(new CountMinMultiSet<Integer>(0.01, 0.99, Rehashers.identity(), Equalities.object()));
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+	
+	public void testBloom() throws Exception {
+		final BloomSet<Integer> a = new BloomSet<Integer>(100000, 0.01, Rehashers.identity(), Equalities.object());
+		final BloomSet<Integer> b = new BloomSet<Integer>(100000, 0.01, Rehashers.identity(), Equalities.object());
+		int added = 0;
+		for (int i = 0 ; i != 50000 ; i++) {
+			// add() may only report an element as new when it definitely is, so collisions can only reduce this
+			if (a.add(i * 2))
+				added++;
+			b.add(i * 2 + 1);
+		}
+		assertTrue(Integer.toString(added), added > 49000);
+		final BloomSet<Integer> merged = serialize(a);
+		merged.merge(b);
+		for (int i = 0 ; i != 100000 ; i++) {
+			assertTrue(merged.contains(i));
+			if ((i & 1) == 0)
+				assertTrue(a.accept(i));
+		}
+		int falsePositives = 0;
+		for (int i = 100000 ; i != 200000 ; i++) {
+			if (merged.contains(i))
+				falsePositives++;
+		}
+		assertTrue(Integer.toString(falsePositives), falsePositives < 1500);
+		assertEquals(0.01, merged.expectedFalsePositiveRate(), 0.005);
+		assertFalse(merged.add(2));
+	}
+	
+	public void testHyperLogLog() throws Exception {
+		final HyperLogLog<Integer> a = new HyperLogLog<Integer>(14, Rehashers.identity(), Equalities.object());
+		final HyperLogLog<Integer> b = new HyperLogLog<Integer>(14, Rehashers.identity(), Equalities.object());
+		assertEquals(0, a.uniqueCount());
+		for (int i = 0 ; i != 1000000 ; i++) {
+			a.add(i);
+			b.add(i + 500000);
+		}
+		for (int i = 0 ; i != 10 ; i++)
+			a.add(i);
+		assertEquals(1000000, a.uniqueCount(), 1000000 * 4 * a.relativeError());
+		final HyperLogLog<Integer> merged = serialize(a);
+		merged.merge(b);
+		assertEquals(1500000, merged.uniqueCount(), 1500000 * 4 * a.relativeError());
+		final HyperLogLog<Integer> small = new HyperLogLog<Integer>();
+		for (int i = 0 ; i != 100 ; i++)
+			small.add(i % 50);
+		assertEquals(50, small.uniqueCount(), 2);
+	}
+	
+	// with every register at the same rank the estimate must grow with the rank, and saturate rather than overflow
+	public void testHyperLogLogSaturation() {
+		// inverts the sketch's murmur3 finaliser, so that each value added is its own hash
+		final Rehasher unmix = new Rehasher() {
+			private static final long serialVersionUID = 1L;
+			@Override
+			public int rehash(int h) {
+				h ^= h >>> 16;
+				h *= 0x7ed1b41d;
+				h ^= (h >>> 13) ^ (h >>> 26);
+				h *= 0xa5cb9243;
+				h ^= h >>> 16;
+				return h;
+			}
+		};
+		final HyperLogLog<Integer> sketch = new HyperLogLog<Integer>(14, unmix, Equalities.object());
+		long last = 0;
+		for (int rank = 1 ; rank <= 32 - 14 + 1 ; rank++) {
+			for (int register = 0 ; register != 1 << 14 ; register++)
+				sketch.add((register << 18) | (rank > 18 ? 0 : 1 << (18 - rank)));
+			final long count = sketch.uniqueCount();
+			assertTrue(rank + ": " + count, count >= last);
+			last = count;
+		}
+		assertTrue(last > 1L << 32);
+	}
+	
+}
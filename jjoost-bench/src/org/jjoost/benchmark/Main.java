@@ -0,0 +1,62 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.benchmark;
+
+import org.jjoost.benchmark.collections.ConcurrentHashMapBenchmark;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs every benchmark with the GC profiler attached; the single threaded benchmarks are run once, and
+ * <code>ConcurrentHashMapBenchmark</code> once for each thread count in the comma separated system property
+ * <code>jjoost.bench.threads</code> (default <code>1,2,4,8</code>). Any JMH command line options are
+ * passed through, so e.g. <code>-p size=1000</code> restricts the parameter space.
+ * 
+ * @author b.elliottsmith
+ */
+public class Main {
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		final CommandLineOptions options = new CommandLineOptions(args);
+		final String concurrent = ConcurrentHashMapBenchmark.class.getName();
+		new Runner(new OptionsBuilder()
+			.parent(options)
+			.exclude(concurrent)
+			.threads(1)
+			.addProfiler(GCProfiler.class)
+			.build()).run();
+		for (String threads : System.getProperty("jjoost.bench.threads", "1,2,4,8").split(",")) {
+			new Runner(new OptionsBuilder()
+				.parent(options)
+				.include(concurrent)
+				.threads(Integer.parseInt(threads.trim()))
+				.addProfiler(GCProfiler.class)
+				.build()).run();
+		}
+	}
+
+}
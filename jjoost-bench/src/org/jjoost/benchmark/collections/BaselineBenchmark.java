@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.benchmark.collections;
+
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.jjoost.collections.maps.serial.LongHashMap;
+import org.jjoost.util.Equalities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The <code>HashMapBenchmark.insertDeleteVerify</code> cycle and lookups against the JDK maps and the primitive
+ * <code>LongHashMap</code>, as points of comparison for the <code>HashStore</code> based maps
+ * 
+ * @author b.elliottsmith
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class BaselineBenchmark {
+
+	@Param({ "1000", "100000", "1000000" })
+	public int size;
+
+	@Param({ "0.75", "1.0" })
+	public float loadFactor;
+
+	private Long[] keys;
+	private boolean[] deletions;
+	private HashMap<Long, Long> jdk;
+	private LongHashMap<Long> primitive;
+	private int next;
+
+	@Setup
+	public void setup() {
+		keys = BenchmarkData.keys(size);
+		deletions = BenchmarkData.deletions(size);
+		jdk = new HashMap<Long, Long>(16, loadFactor);
+		primitive = new LongHashMap<Long>(16, loadFactor, LongHashMap.defaultRehasher(), Equalities.object());
+		for (Long k : keys) {
+			jdk.put(k, k);
+			primitive.put(k.longValue(), k);
+		}
+	}
+
+	private int next() {
+		final int i = next;
+		next = i + 1 == size ? 0 : i + 1;
+		return i;
+	}
+
+	@Benchmark
+	@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Long jdkGetPresent() {
+		return jdk.get(keys[next()]);
+	}
+
+	@Benchmark
+	@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Long primitiveGetPresent() {
+		return primitive.get(keys[next()].longValue());
+	}
+
+	@Benchmark
+	public HashMap<Long, Long> jdkInsertDeleteVerify(Blackhole bh) {
+		final HashMap<Long, Long> map = new HashMap<Long, Long>(16, loadFactor);
+		final Long[] keys = this.keys;
+		for (int i = 0 ; i != keys.length ; i++)
+			map.put(keys[i], keys[i]);
+		for (int i = 0 ; i != keys.length ; i++)
+			if (deletions[i])
+				map.remove(keys[i]);
+		for (int i = 0 ; i != keys.length ; i++)
+			bh.consume(map.get(keys[i]));
+		return map;
+	}
+
+	@Benchmark
+	public ConcurrentHashMap<Long, Long> jdkConcurrentInsertDeleteVerify(Blackhole bh) {
+		final ConcurrentHashMap<Long, Long> map = new ConcurrentHashMap<Long, Long>(16, loadFactor);
+		final Long[] keys = this.keys;
+		for (int i = 0 ; i != keys.length ; i++)
+			map.put(keys[i], keys[i]);
+		for (int i = 0 ; i != keys.length ; i++)
+			if (deletions[i])
+				map.remove(keys[i]);
+		for (int i = 0 ; i != keys.length ; i++)
+			bh.consume(map.get(keys[i]));
+		return map;
+	}
+
+	@Benchmark
+	public LongHashMap<Long> primitiveInsertDeleteVerify(Blackhole bh) {
+		final LongHashMap<Long> map = new LongHashMap<Long>(16, loadFactor, LongHashMap.defaultRehasher(), Equalities.object());
+		final Long[] keys = this.keys;
+		for (int i = 0 ; i != keys.length ; i++)
+			map.put(keys[i].longValue(), keys[i]);
+		for (int i = 0 ; i != keys.length ; i++)
+			if (deletions[i])
+				map.remove(keys[i].longValue());
+		for (int i = 0 ; i != keys.length ; i++)
+			bh.consume(map.get(keys[i].longValue()));
+		return map;
+	}
+
+}
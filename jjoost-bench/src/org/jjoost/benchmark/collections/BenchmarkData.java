@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.benchmark.collections;
+
+import java.util.HashSet;
+import java.util.Random;
+
+import org.jjoost.collections.base.HashStoreType;
+import org.jjoost.util.Rehasher;
+import org.jjoost.util.Rehashers;
+
+/**
+ * Key sets and parameter decoding shared by the collection benchmarks. Keys are unique random <code>Long</code>s,
+ * generated once per JVM from a fixed seed, so that every fork and every benchmark sees the same sequence.
+ * 
+ * @author b.elliottsmith
+ */
+final class BenchmarkData {
+
+	private BenchmarkData() { }
+
+	private static final int MAX_KEYS = 1 << 22;
+	private static Long[] keys;
+	private static boolean[] deletions;
+
+	/**
+	 * Returns the first <code>count</code> of a fixed sequence of unique keys
+	 */
+	static synchronized Long[] keys(int count) {
+		if (count > MAX_KEYS)
+			throw new IllegalArgumentException("At most " + MAX_KEYS + " keys are available");
+		if (keys == null || keys.length < count) {
+			final Random rnd = new Random(0);
+			final HashSet<Long> used = new HashSet<Long>();
+			final int size = Math.max(count, keys == null ? 0 : keys.length << 1);
+			final Long[] r = new Long[Math.min(MAX_KEYS, size)];
+			for (int i = 0 ; i != r.length ; i++) {
+				Long v = rnd.nextLong();
+				while (!used.add(v))
+					v = rnd.nextLong();
+				r[i] = v;
+			}
+			final boolean[] d = new boolean[r.length];
+			for (int i = 0 ; i != d.length ; i++)
+				d[i] = rnd.nextBoolean();
+			keys = r;
+			deletions = d;
+		}
+		final Long[] r = new Long[count];
+		System.arraycopy(keys, 0, r, 0, count);
+		return r;
+	}
+
+	/**
+	 * Returns a random selection of roughly half of the first <code>count</code> keys, matching the key sequence
+	 */
+	static synchronized boolean[] deletions(int count) {
+		keys(count);
+		final boolean[] r = new boolean[count];
+		System.arraycopy(deletions, 0, r, 0, count);
+		return r;
+	}
+
+	/**
+	 * Keys that are never returned by <code>keys()</code>, for measuring unsuccessful lookups
+	 */
+	static Long[] missingKeys(int count) {
+		final Long[] present = keys(count);
+		final HashSet<Long> used = new HashSet<Long>(present.length << 1);
+		for (Long k : present)
+			used.add(k);
+		final Random rnd = new Random(1);
+		final Long[] r = new Long[count];
+		for (int i = 0 ; i != count ; i++) {
+			Long v = rnd.nextLong();
+			while (used.contains(v))
+				v = rnd.nextLong();
+			r[i] = v;
+		}
+		return r;
+	}
+
+	/**
+	 * Decodes a <code>HashStoreType.Type</code> name; striped stores use the default stripe count
+	 */
+	static HashStoreType storeType(String name) {
+		final HashStoreType.Type type = HashStoreType.Type.valueOf(name);
+		switch (type) {
+		case STRIPED:
+			return HashStoreType.striped();
+		default:
+			return new HashStoreType(type);
+		}
+	}
+
+	/**
+	 * Decodes one of the rehasher names used as a benchmark parameter
+	 */
+	static Rehasher rehasher(String name) {
+		if (name.equals("jdk"))
+			return Rehashers.jdkHashmapRehasher();
+		if (name.equals("jdkConcurrent"))
+			return Rehashers.jdkConcurrentHashmapRehasher();
+		if (name.equals("flip"))
+			return Rehashers.flip();
+		if (name.equals("flipEveryHalfByte"))
+			return Rehashers.flipEveryHalfByte();
+		if (name.equals("identity"))
+			return Rehashers.identity();
+		throw new IllegalArgumentException(name);
+	}
+
+}
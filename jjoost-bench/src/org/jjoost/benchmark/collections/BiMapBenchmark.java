@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.benchmark.collections;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jjoost.collections.AnyMap;
+import org.jjoost.collections.ListMapNesting;
+import org.jjoost.collections.MapMaker;
+import org.jjoost.collections.MultiMapNesting;
+import org.jjoost.collections.bimaps.BiMapListToList;
+import org.jjoost.collections.bimaps.BiMapListToMany;
+import org.jjoost.collections.bimaps.BiMapManyToList;
+import org.jjoost.collections.bimaps.BiMapManyToMany;
+import org.jjoost.collections.bimaps.BiMapManyToOne;
+import org.jjoost.collections.bimaps.BiMapOneToMany;
+import org.jjoost.collections.bimaps.BiMapOneToOne;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookups in both directions, and paired inserts and removals, against each of the bimaps. Every bimap holds the
+ * same one to one relation, so that the cost of maintaining the two sides can be compared directly.
+ * 
+ * @author b.elliottsmith
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class BiMapBenchmark {
+
+	@Param({ "ONE_TO_ONE", "ONE_TO_MANY", "MANY_TO_ONE", "MANY_TO_MANY", "LIST_TO_LIST", "LIST_TO_MANY", "MANY_TO_LIST" })
+	public String kind;
+
+	@Param({ "SERIAL", "LOCK_FREE", "STRIPED" })
+	public String type;
+
+	@Param({ "1000", "100000" })
+	public int size;
+
+	private Long[] keys;
+	private Long[] values;
+	private AnyMap<Long, Long> map;
+	private AnyMap<Long, Long> inverse;
+	private int next;
+
+	@Setup
+	public void setup() {
+		keys = BenchmarkData.keys(size);
+		values = BenchmarkData.missingKeys(size);
+		final MapMaker<Long, Long> maker = MapMaker.<Long, Long>hash().type(BenchmarkData.storeType(type));
+		final MultiMapNesting<Long> multi = MultiMapNesting.<Long>inline();
+		final ListMapNesting<Long> list = ListMapNesting.<Long>inline();
+		switch (Kind.valueOf(kind)) {
+		case ONE_TO_ONE:
+			map = new BiMapOneToOne<Long, Long>(maker.newMap(), maker.newMap());
+			break;
+		case ONE_TO_MANY:
+			map = new BiMapOneToMany<Long, Long>(maker.newMap(), maker.newMultiMap(multi));
+			break;
+		case MANY_TO_ONE:
+			map = new BiMapManyToOne<Long, Long>(maker.newMultiMap(multi), maker.newMap());
+			break;
+		case MANY_TO_MANY:
+			map = new BiMapManyToMany<Long, Long>(maker.newMultiMap(multi), maker.newMultiMap(multi));
+			break;
+		case LIST_TO_LIST:
+			map = new BiMapListToList<Long, Long>(maker.newListMap(list), maker.newListMap(list));
+			break;
+		case LIST_TO_MANY:
+			map = new BiMapListToMany<Long, Long>(maker.newListMap(list), maker.newMultiMap(multi));
+			break;
+		case MANY_TO_LIST:
+			map = new BiMapManyToList<Long, Long>(maker.newMultiMap(multi), maker.newListMap(list));
+			break;
+		}
+		inverse = map.inverse();
+		for (int i = 0 ; i != size ; i++)
+			map.put(keys[i], values[i]);
+	}
+
+	private static enum Kind {
+		ONE_TO_ONE, ONE_TO_MANY, MANY_TO_ONE, MANY_TO_MANY, LIST_TO_LIST, LIST_TO_MANY, MANY_TO_LIST
+	}
+
+	private int next() {
+		final int i = next;
+		next = i + 1 == size ? 0 : i + 1;
+		return i;
+	}
+
+	@Benchmark
+	public Long forwards() {
+		return map.first(keys[next()]);
+	}
+
+	@Benchmark
+	public Long backwards() {
+		return inverse.first(values[next()]);
+	}
+
+	@Benchmark
+	public int removeThenPut() {
+		final int i = next();
+		final int r = map.remove(keys[i]);
+		map.put(keys[i], values[i]);
+		return r;
+	}
+
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.benchmark.collections;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.jjoost.collections.Map;
+import org.jjoost.collections.MapMaker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A mixed read/write workload against a single <code>Map</code> shared by all benchmark threads, for each of the
+ * thread safe <code>HashStoreType</code>s. Writes alternately insert and remove keys, so that the map stays roughly
+ * half full of the key set throughout. The thread count is set per run by <code>Main</code>, or by <code>-t</code>.
+ * 
+ * @author b.elliottsmith
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@Threads(Threads.MAX)
+public class ConcurrentHashMapBenchmark {
+
+	@Param({ "SYNCHRONIZED", "LINKED_SYNCHRONIZED", "LOCK_FREE", "STRIPED" })
+	public String type;
+
+	@Param({ "100000", "1000000" })
+	public int size;
+
+	@Param({ "0.75" })
+	public float loadFactor;
+
+	@Param({ "jdk", "jdkConcurrent" })
+	public String rehasher;
+
+	@Param({ "100", "90", "50" })
+	public int readPercent;
+
+	private Long[] keys;
+	private Map<Long, Long> map;
+
+	@Setup
+	public void setup() {
+		keys = BenchmarkData.keys(size);
+		final boolean[] deletions = BenchmarkData.deletions(size);
+		map = MapMaker.<Long, Long>hash()
+			.type(BenchmarkData.storeType(type))
+			.loadFactor(loadFactor)
+			.rehasher(BenchmarkData.rehasher(rehasher))
+			.newMap();
+		for (int i = 0 ; i != size ; i++)
+			if (!deletions[i])
+				map.put(keys[i], keys[i]);
+	}
+
+	@Benchmark
+	public Object mixed() {
+		final ThreadLocalRandom rnd = ThreadLocalRandom.current();
+		final Long k = keys[rnd.nextInt(size)];
+		if (rnd.nextInt(100) < readPercent)
+			return map.get(k);
+		if (map.putIfAbsent(k, k) != null)
+			map.remove(k);
+		return k;
+	}
+
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.benchmark.collections;
+
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+import org.jjoost.collections.Map;
+import org.jjoost.collections.MapMaker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Single threaded operations against a <code>Map</code> of every <code>HashStoreType</code> that
+ * <code>MapMaker</code> can construct. State is held per thread, so running with more than one thread measures
+ * independent maps side by side rather than contention; see <code>ConcurrentHashMapBenchmark</code> for that.
+ * 
+ * @author b.elliottsmith
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class HashMapBenchmark {
+
+	@Param({ "SERIAL", "LINKED_SERIAL", "SYNCHRONIZED", "LINKED_SYNCHRONIZED", "LOCK_FREE", "STRIPED", "OPEN_ADDRESSING" })
+	public String type;
+
+	@Param({ "1000", "100000", "1000000" })
+	public int size;
+
+	@Param({ "0.75", "1.0" })
+	public float loadFactor;
+
+	@Param({ "jdk", "flip", "identity" })
+	public String rehasher;
+
+	private Long[] keys;
+	private Long[] missing;
+	private boolean[] deletions;
+	private MapMaker.HashMapMaker<Long, Long> maker;
+	private Map<Long, Long> map;
+	private int next;
+
+	@Setup
+	public void setup() {
+		keys = BenchmarkData.keys(size);
+		missing = BenchmarkData.missingKeys(size);
+		deletions = BenchmarkData.deletions(size);
+		maker = MapMaker.<Long, Long>hash()
+			.type(BenchmarkData.storeType(type))
+			.loadFactor(loadFactor)
+			.rehasher(BenchmarkData.rehasher(rehasher));
+		map = maker.newMap();
+		for (Long k : keys)
+			map.put(k, k);
+	}
+
+	private int next() {
+		final int i = next;
+		next = i + 1 == size ? 0 : i + 1;
+		return i;
+	}
+
+	@Benchmark
+	public Long getPresent() {
+		return map.get(keys[next()]);
+	}
+
+	@Benchmark
+	public Long getAbsent() {
+		return map.get(missing[next()]);
+	}
+
+	@Benchmark
+	public Long removeThenPut() {
+		final Long k = keys[next()];
+		map.remove(k);
+		return map.put(k, k);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void iterate(Blackhole bh) {
+		for (Entry<Long, Long> e : map.entries())
+			bh.consume(e.getValue());
+	}
+
+	/**
+	 * The cycle previously measured by <code>HashSpeedTest</code>: populate a map from empty, remove a random half
+	 * of its keys, then look every key up again
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public Map<Long, Long> insertDeleteVerify(Blackhole bh) {
+		final Map<Long, Long> map = maker.newMap();
+		final Long[] keys = this.keys;
+		for (int i = 0 ; i != keys.length ; i++)
+			map.put(keys[i], keys[i]);
+		for (int i = 0 ; i != keys.length ; i++)
+			if (deletions[i])
+				map.remove(keys[i]);
+		for (int i = 0 ; i != keys.length ; i++)
+			bh.consume(map.get(keys[i]));
+		return map;
+	}
+
+}
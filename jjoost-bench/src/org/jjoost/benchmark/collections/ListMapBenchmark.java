@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.benchmark.collections;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jjoost.collections.ListMap;
+import org.jjoost.collections.ListMapNesting;
+import org.jjoost.collections.MapMaker;
+import org.jjoost.collections.MultiSet;
+import org.jjoost.collections.SetMaker;
+import org.jjoost.util.Factory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Operations against a <code>ListMap</code> for each <code>ListMapNesting</code>; nested list maps hold their values
+ * in a <code>MultiSet</code> of each <code>MultiSetNesting</code> type. Only the store types supported by every
+ * nesting are covered.
+ * 
+ * @author b.elliottsmith
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class ListMapBenchmark {
+
+	@Param({ "INLINE", "NESTED_COUNTING", "NESTED_INLINE", "NESTED_NESTED" })
+	public String nesting;
+
+	@Param({ "SERIAL", "LINKED_SERIAL", "SYNCHRONIZED", "LINKED_SYNCHRONIZED" })
+	public String type;
+
+	@Param({ "1000", "100000" })
+	public int size;
+
+	@Param({ "1", "4", "16" })
+	public int valuesPerKey;
+
+	@Param({ "0.75" })
+	public float loadFactor;
+
+	@Param({ "jdk", "flip" })
+	public String rehasher;
+
+	private Long[] keys;
+	private Long[] missing;
+	private ListMap<Long, Long> map;
+	private int next;
+
+	@Setup
+	public void setup() {
+		keys = BenchmarkData.keys(size);
+		missing = BenchmarkData.missingKeys(size);
+		final ListMapNesting<Long> nesting;
+		if (this.nesting.equals("INLINE")) {
+			nesting = ListMapNesting.<Long>inline();
+		} else {
+			final String values = this.nesting.substring("NESTED_".length());
+			final Factory<MultiSet<Long>> factory = SetMaker.<Long>hash()
+				.newMultiSetFactory(MultiSetBenchmark.<Long>nesting(values));
+			nesting = ListMapNesting.<Long>nested(factory);
+		}
+		map = MapMaker.<Long, Long>hash()
+			.type(BenchmarkData.storeType(type))
+			.loadFactor(loadFactor)
+			.rehasher(BenchmarkData.rehasher(rehasher))
+			.newListMap(nesting);
+		for (int i = 0 ; i != size ; i++)
+			for (int j = 0 ; j != valuesPerKey ; j++)
+				map.put(keys[i], keys[(i + j) % size]);
+	}
+
+	private int next() {
+		final int i = next;
+		next = i + 1 == size ? 0 : i + 1;
+		return i;
+	}
+
+	@Benchmark
+	public int count() {
+		return map.count(keys[next()]);
+	}
+
+	@Benchmark
+	public void values(Blackhole bh) {
+		for (Long v : map.values(keys[next()]))
+			bh.consume(v);
+	}
+
+	@Benchmark
+	public int putThenRemove() {
+		final int i = next();
+		map.put(keys[i], missing[i]);
+		return map.remove(keys[i], missing[i]);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void iterate(Blackhole bh) {
+		for (Object e : map.entries())
+			bh.consume(e);
+	}
+
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.benchmark.collections;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jjoost.collections.MultiSet;
+import org.jjoost.collections.MultiSetNesting;
+import org.jjoost.collections.SetMaker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Operations against a <code>MultiSet</code> for each <code>MultiSetNesting</code>, over the store types that every
+ * nesting supports, with a varying number of duplicates of each distinct value
+ * 
+ * @author b.elliottsmith
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class MultiSetBenchmark {
+
+	@Param({ "COUNTING", "INLINE", "NESTED" })
+	public String nesting;
+
+	@Param({ "SERIAL", "LINKED_SERIAL", "SYNCHRONIZED", "LINKED_SYNCHRONIZED" })
+	public String type;
+
+	@Param({ "1000", "100000" })
+	public int size;
+
+	@Param({ "1", "4", "16" })
+	public int duplicates;
+
+	@Param({ "0.75" })
+	public float loadFactor;
+
+	@Param({ "jdk", "flip" })
+	public String rehasher;
+
+	private Long[] keys;
+	private MultiSet<Long> set;
+	private int next;
+
+	static <V> MultiSetNesting<V> nesting(String name) {
+		switch (MultiSetNesting.Type.valueOf(name)) {
+		case COUNTING:
+			return MultiSetNesting.<V>counting();
+		case INLINE:
+			return MultiSetNesting.<V>inline();
+		case NESTED:
+			return MultiSetNesting.<V>nested();
+		default:
+			throw new IllegalArgumentException(name);
+		}
+	}
+
+	@Setup
+	public void setup() {
+		keys = BenchmarkData.keys(size);
+		set = SetMaker.<Long>hash()
+			.type(BenchmarkData.storeType(type))
+			.loadFactor(loadFactor)
+			.rehasher(BenchmarkData.rehasher(rehasher))
+			.newMultiSet(MultiSetBenchmark.<Long>nesting(nesting));
+		for (Long k : keys)
+			for (int i = 0 ; i != duplicates ; i++)
+				set.add(k);
+	}
+
+	private int next() {
+		final int i = next;
+		next = i + 1 == size ? 0 : i + 1;
+		return i;
+	}
+
+	@Benchmark
+	public int count() {
+		return set.count(keys[next()]);
+	}
+
+	@Benchmark
+	public int addThenRemoveOne() {
+		final Long k = keys[next()];
+		set.add(k);
+		return set.remove(k, 1);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void iterate(Blackhole bh) {
+		for (Long v : set)
+			bh.consume(v);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void iterateUnique(Blackhole bh) {
+		for (Long v : set.unique())
+			bh.consume(v);
+	}
+
+}
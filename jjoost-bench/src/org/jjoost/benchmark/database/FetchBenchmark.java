@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.benchmark.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jjoost.collections.Map;
+import org.jjoost.collections.MultiMap;
+import org.jjoost.database.Fetch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The cost of each <code>Fetch</code> result shape, over an in-memory result set of <code>(group, id, name)</code>
+ * rows so that no time is spent in a driver or database
+ * 
+ * @author b.elliottsmith
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class FetchBenchmark {
+
+	private static final String SQL = "select * from benchmark";
+	private static final int GROUPS = 16;
+
+	@Param({ "100", "10000" })
+	public int rows;
+
+	private Connection id;
+	private Connection idName;
+	private Connection groupName;
+	private Connection groupIdName;
+
+	@Setup
+	public void setup() {
+		final Object[][] data = new Object[rows][];
+		for (int i = 0 ; i != rows ; i++)
+			data[i] = new Object[] { Long.valueOf(i % GROUPS), Long.valueOf(i), "name" + i };
+		id = InMemoryConnection.get(new String[] { "id" }, new int[] { Types.BIGINT }, columns(data, 1));
+		idName = InMemoryConnection.get(new String[] { "id", "name" }, new int[] { Types.BIGINT, Types.VARCHAR }, columns(data, 1, 2));
+		groupName = InMemoryConnection.get(new String[] { "grp", "name" }, new int[] { Types.BIGINT, Types.VARCHAR }, columns(data, 0, 2));
+		groupIdName = InMemoryConnection.get(new String[] { "grp", "id", "name" }, new int[] { Types.BIGINT, Types.BIGINT, Types.VARCHAR }, data);
+	}
+
+	private static Object[][] columns(Object[][] data, int ... columns) {
+		final Object[][] r = new Object[data.length][columns.length];
+		for (int i = 0 ; i != data.length ; i++)
+			for (int j = 0 ; j != columns.length ; j++)
+				r[i][j] = data[i][columns[j]];
+		return r;
+	}
+
+	@Benchmark
+	public Long scalar() throws SQLException {
+		return Fetch.scalar().select(Long.class).from(id).run(SQL);
+	}
+
+	@Benchmark
+	public Long[] column() throws SQLException {
+		return Fetch.column().select(Long.class).from(id).run(SQL);
+	}
+
+	@Benchmark
+	public List<Long> list() throws SQLException {
+		return Fetch.list().select(Long.class).from(id).run(SQL);
+	}
+
+	@Benchmark
+	public Object[] matrix() throws SQLException {
+		return Fetch.matrix().select(Long.class, String.class).from(idName).run(SQL);
+	}
+
+	@Benchmark
+	public Object[] untypedMatrix() throws SQLException {
+		return Fetch.matrix().from(idName).run(SQL);
+	}
+
+	@Benchmark
+	public LinkedHashMap<String, Object> labeledMatrix() throws SQLException {
+		return Fetch.labeledMatrix().select(Long.class, String.class).from(idName).run(SQL);
+	}
+
+	@Benchmark
+	public Object[][] partedMatrix() throws SQLException {
+		return Fetch.partedMatrix().select(Long.class, Long.class, String.class).partBy(1).from(groupIdName).run(SQL);
+	}
+
+	@Benchmark
+	public Map<Long, String> scalarMap() throws SQLException {
+		return Fetch.hashMap().select(Long.class, String.class).asScalarMap().from(idName).run(SQL);
+	}
+
+	@Benchmark
+	public LinkedHashMap<Long, String> linkedJdkMap() throws SQLException {
+		return Fetch.hashMap().select(Long.class, String.class).asLinkedJdkMap().from(idName).run(SQL);
+	}
+
+	@Benchmark
+	public MultiMap<Long, String> multiMap() throws SQLException {
+		return Fetch.hashMap().select(Long.class, String.class).asMultiMap().from(groupName).run(SQL);
+	}
+
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.benchmark.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+
+/**
+ * A JDBC <code>Connection</code> whose every query returns the same fixed rows, so that the <code>Fetch</code>
+ * benchmarks measure the cost of building results and not of a database; only the small subset of JDBC that
+ * <code>Fetch</code> uses is implemented, anything else throws <code>UnsupportedOperationException</code>
+ * 
+ * @author b.elliottsmith
+ */
+final class InMemoryConnection implements InvocationHandler {
+
+	private final String[] labels;
+	private final int[] types;
+	private final Object[][] rows;
+
+	private InMemoryConnection(String[] labels, int[] types, Object[][] rows) {
+		this.labels = labels;
+		this.types = types;
+		this.rows = rows;
+	}
+
+	static Connection get(String[] labels, int[] types, Object[][] rows) {
+		return proxy(Connection.class, new InMemoryConnection(labels, types, rows));
+	}
+
+	private static <E> E proxy(Class<E> clazz, InvocationHandler handler) {
+		return clazz.cast(Proxy.newProxyInstance(clazz.getClassLoader(), new Class<?>[] { clazz }, handler));
+	}
+
+	private static UnsupportedOperationException unsupported(Method method) {
+		return new UnsupportedOperationException(method.getDeclaringClass().getSimpleName() + "." + method.getName());
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) {
+		final String name = method.getName();
+		if (name.equals("createStatement"))
+			return proxy(Statement.class, new InMemoryStatement());
+		if (name.equals("close"))
+			return null;
+		if (name.equals("isClosed"))
+			return Boolean.FALSE;
+		throw unsupported(method);
+	}
+
+	private final class InMemoryStatement implements InvocationHandler {
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			final String name = method.getName();
+			if (name.equals("executeQuery"))
+				return proxy(ResultSet.class, new InMemoryResultSet());
+			if (name.equals("close") || name.equals("cancel"))
+				return null;
+			throw unsupported(method);
+		}
+	}
+
+	private final class InMemoryResultSet implements InvocationHandler {
+		private int row = -1;
+		private boolean wasNull;
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			final String name = method.getName();
+			if (name.equals("next"))
+				return Boolean.valueOf(++row < rows.length);
+			if (name.equals("wasNull"))
+				return Boolean.valueOf(wasNull);
+			if (name.equals("getMetaData"))
+				return proxy(ResultSetMetaData.class, new InMemoryMetaData());
+			if (name.equals("close"))
+				return null;
+			if (name.startsWith("get") && args != null && args[0] instanceof Integer) {
+				final Object v = rows[row][((Integer) args[0]).intValue() - 1];
+				wasNull = v == null;
+				final Class<?> type = method.getReturnType();
+				if (type == long.class)
+					return Long.valueOf(v == null ? 0L : ((Number) v).longValue());
+				if (type == int.class)
+					return Integer.valueOf(v == null ? 0 : ((Number) v).intValue());
+				if (type == String.class)
+					return v == null ? null : v.toString();
+				if (type == Object.class)
+					return v;
+			}
+			throw unsupported(method);
+		}
+	}
+
+	private final class InMemoryMetaData implements InvocationHandler {
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			final String name = method.getName();
+			if (name.equals("getColumnCount"))
+				return Integer.valueOf(labels.length);
+			final int column = ((Integer) args[0]).intValue() - 1;
+			if (name.equals("getColumnType"))
+				return Integer.valueOf(types[column]);
+			if (name.equals("getColumnLabel") || name.equals("getColumnName"))
+				return labels[column];
+			if (name.equals("getColumnTypeName"))
+				return types[column] == java.sql.Types.BIGINT ? "BIGINT" : "VARCHAR";
+			if (name.equals("isNullable"))
+				return Integer.valueOf(ResultSetMetaData.columnNullable);
+			throw unsupported(method);
+		}
+	}
+
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright (c) 2010 Benedict Elliott Smith
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jjoost.benchmark.text;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.jjoost.text.pattern.Found;
+import org.jjoost.text.pattern.MatchAction;
+import org.jjoost.text.pattern.Parse.ParseException;
+import org.jjoost.text.pattern.StringMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Whole string matching and searching with <code>StringMatcher</code>, both for a single pattern and for the merge
+ * of a number of patterns, with <code>java.util.regex</code> as a baseline. Inputs are random words, of which a
+ * proportion are drawn from strings that match one of the patterns.
+ * 
+ * @author b.elliottsmith
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class StringMatcherBenchmark {
+
+	private static final String[] PATTERNS = new String[] {
+		"(best|top|worst|bottom)\\s+picks?",
+		"[a-z]+@[a-z]+[.](com|org|net)",
+		"([0-9,]*[.]?[0-9]+)",
+		"(ab)*(cd)*ef",
+		".*te.*st1",
+	};
+	private static final String[] MATCHING = new String[] {
+		"top picks", "worst   pick", "someone@example.org", "1,000.25", "ababcdef", "contest1",
+	};
+
+	/**
+	 * the number of patterns (taken in order from <code>PATTERNS</code>) merged into the matcher
+	 */
+	@Param({ "1", "5" })
+	public int patterns;
+
+	@Param({ "16", "256" })
+	public int inputLength;
+
+	@Param({ "0", "50" })
+	public int matchingPercent;
+
+	private StringMatcher<String, Integer> matcher;
+	private Pattern[] jdk;
+	private String[] inputs;
+	private int next;
+
+	private static StringMatcher<String, Integer> matcher(String regexp, final int id) throws ParseException {
+		return new StringMatcher<String, Integer>(regexp, new MatchAction<String, Integer>() {
+			@Override
+			public Integer matched(String input, Found captured) {
+				return id;
+			}
+		});
+	}
+
+	@Setup
+	public void setup() throws ParseException {
+		matcher = matcher(PATTERNS[0], 0);
+		jdk = new Pattern[patterns];
+		jdk[0] = Pattern.compile(PATTERNS[0]);
+		for (int i = 1 ; i < patterns ; i++) {
+			matcher = matcher.merge(matcher(PATTERNS[i], i));
+			jdk[i] = Pattern.compile(PATTERNS[i]);
+		}
+		final Random rnd = new Random(0);
+		inputs = new String[1024];
+		for (int i = 0 ; i != inputs.length ; i++) {
+			final StringBuilder sb = new StringBuilder();
+			if (rnd.nextInt(100) < matchingPercent) {
+				sb.append(MATCHING[rnd.nextInt(MATCHING.length)]);
+			} else {
+				while (sb.length() < inputLength) {
+					final int len = 1 + rnd.nextInt(8);
+					for (int j = 0 ; j != len ; j++)
+						sb.append((char) ('a' + rnd.nextInt(26)));
+					sb.append(' ');
+				}
+				sb.setLength(inputLength);
+			}
+			inputs[i] = sb.toString();
+		}
+	}
+
+	private String next() {
+		final int i = next;
+		next = (i + 1) & (inputs.length - 1);
+		return inputs[i];
+	}
+
+	@Benchmark
+	public List<Integer> match() {
+		return matcher.match(next());
+	}
+
+	@Benchmark
+	public List<Integer> findAll() {
+		return matcher.findAll(next());
+	}
+
+	@Benchmark
+	public int jdkMatch() {
+		final String s = next();
+		int c = 0;
+		for (Pattern p : jdk)
+			if (p.matcher(s).matches())
+				c++;
+		return c;
+	}
+
+	@Benchmark
+	public int jdkFind() {
+		final String s = next();
+		int c = 0;
+		for (Pattern p : jdk) {
+			final java.util.regex.Matcher m = p.matcher(s);
+			while (m.find())
+				c++;
+		}
+		return c;
+	}
+
+}